@@ -0,0 +1,218 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.plugin.arrow;
+
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.common.block.DictionaryBlock;
+import com.facebook.presto.common.block.LongArrayBlock;
+import com.facebook.presto.common.block.VariableWidthBlock;
+import com.facebook.presto.common.type.ArrayType;
+import com.facebook.presto.common.type.RowType;
+import com.google.common.collect.ImmutableList;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.SmallIntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.complex.ListVector;
+import org.apache.arrow.vector.complex.StructVector;
+import org.apache.arrow.vector.complex.impl.UnionListWriter;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.IntegerType.INTEGER;
+import static com.facebook.presto.common.type.VarcharType.VARCHAR;
+import static io.airlift.slice.Slices.utf8Slice;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestArrowToBlockConverter
+{
+    private BufferAllocator allocator;
+
+    @BeforeClass
+    public void setUp()
+    {
+        allocator = new RootAllocator(Integer.MAX_VALUE);
+    }
+
+    @AfterClass
+    public void tearDown()
+    {
+        allocator.close();
+    }
+
+    @Test
+    public void testBigintVector()
+    {
+        try (BigIntVector vector = new BigIntVector("bigint", allocator)) {
+            vector.allocateNew(4);
+            vector.set(0, 1L);
+            vector.setNull(1);
+            vector.set(2, Long.MIN_VALUE);
+            vector.set(3, Long.MAX_VALUE);
+            vector.setValueCount(4);
+
+            Block block = ArrowToBlockConverter.convert(vector, BIGINT).get();
+            assertTrue(block instanceof LongArrayBlock);
+            assertEquals(block.getPositionCount(), 4);
+            assertEquals(BIGINT.getLong(block, 0), 1L);
+            assertTrue(block.isNull(1));
+            assertEquals(BIGINT.getLong(block, 2), Long.MIN_VALUE);
+            assertEquals(BIGINT.getLong(block, 3), Long.MAX_VALUE);
+        }
+    }
+
+    @Test
+    public void testMismatchedTypeFallsBack()
+    {
+        try (IntVector vector = new IntVector("int", allocator)) {
+            vector.allocateNew(1);
+            vector.set(0, 7);
+            vector.setValueCount(1);
+
+            assertFalse(ArrowToBlockConverter.convert(vector, BIGINT).isPresent());
+        }
+    }
+
+    @Test
+    public void testVarcharVector()
+    {
+        try (VarCharVector vector = new VarCharVector("varchar", allocator)) {
+            vector.allocateNew(3);
+            vector.setSafe(0, "apple".getBytes(UTF_8));
+            vector.setNull(1);
+            vector.setSafe(2, "".getBytes(UTF_8));
+            vector.setValueCount(3);
+
+            Block block = ArrowToBlockConverter.convert(vector, VARCHAR).get();
+            assertTrue(block instanceof VariableWidthBlock);
+            assertEquals(VARCHAR.getSlice(block, 0), utf8Slice("apple"));
+            assertTrue(block.isNull(1));
+            assertEquals(VARCHAR.getSlice(block, 2), utf8Slice(""));
+        }
+    }
+
+    @Test
+    public void testListVector()
+    {
+        try (ListVector vector = ListVector.empty("list", allocator)) {
+            UnionListWriter writer = vector.getWriter();
+            writer.allocate();
+            writer.setPosition(0);
+            writer.startList();
+            writer.writeInt(1);
+            writer.writeInt(2);
+            writer.endList();
+            writer.setPosition(2);
+            writer.startList();
+            writer.writeInt(3);
+            writer.endList();
+            vector.setValueCount(3);
+
+            Block block = ArrowToBlockConverter.convert(vector, new ArrayType(INTEGER)).get();
+            assertEquals(block.getPositionCount(), 3);
+            Block first = block.getBlock(0);
+            assertEquals(first.getPositionCount(), 2);
+            assertEquals(INTEGER.getLong(first, 0), 1L);
+            assertEquals(INTEGER.getLong(first, 1), 2L);
+            assertTrue(block.isNull(1));
+            assertEquals(INTEGER.getLong(block.getBlock(2), 0), 3L);
+        }
+    }
+
+    @Test
+    public void testStructVectorWithNulls()
+    {
+        RowType rowType = RowType.from(ImmutableList.of(
+                RowType.field("a", BIGINT),
+                RowType.field("b", INTEGER)));
+        try (StructVector vector = StructVector.empty("struct", allocator)) {
+            BigIntVector a = vector.addOrGet("a", FieldType.nullable(new ArrowType.Int(64, true)), BigIntVector.class);
+            IntVector b = vector.addOrGet("b", FieldType.nullable(new ArrowType.Int(32, true)), IntVector.class);
+            vector.allocateNew();
+            a.setSafe(0, 10L);
+            b.setSafe(0, 100);
+            vector.setIndexDefined(0);
+            vector.setNull(1);
+            a.setSafe(2, 30L);
+            b.setNull(2);
+            vector.setIndexDefined(2);
+            vector.setValueCount(3);
+
+            Block block = ArrowToBlockConverter.convert(vector, rowType).get();
+            assertEquals(block.getPositionCount(), 3);
+            Block row0 = block.getBlock(0);
+            assertEquals(BIGINT.getLong(row0, 0), 10L);
+            assertEquals(INTEGER.getLong(row0, 1), 100L);
+            assertTrue(block.isNull(1));
+            Block row2 = block.getBlock(2);
+            assertEquals(BIGINT.getLong(row2, 0), 30L);
+            assertTrue(row2.isNull(1));
+        }
+    }
+
+    @Test
+    public void testDictionaryEncodedWithNullIndex()
+    {
+        BlockBuilder dictionaryBuilder = VARCHAR.createBlockBuilder(null, 2);
+        VARCHAR.writeSlice(dictionaryBuilder, utf8Slice("x"));
+        VARCHAR.writeSlice(dictionaryBuilder, utf8Slice("y"));
+        Block dictionary = dictionaryBuilder.build();
+
+        try (SmallIntVector indices = new SmallIntVector("indices", allocator)) {
+            indices.allocateNew(3);
+            indices.set(0, 1);
+            indices.setNull(1);
+            indices.set(2, 0);
+            indices.setValueCount(3);
+
+            Block block = ArrowToBlockConverter.convertDictionaryEncoded(indices, dictionary);
+            assertTrue(block instanceof DictionaryBlock);
+            assertEquals(VARCHAR.getSlice(block, 0), utf8Slice("y"));
+            assertTrue(block.isNull(1));
+            assertEquals(VARCHAR.getSlice(block, 2), utf8Slice("x"));
+        }
+    }
+
+    @Test
+    public void testBlockToArrowRoundTrip()
+    {
+        Block block = new LongArrayBlock(3, Optional.of(new boolean[] {false, true, false}), new long[] {5, 0, -5});
+        try (BigIntVector vector = new BigIntVector("bigint", allocator)) {
+            vector.allocateNew(1);
+            BlockToArrowConverter.writeBlock(block, vector, BIGINT, 3, 2);
+            vector.setValueCount(5);
+
+            assertTrue(vector.isNull(0));
+            assertTrue(vector.isNull(1));
+            assertEquals(vector.get(2), 5L);
+            assertTrue(vector.isNull(3));
+            assertEquals(vector.get(4), -5L);
+
+            Block converted = ArrowToBlockConverter.convert(vector, BIGINT).get();
+            assertEquals(BIGINT.getLong(converted, 4), -5L);
+        }
+    }
+}
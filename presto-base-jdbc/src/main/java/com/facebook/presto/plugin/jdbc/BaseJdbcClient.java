@@ -21,6 +21,7 @@ import com.facebook.presto.common.type.Type;
 import com.facebook.presto.common.type.UuidType;
 import com.facebook.presto.common.type.VarcharType;
 import com.facebook.presto.plugin.jdbc.mapping.ReadMapping;
+import com.facebook.presto.plugin.jdbc.mapping.WriteFunction;
 import com.facebook.presto.plugin.jdbc.mapping.WriteMapping;
 import com.facebook.presto.spi.ColumnHandle;
 import com.facebook.presto.spi.ColumnMetadata;
@@ -82,6 +83,8 @@ import static com.google.common.base.MoreObjects.firstNonNull;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Strings.emptyToNull;
 import static com.google.common.base.Strings.isNullOrEmpty;
+import static com.google.common.base.Verify.verify;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.ImmutableMap.toImmutableMap;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static com.google.common.collect.Iterables.getOnlyElement;
@@ -633,6 +636,24 @@ public class BaseJdbcClient
         return connection.prepareStatement(sql);
     }
 
+    @Override
+    public JdbcBatchWriter createBatchWriter(ConnectorSession session, JdbcOutputTableHandle handle, Connection connection)
+            throws SQLException
+    {
+        List<WriteFunction> columnWriters = handle.getColumnTypes().stream()
+                .map(type -> {
+                    WriteFunction writeFunction = toWriteMapping(session, type).getWriteFunction();
+                    verify(type.getJavaType() == writeFunction.getJavaType(),
+                            format("Presto type %s is not compatible with write function %s accepting %s", type, writeFunction, writeFunction.getJavaType()));
+                    return writeFunction;
+                })
+                .collect(toImmutableList());
+        String insertSql = buildInsertSql(session, handle);
+        // one statement is bound while the other executes
+        List<PreparedStatement> statements = ImmutableList.of(connection.prepareStatement(insertSql), connection.prepareStatement(insertSql));
+        return new PreparedStatementBatchWriter(statements, handle.getColumnTypes(), columnWriters);
+    }
+
     @Override
     public String normalizeIdentifier(ConnectorSession session, String identifier)
     {
@@ -0,0 +1,60 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.plugin.jdbc;
+
+import com.facebook.presto.common.Page;
+
+import java.sql.SQLException;
+
+/**
+ * Writes pages to a remote table over the connection of a {@link JdbcPageSink}.
+ * <p>
+ * Rows are encoded by {@link #appendPage} on the page sink thread while the previously
+ * detached batch may still be executing, so only {@link Batch#execute} may use the
+ * connection. Batches are executed one at a time, in the order they were detached,
+ * and the page sink commits after each of them. {@link #appendPage} is only called once
+ * every batch but the last detached one has completed, so a writer may alternate
+ * between two sets of statement state.
+ */
+public interface JdbcBatchWriter
+{
+    void appendPage(Page page)
+            throws SQLException;
+
+    int getPendingRowCount();
+
+    /**
+     * Returns an estimate of the memory retained for the rows appended since the last detached batch.
+     */
+    long getPendingSizeInBytes();
+
+    /**
+     * Returns the rows appended since the last call and starts a new batch.
+     */
+    Batch detachBatch();
+
+    void close()
+            throws SQLException;
+
+    interface Batch
+    {
+        /**
+         * Returns an estimate of the memory retained by this batch until it has executed.
+         */
+        long getSizeInBytes();
+
+        void execute()
+                throws SQLException;
+    }
+}
@@ -101,6 +101,9 @@ public interface JdbcClient
     PreparedStatement getPreparedStatement(ConnectorSession session, Connection connection, String sql)
             throws SQLException;
 
+    JdbcBatchWriter createBatchWriter(ConnectorSession session, JdbcOutputTableHandle handle, Connection connection)
+            throws SQLException;
+
     TableStatistics getTableStatistics(ConnectorSession session, JdbcTableHandle handle, List<JdbcColumnHandle> columnHandles, TupleDomain<ColumnHandle> tupleDomain);
 
     String normalizeIdentifier(ConnectorSession session, String identifier);
@@ -15,14 +15,6 @@ package com.facebook.presto.plugin.jdbc;
 
 import com.facebook.airlift.log.Logger;
 import com.facebook.presto.common.Page;
-import com.facebook.presto.common.block.Block;
-import com.facebook.presto.common.type.Type;
-import com.facebook.presto.plugin.jdbc.mapping.WriteFunction;
-import com.facebook.presto.plugin.jdbc.mapping.functions.BooleanWriteFunction;
-import com.facebook.presto.plugin.jdbc.mapping.functions.DoubleWriteFunction;
-import com.facebook.presto.plugin.jdbc.mapping.functions.LongWriteFunction;
-import com.facebook.presto.plugin.jdbc.mapping.functions.ObjectWriteFunction;
-import com.facebook.presto.plugin.jdbc.mapping.functions.SliceWriteFunction;
 import com.facebook.presto.spi.ConnectorPageSink;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.PrestoException;
@@ -30,34 +22,43 @@ import com.google.common.collect.ImmutableList;
 import io.airlift.slice.Slice;
 
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.SQLNonTransientException;
 import java.util.Collection;
-import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.facebook.presto.plugin.jdbc.JdbcErrorCode.JDBC_ERROR;
 import static com.facebook.presto.plugin.jdbc.JdbcErrorCode.JDBC_NON_TRANSIENT_ERROR;
-import static com.facebook.presto.spi.StandardErrorCode.NOT_SUPPORTED;
-import static com.google.common.base.Verify.verify;
-import static com.google.common.collect.ImmutableList.toImmutableList;
-import static java.lang.String.format;
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.CompletableFuture.completedFuture;
 
+/**
+ * Writes pages through a {@link JdbcBatchWriter}. A full batch is executed and committed
+ * on the page sink executor while the next batch is being encoded, so the sink only
+ * blocks when it gets a whole batch ahead of the remote database. The memory of the
+ * pending and executing batches is reported as system memory.
+ */
 public class JdbcPageSink
         implements ConnectorPageSink
 {
     private static final Logger log = Logger.get(JdbcPageSink.class);
 
     private final Connection connection;
-    private final PreparedStatement statement;
+    private final JdbcBatchWriter batchWriter;
+    private final int writeBatchSize;
+    private final Executor executor;
+
+    private final AtomicLong inFlightSizeInBytes = new AtomicLong();
 
-    private final List<Type> columnTypes;
-    private final List<WriteFunction> columnWriters;
-    private int batchSize;
+    private CompletableFuture<?> inFlightBatch = completedFuture(null);
+    // the batch detached before the in-flight one, the writer may reuse its state once it completes
+    private CompletableFuture<?> previousBatch = completedFuture(null);
 
-    public JdbcPageSink(ConnectorSession session, JdbcOutputTableHandle handle, JdbcClient jdbcClient)
+    public JdbcPageSink(ConnectorSession session, JdbcOutputTableHandle handle, JdbcClient jdbcClient, int writeBatchSize, Executor executor)
     {
         try {
             connection = jdbcClient.getConnection(session, JdbcIdentity.from(session), handle);
@@ -68,113 +69,91 @@ public class JdbcPageSink
 
         try {
             connection.setAutoCommit(false);
-            statement = connection.prepareStatement(jdbcClient.buildInsertSql(session, handle));
+            batchWriter = jdbcClient.createBatchWriter(session, handle, connection);
         }
         catch (SQLException e) {
             closeWithSuppression(connection, e);
             throw new PrestoException(JDBC_ERROR, e);
         }
 
-        columnTypes = handle.getColumnTypes();
-        columnWriters = columnTypes.stream().map(type -> {
-            WriteFunction writeFunction = jdbcClient.toWriteMapping(session, type).getWriteFunction();
-            verify(type.getJavaType() == writeFunction.getJavaType(),
-                    format("Presto type %s is not compatible with write function %s accepting %s", type, writeFunction, writeFunction.getJavaType()));
-            return writeFunction;
-        }).collect(toImmutableList());
+        this.writeBatchSize = writeBatchSize;
+        this.executor = requireNonNull(executor, "executor is null");
     }
 
     @Override
     public CompletableFuture<?> appendPage(Page page)
     {
+        if (inFlightBatch.isDone()) {
+            // surface the failure of a previous batch as early as possible
+            waitForBatch(inFlightBatch);
+        }
+        else {
+            // normally already complete, as the sink stays blocked until it is
+            waitForBatch(previousBatch);
+        }
+
         try {
-            for (int position = 0; position < page.getPositionCount(); position++) {
-                for (int channel = 0; channel < page.getChannelCount(); channel++) {
-                    appendColumn(page, position, channel);
-                }
-
-                statement.addBatch();
-                batchSize++;
-
-                if (batchSize >= 1000) {
-                    statement.executeBatch();
-                    connection.commit();
-                    connection.setAutoCommit(false);
-                    batchSize = 0;
-                }
-            }
+            batchWriter.appendPage(page);
         }
         catch (SQLException e) {
             throw new PrestoException(JDBC_ERROR, e);
         }
-        return NOT_BLOCKED;
-    }
-
-    private void appendColumn(Page page, int position, int channel)
-            throws SQLException
-    {
-        Block block = page.getBlock(channel);
-        int parameter = channel + 1;
-
-        if (block.isNull(position)) {
-            statement.setObject(parameter, null);
-            return;
+        if (batchWriter.getPendingRowCount() < writeBatchSize) {
+            return NOT_BLOCKED;
         }
 
-        Type type = columnTypes.get(channel);
-        Class<?> javaType = type.getJavaType();
-        WriteFunction writeFunction = columnWriters.get(channel);
-        if (javaType == boolean.class) {
-            ((BooleanWriteFunction) writeFunction).set(statement, parameter, type.getBoolean(block, position));
-        }
-        else if (javaType == long.class) {
-            ((LongWriteFunction) writeFunction).set(statement, parameter, type.getLong(block, position));
-        }
-        else if (javaType == double.class) {
-            ((DoubleWriteFunction) writeFunction).set(statement, parameter, type.getDouble(block, position));
-        }
-        else if (javaType == Slice.class) {
-            ((SliceWriteFunction) writeFunction).set(statement, parameter, type.getSlice(block, position));
-        }
-        else {
-            try {
-                ((ObjectWriteFunction) writeFunction).set(statement, parameter, type.getObject(block, position));
-            }
-            catch (SQLException e) {
-                throw new PrestoException(NOT_SUPPORTED, "Unsupported column type: " + type.getDisplayName());
-            }
+        submitBatch();
+        if (previousBatch.isDone()) {
+            return NOT_BLOCKED;
         }
+        // failures are reported by the next call into the sink
+        return previousBatch.handle((result, throwable) -> null);
     }
 
     @Override
     public CompletableFuture<Collection<Slice>> finish()
     {
         // commit and close
-        try (Connection connection = this.connection;
-                PreparedStatement statement = this.statement) {
-            if (batchSize > 0) {
-                statement.executeBatch();
-                connection.commit();
+        try {
+            if (batchWriter.getPendingRowCount() > 0) {
+                submitBatch();
             }
+            waitForBatch(inFlightBatch);
         }
-        catch (SQLNonTransientException e) {
-            throw new PrestoException(JDBC_NON_TRANSIENT_ERROR, e);
-        }
-        catch (SQLException e) {
-            throw new PrestoException(JDBC_ERROR, e);
+        finally {
+            try (Connection connection = this.connection) {
+                batchWriter.close();
+            }
+            catch (SQLException e) {
+                throw new PrestoException(JDBC_ERROR, e);
+            }
         }
         // the committer does not need any additional info
         return completedFuture(ImmutableList.of());
     }
 
+    @Override
+    public long getSystemMemoryUsage()
+    {
+        return batchWriter.getPendingSizeInBytes() + inFlightSizeInBytes.get();
+    }
+
     @SuppressWarnings("unused")
     @Override
     public void abort()
     {
+        // the connection must not be used concurrently, so let the running batch complete first
+        try {
+            inFlightBatch.join();
+        }
+        catch (CompletionException e) {
+            log.debug(e, "Batch failed before abort");
+        }
+
         // rollback and close
-        try (Connection connection = this.connection;
-                PreparedStatement statement = this.statement) {
+        try (Connection connection = this.connection) {
             connection.rollback();
+            batchWriter.close();
         }
         catch (SQLException e) {
             // Exceptions happened during abort do not cause any real damage so ignore them
@@ -182,6 +161,41 @@ public class JdbcPageSink
         }
     }
 
+    private void submitBatch()
+    {
+        JdbcBatchWriter.Batch batch = batchWriter.detachBatch();
+        long sizeInBytes = batch.getSizeInBytes();
+        inFlightSizeInBytes.addAndGet(sizeInBytes);
+        previousBatch = inFlightBatch;
+        inFlightBatch = inFlightBatch.thenRunAsync(() -> executeBatch(batch), executor)
+                .whenComplete((result, throwable) -> inFlightSizeInBytes.addAndGet(-sizeInBytes));
+    }
+
+    private void executeBatch(JdbcBatchWriter.Batch batch)
+    {
+        try {
+            batch.execute();
+            connection.commit();
+        }
+        catch (SQLNonTransientException e) {
+            throw new PrestoException(JDBC_NON_TRANSIENT_ERROR, e);
+        }
+        catch (SQLException e) {
+            throw new PrestoException(JDBC_ERROR, e);
+        }
+    }
+
+    private static void waitForBatch(CompletableFuture<?> batch)
+    {
+        try {
+            batch.join();
+        }
+        catch (CompletionException e) {
+            throwIfUnchecked(e.getCause());
+            throw new PrestoException(JDBC_ERROR, e.getCause());
+        }
+    }
+
     @SuppressWarnings("ObjectEquality")
     private static void closeWithSuppression(Connection connection, Throwable throwable)
     {
@@ -20,33 +20,47 @@ import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.PageSinkContext;
 import com.facebook.presto.spi.connector.ConnectorPageSinkProvider;
 import com.facebook.presto.spi.connector.ConnectorTransactionHandle;
+import jakarta.annotation.PreDestroy;
 import jakarta.inject.Inject;
 
+import java.util.concurrent.ExecutorService;
+
+import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newCachedThreadPool;
 
 public class JdbcPageSinkProvider
         implements ConnectorPageSinkProvider
 {
     private final JdbcClient jdbcClient;
+    private final int writeBatchSize;
+    private final ExecutorService executor = newCachedThreadPool(daemonThreadsNamed("jdbc-page-sink-%s"));
 
     @Inject
-    public JdbcPageSinkProvider(JdbcClient jdbcClient)
+    public JdbcPageSinkProvider(JdbcClient jdbcClient, JdbcWriteConfig writeConfig)
     {
         this.jdbcClient = requireNonNull(jdbcClient, "jdbcClient is null");
+        this.writeBatchSize = requireNonNull(writeConfig, "writeConfig is null").getWriteBatchSize();
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        executor.shutdownNow();
     }
 
     @Override
     public ConnectorPageSink createPageSink(ConnectorTransactionHandle transactionHandle, ConnectorSession session, ConnectorOutputTableHandle tableHandle, PageSinkContext pageSinkContext)
     {
         checkArgument(!pageSinkContext.isCommitRequired(), "Jdbc connector does not support page sink commit");
-        return new JdbcPageSink(session, (JdbcOutputTableHandle) tableHandle, jdbcClient);
+        return new JdbcPageSink(session, (JdbcOutputTableHandle) tableHandle, jdbcClient, writeBatchSize, executor);
     }
 
     @Override
     public ConnectorPageSink createPageSink(ConnectorTransactionHandle transactionHandle, ConnectorSession session, ConnectorInsertTableHandle tableHandle, PageSinkContext pageSinkContext)
     {
         checkArgument(!pageSinkContext.isCommitRequired(), "Jdbc connector does not support page sink commit");
-        return new JdbcPageSink(session, (JdbcOutputTableHandle) tableHandle, jdbcClient);
+        return new JdbcPageSink(session, (JdbcOutputTableHandle) tableHandle, jdbcClient, writeBatchSize, executor);
     }
 }
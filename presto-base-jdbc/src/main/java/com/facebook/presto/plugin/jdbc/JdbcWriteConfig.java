@@ -0,0 +1,51 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.plugin.jdbc;
+
+import com.facebook.airlift.configuration.Config;
+import com.facebook.airlift.configuration.ConfigDescription;
+import jakarta.validation.constraints.Min;
+
+public class JdbcWriteConfig
+{
+    private int writeBatchSize = 1000;
+    private boolean bulkWriteEnabled = true;
+
+    @Min(1)
+    public int getWriteBatchSize()
+    {
+        return writeBatchSize;
+    }
+
+    @Config("write-batch-size")
+    @ConfigDescription("Number of rows sent to the remote database in a single batch")
+    public JdbcWriteConfig setWriteBatchSize(int writeBatchSize)
+    {
+        this.writeBatchSize = writeBatchSize;
+        return this;
+    }
+
+    public boolean isBulkWriteEnabled()
+    {
+        return bulkWriteEnabled;
+    }
+
+    @Config("bulk-write-enabled")
+    @ConfigDescription("Use the bulk load path of the remote database, such as COPY for PostgreSQL, when writing")
+    public JdbcWriteConfig setBulkWriteEnabled(boolean bulkWriteEnabled)
+    {
+        this.bulkWriteEnabled = bulkWriteEnabled;
+        return this;
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.plugin.jdbc;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.plugin.jdbc.mapping.WriteFunction;
+import com.facebook.presto.plugin.jdbc.mapping.functions.BooleanWriteFunction;
+import com.facebook.presto.plugin.jdbc.mapping.functions.DoubleWriteFunction;
+import com.facebook.presto.plugin.jdbc.mapping.functions.LongWriteFunction;
+import com.facebook.presto.plugin.jdbc.mapping.functions.ObjectWriteFunction;
+import com.facebook.presto.plugin.jdbc.mapping.functions.SliceWriteFunction;
+import com.facebook.presto.spi.PrestoException;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+import static com.facebook.presto.spi.StandardErrorCode.NOT_SUPPORTED;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Default {@link JdbcBatchWriter} that binds every row to an {@code INSERT} prepared
+ * statement and sends the rows of a batch with {@link PreparedStatement#executeBatch()}.
+ * Rows are bound as soon as they are appended, alternating between two statements, so
+ * the next batch is bound while the previous one executes.
+ */
+public class PreparedStatementBatchWriter
+        implements JdbcBatchWriter
+{
+    private final List<PreparedStatement> statements;
+    private final List<Type> columnTypes;
+    private final List<WriteFunction> columnWriters;
+
+    private int currentStatement;
+    private int pendingRowCount;
+    private long pendingSizeInBytes;
+
+    public PreparedStatementBatchWriter(List<PreparedStatement> statements, List<Type> columnTypes, List<WriteFunction> columnWriters)
+    {
+        this.statements = ImmutableList.copyOf(requireNonNull(statements, "statements is null"));
+        this.columnTypes = ImmutableList.copyOf(requireNonNull(columnTypes, "columnTypes is null"));
+        this.columnWriters = ImmutableList.copyOf(requireNonNull(columnWriters, "columnWriters is null"));
+        checkArgument(statements.size() == 2, "expected two statements, got %s", statements.size());
+        checkArgument(columnTypes.size() == columnWriters.size(), "columnTypes and columnWriters sizes don't match");
+    }
+
+    @Override
+    public void appendPage(Page page)
+            throws SQLException
+    {
+        PreparedStatement statement = statements.get(currentStatement);
+        for (int position = 0; position < page.getPositionCount(); position++) {
+            for (int channel = 0; channel < page.getChannelCount(); channel++) {
+                appendColumn(statement, page, position, channel);
+            }
+            statement.addBatch();
+        }
+        pendingRowCount += page.getPositionCount();
+        // the driver copies the bound values, so the page itself is not retained
+        pendingSizeInBytes += page.getSizeInBytes();
+    }
+
+    @Override
+    public int getPendingRowCount()
+    {
+        return pendingRowCount;
+    }
+
+    @Override
+    public long getPendingSizeInBytes()
+    {
+        return pendingSizeInBytes;
+    }
+
+    @Override
+    public Batch detachBatch()
+    {
+        PreparedStatement statement = statements.get(currentStatement);
+        long sizeInBytes = pendingSizeInBytes;
+        currentStatement = (currentStatement + 1) % statements.size();
+        pendingRowCount = 0;
+        pendingSizeInBytes = 0;
+        return new Batch()
+        {
+            @Override
+            public long getSizeInBytes()
+            {
+                return sizeInBytes;
+            }
+
+            @Override
+            public void execute()
+                    throws SQLException
+            {
+                statement.executeBatch();
+            }
+        };
+    }
+
+    @Override
+    public void close()
+            throws SQLException
+    {
+        try (PreparedStatement ignored = statements.get(0)) {
+            statements.get(1).close();
+        }
+    }
+
+    private void appendColumn(PreparedStatement statement, Page page, int position, int channel)
+            throws SQLException
+    {
+        Block block = page.getBlock(channel);
+        int parameter = channel + 1;
+
+        if (block.isNull(position)) {
+            statement.setObject(parameter, null);
+            return;
+        }
+
+        Type type = columnTypes.get(channel);
+        Class<?> javaType = type.getJavaType();
+        WriteFunction writeFunction = columnWriters.get(channel);
+        if (javaType == boolean.class) {
+            ((BooleanWriteFunction) writeFunction).set(statement, parameter, type.getBoolean(block, position));
+        }
+        else if (javaType == long.class) {
+            ((LongWriteFunction) writeFunction).set(statement, parameter, type.getLong(block, position));
+        }
+        else if (javaType == double.class) {
+            ((DoubleWriteFunction) writeFunction).set(statement, parameter, type.getDouble(block, position));
+        }
+        else if (javaType == Slice.class) {
+            ((SliceWriteFunction) writeFunction).set(statement, parameter, type.getSlice(block, position));
+        }
+        else {
+            try {
+                ((ObjectWriteFunction) writeFunction).set(statement, parameter, type.getObject(block, position));
+            }
+            catch (SQLException e) {
+                throw new PrestoException(NOT_SUPPORTED, "Unsupported column type: " + type.getDisplayName());
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.plugin.jdbc;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.spi.ColumnMetadata;
+import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.spi.ConnectorTableMetadata;
+import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.SchemaTableName;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.testing.TestingSession.testSessionBuilder;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.util.Locale.ENGLISH;
+import static java.util.UUID.randomUUID;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestJdbcPageSink
+{
+    private static final ConnectorSession session = testSessionBuilder().build().toConnectorSession();
+
+    private TestingDatabase database;
+    private JdbcClient jdbcClient;
+
+    @BeforeClass
+    public void setUp()
+            throws Exception
+    {
+        database = new TestingDatabase();
+        jdbcClient = database.getJdbcClient();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+            throws Exception
+    {
+        database.close();
+        database = null;
+    }
+
+    @Test
+    public void testBatchesExecuteWhileNextBatchIsBound()
+            throws Exception
+    {
+        JdbcOutputTableHandle handle = beginCreateTable();
+        try {
+            PausedExecutor executor = new PausedExecutor();
+            JdbcPageSink pageSink = new JdbcPageSink(session, handle, jdbcClient, 2, executor);
+            assertEquals(pageSink.getSystemMemoryUsage(), 0);
+
+            // a partial batch stays pending on the sink
+            assertTrue(pageSink.appendPage(createPage(1L)).isDone());
+            long pendingSize = pageSink.getSystemMemoryUsage();
+            assertTrue(pendingSize > 0);
+
+            // the full batch is handed off, nothing else is in flight so the sink is not blocked
+            assertTrue(pageSink.appendPage(createPage(2L)).isDone());
+            assertTrue(pageSink.getSystemMemoryUsage() >= pendingSize);
+            assertEquals(getRowCount(handle), 0);
+
+            // the second batch is bound while the first one waits, and the sink blocks on the first one
+            CompletableFuture<?> blocked = pageSink.appendPage(createPage(3L, 4L));
+            assertFalse(blocked.isDone());
+            assertTrue(pageSink.getSystemMemoryUsage() > pendingSize);
+
+            executor.resume();
+            assertTrue(blocked.isDone());
+            assertEquals(pageSink.getSystemMemoryUsage(), 0);
+            assertEquals(getRowCount(handle), 4);
+
+            // the remaining rows are flushed by finish
+            assertTrue(pageSink.appendPage(createPage(5L)).isDone());
+            assertTrue(pageSink.getSystemMemoryUsage() > 0);
+            pageSink.finish().get();
+            assertEquals(pageSink.getSystemMemoryUsage(), 0);
+            assertEquals(getRowCount(handle), 5);
+        }
+        finally {
+            jdbcClient.rollbackCreateTable(session, JdbcIdentity.from(session), handle);
+        }
+    }
+
+    @Test
+    public void testBatchFailureIsReported()
+            throws Exception
+    {
+        JdbcOutputTableHandle handle = beginCreateTable();
+        try {
+            JdbcPageSink pageSink = new JdbcPageSink(session, handle, jdbcClient, 1, directExecutor());
+            // the column is not nullable, so the batch fails when it executes
+            assertTrue(pageSink.appendPage(createPage((Long) null)).isDone());
+            assertEquals(pageSink.getSystemMemoryUsage(), 0);
+            assertThrows(PrestoException.class, () -> pageSink.appendPage(createPage(1L)));
+            pageSink.abort();
+            assertEquals(getRowCount(handle), 0);
+        }
+        finally {
+            jdbcClient.rollbackCreateTable(session, JdbcIdentity.from(session), handle);
+        }
+    }
+
+    @Test
+    public void testFinishReportsBatchFailure()
+            throws Exception
+    {
+        JdbcOutputTableHandle handle = beginCreateTable();
+        try {
+            JdbcPageSink pageSink = new JdbcPageSink(session, handle, jdbcClient, 10, directExecutor());
+            assertTrue(pageSink.appendPage(createPage(1L, null)).isDone());
+            assertThrows(PrestoException.class, pageSink::finish);
+            assertEquals(getRowCount(handle), 0);
+        }
+        finally {
+            jdbcClient.rollbackCreateTable(session, JdbcIdentity.from(session), handle);
+        }
+    }
+
+    private JdbcOutputTableHandle beginCreateTable()
+    {
+        SchemaTableName schemaTableName = new SchemaTableName("schema_for_create_table_tests", randomUUID().toString().toUpperCase(ENGLISH));
+        ColumnMetadata column = ColumnMetadata.builder().setName("value").setType(BIGINT).setNullable(false).setHidden(false).build();
+        return jdbcClient.beginCreateTable(session, new ConnectorTableMetadata(schemaTableName, ImmutableList.of(column)));
+    }
+
+    private long getRowCount(JdbcOutputTableHandle handle)
+            throws SQLException
+    {
+        String sql = "SELECT count(*) FROM \"" + handle.getSchemaName() + "\".\"" + handle.getTemporaryTableName() + "\"";
+        try (Statement statement = database.getConnection().createStatement();
+                ResultSet resultSet = statement.executeQuery(sql)) {
+            assertTrue(resultSet.next());
+            return resultSet.getLong(1);
+        }
+    }
+
+    private static Page createPage(Long... values)
+    {
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, values.length);
+        for (Long value : values) {
+            if (value == null) {
+                blockBuilder.appendNull();
+            }
+            else {
+                BIGINT.writeLong(blockBuilder, value);
+            }
+        }
+        return new Page(blockBuilder.build());
+    }
+
+    /**
+     * Queues the batches until resumed and runs them inline afterwards.
+     */
+    private static class PausedExecutor
+            implements Executor
+    {
+        private final Queue<Runnable> queued = new ArrayDeque<>();
+        private boolean paused = true;
+
+        @Override
+        public void execute(Runnable command)
+        {
+            if (paused) {
+                queued.add(command);
+                return;
+            }
+            command.run();
+        }
+
+        public void resume()
+        {
+            paused = false;
+            while (!queued.isEmpty()) {
+                queued.poll().run();
+            }
+        }
+    }
+}
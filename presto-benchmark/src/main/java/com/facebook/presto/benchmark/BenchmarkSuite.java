@@ -51,6 +51,7 @@ public class BenchmarkSuite
                 new HashJoinBenchmark(localQueryRunner),
                 new HashBuildAndJoinBenchmark(localQueryRunner.getDefaultSession(), localQueryRunner),
                 new HashBuildAndJoinBenchmark(optimizeHashSession, localQueryRunner),
+                HashBuildAndJoinBenchmark.largeBuild(localQueryRunner.getDefaultSession(), localQueryRunner),
                 new HandTpchQuery1(localQueryRunner),
                 new HandTpchQuery6(localQueryRunner),
 
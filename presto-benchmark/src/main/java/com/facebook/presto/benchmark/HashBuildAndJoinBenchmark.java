@@ -58,10 +58,28 @@ public class HashBuildAndJoinBenchmark
 
     public HashBuildAndJoinBenchmark(Session session, LocalQueryRunner localQueryRunner)
     {
-        super(session, localQueryRunner, "hash_build_and_join_hash_enabled_" + isHashEnabled(session), 4, 5);
+        this(session, localQueryRunner, "hash_build_and_join_hash_enabled_" + isHashEnabled(session), 4, 5);
+    }
+
+    private HashBuildAndJoinBenchmark(Session session, LocalQueryRunner localQueryRunner, String benchmarkName, int warmupIterations, int measuredIterations)
+    {
+        super(session, localQueryRunner, benchmarkName, warmupIterations, measuredIterations);
         this.hashEnabled = isHashEnabled(session);
     }
 
+    /**
+     * Same join over the sf1 tables. The 1.5M row build side produces a hash table
+     * well beyond the size of the last level cache, so probes are dominated by
+     * cache misses rather than by the key comparisons.
+     */
+    public static HashBuildAndJoinBenchmark largeBuild(Session session, LocalQueryRunner localQueryRunner)
+    {
+        Session sf1Session = Session.builder(session)
+                .setSchema("sf1")
+                .build();
+        return new HashBuildAndJoinBenchmark(sf1Session, localQueryRunner, "hash_build_and_join_large_build_hash_enabled_" + isHashEnabled(session), 1, 3);
+    }
+
     private static boolean isHashEnabled(Session session)
     {
         return SystemSessionProperties.isOptimizeHashGenerationEnabled(session);
@@ -113,7 +131,8 @@ public class HashBuildAndJoinBenchmark
                 new PagesIndex.TestingFactory(false),
                 false,
                 SingleStreamSpillerFactory.unsupportedSingleStreamSpillerFactory(),
-                false);
+                false,
+                localQueryRunner.getExecutor());
         driversBuilder.add(hashBuilder);
         DriverFactory hashBuildDriverFactory = new DriverFactory(0, true, false, driversBuilder.build(), OptionalInt.empty(), UNGROUPED_EXECUTION, Optional.empty());
 
@@ -158,5 +177,7 @@ public class HashBuildAndJoinBenchmark
     {
         new HashBuildAndJoinBenchmark(testSessionBuilder().build(), createLocalQueryRunner()).runBenchmark(new SimpleLineBenchmarkResultWriter(System.out));
         new HashBuildAndJoinBenchmark(testSessionBuilder().build(), createLocalQueryRunnerHashEnabled()).runBenchmark(new SimpleLineBenchmarkResultWriter(System.out));
+        LocalQueryRunner localQueryRunner = createLocalQueryRunner();
+        largeBuild(localQueryRunner.getDefaultSession(), localQueryRunner).runBenchmark(new SimpleLineBenchmarkResultWriter(System.out));
     }
 }
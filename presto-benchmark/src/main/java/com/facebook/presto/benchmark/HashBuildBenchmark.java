@@ -84,7 +84,8 @@ public class HashBuildBenchmark
                 new PagesIndex.TestingFactory(false),
                 false,
                 SingleStreamSpillerFactory.unsupportedSingleStreamSpillerFactory(),
-                false);
+                false,
+                localQueryRunner.getExecutor());
         DriverFactory hashBuildDriverFactory = new DriverFactory(0, true, true, ImmutableList.of(ordersTableScan, hashBuilder), OptionalInt.empty(), UNGROUPED_EXECUTION, Optional.empty());
 
         // empty join so build finishes
@@ -93,7 +93,8 @@ public class HashJoinBenchmark
                     new PagesIndex.TestingFactory(false),
                     false,
                     SingleStreamSpillerFactory.unsupportedSingleStreamSpillerFactory(),
-                    false);
+                    false,
+                    localQueryRunner.getExecutor());
 
             DriverContext driverContext = taskContext.addPipelineContext(0, false, false, false).addDriverContext();
             DriverFactory buildDriverFactory = new DriverFactory(0, false, false, ImmutableList.of(ordersTableScan, hashBuilder), OptionalInt.empty(), UNGROUPED_EXECUTION, Optional.empty());
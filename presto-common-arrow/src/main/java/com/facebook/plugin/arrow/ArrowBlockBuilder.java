@@ -15,7 +15,6 @@ package com.facebook.plugin.arrow;
 
 import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.block.BlockBuilder;
-import com.facebook.presto.common.block.DictionaryBlock;
 import com.facebook.presto.common.type.ArrayType;
 import com.facebook.presto.common.type.BigintType;
 import com.facebook.presto.common.type.BooleanType;
@@ -96,6 +95,7 @@ public class ArrowBlockBuilder
     {
         this.typeManager = requireNonNull(typeManager, "typeManager is null");
     }
+
     public Block buildBlockFromFieldVector(FieldVector vector, Type type, DictionaryProvider dictionaryProvider)
     {
         // Use Arrow dictionary to create a DictionaryBlock
@@ -103,12 +103,21 @@ public class ArrowBlockBuilder
             Dictionary dictionary = dictionaryProvider.lookup(vector.getField().getDictionary().getId());
             if (dictionary != null) {
                 Type prestoType = getPrestoTypeFromArrowField(dictionary.getVector().getField());
-                BlockBuilder dictionaryBuilder = prestoType.createBlockBuilder(null, vector.getValueCount());
-                assignBlockFromValueVector(dictionary.getVector(), prestoType, dictionaryBuilder, 0, dictionary.getVector().getValueCount());
-                return buildDictionaryBlock(vector, dictionaryBuilder.build());
+                Block dictionaryBlock = buildBlockFromValueVector(dictionary.getVector(), prestoType);
+                return ArrowToBlockConverter.convertDictionaryEncoded(vector, dictionaryBlock);
             }
         }
 
+        return buildBlockFromValueVector(vector, type);
+    }
+
+    private Block buildBlockFromValueVector(ValueVector vector, Type type)
+    {
+        // Bulk-copy the Arrow buffers when the layout matches, otherwise convert value by value
+        Optional<Block> block = ArrowToBlockConverter.convert(vector, type);
+        if (block.isPresent()) {
+            return block.get();
+        }
         BlockBuilder builder = type.createBlockBuilder(null, vector.getValueCount());
         assignBlockFromValueVector(vector, type, builder, 0, vector.getValueCount());
         return builder.build();
@@ -193,41 +202,6 @@ public class ArrowBlockBuilder
         }
     }
 
-    private DictionaryBlock buildDictionaryBlock(FieldVector fieldVector, Block dictionaryblock)
-    {
-        if (fieldVector instanceof IntVector) {
-            // Get the Arrow indices vector
-            IntVector indicesVector = (IntVector) fieldVector;
-            int[] ids = new int[indicesVector.getValueCount()];
-            for (int i = 0; i < indicesVector.getValueCount(); i++) {
-                ids[i] = indicesVector.get(i);
-            }
-            return new DictionaryBlock(ids.length, dictionaryblock, ids);
-        }
-        else if (fieldVector instanceof SmallIntVector) {
-            // Get the SmallInt indices vector
-            SmallIntVector smallIntIndicesVector = (SmallIntVector) fieldVector;
-            int[] ids = new int[smallIntIndicesVector.getValueCount()];
-            for (int i = 0; i < smallIntIndicesVector.getValueCount(); i++) {
-                ids[i] = smallIntIndicesVector.get(i);
-            }
-            return new DictionaryBlock(ids.length, dictionaryblock, ids);
-        }
-        else if (fieldVector instanceof TinyIntVector) {
-            // Get the TinyInt indices vector
-            TinyIntVector tinyIntIndicesVector = (TinyIntVector) fieldVector;
-            int[] ids = new int[tinyIntIndicesVector.getValueCount()];
-            for (int i = 0; i < tinyIntIndicesVector.getValueCount(); i++) {
-                ids[i] = tinyIntIndicesVector.get(i);
-            }
-            return new DictionaryBlock(ids.length, dictionaryblock, ids);
-        }
-        else {
-            // Handle the case where the FieldVector is of an unsupported type
-            throw new IllegalArgumentException("Unsupported FieldVector type: " + fieldVector.getClass());
-        }
-    }
-
     private void assignBlockFromValueVector(ValueVector vector, Type type, BlockBuilder builder, int startIndex, int endIndex)
     {
         if (vector instanceof BitVector) {
@@ -0,0 +1,350 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.plugin.arrow;
+
+import com.facebook.presto.common.block.ArrayBlock;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.ByteArrayBlock;
+import com.facebook.presto.common.block.DictionaryBlock;
+import com.facebook.presto.common.block.IntArrayBlock;
+import com.facebook.presto.common.block.LongArrayBlock;
+import com.facebook.presto.common.block.MapBlock;
+import com.facebook.presto.common.block.RowBlock;
+import com.facebook.presto.common.block.ShortArrayBlock;
+import com.facebook.presto.common.block.VariableWidthBlock;
+import com.facebook.presto.common.type.ArrayType;
+import com.facebook.presto.common.type.DecimalType;
+import com.facebook.presto.common.type.MapType;
+import com.facebook.presto.common.type.RowType;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.common.type.VarbinaryType;
+import com.facebook.presto.common.type.VarcharType;
+import io.airlift.slice.Slices;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.vector.BaseIntVector;
+import org.apache.arrow.vector.BaseVariableWidthVector;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.SmallIntVector;
+import org.apache.arrow.vector.TimeStampMilliTZVector;
+import org.apache.arrow.vector.TimeStampMilliVector;
+import org.apache.arrow.vector.TinyIntVector;
+import org.apache.arrow.vector.ValueVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.complex.FixedSizeListVector;
+import org.apache.arrow.vector.complex.ListVector;
+import org.apache.arrow.vector.complex.MapVector;
+import org.apache.arrow.vector.complex.StructVector;
+
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.common.type.DateType.DATE;
+import static com.facebook.presto.common.type.DoubleType.DOUBLE;
+import static com.facebook.presto.common.type.IntegerType.INTEGER;
+import static com.facebook.presto.common.type.RealType.REAL;
+import static com.facebook.presto.common.type.SmallintType.SMALLINT;
+import static com.facebook.presto.common.type.TimestampType.TIMESTAMP;
+import static com.facebook.presto.common.type.TinyintType.TINYINT;
+
+/**
+ * Columnar conversion of Arrow vectors into Presto blocks.
+ * <p>
+ * Fixed-width vectors are bulk-copied from the Arrow data buffer into the primitive
+ * array backing the block, variable-width vectors copy their data and offset buffers
+ * in one pass each, and nested vectors reuse the converted child blocks directly.
+ * Only vector/type pairs whose Arrow physical layout matches the Presto storage
+ * representation are handled; for everything else {@link #convert} returns empty and
+ * the caller is expected to fall back to the value-by-value path in {@link ArrowBlockBuilder}.
+ */
+public final class ArrowToBlockConverter
+{
+    private ArrowToBlockConverter() {}
+
+    public static Optional<Block> convert(ValueVector vector, Type type)
+    {
+        int positionCount = vector.getValueCount();
+        if (vector instanceof BigIntVector && type.equals(BIGINT)) {
+            return Optional.of(new LongArrayBlock(positionCount, getNulls(vector), readLongs(vector.getDataBuffer(), positionCount)));
+        }
+        if ((vector instanceof TimeStampMilliVector || vector instanceof TimeStampMilliTZVector) && type.equals(TIMESTAMP)) {
+            return Optional.of(new LongArrayBlock(positionCount, getNulls(vector), readLongs(vector.getDataBuffer(), positionCount)));
+        }
+        if (vector instanceof Float8Vector && type.equals(DOUBLE)) {
+            return Optional.of(new LongArrayBlock(positionCount, getNulls(vector), readLongs(vector.getDataBuffer(), positionCount)));
+        }
+        if ((vector instanceof IntVector && type.equals(INTEGER)) || (vector instanceof DateDayVector && type.equals(DATE))) {
+            return Optional.of(new IntArrayBlock(positionCount, getNulls(vector), readInts(vector.getDataBuffer(), positionCount)));
+        }
+        if (vector instanceof Float4Vector && type.equals(REAL)) {
+            return Optional.of(new IntArrayBlock(positionCount, getNulls(vector), readInts(vector.getDataBuffer(), positionCount)));
+        }
+        if (vector instanceof SmallIntVector && type.equals(SMALLINT)) {
+            return Optional.of(new ShortArrayBlock(positionCount, getNulls(vector), readShorts(vector.getDataBuffer(), positionCount)));
+        }
+        if (vector instanceof TinyIntVector && type.equals(TINYINT)) {
+            return Optional.of(new ByteArrayBlock(positionCount, getNulls(vector), readBytes(vector.getDataBuffer(), positionCount)));
+        }
+        if (vector instanceof BitVector && type.equals(BOOLEAN)) {
+            return Optional.of(new ByteArrayBlock(positionCount, getNulls(vector), readBits(vector.getDataBuffer(), positionCount)));
+        }
+        if (vector instanceof DecimalVector && type instanceof DecimalType && ((DecimalType) type).isShort()) {
+            return Optional.of(new LongArrayBlock(positionCount, getNulls(vector), readShortDecimals((DecimalVector) vector, positionCount)));
+        }
+        if ((vector instanceof VarCharVector && type instanceof VarcharType) || (vector instanceof VarBinaryVector && type instanceof VarbinaryType)) {
+            return Optional.of(convertVariableWidth((BaseVariableWidthVector) vector, positionCount));
+        }
+        // MapVector extends ListVector, so it must be checked first
+        if (vector instanceof MapVector && type instanceof MapType) {
+            return convertMap((MapVector) vector, (MapType) type, positionCount);
+        }
+        if (vector instanceof ListVector && type instanceof ArrayType) {
+            return convertList((ListVector) vector, (ArrayType) type, positionCount);
+        }
+        if (vector instanceof FixedSizeListVector && type instanceof ArrayType) {
+            return convertFixedSizeList((FixedSizeListVector) vector, (ArrayType) type, positionCount);
+        }
+        if (vector instanceof StructVector && type instanceof RowType) {
+            return convertStruct((StructVector) vector, (RowType) type, positionCount);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Wraps an already converted dictionary block with the ids held by an Arrow
+     * dictionary-encoded index vector. Null indices are mapped to a null entry
+     * appended to the dictionary.
+     */
+    public static Block convertDictionaryEncoded(ValueVector indices, Block dictionary)
+    {
+        if (!(indices instanceof BaseIntVector)) {
+            throw new IllegalArgumentException("Unsupported dictionary index vector type: " + indices.getClass());
+        }
+        int positionCount = indices.getValueCount();
+        int[] ids = readIds((BaseIntVector) indices, positionCount);
+        if (indices.getNullCount() > 0) {
+            int nullId = dictionary.getPositionCount();
+            dictionary = dictionary.appendNull();
+            for (int position = 0; position < positionCount; position++) {
+                if (indices.isNull(position)) {
+                    ids[position] = nullId;
+                }
+            }
+        }
+        return new DictionaryBlock(positionCount, dictionary, ids);
+    }
+
+    private static Block convertVariableWidth(BaseVariableWidthVector vector, int positionCount)
+    {
+        int[] offsets = readInts(vector.getOffsetBuffer(), positionCount + 1);
+        if (positionCount == 0) {
+            return new VariableWidthBlock(0, Slices.EMPTY_SLICE, new int[1], Optional.empty());
+        }
+        byte[] data = new byte[offsets[positionCount]];
+        vector.getDataBuffer().getBytes(0, data);
+        return new VariableWidthBlock(positionCount, Slices.wrappedBuffer(data), offsets, getNulls(vector));
+    }
+
+    private static Optional<Block> convertList(ListVector vector, ArrayType type, int positionCount)
+    {
+        int[] offsets = readInts(vector.getOffsetBuffer(), positionCount + 1);
+        Optional<boolean[]> nulls = getNulls(vector);
+        if (!hasEmptyNullEntries(nulls, offsets, positionCount)) {
+            return Optional.empty();
+        }
+        return convert(vector.getDataVector(), type.getElementType())
+                .map(elements -> ArrayBlock.fromElementBlock(positionCount, nulls, offsets, elements));
+    }
+
+    private static Optional<Block> convertFixedSizeList(FixedSizeListVector vector, ArrayType type, int positionCount)
+    {
+        // Null entries of a fixed size list still occupy listSize elements, which an ArrayBlock does not allow
+        if (vector.getNullCount() > 0) {
+            return Optional.empty();
+        }
+        int listSize = vector.getListSize();
+        int[] offsets = new int[positionCount + 1];
+        for (int position = 0; position <= positionCount; position++) {
+            offsets[position] = position * listSize;
+        }
+        return convert(vector.getDataVector(), type.getElementType())
+                .map(elements -> ArrayBlock.fromElementBlock(positionCount, Optional.empty(), offsets, elements));
+    }
+
+    private static Optional<Block> convertMap(MapVector vector, MapType type, int positionCount)
+    {
+        int[] offsets = readInts(vector.getOffsetBuffer(), positionCount + 1);
+        Optional<boolean[]> nulls = getNulls(vector);
+        if (!hasEmptyNullEntries(nulls, offsets, positionCount)) {
+            return Optional.empty();
+        }
+        StructVector entries = (StructVector) vector.getDataVector();
+        Optional<Block> keys = convert(entries.getChildByOrdinal(0), type.getKeyType());
+        Optional<Block> values = convert(entries.getChildByOrdinal(1), type.getValueType());
+        if (!keys.isPresent() || !values.isPresent()) {
+            return Optional.empty();
+        }
+        if (offsets[0] != 0) {
+            // MapBlock expects the key and value blocks to start at the first entry
+            int entryCount = offsets[positionCount] - offsets[0];
+            keys = Optional.of(keys.get().getRegion(offsets[0], entryCount));
+            values = Optional.of(values.get().getRegion(offsets[0], entryCount));
+            int base = offsets[0];
+            for (int position = 0; position <= positionCount; position++) {
+                offsets[position] -= base;
+            }
+        }
+        return Optional.of(MapBlock.fromKeyValueBlock(positionCount, nulls, offsets, keys.get(), values.get()));
+    }
+
+    private static Optional<Block> convertStruct(StructVector vector, RowType type, int positionCount)
+    {
+        List<Type> fieldTypes = type.getTypeParameters();
+        if (vector.size() != fieldTypes.size()) {
+            return Optional.empty();
+        }
+        Optional<boolean[]> nulls = getNulls(vector);
+
+        // Arrow keeps a child entry for every struct position while RowBlock only stores non-null rows,
+        // so when nulls are present the children are narrowed with a dictionary over the non-null positions
+        int[] nonNullPositions = null;
+        int nonNullCount = positionCount;
+        if (nulls.isPresent()) {
+            nonNullPositions = new int[positionCount];
+            nonNullCount = 0;
+            boolean[] isNull = nulls.get();
+            for (int position = 0; position < positionCount; position++) {
+                if (!isNull[position]) {
+                    nonNullPositions[nonNullCount++] = position;
+                }
+            }
+        }
+
+        Block[] fieldBlocks = new Block[fieldTypes.size()];
+        for (int field = 0; field < fieldBlocks.length; field++) {
+            Optional<Block> fieldBlock = convert(vector.getChildByOrdinal(field), fieldTypes.get(field));
+            if (!fieldBlock.isPresent()) {
+                return Optional.empty();
+            }
+            fieldBlocks[field] = nonNullPositions == null ? fieldBlock.get() : new DictionaryBlock(nonNullCount, fieldBlock.get(), nonNullPositions);
+        }
+        return Optional.of(RowBlock.fromFieldBlocks(positionCount, nulls, fieldBlocks));
+    }
+
+    private static boolean hasEmptyNullEntries(Optional<boolean[]> nulls, int[] offsets, int positionCount)
+    {
+        if (!nulls.isPresent()) {
+            return true;
+        }
+        boolean[] isNull = nulls.get();
+        for (int position = 0; position < positionCount; position++) {
+            if (isNull[position] && offsets[position] != offsets[position + 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Optional<boolean[]> getNulls(ValueVector vector)
+    {
+        if (vector.getNullCount() == 0) {
+            return Optional.empty();
+        }
+        int positionCount = vector.getValueCount();
+        boolean[] isNull = new boolean[positionCount];
+        for (int position = 0; position < positionCount; position++) {
+            isNull[position] = vector.isNull(position);
+        }
+        return Optional.of(isNull);
+    }
+
+    private static int[] readIds(BaseIntVector indices, int positionCount)
+    {
+        if (indices instanceof IntVector) {
+            return readInts(((IntVector) indices).getDataBuffer(), positionCount);
+        }
+        int[] ids = new int[positionCount];
+        for (int position = 0; position < positionCount; position++) {
+            if (!indices.isNull(position)) {
+                ids[position] = (int) indices.getValueAsLong(position);
+            }
+        }
+        return ids;
+    }
+
+    private static long[] readLongs(ArrowBuf buffer, int count)
+    {
+        long[] values = new long[count];
+        if (count > 0) {
+            buffer.nioBuffer(0, count * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(values);
+        }
+        return values;
+    }
+
+    private static int[] readInts(ArrowBuf buffer, int count)
+    {
+        int[] values = new int[count];
+        if (count > 0 && buffer.capacity() > 0) {
+            buffer.nioBuffer(0, count * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(values);
+        }
+        return values;
+    }
+
+    private static short[] readShorts(ArrowBuf buffer, int count)
+    {
+        short[] values = new short[count];
+        if (count > 0) {
+            buffer.nioBuffer(0, count * Short.BYTES).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(values);
+        }
+        return values;
+    }
+
+    private static byte[] readBytes(ArrowBuf buffer, int count)
+    {
+        byte[] values = new byte[count];
+        if (count > 0) {
+            buffer.getBytes(0, values);
+        }
+        return values;
+    }
+
+    private static byte[] readBits(ArrowBuf buffer, int count)
+    {
+        byte[] values = new byte[count];
+        for (int position = 0; position < count; position++) {
+            values[position] = (byte) ((buffer.getByte(position >> 3) >> (position & 7)) & 1);
+        }
+        return values;
+    }
+
+    private static long[] readShortDecimals(DecimalVector vector, int count)
+    {
+        // Short decimals fit in the low 64 bits of the little-endian 128-bit two's complement value
+        ArrowBuf buffer = vector.getDataBuffer();
+        long[] values = new long[count];
+        for (int position = 0; position < count; position++) {
+            values[position] = buffer.getLong((long) position * DecimalVector.TYPE_WIDTH);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.plugin.arrow;
+
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.type.BigintType;
+import com.facebook.presto.common.type.BooleanType;
+import com.facebook.presto.common.type.DateType;
+import com.facebook.presto.common.type.DoubleType;
+import com.facebook.presto.common.type.IntegerType;
+import com.facebook.presto.common.type.RealType;
+import com.facebook.presto.common.type.SmallintType;
+import com.facebook.presto.common.type.TimestampType;
+import com.facebook.presto.common.type.TinyintType;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.common.type.VarbinaryType;
+import com.facebook.presto.common.type.VarcharType;
+import io.airlift.slice.Slice;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.vector.BaseFixedWidthVector;
+import org.apache.arrow.vector.BaseVariableWidthVector;
+import org.apache.arrow.vector.BitVectorHelper;
+import org.apache.arrow.vector.FieldVector;
+
+import java.nio.ByteBuffer;
+
+import static com.facebook.plugin.arrow.ArrowErrorCode.ARROW_FLIGHT_TYPE_ERROR;
+
+/**
+ * Columnar conversion of Presto blocks into Arrow vectors, the counterpart of
+ * {@link ArrowToBlockConverter}. The type dispatch happens once per block and
+ * fixed-width vectors are grown once up front, so the per-position loops only
+ * write the value and its validity bit into the Arrow buffers.
+ */
+public final class BlockToArrowConverter
+{
+    private BlockToArrowConverter() {}
+
+    public static boolean isSupportedType(Type type)
+    {
+        return type instanceof BooleanType ||
+                type instanceof TinyintType ||
+                type instanceof SmallintType ||
+                type instanceof IntegerType ||
+                type instanceof BigintType ||
+                type instanceof RealType ||
+                type instanceof DoubleType ||
+                type instanceof DateType ||
+                type instanceof TimestampType ||
+                type instanceof VarcharType ||
+                type instanceof VarbinaryType;
+    }
+
+    /**
+     * Writes the first {@code rowCount} positions of {@code block} into {@code vector}
+     * starting at {@code offset}. Null positions are left unset in the validity buffer.
+     */
+    public static void writeBlock(Block block, FieldVector vector, Type type, int rowCount, int offset)
+    {
+        if (type instanceof VarcharType || type instanceof VarbinaryType) {
+            writeVariableWidth(block, (BaseVariableWidthVector) vector, type, rowCount, offset);
+            return;
+        }
+        if (!isSupportedType(type)) {
+            throw new ArrowException(ARROW_FLIGHT_TYPE_ERROR, "Unsupported type for Arrow conversion: " + type);
+        }
+
+        BaseFixedWidthVector fixedWidthVector = (BaseFixedWidthVector) vector;
+        while (fixedWidthVector.getValueCapacity() < offset + rowCount) {
+            fixedWidthVector.reAlloc();
+        }
+        ArrowBuf validity = fixedWidthVector.getValidityBuffer();
+        ArrowBuf data = fixedWidthVector.getDataBuffer();
+
+        if (type instanceof BooleanType) {
+            for (int position = 0; position < rowCount; position++) {
+                if (!block.isNull(position)) {
+                    int index = offset + position;
+                    BitVectorHelper.setBit(validity, index);
+                    if (type.getBoolean(block, position)) {
+                        BitVectorHelper.setBit(data, index);
+                    }
+                    else {
+                        BitVectorHelper.unsetBit(data, index);
+                    }
+                }
+            }
+        }
+        else if (type instanceof TinyintType) {
+            for (int position = 0; position < rowCount; position++) {
+                if (!block.isNull(position)) {
+                    int index = offset + position;
+                    BitVectorHelper.setBit(validity, index);
+                    data.setByte(index, (byte) type.getLong(block, position));
+                }
+            }
+        }
+        else if (type instanceof SmallintType) {
+            for (int position = 0; position < rowCount; position++) {
+                if (!block.isNull(position)) {
+                    int index = offset + position;
+                    BitVectorHelper.setBit(validity, index);
+                    data.setShort((long) index * Short.BYTES, (short) type.getLong(block, position));
+                }
+            }
+        }
+        else if (type instanceof IntegerType || type instanceof DateType || type instanceof RealType) {
+            // REAL is stored as the raw float bits, which is also the Arrow float4 layout
+            for (int position = 0; position < rowCount; position++) {
+                if (!block.isNull(position)) {
+                    int index = offset + position;
+                    BitVectorHelper.setBit(validity, index);
+                    data.setInt((long) index * Integer.BYTES, (int) type.getLong(block, position));
+                }
+            }
+        }
+        else if (type instanceof DoubleType) {
+            for (int position = 0; position < rowCount; position++) {
+                if (!block.isNull(position)) {
+                    int index = offset + position;
+                    BitVectorHelper.setBit(validity, index);
+                    data.setDouble((long) index * Double.BYTES, type.getDouble(block, position));
+                }
+            }
+        }
+        else {
+            // BIGINT and TIMESTAMP
+            for (int position = 0; position < rowCount; position++) {
+                if (!block.isNull(position)) {
+                    int index = offset + position;
+                    BitVectorHelper.setBit(validity, index);
+                    data.setLong((long) index * Long.BYTES, type.getLong(block, position));
+                }
+            }
+        }
+    }
+
+    private static void writeVariableWidth(Block block, BaseVariableWidthVector vector, Type type, int rowCount, int offset)
+    {
+        for (int position = 0; position < rowCount; position++) {
+            if (!block.isNull(position)) {
+                Slice slice = type.getSlice(block, position);
+                ByteBuffer buffer = slice.toByteBuffer();
+                vector.setSafe(offset + position, buffer, buffer.position(), slice.length());
+            }
+        }
+    }
+}
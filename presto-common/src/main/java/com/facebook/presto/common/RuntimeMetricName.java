@@ -32,6 +32,13 @@ public class RuntimeMetricName
     public static final String SKIP_READING_FROM_MATERIALIZED_VIEW_COUNT = "skipReadingFromMaterializedViewCount";
     public static final String FRAGMENT_RESULT_CACHE_HIT = "fragmentResultCacheHitCount";
     public static final String FRAGMENT_RESULT_CACHE_MISS = "fragmentResultCacheMissCount";
+    public static final String SHARED_SCAN_ATTACHED_SPLITS = "sharedScanAttachedSplits";
+    public static final String QUERY_RESULT_CACHE_HIT = "queryResultCacheHitCount";
+    public static final String QUERY_RESULT_CACHE_MISS = "queryResultCacheMissCount";
+    public static final String CACHE_AFFINITY_HIT_SPLITS = "cacheAffinityHitSplits";
+    public static final String CACHE_AFFINITY_MISS_SPLITS = "cacheAffinityMissSplits";
+    // estimated from the size of the splits which were not found in the cache of their worker
+    public static final String CACHE_AFFINITY_REMOTE_READ_BYTES = "cacheAffinityRemoteReadBytes";
     public static final String GET_VIEW_TIME_NANOS = "getViewTimeNanos";
     public static final String GET_MATERIALIZED_VIEW_TIME_NANOS = "getMaterializedViewTimeNanos";
     public static final String GET_MATERIALIZED_VIEW_STATUS_TIME_NANOS = "getMaterializedViewStatusTimeNanos";
@@ -94,4 +101,17 @@ public class RuntimeMetricName
     public static final String METASTORE_UPDATE_PARTITION_STATISTICS_TIME_NANOS = "metastoreUpdatePartitionStatisticsTimeNanos";
     public static final String METASTORE_UPDATE_TABLE_STATISTICS_TIME_NANOS = "metastoreUpdateTableStatisticsTimeNanos";
     public static final String CHECK_ACCESS_PERMISSIONS_TIME_NANOS = "checkAccessPermissionsTimeNanos";
+    public static final String HASH_BUILD_THREADS = "hashBuildThreads";
+    public static final String HASH_BUILD_WALL_TIME_NANOS = "hashBuildWallTimeNanos";
+    // summed over the threads building the hash table
+    public static final String HASH_BUILD_HASHING_TIME_NANOS = "hashBuildHashingTimeNanos";
+    public static final String HASH_BUILD_INSERT_TIME_NANOS = "hashBuildInsertTimeNanos";
+    public static final String HASH_BUILD_SPILLED_PARTITION_SPLIT_TIME_NANOS = "hashBuildSpilledPartitionSplitTimeNanos";
+    public static final String HASH_BUILD_SPILLED_PARTITION_ROUNDS = "hashBuildSpilledPartitionRounds";
+    public static final String HASH_BUILD_SPILLED_PARTITION_CHUNKED_LEAVES = "hashBuildSpilledPartitionChunkedLeaves";
+    public static final String SPECULATIVE_TASKS_LAUNCHED = "speculativeTasksLaunched";
+    // A straggler whose speculative attempt was read by every consumer
+    public static final String SPECULATIVE_TASK_WINS = "speculativeTaskWins";
+    // A speculative attempt abandoned because consumers kept reading the original task
+    public static final String SPECULATIVE_TASK_LOSSES = "speculativeTaskLosses";
 }
@@ -0,0 +1,76 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.delta;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Data file that is live in a Delta table snapshot, as recorded by an {@code add} action
+ * of the transaction log.
+ */
+public final class DeltaAddFile
+{
+    private final String path;
+    private final long size;
+    private final Map<String, String> partitionValues;
+    private final Optional<DeltaFileStatistics> statistics;
+
+    public DeltaAddFile(String path, long size, Map<String, String> partitionValues, Optional<DeltaFileStatistics> statistics)
+    {
+        this.path = requireNonNull(path, "path is null");
+        this.size = size;
+        // partition values of null partitions are null, so an immutable Guava map cannot be used here
+        this.partitionValues = Collections.unmodifiableMap(new HashMap<>(requireNonNull(partitionValues, "partitionValues is null")));
+        this.statistics = requireNonNull(statistics, "statistics is null");
+    }
+
+    /**
+     * Absolute path of the data file.
+     */
+    public String getPath()
+    {
+        return path;
+    }
+
+    public long getSize()
+    {
+        return size;
+    }
+
+    public Map<String, String> getPartitionValues()
+    {
+        return partitionValues;
+    }
+
+    public Optional<DeltaFileStatistics> getStatistics()
+    {
+        return statistics;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("path", path)
+                .add("size", size)
+                .add("partitionValues", partitionValues)
+                .toString();
+    }
+}
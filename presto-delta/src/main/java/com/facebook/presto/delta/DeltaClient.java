@@ -13,13 +13,18 @@
  */
 package com.facebook.presto.delta;
 
+import com.facebook.presto.common.predicate.TupleDomain;
 import com.facebook.presto.common.type.TypeSignature;
+import com.facebook.presto.delta.DeltaSnapshotCache.SnapshotKey;
 import com.facebook.presto.hive.HdfsContext;
 import com.facebook.presto.hive.HdfsEnvironment;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.SchemaTableName;
 import com.facebook.presto.spi.StandardErrorCode;
+import com.google.common.collect.ImmutableList;
+import io.delta.kernel.Scan;
+import io.delta.kernel.ScanBuilder;
 import io.delta.kernel.Snapshot;
 import io.delta.kernel.Table;
 import io.delta.kernel.data.FilteredColumnarBatch;
@@ -27,9 +32,11 @@ import io.delta.kernel.data.Row;
 import io.delta.kernel.defaults.engine.DefaultEngine;
 import io.delta.kernel.engine.Engine;
 import io.delta.kernel.exceptions.TableNotFoundException;
+import io.delta.kernel.expressions.Predicate;
 import io.delta.kernel.internal.InternalScanFileUtils;
 import io.delta.kernel.internal.SnapshotImpl;
 import io.delta.kernel.utils.CloseableIterator;
+import io.delta.kernel.utils.FileStatus;
 import jakarta.inject.Inject;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -38,13 +45,14 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.time.Instant;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 import static com.facebook.presto.delta.DeltaTable.DataFormat.PARQUET;
-import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.String.format;
 import static java.util.Locale.US;
 import static java.util.Objects.requireNonNull;
@@ -56,11 +64,13 @@ public class DeltaClient
 {
     private static final String TABLE_NOT_FOUND_ERROR_TEMPLATE = "Delta table (%s.%s) no longer exists.";
     private final HdfsEnvironment hdfsEnvironment;
+    private final DeltaSnapshotCache snapshotCache;
 
     @Inject
-    public DeltaClient(HdfsEnvironment hdfsEnvironment)
+    public DeltaClient(HdfsEnvironment hdfsEnvironment, DeltaSnapshotCache snapshotCache)
     {
         this.hdfsEnvironment = requireNonNull(hdfsEnvironment, "hdfsEnvironment is null");
+        this.snapshotCache = requireNonNull(snapshotCache, "snapshotCache is null");
     }
 
     /**
@@ -95,7 +105,16 @@ public class DeltaClient
                 schemaTableName.getTableName(),
                 tableLocation,
                 Optional.of(snapshot.getVersion()), // lock the snapshot version
-                getSchema(config, schemaTableName, deltaEngine.get(), snapshot)));
+                getSchema(config, schemaTableName, deltaEngine.get(), snapshot, getCachedPartitionValues(tableLocation, snapshot.getVersion()))));
+    }
+
+    private Optional<Map<String, String>> getCachedPartitionValues(String tableLocation, long version)
+    {
+        List<DeltaAddFile> files = snapshotCache.getIfPresent(new SnapshotKey(tableLocation, version));
+        if (files == null) {
+            return Optional.empty();
+        }
+        return Optional.of(files.isEmpty() ? new HashMap<>(0) : files.get(0).getPartitionValues());
     }
 
     private Snapshot getSnapshot(
@@ -139,40 +158,147 @@ public class DeltaClient
     }
 
     /**
-     * Get the list of files corresponding to the given Delta table.
+     * Get the live data files of the snapshot locked in the given Delta table. Files of recently listed
+     * snapshots are served from the {@link DeltaSnapshotCache}, and newer versions of a cached table
+     * are derived by replaying only the commits that follow the cached version. When the cache is
+     * disabled, the files are read from the log as the iterator advances, and the kernel skips the files
+     * whose statistics do not match the given predicate. Cached listings hold every file of the snapshot,
+     * as they are shared by queries with different predicates.
      *
      * @return Closeable iterator of files. It is responsibility of the caller to close the iterator.
      */
-    public CloseableIterator<FilteredColumnarBatch> listFiles(ConnectorSession session, DeltaTable deltaTable)
+    public CloseableIterator<DeltaAddFile> listFiles(ConnectorSession session, DeltaTable deltaTable, TupleDomain<DeltaColumnHandle> statisticsPredicate)
     {
         requireNonNull(deltaTable, "deltaTable is null");
-        checkArgument(deltaTable.getSnapshotId().isPresent(), "Snapshot id is missing from the Delta table");
-        Optional<Engine> deltaEngine = loadDeltaEngine(session,
-                new Path(deltaTable.getTableLocation()),
-                new SchemaTableName(deltaTable.getSchemaName(), deltaTable.getTableName()));
-        if (!deltaEngine.isPresent()) {
-            throw new PrestoException(DeltaErrorCode.DELTA_ERROR_LOADING_METADATA,
-                    format("Could not obtain Delta engine in '%s'", deltaTable.getTableLocation()));
-        }
-        Table sourceTable = loadDeltaTable(deltaTable.getTableLocation(), deltaEngine.get());
-
         if (!deltaTable.getSnapshotId().isPresent()) {
             throw new PrestoException(DeltaErrorCode.DELTA_ERROR_LOADING_SNAPSHOT, "Could not obtain snapshot id");
         }
+        long version = deltaTable.getSnapshotId().get();
+        String tableLocation = deltaTable.getTableLocation();
+        SchemaTableName schemaTableName = new SchemaTableName(deltaTable.getSchemaName(), deltaTable.getTableName());
+        if (!snapshotCache.isEnabled()) {
+            // nothing keeps the listing, so the files are read from the log as the splits are generated
+            return scanFiles(session, schemaTableName, tableLocation, version, statisticsPredicate);
+        }
+
+        SnapshotKey key = new SnapshotKey(tableLocation, version);
+        List<DeltaAddFile> files = snapshotCache.getIfPresent(key);
+        if (files != null) {
+            return toCloseableIterator(files);
+        }
+
+        Optional<SnapshotKey> baseKey = snapshotCache.getLatestCachedVersionBefore(tableLocation, version);
+        if (baseKey.isPresent()) {
+            List<DeltaAddFile> baseFiles = snapshotCache.getIfPresent(baseKey.get());
+            if (baseFiles != null) {
+                Optional<List<DeltaAddFile>> replayed = DeltaLogReplay.replayCommits(
+                        getFileSystem(session, new Path(tableLocation), schemaTableName),
+                        tableLocation,
+                        baseFiles,
+                        baseKey.get().getVersion(),
+                        version);
+                if (replayed.isPresent()) {
+                    snapshotCache.recordIncrementalReplay(version - baseKey.get().getVersion());
+                    snapshotCache.put(key, replayed.get());
+                    return toCloseableIterator(replayed.get());
+                }
+            }
+        }
+
+        ImmutableList.Builder<DeltaAddFile> snapshotFiles = ImmutableList.builder();
+        try (CloseableIterator<DeltaAddFile> scanFiles = scanFiles(session, schemaTableName, tableLocation, version, TupleDomain.all())) {
+            scanFiles.forEachRemaining(snapshotFiles::add);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Could not close columnar batch row", e);
+        }
+        files = snapshotFiles.build();
+        snapshotCache.put(key, files);
+        return toCloseableIterator(files);
+    }
+
+    private CloseableIterator<DeltaAddFile> scanFiles(ConnectorSession session, SchemaTableName schemaTableName, String tableLocation, long version, TupleDomain<DeltaColumnHandle> statisticsPredicate)
+    {
+        Optional<Engine> deltaEngine = loadDeltaEngine(session, new Path(tableLocation), schemaTableName);
+        if (!deltaEngine.isPresent()) {
+            throw new PrestoException(DeltaErrorCode.DELTA_ERROR_LOADING_METADATA,
+                    format("Could not obtain Delta engine in '%s'", tableLocation));
+        }
+        Table sourceTable = loadDeltaTable(tableLocation, deltaEngine.get());
 
+        snapshotCache.recordFullReplay();
         try {
-            return sourceTable.getSnapshotAsOfVersion(deltaEngine.get(),
-                            deltaTable.getSnapshotId().get()).getScanBuilder().build()
-                    .getScanFiles(deltaEngine.get());
+            Snapshot snapshot = sourceTable.getSnapshotAsOfVersion(deltaEngine.get(), version);
+            ScanBuilder scanBuilder = snapshot.getScanBuilder();
+            Optional<Predicate> filter = DeltaExpressionUtils.toKernelPredicate(statisticsPredicate, snapshot.getSchema());
+            if (filter.isPresent()) {
+                scanBuilder = scanBuilder.withFilter(filter.get());
+            }
+            Scan scan = scanBuilder.build();
+            return new ScanFileIterator(scan.getScanFiles(deltaEngine.get()));
         }
         catch (TableNotFoundException e) {
             throw new PrestoException(StandardErrorCode.NOT_FOUND,
-                    format("Delta table not found in '%s'", deltaTable.getTableLocation()), e);
+                    format("Delta table not found in '%s'", tableLocation), e);
         }
     }
 
+    private static CloseableIterator<DeltaAddFile> toCloseableIterator(List<DeltaAddFile> files)
+    {
+        Iterator<DeltaAddFile> iterator = files.iterator();
+        return new CloseableIterator<DeltaAddFile>()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public DeltaAddFile next()
+            {
+                return iterator.next();
+            }
+
+            @Override
+            public void close() {}
+        };
+    }
+
+    private static DeltaAddFile toAddFile(Row scanFile)
+    {
+        FileStatus addFileStatus = InternalScanFileUtils.getAddFileStatus(scanFile);
+        // the scan does not return the statistics it prunes with, the replayed commits always have them
+        Optional<DeltaFileStatistics> statistics = Optional.empty();
+        Row addFile = scanFile.getStruct(scanFile.getSchema().indexOf("add"));
+        int statsOrdinal = addFile.getSchema().indexOf("stats");
+        if (statsOrdinal >= 0 && !addFile.isNullAt(statsOrdinal)) {
+            statistics = DeltaFileStatistics.parse(addFile.getString(statsOrdinal));
+        }
+        return new DeltaAddFile(
+                addFileStatus.getPath(),
+                addFileStatus.getSize(),
+                InternalScanFileUtils.getPartitionValues(scanFile),
+                statistics);
+    }
+
     private Optional<Engine> loadDeltaEngine(ConnectorSession session, Path tableLocation,
                                                        SchemaTableName schemaTableName)
+    {
+        try {
+            FileSystem fileSystem = getFileSystem(session, tableLocation, schemaTableName);
+            if (!fileSystem.isDirectory(tableLocation)) {
+                return Optional.empty();
+            }
+            return Optional.of(DefaultEngine.create(fileSystem.getConf()));
+        }
+        catch (IOException ioException) {
+            throw new PrestoException(DeltaErrorCode.DELTA_ERROR_LOADING_METADATA,
+                    "Failed to load Delta table: " + ioException.getMessage(), ioException);
+        }
+    }
+
+    private FileSystem getFileSystem(ConnectorSession session, Path tableLocation, SchemaTableName schemaTableName)
     {
         try {
             HdfsContext hdfsContext = new HdfsContext(
@@ -181,11 +307,7 @@ public class DeltaClient
                     schemaTableName.getTableName(),
                     tableLocation.toString(),
                     false);
-            FileSystem fileSystem = hdfsEnvironment.getFileSystem(hdfsContext, tableLocation);
-            if (!fileSystem.isDirectory(tableLocation)) {
-                return Optional.empty();
-            }
-            return Optional.of(DefaultEngine.create(fileSystem.getConf()));
+            return hdfsEnvironment.getFileSystem(hdfsContext, tableLocation);
         }
         catch (IOException ioException) {
             throw new PrestoException(DeltaErrorCode.DELTA_ERROR_LOADING_METADATA,
@@ -243,8 +365,11 @@ public class DeltaClient
      * Data type from Delta is mapped to appropriate Presto data type.
      */
     private static List<DeltaColumn> getSchema(DeltaConfig config, SchemaTableName tableName, Engine deltaEngine,
-                                               Snapshot snapshot)
+                                               Snapshot snapshot, Optional<Map<String, String>> cachedPartitionValues)
     {
+        if (cachedPartitionValues.isPresent()) {
+            return getSchema(config, tableName, snapshot, cachedPartitionValues.get());
+        }
         try (CloseableIterator<FilteredColumnarBatch> columnBatches = snapshot.getScanBuilder().build()
                     .getScanFiles(deltaEngine)) {
             Row row = null;
@@ -257,18 +382,7 @@ public class DeltaClient
             }
             Map<String, String> partitionValues = row != null ?
                     InternalScanFileUtils.getPartitionValues(row) : new HashMap<>(0);
-            return snapshot.getSchema().fields().stream()
-                    .map(field -> {
-                        String columnName = config.isCaseSensitivePartitionsEnabled() ? field.getName() :
-                                field.getName().toLowerCase(US);
-                        TypeSignature prestoType = DeltaTypeUtils.convertDeltaDataTypePrestoDataType(tableName,
-                                columnName, field.getDataType());
-                        return new DeltaColumn(
-                                columnName,
-                                prestoType,
-                                field.isNullable(),
-                                partitionValues.containsKey(columnName));
-                    }).collect(Collectors.toList());
+            return getSchema(config, tableName, snapshot, partitionValues);
         }
         catch (TableNotFoundException e) {
             throw new PrestoException(StandardErrorCode.NOT_FOUND,
@@ -278,4 +392,81 @@ public class DeltaClient
             throw new UncheckedIOException("Could not close columnar batch row", e);
         }
     }
+
+    private static List<DeltaColumn> getSchema(DeltaConfig config, SchemaTableName tableName, Snapshot snapshot, Map<String, String> partitionValues)
+    {
+        return snapshot.getSchema().fields().stream()
+                .map(field -> {
+                    String columnName = config.isCaseSensitivePartitionsEnabled() ? field.getName() :
+                            field.getName().toLowerCase(US);
+                    TypeSignature prestoType = DeltaTypeUtils.convertDeltaDataTypePrestoDataType(tableName,
+                            columnName, field.getDataType());
+                    return new DeltaColumn(
+                            columnName,
+                            prestoType,
+                            field.isNullable(),
+                            partitionValues.containsKey(columnName));
+                }).collect(Collectors.toList());
+    }
+
+    /**
+     * Converts the scan files of a snapshot to {@link DeltaAddFile}s one columnar batch at a time.
+     */
+    private static class ScanFileIterator
+            implements CloseableIterator<DeltaAddFile>
+    {
+        private final CloseableIterator<FilteredColumnarBatch> batches;
+        private CloseableIterator<Row> rows;
+
+        private ScanFileIterator(CloseableIterator<FilteredColumnarBatch> batches)
+        {
+            this.batches = requireNonNull(batches, "batches is null");
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            while (rows == null || !rows.hasNext()) {
+                if (rows != null) {
+                    closeRows();
+                }
+                if (!batches.hasNext()) {
+                    return false;
+                }
+                rows = batches.next().getRows();
+            }
+            return true;
+        }
+
+        @Override
+        public DeltaAddFile next()
+        {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return toAddFile(rows.next());
+        }
+
+        @Override
+        public void close()
+                throws IOException
+        {
+            try (CloseableIterator<FilteredColumnarBatch> ignored = batches) {
+                if (rows != null) {
+                    closeRows();
+                }
+            }
+        }
+
+        private void closeRows()
+        {
+            try {
+                rows.close();
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Could not close columnar batch row", e);
+            }
+            rows = null;
+        }
+    }
 }
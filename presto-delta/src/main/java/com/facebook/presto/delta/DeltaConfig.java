@@ -14,13 +14,22 @@
 package com.facebook.presto.delta;
 
 import com.facebook.airlift.configuration.Config;
+import com.facebook.airlift.configuration.ConfigDescription;
+import com.facebook.airlift.units.Duration;
+import com.facebook.airlift.units.MinDuration;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 
+import static java.util.concurrent.TimeUnit.MINUTES;
+
 public class DeltaConfig
 {
     private int maxSplitsBatchSize = 200;
     private boolean parquetDereferencePushdownEnabled = true;
     private boolean caseSensitivePartitionsEnabled = true;
+    private Duration snapshotCacheTtl = new Duration(10, MINUTES);
+    private long snapshotCacheMaxFiles = 2_000_000;
+    private boolean fileStatisticsPruningEnabled = true;
 
     @NotNull
     public boolean isParquetDereferencePushdownEnabled()
@@ -58,4 +67,46 @@ public class DeltaConfig
         this.caseSensitivePartitionsEnabled = caseSensitivePartitionsEnabled;
         return this;
     }
+
+    @NotNull
+    @MinDuration("0ms")
+    public Duration getSnapshotCacheTtl()
+    {
+        return snapshotCacheTtl;
+    }
+
+    @Config("delta.snapshot-cache-ttl")
+    @ConfigDescription("Time a cached Delta snapshot file listing is kept after its last access. Set to 0 to disable the cache")
+    public DeltaConfig setSnapshotCacheTtl(Duration snapshotCacheTtl)
+    {
+        this.snapshotCacheTtl = snapshotCacheTtl;
+        return this;
+    }
+
+    @Min(0)
+    public long getSnapshotCacheMaxFiles()
+    {
+        return snapshotCacheMaxFiles;
+    }
+
+    @Config("delta.snapshot-cache-max-files")
+    @ConfigDescription("Maximum total number of data files held by the Delta snapshot cache")
+    public DeltaConfig setSnapshotCacheMaxFiles(long snapshotCacheMaxFiles)
+    {
+        this.snapshotCacheMaxFiles = snapshotCacheMaxFiles;
+        return this;
+    }
+
+    public boolean isFileStatisticsPruningEnabled()
+    {
+        return fileStatisticsPruningEnabled;
+    }
+
+    @Config("delta.file-statistics-pruning-enabled")
+    @ConfigDescription("Skip data files whose min/max statistics in the transaction log do not match the query predicate")
+    public DeltaConfig setFileStatisticsPruningEnabled(boolean fileStatisticsPruningEnabled)
+    {
+        this.fileStatisticsPruningEnabled = fileStatisticsPruningEnabled;
+        return this;
+    }
 }
@@ -15,6 +15,7 @@ package com.facebook.presto.delta;
 
 import com.facebook.airlift.log.Logger;
 import com.facebook.presto.common.predicate.Domain;
+import com.facebook.presto.common.predicate.Range;
 import com.facebook.presto.common.predicate.TupleDomain;
 import com.facebook.presto.common.predicate.ValueSet;
 import com.facebook.presto.common.type.StandardTypes;
@@ -24,39 +25,53 @@ import com.facebook.presto.spi.ColumnHandle;
 import com.facebook.presto.spi.PrestoException;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Streams;
+import com.google.common.primitives.Shorts;
+import com.google.common.primitives.SignedBytes;
 import io.airlift.slice.Slice;
-import io.delta.kernel.data.FilteredColumnarBatch;
-import io.delta.kernel.data.Row;
-import io.delta.kernel.internal.InternalScanFileUtils;
-import io.delta.kernel.utils.CloseableIterator;
+import io.delta.kernel.expressions.And;
+import io.delta.kernel.expressions.Column;
+import io.delta.kernel.expressions.Literal;
+import io.delta.kernel.expressions.Or;
+import io.delta.kernel.expressions.Predicate;
+import io.delta.kernel.types.BooleanType;
+import io.delta.kernel.types.ByteType;
+import io.delta.kernel.types.DataType;
+import io.delta.kernel.types.DateType;
+import io.delta.kernel.types.DoubleType;
+import io.delta.kernel.types.FloatType;
+import io.delta.kernel.types.IntegerType;
+import io.delta.kernel.types.LongType;
+import io.delta.kernel.types.ShortType;
+import io.delta.kernel.types.StringType;
+import io.delta.kernel.types.StructField;
+import io.delta.kernel.types.StructType;
 
-import java.io.IOException;
 import java.sql.Date;
 import java.sql.Timestamp;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.NoSuchElementException;
 import java.util.Optional;
-import java.util.function.Predicate;
 
 import static com.facebook.presto.delta.DeltaColumnHandle.ColumnType.PARTITION;
+import static com.facebook.presto.delta.DeltaColumnHandle.ColumnType.REGULAR;
 import static com.facebook.presto.delta.DeltaErrorCode.DELTA_INVALID_PARTITION_VALUE;
 import static com.facebook.presto.delta.DeltaErrorCode.DELTA_UNSUPPORTED_COLUMN_TYPE;
-import static com.google.common.base.Preconditions.checkArgument;
-import static com.google.common.collect.ImmutableList.toImmutableList;
 import static io.airlift.slice.Slices.utf8Slice;
 import static java.lang.Double.doubleToRawLongBits;
 import static java.lang.Double.parseDouble;
 import static java.lang.Float.floatToRawIntBits;
+import static java.lang.Float.intBitsToFloat;
 import static java.lang.Float.parseFloat;
 import static java.lang.Long.parseLong;
+import static java.lang.Math.toIntExact;
 import static java.lang.String.format;
 
 public final class DeltaExpressionUtils
 {
     private static final Logger logger = Logger.get(DeltaExpressionUtils.class);
+    // domains with more ranges are passed to the kernel as their span
+    private static final int MAX_KERNEL_PREDICATE_RANGES = 32;
+
     private DeltaExpressionUtils()
     {
     }
@@ -87,227 +102,227 @@ public final class DeltaExpressionUtils
     }
 
     /**
-     * Utility method that takes an iterator of {@link FilteredColumnarBatch}s and a predicate and returns an iterator
-     * of {@link FilteredColumnarBatch}s that satisfy the predicate (predicate evaluates to a deterministic NO)
+     * Returns whether the given file may contain rows matching the partition column predicates,
+     * based on the partition values of the file
      */
-    public static CloseableIterator<Row> iterateWithPartitionPruning(
-            CloseableIterator<FilteredColumnarBatch> inputIterator,
+    public static boolean evaluatePartitionPredicate(
             TupleDomain<DeltaColumnHandle> predicate,
+            DeltaAddFile file,
             TypeManager typeManager)
     {
-        TupleDomain<String> partitionPredicate = extractPartitionColumnsPredicate(predicate);
-        if (partitionPredicate.isAll()) {
-            return new AllFilesIterator(inputIterator);
+        if (predicate.isNone()) {
+            return false;
         }
-
-        if (partitionPredicate.isNone()) {
-            // nothing passes the partition predicate, return empty iterator
-            return new NoneFilesIterator(inputIterator);
+        Optional<Map<DeltaColumnHandle, Domain>> domains = predicate.getDomains();
+        if (!domains.isPresent()) {
+            return true;
         }
-
-        Optional<List<TupleDomain.ColumnDomain<DeltaColumnHandle>>> columnDomains = predicate.getColumnDomains();
-        List<DeltaColumnHandle> partitionColumns = columnDomains.map(domains -> domains.stream()
-                .filter(entry -> entry.getColumn().getColumnType() == PARTITION)
-                .map(TupleDomain.ColumnDomain::getColumn)
-                .collect(toImmutableList())).orElse(ImmutableList.of());
-
-        return new FilteredByPredicateIterator(inputIterator, partitionPredicate, partitionColumns, typeManager);
-    }
-
-    private static TupleDomain<String> extractPartitionColumnsPredicate(TupleDomain<DeltaColumnHandle> predicate)
-    {
-        return predicate.transform(
-                deltaColumnHandle -> {
-                    if (deltaColumnHandle.getColumnType() != PARTITION) {
-                        return null;
-                    }
-                    return deltaColumnHandle.getName();
-                });
+        for (Map.Entry<DeltaColumnHandle, Domain> entry : domains.get().entrySet()) {
+            DeltaColumnHandle partitionColumn = entry.getKey();
+            if (partitionColumn.getColumnType() != PARTITION) {
+                continue;
+            }
+            String partitionValue = file.getPartitionValues().get(partitionColumn.getName());
+            Domain domain = getPartitionDomain(partitionColumn, partitionValue, typeManager, file.getPath());
+            if (entry.getValue().intersect(domain).isNone()) {
+                logger.debug("Empty set after domain intersection with file: " + file.getPath());
+                return false;
+            }
+        }
+        return true;
     }
 
-    private static class NoneFilesIterator
-            implements CloseableIterator<Row>
+    /**
+     * Returns whether the given file may contain rows matching the regular column predicates,
+     * based on the min/max values and null counts recorded for the file in the transaction log
+     */
+    public static boolean evaluateStatisticsPredicate(
+            TupleDomain<DeltaColumnHandle> predicate,
+            DeltaAddFile file,
+            TypeManager typeManager)
     {
-        private final CloseableIterator<FilteredColumnarBatch> inputIterator;
-
-        NoneFilesIterator(CloseableIterator<FilteredColumnarBatch> inputIterator)
-        {
-            this.inputIterator = inputIterator;
-        }
-
-        @Override
-        public boolean hasNext()
-        {
+        if (predicate.isNone()) {
             return false;
         }
-
-        @Override
-        public Row next()
-        {
-            throw new NoSuchElementException();
+        Optional<Map<DeltaColumnHandle, Domain>> domains = predicate.getDomains();
+        if (!domains.isPresent() || !file.getStatistics().isPresent()) {
+            return true;
         }
-
-        @Override
-        public void close()
-                throws IOException
-        {
-            inputIterator.close();
+        DeltaFileStatistics statistics = file.getStatistics().get();
+        for (Map.Entry<DeltaColumnHandle, Domain> entry : domains.get().entrySet()) {
+            DeltaColumnHandle column = entry.getKey();
+            if (column.getColumnType() != REGULAR) {
+                continue;
+            }
+            Type type = typeManager.getType(column.getDataType());
+            Optional<Domain> fileDomain = statistics.getDomain(column.getName(), type);
+            if (fileDomain.isPresent() && entry.getValue().intersect(fileDomain.get()).isNone()) {
+                logger.debug("File %s pruned by statistics of column %s", file.getPath(), column.getName());
+                return false;
+            }
         }
+        return true;
     }
 
-    private static class BatchRowIterator
-            implements CloseableIterator<Row>
+    /**
+     * Converts the regular column predicates to a Delta kernel predicate, so the kernel skips the files whose
+     * statistics do not match while it reads the log. Domains the kernel can not express are left out, which
+     * only makes the returned predicate match more files than the given one.
+     */
+    public static Optional<Predicate> toKernelPredicate(TupleDomain<DeltaColumnHandle> predicate, StructType schema)
     {
-        private final CloseableIterator<FilteredColumnarBatch> inputIterator;
-        private final Iterator<Row> rows;
-        private CloseableIterator<Row> prev;
-
-        public BatchRowIterator(CloseableIterator<FilteredColumnarBatch> inputIterator,
-                Optional<Predicate<Row>> rowFilter)
-        {
-            this.inputIterator = inputIterator;
-            this.rows = Streams.stream(inputIterator)
-                    .flatMap(batch -> {
-                        if (prev != null) {
-                            try {
-                                prev.close();
-                            }
-                            catch (IOException e) {
-                                throw new RuntimeException("Failed to close previous row batch", e);
-                            }
-                        }
-                        prev = batch.getRows();
-                        return Streams.stream(prev);
-                    })
-                    // if there is a filter to be applied, it applies it
-                    .filter(row -> rowFilter.map(predicate -> predicate.test(row)).orElse(true))
-                    .iterator();
+        Optional<Map<DeltaColumnHandle, Domain>> domains = predicate.getDomains();
+        if (!domains.isPresent()) {
+            return Optional.empty();
         }
-
-        @Override
-        public boolean hasNext()
-        {
-            return rows.hasNext();
+        Predicate kernelPredicate = null;
+        for (Map.Entry<DeltaColumnHandle, Domain> entry : domains.get().entrySet()) {
+            DeltaColumnHandle column = entry.getKey();
+            if (column.getColumnType() != REGULAR) {
+                continue;
+            }
+            // the column names of the handles may be lower cased
+            Optional<StructField> field = schema.fields().stream()
+                    .filter(candidate -> candidate.getName().equalsIgnoreCase(column.getName()))
+                    .findFirst();
+            if (!field.isPresent()) {
+                continue;
+            }
+            Optional<Predicate> columnPredicate = toKernelPredicate(new Column(field.get().getName()), field.get().getDataType(), entry.getValue());
+            if (columnPredicate.isPresent()) {
+                kernelPredicate = kernelPredicate == null ? columnPredicate.get() : new And(kernelPredicate, columnPredicate.get());
+            }
         }
+        return Optional.ofNullable(kernelPredicate);
+    }
 
-        @Override
-        public Row next()
-        {
-            return rows.next();
+    private static Optional<Predicate> toKernelPredicate(Column column, DataType type, Domain domain)
+    {
+        if (domain.isAll() || !domain.getType().isOrderable()) {
+            return Optional.empty();
+        }
+        if (domain.isOnlyNull()) {
+            return Optional.of(new Predicate("IS_NULL", column));
+        }
+        List<Range> ranges = domain.getValues().getRanges().getOrderedRanges();
+        if (ranges.size() > MAX_KERNEL_PREDICATE_RANGES) {
+            ranges = ImmutableList.of(domain.getValues().getRanges().getSpan());
+        }
+        Predicate domainPredicate = null;
+        for (Range range : ranges) {
+            Optional<Predicate> rangePredicate = toKernelPredicate(column, type, range);
+            if (!rangePredicate.isPresent()) {
+                return Optional.empty();
+            }
+            domainPredicate = domainPredicate == null ? rangePredicate.get() : new Or(domainPredicate, rangePredicate.get());
+        }
+        if (domain.isNullAllowed()) {
+            domainPredicate = new Or(domainPredicate, new Predicate("IS_NULL", column));
         }
+        return Optional.of(domainPredicate);
+    }
 
-        @Override
-        public void close() throws IOException
-        {
-            if (prev != null) {
-                prev.close();
+    private static Optional<Predicate> toKernelPredicate(Column column, DataType type, Range range)
+    {
+        if (range.isSingleValue()) {
+            return toKernelLiteral(type, range.getSingleValue()).map(value -> new Predicate("=", column, value));
+        }
+        Predicate rangePredicate = null;
+        if (!range.isLowUnbounded()) {
+            Optional<Literal> low = toKernelLiteral(type, range.getLowBoundedValue());
+            if (!low.isPresent()) {
+                return Optional.empty();
             }
-            if (inputIterator != null) {
-                inputIterator.close();
+            rangePredicate = new Predicate(range.isLowInclusive() ? ">=" : ">", column, low.get());
+        }
+        if (!range.isHighUnbounded()) {
+            Optional<Literal> high = toKernelLiteral(type, range.getHighBoundedValue());
+            if (!high.isPresent()) {
+                return Optional.empty();
             }
+            Predicate highPredicate = new Predicate(range.isHighInclusive() ? "<=" : "<", column, high.get());
+            rangePredicate = rangePredicate == null ? highPredicate : new And(rangePredicate, highPredicate);
         }
+        return Optional.of(rangePredicate == null ? new Predicate("IS_NOT_NULL", column) : rangePredicate);
     }
 
-    private static class AllFilesIterator
-            extends BatchRowIterator
+    private static Optional<Literal> toKernelLiteral(DataType type, Object value)
     {
-        public AllFilesIterator(CloseableIterator<FilteredColumnarBatch> inputIterator)
-        {
-            super(inputIterator, Optional.empty());
+        if (type instanceof BooleanType) {
+            return Optional.of(Literal.ofBoolean((boolean) value));
+        }
+        if (type instanceof ByteType) {
+            return Optional.of(Literal.ofByte(SignedBytes.checkedCast((long) value)));
+        }
+        if (type instanceof ShortType) {
+            return Optional.of(Literal.ofShort(Shorts.checkedCast((long) value)));
+        }
+        if (type instanceof IntegerType) {
+            return Optional.of(Literal.ofInt(toIntExact((long) value)));
         }
+        if (type instanceof LongType) {
+            return Optional.of(Literal.ofLong((long) value));
+        }
+        if (type instanceof FloatType) {
+            return Optional.of(Literal.ofFloat(intBitsToFloat(toIntExact((long) value))));
+        }
+        if (type instanceof DoubleType) {
+            return Optional.of(Literal.ofDouble((double) value));
+        }
+        if (type instanceof DateType) {
+            return Optional.of(Literal.ofDate(toIntExact((long) value)));
+        }
+        if (type instanceof StringType) {
+            return Optional.of(Literal.ofString(((Slice) value).toStringUtf8()));
+        }
+        return Optional.empty();
     }
 
-    private static class FilteredByPredicateIterator
-            extends BatchRowIterator
+    private static Domain getPartitionDomain(DeltaColumnHandle columnHandle, String partitionValue, TypeManager typeManager, String filePath)
     {
-        public FilteredByPredicateIterator(CloseableIterator<FilteredColumnarBatch> inputIterator,
-                TupleDomain<String> partitionPredicate,
-                List<DeltaColumnHandle> partitionColumns,
-                TypeManager typeManager)
-        {
-            super(inputIterator,
-                    Optional.of(row -> evaluatePartitionPredicate(partitionPredicate, partitionColumns, typeManager, row)));
+        Type type = typeManager.getType(columnHandle.getDataType());
+        if (partitionValue == null) {
+            return Domain.onlyNull(type);
         }
 
-        private static boolean evaluatePartitionPredicate(
-                TupleDomain<String> partitionPredicate,
-                List<DeltaColumnHandle> partitionColumns,
-                TypeManager typeManager,
-                Row row)
-        {
-            checkArgument(!partitionPredicate.isNone(), "Expecting a predicate with at least one expression");
-            for (DeltaColumnHandle partitionColumn : partitionColumns) {
-                String columnName = partitionColumn.getName();
-                String partitionValue = InternalScanFileUtils.getPartitionValues(row).get(columnName);
-                String filePath = InternalScanFileUtils.getAddFileStatus(row).getPath();
-                logger.debug("Obtaining domain of file: " + filePath);
-                Domain domain = getDomain(partitionColumn, partitionValue, typeManager, filePath);
-                Optional<Map<String, Domain>> domains = partitionPredicate.getDomains();
-                if (!domains.isPresent()) {
-                    logger.debug("Domain is not present in file: " + filePath);
-                    return false;
-                }
-                Domain columnPredicate = domains.get().get(columnName);
-
-                if (columnPredicate == null) {
-                    continue; // there is no predicate on this column
-                }
-
-                if (columnPredicate.intersect(domain).isNone()) {
-                    logger.debug("Empty set after domain intersection with file: " + filePath);
-                    return false;
-                }
+        String typeBase = columnHandle.getDataType().getBase();
+        try {
+            switch (typeBase) {
+                case StandardTypes.TINYINT:
+                case StandardTypes.SMALLINT:
+                case StandardTypes.INTEGER:
+                case StandardTypes.BIGINT:
+                    Long intValue = parseLong(partitionValue);
+                    return Domain.create(ValueSet.of(type, intValue), false);
+                case StandardTypes.REAL:
+                    Long realValue = (long) floatToRawIntBits(parseFloat(partitionValue));
+                    return Domain.create(ValueSet.of(type, realValue), false);
+                case StandardTypes.DOUBLE:
+                    Long doubleValue = doubleToRawLongBits(parseDouble(partitionValue));
+                    return Domain.create(ValueSet.of(type, doubleValue), false);
+                case StandardTypes.VARCHAR:
+                case StandardTypes.VARBINARY:
+                    Slice sliceValue = utf8Slice(partitionValue);
+                    return Domain.create(ValueSet.of(type, sliceValue), false);
+                case StandardTypes.DATE:
+                    Long dateValue = Date.valueOf(partitionValue).getTime(); // convert to millis
+                    return Domain.create(ValueSet.of(type, dateValue), false);
+                case StandardTypes.TIMESTAMP:
+                    Long timestampValue = Timestamp.valueOf(partitionValue).getTime(); // convert to millis
+                    return Domain.create(ValueSet.of(type, timestampValue), false);
+                case StandardTypes.BOOLEAN:
+                    Boolean booleanValue = Boolean.valueOf(partitionValue);
+                    return Domain.create(ValueSet.of(type, booleanValue), false);
+                default:
+                    throw new PrestoException(DELTA_UNSUPPORTED_COLUMN_TYPE,
+                            format("Unsupported data type '%s' for partition column %s", columnHandle.getDataType(), columnHandle.getName()));
             }
-
-            return true;
         }
-
-        private static Domain getDomain(DeltaColumnHandle columnHandle, String partitionValue, TypeManager typeManager, String filePath)
-        {
-            Type type = typeManager.getType(columnHandle.getDataType());
-            if (partitionValue == null) {
-                return Domain.onlyNull(type);
-            }
-
-            String typeBase = columnHandle.getDataType().getBase();
-            try {
-                switch (typeBase) {
-                    case StandardTypes.TINYINT:
-                    case StandardTypes.SMALLINT:
-                    case StandardTypes.INTEGER:
-                    case StandardTypes.BIGINT:
-                        Long intValue = parseLong(partitionValue);
-                        return Domain.create(ValueSet.of(type, intValue), false);
-                    case StandardTypes.REAL:
-                        Long realValue = (long) floatToRawIntBits(parseFloat(partitionValue));
-                        return Domain.create(ValueSet.of(type, realValue), false);
-                    case StandardTypes.DOUBLE:
-                        Long doubleValue = doubleToRawLongBits(parseDouble(partitionValue));
-                        return Domain.create(ValueSet.of(type, doubleValue), false);
-                    case StandardTypes.VARCHAR:
-                    case StandardTypes.VARBINARY:
-                        Slice sliceValue = utf8Slice(partitionValue);
-                        return Domain.create(ValueSet.of(type, sliceValue), false);
-                    case StandardTypes.DATE:
-                        Long dateValue = Date.valueOf(partitionValue).getTime(); // convert to millis
-                        return Domain.create(ValueSet.of(type, dateValue), false);
-                    case StandardTypes.TIMESTAMP:
-                        Long timestampValue = Timestamp.valueOf(partitionValue).getTime(); // convert to millis
-                        return Domain.create(ValueSet.of(type, timestampValue), false);
-                    case StandardTypes.BOOLEAN:
-                        Boolean booleanValue = Boolean.valueOf(partitionValue);
-                        return Domain.create(ValueSet.of(type, booleanValue), false);
-                    default:
-                        throw new PrestoException(DELTA_UNSUPPORTED_COLUMN_TYPE,
-                                format("Unsupported data type '%s' for partition column %s", columnHandle.getDataType(), columnHandle.getName()));
-                }
-            }
-            catch (IllegalArgumentException exception) {
-                throw new PrestoException(DELTA_INVALID_PARTITION_VALUE,
-                        format("Can not parse partition value '%s' of type '%s' for partition column '%s' in file '%s'",
-                                partitionValue, columnHandle.getDataType(), columnHandle.getName(), filePath),
-                        exception);
-            }
+        catch (IllegalArgumentException exception) {
+            throw new PrestoException(DELTA_INVALID_PARTITION_VALUE,
+                    format("Can not parse partition value '%s' of type '%s' for partition column '%s' in file '%s'",
+                            partitionValue, columnHandle.getDataType(), columnHandle.getName(), filePath),
+                    exception);
         }
     }
 }
@@ -0,0 +1,198 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.delta;
+
+import com.facebook.airlift.log.Logger;
+import com.facebook.presto.common.predicate.Domain;
+import com.facebook.presto.common.predicate.Range;
+import com.facebook.presto.common.predicate.ValueSet;
+import com.facebook.presto.common.type.StandardTypes;
+import com.facebook.presto.common.type.Type;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+
+import static io.airlift.slice.Slices.utf8Slice;
+import static java.lang.Float.floatToRawIntBits;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Per-file column statistics stored in the {@code stats} field of Delta {@code add} actions.
+ * Only top level columns with primitive values are retained.
+ */
+public final class DeltaFileStatistics
+{
+    private static final Logger log = Logger.get(DeltaFileStatistics.class);
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    // Delta writers truncate string statistics to this many characters, so a max value
+    // of at least this length is not a reliable upper bound
+    private static final int STRING_PREFIX_LENGTH = 32;
+
+    private final Optional<Long> numRecords;
+    private final Map<String, JsonNode> minValues;
+    private final Map<String, JsonNode> maxValues;
+    private final Map<String, Long> nullCounts;
+
+    public DeltaFileStatistics(Optional<Long> numRecords, Map<String, JsonNode> minValues, Map<String, JsonNode> maxValues, Map<String, Long> nullCounts)
+    {
+        this.numRecords = requireNonNull(numRecords, "numRecords is null");
+        this.minValues = ImmutableMap.copyOf(requireNonNull(minValues, "minValues is null"));
+        this.maxValues = ImmutableMap.copyOf(requireNonNull(maxValues, "maxValues is null"));
+        this.nullCounts = ImmutableMap.copyOf(requireNonNull(nullCounts, "nullCounts is null"));
+    }
+
+    /**
+     * Parse the JSON statistics of an add action. Malformed statistics are ignored since they
+     * are only used for pruning.
+     */
+    public static Optional<DeltaFileStatistics> parse(String json)
+    {
+        if (json == null || json.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            JsonNode root = OBJECT_MAPPER.readTree(json);
+            JsonNode numRecords = root.get("numRecords");
+            ImmutableMap.Builder<String, Long> nullCounts = ImmutableMap.builder();
+            JsonNode nullCountNode = root.get("nullCount");
+            if (nullCountNode != null) {
+                Iterator<Map.Entry<String, JsonNode>> fields = nullCountNode.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    if (field.getValue().isIntegralNumber()) {
+                        nullCounts.put(field.getKey(), field.getValue().asLong());
+                    }
+                }
+            }
+            return Optional.of(new DeltaFileStatistics(
+                    numRecords != null && numRecords.isIntegralNumber() ? Optional.of(numRecords.asLong()) : Optional.empty(),
+                    primitiveValues(root.get("minValues")),
+                    primitiveValues(root.get("maxValues")),
+                    nullCounts.build()));
+        }
+        catch (IOException e) {
+            log.debug(e, "Ignoring malformed Delta file statistics");
+            return Optional.empty();
+        }
+    }
+
+    private static Map<String, JsonNode> primitiveValues(JsonNode node)
+    {
+        if (node == null || !node.isObject()) {
+            return ImmutableMap.of();
+        }
+        ImmutableMap.Builder<String, JsonNode> values = ImmutableMap.builder();
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (field.getValue().isValueNode() && !field.getValue().isNull()) {
+                values.put(field.getKey(), field.getValue());
+            }
+        }
+        return values.build();
+    }
+
+    public Optional<Long> getNumRecords()
+    {
+        return numRecords;
+    }
+
+    /**
+     * Returns a domain that contains every value of the given column in the file,
+     * or empty if the statistics do not constrain the column.
+     */
+    public Optional<Domain> getDomain(String columnName, Type type)
+    {
+        Optional<Long> nullCount = lookup(nullCounts, columnName);
+        if (nullCount.isPresent() && numRecords.isPresent() && nullCount.get().equals(numRecords.get())) {
+            return Optional.of(Domain.onlyNull(type));
+        }
+        boolean nullAllowed = !nullCount.isPresent() || nullCount.get() > 0;
+
+        Optional<Object> min = lookup(minValues, columnName).flatMap(value -> toPrestoValue(value, type, false));
+        Optional<Object> max = lookup(maxValues, columnName).flatMap(value -> toPrestoValue(value, type, true));
+        if (!min.isPresent() && !max.isPresent()) {
+            return Optional.empty();
+        }
+        Range range;
+        if (min.isPresent() && max.isPresent()) {
+            range = Range.range(type, min.get(), true, max.get(), true);
+        }
+        else if (min.isPresent()) {
+            range = Range.greaterThanOrEqual(type, min.get());
+        }
+        else {
+            range = Range.lessThanOrEqual(type, max.get());
+        }
+        return Optional.of(Domain.create(ValueSet.ofRanges(range), nullAllowed));
+    }
+
+    private static <T> Optional<T> lookup(Map<String, T> values, String columnName)
+    {
+        T value = values.get(columnName);
+        if (value != null) {
+            return Optional.of(value);
+        }
+        // column names are lower-cased when case sensitive partitions are disabled
+        for (Map.Entry<String, T> entry : values.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(columnName)) {
+                return Optional.of(entry.getValue());
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<Object> toPrestoValue(JsonNode value, Type type, boolean isMax)
+    {
+        switch (type.getTypeSignature().getBase()) {
+            case StandardTypes.TINYINT:
+            case StandardTypes.SMALLINT:
+            case StandardTypes.INTEGER:
+            case StandardTypes.BIGINT:
+                return value.isIntegralNumber() ? Optional.of(value.asLong()) : Optional.empty();
+            case StandardTypes.REAL:
+                if (!value.isNumber() || Double.isNaN(value.asDouble())) {
+                    return Optional.empty();
+                }
+                return Optional.of((long) floatToRawIntBits((float) value.asDouble()));
+            case StandardTypes.DOUBLE:
+                if (!value.isNumber() || Double.isNaN(value.asDouble())) {
+                    return Optional.empty();
+                }
+                return Optional.of(value.asDouble());
+            case StandardTypes.DATE:
+                try {
+                    return value.isTextual() ? Optional.of(LocalDate.parse(value.asText()).toEpochDay()) : Optional.empty();
+                }
+                catch (DateTimeParseException e) {
+                    return Optional.empty();
+                }
+            case StandardTypes.VARCHAR:
+                if (!value.isTextual() || (isMax && value.asText().length() >= STRING_PREFIX_LENGTH)) {
+                    return Optional.empty();
+                }
+                return Optional.of(utf8Slice(value.asText()));
+            default:
+                return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.delta;
+
+import com.facebook.airlift.log.Logger;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Applies the {@code add} and {@code remove} actions of Delta commit files on top of an already
+ * reconstructed snapshot, so that a newer snapshot does not require replaying the whole log.
+ */
+public final class DeltaLogReplay
+{
+    private static final Logger log = Logger.get(DeltaLogReplay.class);
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final String DELTA_LOG_DIRECTORY = "_delta_log";
+
+    private DeltaLogReplay() {}
+
+    /**
+     * Replays commits {@code baseVersion + 1} to {@code targetVersion} on top of {@code baseFiles}.
+     *
+     * @return the files of {@code targetVersion}, or empty if the commits cannot be replayed
+     * (for example because they were removed by log cleanup or reference unknown files),
+     * in which case the caller has to reconstruct the snapshot from scratch
+     */
+    public static Optional<List<DeltaAddFile>> replayCommits(
+            FileSystem fileSystem,
+            String tableLocation,
+            List<DeltaAddFile> baseFiles,
+            long baseVersion,
+            long targetVersion)
+    {
+        Path tableRoot = new Path(tableLocation);
+        Map<String, DeltaAddFile> files = new LinkedHashMap<>();
+        for (DeltaAddFile file : baseFiles) {
+            files.put(pathKey(file.getPath()), file);
+        }
+
+        for (long version = baseVersion + 1; version <= targetVersion; version++) {
+            Path commitFile = new Path(new Path(tableRoot, DELTA_LOG_DIRECTORY), format("%020d.json", version));
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(fileSystem.open(commitFile), UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    JsonNode action = OBJECT_MAPPER.readTree(line);
+                    JsonNode add = action.get("add");
+                    if (add != null) {
+                        if (add.hasNonNull("deletionVector")) {
+                            // deletion vectors are resolved by the Delta kernel only
+                            return Optional.empty();
+                        }
+                        DeltaAddFile file = toAddFile(tableRoot, add);
+                        files.put(pathKey(file.getPath()), file);
+                        continue;
+                    }
+                    JsonNode remove = action.get("remove");
+                    if (remove != null) {
+                        String path = resolvePath(tableRoot, remove.get("path").asText());
+                        if (files.remove(pathKey(path)) == null) {
+                            log.debug("Commit %s of %s removes unknown file %s", version, tableLocation, path);
+                            return Optional.empty();
+                        }
+                    }
+                }
+            }
+            catch (FileNotFoundException e) {
+                return Optional.empty();
+            }
+            catch (IOException | URISyntaxException | RuntimeException e) {
+                log.warn(e, "Failed to replay commit %s of Delta table %s", version, tableLocation);
+                return Optional.empty();
+            }
+        }
+        return Optional.of(ImmutableList.copyOf(files.values()));
+    }
+
+    private static DeltaAddFile toAddFile(Path tableRoot, JsonNode add)
+            throws URISyntaxException
+    {
+        Map<String, String> partitionValues = new HashMap<>();
+        JsonNode partitionValuesNode = add.get("partitionValues");
+        if (partitionValuesNode != null) {
+            Iterator<Map.Entry<String, JsonNode>> fields = partitionValuesNode.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                partitionValues.put(field.getKey(), field.getValue().isNull() ? null : field.getValue().asText());
+            }
+        }
+        JsonNode stats = add.get("stats");
+        return new DeltaAddFile(
+                resolvePath(tableRoot, add.get("path").asText()),
+                add.get("size").asLong(),
+                partitionValues,
+                stats == null || stats.isNull() ? Optional.empty() : DeltaFileStatistics.parse(stats.asText()));
+    }
+
+    /**
+     * Paths in the log are URL encoded and either absolute or relative to the table root.
+     */
+    private static String resolvePath(Path tableRoot, String path)
+            throws URISyntaxException
+    {
+        return new Path(tableRoot, new Path(new URI(path))).toString();
+    }
+
+    private static String pathKey(String path)
+    {
+        // ignore scheme and authority differences between the kernel and the log representation
+        return new Path(path).toUri().getPath();
+    }
+}
@@ -21,6 +21,7 @@ import com.facebook.presto.cache.ForCachingFileSystem;
 import com.facebook.presto.cache.filemerge.FileMergeCacheConfig;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.common.type.TypeManager;
+import com.facebook.presto.delta.DeltaSnapshotCache.SnapshotKey;
 import com.facebook.presto.delta.rule.DeltaPlanOptimizerProvider;
 import com.facebook.presto.hive.DynamicConfigurationProvider;
 import com.facebook.presto.hive.FileFormatDataSourceStats;
@@ -49,6 +50,8 @@ import com.facebook.presto.hive.metastore.thrift.ThriftHiveMetastoreConfig;
 import com.facebook.presto.spi.procedure.Procedure;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.deser.std.FromStringDeserializer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.inject.Binder;
 import com.google.inject.Provides;
 import com.google.inject.Scopes;
@@ -56,6 +59,7 @@ import com.google.inject.multibindings.Multibinder;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 
 import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
@@ -65,8 +69,10 @@ import static com.facebook.airlift.json.JsonCodec.listJsonCodec;
 import static com.facebook.airlift.json.JsonCodecBinder.jsonCodecBinder;
 import static com.facebook.presto.common.type.TypeSignature.parseTypeSignature;
 import static com.google.inject.multibindings.Multibinder.newSetBinder;
+import static java.lang.Math.max;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.weakref.jmx.ObjectNames.generatedNameOf;
 import static org.weakref.jmx.guice.ExportBinder.newExporter;
 
@@ -95,6 +101,7 @@ public class DeltaModule
         binder.bind(DeltaConnectorId.class).toInstance(new DeltaConnectorId(connectorId));
         binder.bind(DeltaMetadata.class).in(Scopes.SINGLETON);
         binder.bind(DeltaClient.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(DeltaSnapshotCache.class).as(generatedNameOf(DeltaSnapshotCache.class, connectorId));
         binder.bind(DeltaSplitManager.class).in(Scopes.SINGLETON);
         binder.bind(DeltaPageSourceProvider.class).in(Scopes.SINGLETON);
         binder.bind(DeltaSessionProperties.class).in(Scopes.SINGLETON);
@@ -152,6 +159,19 @@ public class DeltaModule
         }
     }
 
+    @Singleton
+    @Provides
+    public DeltaSnapshotCache createSnapshotCache(DeltaConfig config)
+    {
+        Cache<SnapshotKey, List<DeltaAddFile>> delegate = CacheBuilder.newBuilder()
+                .maximumWeight(config.getSnapshotCacheMaxFiles())
+                .<SnapshotKey, List<DeltaAddFile>>weigher((key, files) -> max(files.size(), 1))
+                .expireAfterAccess(config.getSnapshotCacheTtl().toMillis(), MILLISECONDS)
+                .recordStats()
+                .build();
+        return new DeltaSnapshotCache(delegate, config.getSnapshotCacheTtl().toMillis() > 0 && config.getSnapshotCacheMaxFiles() > 0);
+    }
+
     @ForCachingHiveMetastore
     @Singleton
     @Provides
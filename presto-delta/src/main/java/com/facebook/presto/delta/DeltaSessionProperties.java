@@ -27,6 +27,7 @@ public final class DeltaSessionProperties
 {
     private static final String CACHE_ENABLED = "cache_enabled";
     public static final String PARQUET_DEREFERENCE_PUSHDOWN_ENABLED = "parquet_dereference_pushdown_enabled";
+    public static final String FILE_STATISTICS_PRUNING_ENABLED = "file_statistics_pruning_enabled";
 
     private final List<PropertyMetadata<?>> sessionProperties;
 
@@ -46,6 +47,11 @@ public final class DeltaSessionProperties
                         PARQUET_DEREFERENCE_PUSHDOWN_ENABLED,
                         "Is dereference pushdown expression pushdown into Parquet reader enabled?",
                         deltaConfigConfig.isParquetDereferencePushdownEnabled(),
+                        false),
+                booleanProperty(
+                        FILE_STATISTICS_PRUNING_ENABLED,
+                        "Skip data files whose statistics in the transaction log do not match the query predicate",
+                        deltaConfigConfig.isFileStatisticsPruningEnabled(),
                         false));
     }
 
@@ -58,4 +64,9 @@ public final class DeltaSessionProperties
     {
         return session.getProperty(PARQUET_DEREFERENCE_PUSHDOWN_ENABLED, Boolean.class);
     }
+
+    public static boolean isFileStatisticsPruningEnabled(ConnectorSession session)
+    {
+        return session.getProperty(FILE_STATISTICS_PRUNING_ENABLED, Boolean.class);
+    }
 }
@@ -0,0 +1,153 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.delta;
+
+import com.facebook.presto.hive.CacheStatsMBean;
+import com.google.common.cache.Cache;
+import com.google.common.cache.ForwardingCache.SimpleForwardingCache;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Coordinator cache of the live data files of Delta table snapshots, keyed by table location
+ * and snapshot version. Snapshots are immutable, so an entry never has to be invalidated;
+ * newer versions of a cached table are derived by replaying only the commits after it.
+ */
+public class DeltaSnapshotCache
+        extends SimpleForwardingCache<DeltaSnapshotCache.SnapshotKey, List<DeltaAddFile>>
+{
+    private final boolean enabled;
+    private final CacheStatsMBean cacheStats;
+    private final AtomicLong fullReplays = new AtomicLong();
+    private final AtomicLong incrementalReplays = new AtomicLong();
+    private final AtomicLong replayedCommits = new AtomicLong();
+
+    public DeltaSnapshotCache(Cache<SnapshotKey, List<DeltaAddFile>> delegate, boolean enabled)
+    {
+        super(delegate);
+        this.enabled = enabled;
+        this.cacheStats = new CacheStatsMBean(delegate);
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Returns the most recent cached snapshot of the table at the given location that is
+     * older than the requested version.
+     */
+    public Optional<SnapshotKey> getLatestCachedVersionBefore(String tableLocation, long version)
+    {
+        return asMap().keySet().stream()
+                .filter(key -> key.getTableLocation().equals(tableLocation) && key.getVersion() < version)
+                .max((left, right) -> Long.compare(left.getVersion(), right.getVersion()));
+    }
+
+    public void recordFullReplay()
+    {
+        fullReplays.incrementAndGet();
+    }
+
+    public void recordIncrementalReplay(long commits)
+    {
+        incrementalReplays.incrementAndGet();
+        replayedCommits.addAndGet(commits);
+    }
+
+    @Managed
+    @Nested
+    public CacheStatsMBean getCacheStats()
+    {
+        return cacheStats;
+    }
+
+    @Managed
+    public long getFullReplays()
+    {
+        return fullReplays.get();
+    }
+
+    @Managed
+    public long getIncrementalReplays()
+    {
+        return incrementalReplays.get();
+    }
+
+    @Managed
+    public long getReplayedCommits()
+    {
+        return replayedCommits.get();
+    }
+
+    public static final class SnapshotKey
+    {
+        private final String tableLocation;
+        private final long version;
+
+        public SnapshotKey(String tableLocation, long version)
+        {
+            this.tableLocation = requireNonNull(tableLocation, "tableLocation is null");
+            this.version = version;
+        }
+
+        public String getTableLocation()
+        {
+            return tableLocation;
+        }
+
+        public long getVersion()
+        {
+            return version;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            SnapshotKey that = (SnapshotKey) o;
+            return version == that.version &&
+                    tableLocation.equals(that.tableLocation);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(tableLocation, version);
+        }
+
+        @Override
+        public String toString()
+        {
+            return toStringHelper(this)
+                    .add("tableLocation", tableLocation)
+                    .add("version", version)
+                    .toString();
+        }
+    }
+}
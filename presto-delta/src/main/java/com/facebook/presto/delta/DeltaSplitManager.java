@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.delta;
 
+import com.facebook.presto.common.predicate.TupleDomain;
 import com.facebook.presto.common.type.TypeManager;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.ConnectorSplit;
@@ -22,18 +23,18 @@ import com.facebook.presto.spi.connector.ConnectorPartitionHandle;
 import com.facebook.presto.spi.connector.ConnectorSplitManager;
 import com.facebook.presto.spi.connector.ConnectorTransactionHandle;
 import com.google.common.collect.ImmutableList;
-import io.delta.kernel.data.Row;
-import io.delta.kernel.internal.InternalScanFileUtils;
+import com.google.common.collect.Iterators;
 import io.delta.kernel.utils.CloseableIterator;
-import io.delta.kernel.utils.FileStatus;
 import jakarta.inject.Inject;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.CompletableFuture;
 
+import static com.facebook.presto.delta.DeltaSessionProperties.isFileStatisticsPruningEnabled;
 import static com.facebook.presto.hive.HiveCommonSessionProperties.getNodeSelectionStrategy;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.CompletableFuture.completedFuture;
@@ -70,7 +71,8 @@ public class DeltaSplitManager
             implements ConnectorSplitSource
     {
         private final DeltaTable deltaTable;
-        private final CloseableIterator<Row> rowIterator;
+        private final CloseableIterator<DeltaAddFile> files;
+        private final Iterator<DeltaAddFile> fileIterator;
         private final int maxBatchSize;
         private final ConnectorSession session;
 
@@ -78,10 +80,11 @@ public class DeltaSplitManager
         {
             this.session = requireNonNull(session, "session is null");
             this.deltaTable = deltaTableHandle.getTable().getDeltaTable();
-            this.rowIterator = DeltaExpressionUtils.iterateWithPartitionPruning(
-                    deltaClient.listFiles(session, deltaTable),
-                    deltaTableHandle.getPredicate(),
-                    typeManager);
+            TupleDomain<DeltaColumnHandle> predicate = deltaTableHandle.getPredicate();
+            boolean statisticsPruningEnabled = isFileStatisticsPruningEnabled(session);
+            this.files = deltaClient.listFiles(session, deltaTable, statisticsPruningEnabled ? predicate : TupleDomain.all());
+            this.fileIterator = Iterators.filter(files, file -> DeltaExpressionUtils.evaluatePartitionPredicate(predicate, file, typeManager) &&
+                    (!statisticsPruningEnabled || DeltaExpressionUtils.evaluateStatisticsPredicate(predicate, file, typeManager)));
             this.maxBatchSize = deltaConfig.getMaxSplitsBatchSize();
         }
 
@@ -90,30 +93,29 @@ public class DeltaSplitManager
         {
             ImmutableList.Builder<ConnectorSplit> splitBuilder = ImmutableList.builder();
             long currentSplitCount = 0;
-            while (rowIterator.hasNext() && currentSplitCount < maxSize && currentSplitCount < maxBatchSize) {
-                Row row = rowIterator.next();
-                FileStatus addFileStatus = InternalScanFileUtils.getAddFileStatus(row);
+            while (fileIterator.hasNext() && currentSplitCount < maxSize && currentSplitCount < maxBatchSize) {
+                DeltaAddFile file = fileIterator.next();
                 splitBuilder.add(new DeltaSplit(
                         connectorId,
                         deltaTable.getSchemaName(),
                         deltaTable.getTableName(),
-                        addFileStatus.getPath(),
+                        file.getPath(),
                         0, /* start */
-                        addFileStatus.getSize() /* split length - default is read the entire file in one split */,
-                        addFileStatus.getSize(),
-                        removeNullPartitionValues(InternalScanFileUtils.getPartitionValues(row)),
+                        file.getSize() /* split length - default is read the entire file in one split */,
+                        file.getSize(),
+                        removeNullPartitionValues(file.getPartitionValues()),
                         getNodeSelectionStrategy(session)));
                 currentSplitCount++;
             }
 
-            return completedFuture(new ConnectorSplitBatch(splitBuilder.build(), !rowIterator.hasNext()));
+            return completedFuture(new ConnectorSplitBatch(splitBuilder.build(), !fileIterator.hasNext()));
         }
 
         @Override
         public void close()
         {
             try {
-                rowIterator.close();
+                files.close();
             }
             catch (IOException e) {
                 throw new UncheckedIOException(e);
@@ -123,7 +125,7 @@ public class DeltaSplitManager
         @Override
         public boolean isFinished()
         {
-            return !rowIterator.hasNext();
+            return !fileIterator.hasNext();
         }
     }
 
@@ -65,6 +65,7 @@ public class DeltaQueryRunner
         private Builder() {}
 
         private Map<String, String> extraProperties = new HashMap<>();
+        private Map<String, String> extraDeltaProperties = new HashMap<>();
         // If externalWorkerLauncher is not provided, Java workers are used by default.
         private Optional<BiFunction<Integer, URI, Process>> externalWorkerLauncher = Optional.empty();
         private TimeZoneKey timeZoneKey = UTC_KEY;
@@ -83,6 +84,12 @@ public class DeltaQueryRunner
             return this;
         }
 
+        public Builder setExtraDeltaProperties(Map<String, String> extraDeltaProperties)
+        {
+            this.extraDeltaProperties = ImmutableMap.copyOf(extraDeltaProperties);
+            return this;
+        }
+
         public Builder setTimeZoneKey(TimeZoneKey timeZoneKey)
         {
             this.timeZoneKey = timeZoneKey;
@@ -130,6 +137,7 @@ public class DeltaQueryRunner
             deltaProperties.put("hive.metastore", "file");
             deltaProperties.put("hive.metastore.catalog.dir", catalogDirectory.toFile().toURI().toString());
             deltaProperties.put("delta.case-sensitive-partitions-enabled", Boolean.toString(caseSensitivePartitions));
+            deltaProperties.putAll(extraDeltaProperties);
             queryRunner.createCatalog(DELTA_CATALOG, "delta", deltaProperties);
 
             // Install a Hive connector catalog that uses the same metastore as Delta
@@ -14,11 +14,15 @@
 package com.facebook.presto.delta;
 
 import com.facebook.airlift.configuration.testing.ConfigAssertions;
+import com.facebook.airlift.units.Duration;
 import com.google.common.collect.ImmutableMap;
 import org.testng.annotations.Test;
 
 import java.util.Map;
 
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+
 public class TestDeltaConfig
 {
     @Test
@@ -27,7 +31,10 @@ public class TestDeltaConfig
         ConfigAssertions.assertRecordedDefaults(ConfigAssertions.recordDefaults(DeltaConfig.class)
                 .setMaxSplitsBatchSize(200)
                 .setParquetDereferencePushdownEnabled(true)
-                .setCaseSensitivePartitionsEnabled(true));
+                .setCaseSensitivePartitionsEnabled(true)
+                .setSnapshotCacheTtl(new Duration(10, MINUTES))
+                .setSnapshotCacheMaxFiles(2_000_000)
+                .setFileStatisticsPruningEnabled(true));
     }
 
     @Test
@@ -37,12 +44,18 @@ public class TestDeltaConfig
                 .put("delta.max-splits-batch-size", "400")
                 .put("delta.parquet-dereference-pushdown-enabled", "false")
                 .put("delta.case-sensitive-partitions-enabled", "false")
+                .put("delta.snapshot-cache-ttl", "1h")
+                .put("delta.snapshot-cache-max-files", "1000")
+                .put("delta.file-statistics-pruning-enabled", "false")
                 .build();
 
         DeltaConfig expected = new DeltaConfig()
                 .setMaxSplitsBatchSize(400)
                 .setParquetDereferencePushdownEnabled(false)
-                .setCaseSensitivePartitionsEnabled(false);
+                .setCaseSensitivePartitionsEnabled(false)
+                .setSnapshotCacheTtl(new Duration(1, HOURS))
+                .setSnapshotCacheMaxFiles(1000)
+                .setFileStatisticsPruningEnabled(false);
 
         ConfigAssertions.assertFullMapping(properties, expected);
     }
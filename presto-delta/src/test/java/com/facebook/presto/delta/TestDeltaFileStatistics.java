@@ -0,0 +1,106 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.delta;
+
+import com.facebook.presto.common.predicate.Domain;
+import com.facebook.presto.common.predicate.Range;
+import com.facebook.presto.common.predicate.TupleDomain;
+import com.facebook.presto.common.predicate.ValueSet;
+import com.google.common.collect.ImmutableMap;
+import io.delta.kernel.expressions.Predicate;
+import io.delta.kernel.types.LongType;
+import io.delta.kernel.types.StringType;
+import io.delta.kernel.types.StructType;
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.VarcharType.VARCHAR;
+import static com.facebook.presto.delta.DeltaColumnHandle.ColumnType.REGULAR;
+import static com.facebook.presto.metadata.FunctionAndTypeManager.createTestFunctionAndTypeManager;
+import static io.airlift.slice.Slices.utf8Slice;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestDeltaFileStatistics
+{
+    private static final String STATS = "{\"numRecords\":10," +
+            "\"minValues\":{\"id\":5,\"name\":\"apple\",\"nested\":{\"a\":1}}," +
+            "\"maxValues\":{\"id\":20,\"name\":\"pear\"}," +
+            "\"nullCount\":{\"id\":0,\"name\":2,\"empty\":10}}";
+
+    private static final DeltaColumnHandle ID_COLUMN = new DeltaColumnHandle("id", BIGINT.getTypeSignature(), REGULAR, Optional.empty());
+
+    @Test
+    public void testDomain()
+    {
+        DeltaFileStatistics statistics = DeltaFileStatistics.parse(STATS).get();
+        assertEquals(statistics.getNumRecords(), Optional.of(10L));
+        assertEquals(statistics.getDomain("id", BIGINT), Optional.of(Domain.create(ValueSet.ofRanges(Range.range(BIGINT, 5L, true, 20L, true)), false)));
+        Domain nameDomain = statistics.getDomain("NAME", VARCHAR).get();
+        assertTrue(nameDomain.isNullAllowed());
+        assertTrue(nameDomain.includesNullableValue(utf8Slice("banana")));
+        assertFalse(nameDomain.includesNullableValue(utf8Slice("zucchini")));
+        assertEquals(statistics.getDomain("empty", BIGINT), Optional.of(Domain.onlyNull(BIGINT)));
+        assertFalse(statistics.getDomain("nested", BIGINT).isPresent());
+        assertFalse(statistics.getDomain("missing", BIGINT).isPresent());
+    }
+
+    @Test
+    public void testKernelPredicate()
+    {
+        StructType schema = new StructType().add("ID", LongType.LONG).add("name", StringType.STRING);
+        DeltaColumnHandle nameColumn = new DeltaColumnHandle("name", VARCHAR.getTypeSignature(), REGULAR, Optional.empty());
+        DeltaColumnHandle missingColumn = new DeltaColumnHandle("missing", BIGINT.getTypeSignature(), REGULAR, Optional.empty());
+
+        Predicate range = DeltaExpressionUtils.toKernelPredicate(
+                TupleDomain.withColumnDomains(ImmutableMap.of(ID_COLUMN, Domain.create(ValueSet.ofRanges(Range.range(BIGINT, 5L, true, 20L, false)), false))),
+                schema).get();
+        assertEquals(range.getName(), "AND");
+        assertEquals(((Predicate) range.getChildren().get(0)).getName(), ">=");
+        assertEquals(((Predicate) range.getChildren().get(1)).getName(), "<");
+
+        Predicate values = DeltaExpressionUtils.toKernelPredicate(
+                TupleDomain.withColumnDomains(ImmutableMap.of(nameColumn, Domain.create(ValueSet.of(VARCHAR, utf8Slice("apple"), utf8Slice("pear")), true))),
+                schema).get();
+        assertEquals(values.getName(), "OR");
+        assertEquals(((Predicate) values.getChildren().get(1)).getName(), "IS_NULL");
+
+        assertFalse(DeltaExpressionUtils.toKernelPredicate(TupleDomain.withColumnDomains(ImmutableMap.of(missingColumn, Domain.singleValue(BIGINT, 7L))), schema).isPresent());
+        assertFalse(DeltaExpressionUtils.toKernelPredicate(TupleDomain.all(), schema).isPresent());
+    }
+
+    @Test
+    public void testMalformedStatistics()
+    {
+        assertFalse(DeltaFileStatistics.parse("{not json").isPresent());
+        assertFalse(DeltaFileStatistics.parse(null).isPresent());
+    }
+
+    @Test
+    public void testStatisticsPruning()
+    {
+        DeltaAddFile file = new DeltaAddFile("file:/tmp/table/part-0.parquet", 100, ImmutableMap.of(), DeltaFileStatistics.parse(STATS));
+        DeltaAddFile fileWithoutStatistics = new DeltaAddFile("file:/tmp/table/part-1.parquet", 100, ImmutableMap.of(), Optional.empty());
+
+        TupleDomain<DeltaColumnHandle> matching = TupleDomain.withColumnDomains(ImmutableMap.of(ID_COLUMN, Domain.singleValue(BIGINT, 7L)));
+        TupleDomain<DeltaColumnHandle> notMatching = TupleDomain.withColumnDomains(ImmutableMap.of(ID_COLUMN, Domain.singleValue(BIGINT, 21L)));
+
+        assertTrue(DeltaExpressionUtils.evaluateStatisticsPredicate(matching, file, createTestFunctionAndTypeManager()));
+        assertFalse(DeltaExpressionUtils.evaluateStatisticsPredicate(notMatching, file, createTestFunctionAndTypeManager()));
+        assertTrue(DeltaExpressionUtils.evaluateStatisticsPredicate(notMatching, fileWithoutStatistics, createTestFunctionAndTypeManager()));
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.delta;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.operator.OperatorStats;
+import com.facebook.presto.spi.QueryId;
+import com.facebook.presto.testing.QueryRunner;
+import com.facebook.presto.tests.DistributedQueryRunner;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.Test;
+
+import static com.facebook.presto.delta.DeltaQueryRunner.DELTA_CATALOG;
+import static com.facebook.presto.delta.DeltaSessionProperties.FILE_STATISTICS_PRUNING_ENABLED;
+import static java.lang.String.format;
+import static org.testng.Assert.assertEquals;
+
+public class TestDeltaUncachedFileListing
+        extends AbstractDeltaDistributedQueryTestBase
+{
+    @Override
+    protected QueryRunner createQueryRunner()
+            throws Exception
+    {
+        return DeltaQueryRunner.builder()
+                .setExtraDeltaProperties(ImmutableMap.of("delta.snapshot-cache-ttl", "0s"))
+                .build()
+                .getQueryRunner();
+    }
+
+    @Test
+    public void testStatisticsPruningWithoutCache()
+    {
+        // one of the two files of the table holds the values 0 to 3 of as_int, the other one 4 to 9
+        String query = format("SELECT as_int FROM \"%s\".\"%s\" WHERE as_int = 1",
+                PATH_SCHEMA, goldenTablePathWithPrefix(DELTA_V3, "data-reader-primitives"));
+
+        assertQuery(query, "SELECT 1");
+        assertEquals(getScanDriverCount(getSession(), query), 1);
+
+        Session withoutPruning = Session.builder(getSession())
+                .setCatalogSessionProperty(DELTA_CATALOG, FILE_STATISTICS_PRUNING_ENABLED, "false")
+                .build();
+        assertEquals(getScanDriverCount(withoutPruning, query), 2);
+    }
+
+    private long getScanDriverCount(Session session, String query)
+    {
+        DistributedQueryRunner queryRunner = getDistributedQueryRunner();
+        QueryId queryId = queryRunner.executeWithQueryId(session, query).getQueryId();
+        return queryRunner.getCoordinator().getQueryManager().getFullQueryInfo(queryId).getQueryStats().getOperatorSummaries().stream()
+                .filter(summary -> summary.getOperatorType().equals("ScanFilterAndProjectOperator") || summary.getOperatorType().equals("TableScanOperator"))
+                .mapToLong(OperatorStats::getTotalDrivers)
+                .sum();
+    }
+}
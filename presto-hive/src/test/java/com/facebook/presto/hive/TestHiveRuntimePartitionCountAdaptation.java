@@ -0,0 +1,142 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.hive;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.execution.StageInfo;
+import com.facebook.presto.operator.OperatorStats;
+import com.facebook.presto.spi.QueryId;
+import com.facebook.presto.testing.QueryRunner;
+import com.facebook.presto.tests.AbstractTestQueryFramework;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static com.facebook.presto.SystemSessionProperties.ENABLE_STATS_COLLECTION_FOR_TEMPORARY_TABLE;
+import static com.facebook.presto.SystemSessionProperties.JOIN_DISTRIBUTION_TYPE;
+import static com.facebook.presto.SystemSessionProperties.RUNTIME_OPTIMIZER_ENABLED;
+import static com.facebook.presto.SystemSessionProperties.RUNTIME_PARTITION_COUNT_ADAPTATION_ENABLED;
+import static com.facebook.presto.SystemSessionProperties.RUNTIME_PARTITION_TARGET_SIZE;
+import static com.facebook.presto.hive.HiveQueryRunner.createMaterializingQueryRunner;
+import static com.facebook.presto.sql.planner.SystemPartitioningHandle.FIXED_HASH_DISTRIBUTION;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.airlift.tpch.TpchTable.CUSTOMER;
+import static io.airlift.tpch.TpchTable.NATION;
+import static io.airlift.tpch.TpchTable.ORDERS;
+import static io.airlift.tpch.TpchTable.PART_SUPPLIER;
+import static io.airlift.tpch.TpchTable.SUPPLIER;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestHiveRuntimePartitionCountAdaptation
+        extends AbstractTestQueryFramework
+{
+    // the temporary tables are bucketed on both grouping keys, so the partitioned semi join repartitions
+    // both of them on custkey through streaming exchanges, in the same section as the temporary table reads
+    private static final String QUERY = "SELECT count(*) FROM (SELECT orderkey, custkey FROM orders GROUP BY orderkey, custkey) " +
+            "WHERE custkey IN (SELECT custkey FROM customer GROUP BY custkey, name)";
+    // the join reads the temporary tables of nation and supplier, bucketed on nationkey, and is flipped at runtime
+    // to build on nation, while the semi join repartitions its inputs on suppkey in the same section
+    private static final String JOIN_QUERY = "SELECT count(*) FROM nation JOIN supplier ON supplier.nationkey = nation.nationkey " +
+            "WHERE suppkey IN (SELECT suppkey FROM partsupp GROUP BY suppkey, availqty)";
+
+    @Override
+    protected QueryRunner createQueryRunner()
+            throws Exception
+    {
+        return createMaterializingQueryRunner(ImmutableList.of(ORDERS, CUSTOMER, NATION, SUPPLIER, PART_SUPPLIER));
+    }
+
+    @Test
+    public void testPartitionCountReduced()
+    {
+        Session session = Session.builder(getSession())
+                .setSystemProperty(JOIN_DISTRIBUTION_TYPE, "PARTITIONED")
+                .setSystemProperty(RUNTIME_PARTITION_TARGET_SIZE, "1GB")
+                .build();
+        Session adaptiveSession = Session.builder(session)
+                .setSystemProperty(RUNTIME_PARTITION_COUNT_ADAPTATION_ENABLED, "true")
+                .build();
+
+        assertTrue(getHashPartitionedTaskCounts(session).stream().allMatch(taskCount -> taskCount > 1));
+        // the children sections wrote much less than the target size
+        assertTrue(getHashPartitionedTaskCounts(adaptiveSession).stream().allMatch(taskCount -> taskCount == 1));
+
+        assertQuery(adaptiveSession, QUERY, "SELECT count(*) FROM orders");
+    }
+
+    @Test
+    public void testPartitionCountReducedWithRuntimeOptimizer()
+    {
+        Session session = Session.builder(getSession())
+                .setSystemProperty(JOIN_DISTRIBUTION_TYPE, "PARTITIONED")
+                .setSystemProperty(RUNTIME_PARTITION_TARGET_SIZE, "1GB")
+                .setSystemProperty(RUNTIME_OPTIMIZER_ENABLED, "true")
+                .setSystemProperty(ENABLE_STATS_COLLECTION_FOR_TEMPORARY_TABLE, "true")
+                .build();
+        Session adaptiveSession = Session.builder(session)
+                .setSystemProperty(RUNTIME_PARTITION_COUNT_ADAPTATION_ENABLED, "true")
+                .build();
+
+        StageInfo outputStage = getOutputStage(session, JOIN_QUERY);
+        assertTrue(getHashPartitionedTaskCounts(outputStage).stream().allMatch(taskCount -> taskCount > 1));
+        // the flipped join builds on the 25 rows of nation
+        assertEquals(getHashBuildPositions(outputStage), 25);
+
+        // the stages running the flipped join are the ones the partition count is adapted for
+        outputStage = getOutputStage(adaptiveSession, JOIN_QUERY);
+        assertTrue(getHashPartitionedTaskCounts(outputStage).stream().allMatch(taskCount -> taskCount == 1));
+        assertEquals(getHashBuildPositions(outputStage), 25);
+        assertTrue(outputStage.getAllStages().stream().anyMatch(StageInfo::isRuntimeOptimized));
+
+        assertQuery(adaptiveSession, JOIN_QUERY, "SELECT count(*) FROM nation JOIN supplier ON supplier.nationkey = nation.nationkey WHERE suppkey IN (SELECT suppkey FROM partsupp)");
+    }
+
+    private List<Integer> getHashPartitionedTaskCounts(Session session)
+    {
+        return getHashPartitionedTaskCounts(getOutputStage(session, QUERY));
+    }
+
+    private StageInfo getOutputStage(Session session, String query)
+    {
+        QueryId queryId = getDistributedQueryRunner().executeWithQueryId(session, query).getQueryId();
+        return getDistributedQueryRunner().getCoordinator()
+                .getQueryManager()
+                .getFullQueryInfo(queryId)
+                .getOutputStage()
+                .get();
+    }
+
+    private static long getHashBuildPositions(StageInfo outputStage)
+    {
+        return outputStage.getAllStages().stream()
+                .flatMap(stage -> stage.getLatestAttemptExecutionInfo().getStats().getOperatorSummaries().stream())
+                .filter(operator -> operator.getOperatorType().equals("HashBuilderOperator"))
+                .mapToLong(OperatorStats::getInputPositions)
+                .sum();
+    }
+
+    private static List<Integer> getHashPartitionedTaskCounts(StageInfo outputStage)
+    {
+        List<Integer> taskCounts = outputStage.getAllStages().stream()
+                .filter(stage -> stage.getPlan().get().getPartitioning().equals(FIXED_HASH_DISTRIBUTION))
+                .map(stage -> stage.getLatestAttemptExecutionInfo().getTasks().size())
+                .collect(toImmutableList());
+        assertFalse(taskCounts.isEmpty(), "query has no hash partitioned stage");
+        return taskCounts;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.hive;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.operator.OperatorStats;
+import com.facebook.presto.spi.QueryId;
+import com.facebook.presto.testing.QueryRunner;
+import com.facebook.presto.tests.AbstractTestQueryFramework;
+import com.facebook.presto.tests.DistributedQueryRunner;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static com.facebook.airlift.testing.Assertions.assertLessThan;
+import static com.facebook.presto.SystemSessionProperties.SORTED_INPUT_TOP_N_ENABLED;
+import static com.facebook.presto.hive.HiveQueryRunner.HIVE_CATALOG;
+import static com.facebook.presto.hive.HiveSessionProperties.ORDER_BASED_EXECUTION_ENABLED;
+import static io.airlift.tpch.TpchTable.ORDERS;
+import static org.testng.Assert.assertEquals;
+
+public class TestHiveSortedInputTopN
+        extends AbstractTestQueryFramework
+{
+    private static final String TOP_N_QUERY = "SELECT orderkey FROM test_sorted_input_top_n ORDER BY orderkey LIMIT 10";
+
+    @Override
+    protected QueryRunner createQueryRunner()
+            throws Exception
+    {
+        return HiveQueryRunner.createQueryRunner(ORDERS);
+    }
+
+    @BeforeClass
+    public void createSortedTable()
+    {
+        getQueryRunner().execute("CREATE TABLE test_sorted_input_top_n WITH ( \n" +
+                "  bucket_count = 4, bucketed_by = ARRAY['orderkey'], \n" +
+                "  sorted_by = ARRAY['orderkey'], format = 'DWRF' ) AS \n" +
+                "SELECT orderkey, custkey FROM orders");
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void dropSortedTable()
+    {
+        getQueryRunner().execute("DROP TABLE IF EXISTS test_sorted_input_top_n");
+    }
+
+    @Test
+    public void testScanOfSortedSplitsFinishesEarly()
+    {
+        long orders = (long) computeScalar("SELECT count(*) FROM orders");
+
+        Session sortedInputTopN = sortedInputTopN(true);
+        assertQueryOrdered(sortedInputTopN, TOP_N_QUERY, "SELECT orderkey FROM orders ORDER BY orderkey LIMIT 10");
+        // every bucket file is sorted, so the scan of each file stops after its first rows
+        assertLessThan(getScanRawInputPositions(sortedInputTopN), orders);
+
+        assertEquals(getScanRawInputPositions(sortedInputTopN(false)), orders);
+    }
+
+    private long getScanRawInputPositions(Session session)
+    {
+        DistributedQueryRunner queryRunner = getDistributedQueryRunner();
+        QueryId queryId = queryRunner.executeWithQueryId(session, TOP_N_QUERY).getQueryId();
+        return queryRunner.getCoordinator().getQueryManager().getFullQueryInfo(queryId).getQueryStats().getOperatorSummaries().stream()
+                .filter(summary -> summary.getOperatorType().equals("ScanFilterAndProjectOperator") || summary.getOperatorType().equals("TableScanOperator"))
+                .mapToLong(OperatorStats::getRawInputPositions)
+                .sum();
+    }
+
+    private Session sortedInputTopN(boolean enabled)
+    {
+        return Session.builder(getSession())
+                .setCatalogSessionProperty(HIVE_CATALOG, ORDER_BASED_EXECUTION_ENABLED, "true")
+                .setSystemProperty(SORTED_INPUT_TOP_N_ENABLED, Boolean.toString(enabled))
+                .build();
+    }
+}
@@ -27,6 +27,7 @@ import static com.facebook.airlift.units.DataSize.Unit.MEGABYTE;
 public class HudiConfig
 {
     private boolean metadataTableEnabled;
+    private boolean columnStatsPruningEnabled;
     private boolean sizeBasedSplitWeightsEnabled = true;
     private DataSize standardSplitWeightSize = new DataSize(128, MEGABYTE);
     private double minimumAssignedSplitWeight = 0.05;
@@ -46,6 +47,20 @@ public class HudiConfig
         return this;
     }
 
+    public boolean isColumnStatsPruningEnabled()
+    {
+        return columnStatsPruningEnabled;
+    }
+
+    @Config("hudi.column-stats-pruning-enabled")
+    @ConfigDescription("Prune file slices using the column stats index of the Hudi metadata table. " +
+            "Only takes effect when the metadata table is enabled.")
+    public HudiConfig setColumnStatsPruningEnabled(boolean columnStatsPruningEnabled)
+    {
+        this.columnStatsPruningEnabled = columnStatsPruningEnabled;
+        return this;
+    }
+
     public boolean isSizeBasedSplitWeightsEnabled()
     {
         return sizeBasedSplitWeightsEnabled;
@@ -36,6 +36,7 @@ public class HudiSessionProperties
     private final List<PropertyMetadata<?>> sessionProperties;
 
     private static final String HUDI_METADATA_TABLE_ENABLED = "hudi_metadata_table_enabled";
+    private static final String COLUMN_STATS_PRUNING_ENABLED = "column_stats_pruning_enabled";
     private static final String SIZE_BASED_SPLIT_WEIGHTS_ENABLED = "size_based_split_weights_enabled";
     private static final String STANDARD_SPLIT_WEIGHT_SIZE = "standard_split_weight_size";
     private static final String MINIMUM_ASSIGNED_SPLIT_WEIGHT = "minimum_assigned_split_weight";
@@ -51,6 +52,11 @@ public class HudiSessionProperties
                         "Enable Hudi MetaTable Table",
                         hudiConfig.isMetadataTableEnabled(),
                         false),
+                booleanProperty(
+                        COLUMN_STATS_PRUNING_ENABLED,
+                        "Prune file slices using the column stats index of the Hudi metadata table",
+                        hudiConfig.isColumnStatsPruningEnabled(),
+                        false),
                 booleanProperty(
                         // required by presto-hive module, might be removed in future
                         CACHE_ENABLED,
@@ -104,6 +110,11 @@ public class HudiSessionProperties
         return session.getProperty(HUDI_METADATA_TABLE_ENABLED, Boolean.class);
     }
 
+    public static boolean isColumnStatsPruningEnabled(ConnectorSession session)
+    {
+        return session.getProperty(COLUMN_STATS_PRUNING_ENABLED, Boolean.class);
+    }
+
     public static boolean isSizeBasedSplitWeightsEnabled(ConnectorSession session)
     {
         return session.getProperty(SIZE_BASED_SPLIT_WEIGHTS_ENABLED, Boolean.class);
@@ -25,6 +25,7 @@ import com.facebook.presto.hive.metastore.Table;
 import com.facebook.presto.hudi.split.ForHudiBackgroundSplitLoader;
 import com.facebook.presto.hudi.split.ForHudiSplitAsyncQueue;
 import com.facebook.presto.hudi.split.ForHudiSplitSource;
+import com.facebook.presto.hudi.split.HudiColumnStatsPruner;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.ConnectorSplitSource;
 import com.facebook.presto.spi.ConnectorTableLayoutHandle;
@@ -45,31 +46,39 @@ import org.apache.hudi.common.table.timeline.HoodieInstant;
 import org.apache.hudi.common.table.timeline.HoodieTimeline;
 import org.apache.hudi.common.table.view.HoodieTableFileSystemView;
 import org.apache.hudi.common.util.HoodieTimer;
+import org.apache.hudi.metadata.HoodieTableMetadata;
 import org.apache.hudi.storage.StorageConfiguration;
 
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 
+import static com.facebook.presto.common.RuntimeUnit.NANO;
 import static com.facebook.presto.hive.metastore.MetastoreUtil.extractPartitionValues;
 import static com.facebook.presto.hudi.HudiErrorCode.HUDI_FILESYSTEM_ERROR;
 import static com.facebook.presto.hudi.HudiErrorCode.HUDI_INVALID_METADATA;
 import static com.facebook.presto.hudi.HudiMetadata.fromDataColumns;
 import static com.facebook.presto.hudi.HudiSessionProperties.getMaxOutstandingSplits;
+import static com.facebook.presto.hudi.HudiSessionProperties.isColumnStatsPruningEnabled;
 import static com.facebook.presto.hudi.HudiSessionProperties.isHudiMetadataTableEnabled;
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.apache.hudi.common.table.view.FileSystemViewManager.createInMemoryFileSystemViewWithTimeline;
 import static org.apache.hudi.hadoop.fs.HadoopFSUtils.getStorageConfWithCopy;
+import static org.apache.hudi.metadata.MetadataPartitionType.COLUMN_STATS;
 
 public class HudiSplitManager
         implements ConnectorSplitManager
 {
     private static final Logger log = Logger.get(HudiSplitManager.class);
 
+    public static final String PARTITION_PRUNING_TIME_NANOS = "hudiPartitionPruningTimeNanos";
+
     private final HdfsEnvironment hdfsEnvironment;
     private final HudiTransactionManager hudiTransactionManager;
     private final HudiPartitionManager hudiPartitionManager;
@@ -108,7 +117,9 @@ public class HudiSplitManager
         // Retrieve and prune partitions
         HoodieTimer timer = HoodieTimer.start();
         List<String> partitions = hudiPartitionManager.getEffectivePartitions(session, metastore, table.getSchemaTableName(), layout.getTupleDomain());
-        log.debug("Took %d ms to get %d partitions", timer.endTimer(), partitions.size());
+        long partitionsTimeMillis = timer.endTimer();
+        session.getRuntimeStats().addMetricValue(PARTITION_PRUNING_TIME_NANOS, NANO, MILLISECONDS.toNanos(partitionsTimeMillis));
+        log.debug("Took %d ms to get %d partitions", partitionsTimeMillis, partitions.size());
         if (partitions.isEmpty()) {
             return new FixedSplitSource(ImmutableList.of());
         }
@@ -126,6 +137,7 @@ public class HudiSplitManager
         }
         HoodieLocalEngineContext engineContext = new HoodieLocalEngineContext(conf);
         HoodieTableFileSystemView fsView = createInMemoryFileSystemViewWithTimeline(engineContext, metaClient, metadataConfig, timeline);
+        Optional<HudiColumnStatsPruner> columnStatsPruner = createColumnStatsPruner(session, layout, engineContext, metaClient, metadataConfig);
 
         return new HudiSplitSource(
                 session,
@@ -134,12 +146,30 @@ public class HudiSplitManager
                 fsView,
                 partitions,
                 timestamp,
+                columnStatsPruner,
                 asyncQueueExecutor,
                 splitLoaderExecutorService,
                 splitGeneratorExecutorService,
                 getMaxOutstandingSplits(session));
     }
 
+    private static Optional<HudiColumnStatsPruner> createColumnStatsPruner(
+            ConnectorSession session,
+            HudiTableLayoutHandle layout,
+            HoodieLocalEngineContext engineContext,
+            HoodieTableMetaClient metaClient,
+            HoodieMetadataConfig metadataConfig)
+    {
+        if (!isHudiMetadataTableEnabled(session) ||
+                !isColumnStatsPruningEnabled(session) ||
+                !HudiColumnStatsPruner.hasPrunableColumns(layout.getTupleDomain()) ||
+                !metaClient.getTableConfig().isMetadataPartitionAvailable(COLUMN_STATS)) {
+            return Optional.empty();
+        }
+        HoodieTableMetadata tableMetadata = HoodieTableMetadata.create(engineContext, metaClient.getStorage(), metadataConfig, metaClient.getBasePath().toString());
+        return Optional.of(new HudiColumnStatsPruner(tableMetadata, layout.getTupleDomain(), session.getRuntimeStats()));
+    }
+
     private ExtendedFileSystem getFileSystem(ConnectorSession session, HudiTableHandle table)
     {
         HdfsContext hdfsContext = new HdfsContext(
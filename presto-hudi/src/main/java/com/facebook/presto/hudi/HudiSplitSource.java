@@ -17,6 +17,7 @@ package com.facebook.presto.hudi;
 import com.facebook.presto.hive.metastore.ExtendedHiveMetastore;
 import com.facebook.presto.hive.util.AsyncQueue;
 import com.facebook.presto.hudi.split.HudiBackgroundSplitLoader;
+import com.facebook.presto.hudi.split.HudiColumnStatsPruner;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.ConnectorSplit;
 import com.facebook.presto.spi.ConnectorSplitSource;
@@ -25,6 +26,7 @@ import com.google.common.util.concurrent.Futures;
 import org.apache.hudi.common.table.view.HoodieTableFileSystemView;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
@@ -48,6 +50,7 @@ public class HudiSplitSource
             HoodieTableFileSystemView fsView,
             List<String> partitions,
             String latestInstant,
+            Optional<HudiColumnStatsPruner> columnStatsPruner,
             ExecutorService asyncQueueExecutor,
             ScheduledExecutorService splitLoaderExecutorService,
             ExecutorService splitGeneratorExecutorService,
@@ -62,7 +65,8 @@ public class HudiSplitSource
                 fsView,
                 queue,
                 partitions,
-                latestInstant);
+                latestInstant,
+                columnStatsPruner);
         this.splitLoaderFuture = splitLoaderExecutorService.schedule(
                 this.splitLoader, 0, TimeUnit.MILLISECONDS);
     }
@@ -26,6 +26,7 @@ import org.apache.hudi.common.util.HoodieTimer;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -52,6 +53,7 @@ public class HudiBackgroundSplitLoader
     private final String latestInstant;
     private final int splitGeneratorNumThreads;
     private final ExecutorService splitGeneratorExecutorService;
+    private final Optional<HudiColumnStatsPruner> columnStatsPruner;
 
     public HudiBackgroundSplitLoader(
             ConnectorSession session,
@@ -61,7 +63,8 @@ public class HudiBackgroundSplitLoader
             HoodieTableFileSystemView fsView,
             AsyncQueue<ConnectorSplit> asyncQueue,
             List<String> partitions,
-            String latestInstant)
+            String latestInstant,
+            Optional<HudiColumnStatsPruner> columnStatsPruner)
     {
         this.session = requireNonNull(session, "session is null");
         this.metastore = requireNonNull(metastore, "metastore is null");
@@ -73,6 +76,7 @@ public class HudiBackgroundSplitLoader
 
         this.splitGeneratorNumThreads = getSplitGeneratorParallelism(session);
         this.splitGeneratorExecutorService = requireNonNull(splitGeneratorExecutorService, "splitGeneratorExecutorService is null");
+        this.columnStatsPruner = requireNonNull(columnStatsPruner, "columnStatsPruner is null");
     }
 
     @Override
@@ -86,20 +90,25 @@ public class HudiBackgroundSplitLoader
         // Start a number of partition split generators to generate the splits in parallel
         for (int i = 0; i < splitGeneratorNumThreads; i++) {
             HudiPartitionSplitGenerator generator = new HudiPartitionSplitGenerator(
-                    session, metastore, layout, fsView, asyncQueue, concurrentPartitionQueue, latestInstant);
+                    session, metastore, layout, fsView, asyncQueue, concurrentPartitionQueue, latestInstant, columnStatsPruner);
             splitGeneratorList.add(generator);
             splitGeneratorFutures.add(splitGeneratorExecutorService.submit(generator));
         }
 
         // Wait for all split generators to finish
-        for (Future future : splitGeneratorFutures) {
-            try {
-                future.get();
-            }
-            catch (InterruptedException | ExecutionException e) {
-                throw new PrestoException(HUDI_CANNOT_GENERATE_SPLIT, "Error generating Hudi split", e);
+        try {
+            for (Future future : splitGeneratorFutures) {
+                try {
+                    future.get();
+                }
+                catch (InterruptedException | ExecutionException e) {
+                    throw new PrestoException(HUDI_CANNOT_GENERATE_SPLIT, "Error generating Hudi split", e);
+                }
             }
         }
+        finally {
+            columnStatsPruner.ifPresent(HudiColumnStatsPruner::close);
+        }
         asyncQueue.finish();
         log.debug("Finished getting all splits in %d ms", timer.endTimer());
     }
@@ -0,0 +1,221 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.presto.hudi.split;
+
+import com.facebook.airlift.log.Logger;
+import com.facebook.presto.common.RuntimeStats;
+import com.facebook.presto.common.predicate.Domain;
+import com.facebook.presto.common.predicate.Range;
+import com.facebook.presto.common.predicate.TupleDomain;
+import com.facebook.presto.common.predicate.ValueSet;
+import com.facebook.presto.common.type.BigintType;
+import com.facebook.presto.common.type.DateType;
+import com.facebook.presto.common.type.DoubleType;
+import com.facebook.presto.common.type.IntegerType;
+import com.facebook.presto.common.type.RealType;
+import com.facebook.presto.common.type.SmallintType;
+import com.facebook.presto.common.type.TinyintType;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.common.type.VarcharType;
+import com.facebook.presto.hudi.HudiColumnHandle;
+import com.facebook.presto.spi.ColumnHandle;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import org.apache.hudi.avro.model.HoodieMetadataColumnStats;
+import org.apache.hudi.common.model.FileSlice;
+import org.apache.hudi.common.model.HoodieBaseFile;
+import org.apache.hudi.common.util.collection.Pair;
+import org.apache.hudi.metadata.HoodieTableMetadata;
+
+import java.io.Closeable;
+import java.sql.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.facebook.presto.common.RuntimeUnit.NANO;
+import static com.facebook.presto.common.RuntimeUnit.NONE;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.airlift.slice.Slices.utf8Slice;
+import static java.lang.Float.floatToRawIntBits;
+import static java.util.Objects.requireNonNull;
+import static org.apache.hudi.metadata.HoodieTableMetadataUtil.unwrapAvroValueWrapper;
+
+/**
+ * Prunes the file slices of a partition using the column stats index of the
+ * Hudi metadata table. Only slices that consist of a single base file are
+ * candidates, since the stats of a base file do not cover the updates that
+ * may be carried by its log files. A slice is kept whenever its stats are
+ * missing or cannot be interpreted for the column type.
+ */
+public class HudiColumnStatsPruner
+        implements Closeable
+{
+    private static final Logger log = Logger.get(HudiColumnStatsPruner.class);
+
+    public static final String COLUMN_STATS_LOOKUP_TIME_NANOS = "hudiColumnStatsLookupTimeNanos";
+    public static final String FILE_SLICES_CONSIDERED = "hudiColumnStatsFileSlicesConsidered";
+    public static final String FILE_SLICES_PRUNED = "hudiColumnStatsFileSlicesPruned";
+
+    private final HoodieTableMetadata tableMetadata;
+    private final Map<String, Domain> columnDomains;
+    private final RuntimeStats runtimeStats;
+
+    public HudiColumnStatsPruner(HoodieTableMetadata tableMetadata, TupleDomain<ColumnHandle> tupleDomain, RuntimeStats runtimeStats)
+    {
+        this.tableMetadata = requireNonNull(tableMetadata, "tableMetadata is null");
+        this.columnDomains = getRegularColumnDomains(requireNonNull(tupleDomain, "tupleDomain is null"));
+        this.runtimeStats = requireNonNull(runtimeStats, "runtimeStats is null");
+    }
+
+    public static boolean hasPrunableColumns(TupleDomain<ColumnHandle> tupleDomain)
+    {
+        return !getRegularColumnDomains(tupleDomain).isEmpty();
+    }
+
+    public List<FileSlice> prune(String relativePartitionPath, List<FileSlice> fileSlices)
+    {
+        List<Pair<String, String>> candidates = fileSlices.stream()
+                .filter(HudiColumnStatsPruner::isBaseFileOnly)
+                .map(slice -> Pair.of(relativePartitionPath, slice.getBaseFile().get().getFileName()))
+                .collect(toImmutableList());
+        if (candidates.isEmpty()) {
+            return fileSlices;
+        }
+
+        long start = System.nanoTime();
+        Map<String, Boolean> matches = new HashMap<>();
+        try {
+            for (Map.Entry<String, Domain> entry : columnDomains.entrySet()) {
+                Map<Pair<String, String>, HoodieMetadataColumnStats> stats = tableMetadata.getColumnStats(candidates, entry.getKey());
+                for (Map.Entry<Pair<String, String>, HoodieMetadataColumnStats> fileStats : stats.entrySet()) {
+                    String fileName = fileStats.getKey().getRight();
+                    if (matches.getOrDefault(fileName, true) && !overlaps(entry.getValue(), fileStats.getValue())) {
+                        matches.put(fileName, false);
+                    }
+                }
+            }
+        }
+        catch (RuntimeException e) {
+            // the index is only an optimization, fall back to reading every file slice
+            log.warn(e, "Failed to read column stats for partition '%s'", relativePartitionPath);
+            return fileSlices;
+        }
+        finally {
+            runtimeStats.addMetricValue(COLUMN_STATS_LOOKUP_TIME_NANOS, NANO, System.nanoTime() - start);
+        }
+
+        List<FileSlice> remaining = fileSlices.stream()
+                .filter(slice -> !isBaseFileOnly(slice) || matches.getOrDefault(slice.getBaseFile().get().getFileName(), true))
+                .collect(toImmutableList());
+        runtimeStats.addMetricValue(FILE_SLICES_CONSIDERED, NONE, candidates.size());
+        runtimeStats.addMetricValue(FILE_SLICES_PRUNED, NONE, fileSlices.size() - remaining.size());
+        return remaining;
+    }
+
+    @Override
+    public void close()
+    {
+        try {
+            tableMetadata.close();
+        }
+        catch (Exception e) {
+            log.warn(e, "Failed to close Hudi table metadata");
+        }
+    }
+
+    @VisibleForTesting
+    static boolean overlaps(Domain domain, HoodieMetadataColumnStats stats)
+    {
+        if (Boolean.TRUE.equals(stats.getIsDeleted())) {
+            return true;
+        }
+        Optional<Domain> statsDomain = getStatsDomain(domain.getType(), stats);
+        return !statsDomain.isPresent() || domain.overlaps(statsDomain.get());
+    }
+
+    private static Optional<Domain> getStatsDomain(Type type, HoodieMetadataColumnStats stats)
+    {
+        Object min = unwrapAvroValueWrapper(stats.getMinValue());
+        Object max = unwrapAvroValueWrapper(stats.getMaxValue());
+        long nullCount = stats.getNullCount() == null ? 0 : stats.getNullCount();
+        if (min == null && max == null) {
+            // no non-null values were seen by the writer
+            return nullCount > 0 ? Optional.of(Domain.onlyNull(type)) : Optional.empty();
+        }
+
+        Optional<Object> low = toPrestoValue(type, min);
+        Optional<Object> high = toPrestoValue(type, max);
+        if (!low.isPresent() || !high.isPresent()) {
+            return Optional.empty();
+        }
+        return Optional.of(Domain.create(ValueSet.ofRanges(Range.range(type, low.get(), true, high.get(), true)), nullCount > 0));
+    }
+
+    private static Optional<Object> toPrestoValue(Type type, Object value)
+    {
+        if (value == null) {
+            return Optional.empty();
+        }
+        if (type instanceof BigintType || type instanceof IntegerType || type instanceof SmallintType || type instanceof TinyintType) {
+            if (value instanceof Integer || value instanceof Long) {
+                return Optional.of(((Number) value).longValue());
+            }
+        }
+        else if (type instanceof DateType) {
+            if (value instanceof Date) {
+                return Optional.of(((Date) value).toLocalDate().toEpochDay());
+            }
+        }
+        else if (type instanceof DoubleType) {
+            if ((value instanceof Float || value instanceof Double) && !Double.isNaN(((Number) value).doubleValue())) {
+                return Optional.of(((Number) value).doubleValue());
+            }
+        }
+        else if (type instanceof RealType) {
+            if (value instanceof Float && !((Float) value).isNaN()) {
+                return Optional.of((long) floatToRawIntBits((Float) value));
+            }
+        }
+        else if (type instanceof VarcharType) {
+            if (value instanceof CharSequence) {
+                return Optional.of(utf8Slice(value.toString()));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static boolean isBaseFileOnly(FileSlice slice)
+    {
+        Optional<HoodieBaseFile> baseFile = slice.getBaseFile().toJavaOptional();
+        return baseFile.isPresent() && !slice.hasLogFiles();
+    }
+
+    private static Map<String, Domain> getRegularColumnDomains(TupleDomain<ColumnHandle> tupleDomain)
+    {
+        if (!tupleDomain.getDomains().isPresent()) {
+            return ImmutableMap.of();
+        }
+        ImmutableMap.Builder<String, Domain> domains = ImmutableMap.builder();
+        tupleDomain.getDomains().get().forEach((column, domain) -> {
+            HudiColumnHandle columnHandle = (HudiColumnHandle) column;
+            if (columnHandle.isRegularColumn() && !domain.isAll()) {
+                domains.put(columnHandle.getName(), domain);
+            }
+        });
+        return domains.build();
+    }
+}
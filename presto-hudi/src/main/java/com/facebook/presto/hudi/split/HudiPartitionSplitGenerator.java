@@ -16,6 +16,7 @@ package com.facebook.presto.hudi.split;
 
 import com.facebook.airlift.log.Logger;
 import com.facebook.airlift.units.DataSize;
+import com.facebook.presto.common.RuntimeStats;
 import com.facebook.presto.hive.metastore.ExtendedHiveMetastore;
 import com.facebook.presto.hive.metastore.MetastoreContext;
 import com.facebook.presto.hive.util.AsyncQueue;
@@ -39,6 +40,8 @@ import java.util.Optional;
 import java.util.Queue;
 import java.util.stream.Stream;
 
+import static com.facebook.presto.common.RuntimeUnit.NANO;
+import static com.facebook.presto.common.RuntimeUnit.NONE;
 import static com.facebook.presto.hudi.HudiMetadata.toMetastoreContext;
 import static com.facebook.presto.hudi.HudiSessionProperties.getMinimumAssignedSplitWeight;
 import static com.facebook.presto.hudi.HudiSessionProperties.getStandardSplitWeightSize;
@@ -59,6 +62,9 @@ public class HudiPartitionSplitGenerator
 {
     private static final Logger log = Logger.get(HudiPartitionSplitGenerator.class);
 
+    public static final String PARTITION_LISTING_TIME_NANOS = "hudiPartitionListingTimeNanos";
+    public static final String FILE_SLICES_LISTED = "hudiFileSlicesListed";
+
     private final ExtendedHiveMetastore metastore;
     private final MetastoreContext metastoreContext;
     private final HudiTableLayoutHandle layout;
@@ -69,6 +75,8 @@ public class HudiPartitionSplitGenerator
     private final Queue<String> concurrentPartitionQueue;
     private final String latestInstant;
     private final HudiSplitWeightProvider splitWeightProvider;
+    private final Optional<HudiColumnStatsPruner> columnStatsPruner;
+    private final RuntimeStats runtimeStats;
 
     public HudiPartitionSplitGenerator(
             ConnectorSession session,
@@ -77,7 +85,8 @@ public class HudiPartitionSplitGenerator
             HoodieTableFileSystemView fsView,
             AsyncQueue<ConnectorSplit> asyncQueue,
             Queue<String> concurrentPartitionQueue,
-            String latestInstant)
+            String latestInstant,
+            Optional<HudiColumnStatsPruner> columnStatsPruner)
     {
         this.metastore = requireNonNull(metastore, "metastore is null");
         this.metastoreContext = toMetastoreContext(requireNonNull(session, "session is null"));
@@ -89,6 +98,8 @@ public class HudiPartitionSplitGenerator
         this.concurrentPartitionQueue = requireNonNull(concurrentPartitionQueue, "concurrentPartitionQueue is null");
         this.latestInstant = requireNonNull(latestInstant, "latestInstant is null");
         this.splitWeightProvider = createSplitWeightProvider(requireNonNull(session, "session is null"));
+        this.columnStatsPruner = requireNonNull(columnStatsPruner, "columnStatsPruner is null");
+        this.runtimeStats = session.getRuntimeStats();
     }
 
     @Override
@@ -109,10 +120,18 @@ public class HudiPartitionSplitGenerator
         HudiPartition hudiPartition = getHudiPartition(metastore, metastoreContext, layout, partitionName);
         Path partitionPath = new Path(hudiPartition.getStorage().getLocation());
         String relativePartitionPath = getRelativePartitionPath(convertToStoragePath(tablePath), convertToStoragePath(partitionPath));
-        Stream<FileSlice> fileSlices = HudiTableType.MOR.equals(table.getTableType()) ?
+        long start = System.nanoTime();
+        Stream<FileSlice> fileSliceStream = HudiTableType.MOR.equals(table.getTableType()) ?
                 fsView.getLatestMergedFileSlicesBeforeOrOn(relativePartitionPath, latestInstant) :
                 fsView.getLatestFileSlicesBeforeOrOn(relativePartitionPath, latestInstant, false);
-        fileSlices.map(fileSlice -> createHudiSplit(table, fileSlice, latestInstant, hudiPartition, splitWeightProvider))
+        List<FileSlice> fileSlices = fileSliceStream.collect(toImmutableList());
+        runtimeStats.addMetricValue(PARTITION_LISTING_TIME_NANOS, NANO, System.nanoTime() - start);
+        runtimeStats.addMetricValue(FILE_SLICES_LISTED, NONE, fileSlices.size());
+
+        if (columnStatsPruner.isPresent()) {
+            fileSlices = columnStatsPruner.get().prune(relativePartitionPath, fileSlices);
+        }
+        fileSlices.stream().map(fileSlice -> createHudiSplit(table, fileSlice, latestInstant, hudiPartition, splitWeightProvider))
                 .filter(Optional::isPresent)
                 .map(Optional::get)
                 .forEach(asyncQueue::offer);
@@ -32,6 +32,7 @@ public class TestHudiConfig
     {
         assertRecordedDefaults(recordDefaults(HudiConfig.class)
                 .setMetadataTableEnabled(false)
+                .setColumnStatsPruningEnabled(false)
                 .setSizeBasedSplitWeightsEnabled(true)
                 .setStandardSplitWeightSize(new DataSize(128, MEGABYTE))
                 .setMinimumAssignedSplitWeight(0.05)
@@ -45,6 +46,7 @@ public class TestHudiConfig
     {
         Map<String, String> properties = new ImmutableMap.Builder<String, String>()
                 .put("hudi.metadata-table-enabled", "true")
+                .put("hudi.column-stats-pruning-enabled", "true")
                 .put("hudi.size-based-split-weights-enabled", "false")
                 .put("hudi.standard-split-weight-size", "500MB")
                 .put("hudi.minimum-assigned-split-weight", "0.1")
@@ -55,6 +57,7 @@ public class TestHudiConfig
 
         HudiConfig expected = new HudiConfig()
                 .setMetadataTableEnabled(true)
+                .setColumnStatsPruningEnabled(true)
                 .setSizeBasedSplitWeightsEnabled(false)
                 .setStandardSplitWeightSize(new DataSize(500, MEGABYTE))
                 .setMinimumAssignedSplitWeight(0.1)
@@ -0,0 +1,88 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.hudi.split;
+
+import com.facebook.presto.common.predicate.Domain;
+import org.apache.hudi.avro.model.HoodieMetadataColumnStats;
+import org.apache.hudi.avro.model.LongWrapper;
+import org.apache.hudi.avro.model.StringWrapper;
+import org.testng.annotations.Test;
+
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.VarcharType.VARCHAR;
+import static io.airlift.slice.Slices.utf8Slice;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestHudiColumnStatsPruner
+{
+    @Test
+    public void testBigintRange()
+    {
+        HoodieMetadataColumnStats stats = columnStats(longValue(10), longValue(20), 0);
+        assertTrue(HudiColumnStatsPruner.overlaps(Domain.singleValue(BIGINT, 15L), stats));
+        assertTrue(HudiColumnStatsPruner.overlaps(Domain.singleValue(BIGINT, 20L), stats));
+        assertFalse(HudiColumnStatsPruner.overlaps(Domain.singleValue(BIGINT, 21L), stats));
+        assertFalse(HudiColumnStatsPruner.overlaps(Domain.onlyNull(BIGINT), stats));
+    }
+
+    @Test
+    public void testVarcharRange()
+    {
+        HoodieMetadataColumnStats stats = columnStats(stringValue("b"), stringValue("d"), 1);
+        assertTrue(HudiColumnStatsPruner.overlaps(Domain.singleValue(VARCHAR, utf8Slice("c")), stats));
+        assertFalse(HudiColumnStatsPruner.overlaps(Domain.singleValue(VARCHAR, utf8Slice("e")), stats));
+        assertTrue(HudiColumnStatsPruner.overlaps(Domain.onlyNull(VARCHAR), stats));
+    }
+
+    @Test
+    public void testAllNullColumn()
+    {
+        HoodieMetadataColumnStats stats = columnStats(null, null, 5);
+        assertFalse(HudiColumnStatsPruner.overlaps(Domain.singleValue(BIGINT, 1L), stats));
+        assertTrue(HudiColumnStatsPruner.overlaps(Domain.onlyNull(BIGINT), stats));
+    }
+
+    @Test
+    public void testMissingOrMismatchedStatsAreKept()
+    {
+        assertTrue(HudiColumnStatsPruner.overlaps(Domain.singleValue(BIGINT, 1L), columnStats(null, null, 0)));
+        assertTrue(HudiColumnStatsPruner.overlaps(Domain.singleValue(BIGINT, 1L), columnStats(stringValue("a"), stringValue("z"), 0)));
+    }
+
+    private static HoodieMetadataColumnStats columnStats(Object min, Object max, long nullCount)
+    {
+        return HoodieMetadataColumnStats.newBuilder()
+                .setFileName("file.parquet")
+                .setColumnName("column")
+                .setMinValue(min)
+                .setMaxValue(max)
+                .setValueCount(10L)
+                .setNullCount(nullCount)
+                .setTotalSize(100L)
+                .setTotalUncompressedSize(100L)
+                .setIsDeleted(false)
+                .build();
+    }
+
+    private static LongWrapper longValue(long value)
+    {
+        return LongWrapper.newBuilder().setValue(value).build();
+    }
+
+    private static StringWrapper stringValue(String value)
+    {
+        return StringWrapper.newBuilder().setValue(value).build();
+    }
+}
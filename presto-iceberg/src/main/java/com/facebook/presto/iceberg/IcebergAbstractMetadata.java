@@ -1356,6 +1356,18 @@ public abstract class IcebergAbstractMetadata
         return calculateStatisticsConsideringLayout(filterStatsCalculatorService, rowExpressionService, baseStatistics, session, tableLayoutHandle);
     }
 
+    @Override
+    public Optional<String> getTableVersionToken(ConnectorSession session, ConnectorTableHandle tableHandle, Optional<ConnectorTableLayoutHandle> tableLayoutHandle)
+    {
+        IcebergTableHandle handle = (IcebergTableHandle) tableHandle;
+        // a materialized view may be read from its base tables instead of its storage table
+        if (handle.getIcebergTableName().getTableType() != DATA || handle.getMaterializedViewName().isPresent()) {
+            return Optional.empty();
+        }
+        // the snapshot is resolved when the table handle is created, a table without any snapshot has no data
+        return Optional.of(handle.getIcebergTableName().getSnapshotId().map(String::valueOf).orElse("empty"));
+    }
+
     @Override
     public IcebergTableHandle getTableHandle(ConnectorSession session, SchemaTableName tableName)
     {
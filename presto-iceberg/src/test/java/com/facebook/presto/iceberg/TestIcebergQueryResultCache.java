@@ -0,0 +1,100 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.iceberg;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.common.RuntimeStats;
+import com.facebook.presto.spi.QueryId;
+import com.facebook.presto.testing.MaterializedResult;
+import com.facebook.presto.testing.QueryRunner;
+import com.facebook.presto.tests.AbstractTestQueryFramework;
+import com.facebook.presto.tests.ResultWithQueryId;
+import org.testng.annotations.Test;
+
+import static com.facebook.presto.SystemSessionProperties.QUERY_RESULT_CACHE_ENABLED;
+import static com.facebook.presto.common.RuntimeMetricName.QUERY_RESULT_CACHE_HIT;
+import static com.facebook.presto.common.RuntimeMetricName.QUERY_RESULT_CACHE_MISS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestIcebergQueryResultCache
+        extends AbstractTestQueryFramework
+{
+    @Override
+    protected QueryRunner createQueryRunner()
+            throws Exception
+    {
+        return IcebergQueryRunner.builder()
+                .setCreateTpchTables(false)
+                .build()
+                .getQueryRunner();
+    }
+
+    @Test
+    public void testRepeatedQueryServedFromCache()
+    {
+        Session session = Session.builder(getSession())
+                .setSystemProperty(QUERY_RESULT_CACHE_ENABLED, "true")
+                .build();
+        String tableName = "test_query_result_cache";
+        String query = "SELECT id, sum(value) FROM " + tableName + " GROUP BY id";
+        assertUpdate("CREATE TABLE " + tableName + " (id INTEGER, value BIGINT)");
+        try {
+            assertUpdate("INSERT INTO " + tableName + " VALUES (1, 10), (1, 20), (2, 30)", 3);
+
+            ResultWithQueryId<MaterializedResult> first = getDistributedQueryRunner().executeWithQueryId(session, query);
+            assertCacheMiss(first.getQueryId());
+            ResultWithQueryId<MaterializedResult> second = getDistributedQueryRunner().executeWithQueryId(session, query);
+            assertCacheHit(second.getQueryId());
+            assertEquals(second.getResult().getMaterializedRows(), first.getResult().getMaterializedRows());
+
+            // the insert creates a new snapshot, so the cached result no longer applies
+            assertUpdate("INSERT INTO " + tableName + " VALUES (2, 40)", 1);
+            ResultWithQueryId<MaterializedResult> afterInsert = getDistributedQueryRunner().executeWithQueryId(session, query);
+            assertCacheMiss(afterInsert.getQueryId());
+            assertQuery(session, query, "VALUES (1, 30), (2, 70)");
+
+            ResultWithQueryId<MaterializedResult> repeated = getDistributedQueryRunner().executeWithQueryId(session, query);
+            assertCacheHit(repeated.getQueryId());
+            assertEquals(repeated.getResult().getMaterializedRows(), afterInsert.getResult().getMaterializedRows());
+        }
+        finally {
+            assertUpdate("DROP TABLE " + tableName);
+        }
+    }
+
+    private void assertCacheHit(QueryId queryId)
+    {
+        RuntimeStats runtimeStats = getRuntimeStats(queryId);
+        assertTrue(runtimeStats.getMetrics().containsKey(QUERY_RESULT_CACHE_HIT));
+        assertFalse(runtimeStats.getMetrics().containsKey(QUERY_RESULT_CACHE_MISS));
+    }
+
+    private void assertCacheMiss(QueryId queryId)
+    {
+        RuntimeStats runtimeStats = getRuntimeStats(queryId);
+        assertTrue(runtimeStats.getMetrics().containsKey(QUERY_RESULT_CACHE_MISS));
+        assertFalse(runtimeStats.getMetrics().containsKey(QUERY_RESULT_CACHE_HIT));
+    }
+
+    private RuntimeStats getRuntimeStats(QueryId queryId)
+    {
+        return getDistributedQueryRunner().getCoordinator()
+                .getQueryManager()
+                .getFullQueryInfo(queryId)
+                .getQueryStats()
+                .getRuntimeStats();
+    }
+}
@@ -13,34 +13,13 @@
  */
 package com.facebook.presto.lance;
 
+import com.facebook.plugin.arrow.BlockToArrowConverter;
 import com.facebook.presto.common.block.Block;
-import com.facebook.presto.common.type.BigintType;
-import com.facebook.presto.common.type.BooleanType;
-import com.facebook.presto.common.type.DateType;
-import com.facebook.presto.common.type.DoubleType;
-import com.facebook.presto.common.type.IntegerType;
-import com.facebook.presto.common.type.RealType;
-import com.facebook.presto.common.type.SmallintType;
-import com.facebook.presto.common.type.TimestampType;
-import com.facebook.presto.common.type.TinyintType;
 import com.facebook.presto.common.type.Type;
-import com.facebook.presto.common.type.VarbinaryType;
-import com.facebook.presto.common.type.VarcharType;
 import com.facebook.presto.spi.ColumnMetadata;
 import com.facebook.presto.spi.PrestoException;
 import com.google.common.collect.ImmutableList;
-import org.apache.arrow.vector.BigIntVector;
-import org.apache.arrow.vector.BitVector;
-import org.apache.arrow.vector.DateDayVector;
 import org.apache.arrow.vector.FieldVector;
-import org.apache.arrow.vector.Float4Vector;
-import org.apache.arrow.vector.Float8Vector;
-import org.apache.arrow.vector.IntVector;
-import org.apache.arrow.vector.SmallIntVector;
-import org.apache.arrow.vector.TimeStampMicroVector;
-import org.apache.arrow.vector.TinyIntVector;
-import org.apache.arrow.vector.VarBinaryVector;
-import org.apache.arrow.vector.VarCharVector;
 import org.apache.arrow.vector.types.pojo.ArrowType;
 import org.apache.arrow.vector.types.pojo.Field;
 import org.apache.arrow.vector.types.pojo.FieldType;
@@ -48,8 +27,6 @@ import org.apache.arrow.vector.types.pojo.Schema;
 
 import java.util.List;
 
-import static java.lang.Float.intBitsToFloat;
-
 public final class LancePageToArrowConverter
 {
     private LancePageToArrowConverter() {}
@@ -71,51 +48,10 @@ public final class LancePageToArrowConverter
 
     public static void writeBlockToVectorAtOffset(Block block, FieldVector vector, Type type, int rowCount, int offset)
     {
-        for (int i = 0; i < rowCount; i++) {
-            if (block.isNull(i)) {
-                // Arrow vectors handle nulls automatically with null bitmap
-                continue;
-            }
-            int targetIndex = offset + i;
-            if (type instanceof BooleanType) {
-                ((BitVector) vector).setSafe(targetIndex, type.getBoolean(block, i) ? 1 : 0);
-            }
-            else if (type instanceof TinyintType) {
-                ((TinyIntVector) vector).setSafe(targetIndex, (byte) type.getLong(block, i));
-            }
-            else if (type instanceof SmallintType) {
-                ((SmallIntVector) vector).setSafe(targetIndex, (short) type.getLong(block, i));
-            }
-            else if (type instanceof IntegerType) {
-                ((IntVector) vector).setSafe(targetIndex, (int) type.getLong(block, i));
-            }
-            else if (type instanceof BigintType) {
-                ((BigIntVector) vector).setSafe(targetIndex, type.getLong(block, i));
-            }
-            else if (type instanceof RealType) {
-                ((Float4Vector) vector).setSafe(targetIndex, intBitsToFloat((int) type.getLong(block, i)));
-            }
-            else if (type instanceof DoubleType) {
-                ((Float8Vector) vector).setSafe(targetIndex, type.getDouble(block, i));
-            }
-            else if (type instanceof VarcharType) {
-                byte[] bytes = type.getSlice(block, i).getBytes();
-                ((VarCharVector) vector).setSafe(targetIndex, bytes);
-            }
-            else if (type instanceof VarbinaryType) {
-                byte[] bytes = type.getSlice(block, i).getBytes();
-                ((VarBinaryVector) vector).setSafe(targetIndex, bytes);
-            }
-            else if (type instanceof DateType) {
-                ((DateDayVector) vector).setSafe(targetIndex, (int) type.getLong(block, i));
-            }
-            else if (type instanceof TimestampType) {
-                ((TimeStampMicroVector) vector).setSafe(targetIndex, type.getLong(block, i));
-            }
-            else {
-                throw new PrestoException(LanceErrorCode.LANCE_TYPE_NOT_SUPPORTED,
-                        "Unsupported type for Arrow conversion: " + type);
-            }
+        if (!BlockToArrowConverter.isSupportedType(type)) {
+            throw new PrestoException(LanceErrorCode.LANCE_TYPE_NOT_SUPPORTED,
+                    "Unsupported type for Arrow conversion: " + type);
         }
+        BlockToArrowConverter.writeBlock(block, vector, type, rowCount, offset);
     }
 }
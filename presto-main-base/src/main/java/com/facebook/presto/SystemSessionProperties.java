@@ -150,17 +150,20 @@ public final class SystemSessionProperties
     public static final String JOIN_REORDERING_STRATEGY = "join_reordering_strategy";
     public static final String PARTIAL_MERGE_PUSHDOWN_STRATEGY = "partial_merge_pushdown_strategy";
     public static final String MAX_REORDERED_JOINS = "max_reordered_joins";
+    public static final String MAX_GREEDY_REORDERED_JOINS = "max_greedy_reordered_joins";
     public static final String INITIAL_SPLITS_PER_NODE = "initial_splits_per_node";
     public static final String SPLIT_CONCURRENCY_ADJUSTMENT_INTERVAL = "split_concurrency_adjustment_interval";
     public static final String OPTIMIZE_METADATA_QUERIES = "optimize_metadata_queries";
     public static final String OPTIMIZE_METADATA_QUERIES_IGNORE_STATS = "optimize_metadata_queries_ignore_stats";
     public static final String OPTIMIZE_METADATA_QUERIES_CALL_THRESHOLD = "optimize_metadata_queries_call_threshold";
     public static final String FAST_INEQUALITY_JOINS = "fast_inequality_joins";
+    public static final String HASH_BUILD_CONCURRENCY = "hash_build_concurrency";
     public static final String QUERY_PRIORITY = "query_priority";
     public static final String CONFIDENCE_BASED_BROADCAST_ENABLED = "confidence_based_broadcast_enabled";
     public static final String TREAT_LOW_CONFIDENCE_ZERO_ESTIMATION_AS_UNKNOWN_ENABLED = "treat_low_confidence_zero_estimation_unknown_enabled";
     public static final String SPILL_ENABLED = "spill_enabled";
     public static final String JOIN_SPILL_ENABLED = "join_spill_enabled";
+    public static final String JOIN_UNSPILL_MEMORY_LIMIT = "join_unspill_memory_limit";
     public static final String QUERY_MAX_REVOCABLE_MEMORY_PER_NODE = "query_max_revocable_memory_per_node";
     public static final String OPTIMIZE_DISTINCT_AGGREGATIONS = "optimize_mixed_distinct_aggregations";
     public static final String LEGACY_ROW_FIELD_ORDINAL_ACCESS = "legacy_row_field_ordinal_access";
@@ -169,6 +172,8 @@ public final class SystemSessionProperties
     public static final String ITERATIVE_OPTIMIZER_TIMEOUT = "iterative_optimizer_timeout";
     public static final String QUERY_ANALYZER_TIMEOUT = "query_analyzer_timeout";
     public static final String RUNTIME_OPTIMIZER_ENABLED = "runtime_optimizer_enabled";
+    public static final String RUNTIME_PARTITION_COUNT_ADAPTATION_ENABLED = "runtime_partition_count_adaptation_enabled";
+    public static final String RUNTIME_PARTITION_TARGET_SIZE = "runtime_partition_target_size";
     public static final String EXCHANGE_COMPRESSION_CODEC = "exchange_compression_codec";
     public static final String EXCHANGE_CHECKSUM = "exchange_checksum";
     public static final String LEGACY_TIMESTAMP = "legacy_timestamp";
@@ -217,6 +222,8 @@ public final class SystemSessionProperties
     public static final String PUSHDOWN_SUBFIELDS_FROM_LAMBDA_ENABLED = "pushdown_subfields_from_lambda_enabled";
     public static final String INDEX_LOADER_TIMEOUT = "index_loader_timeout";
     public static final String OPTIMIZED_REPARTITIONING_ENABLED = "optimized_repartitioning";
+    public static final String OPTIMIZED_REPARTITIONING_PRESERVE_DICTIONARIES = "optimized_repartitioning_preserve_dictionaries";
+    public static final String JOIN_LATE_MATERIALIZATION_ENABLED = "join_late_materialization_enabled";
     public static final String AGGREGATION_PARTITIONING_MERGING_STRATEGY = "aggregation_partitioning_merging_strategy";
     public static final String LOCAL_EXCHANGE_PARENT_PREFERENCE_STRATEGY = "local_exchange_parent_preference_strategy";
     public static final String LIST_BUILT_IN_FUNCTIONS_ONLY = "list_built_in_functions_only";
@@ -235,6 +242,16 @@ public final class SystemSessionProperties
     public static final String DYNAMIC_FILTERING_MAX_PER_DRIVER_SIZE = "dynamic_filtering_max_per_driver_size";
     public static final String DYNAMIC_FILTERING_RANGE_ROW_LIMIT_PER_DRIVER = "dynamic_filtering_range_row_limit_per_driver";
     public static final String FRAGMENT_RESULT_CACHING_ENABLED = "fragment_result_caching_enabled";
+    public static final String SHARED_SCAN_ENABLED = "shared_scan_enabled";
+    public static final String QUERY_RESULT_CACHE_ENABLED = "query_result_cache_enabled";
+    public static final String SPLIT_WORK_STEALING_ENABLED = "split_work_stealing_enabled";
+    public static final String SPLIT_WORK_STEALING_MIN_QUEUED_SPLITS = "split_work_stealing_min_queued_splits";
+    public static final String SPLIT_WORK_STEALING_RECLAIM_TIMEOUT = "split_work_stealing_reclaim_timeout";
+    public static final String SPECULATIVE_EXECUTION_ENABLED = "speculative_execution_enabled";
+    public static final String SPECULATIVE_EXECUTION_STRAGGLER_SLOWDOWN_RATIO = "speculative_execution_straggler_slowdown_ratio";
+    public static final String SPECULATIVE_EXECUTION_MAX_TASK_FRACTION = "speculative_execution_max_task_fraction";
+    public static final String EARLY_SPLIT_ENUMERATION_ENABLED = "early_split_enumeration_enabled";
+    public static final String EARLY_SPLIT_ENUMERATION_MAX_BUFFERED_SPLITS = "early_split_enumeration_max_buffered_splits";
     public static final String INLINE_SQL_FUNCTIONS = "inline_sql_functions";
     public static final String REMOTE_FUNCTIONS_ENABLED = "remote_functions_enabled";
     public static final String RPC_FUNCTION_OPTIMIZER_ENABLED = "rpc_function_optimizer_enabled";
@@ -286,6 +303,7 @@ public final class SystemSessionProperties
     public static final String PREFER_SORT_MERGE_JOIN = "prefer_sort_merge_join";
     public static final String SORTED_EXCHANGE_ENABLED = "sorted_exchange_enabled";
     public static final String SEGMENTED_AGGREGATION_ENABLED = "segmented_aggregation_enabled";
+    public static final String SORTED_INPUT_TOP_N_ENABLED = "sorted_input_top_n_enabled";
     public static final String USE_HISTORY_BASED_PLAN_STATISTICS = "use_history_based_plan_statistics";
     public static final String TRACK_HISTORY_BASED_PLAN_STATISTICS = "track_history_based_plan_statistics";
     public static final String TRACK_HISTORY_STATS_FROM_FAILED_QUERIES = "track_history_stats_from_failed_queries";
@@ -311,6 +329,7 @@ public final class SystemSessionProperties
     public static final String RANDOMIZE_NULL_SOURCE_KEY_IN_SEMI_JOIN_STRATEGY = "randomize_null_source_key_in_semi_join_strategy";
     public static final String SHARDED_JOINS_STRATEGY = "sharded_joins_strategy";
     public static final String JOIN_SHARD_COUNT = "join_shard_count";
+    public static final String SHARDED_JOIN_HOT_KEY_FRACTION_THRESHOLD = "sharded_join_hot_key_fraction_threshold";
     public static final String IN_PREDICATES_AS_INNER_JOINS_ENABLED = "in_predicates_as_inner_joins_enabled";
     public static final String PUSH_AGGREGATION_BELOW_JOIN_BYTE_REDUCTION_THRESHOLD = "push_aggregation_below_join_byte_reduction_threshold";
     public static final String KEY_BASED_SAMPLING_ENABLED = "key_based_sampling_enabled";
@@ -813,11 +832,25 @@ public final class SystemSessionProperties
                             return intValue;
                         },
                         value -> value),
+                integerProperty(
+                        MAX_GREEDY_REORDERED_JOINS,
+                        "The maximum number of joins to reorder as one group when joins past max_reordered_joins are ordered greedily. Values not above max_reordered_joins disable greedy ordering",
+                        featuresConfig.getMaxGreedyReorderedJoins(),
+                        false),
                 booleanProperty(
                         FAST_INEQUALITY_JOINS,
                         "Use faster handling of inequality join if it is possible",
                         featuresConfig.isFastInequalityJoins(),
                         false),
+                new PropertyMetadata<>(
+                        HASH_BUILD_CONCURRENCY,
+                        "Maximum number of threads building the hash table of a single join build partition",
+                        INTEGER,
+                        Integer.class,
+                        featuresConfig.getHashBuildConcurrency(),
+                        false,
+                        value -> validateIntegerValue(value, HASH_BUILD_CONCURRENCY, 1, false),
+                        object -> object),
                 booleanProperty(
                         COLOCATED_JOIN,
                         "Experimental: Use a colocated join when possible",
@@ -862,6 +895,11 @@ public final class SystemSessionProperties
                         "Enable join spilling",
                         featuresConfig.isJoinSpillingEnabled(),
                         false),
+                dataSizeProperty(
+                        JOIN_UNSPILL_MEMORY_LIMIT,
+                        "Maximum size of a spilled join build partition unspilled at once",
+                        featuresConfig.getJoinUnspillMemoryLimit(),
+                        false),
                 new PropertyMetadata<>(
                         QUERY_MAX_REVOCABLE_MEMORY_PER_NODE,
                         "Maximum amount of revocable memory a query can use",
@@ -914,6 +952,16 @@ public final class SystemSessionProperties
                         "Experimental: enable runtime optimizer",
                         featuresConfig.isRuntimeOptimizerEnabled(),
                         false),
+                booleanProperty(
+                        RUNTIME_PARTITION_COUNT_ADAPTATION_ENABLED,
+                        "Experimental: Size the hash partitioned stages of a plan section from the data written by its finished children sections",
+                        featuresConfig.isRuntimePartitionCountAdaptationEnabled(),
+                        false),
+                dataSizeProperty(
+                        RUNTIME_PARTITION_TARGET_SIZE,
+                        "Experimental: Data written by the children sections per hash partition when the partition count is adapted",
+                        featuresConfig.getRuntimePartitionTargetSize(),
+                        false),
                 new PropertyMetadata<>(
                         EXCHANGE_COMPRESSION_CODEC,
                         "Exchange compression codec",
@@ -1198,6 +1246,16 @@ public final class SystemSessionProperties
                         "Experimental: Use optimized repartitioning",
                         featuresConfig.isOptimizedRepartitioningEnabled(),
                         false),
+                booleanProperty(
+                        OPTIMIZED_REPARTITIONING_PRESERVE_DICTIONARIES,
+                        "Experimental: Send dictionary and run length encoded columns without flattening them in optimized repartitioning",
+                        featuresConfig.isOptimizedRepartitioningPreserveDictionaries(),
+                        false),
+                booleanProperty(
+                        JOIN_LATE_MATERIALIZATION_ENABLED,
+                        "Experimental: Copy the build side columns of a join output only when they are accessed downstream",
+                        featuresConfig.isJoinLateMaterializationEnabled(),
+                        false),
                 new PropertyMetadata<>(
                         AGGREGATION_PARTITIONING_MERGING_STRATEGY,
                         format("Strategy to merge partition preference in aggregation node. Options are %s",
@@ -1319,6 +1377,64 @@ public final class SystemSessionProperties
                         "Enable fragment result caching and read/write leaf fragment result pages from/to cache when applicable",
                         featuresConfig.isFragmentResultCachingEnabled(),
                         false),
+                booleanProperty(
+                        SHARED_SCAN_ENABLED,
+                        "Let the scans, of this or of concurrent queries, that read the same splits and columns share a single reader on the worker",
+                        featuresConfig.isSharedScanEnabled(),
+                        false),
+                booleanProperty(
+                        QUERY_RESULT_CACHE_ENABLED,
+                        "Cache the results of queries on the coordinator, and serve repeated queries over unchanged tables from the cache",
+                        featuresConfig.isQueryResultCacheEnabled(),
+                        false),
+                booleanProperty(
+                        SPLIT_WORK_STEALING_ENABLED,
+                        "Reclaim queued splits from busy tasks of a source stage and reassign them to idle tasks once all splits are scheduled",
+                        featuresConfig.isSplitWorkStealingEnabled(),
+                        false),
+                integerProperty(
+                        SPLIT_WORK_STEALING_MIN_QUEUED_SPLITS,
+                        "Minimum number of queued splits a task must have for splits to be reclaimed from it",
+                        featuresConfig.getSplitWorkStealingMinQueuedSplits(),
+                        false),
+                new PropertyMetadata<>(
+                        SPLIT_WORK_STEALING_RECLAIM_TIMEOUT,
+                        "Time to wait for a task to report the splits reclaimed from it before the splits are left with it",
+                        VARCHAR,
+                        Duration.class,
+                        featuresConfig.getSplitWorkStealingReclaimTimeout(),
+                        false,
+                        value -> Duration.valueOf((String) value),
+                        Duration::toString),
+                booleanProperty(
+                        SPECULATIVE_EXECUTION_ENABLED,
+                        "Launch a second attempt of straggling leaf tasks on another worker and keep the output of whichever attempt each consumer reads first",
+                        featuresConfig.isSpeculativeExecutionEnabled(),
+                        false),
+                doubleProperty(
+                        SPECULATIVE_EXECUTION_STRAGGLER_SLOWDOWN_RATIO,
+                        "A task is a straggler once it has run this many times longer than the median finished task of its stage",
+                        featuresConfig.getSpeculativeExecutionStragglerSlowdownRatio(),
+                        false),
+                doubleProperty(
+                        SPECULATIVE_EXECUTION_MAX_TASK_FRACTION,
+                        "Maximum fraction of the tasks of a stage that may be speculatively re-executed",
+                        featuresConfig.getSpeculativeExecutionMaxTaskFraction(),
+                        false),
+                booleanProperty(
+                        EARLY_SPLIT_ENUMERATION_ENABLED,
+                        "Start enumerating splits of source stages delayed by phased execution before their phase starts",
+                        featuresConfig.isEarlySplitEnumerationEnabled(),
+                        false),
+                new PropertyMetadata<>(
+                        EARLY_SPLIT_ENUMERATION_MAX_BUFFERED_SPLITS,
+                        "Maximum number of splits enumerated ahead of scheduling that are buffered per source stage",
+                        INTEGER,
+                        Integer.class,
+                        featuresConfig.getEarlySplitEnumerationMaxBufferedSplits(),
+                        false,
+                        value -> validateIntegerValue(value, EARLY_SPLIT_ENUMERATION_MAX_BUFFERED_SPLITS, 1, false),
+                        object -> object),
                 booleanProperty(
                         SKIP_REDUNDANT_SORT,
                         "Skip redundant sort operations",
@@ -1582,6 +1698,11 @@ public final class SystemSessionProperties
                         "Enable segmented aggregation.",
                         featuresConfig.isSegmentedAggregationEnabled(),
                         false),
+                booleanProperty(
+                        SORTED_INPUT_TOP_N_ENABLED,
+                        "Replace a TopN over input or splits already sorted by its ordering with a limit, which lets the scan stop early",
+                        featuresConfig.isSortedInputTopNEnabled(),
+                        false),
                 new PropertyMetadata<>(
                         AGGREGATION_IF_TO_FILTER_REWRITE_STRATEGY,
                         format("Set the strategy used to rewrite AGG IF to AGG FILTER. Options are %s",
@@ -1857,6 +1978,11 @@ public final class SystemSessionProperties
                         "Number of shards to use in sharded joins optimization",
                         featuresConfig.getJoinShardCount(),
                         true),
+                doubleProperty(
+                        SHARDED_JOIN_HOT_KEY_FRACTION_THRESHOLD,
+                        "Fraction of probe rows above which a join key value is considered hot and sharded when sharded_joins_strategy is COST_BASED",
+                        0.01,
+                        false),
                 booleanProperty(
                         OPTIMIZE_CONDITIONAL_AGGREGATION_ENABLED,
                         "Enable rewriting IF(condition, AGG(x)) to AGG(x) with condition included in mask",
@@ -2543,6 +2669,11 @@ public final class SystemSessionProperties
         return session.getSystemProperty(FAST_INEQUALITY_JOINS, Boolean.class);
     }
 
+    public static int getHashBuildConcurrency(Session session)
+    {
+        return session.getSystemProperty(HASH_BUILD_CONCURRENCY, Integer.class);
+    }
+
     public static JoinReorderingStrategy getJoinReorderingStrategy(Session session)
     {
         Boolean reorderJoins = session.getSystemProperty(REORDER_JOINS, Boolean.class);
@@ -2565,6 +2696,11 @@ public final class SystemSessionProperties
         return session.getSystemProperty(MAX_REORDERED_JOINS, Integer.class);
     }
 
+    public static int getMaxGreedyReorderedJoins(Session session)
+    {
+        return session.getSystemProperty(MAX_GREEDY_REORDERED_JOINS, Integer.class);
+    }
+
     public static boolean isColocatedJoinEnabled(Session session)
     {
         return session.getSystemProperty(COLOCATED_JOIN, Boolean.class);
@@ -2652,6 +2788,11 @@ public final class SystemSessionProperties
         return session.getSystemProperty(JOIN_SPILL_ENABLED, Boolean.class) && isSpillEnabled(session);
     }
 
+    public static DataSize getJoinUnspillMemoryLimit(Session session)
+    {
+        return session.getSystemProperty(JOIN_UNSPILL_MEMORY_LIMIT, DataSize.class);
+    }
+
     public static DataSize getQueryMaxRevocableMemoryPerNode(Session session)
     {
         return session.getSystemProperty(QUERY_MAX_REVOCABLE_MEMORY_PER_NODE, DataSize.class);
@@ -2682,6 +2823,16 @@ public final class SystemSessionProperties
         return session.getSystemProperty(RUNTIME_OPTIMIZER_ENABLED, Boolean.class);
     }
 
+    public static boolean isRuntimePartitionCountAdaptationEnabled(Session session)
+    {
+        return session.getSystemProperty(RUNTIME_PARTITION_COUNT_ADAPTATION_ENABLED, Boolean.class);
+    }
+
+    public static DataSize getRuntimePartitionTargetSize(Session session)
+    {
+        return session.getSystemProperty(RUNTIME_PARTITION_TARGET_SIZE, DataSize.class);
+    }
+
     @Deprecated
     public static boolean isLegacyTimestamp(Session session)
     {
@@ -3016,6 +3167,16 @@ public final class SystemSessionProperties
         return session.getSystemProperty(OPTIMIZED_REPARTITIONING_ENABLED, Boolean.class);
     }
 
+    public static boolean isOptimizedRepartitioningPreserveDictionaries(Session session)
+    {
+        return session.getSystemProperty(OPTIMIZED_REPARTITIONING_PRESERVE_DICTIONARIES, Boolean.class);
+    }
+
+    public static boolean isJoinLateMaterializationEnabled(Session session)
+    {
+        return session.getSystemProperty(JOIN_LATE_MATERIALIZATION_ENABLED, Boolean.class);
+    }
+
     public static AggregationPartitioningMergingStrategy getAggregationPartitioningMergingStrategy(Session session)
     {
         return session.getSystemProperty(AGGREGATION_PARTITIONING_MERGING_STRATEGY, AggregationPartitioningMergingStrategy.class);
@@ -3105,6 +3266,57 @@ public final class SystemSessionProperties
         return session.getSystemProperty(FRAGMENT_RESULT_CACHING_ENABLED, Boolean.class);
     }
 
+    public static boolean isSharedScanEnabled(Session session)
+    {
+        return session.getSystemProperty(SHARED_SCAN_ENABLED, Boolean.class);
+    }
+
+    public static boolean isQueryResultCacheEnabled(Session session)
+    {
+        return session.getSystemProperty(QUERY_RESULT_CACHE_ENABLED, Boolean.class);
+    }
+
+    public static boolean isSplitWorkStealingEnabled(Session session)
+    {
+        // native workers do not process split reclaim requests
+        return session.getSystemProperty(SPLIT_WORK_STEALING_ENABLED, Boolean.class) && !isNativeExecutionEnabled(session);
+    }
+
+    public static int getSplitWorkStealingMinQueuedSplits(Session session)
+    {
+        return session.getSystemProperty(SPLIT_WORK_STEALING_MIN_QUEUED_SPLITS, Integer.class);
+    }
+
+    public static Duration getSplitWorkStealingReclaimTimeout(Session session)
+    {
+        return session.getSystemProperty(SPLIT_WORK_STEALING_RECLAIM_TIMEOUT, Duration.class);
+    }
+
+    public static boolean isSpeculativeExecutionEnabled(Session session)
+    {
+        return session.getSystemProperty(SPECULATIVE_EXECUTION_ENABLED, Boolean.class);
+    }
+
+    public static double getSpeculativeExecutionStragglerSlowdownRatio(Session session)
+    {
+        return session.getSystemProperty(SPECULATIVE_EXECUTION_STRAGGLER_SLOWDOWN_RATIO, Double.class);
+    }
+
+    public static double getSpeculativeExecutionMaxTaskFraction(Session session)
+    {
+        return session.getSystemProperty(SPECULATIVE_EXECUTION_MAX_TASK_FRACTION, Double.class);
+    }
+
+    public static boolean isEarlySplitEnumerationEnabled(Session session)
+    {
+        return session.getSystemProperty(EARLY_SPLIT_ENUMERATION_ENABLED, Boolean.class);
+    }
+
+    public static int getEarlySplitEnumerationMaxBufferedSplits(Session session)
+    {
+        return session.getSystemProperty(EARLY_SPLIT_ENUMERATION_MAX_BUFFERED_SPLITS, Integer.class);
+    }
+
     public static boolean isInlineSqlFunctions(Session session)
     {
         return session.getSystemProperty(INLINE_SQL_FUNCTIONS, Boolean.class);
@@ -3310,6 +3522,11 @@ public final class SystemSessionProperties
         return session.getSystemProperty(SEGMENTED_AGGREGATION_ENABLED, Boolean.class);
     }
 
+    public static boolean isSortedInputTopNEnabled(Session session)
+    {
+        return session.getSystemProperty(SORTED_INPUT_TOP_N_ENABLED, Boolean.class);
+    }
+
     public static boolean isCombineApproxPercentileEnabled(Session session)
     {
         return session.getSystemProperty(OPTIMIZE_MULTIPLE_APPROX_PERCENTILE_ON_SAME_FIELD, Boolean.class);
@@ -3493,6 +3710,11 @@ public final class SystemSessionProperties
         return session.getSystemProperty(JOIN_SHARD_COUNT, Integer.class);
     }
 
+    public static double getShardedJoinHotKeyFractionThreshold(Session session)
+    {
+        return session.getSystemProperty(SHARDED_JOIN_HOT_KEY_FRACTION_THRESHOLD, Double.class);
+    }
+
     public static boolean isOptimizeConditionalAggregationEnabled(Session session)
     {
         return session.getSystemProperty(OPTIMIZE_CONDITIONAL_AGGREGATION_ENABLED, Boolean.class);
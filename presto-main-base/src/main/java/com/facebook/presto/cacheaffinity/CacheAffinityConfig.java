@@ -0,0 +1,107 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cacheaffinity;
+
+import com.facebook.airlift.configuration.Config;
+import com.facebook.airlift.configuration.ConfigDescription;
+import com.facebook.airlift.units.Duration;
+import com.facebook.airlift.units.MinDuration;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+public class CacheAffinityConfig
+{
+    private boolean enabled;
+    private int expectedCachedSplits = 100_000;
+    private double falsePositiveProbability = 0.03;
+    private Duration digestGenerationDuration = new Duration(30, MINUTES);
+    private Duration digestRefreshInterval = new Duration(30, SECONDS);
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    @Config("cache-affinity.enabled")
+    @ConfigDescription("Track the splits cached by workers, and schedule soft affinity splits on the workers which cached them")
+    public CacheAffinityConfig setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+        return this;
+    }
+
+    @Min(1)
+    public int getExpectedCachedSplits()
+    {
+        return expectedCachedSplits;
+    }
+
+    @Config("cache-affinity.expected-cached-splits")
+    @ConfigDescription("Number of splits a worker is expected to cache, used to size its cache digest")
+    public CacheAffinityConfig setExpectedCachedSplits(int expectedCachedSplits)
+    {
+        this.expectedCachedSplits = expectedCachedSplits;
+        return this;
+    }
+
+    @DecimalMin(value = "0.0", inclusive = false)
+    @DecimalMax(value = "1.0", inclusive = false)
+    public double getFalsePositiveProbability()
+    {
+        return falsePositiveProbability;
+    }
+
+    @Config("cache-affinity.false-positive-probability")
+    @ConfigDescription("Probability of a cache digest reporting a split which is not cached")
+    public CacheAffinityConfig setFalsePositiveProbability(double falsePositiveProbability)
+    {
+        this.falsePositiveProbability = falsePositiveProbability;
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("1s")
+    public Duration getDigestGenerationDuration()
+    {
+        return digestGenerationDuration;
+    }
+
+    @Config("cache-affinity.digest-generation-duration")
+    @ConfigDescription("Age of a generation of the cache digest of a worker, a split which is not read again leaves the digest after one to two generations")
+    public CacheAffinityConfig setDigestGenerationDuration(Duration digestGenerationDuration)
+    {
+        this.digestGenerationDuration = digestGenerationDuration;
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("1s")
+    public Duration getDigestRefreshInterval()
+    {
+        return digestRefreshInterval;
+    }
+
+    @Config("cache-affinity.digest-refresh-interval")
+    @ConfigDescription("How often the coordinator fetches the cache digests of the workers")
+    public CacheAffinityConfig setDigestRefreshInterval(Duration digestRefreshInterval)
+    {
+        this.digestRefreshInterval = digestRefreshInterval;
+        return this;
+    }
+}
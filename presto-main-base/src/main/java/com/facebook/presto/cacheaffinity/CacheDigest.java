@@ -0,0 +1,72 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cacheaffinity;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.hash.BloomFilter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static com.google.common.hash.Funnels.stringFunnel;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Compact summary of the splits a worker has cached, see {@link LocalCacheDigest}. It may report splits which
+ * are not cached, but never misses one which was recorded.
+ */
+public class CacheDigest
+{
+    private final byte[] bloomFilter;
+    private final BloomFilter<CharSequence> filter;
+
+    @JsonCreator
+    public CacheDigest(@JsonProperty("bloomFilter") byte[] bloomFilter)
+    {
+        this.bloomFilter = requireNonNull(bloomFilter, "bloomFilter is null");
+        try {
+            this.filter = BloomFilter.readFrom(new ByteArrayInputStream(bloomFilter), stringFunnel(UTF_8));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static CacheDigest fromBloomFilter(BloomFilter<CharSequence> filter)
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            filter.writeTo(output);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new CacheDigest(output.toByteArray());
+    }
+
+    @JsonProperty
+    public byte[] getBloomFilter()
+    {
+        return bloomFilter;
+    }
+
+    public boolean mightContain(String cacheKey)
+    {
+        return filter.mightContain(cacheKey);
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cacheaffinity;
+
+import com.facebook.presto.metadata.InternalNode;
+import com.google.errorprone.annotations.ThreadSafe;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The latest cache digests fetched from the workers, used by the coordinator to schedule splits.
+ */
+@ThreadSafe
+public class ClusterCacheDigests
+{
+    private final ConcurrentMap<String, CacheDigest> digests = new ConcurrentHashMap<>();
+
+    public Optional<CacheDigest> getCacheDigest(InternalNode node)
+    {
+        return Optional.ofNullable(digests.get(node.getNodeIdentifier()));
+    }
+
+    public void update(String nodeIdentifier, CacheDigest digest)
+    {
+        digests.put(requireNonNull(nodeIdentifier, "nodeIdentifier is null"), requireNonNull(digest, "digest is null"));
+    }
+
+    /**
+     * Forgets the digests of the nodes which left the cluster.
+     */
+    public void retainNodes(Set<String> nodeIdentifiers)
+    {
+        digests.keySet().retainAll(nodeIdentifiers);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cacheaffinity;
+
+import com.facebook.presto.metadata.Split;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.hash.BloomFilter;
+import com.google.errorprone.annotations.ThreadSafe;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+import jakarta.inject.Inject;
+
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.hash.Funnels.stringFunnel;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Tracks the splits this worker read through its cache, so that the coordinator can schedule the splits
+ * on the workers which already hold their data. Splits are recorded in the current generation of a Bloom
+ * filter, and the generations are rotated, so that splits which are not read anymore, and which were likely
+ * evicted from the cache, eventually leave the digest.
+ */
+@ThreadSafe
+public class LocalCacheDigest
+{
+    private final boolean enabled;
+    private final int expectedCachedSplits;
+    private final double falsePositiveProbability;
+    private final long generationNanos;
+    private final Ticker ticker;
+
+    @GuardedBy("this")
+    private BloomFilter<CharSequence> currentGeneration;
+    @GuardedBy("this")
+    private BloomFilter<CharSequence> previousGeneration;
+    @GuardedBy("this")
+    private long generationStartNanos;
+    // serialized lazily, as splits are recorded much more often than the digest is fetched
+    @GuardedBy("this")
+    private CacheDigest digest;
+
+    @Inject
+    public LocalCacheDigest(CacheAffinityConfig config)
+    {
+        this(config, Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    LocalCacheDigest(CacheAffinityConfig config, Ticker ticker)
+    {
+        requireNonNull(config, "config is null");
+        this.enabled = config.isEnabled();
+        this.expectedCachedSplits = config.getExpectedCachedSplits();
+        this.falsePositiveProbability = config.getFalsePositiveProbability();
+        this.generationNanos = config.getDigestGenerationDuration().roundTo(NANOSECONDS);
+        this.ticker = requireNonNull(ticker, "ticker is null");
+        if (enabled) {
+            this.currentGeneration = createGeneration();
+            this.previousGeneration = createGeneration();
+            this.generationStartNanos = ticker.read();
+        }
+    }
+
+    public static String getCacheKey(Split split)
+    {
+        return split.getConnectorId() + ":" + split.getConnectorSplit().getSplitIdentifier();
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public synchronized boolean mightContain(String cacheKey)
+    {
+        checkState(enabled, "cache affinity is not enabled");
+        rotateGenerations();
+        return currentGeneration.mightContain(cacheKey) || previousGeneration.mightContain(cacheKey);
+    }
+
+    public synchronized void record(String cacheKey)
+    {
+        checkState(enabled, "cache affinity is not enabled");
+        rotateGenerations();
+        if (currentGeneration.put(cacheKey)) {
+            digest = null;
+        }
+    }
+
+    public synchronized CacheDigest getDigest()
+    {
+        checkState(enabled, "cache affinity is not enabled");
+        rotateGenerations();
+        if (digest == null) {
+            BloomFilter<CharSequence> filter = currentGeneration.copy();
+            filter.putAll(previousGeneration);
+            digest = CacheDigest.fromBloomFilter(filter);
+        }
+        return digest;
+    }
+
+    @GuardedBy("this")
+    private void rotateGenerations()
+    {
+        long now = ticker.read();
+        if (now - generationStartNanos < generationNanos) {
+            return;
+        }
+        // after a long idle period both generations are outdated
+        previousGeneration = now - generationStartNanos < 2 * generationNanos ? currentGeneration : createGeneration();
+        currentGeneration = createGeneration();
+        generationStartNanos = now;
+        digest = null;
+    }
+
+    private BloomFilter<CharSequence> createGeneration()
+    {
+        return BloomFilter.create(stringFunnel(UTF_8), expectedCachedSplits, falsePositiveProbability);
+    }
+}
@@ -20,10 +20,27 @@ import com.facebook.presto.operator.TaskContext;
 import java.util.Collection;
 import java.util.List;
 
+import static com.facebook.presto.SystemSessionProperties.getQueryPriority;
+
 public class MemoryRevokingSchedulerUtils
 {
+    // fixed cost of a spill (creating a file, flushing partially filled buffers) expressed in bytes of spill I/O
+    private static final long SPILL_FIXED_COST_BYTES = 1024 * 1024;
+
     private MemoryRevokingSchedulerUtils() {}
 
+    /**
+     * Estimates how much memory revoking the operator frees per unit of spill work, scaled down for higher
+     * priority queries. Spilling writes the revocable memory and later reads it back, and data the operator
+     * has already spilled has to be read and merged again together with it.
+     */
+    public static double getRevocationScore(OperatorContext operatorContext)
+    {
+        long revocableBytes = operatorContext.getReservedRevocableBytes();
+        double spillCostBytes = 2.0 * revocableBytes + operatorContext.getSpilledBytes() + SPILL_FIXED_COST_BYTES;
+        return revocableBytes / spillCostBytes / getQueryPriority(operatorContext.getSession());
+    }
+
     public static long getMemoryAlreadyBeingRevoked(Collection<TaskContext> taskContexts, long targetRevokingLimit)
     {
         TraversingQueryContextVisitor<Void, Long> visitor = new TraversingQueryContextVisitor<Void, Long>()
@@ -23,12 +23,15 @@ import com.facebook.airlift.units.MinDataSize;
 import com.facebook.airlift.units.MinDuration;
 import com.facebook.presto.connector.system.GlobalSystemConnector;
 import com.facebook.presto.spi.api.Experimental;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 
 import java.util.concurrent.TimeUnit;
 
+import static com.facebook.airlift.units.DataSize.Unit.BYTE;
 import static com.facebook.airlift.units.DataSize.Unit.PETABYTE;
 import static com.facebook.airlift.units.DataSize.Unit.TERABYTE;
 import static java.util.concurrent.TimeUnit.MINUTES;
@@ -106,6 +109,10 @@ public class QueryManagerConfig
 
     private int minRunningQueriesForPacing = 30;
 
+    private boolean memoryAdmissionEnabled;
+    private DataSize memoryAdmissionDefaultReservation = new DataSize(0, BYTE);
+    private double memoryAdmissionMaxPoolFraction = 0.9;
+
     @Min(1)
     public int getScheduleSplitBatchSize()
     {
@@ -799,6 +806,48 @@ public class QueryManagerConfig
         return this;
     }
 
+    public boolean isMemoryAdmissionEnabled()
+    {
+        return memoryAdmissionEnabled;
+    }
+
+    @Config("query-manager.memory-admission.enabled")
+    @ConfigDescription("Queue queries in their resource groups until their predicted peak memory fits in the general pool of the cluster")
+    public QueryManagerConfig setMemoryAdmissionEnabled(boolean memoryAdmissionEnabled)
+    {
+        this.memoryAdmissionEnabled = memoryAdmissionEnabled;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getMemoryAdmissionDefaultReservation()
+    {
+        return memoryAdmissionDefaultReservation;
+    }
+
+    @Config("query-manager.memory-admission.default-reservation")
+    @ConfigDescription("Memory reserved at admission for queries without a peak memory estimate or history")
+    public QueryManagerConfig setMemoryAdmissionDefaultReservation(DataSize memoryAdmissionDefaultReservation)
+    {
+        this.memoryAdmissionDefaultReservation = memoryAdmissionDefaultReservation;
+        return this;
+    }
+
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    public double getMemoryAdmissionMaxPoolFraction()
+    {
+        return memoryAdmissionMaxPoolFraction;
+    }
+
+    @Config("query-manager.memory-admission.max-pool-fraction")
+    @ConfigDescription("Fraction of the cluster general pool that the memory reservations of admitted queries may add up to")
+    public QueryManagerConfig setMemoryAdmissionMaxPoolFraction(double memoryAdmissionMaxPoolFraction)
+    {
+        this.memoryAdmissionMaxPoolFraction = memoryAdmissionMaxPoolFraction;
+        return this;
+    }
+
     public enum ExchangeMaterializationStrategy
     {
         NONE,
@@ -0,0 +1,82 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution;
+
+import com.facebook.drift.annotations.ThriftConstructor;
+import com.facebook.drift.annotations.ThriftField;
+import com.facebook.drift.annotations.ThriftStruct;
+import com.facebook.presto.spi.plan.PlanNodeId;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Set;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The splits a task gave back for a {@link SplitReclaimRequest}. The task never runs these splits,
+ * so the coordinator must schedule them on another task.
+ */
+@ThriftStruct
+public class ReclaimedSplits
+{
+    private final PlanNodeId planNodeId;
+    private final long reclaimId;
+    private final Set<ScheduledSplit> splits;
+
+    @JsonCreator
+    @ThriftConstructor
+    public ReclaimedSplits(
+            @JsonProperty("planNodeId") PlanNodeId planNodeId,
+            @JsonProperty("reclaimId") long reclaimId,
+            @JsonProperty("splits") Set<ScheduledSplit> splits)
+    {
+        this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
+        this.reclaimId = reclaimId;
+        this.splits = ImmutableSet.copyOf(requireNonNull(splits, "splits is null"));
+    }
+
+    @JsonProperty
+    @ThriftField(1)
+    public PlanNodeId getPlanNodeId()
+    {
+        return planNodeId;
+    }
+
+    @JsonProperty
+    @ThriftField(2)
+    public long getReclaimId()
+    {
+        return reclaimId;
+    }
+
+    @JsonProperty
+    @ThriftField(3)
+    public Set<ScheduledSplit> getSplits()
+    {
+        return splits;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("planNodeId", planNodeId)
+                .add("reclaimId", reclaimId)
+                .add("splits", splits.size())
+                .toString();
+    }
+}
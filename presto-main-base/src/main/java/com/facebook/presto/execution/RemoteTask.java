@@ -22,6 +22,7 @@ import com.google.common.collect.Multimap;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import java.net.URI;
+import java.util.List;
 
 public interface RemoteTask
 {
@@ -46,6 +47,15 @@ public interface RemoteTask
 
     void noMoreSplits(PlanNodeId sourceId, Lifespan lifespan);
 
+    /**
+     * Asks the task to give back up to {@code maxSplitCount} splits of the table scan source that it has queued
+     * but not started, so that they can be scheduled on another task. Splits that have started are never given back.
+     * The returned future completes with the splits given back, which may be fewer than asked or none.
+     * If the task does not report them in time, the future completes with none and the splits stay with the task.
+     * Must not be called once there are no more splits for the source.
+     */
+    ListenableFuture<List<Split>> reclaimSplits(PlanNodeId sourceId, int maxSplitCount);
+
     void setOutputBuffers(OutputBuffers outputBuffers);
 
     ListenableFuture<?> removeRemoteSource(TaskId remoteSourceTaskId);
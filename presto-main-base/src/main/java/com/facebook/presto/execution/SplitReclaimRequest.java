@@ -0,0 +1,81 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution;
+
+import com.facebook.drift.annotations.ThriftConstructor;
+import com.facebook.drift.annotations.ThriftField;
+import com.facebook.drift.annotations.ThriftStruct;
+import com.facebook.presto.spi.plan.PlanNodeId;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Asks a task to give back up to {@code maxSplitCount} splits of a table scan source that it has queued but not started.
+ * A task processes each reclaim id once, so the request can be sent again until its result is seen.
+ */
+@ThriftStruct
+public class SplitReclaimRequest
+{
+    private final PlanNodeId planNodeId;
+    private final long reclaimId;
+    private final int maxSplitCount;
+
+    @JsonCreator
+    @ThriftConstructor
+    public SplitReclaimRequest(
+            @JsonProperty("planNodeId") PlanNodeId planNodeId,
+            @JsonProperty("reclaimId") long reclaimId,
+            @JsonProperty("maxSplitCount") int maxSplitCount)
+    {
+        this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
+        this.reclaimId = reclaimId;
+        checkArgument(maxSplitCount > 0, "maxSplitCount must be positive");
+        this.maxSplitCount = maxSplitCount;
+    }
+
+    @JsonProperty
+    @ThriftField(1)
+    public PlanNodeId getPlanNodeId()
+    {
+        return planNodeId;
+    }
+
+    @JsonProperty
+    @ThriftField(2)
+    public long getReclaimId()
+    {
+        return reclaimId;
+    }
+
+    @JsonProperty
+    @ThriftField(3)
+    public int getMaxSplitCount()
+    {
+        return maxSplitCount;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("planNodeId", planNodeId)
+                .add("reclaimId", reclaimId)
+                .add("maxSplitCount", maxSplitCount)
+                .toString();
+    }
+}
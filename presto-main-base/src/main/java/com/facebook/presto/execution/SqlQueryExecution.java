@@ -33,6 +33,8 @@ import com.facebook.presto.execution.scheduler.SqlQuerySchedulerInterface;
 import com.facebook.presto.memory.VersionedMemoryPoolId;
 import com.facebook.presto.metadata.InternalNodeManager;
 import com.facebook.presto.metadata.Metadata;
+import com.facebook.presto.resultcache.QueryResultCache;
+import com.facebook.presto.resultcache.QueryResultCacheKeyGenerator;
 import com.facebook.presto.server.BasicQueryInfo;
 import com.facebook.presto.spi.ConnectorId;
 import com.facebook.presto.spi.PrestoException;
@@ -65,11 +67,13 @@ import com.facebook.presto.sql.planner.SplitSourceFactory;
 import com.facebook.presto.sql.planner.SubPlan;
 import com.facebook.presto.sql.planner.optimizations.PlanOptimizer;
 import com.facebook.presto.sql.planner.sanity.PlanChecker;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.errorprone.annotations.ThreadSafe;
 import jakarta.inject.Inject;
 
+import java.net.URI;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -85,6 +89,7 @@ import static com.facebook.presto.SystemSessionProperties.getExecutionPolicy;
 import static com.facebook.presto.SystemSessionProperties.getQueryAnalyzerTimeout;
 import static com.facebook.presto.SystemSessionProperties.isEagerPlanValidationEnabled;
 import static com.facebook.presto.SystemSessionProperties.isLogInvokedFunctionNamesEnabled;
+import static com.facebook.presto.SystemSessionProperties.isQueryResultCacheEnabled;
 import static com.facebook.presto.SystemSessionProperties.isSpoolingOutputBufferEnabled;
 import static com.facebook.presto.common.RuntimeMetricName.ANALYZE_TIME_NANOS;
 import static com.facebook.presto.common.RuntimeMetricName.CHECK_ACCESS_PERMISSIONS_TIME_NANOS;
@@ -94,6 +99,10 @@ import static com.facebook.presto.common.RuntimeMetricName.GET_CANONICAL_INFO_TI
 import static com.facebook.presto.common.RuntimeMetricName.LOGICAL_PLANNER_TIME_NANOS;
 import static com.facebook.presto.common.RuntimeMetricName.OPTIMIZER_TIME_NANOS;
 import static com.facebook.presto.common.RuntimeMetricName.PLAN_AND_OPTIMIZE_TIME_NANOS;
+import static com.facebook.presto.common.RuntimeMetricName.QUERY_RESULT_CACHE_HIT;
+import static com.facebook.presto.common.RuntimeMetricName.QUERY_RESULT_CACHE_MISS;
+import static com.facebook.presto.common.RuntimeUnit.NONE;
+import static com.facebook.presto.execution.QueryState.FINISHED;
 import static com.facebook.presto.execution.QueryStateMachine.pruneHistogramsFromStatsAndCosts;
 import static com.facebook.presto.execution.buffer.OutputBuffers.BROADCAST_PARTITION_ID;
 import static com.facebook.presto.execution.buffer.OutputBuffers.createInitialEmptyOutputBuffers;
@@ -150,6 +159,8 @@ public class SqlQueryExecution
     private final AtomicBoolean planFutureLocked = new AtomicBoolean();
     private final AccessControl accessControl;
     private final String query;
+    private final QueryResultCache queryResultCache;
+    private final QueryResultCacheKeyGenerator queryResultCacheKeyGenerator;
 
     private SqlQueryExecution(
             QueryAnalyzer queryAnalyzer,
@@ -178,7 +189,9 @@ public class SqlQueryExecution
             PartialResultQueryManager partialResultQueryManager,
             PlanCanonicalInfoProvider planCanonicalInfoProvider,
             AccessControl accessControl,
-            String query)
+            String query,
+            QueryResultCache queryResultCache,
+            QueryResultCacheKeyGenerator queryResultCacheKeyGenerator)
     {
         try (SetThreadName ignored = new SetThreadName("Query-%s", stateMachine.getQueryId())) {
             this.queryAnalyzer = requireNonNull(queryAnalyzer, "queryAnalyzer is null");
@@ -204,6 +217,8 @@ public class SqlQueryExecution
             this.planCanonicalInfoProvider = requireNonNull(planCanonicalInfoProvider, "planCanonicalInfoProvider is null");
             this.accessControl = requireNonNull(accessControl, "accessControl is null");
             this.query = requireNonNull(query, "query is null");
+            this.queryResultCache = requireNonNull(queryResultCache, "queryResultCache is null");
+            this.queryResultCacheKeyGenerator = requireNonNull(queryResultCacheKeyGenerator, "queryResultCacheKeyGenerator is null");
             this.analyzerContext = getAnalyzerContext(queryAnalyzer, metadata.getMetadataResolver(stateMachine.getSession()), idAllocator, new VariableAllocator(), stateMachine.getSession(), query);
 
             // analyze query
@@ -502,6 +517,10 @@ public class SqlQueryExecution
 
                 metadata.beginQuery(getSession(), plan.getConnectors());
 
+                if (plan.getResultCacheKey().isPresent() && serveCachedResult(plan, plan.getResultCacheKey().get())) {
+                    return;
+                }
+
                 // plan distribution of query
                 getSession().getRuntimeStats().recordWallAndCpuTime(CREATE_SCHEDULER_TIME_NANOS, () -> createQueryScheduler(plan));
 
@@ -628,7 +647,11 @@ public class SqlQueryExecution
             stateMachine.endAnalysis();
 
             boolean explainAnalyze = queryAnalysis.isExplainAnalyzeQuery();
-            return new PlanRoot(fragmentedPlan, !explainAnalyze, queryAnalysis.extractConnectors());
+            Optional<String> resultCacheKey = Optional.empty();
+            if (isQueryResultCacheEnabled(getSession()) && !explainAnalyze && queryAnalysis.getUpdateInfo() == null && planNode instanceof OutputNode) {
+                resultCacheKey = queryResultCacheKeyGenerator.generateKey(getSession(), (OutputNode) planNode, plan.getRoot());
+            }
+            return new PlanRoot(fragmentedPlan, !explainAnalyze, queryAnalysis.extractConnectors(), resultCacheKey);
         }
         catch (StackOverflowError e) {
             throw new PrestoException(NOT_SUPPORTED, "statement is too large (stack overflow during analysis)", e);
@@ -653,6 +676,47 @@ public class SqlQueryExecution
         }
     }
 
+    /**
+     * Serves the result of the query from the result cache without scheduling any stage, or on a miss,
+     * records the result to be cached once the client consumed it.
+     *
+     * @return whether the result is served from the cache
+     */
+    private boolean serveCachedResult(PlanRoot plan, String resultCacheKey)
+    {
+        QueryId queryId = stateMachine.getQueryId();
+        Optional<URI> resultLocation = queryResultCache.serve(queryId, resultCacheKey, stateMachine::transitionToFinishing);
+        if (!resultLocation.isPresent()) {
+            getSession().getRuntimeStats().addMetricValue(QUERY_RESULT_CACHE_MISS, NONE, 1);
+            queryResultCache.startRecording(queryId, resultCacheKey);
+            stateMachine.addStateChangeListener(state -> {
+                // a finished query is cached by the client protocol, once all the pages were returned
+                if (state.isDone() && state != FINISHED) {
+                    queryResultCache.abortRecording(queryId);
+                }
+            });
+            return false;
+        }
+
+        getSession().getRuntimeStats().addMetricValue(QUERY_RESULT_CACHE_HIT, NONE, 1);
+        stateMachine.addStateChangeListener(state -> {
+            if (state.isDone()) {
+                queryResultCache.stopServing(queryId);
+            }
+        });
+
+        SubPlan outputStagePlan = plan.getRoot();
+        stateMachine.setColumns(((OutputNode) outputStagePlan.getFragment().getRoot()).getColumnNames(), outputStagePlan.getFragment().getTypes());
+        if (!stateMachine.transitionToStarting()) {
+            // query already started or finished
+            return true;
+        }
+        stateMachine.transitionToRunning();
+        // the query finishes once the exchange client of the client protocol fetched all the cached pages
+        stateMachine.updateOutputLocations(ImmutableMap.of(resultLocation.get(), new TaskId(queryId.toString(), 0, 0, 0, 0)), true);
+        return true;
+    }
+
     private void createQueryScheduler(PlanRoot plan)
     {
         CloseableSplitSourceProvider splitSourceProvider = new CloseableSplitSourceProvider(splitManager);
@@ -892,12 +956,14 @@ public class SqlQueryExecution
         private final SubPlan root;
         private final boolean summarizeTaskInfos;
         private final Set<ConnectorId> connectors;
+        private final Optional<String> resultCacheKey;
 
-        public PlanRoot(SubPlan root, boolean summarizeTaskInfos, Set<ConnectorId> connectors)
+        public PlanRoot(SubPlan root, boolean summarizeTaskInfos, Set<ConnectorId> connectors, Optional<String> resultCacheKey)
         {
             this.root = requireNonNull(root, "root is null");
             this.summarizeTaskInfos = summarizeTaskInfos;
             this.connectors = ImmutableSet.copyOf(connectors);
+            this.resultCacheKey = requireNonNull(resultCacheKey, "resultCacheKey is null");
         }
 
         public SubPlan getRoot()
@@ -914,6 +980,11 @@ public class SqlQueryExecution
         {
             return connectors;
         }
+
+        public Optional<String> getResultCacheKey()
+        {
+            return resultCacheKey;
+        }
     }
 
     public static class SqlQueryExecutionFactory
@@ -939,6 +1010,8 @@ public class SqlQueryExecution
         private final PlanChecker planChecker;
         private final PartialResultQueryManager partialResultQueryManager;
         private final HistoryBasedPlanStatisticsManager historyBasedPlanStatisticsManager;
+        private final QueryResultCache queryResultCache;
+        private final QueryResultCacheKeyGenerator queryResultCacheKeyGenerator;
 
         @Inject
         SqlQueryExecutionFactory(
@@ -961,7 +1034,9 @@ public class SqlQueryExecution
                 CostCalculator costCalculator,
                 PlanChecker planChecker,
                 PartialResultQueryManager partialResultQueryManager,
-                HistoryBasedPlanStatisticsManager historyBasedPlanStatisticsManager)
+                HistoryBasedPlanStatisticsManager historyBasedPlanStatisticsManager,
+                QueryResultCache queryResultCache,
+                QueryResultCacheKeyGenerator queryResultCacheKeyGenerator)
         {
             requireNonNull(config, "config is null");
             this.schedulerStats = requireNonNull(schedulerStats, "schedulerStats is null");
@@ -985,6 +1060,8 @@ public class SqlQueryExecution
             this.planChecker = requireNonNull(planChecker, "planChecker is null");
             this.partialResultQueryManager = requireNonNull(partialResultQueryManager, "partialResultQueryManager is null");
             this.historyBasedPlanStatisticsManager = requireNonNull(historyBasedPlanStatisticsManager, "historyBasedPlanStatisticsManager is null");
+            this.queryResultCache = requireNonNull(queryResultCache, "queryResultCache is null");
+            this.queryResultCacheKeyGenerator = requireNonNull(queryResultCacheKeyGenerator, "queryResultCacheKeyGenerator is null");
         }
 
         @Override
@@ -1030,7 +1107,9 @@ public class SqlQueryExecution
                     partialResultQueryManager,
                     historyBasedPlanStatisticsManager.getPlanCanonicalInfoProvider(),
                     accessControl,
-                    query);
+                    query,
+                    queryResultCache,
+                    queryResultCacheKeyGenerator);
         }
     }
 }
@@ -17,6 +17,7 @@ import com.facebook.airlift.units.Duration;
 import com.facebook.presto.Session;
 import com.facebook.presto.common.ErrorCode;
 import com.facebook.presto.execution.StateMachine.StateChangeListener;
+import com.facebook.presto.execution.buffer.BufferState;
 import com.facebook.presto.execution.buffer.OutputBuffers;
 import com.facebook.presto.execution.scheduler.ScheduleResult;
 import com.facebook.presto.execution.scheduler.SplitSchedulerStats;
@@ -36,6 +37,9 @@ import com.facebook.presto.split.RemoteSplit;
 import com.facebook.presto.sql.planner.PlanFragment;
 import com.facebook.presto.sql.planner.optimizations.PlanNodeSearcher;
 import com.facebook.presto.sql.planner.plan.RemoteSourceNode;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
@@ -46,8 +50,11 @@ import com.google.errorprone.annotations.ThreadSafe;
 import com.google.errorprone.annotations.concurrent.GuardedBy;
 
 import java.net.URI;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -65,6 +72,8 @@ import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static com.facebook.presto.SystemSessionProperties.getMaxFailedTaskPercentage;
+import static com.facebook.presto.SystemSessionProperties.getSpeculativeExecutionMaxTaskFraction;
+import static com.facebook.presto.SystemSessionProperties.getSpeculativeExecutionStragglerSlowdownRatio;
 import static com.facebook.presto.SystemSessionProperties.isEnhancedCTESchedulingEnabled;
 import static com.facebook.presto.failureDetector.FailureDetector.State.GONE;
 import static com.facebook.presto.operator.ExchangeOperator.REMOTE_CONNECTOR_ID;
@@ -79,11 +88,16 @@ import static com.facebook.presto.spi.StandardErrorCode.TOO_MANY_REQUESTS_FAILED
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static com.google.common.collect.Iterables.getOnlyElement;
 import static com.google.common.collect.Sets.newConcurrentHashSet;
+import static java.lang.Math.max;
 import static java.lang.String.format;
+import static java.util.Comparator.comparingLong;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toCollection;
 
 @ThreadSafe
 public final class SqlStageExecution
@@ -97,6 +111,9 @@ public final class SqlStageExecution
 
     public static final int DEFAULT_TASK_ATTEMPT_NUMBER = 0;
 
+    private static final long STRAGGLER_CHECK_INTERVAL_NANOS = SECONDS.toNanos(1);
+    private static final long MIN_STRAGGLER_ELAPSED_NANOS = SECONDS.toNanos(5);
+
     private final Session session;
     private final StageExecutionStateMachine stateMachine;
     private final PlanFragment planFragment;
@@ -110,6 +127,7 @@ public final class SqlStageExecution
     private final Map<PlanFragmentId, RemoteSourceNode> exchangeSources;
 
     private final TableWriteInfo tableWriteInfo;
+    private final Ticker ticker;
 
     private final Map<InternalNode, Set<RemoteTask>> tasks = new ConcurrentHashMap<>();
 
@@ -144,6 +162,21 @@ public final class SqlStageExecution
     @GuardedBy("this")
     private Optional<StageTaskRecoveryCallback> stageTaskRecoveryCallback = Optional.empty();
 
+    @GuardedBy("this")
+    private Optional<SpeculativeTaskCallback> speculativeTaskCallback = Optional.empty();
+    // the state below is only maintained once a speculative task callback is registered
+    @GuardedBy("this")
+    private final Map<TaskId, Multimap<PlanNodeId, Split>> taskSplits = new HashMap<>();
+    @GuardedBy("this")
+    private final Map<TaskId, Long> taskStartNanos = new HashMap<>();
+    @GuardedBy("this")
+    private final Map<TaskId, Long> finishedTaskDurationNanos = new HashMap<>();
+    @GuardedBy("this")
+    private final List<SpeculativeTask> speculativeTasks = new ArrayList<>();
+    @GuardedBy("this")
+    private long lastStragglerCheckNanos;
+    private final Set<TaskId> abandonedTasks = newConcurrentHashSet();
+
     public static SqlStageExecution createSqlStageExecution(
             StageExecutionId stageExecutionId,
             PlanFragment fragment,
@@ -155,6 +188,34 @@ public final class SqlStageExecution
             FailureDetector failureDetector,
             SplitSchedulerStats schedulerStats,
             TableWriteInfo tableWriteInfo)
+    {
+        return createSqlStageExecution(
+                stageExecutionId,
+                fragment,
+                remoteTaskFactory,
+                session,
+                summarizeTaskInfo,
+                nodeTaskMap,
+                executor,
+                failureDetector,
+                schedulerStats,
+                tableWriteInfo,
+                Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    static SqlStageExecution createSqlStageExecution(
+            StageExecutionId stageExecutionId,
+            PlanFragment fragment,
+            RemoteTaskFactory remoteTaskFactory,
+            Session session,
+            boolean summarizeTaskInfo,
+            NodeTaskMap nodeTaskMap,
+            ExecutorService executor,
+            FailureDetector failureDetector,
+            SplitSchedulerStats schedulerStats,
+            TableWriteInfo tableWriteInfo,
+            Ticker ticker)
     {
         requireNonNull(stageExecutionId, "stageId is null");
         requireNonNull(fragment, "fragment is null");
@@ -165,6 +226,7 @@ public final class SqlStageExecution
         requireNonNull(failureDetector, "failureDetector is null");
         requireNonNull(schedulerStats, "schedulerStats is null");
         requireNonNull(tableWriteInfo, "tableWriteInfo is null");
+        requireNonNull(ticker, "ticker is null");
 
         SqlStageExecution sqlStageExecution = new SqlStageExecution(
                 session,
@@ -176,7 +238,8 @@ public final class SqlStageExecution
                 executor,
                 failureDetector,
                 getMaxFailedTaskPercentage(session),
-                tableWriteInfo);
+                tableWriteInfo,
+                ticker);
         sqlStageExecution.initialize();
         return sqlStageExecution;
     }
@@ -191,7 +254,8 @@ public final class SqlStageExecution
             Executor executor,
             FailureDetector failureDetector,
             double maxFailedTaskPercentage,
-            TableWriteInfo tableWriteInfo)
+            TableWriteInfo tableWriteInfo,
+            Ticker ticker)
     {
         this.session = requireNonNull(session, "session is null");
         this.stateMachine = stateMachine;
@@ -203,6 +267,7 @@ public final class SqlStageExecution
         this.failureDetector = requireNonNull(failureDetector, "failureDetector is null");
         this.tableWriteInfo = requireNonNull(tableWriteInfo);
         this.maxFailedTaskPercentage = maxFailedTaskPercentage;
+        this.ticker = ticker;
 
         ImmutableMap.Builder<PlanFragmentId, RemoteSourceNode> fragmentToExchangeSource = ImmutableMap.builder();
         for (RemoteSourceNode remoteSourceNode : planFragment.getRemoteSourceNodes()) {
@@ -266,6 +331,25 @@ public final class SqlStageExecution
         this.stageTaskRecoveryCallback = Optional.of(requireNonNull(stageTaskRecoveryCallback, "stageTaskRecoveryCallback is null"));
     }
 
+    /**
+     * Enables speculative execution of straggling tasks. Each speculative attempt runs the splits of the
+     * original task on another node and is handed to the callback so that consumers can read from it.
+     * Consumers read each task from only one of its attempts, so this must only be used for stages whose
+     * output is deterministic and whose consumers do not merge sorted streams.
+     */
+    public synchronized void registerSpeculativeTaskCallback(SpeculativeTaskCallback speculativeTaskCallback)
+    {
+        checkState(!this.speculativeTaskCallback.isPresent(), "speculativeTaskCallback should be registered only once");
+        checkState(allTasks.isEmpty(), "speculativeTaskCallback must be registered before tasks are scheduled");
+        this.speculativeTaskCallback = Optional.of(requireNonNull(speculativeTaskCallback, "speculativeTaskCallback is null"));
+        this.lastStragglerCheckNanos = ticker.read();
+        stateMachine.addStateChangeListener(newState -> {
+            if (newState == StageExecutionState.FINISHED || newState == StageExecutionState.CANCELED) {
+                noMoreSpeculativeTasks();
+            }
+        });
+    }
+
     public PlanFragment getFragment()
     {
         return planFragment;
@@ -496,6 +580,9 @@ public final class SqlStageExecution
         else {
             task = tasks.iterator().next();
             task.addSplits(splits);
+            if (speculativeTaskCallback.isPresent()) {
+                taskSplits.get(task.getTaskId()).putAll(splits);
+            }
         }
         if (noMoreSplitsNotification.size() > 1) {
             // The assumption that `noMoreSplitsNotification.size() <= 1` currently holds.
@@ -518,7 +605,8 @@ public final class SqlStageExecution
 
         sourceTasks.forEach((planNodeId, task) -> {
             TaskStatus status = task.getTaskStatus();
-            if (status.getState() != TaskState.FINISHED) {
+            // a canceled source task has no output left to read, and an abandoned speculative attempt must not be read
+            if (status.getState() != TaskState.FINISHED && status.getState() != TaskState.CANCELED) {
                 initialSplits.put(planNodeId, createRemoteSplitFor(taskId, task.getRemoteTaskLocation(), task.getTaskId()));
             }
         });
@@ -542,6 +630,10 @@ public final class SqlStageExecution
 
         allTasks.add(taskId);
         runningTasks.add(taskId);
+        if (speculativeTaskCallback.isPresent() && taskId.getAttemptNumber() == DEFAULT_TASK_ATTEMPT_NUMBER) {
+            taskSplits.put(taskId, ArrayListMultimap.create(sourceSplits));
+            taskStartNanos.put(taskId, ticker.read());
+        }
 
         tasks.computeIfAbsent(node, key -> newConcurrentHashSet()).add(task);
         nodeTaskMap.addTask(node, task);
@@ -692,6 +784,10 @@ public final class SqlStageExecution
         else if (taskState == TaskState.FINISHED) {
             finishedTasks.add(taskId);
         }
+        else if (taskState == TaskState.CANCELED && abandonedTasks.contains(taskId)) {
+            // every consumer reads this task from another attempt
+            finishedTasks.add(taskId);
+        }
 
         // The finishedTasks.add(taskStatus.getTaskId()) must happen before the getState() (see schedulingComplete)
         stageExecutionState = getState();
@@ -702,9 +798,90 @@ public final class SqlStageExecution
             if (finishedTasks.size() == allTasks.size()) {
                 stateMachine.transitionToFinished();
             }
+            else {
+                updateSpeculativeExecution(taskId, taskState);
+            }
+        }
+    }
+
+    private synchronized void updateSpeculativeExecution(TaskId taskId, TaskState taskState)
+    {
+        if (!speculativeTaskCallback.isPresent() || stateMachine.getState().isDone()) {
+            return;
+        }
+
+        long now = ticker.read();
+        if (taskState == TaskState.FINISHED && taskStartNanos.containsKey(taskId)) {
+            finishedTaskDurationNanos.putIfAbsent(taskId, now - taskStartNanos.get(taskId));
+        }
+
+        for (SpeculativeTask speculativeTask : speculativeTasks) {
+            speculativeTask.update();
+        }
+
+        if (now - lastStragglerCheckNanos >= STRAGGLER_CHECK_INTERVAL_NANOS) {
+            lastStragglerCheckNanos = now;
+            scheduleSpeculativeTasks(now);
+        }
+    }
+
+    private synchronized void scheduleSpeculativeTasks(long now)
+    {
+        // splits of a task must not change once it is speculatively re-executed
+        if (!completeSources.containsAll(planFragment.getTableScanSchedulingOrder())) {
+            return;
+        }
+        int originalTaskCount = taskSplits.size();
+        int maxSpeculativeTasks = max(1, (int) (originalTaskCount * getSpeculativeExecutionMaxTaskFraction(session)));
+        // wait for at least half of the tasks to finish so the median duration is meaningful
+        if (speculativeTasks.size() >= maxSpeculativeTasks || finishedTaskDurationNanos.size() * 2 < originalTaskCount) {
+            return;
+        }
+
+        List<Long> durations = finishedTaskDurationNanos.values().stream()
+                .sorted()
+                .collect(toImmutableList());
+        long medianDurationNanos = durations.get(durations.size() / 2);
+        long stragglerElapsedNanos = max((long) (medianDurationNanos * getSpeculativeExecutionStragglerSlowdownRatio(session)), MIN_STRAGGLER_ELAPSED_NANOS);
+
+        Set<TaskId> speculatedTaskIds = speculativeTasks.stream()
+                .map(speculativeTask -> speculativeTask.getOriginal().getTaskId())
+                .collect(toImmutableSet());
+        List<RemoteTask> stragglers = getAllTasks().stream()
+                .filter(task -> taskStartNanos.containsKey(task.getTaskId()))
+                .filter(task -> !speculatedTaskIds.contains(task.getTaskId()))
+                .filter(task -> !task.getTaskStatus().getState().isDone())
+                .filter(task -> now - taskStartNanos.get(task.getTaskId()) >= stragglerElapsedNanos)
+                .sorted(comparingLong(task -> taskStartNanos.get(task.getTaskId())))
+                .collect(toImmutableList());
+        if (stragglers.isEmpty()) {
+            return;
+        }
+
+        // run speculative attempts on nodes that have already finished their share of this stage
+        Deque<InternalNode> idleNodes = tasks.entrySet().stream()
+                .filter(entry -> entry.getValue().stream().allMatch(task -> task.getTaskStatus().getState() == TaskState.FINISHED))
+                .map(Entry::getKey)
+                .collect(toCollection(ArrayDeque::new));
+
+        for (RemoteTask straggler : stragglers) {
+            if (speculativeTasks.size() >= maxSpeculativeTasks || idleNodes.isEmpty()) {
+                return;
+            }
+            TaskId stragglerTaskId = straggler.getTaskId();
+            TaskId speculativeTaskId = new TaskId(stragglerTaskId.getStageExecutionId(), stragglerTaskId.getId(), stragglerTaskId.getAttemptNumber() + 1);
+            RemoteTask speculativeTask = scheduleTask(idleNodes.poll(), speculativeTaskId, taskSplits.get(stragglerTaskId));
+            speculativeTasks.add(new SpeculativeTask(straggler, speculativeTask));
+            stateMachine.recordSpeculativeTaskLaunched();
+            speculativeTaskCallback.get().addSpeculativeTask(speculativeTask);
         }
     }
 
+    private synchronized void noMoreSpeculativeTasks()
+    {
+        speculativeTaskCallback.get().noMoreSpeculativeTasks();
+    }
+
     private boolean isRecoverable(List<ExecutionFailureInfo> failures)
     {
         for (ExecutionFailureInfo failure : failures) {
@@ -825,6 +1002,72 @@ public final class SqlStageExecution
         void recover(TaskId taskId);
     }
 
+    public interface SpeculativeTaskCallback
+    {
+        void addSpeculativeTask(RemoteTask task);
+
+        void noMoreSpeculativeTasks();
+    }
+
+    private class SpeculativeTask
+    {
+        private final RemoteTask original;
+        private final RemoteTask speculative;
+        private boolean resolved;
+
+        public SpeculativeTask(RemoteTask original, RemoteTask speculative)
+        {
+            this.original = requireNonNull(original, "original is null");
+            this.speculative = requireNonNull(speculative, "speculative is null");
+        }
+
+        public RemoteTask getOriginal()
+        {
+            return original;
+        }
+
+        public void update()
+        {
+            if (cancelIfAbandoned(original)) {
+                resolve(speculative);
+            }
+            else if (cancelIfAbandoned(speculative)) {
+                resolve(original);
+            }
+            else if (original.getTaskStatus().getState() == TaskState.FINISHED) {
+                resolve(original);
+            }
+            else if (speculative.getTaskStatus().getState() == TaskState.FINISHED) {
+                resolve(speculative);
+            }
+        }
+
+        private void resolve(RemoteTask winner)
+        {
+            if (!resolved) {
+                resolved = true;
+                stateMachine.recordSpeculativeTaskResolved(winner == speculative);
+            }
+        }
+
+        private boolean cancelIfAbandoned(RemoteTask attempt)
+        {
+            TaskStatus status = attempt.getTaskStatus();
+            if (status.getState().isDone() || abandonedTasks.contains(attempt.getTaskId())) {
+                return false;
+            }
+            // the output buffer finishes early once every consumer has dropped this attempt, while
+            // the attempt still has splits to process
+            if (attempt.getTaskInfo().getOutputBuffers().getState() != BufferState.FINISHED ||
+                    status.getQueuedPartitionedDrivers() + status.getRunningPartitionedDrivers() == 0) {
+                return false;
+            }
+            abandonedTasks.add(attempt.getTaskId());
+            attempt.cancel();
+            return true;
+        }
+    }
+
     private static class ListenerManager<T>
     {
         private final List<Consumer<T>> listeners = new ArrayList<>();
@@ -40,14 +40,18 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
 import jakarta.annotation.Nullable;
 import org.joda.time.DateTime;
 
 import java.net.URI;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -58,6 +62,7 @@ import static com.facebook.presto.execution.TaskState.FAILED;
 import static com.facebook.presto.util.Failures.toFailures;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static java.util.Objects.requireNonNull;
@@ -82,6 +87,10 @@ public class SqlTask
 
     private final AtomicReference<TaskHolder> taskHolderReference = new AtomicReference<>(new TaskHolder());
     private final AtomicBoolean needsPlan = new AtomicBoolean(true);
+    // split reclaims are reported in the task info until the coordinator stops sending them
+    private final List<ReclaimedSplits> reclaimedSplits = new CopyOnWriteArrayList<>();
+    @GuardedBy("this")
+    private final Map<PlanNodeId, Long> lastSplitReclaimIds = new HashMap<>();
     private final long creationTimeInMillis = System.currentTimeMillis();
 
     public static SqlTask createSqlTask(
@@ -371,7 +380,9 @@ public class SqlTask
                 noMoreSplits,
                 taskStats,
                 needsPlan.get(),
-                nodeId);
+                nodeId,
+                // a done task gets no more splits, so the coordinator no longer needs them
+                taskStatus.getState().isDone() ? ImmutableList.of() : ImmutableList.copyOf(reclaimedSplits));
     }
 
     public ListenableFuture<TaskStatus> getTaskStatus(TaskState callersCurrentState)
@@ -456,6 +467,50 @@ public class SqlTask
         return getTaskInfo();
     }
 
+    public TaskInfo reclaimSplits(List<SplitReclaimRequest> splitReclaimRequests)
+    {
+        requireNonNull(splitReclaimRequests, "splitReclaimRequests is null");
+
+        try {
+            synchronized (this) {
+                TaskHolder taskHolder = taskHolderReference.get();
+                if (taskHolder.isFinished()) {
+                    return taskHolder.getFinalTaskInfo();
+                }
+                // the coordinator stops sending a request once it has seen its result
+                Set<Long> requestedReclaimIds = splitReclaimRequests.stream()
+                        .map(SplitReclaimRequest::getReclaimId)
+                        .collect(toImmutableSet());
+                reclaimedSplits.removeIf(reclaimed -> !requestedReclaimIds.contains(reclaimed.getReclaimId()));
+
+                SqlTaskExecution taskExecution = taskHolder.getTaskExecution();
+                for (SplitReclaimRequest request : splitReclaimRequests) {
+                    // requests are resent until the coordinator sees the result, so only process each one once
+                    Long lastReclaimId = lastSplitReclaimIds.get(request.getPlanNodeId());
+                    if (lastReclaimId != null && lastReclaimId >= request.getReclaimId()) {
+                        continue;
+                    }
+                    lastSplitReclaimIds.put(request.getPlanNodeId(), request.getReclaimId());
+
+                    List<ScheduledSplit> splits = ImmutableList.of();
+                    if (taskExecution != null) {
+                        splits = taskExecution.reclaimSplits(request.getPlanNodeId(), request.getMaxSplitCount());
+                    }
+                    reclaimedSplits.add(new ReclaimedSplits(request.getPlanNodeId(), request.getReclaimId(), ImmutableSet.copyOf(splits)));
+                }
+            }
+        }
+        catch (Error e) {
+            failed(e);
+            throw e;
+        }
+        catch (RuntimeException e) {
+            failed(e);
+        }
+
+        return getTaskInfo();
+    }
+
     public ListenableFuture<BufferResult> getTaskResults(OutputBufferId bufferId, long startingSequenceId, long maxSizeInBytes)
     {
         requireNonNull(bufferId, "bufferId is null");
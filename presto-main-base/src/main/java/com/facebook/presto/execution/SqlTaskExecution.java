@@ -47,6 +47,7 @@ import jakarta.annotation.Nullable;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -65,10 +66,12 @@ import java.util.stream.Collectors;
 import static com.facebook.presto.SystemSessionProperties.getInitialSplitsPerNode;
 import static com.facebook.presto.SystemSessionProperties.getMaxDriversPerTask;
 import static com.facebook.presto.SystemSessionProperties.getSplitConcurrencyAdjustmentInterval;
+import static com.facebook.presto.SystemSessionProperties.isSplitWorkStealingEnabled;
 import static com.facebook.presto.execution.SqlTaskExecution.SplitsState.ADDING_SPLITS;
 import static com.facebook.presto.execution.SqlTaskExecution.SplitsState.FINISHED;
 import static com.facebook.presto.execution.SqlTaskExecution.SplitsState.NO_MORE_SPLITS;
 import static com.facebook.presto.operator.PipelineExecutionStrategy.UNGROUPED_EXECUTION;
+import static com.facebook.presto.spi.schedule.NodeSelectionStrategy.HARD_AFFINITY;
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
@@ -141,6 +144,9 @@ public class SqlTaskExecution
 
     private final Status status;
 
+    // runners of ungrouped table scan splits that have not created their driver yet, by table scan
+    private final Map<PlanNodeId, Set<DriverSplitRunner>> reclaimableDriverRunners;
+
     static SqlTaskExecution createSqlTaskExecution(
             TaskStateMachine taskStateMachine,
             TaskContext taskContext,
@@ -217,6 +223,14 @@ public class SqlTaskExecution
 
             this.pendingSplitsByPlanNode = this.driverRunnerFactoriesWithSplitLifeCycle.keySet().stream()
                     .collect(toImmutableMap(identity(), ignore -> new PendingSplitsForPlanNode()));
+            if (isSplitWorkStealingEnabled(taskContext.getSession())) {
+                this.reclaimableDriverRunners = this.driverRunnerFactoriesWithSplitLifeCycle.entrySet().stream()
+                        .filter(entry -> entry.getValue().getPipelineExecutionStrategy() == UNGROUPED_EXECUTION)
+                        .collect(toImmutableMap(Entry::getKey, ignore -> ConcurrentHashMap.<DriverSplitRunner>newKeySet()));
+            }
+            else {
+                this.reclaimableDriverRunners = ImmutableMap.of();
+            }
             this.status = new Status(
                     taskContext,
                     outputBuffer,
@@ -546,6 +560,14 @@ public class SqlTaskExecution
 
     private synchronized void enqueueDriverSplitRunner(boolean forceRunSplit, List<DriverSplitRunner> runners)
     {
+        // register reclaimable runners before they are enqueued, so the completion callback always finds them
+        for (DriverSplitRunner runner : runners) {
+            Set<DriverSplitRunner> reclaimableRunners = getReclaimableDriverRunners(runner);
+            if (reclaimableRunners != null) {
+                reclaimableRunners.add(runner);
+            }
+        }
+
         // schedule driver to be executed
         List<ListenableFuture<?>> finishedFutures = taskExecutor.enqueueSplits(taskHandle, forceRunSplit, runners);
         checkState(finishedFutures.size() == runners.size(), "Expected %s futures but got %s", runners.size(), finishedFutures.size());
@@ -564,12 +586,17 @@ public class SqlTaskExecution
                 public void onSuccess(Object result)
                 {
                     try (SetThreadName ignored = new SetThreadName("Task-%s", taskId)) {
+                        removeReclaimableDriverRunner(splitRunner);
+
                         // record driver is finished
                         status.decrementRemainingDriver(splitRunner.getLifespan());
 
                         checkTaskCompletion();
 
-                        splitMonitor.splitCompletedEvent(taskId, getDriverStats());
+                        // a reclaimed split is processed by another task
+                        if (!splitRunner.isReclaimed()) {
+                            splitMonitor.splitCompletedEvent(taskId, getDriverStats());
+                        }
                     }
                 }
 
@@ -577,6 +604,8 @@ public class SqlTaskExecution
                 public void onFailure(Throwable cause)
                 {
                     try (SetThreadName ignored = new SetThreadName("Task-%s", taskId)) {
+                        removeReclaimableDriverRunner(splitRunner);
+
                         taskStateMachine.failed(cause);
 
                         // record driver is finished
@@ -605,6 +634,61 @@ public class SqlTaskExecution
         }
     }
 
+    /**
+     * Takes back up to {@code maxSplitCount} splits of the given table scan whose
+     * drivers have not been created yet, latest scheduled first.  Only splits of
+     * ungrouped pipelines that are not bound to this node by hard affinity are
+     * reclaimed, and only when split work stealing is enabled for the query.
+     */
+    public List<ScheduledSplit> reclaimSplits(PlanNodeId planNodeId, int maxSplitCount)
+    {
+        requireNonNull(planNodeId, "planNodeId is null");
+        checkArgument(maxSplitCount > 0, "maxSplitCount must be positive");
+
+        Set<DriverSplitRunner> reclaimableRunners = reclaimableDriverRunners.get(planNodeId);
+        if (reclaimableRunners == null) {
+            return ImmutableList.of();
+        }
+
+        List<DriverSplitRunner> candidates = reclaimableRunners.stream()
+                .sorted(Comparator.comparingLong((DriverSplitRunner runner) -> runner.getPartitionedSplit().getSequenceId()).reversed())
+                .collect(toList());
+        ImmutableList.Builder<ScheduledSplit> reclaimedSplits = ImmutableList.builder();
+        int reclaimedCount = 0;
+        for (DriverSplitRunner runner : candidates) {
+            if (reclaimedCount >= maxSplitCount) {
+                break;
+            }
+            // the runner may have started its driver since it was listed
+            if (runner.reclaim()) {
+                reclaimableRunners.remove(runner);
+                reclaimedSplits.add(runner.getPartitionedSplit());
+                reclaimedCount++;
+            }
+        }
+        return reclaimedSplits.build();
+    }
+
+    @Nullable
+    private Set<DriverSplitRunner> getReclaimableDriverRunners(DriverSplitRunner runner)
+    {
+        ScheduledSplit partitionedSplit = runner.getPartitionedSplit();
+        if (partitionedSplit == null
+                || !runner.getLifespan().isTaskWide()
+                || partitionedSplit.getSplit().getNodeSelectionStrategy() == HARD_AFFINITY) {
+            return null;
+        }
+        return reclaimableDriverRunners.get(partitionedSplit.getPlanNodeId());
+    }
+
+    private void removeReclaimableDriverRunner(DriverSplitRunner runner)
+    {
+        Set<DriverSplitRunner> reclaimableRunners = getReclaimableDriverRunners(runner);
+        if (reclaimableRunners != null) {
+            reclaimableRunners.remove(runner);
+        }
+    }
+
     public synchronized Set<PlanNodeId> getNoMoreSplits()
     {
         ImmutableSet.Builder<PlanNodeId> noMoreSplits = ImmutableSet.builder();
@@ -967,6 +1051,14 @@ public class SqlTaskExecution
             return driver;
         }
 
+        public void splitReclaimed(DriverContext driverContext)
+        {
+            // the driver will never be created
+            pipelineContext.driverReclaimed(driverContext);
+            status.decrementPendingCreation(pipelineContext.getPipelineId(), driverContext.getLifespan());
+            closeDriverFactoryIfFullyCreated();
+        }
+
         public void noMoreDriverRunner(Iterable<Lifespan> lifespans)
         {
             for (Lifespan lifespan : lifespans) {
@@ -1027,6 +1119,9 @@ public class SqlTaskExecution
         @GuardedBy("this")
         private Driver driver;
 
+        @GuardedBy("this")
+        private boolean reclaimed;
+
         private DriverSplitRunner(DriverSplitRunnerFactory driverSplitRunnerFactory, DriverContext driverContext, @Nullable ScheduledSplit partitionedSplit, Lifespan lifespan)
         {
             this.driverSplitRunnerFactory = requireNonNull(driverSplitRunnerFactory, "driverFactory is null");
@@ -1048,6 +1143,33 @@ public class SqlTaskExecution
             return lifespan;
         }
 
+        @Nullable
+        public ScheduledSplit getPartitionedSplit()
+        {
+            return partitionedSplit;
+        }
+
+        /**
+         * Gives up the split if the driver has not been created yet.
+         */
+        public boolean reclaim()
+        {
+            synchronized (this) {
+                if (closed || driver != null) {
+                    return false;
+                }
+                closed = true;
+                reclaimed = true;
+            }
+            driverSplitRunnerFactory.splitReclaimed(driverContext);
+            return true;
+        }
+
+        public synchronized boolean isReclaimed()
+        {
+            return reclaimed;
+        }
+
         @Override
         public synchronized boolean isFinished()
         {
@@ -431,6 +431,15 @@ public class SqlTaskManager
         return sqlTask.updateTask(session, fragment, sources, outputBuffers, tableWriteInfo);
     }
 
+    @Override
+    public TaskInfo reclaimSplits(TaskId taskId, List<SplitReclaimRequest> splitReclaimRequests)
+    {
+        requireNonNull(taskId, "taskId is null");
+        requireNonNull(splitReclaimRequests, "splitReclaimRequests is null");
+
+        return tasks.getUnchecked(taskId).reclaimSplits(splitReclaimRequests);
+    }
+
     @Override
     public ListenableFuture<BufferResult> getTaskResults(TaskId taskId, OutputBufferId bufferId, long startingSequenceId, long maxSizeInBytes)
     {
@@ -46,6 +46,9 @@ import static com.facebook.presto.common.RuntimeMetricName.SCAN_STAGE_SCHEDULER_
 import static com.facebook.presto.common.RuntimeMetricName.SCHEDULER_BLOCKED_TIME_NANOS;
 import static com.facebook.presto.common.RuntimeMetricName.SCHEDULER_CPU_TIME_NANOS;
 import static com.facebook.presto.common.RuntimeMetricName.SCHEDULER_WALL_TIME_NANOS;
+import static com.facebook.presto.common.RuntimeMetricName.SPECULATIVE_TASKS_LAUNCHED;
+import static com.facebook.presto.common.RuntimeMetricName.SPECULATIVE_TASK_LOSSES;
+import static com.facebook.presto.common.RuntimeMetricName.SPECULATIVE_TASK_WINS;
 import static com.facebook.presto.common.RuntimeMetricName.TASK_PLAN_SERIALIZED_CPU_TIME_NANOS;
 import static com.facebook.presto.common.RuntimeMetricName.TASK_START_WAIT_FOR_EVENT_LOOP;
 import static com.facebook.presto.common.RuntimeMetricName.TASK_UPDATE_DELIVERED_WALL_TIME_NANOS;
@@ -428,6 +431,16 @@ public class StageExecutionStateMachine
         runtimeStats.addMetricValue(SCAN_STAGE_SCHEDULER_BLOCKED_TIME_NANOS + "-" + reason, NANO, max(nanos, 0));
     }
 
+    public void recordSpeculativeTaskLaunched()
+    {
+        runtimeStats.addMetricValue(SPECULATIVE_TASKS_LAUNCHED, NONE, 1);
+    }
+
+    public void recordSpeculativeTaskResolved(boolean speculativeAttemptWon)
+    {
+        runtimeStats.addMetricValue(speculativeAttemptWon ? SPECULATIVE_TASK_WINS : SPECULATIVE_TASK_LOSSES, NONE, 1);
+    }
+
     @Override
     public void recordTaskUpdateDeliveredTime(long nanos)
     {
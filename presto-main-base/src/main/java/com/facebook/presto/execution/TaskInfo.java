@@ -21,7 +21,9 @@ import com.facebook.presto.execution.buffer.OutputBufferInfo;
 import com.facebook.presto.operator.TaskStats;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.errorprone.annotations.Immutable;
 import org.joda.time.DateTime;
@@ -32,6 +34,7 @@ import java.util.Set;
 
 import static com.facebook.presto.execution.TaskStatus.initialTaskStatus;
 import static com.facebook.presto.execution.buffer.BufferState.OPEN;
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_EMPTY;
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.System.currentTimeMillis;
@@ -49,6 +52,20 @@ public class TaskInfo
     private final TaskStats stats;
     private final boolean needsPlan;
     private final String nodeId;
+    private final List<ReclaimedSplits> reclaimedSplits;
+
+    public TaskInfo(
+            TaskId taskId,
+            TaskStatus taskStatus,
+            long lastHeartbeatInMillis,
+            OutputBufferInfo outputBuffers,
+            Set<PlanNodeId> noMoreSplits,
+            TaskStats stats,
+            boolean needsPlan,
+            String nodeId)
+    {
+        this(taskId, taskStatus, lastHeartbeatInMillis, outputBuffers, noMoreSplits, stats, needsPlan, nodeId, ImmutableList.of());
+    }
 
     @JsonCreator
     @ThriftConstructor
@@ -60,7 +77,8 @@ public class TaskInfo
             @JsonProperty("noMoreSplits") Set<PlanNodeId> noMoreSplits,
             @JsonProperty("stats") TaskStats stats,
             @JsonProperty("needsPlan") boolean needsPlan,
-            @JsonProperty("nodeId") String nodeId)
+            @JsonProperty("nodeId") String nodeId,
+            @JsonProperty("reclaimedSplits") List<ReclaimedSplits> reclaimedSplits)
     {
         this.taskId = requireNonNull(taskId, "taskId is null");
         this.taskStatus = requireNonNull(taskStatus, "taskStatus is null");
@@ -72,6 +90,8 @@ public class TaskInfo
 
         this.needsPlan = needsPlan;
         this.nodeId = requireNonNull(nodeId, "nodeId is null");
+        // workers that do not support split reclaiming leave this out
+        this.reclaimedSplits = reclaimedSplits == null ? ImmutableList.of() : ImmutableList.copyOf(reclaimedSplits);
     }
 
     @JsonProperty
@@ -135,6 +155,17 @@ public class TaskInfo
         return nodeId;
     }
 
+    /**
+     * The split reclaims processed by the task that the coordinator has not acknowledged yet, so that a lost response does not lose the splits.
+     */
+    @JsonInclude(NON_EMPTY)
+    @JsonProperty
+    @ThriftField(9)
+    public List<ReclaimedSplits> getReclaimedSplits()
+    {
+        return reclaimedSplits;
+    }
+
     public TaskInfo summarize()
     {
         if (taskStatus.getState().isDone()) {
@@ -183,6 +214,11 @@ public class TaskInfo
 
     public TaskInfo withTaskStatus(TaskStatus newTaskStatus)
     {
-        return new TaskInfo(taskId, newTaskStatus, lastHeartbeatInMillis, outputBuffers, noMoreSplits, stats, needsPlan, nodeId);
+        return new TaskInfo(taskId, newTaskStatus, lastHeartbeatInMillis, outputBuffers, noMoreSplits, stats, needsPlan, nodeId, reclaimedSplits);
+    }
+
+    public TaskInfo withReclaimedSplits(List<ReclaimedSplits> newReclaimedSplits)
+    {
+        return new TaskInfo(taskId, taskStatus, lastHeartbeatInMillis, outputBuffers, noMoreSplits, stats, needsPlan, nodeId, newReclaimedSplits);
     }
 }
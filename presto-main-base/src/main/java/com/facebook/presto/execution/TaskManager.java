@@ -91,6 +91,15 @@ public interface TaskManager
             OutputBuffers outputBuffers,
             Optional<TableWriteInfo> tableWriteInfo);
 
+    /**
+     * Takes back splits that are queued in the task but have not started
+     * running, so the coordinator can reassign them to another task.  Every
+     * request is processed at most once; the reclaimed splits are reported in
+     * {@link TaskInfo#getReclaimedSplits()} until an update no longer carries
+     * the request, which acknowledges them.
+     */
+    TaskInfo reclaimSplits(TaskId taskId, List<SplitReclaimRequest> splitReclaimRequests);
+
     /**
      * Cancels a task.  If the task does not already exist, is is created and then
      * canceled.
@@ -55,6 +55,7 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
@@ -77,6 +78,7 @@ import static java.lang.System.lineSeparator;
 import static java.util.Arrays.asList;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.Executors.newFixedThreadPool;
 import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
 import static java.util.concurrent.TimeUnit.MICROSECONDS;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
@@ -100,6 +102,8 @@ public class TaskExecutor
 
     private final ExecutorService executor;
     private final ThreadPoolExecutorMBean executorMBean;
+    // runs the extra threads of concurrent join hash builds, outside of the driver quanta of the runner threads
+    private final ExecutorService hashBuildExecutor;
 
     private final int runnerThreads;
     private final int minimumNumberOfDrivers;
@@ -267,6 +271,7 @@ public class TaskExecutor
         // we manage thread pool size directly, so create an unlimited pool
         this.executor = newCachedThreadPool(daemonThreadsNamed("task-processor-%s"));
         this.executorMBean = new ThreadPoolExecutorMBean((ThreadPoolExecutor) executor);
+        this.hashBuildExecutor = newFixedThreadPool(runnerThreads, daemonThreadsNamed("hash-build-%s"));
         this.runnerThreads = runnerThreads;
         this.embedVersion = requireNonNull(embedVersion, "embedVersion is null");
 
@@ -315,9 +320,19 @@ public class TaskExecutor
     {
         closed = true;
         executor.shutdownNow();
+        hashBuildExecutor.shutdownNow();
         splitMonitorExecutor.shutdownNow();
     }
 
+    /**
+     * Executor for the extra threads of a join hash build. It is bounded by the number of runner threads,
+     * so concurrent builds of several joins share the same threads.
+     */
+    public Executor getHashBuildExecutor()
+    {
+        return hashBuildExecutor;
+    }
+
     @Override
     public synchronized String toString()
     {
@@ -745,7 +745,11 @@ public class InternalResourceGroup
                     // Check for coordinator overload (task limit exceeded or denied admission)
                     //isTaskLimitExceeded MUST be checked before tryAcquireAdmissionSlot, or else admission slots will be acquired but not started
                     boolean coordOverloaded = ((RootInternalResourceGroup) root).isTaskLimitExceeded()
-                            || !queryPacingContext.tryAcquireAdmissionSlot();
+                            || !queryPacingContext.tryReserveMemory(query);
+                    if (!coordOverloaded && !queryPacingContext.tryAcquireAdmissionSlot()) {
+                        queryPacingContext.releaseMemory(query);
+                        coordOverloaded = true;
+                    }
                     if (coordOverloaded) {
                         startQuery = false;
                     }
@@ -861,6 +865,7 @@ public class InternalResourceGroup
                 }
                 // Decrement global running query counter for pacing
                 queryPacingContext.onQueryFinished();
+                queryPacingContext.releaseMemory(query);
             }
             else {
                 queuedQueries.remove(query);
@@ -935,7 +940,11 @@ public class InternalResourceGroup
 
             ManagedQueryExecution query = queuedQueries.peek();
             if (query != null) {
+                if (!queryPacingContext.tryReserveMemory(query)) {
+                    return false;
+                }
                 if (!queryPacingContext.tryAcquireAdmissionSlot()) {
+                    queryPacingContext.releaseMemory(query);
                     return false;
                 }
 
@@ -68,6 +68,7 @@ import java.util.function.Supplier;
 import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
 import static com.facebook.presto.execution.resourceGroups.LegacyResourceGroupConfigurationManager.HARD_CONCURRENCY_LIMIT;
 import static com.facebook.presto.execution.resourceGroups.LegacyResourceGroupConfigurationManager.MAX_QUEUED_QUERIES;
+import static com.facebook.presto.memory.LocalMemoryManager.GENERAL_POOL;
 import static com.facebook.presto.spi.StandardErrorCode.MISSING_RESOURCE_GROUP_SELECTOR;
 import static com.facebook.presto.spi.StandardErrorCode.SERVER_STARTING_UP;
 import static com.facebook.presto.util.PropertiesUtil.loadProperties;
@@ -129,6 +130,7 @@ public final class InternalResourceGroupManager<C>
     private AtomicBoolean isConfigurationManagerLoaded;
     private final ClusterResourceChecker clusterResourceChecker;
     private final QueryPacingContext queryPacingContext;
+    private final QueryMemoryAdmission queryMemoryAdmission;
 
     @Inject
     public InternalResourceGroupManager(
@@ -161,6 +163,10 @@ public final class InternalResourceGroupManager<C>
         this.queryAdmissionIntervalNanos = (maxQueryAdmissionsPerSecond == Integer.MAX_VALUE)
             ? 0L
             : 1_000_000_000L / maxQueryAdmissionsPerSecond;
+        this.queryMemoryAdmission = new QueryMemoryAdmission(queryManagerConfig);
+        if (queryManagerConfig.isMemoryAdmissionEnabled()) {
+            memoryPoolManager.addChangeListener(GENERAL_POOL, poolInfo -> queryMemoryAdmission.setClusterPoolBytes(poolInfo.getMaxBytes()));
+        }
         this.queryPacingContext = new QueryPacingContext()
         {
             @Override
@@ -180,6 +186,18 @@ public final class InternalResourceGroupManager<C>
             {
                 decrementRunningQueries();
             }
+
+            @Override
+            public boolean tryReserveMemory(ManagedQueryExecution query)
+            {
+                return queryMemoryAdmission.tryReserve(query);
+            }
+
+            @Override
+            public void releaseMemory(ManagedQueryExecution query)
+            {
+                queryMemoryAdmission.release(query);
+            }
         };
     }
 
@@ -661,6 +679,24 @@ public final class InternalResourceGroupManager<C>
         return attempts > 0 ? (double) totalAdmissionsDenied.get() / attempts : 0.0;
     }
 
+    @Managed
+    public long getMemoryAdmissionReservedBytes()
+    {
+        return queryMemoryAdmission.getReservedBytes();
+    }
+
+    @Managed
+    public long getMemoryAdmissionDelayedQueries()
+    {
+        return queryMemoryAdmission.getDelayedAdmissions();
+    }
+
+    @Managed
+    public long getMemoryAdmissionHistoryPredictions()
+    {
+        return queryMemoryAdmission.getHistoryPredictions();
+    }
+
     @Managed
     public long getMillisSinceLastAdmission()
     {
@@ -0,0 +1,151 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.resourceGroups;
+
+import com.facebook.airlift.units.DataSize;
+import com.facebook.presto.execution.ManagedQueryExecution;
+import com.facebook.presto.execution.QueryManagerConfig;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.errorprone.annotations.ThreadSafe;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.hash.Hashing.sha256;
+import static java.lang.Math.max;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Admits a query only when its predicted peak memory fits in the general pool of the cluster, next to the
+ * reservations of the running queries, so that memory heavy queries are not started together only to be
+ * killed by the low memory killer later on.
+ * <p>
+ * The peak memory of a query is predicted from the resource estimates of its session, which clients and the
+ * router may set, then from the peak memory of the last execution of the same query text by the same user,
+ * and falls back to a default reservation.
+ */
+@ThreadSafe
+final class QueryMemoryAdmission
+{
+    private static final int MAX_HISTORY_ENTRIES = 10_000;
+
+    private final boolean enabled;
+    private final long defaultReservationBytes;
+    private final double maxPoolFraction;
+    private final AtomicLong clusterPoolBytes = new AtomicLong();
+    private final Cache<String, Long> peakMemoryHistory = CacheBuilder.newBuilder()
+            .maximumSize(MAX_HISTORY_ENTRIES)
+            .build();
+
+    @GuardedBy("this")
+    private final Map<ManagedQueryExecution, Long> predictedPeakMemory = new HashMap<>();
+
+    private final AtomicLong delayedAdmissions = new AtomicLong();
+    private final AtomicLong historyPredictions = new AtomicLong();
+
+    public QueryMemoryAdmission(QueryManagerConfig config)
+    {
+        requireNonNull(config, "config is null");
+        this.enabled = config.isMemoryAdmissionEnabled();
+        this.defaultReservationBytes = config.getMemoryAdmissionDefaultReservation().toBytes();
+        this.maxPoolFraction = config.getMemoryAdmissionMaxPoolFraction();
+    }
+
+    public void setClusterPoolBytes(long clusterPoolBytes)
+    {
+        this.clusterPoolBytes.set(clusterPoolBytes);
+    }
+
+    /**
+     * @return true if the query fits and its memory is reserved, false if it must stay queued
+     */
+    public synchronized boolean tryReserve(ManagedQueryExecution query)
+    {
+        if (!enabled) {
+            return true;
+        }
+
+        long predictedBytes = predictPeakMemory(query);
+        long poolBytes = clusterPoolBytes.get();
+        // the pool size is unknown until the workers report their memory, and a query larger than the pool
+        // still runs alone, rather than staying queued forever
+        if (poolBytes > 0 && !predictedPeakMemory.isEmpty() && getReservedBytes() + predictedBytes > poolBytes * maxPoolFraction) {
+            delayedAdmissions.incrementAndGet();
+            return false;
+        }
+        predictedPeakMemory.put(query, predictedBytes);
+        return true;
+    }
+
+    public synchronized void release(ManagedQueryExecution query)
+    {
+        if (predictedPeakMemory.remove(query) == null) {
+            return;
+        }
+        long peakBytes = query.getBasicQueryInfo().getQueryStats().getPeakTotalMemoryReservation().toBytes();
+        if (peakBytes > 0) {
+            peakMemoryHistory.put(getHistoryKey(query), peakBytes);
+        }
+    }
+
+    public synchronized long getReservedBytes()
+    {
+        // reconcile the predictions with the actual usage: a query using more than predicted is charged what it uses,
+        // while a query using less keeps its prediction, as its peak may still be ahead
+        long reservedBytes = 0;
+        for (Map.Entry<ManagedQueryExecution, Long> entry : predictedPeakMemory.entrySet()) {
+            reservedBytes += max(entry.getValue(), entry.getKey().getTotalMemoryReservationInBytes());
+        }
+        return reservedBytes;
+    }
+
+    public long getDelayedAdmissions()
+    {
+        return delayedAdmissions.get();
+    }
+
+    public long getHistoryPredictions()
+    {
+        return historyPredictions.get();
+    }
+
+    private long predictPeakMemory(ManagedQueryExecution query)
+    {
+        Optional<DataSize> estimate = query.getSession().getResourceEstimates().getPeakMemory();
+        if (estimate.isPresent()) {
+            return estimate.get().toBytes();
+        }
+        Long peakBytes = peakMemoryHistory.getIfPresent(getHistoryKey(query));
+        if (peakBytes != null) {
+            historyPredictions.incrementAndGet();
+            return peakBytes;
+        }
+        return defaultReservationBytes;
+    }
+
+    private static String getHistoryKey(ManagedQueryExecution query)
+    {
+        return sha256().newHasher()
+                .putString(query.getSession().getUser(), UTF_8)
+                .putByte((byte) 0)
+                .putString(query.getBasicQueryInfo().getQuery(), UTF_8)
+                .hash()
+                .toString();
+    }
+}
@@ -13,6 +13,8 @@
  */
 package com.facebook.presto.execution.resourceGroups;
 
+import com.facebook.presto.execution.ManagedQueryExecution;
+
 /**
  * Context for query admission pacing. Provides a single interface for
  * global rate limiting and running query tracking to prevent worker overload.
@@ -42,6 +44,17 @@ public interface QueryPacingContext
         public void onQueryFinished()
         {
         }
+
+        @Override
+        public boolean tryReserveMemory(ManagedQueryExecution query)
+        {
+            return true;
+        }
+
+        @Override
+        public void releaseMemory(ManagedQueryExecution query)
+        {
+        }
     };
 
     /**
@@ -61,4 +74,16 @@ public interface QueryPacingContext
      * Called when a query finishes (success or failure). Used to track global running query count.
      */
     void onQueryFinished();
+
+    /**
+     * Attempts to reserve the predicted peak memory of a query in the cluster memory pool.
+     *
+     * @return true if the query fits in the cluster memory, false if it must stay queued
+     */
+    boolean tryReserveMemory(ManagedQueryExecution query);
+
+    /**
+     * Called when a query that reserved memory finishes, or does not start after all.
+     */
+    void releaseMemory(ManagedQueryExecution query);
 }
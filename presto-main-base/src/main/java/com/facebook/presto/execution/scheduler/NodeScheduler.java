@@ -16,6 +16,8 @@ package com.facebook.presto.execution.scheduler;
 import com.facebook.airlift.stats.CounterStat;
 import com.facebook.airlift.units.Duration;
 import com.facebook.presto.Session;
+import com.facebook.presto.cacheaffinity.CacheAffinityConfig;
+import com.facebook.presto.cacheaffinity.ClusterCacheDigests;
 import com.facebook.presto.execution.NodeTaskMap;
 import com.facebook.presto.execution.QueryManager;
 import com.facebook.presto.execution.RemoteTask;
@@ -103,8 +105,9 @@ public class NodeScheduler
     private final NodeSelectionHashStrategy nodeSelectionHashStrategy;
     private final int minVirtualNodeCount;
     private final int maxPreferredNodes;
+    private final boolean cacheAffinityEnabled;
+    private final ClusterCacheDigests clusterCacheDigests;
 
-    @Inject
     public NodeScheduler(
             NetworkTopology networkTopology,
             InternalNodeManager nodeManager,
@@ -114,6 +117,31 @@ public class NodeScheduler
             NodeTtlFetcherManager nodeTtlFetcherManager,
             QueryManager queryManager,
             SimpleTtlNodeSelectorConfig simpleTtlNodeSelectorConfig)
+    {
+        this(networkTopology,
+                nodeManager,
+                nodeSelectionStats,
+                config,
+                nodeTaskMap,
+                nodeTtlFetcherManager,
+                queryManager,
+                simpleTtlNodeSelectorConfig,
+                new CacheAffinityConfig(),
+                new ClusterCacheDigests());
+    }
+
+    @Inject
+    public NodeScheduler(
+            NetworkTopology networkTopology,
+            InternalNodeManager nodeManager,
+            NodeSelectionStats nodeSelectionStats,
+            NodeSchedulerConfig config,
+            NodeTaskMap nodeTaskMap,
+            NodeTtlFetcherManager nodeTtlFetcherManager,
+            QueryManager queryManager,
+            SimpleTtlNodeSelectorConfig simpleTtlNodeSelectorConfig,
+            CacheAffinityConfig cacheAffinityConfig,
+            ClusterCacheDigests clusterCacheDigests)
     {
         this(new NetworkLocationCache(networkTopology),
                 networkTopology,
@@ -124,7 +152,9 @@ public class NodeScheduler
                 new Duration(5, SECONDS),
                 nodeTtlFetcherManager,
                 queryManager,
-                simpleTtlNodeSelectorConfig);
+                simpleTtlNodeSelectorConfig,
+                cacheAffinityConfig,
+                clusterCacheDigests);
     }
 
     public NodeScheduler(
@@ -138,6 +168,34 @@ public class NodeScheduler
             NodeTtlFetcherManager nodeTtlFetcherManager,
             QueryManager queryManager,
             SimpleTtlNodeSelectorConfig simpleTtlNodeSelectorConfig)
+    {
+        this(networkLocationCache,
+                networkTopology,
+                nodeManager,
+                nodeSelectionStats,
+                config,
+                nodeTaskMap,
+                nodeMapRefreshInterval,
+                nodeTtlFetcherManager,
+                queryManager,
+                simpleTtlNodeSelectorConfig,
+                new CacheAffinityConfig(),
+                new ClusterCacheDigests());
+    }
+
+    public NodeScheduler(
+            NetworkLocationCache networkLocationCache,
+            NetworkTopology networkTopology,
+            InternalNodeManager nodeManager,
+            NodeSelectionStats nodeSelectionStats,
+            NodeSchedulerConfig config,
+            NodeTaskMap nodeTaskMap,
+            Duration nodeMapRefreshInterval,
+            NodeTtlFetcherManager nodeTtlFetcherManager,
+            QueryManager queryManager,
+            SimpleTtlNodeSelectorConfig simpleTtlNodeSelectorConfig,
+            CacheAffinityConfig cacheAffinityConfig,
+            ClusterCacheDigests clusterCacheDigests)
     {
         this.networkLocationCache = networkLocationCache;
         this.nodeManager = nodeManager;
@@ -171,6 +229,8 @@ public class NodeScheduler
         this.nodeSelectionHashStrategy = config.getNodeSelectionHashStrategy();
         this.minVirtualNodeCount = config.getMinVirtualNodeCount();
         this.maxPreferredNodes = config.getMaxPreferredNodes();
+        this.cacheAffinityEnabled = requireNonNull(cacheAffinityConfig, "cacheAffinityConfig is null").isEnabled();
+        this.clusterCacheDigests = requireNonNull(clusterCacheDigests, "clusterCacheDigests is null");
     }
 
     @PreDestroy
@@ -242,7 +302,8 @@ public class NodeScheduler
                 maxPendingSplitsWeightPerTask,
                 maxUnacknowledgedSplitsPerTask,
                 maxTasksPerStage,
-                maxPreferredNodes);
+                maxPreferredNodes,
+                cacheAffinityEnabled ? Optional.of(clusterCacheDigests) : Optional.empty());
 
         if (resourceAwareSchedulingStrategy == TTL) {
             return new SimpleTtlNodeSelector(
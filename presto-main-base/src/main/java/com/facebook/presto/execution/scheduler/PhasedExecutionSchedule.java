@@ -61,6 +61,7 @@ public class PhasedExecutionSchedule
 {
     private final List<Set<StageExecutionAndScheduler>> schedulePhases;
     private final Set<StageExecutionAndScheduler> activeSources = new HashSet<>();
+    private boolean splitEnumerationStarted;
 
     public PhasedExecutionSchedule(Collection<StageExecutionAndScheduler> stages)
     {
@@ -85,6 +86,7 @@ public class PhasedExecutionSchedule
     {
         removeCompletedStages();
         addPhasesIfNecessary();
+        startSplitEnumerationIfNecessary();
         if (isFinished()) {
             return ImmutableSet.of();
         }
@@ -117,6 +119,18 @@ public class PhasedExecutionSchedule
         }
     }
 
+    private void startSplitEnumerationIfNecessary()
+    {
+        if (splitEnumerationStarted) {
+            return;
+        }
+        splitEnumerationStarted = true;
+        // overlap split enumeration of the delayed stages with the execution of the active ones
+        schedulePhases.stream()
+                .flatMap(Set::stream)
+                .forEach(stage -> stage.getStageScheduler().startSplitEnumeration());
+    }
+
     private static boolean hasSourceDistributedStage(Set<StageExecutionAndScheduler> phase)
     {
         return phase.stream().anyMatch(stage -> !stage.getStageExecution().getFragment().getTableScanSchedulingOrder().isEmpty());
@@ -62,6 +62,12 @@ public class ScheduleResult
          * Waiting for the completion of CTE materialization by the table writer.
          */
         WAITING_FOR_CTE_MATERIALIZATION,
+
+        /**
+         * All splits have been assigned, and splits queued on busy tasks are
+         * being reclaimed and reassigned to idle tasks.
+         */
+        WAITING_FOR_SPLIT_REBALANCING,
         /**/;
 
         public BlockedReason combineWith(BlockedReason other)
@@ -70,6 +76,7 @@ public class ScheduleResult
                 case WRITER_SCALING:
                     throw new IllegalArgumentException("cannot be combined");
                 case WAITING_FOR_CTE_MATERIALIZATION:
+                case WAITING_FOR_SPLIT_REBALANCING:
                 case NO_ACTIVE_DRIVER_GROUP:
                     return other;
                 case SPLIT_QUEUES_FULL:
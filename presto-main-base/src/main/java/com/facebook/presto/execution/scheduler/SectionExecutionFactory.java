@@ -20,6 +20,7 @@ import com.facebook.presto.execution.QueryManagerConfig;
 import com.facebook.presto.execution.RemoteTask;
 import com.facebook.presto.execution.RemoteTaskFactory;
 import com.facebook.presto.execution.SqlStageExecution;
+import com.facebook.presto.execution.SqlStageExecution.SpeculativeTaskCallback;
 import com.facebook.presto.execution.StageExecutionId;
 import com.facebook.presto.execution.StageExecutionState;
 import com.facebook.presto.execution.StageId;
@@ -35,18 +36,24 @@ import com.facebook.presto.spi.ConnectorId;
 import com.facebook.presto.spi.Node;
 import com.facebook.presto.spi.NodePoolType;
 import com.facebook.presto.spi.connector.ConnectorPartitionHandle;
+import com.facebook.presto.spi.plan.AggregationNode;
+import com.facebook.presto.spi.plan.FilterNode;
 import com.facebook.presto.spi.plan.PartitioningHandle;
 import com.facebook.presto.spi.plan.PlanFragmentId;
 import com.facebook.presto.spi.plan.PlanNode;
 import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.spi.plan.ProjectNode;
 import com.facebook.presto.spi.plan.TableScanNode;
+import com.facebook.presto.split.PrefetchingSplitSource;
 import com.facebook.presto.split.SplitSource;
 import com.facebook.presto.sql.planner.NodePartitionMap;
 import com.facebook.presto.sql.planner.NodePartitioningManager;
+import com.facebook.presto.sql.planner.PlanFragment;
 import com.facebook.presto.sql.planner.PlanFragmenterUtils;
 import com.facebook.presto.sql.planner.SplitSourceFactory;
 import com.facebook.presto.sql.planner.optimizations.PlanNodeSearcher;
 import com.facebook.presto.sql.planner.plan.RemoteSourceNode;
+import com.facebook.presto.sql.relational.RowExpressionDeterminismEvaluator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -67,9 +74,14 @@ import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 import static com.facebook.presto.SystemSessionProperties.getConcurrentLifespansPerNode;
+import static com.facebook.presto.SystemSessionProperties.getEarlySplitEnumerationMaxBufferedSplits;
 import static com.facebook.presto.SystemSessionProperties.getMaxTasksPerStage;
+import static com.facebook.presto.SystemSessionProperties.getSplitWorkStealingMinQueuedSplits;
 import static com.facebook.presto.SystemSessionProperties.getWriterMinSize;
+import static com.facebook.presto.SystemSessionProperties.isEarlySplitEnumerationEnabled;
 import static com.facebook.presto.SystemSessionProperties.isOptimizedScaleWriterProducerBuffer;
+import static com.facebook.presto.SystemSessionProperties.isSpeculativeExecutionEnabled;
+import static com.facebook.presto.SystemSessionProperties.isSplitWorkStealingEnabled;
 import static com.facebook.presto.execution.SqlStageExecution.createSqlStageExecution;
 import static com.facebook.presto.execution.scheduler.SourcePartitionedScheduler.newSourcePartitionedSchedulerAsStageScheduler;
 import static com.facebook.presto.execution.scheduler.TableWriteInfo.createTableWriteInfo;
@@ -78,6 +90,7 @@ import static com.facebook.presto.spi.NodePoolType.INTERMEDIATE;
 import static com.facebook.presto.spi.NodePoolType.LEAF;
 import static com.facebook.presto.spi.StandardErrorCode.NO_NODES_AVAILABLE;
 import static com.facebook.presto.spi.connector.NotPartitionedPartitionHandle.NOT_PARTITIONED;
+import static com.facebook.presto.sql.planner.SystemPartitioningHandle.FIXED_ARBITRARY_DISTRIBUTION;
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.SCALED_WRITER_DISTRIBUTION;
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.SINGLE_DISTRIBUTION;
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.SOURCE_DISTRIBUTION;
@@ -254,7 +267,25 @@ public class SectionExecutionFactory
             }
         });
 
-        StageLinkage stageLinkage = new StageLinkage(fragmentId, parent, childStageExecutions);
+        boolean speculativeExecution = isSpeculativeExecutionEligible(session, plan.getFragment(), parentStageExecution);
+        if (speculativeExecution) {
+            stageExecution.registerSpeculativeTaskCallback(new SpeculativeTaskCallback()
+            {
+                @Override
+                public void addSpeculativeTask(RemoteTask task)
+                {
+                    parent.addExchangeLocations(fragmentId, ImmutableSet.of(task), false);
+                }
+
+                @Override
+                public void noMoreSpeculativeTasks()
+                {
+                    parent.addExchangeLocations(fragmentId, ImmutableSet.of(), true);
+                }
+            });
+        }
+
+        StageLinkage stageLinkage = new StageLinkage(fragmentId, parent, childStageExecutions, speculativeExecution);
         StageScheduler stageScheduler = createStageScheduler(
                 splitSourceFactory,
                 session,
@@ -275,6 +306,55 @@ public class SectionExecutionFactory
         return stageExecutionAndSchedulers.build();
     }
 
+    private boolean isSpeculativeExecutionEligible(Session session, PlanFragment fragment, Optional<SqlStageExecution> parentStageExecution)
+    {
+        // reclaimed splits would leave the split assignment that a speculative attempt re-runs out of date
+        if (!isSpeculativeExecutionEnabled(session) || isSplitWorkStealingEnabled(session) || !parentStageExecution.isPresent()) {
+            return false;
+        }
+        if (!fragment.getPartitioning().equals(SOURCE_DISTRIBUTION) || fragment.getStageExecutionDescriptor().isStageGroupedExecution()) {
+            return false;
+        }
+        // attempts only produce the same output for each consumer when rows are routed by their values
+        PartitioningHandle outputPartitioning = fragment.getPartitioningScheme().getPartitioning().getHandle();
+        if (outputPartitioning.equals(FIXED_ARBITRARY_DISTRIBUTION) || outputPartitioning.equals(SCALED_WRITER_DISTRIBUTION)) {
+            return false;
+        }
+        // a merging consumer reads each task through a separate exchange client
+        boolean mergedByParent = parentStageExecution.get().getFragment().getRemoteSourceNodes().stream()
+                .filter(remoteSource -> remoteSource.getSourceFragmentIds().contains(fragment.getId()))
+                .anyMatch(remoteSource -> remoteSource.getOrderingScheme().isPresent() || remoteSource.isEnsureSourceOrdering());
+        if (mergedByParent) {
+            return false;
+        }
+        if (PlanNodeSearcher.searchFrom(fragment.getRoot())
+                .where(TableScanNode.class::isInstance)
+                .findAll().stream()
+                .anyMatch(tableScan -> isInternalSystemConnector(((TableScanNode) tableScan).getTable().getConnectorId()))) {
+            return false;
+        }
+        RowExpressionDeterminismEvaluator determinismEvaluator = new RowExpressionDeterminismEvaluator(metadata);
+        return PlanNodeSearcher.searchFrom(fragment.getRoot())
+                .where(node -> !isDeterministic(node, determinismEvaluator))
+                .findAll()
+                .isEmpty();
+    }
+
+    private static boolean isDeterministic(PlanNode node, RowExpressionDeterminismEvaluator determinismEvaluator)
+    {
+        if (node instanceof TableScanNode || node instanceof AggregationNode) {
+            return true;
+        }
+        if (node instanceof FilterNode) {
+            return determinismEvaluator.isDeterministic(((FilterNode) node).getPredicate());
+        }
+        if (node instanceof ProjectNode) {
+            return ((ProjectNode) node).getAssignments().getExpressions().stream()
+                    .allMatch(determinismEvaluator::isDeterministic);
+        }
+        return false;
+    }
+
     private StageScheduler createStageScheduler(
             SplitSourceFactory splitSourceFactory,
             Session session,
@@ -296,6 +376,11 @@ public class SectionExecutionFactory
             Map.Entry<PlanNodeId, SplitSource> entry = getOnlyElement(splitSources.entrySet());
             PlanNodeId planNodeId = entry.getKey();
             SplitSource splitSource = entry.getValue();
+            if (isEarlySplitEnumerationEnabled(session) && !stageExecution.requiresMaterializedCTE()) {
+                // lets phased execution list the splits of this stage while earlier phases run;
+                // splits of a CTE consumer can only be listed once the CTE is materialized
+                splitSource = new PrefetchingSplitSource(splitSource, splitBatchSize, getEarlySplitEnumerationMaxBufferedSplits(session));
+            }
             ConnectorId connectorId = splitSource.getConnectorId();
             if (isInternalSystemConnector(connectorId)) {
                 connectorId = null;
@@ -304,7 +389,15 @@ public class SectionExecutionFactory
             SplitPlacementPolicy placementPolicy = new DynamicSplitPlacementPolicy(nodeSelector, stageExecution::getAllTasks);
 
             checkArgument(!plan.getFragment().getStageExecutionDescriptor().isStageGroupedExecution());
-            return newSourcePartitionedSchedulerAsStageScheduler(stageExecution, planNodeId, splitSource, placementPolicy, splitBatchSize, cteMaterializationTracker);
+            return newSourcePartitionedSchedulerAsStageScheduler(
+                    stageExecution,
+                    planNodeId,
+                    splitSource,
+                    placementPolicy,
+                    splitBatchSize,
+                    cteMaterializationTracker,
+                    isSplitWorkStealingEnabled(session),
+                    getSplitWorkStealingMinQueuedSplits(session));
         }
         else if (partitioningHandle.equals(SCALED_WRITER_DISTRIBUTION)) {
             Supplier<Collection<TaskStatus>> sourceTasksProvider = () -> childStageExecutions.stream()
@@ -22,6 +22,7 @@ import com.facebook.presto.metadata.Split;
 import com.facebook.presto.spi.connector.ConnectorPartitionHandle;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.facebook.presto.split.EmptySplit;
+import com.facebook.presto.split.PrefetchingSplitSource;
 import com.facebook.presto.split.SplitSource;
 import com.facebook.presto.split.SplitSource.SplitBatch;
 import com.google.common.collect.ImmutableList;
@@ -39,6 +40,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.Set;
 
 import static com.facebook.airlift.concurrent.MoreFutures.addSuccessCallback;
@@ -48,6 +50,7 @@ import static com.facebook.presto.execution.scheduler.ScheduleResult.BlockedReas
 import static com.facebook.presto.execution.scheduler.ScheduleResult.BlockedReason.NO_ACTIVE_DRIVER_GROUP;
 import static com.facebook.presto.execution.scheduler.ScheduleResult.BlockedReason.SPLIT_QUEUES_FULL;
 import static com.facebook.presto.execution.scheduler.ScheduleResult.BlockedReason.WAITING_FOR_SOURCE;
+import static com.facebook.presto.execution.scheduler.ScheduleResult.BlockedReason.WAITING_FOR_SPLIT_REBALANCING;
 import static com.facebook.presto.spi.SplitContext.NON_CACHEABLE;
 import static com.facebook.presto.spi.connector.NotPartitionedPartitionHandle.NOT_PARTITIONED;
 import static com.google.common.base.Preconditions.checkArgument;
@@ -91,6 +94,7 @@ public class SourcePartitionedScheduler
     private final int splitBatchSize;
     private final PlanNodeId partitionedNode;
     private final boolean groupedExecution;
+    private final Optional<SplitRebalancer> splitRebalancer;
 
     // TODO: Add LIFESPAN_ADDED into SourcePartitionedScheduler#State and remove this boolean
     private boolean lifespanAdded;
@@ -106,7 +110,8 @@ public class SourcePartitionedScheduler
             SplitSource splitSource,
             SplitPlacementPolicy splitPlacementPolicy,
             int splitBatchSize,
-            boolean groupedExecution)
+            boolean groupedExecution,
+            Optional<SplitRebalancer> splitRebalancer)
     {
         this.stage = requireNonNull(stage, "stage is null");
         this.partitionedNode = requireNonNull(partitionedNode, "partitionedNode is null");
@@ -116,6 +121,8 @@ public class SourcePartitionedScheduler
         checkArgument(splitBatchSize > 0, "splitBatchSize must be at least one");
         this.splitBatchSize = splitBatchSize;
         this.groupedExecution = groupedExecution;
+        this.splitRebalancer = requireNonNull(splitRebalancer, "splitRebalancer is null");
+        checkArgument(!groupedExecution || !splitRebalancer.isPresent(), "splits cannot be rebalanced for grouped execution");
     }
 
     public PlanNodeId getPlanNodeId()
@@ -138,7 +145,27 @@ public class SourcePartitionedScheduler
             int splitBatchSize,
             CTEMaterializationTracker cteMaterializationTracker)
     {
-        SourcePartitionedScheduler sourcePartitionedScheduler = new SourcePartitionedScheduler(stage, partitionedNode, splitSource, splitPlacementPolicy, splitBatchSize, false);
+        return newSourcePartitionedSchedulerAsStageScheduler(stage, partitionedNode, splitSource, splitPlacementPolicy, splitBatchSize, cteMaterializationTracker, false, 1);
+    }
+
+    /**
+     * Same as above, but when {@code splitWorkStealingEnabled} is set the scheduler
+     * does not finish as soon as every split is assigned. Instead it keeps moving
+     * queued splits from busy tasks to idle ones until no task has at least
+     * {@code minQueuedSplitsToSteal} queued splits left.
+     */
+    public static StageScheduler newSourcePartitionedSchedulerAsStageScheduler(
+            SqlStageExecution stage,
+            PlanNodeId partitionedNode,
+            SplitSource splitSource,
+            SplitPlacementPolicy splitPlacementPolicy,
+            int splitBatchSize,
+            CTEMaterializationTracker cteMaterializationTracker,
+            boolean splitWorkStealingEnabled,
+            int minQueuedSplitsToSteal)
+    {
+        Optional<SplitRebalancer> splitRebalancer = splitWorkStealingEnabled ? Optional.of(new SplitRebalancer(stage, partitionedNode, minQueuedSplitsToSteal)) : Optional.empty();
+        SourcePartitionedScheduler sourcePartitionedScheduler = new SourcePartitionedScheduler(stage, partitionedNode, splitSource, splitPlacementPolicy, splitBatchSize, false, splitRebalancer);
         sourcePartitionedScheduler.startLifespan(Lifespan.taskWide(), NOT_PARTITIONED);
 
         return new StageScheduler()
@@ -160,6 +187,14 @@ public class SourcePartitionedScheduler
                 return scheduleResult;
             }
 
+            @Override
+            public void startSplitEnumeration()
+            {
+                if (splitSource instanceof PrefetchingSplitSource) {
+                    ((PrefetchingSplitSource) splitSource).startSplitEnumeration();
+                }
+            }
+
             @Override
             public void close()
             {
@@ -187,7 +222,7 @@ public class SourcePartitionedScheduler
             int splitBatchSize,
             boolean groupedExecution)
     {
-        return new SourcePartitionedScheduler(stage, partitionedNode, splitSource, splitPlacementPolicy, splitBatchSize, groupedExecution);
+        return new SourcePartitionedScheduler(stage, partitionedNode, splitSource, splitPlacementPolicy, splitBatchSize, groupedExecution, Optional.empty());
     }
 
     @Override
@@ -341,6 +376,18 @@ public class SourcePartitionedScheduler
                     // But this shouldn't be possible. See usage of EmptySplit in this method.
                     throw new IllegalStateException("At least 1 split should have been scheduled for this plan node");
                 case SPLITS_ADDED:
+                    if (splitRebalancer.isPresent()) {
+                        // the split source stays open until the queued splits are evened out across tasks
+                        Optional<ListenableFuture<?>> rebalancing = splitRebalancer.get().rebalance();
+                        if (rebalancing.isPresent()) {
+                            return ScheduleResult.blocked(
+                                    false,
+                                    overallNewTasks.build(),
+                                    nonCancellationPropagating(rebalancing.get()),
+                                    WAITING_FOR_SPLIT_REBALANCING,
+                                    overallSplitAssignmentCount);
+                        }
+                    }
                     state = State.NO_MORE_SPLITS;
                     splitSource.close();
                     // fall through
@@ -0,0 +1,168 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.scheduler;
+
+import com.facebook.presto.execution.RemoteTask;
+import com.facebook.presto.execution.SqlStageExecution;
+import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.metadata.Split;
+import com.facebook.presto.spi.plan.PlanNodeId;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.facebook.airlift.concurrent.MoreFutures.getFutureValue;
+import static com.facebook.airlift.concurrent.MoreFutures.whenAnyComplete;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Evens out the tail of an ungrouped source stage. Once every split has been
+ * assigned, splits still queued on a busy task are reclaimed from it and
+ * reassigned to the tasks that have run out of work, so the stage does not
+ * wait on a single straggler.
+ */
+class SplitRebalancer
+{
+    private final SqlStageExecution stage;
+    private final PlanNodeId partitionedNode;
+    private final int minQueuedSplits;
+
+    @GuardedBy("this")
+    private final Map<TaskId, ListenableFuture<List<Split>>> outstandingReclaims = new HashMap<>();
+    // tasks that had nothing left to give back, e.g. because all their queued splits are bound to the node
+    @GuardedBy("this")
+    private final Set<TaskId> exhaustedTasks = new HashSet<>();
+    @GuardedBy("this")
+    private final Set<TaskId> monitoredTasks = new HashSet<>();
+    private final AtomicReference<SettableFuture<?>> whenTaskStatusChanged = new AtomicReference<>(SettableFuture.create());
+
+    public SplitRebalancer(SqlStageExecution stage, PlanNodeId partitionedNode, int minQueuedSplits)
+    {
+        this.stage = requireNonNull(stage, "stage is null");
+        this.partitionedNode = requireNonNull(partitionedNode, "partitionedNode is null");
+        checkArgument(minQueuedSplits > 0, "minQueuedSplits must be positive");
+        this.minQueuedSplits = minQueuedSplits;
+    }
+
+    /**
+     * Moves reclaimed splits to the least loaded tasks and reclaims more splits
+     * from the busiest tasks for the tasks that are idle.
+     *
+     * @return a future to wait on before calling again, or empty once no task has
+     * enough queued splits left to make rebalancing worthwhile
+     */
+    public synchronized Optional<ListenableFuture<?>> rebalance()
+    {
+        // replace the future before looking at the tasks, so no status change goes unnoticed
+        SettableFuture<?> taskStatusChanged = SettableFuture.create();
+        whenTaskStatusChanged.getAndSet(taskStatusChanged).set(null);
+
+        List<RemoteTask> tasks = stage.getAllTasks().stream()
+                .filter(task -> !task.getTaskStatus().getState().isDone())
+                .collect(toImmutableList());
+        for (RemoteTask task : tasks) {
+            if (monitoredTasks.add(task.getTaskId())) {
+                task.addStateChangeListener(status -> whenTaskStatusChanged.get().set(null));
+            }
+        }
+
+        Map<TaskId, Integer> queuedSplits = new HashMap<>();
+        for (RemoteTask task : tasks) {
+            queuedSplits.put(task.getTaskId(), task.getQueuedPartitionedSplitsInfo().getCount());
+        }
+
+        assignReclaimedSplits(tasks, queuedSplits);
+
+        List<RemoteTask> idleTasks = new ArrayList<>();
+        List<RemoteTask> donors = new ArrayList<>();
+        for (RemoteTask task : tasks) {
+            int queued = queuedSplits.get(task.getTaskId());
+            if (queued == 0) {
+                idleTasks.add(task);
+            }
+            else if (queued >= minQueuedSplits && !exhaustedTasks.contains(task.getTaskId()) && !outstandingReclaims.containsKey(task.getTaskId())) {
+                donors.add(task);
+            }
+        }
+        donors.sort(Comparator.comparingInt((RemoteTask task) -> queuedSplits.get(task.getTaskId())).reversed());
+
+        // pair every idle task with one of the busiest tasks and take half of its queue
+        for (int i = 0; i < idleTasks.size() && i < donors.size(); i++) {
+            RemoteTask donor = donors.get(i);
+            outstandingReclaims.put(donor.getTaskId(), donor.reclaimSplits(partitionedNode, queuedSplits.get(donor.getTaskId()) / 2));
+        }
+
+        if (outstandingReclaims.isEmpty() && donors.isEmpty()) {
+            return Optional.empty();
+        }
+
+        ImmutableList.Builder<ListenableFuture<?>> blocked = ImmutableList.builder();
+        blocked.addAll(outstandingReclaims.values());
+        blocked.add(taskStatusChanged);
+        return Optional.of(whenAnyComplete(blocked.build()));
+    }
+
+    private void assignReclaimedSplits(List<RemoteTask> tasks, Map<TaskId, Integer> queuedSplits)
+    {
+        Map<RemoteTask, ImmutableMultimap.Builder<PlanNodeId, Split>> assignments = new HashMap<>();
+        Iterator<Entry<TaskId, ListenableFuture<List<Split>>>> iterator = outstandingReclaims.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Entry<TaskId, ListenableFuture<List<Split>>> entry = iterator.next();
+            if (!entry.getValue().isDone()) {
+                continue;
+            }
+            iterator.remove();
+
+            TaskId donor = entry.getKey();
+            List<Split> splits = getFutureValue(entry.getValue());
+            if (splits.isEmpty()) {
+                exhaustedTasks.add(donor);
+                continue;
+            }
+            // hand the splits back to the task they were reclaimed from only if no other task is left
+            List<RemoteTask> candidates = tasks.stream()
+                    .filter(task -> !task.getTaskId().equals(donor))
+                    .collect(toImmutableList());
+            if (candidates.isEmpty()) {
+                candidates = tasks;
+            }
+            checkState(!candidates.isEmpty(), "No task left to assign reclaimed splits to");
+            for (Split split : splits) {
+                RemoteTask target = candidates.stream()
+                        .min(Comparator.comparingInt(task -> queuedSplits.get(task.getTaskId())))
+                        .get();
+                queuedSplits.merge(target.getTaskId(), 1, Integer::sum);
+                assignments.computeIfAbsent(target, ignored -> ImmutableMultimap.builder()).put(partitionedNode, split);
+            }
+        }
+        assignments.forEach((task, splits) -> task.addSplits(splits.build()));
+    }
+}
@@ -31,6 +31,7 @@ public class SplitSchedulerStats
     private final CounterStat splitQueuesFull = new CounterStat();
     private final CounterStat mixedSplitQueuesFullAndWaitingForSource = new CounterStat();
     private final CounterStat noActiveDriverGroup = new CounterStat();
+    private final CounterStat waitingForSplitRebalancing = new CounterStat();
 
     private final CounterStat waitingForCTEMaterialization = new CounterStat();
     private final DistributionStat splitsPerIteration = new DistributionStat();
@@ -90,4 +91,11 @@ public class SplitSchedulerStats
     {
         return noActiveDriverGroup;
     }
+
+    @Managed
+    @Nested
+    public CounterStat getWaitingForSplitRebalancing()
+    {
+        return waitingForSplitRebalancing;
+    }
 }
@@ -50,7 +50,9 @@ import com.facebook.presto.sql.planner.SubPlan;
 import com.facebook.presto.sql.planner.TypeProvider;
 import com.facebook.presto.sql.planner.optimizations.PlanOptimizer;
 import com.facebook.presto.sql.planner.sanity.PlanChecker;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -77,12 +79,17 @@ import java.util.stream.Collectors;
 
 import static com.facebook.airlift.concurrent.MoreFutures.tryGetFutureValue;
 import static com.facebook.airlift.concurrent.MoreFutures.whenAnyComplete;
+import static com.facebook.presto.SystemSessionProperties.HASH_PARTITION_COUNT;
+import static com.facebook.presto.SystemSessionProperties.getHashPartitionCount;
 import static com.facebook.presto.SystemSessionProperties.getMaxConcurrentMaterializations;
+import static com.facebook.presto.SystemSessionProperties.getMaxTasksPerStage;
 import static com.facebook.presto.SystemSessionProperties.getPartialResultsCompletionRatioThreshold;
 import static com.facebook.presto.SystemSessionProperties.getPartialResultsMaxExecutionTimeMultiplier;
+import static com.facebook.presto.SystemSessionProperties.getRuntimePartitionTargetSize;
 import static com.facebook.presto.SystemSessionProperties.isEnhancedCTESchedulingEnabled;
 import static com.facebook.presto.SystemSessionProperties.isPartialResultsEnabled;
 import static com.facebook.presto.SystemSessionProperties.isRuntimeOptimizerEnabled;
+import static com.facebook.presto.SystemSessionProperties.isRuntimePartitionCountAdaptationEnabled;
 import static com.facebook.presto.execution.BasicStageExecutionStats.aggregateBasicStageStats;
 import static com.facebook.presto.execution.StageExecutionState.ABORTED;
 import static com.facebook.presto.execution.StageExecutionState.CANCELED;
@@ -98,6 +105,8 @@ import static com.facebook.presto.execution.scheduler.StreamingPlanSection.extra
 import static com.facebook.presto.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
 import static com.facebook.presto.sql.planner.PlanFragmenterUtils.ROOT_FRAGMENT_ID;
 import static com.facebook.presto.sql.planner.SchedulingOrderVisitor.scheduleOrder;
+import static com.facebook.presto.sql.planner.SystemPartitioningHandle.FIXED_HASH_DISTRIBUTION;
+import static com.facebook.presto.sql.planner.SystemPartitioningHandle.SOURCE_DISTRIBUTION;
 import static com.facebook.presto.sql.planner.planPrinter.PlanPrinter.jsonFragmentPlan;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.ImmutableList.toImmutableList;
@@ -105,8 +114,13 @@ import static com.google.common.collect.ImmutableMap.toImmutableMap;
 import static com.google.common.collect.Iterables.getOnlyElement;
 import static com.google.common.collect.Streams.stream;
 import static com.google.common.graph.Traverser.forTree;
+import static com.google.common.math.LongMath.divide;
 import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.toIntExact;
 import static java.lang.String.format;
+import static java.math.RoundingMode.CEILING;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
@@ -142,6 +156,9 @@ public class SqlQueryScheduler
     private final RemoteTaskFactory remoteTaskFactory;
     private final SplitSourceFactory splitSourceFactory;
     private final Set<StageId> runtimeOptimizedStages = Collections.synchronizedSet(new HashSet<>());
+    private final Set<PlanFragmentId> partitionCountAdaptedSections = Collections.synchronizedSet(new HashSet<>());
+    // sections whose stages were rebuilt at runtime, by the fragment id of their root
+    private final Map<PlanFragmentId, StreamingPlanSection> runtimeAdaptedSections = new ConcurrentHashMap<>();
     private final PlanChecker planChecker;
     private final Metadata metadata;
 
@@ -505,6 +522,9 @@ public class SqlQueryScheduler
                                 case NO_ACTIVE_DRIVER_GROUP:
                                     schedulerStats.getNoActiveDriverGroup().update(1);
                                     break;
+                                case WAITING_FOR_SPLIT_REBALANCING:
+                                    schedulerStats.getWaitingForSplitRebalancing().update(1);
+                                    break;
                                 default:
                                     throw new UnsupportedOperationException("Unknown blocked reason: " + blockedReason);
                             }
@@ -605,20 +625,106 @@ public class SqlQueryScheduler
                 .filter(this::isReadyForExecution)
                 // for enhanced cte blocking we do not need a limit on the sections
                 .limit(isEnhancedCTESchedulingEnabled(session) ? Long.MAX_VALUE : maxConcurrentMaterializations - runningPlanSections)
-                .map(this::tryCostBasedOptimize)
+                .map(this::tryAdaptSection)
                 .collect(toImmutableList());
     }
 
+    /**
+     * Applies the runtime cost-based optimizer and the partition count adaptation to a section, and rebuilds its stages
+     * once with both the optimized fragments and the adapted session.
+     */
+    private StreamingPlanSection tryAdaptSection(StreamingPlanSection section)
+    {
+        PlanFragmentId sectionRootId = section.getPlan().getFragment().getId();
+        StreamingPlanSection adaptedSection = runtimeAdaptedSections.get(sectionRootId);
+        if (adaptedSection != null) {
+            // the stages are not rebuilt again, which would undo the adaptations
+            return adaptedSection;
+        }
+
+        Map<PlanFragment, PlanFragment> oldToNewFragment = tryCostBasedOptimize(section);
+        Optional<Session> adaptedSession = tryAdaptPartitionCount(section);
+        if (oldToNewFragment.isEmpty() && !adaptedSession.isPresent()) {
+            return section;
+        }
+
+        // Update SubPlan so that getStageInfo will reflect the latest optimized plan when query is finished.
+        updatePlan(oldToNewFragment);
+
+        // Rebuild and update entries of the stageExecutions map.
+        adaptedSection = updateStageExecutions(section, oldToNewFragment, adaptedSession.orElse(session));
+        runtimeAdaptedSections.put(sectionRootId, adaptedSection);
+        return adaptedSection;
+    }
+
+    /**
+     * Sizes the hash partitioned stages of a section from the data actually written by its children sections,
+     * instead of the planned hash partition count, which is kept as an upper bound. Only sections which read
+     * nothing but the outputs of their finished children qualify, as the size of other inputs is not known yet.
+     *
+     * @return the session with the adapted hash partition count, or empty when the planned count is kept
+     */
+    private Optional<Session> tryAdaptPartitionCount(StreamingPlanSection section)
+    {
+        PlanFragmentId sectionRootId = section.getPlan().getFragment().getId();
+        if (!isRuntimePartitionCountAdaptationEnabled(session) || section.getChildren().isEmpty() || partitionCountAdaptedSections.contains(sectionRootId)) {
+            return Optional.empty();
+        }
+
+        List<PlanFragment> fragments = stream(forTree(StreamingSubPlan::getChildren).depthFirstPreOrder(section.getPlan()))
+                .map(StreamingSubPlan::getFragment)
+                .collect(toImmutableList());
+        // a source distributed stage reads a table which is not written by the children sections
+        if (fragments.stream().anyMatch(fragment -> fragment.getPartitioning().equals(SOURCE_DISTRIBUTION))
+                || fragments.stream().noneMatch(fragment -> fragment.getPartitioning().equals(FIXED_HASH_DISTRIBUTION))) {
+            return Optional.empty();
+        }
+
+        long writtenBytes = 0;
+        for (StreamingPlanSection child : section.getChildren()) {
+            if (getStageExecution(child.getPlan().getFragment().getId()).getState() != FINISHED) {
+                return Optional.empty();
+            }
+            for (StreamingSubPlan subPlan : forTree(StreamingSubPlan::getChildren).depthFirstPreOrder(child.getPlan())) {
+                writtenBytes += getStageExecution(subPlan.getFragment().getId()).getStageExecutionInfo().getStats().getPhysicalWrittenDataSizeInBytes();
+            }
+        }
+        partitionCountAdaptedSections.add(sectionRootId);
+
+        int plannedPartitionCount = min(getHashPartitionCount(session), getMaxTasksPerStage(session));
+        int partitionCount = getAdaptedPartitionCount(writtenBytes, getRuntimePartitionTargetSize(session).toBytes(), plannedPartitionCount);
+        if (partitionCount >= plannedPartitionCount) {
+            return Optional.empty();
+        }
+
+        Session adaptedSession = Session.builder(session)
+                .setSystemProperty(HASH_PARTITION_COUNT, String.valueOf(partitionCount))
+                .build();
+        fragments.forEach(fragment -> runtimeOptimizedStages.add(getStageId(fragment.getId())));
+        log.debug("Adapted hash partition count of section %s from %s to %s, children sections wrote %s bytes", sectionRootId, plannedPartitionCount, partitionCount, writtenBytes);
+        return Optional.of(adaptedSession);
+    }
+
+    /**
+     * @param plannedPartitionCount the number of tasks hash partitioned stages are scheduled on, bounded by max_tasks_per_stage like in SystemPartitioningHandle
+     * @return the partition count needed for partitions of the target size, never more than the planned count
+     */
+    @VisibleForTesting
+    static int getAdaptedPartitionCount(long inputBytes, long targetPartitionSize, int plannedPartitionCount)
+    {
+        return toIntExact(min(plannedPartitionCount, max(1, divide(inputBytes, targetPartitionSize, CEILING))));
+    }
+
     /**
      * A general purpose utility function to invoke runtime cost-based optimizer.
      * (right now there is only one plan optimizer which determines if the probe and build side of a JoinNode should be swapped
      * based on the statistics of the temporary table holding materialized exchange outputs from finished children sections)
      */
-    private StreamingPlanSection tryCostBasedOptimize(StreamingPlanSection section)
+    private Map<PlanFragment, PlanFragment> tryCostBasedOptimize(StreamingPlanSection section)
     {
         // no need to do runtime optimization if no materialized exchange data is utilized by the section.
         if (!isRuntimeOptimizerEnabled(session) || section.getChildren().isEmpty()) {
-            return section;
+            return ImmutableMap.of();
         }
 
         // Apply runtime optimization on each StreamingSubPlan and generate optimized new fragments
@@ -634,21 +740,15 @@ public class SqlQueryScheduler
 
         // Early exit when no stage's fragment is changed
         if (oldToNewFragment.isEmpty()) {
-            return section;
+            return oldToNewFragment;
         }
 
         oldToNewFragment.forEach((oldFragment, newFragment) -> runtimeOptimizedStages.add(getStageId(oldFragment.getId())));
-
-        // Update SubPlan so that getStageInfo will reflect the latest optimized plan when query is finished.
-        updatePlan(oldToNewFragment);
-
-        // Rebuild and update entries of the stageExecutions map.
-        updateStageExecutions(section, oldToNewFragment);
         log.debug("Invoked CBO during runtime, optimized stage IDs: " + oldToNewFragment.keySet().stream()
                 .map(PlanFragment::getId)
                 .map(PlanFragmentId::toString)
                 .collect(Collectors.joining(", ")));
-        return section;
+        return oldToNewFragment;
     }
 
     private Optional<PlanFragment> performRuntimeOptimizations(StreamingSubPlan subPlan)
@@ -690,8 +790,10 @@ public class SqlQueryScheduler
 
     /**
      * Utility function that rebuild a StreamingPlanSection, re-create stageExecutionAndScheduler for each of its stage, and finally update the stageExecutions map.
+     *
+     * @return the rebuilt section
      */
-    private void updateStageExecutions(StreamingPlanSection section, Map<PlanFragment, PlanFragment> oldToNewFragment)
+    private StreamingPlanSection updateStageExecutions(StreamingPlanSection section, Map<PlanFragment, PlanFragment> oldToNewFragment, Session session)
     {
         StreamingPlanSection newSection = new StreamingPlanSection(rewriteStreamingSubPlan(section.getPlan(), oldToNewFragment), section.getChildren());
         PlanFragment sectionRootFragment = newSection.getPlan().getFragment();
@@ -729,6 +831,7 @@ public class SqlQueryScheduler
         synchronized (this) {
             stageExecutions.putAll(updatedStageExecutions);
         }
+        return newSection;
     }
 
     private void updatePlan(Map<PlanFragment, PlanFragment> oldToNewFragments)
@@ -34,11 +34,22 @@ public class StageLinkage
     private final PlanFragmentId currentStageFragmentId;
     private final ExchangeLocationsConsumer parent;
     private final Set<OutputBufferManager> childOutputBufferManagers;
+    private final boolean speculativeExecution;
 
     public StageLinkage(PlanFragmentId fragmentId, ExchangeLocationsConsumer parent, Set<SqlStageExecution> children)
+    {
+        this(fragmentId, parent, children, false);
+    }
+
+    /**
+     * @param speculativeExecution whether the stage may add speculative tasks after scheduling completes, in which
+     * case the stage itself reports the last exchange location to the parent once it finishes
+     */
+    public StageLinkage(PlanFragmentId fragmentId, ExchangeLocationsConsumer parent, Set<SqlStageExecution> children, boolean speculativeExecution)
     {
         this.currentStageFragmentId = fragmentId;
         this.parent = parent;
+        this.speculativeExecution = speculativeExecution;
         this.childOutputBufferManagers = children.stream()
                 .map(childStage -> {
                     PartitioningHandle partitioningHandle = childStage.getFragment().getPartitioningScheme().getPartitioning().getHandle();
@@ -81,7 +92,7 @@ public class StageLinkage
         }
 
         // Add an exchange location to the parent stage for each new task
-        parent.addExchangeLocations(currentStageFragmentId, newTasks, noMoreTasks);
+        parent.addExchangeLocations(currentStageFragmentId, newTasks, noMoreTasks && !speculativeExecution);
 
         if (!childOutputBufferManagers.isEmpty()) {
             // Add an output buffer to the child stages for each new task
@@ -27,6 +27,13 @@ public interface StageScheduler
      */
     ScheduleResult schedule();
 
+    /**
+     * Starts enumerating splits for a stage that is not scheduled yet, without creating
+     * any tasks, so that splits are ready to be assigned once the stage is scheduled.
+     * Schedulers that do not support this ignore the call.
+     */
+    default void startSplitEnumeration() {}
+
     @Override
     default void close() {}
 }
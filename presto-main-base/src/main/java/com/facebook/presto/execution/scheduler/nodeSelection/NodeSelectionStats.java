@@ -31,6 +31,8 @@ public class NodeSelectionStats
 
     private final CounterStat preferredNonAliveNodeSkippedCount = new CounterStat();
 
+    private final CounterStat cacheDigestMatchedSplitCount = new CounterStat();
+
     public void incrementPrimaryPreferredNodeSelectedCount()
     {
         primaryPreferredNodeSelectedCount.update(1);
@@ -66,6 +68,11 @@ public class NodeSelectionStats
         preferredNonAliveNodeSkippedCount.update(1);
     }
 
+    public void incrementCacheDigestMatchedSplitCount()
+    {
+        cacheDigestMatchedSplitCount.update(1);
+    }
+
     @Managed
     @Nested
     public CounterStat getPrimaryPreferredNodeSelectedCount()
@@ -114,4 +121,11 @@ public class NodeSelectionStats
     {
         return bucketedNonAliveNodeReplacedCount;
     }
+
+    @Managed
+    @Nested
+    public CounterStat getCacheDigestMatchedSplitCount()
+    {
+        return cacheDigestMatchedSplitCount;
+    }
 }
@@ -14,6 +14,8 @@
 package com.facebook.presto.execution.scheduler.nodeSelection;
 
 import com.facebook.airlift.log.Logger;
+import com.facebook.presto.cacheaffinity.ClusterCacheDigests;
+import com.facebook.presto.cacheaffinity.LocalCacheDigest;
 import com.facebook.presto.execution.NodeTaskMap;
 import com.facebook.presto.execution.RemoteTask;
 import com.facebook.presto.execution.TaskStatus;
@@ -38,6 +40,7 @@ import com.google.common.util.concurrent.ListenableFuture;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -83,6 +86,7 @@ public class SimpleNodeSelector
     private final int maxUnacknowledgedSplitsPerTask;
     private final int maxTasksPerStage;
     private final int maxPreferredNodes;
+    private final Optional<ClusterCacheDigests> clusterCacheDigests;
 
     public SimpleNodeSelector(
             InternalNodeManager nodeManager,
@@ -97,7 +101,8 @@ public class SimpleNodeSelector
             long maxPendingSplitsWeightPerTask,
             int maxUnacknowledgedSplitsPerTask,
             int maxTasksPerStage,
-            int maxPreferredNodes)
+            int maxPreferredNodes,
+            Optional<ClusterCacheDigests> clusterCacheDigests)
     {
         this.nodeManager = requireNonNull(nodeManager, "nodeManager is null");
         this.nodeSelectionStats = requireNonNull(nodeSelectionStats, "nodeSelectionStats is null");
@@ -113,6 +118,7 @@ public class SimpleNodeSelector
         checkArgument(maxUnacknowledgedSplitsPerTask > 0, "maxUnacknowledgedSplitsPerTask must be > 0, found: %s", maxUnacknowledgedSplitsPerTask);
         this.maxTasksPerStage = maxTasksPerStage;
         this.maxPreferredNodes = maxPreferredNodes;
+        this.clusterCacheDigests = requireNonNull(clusterCacheDigests, "clusterCacheDigests is null");
     }
 
     @Override
@@ -174,6 +180,9 @@ public class SimpleNodeSelector
                     break;
                 case SOFT_AFFINITY:
                     candidateNodes = selectExactNodes(nodeMap, split.getPreferredNodes(nodeProvider), includeCoordinator);
+                    if (clusterCacheDigests.isPresent()) {
+                        candidateNodes = addCachingNodes(split, nodeMap, clusterCacheDigests.get(), candidateNodes);
+                    }
                     preferredNodeCount = OptionalInt.of(candidateNodes.size());
                     candidateNodes = ImmutableList.<InternalNode>builder()
                             .addAll(candidateNodes)
@@ -307,6 +316,33 @@ public class SimpleNodeSelector
         return Optional.of(new InternalNodeInfo(chosenNode, false));
     }
 
+    /**
+     * Puts the nodes which reported the split in their cache digest ahead of the preferred nodes picked by hashing,
+     * which only guess where the data is cached and are shuffled when nodes join or leave.
+     */
+    private List<InternalNode> addCachingNodes(Split split, NodeMap nodeMap, ClusterCacheDigests clusterCacheDigests, List<InternalNode> preferredNodes)
+    {
+        String cacheKey = LocalCacheDigest.getCacheKey(split);
+        Set<InternalNode> nodes = new LinkedHashSet<>();
+        for (InternalNode node : nodeMap.getActiveNodes()) {
+            if (nodes.size() >= maxPreferredNodes) {
+                break;
+            }
+            if (!includeCoordinator && nodeMap.getCoordinatorNodeIds().contains(node.getNodeIdentifier())) {
+                continue;
+            }
+            if (clusterCacheDigests.getCacheDigest(node).map(digest -> digest.mightContain(cacheKey)).orElse(false)) {
+                nodes.add(node);
+            }
+        }
+        if (nodes.isEmpty()) {
+            return preferredNodes;
+        }
+        nodeSelectionStats.incrementCacheDigestMatchedSplitCount();
+        nodes.addAll(preferredNodes);
+        return ImmutableList.copyOf(nodes);
+    }
+
     private List<InternalNode> getEligibleNodes(int limit, NodeMap nodeMap, List<RemoteTask> existingTasks)
     {
         List<InternalNode> existingNodes = existingTasks.stream()
@@ -38,6 +38,7 @@ public class MemoryManagerConfig
     private DataSize softMaxQueryTotalMemory;
     private String lowMemoryKillerPolicy = LowMemoryKillerPolicy.NONE;
     private Duration killOnOutOfMemoryDelay = new Duration(5, MINUTES);
+    private boolean waitForMemoryRevocation;
     private boolean tableFinishOperatorMemoryTrackingEnabled;
 
     public String getLowMemoryKillerPolicy()
@@ -67,6 +68,19 @@ public class MemoryManagerConfig
         return this;
     }
 
+    public boolean isWaitForMemoryRevocation()
+    {
+        return waitForMemoryRevocation;
+    }
+
+    @Config("query.low-memory-killer.wait-for-memory-revocation")
+    @ConfigDescription("Do not invoke killer while workers keep freeing revocable memory by spilling; the delay restarts when revocable memory shrinks by at least 5%, for at most 3 times the delay")
+    public MemoryManagerConfig setWaitForMemoryRevocation(boolean waitForMemoryRevocation)
+    {
+        this.waitForMemoryRevocation = waitForMemoryRevocation;
+        return this;
+    }
+
     @NotNull
     public DataSize getMaxQueryMemory()
     {
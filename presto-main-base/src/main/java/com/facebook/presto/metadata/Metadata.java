@@ -164,6 +164,12 @@ public interface Metadata
      */
     TableStatistics getTableStatistics(Session session, TableHandle tableHandle, List<ColumnHandle> columnHandles, Constraint<ColumnHandle> constraint);
 
+    /**
+     * Return a token identifying the version of the data read through the specified table handle,
+     * or empty if the connector cannot tell when the data changes.
+     */
+    Optional<String> getTableVersionToken(Session session, TableHandle tableHandle);
+
     /**
      * Get the names that match the specified table prefix (never null).
      */
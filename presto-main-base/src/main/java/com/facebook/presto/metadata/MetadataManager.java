@@ -601,6 +601,14 @@ public class MetadataManager
         }
     }
 
+    @Override
+    public Optional<String> getTableVersionToken(Session session, TableHandle tableHandle)
+    {
+        ConnectorId connectorId = tableHandle.getConnectorId();
+        ConnectorMetadata metadata = getMetadata(session, connectorId);
+        return metadata.getTableVersionToken(session.toConnectorSession(connectorId), tableHandle.getConnectorHandle(), tableHandle.getLayout());
+    }
+
     @Override
     public Map<String, ColumnHandle> getColumnHandles(Session session, TableHandle tableHandle)
     {
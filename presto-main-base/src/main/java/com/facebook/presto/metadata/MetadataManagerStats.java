@@ -132,6 +132,7 @@ public class MetadataManagerStats
     private final AtomicLong normalizeIdentifierCalls = new AtomicLong();
     private final AtomicLong getTableLayoutFilterCoverageCalls = new AtomicLong();
     private final AtomicLong getTableStatisticsCalls = new AtomicLong();
+    private final AtomicLong getTableVersionTokenCalls = new AtomicLong();
     private final AtomicLong getCatalogNamesWithConnectorContextCalls = new AtomicLong();
     private final AtomicLong isPushdownSupportedForFilterCalls = new AtomicLong();
     private final TimeStat applyTableFunctionTime = new TimeStat(TimeUnit.NANOSECONDS);
@@ -244,6 +245,7 @@ public class MetadataManagerStats
     private final TimeStat normalizeIdentifierTime = new TimeStat(TimeUnit.NANOSECONDS);
     private final TimeStat getTableLayoutFilterCoverageTime = new TimeStat(TimeUnit.NANOSECONDS);
     private final TimeStat getTableStatisticsTime = new TimeStat(TimeUnit.NANOSECONDS);
+    private final TimeStat getTableVersionTokenTime = new TimeStat(TimeUnit.NANOSECONDS);
     private final TimeStat getCatalogNamesWithConnectorContextTime = new TimeStat(TimeUnit.NANOSECONDS);
     private final TimeStat isPushdownSupportedForFilterTime = new TimeStat(TimeUnit.NANOSECONDS);
 
@@ -421,6 +423,12 @@ public class MetadataManagerStats
         return getTableStatisticsCalls.get();
     }
 
+    @Managed
+    public long getGetTableVersionTokenCalls()
+    {
+        return getTableVersionTokenCalls.get();
+    }
+
     @Managed
     @Nested
     public TimeStat getApplyTableFunctionTime()
@@ -1177,6 +1185,13 @@ public class MetadataManagerStats
         return getTableStatisticsTime;
     }
 
+    @Managed
+    @Nested
+    public TimeStat getGetTableVersionTokenTime()
+    {
+        return getTableVersionTokenTime;
+    }
+
     public void recordApplyTableFunctionCall(long duration)
     {
         applyTableFunctionCalls.incrementAndGet();
@@ -1837,6 +1852,12 @@ public class MetadataManagerStats
         getTableStatisticsTime.add(duration, TimeUnit.NANOSECONDS);
     }
 
+    public void recordGetTableVersionTokenCall(long duration)
+    {
+        getTableVersionTokenCalls.incrementAndGet();
+        getTableVersionTokenTime.add(duration, TimeUnit.NANOSECONDS);
+    }
+
     @Managed
     public long getGetCatalogNamesWithConnectorContextCalls()
     {
@@ -1422,6 +1422,18 @@ public class StatsRecordingMetadataManager
         }
     }
 
+    @Override
+    public Optional<String> getTableVersionToken(Session session, TableHandle tableHandle)
+    {
+        long startTime = System.nanoTime();
+        try {
+            return delegate.getTableVersionToken(session, tableHandle);
+        }
+        finally {
+            stats.recordGetTableVersionTokenCall(System.nanoTime() - startTime);
+        }
+    }
+
     @Override
     public List<QualifiedObjectName> listTables(Session session, QualifiedTablePrefix prefix)
     {
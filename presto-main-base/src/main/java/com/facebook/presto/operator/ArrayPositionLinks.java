@@ -33,7 +33,8 @@ public final class ArrayPositionLinks
             implements PositionLinks.FactoryBuilder
     {
         private final int[] positionLinks;
-        private int size;
+        // only tracks emptiness, so concurrent links can not lose an update that matters
+        private volatile boolean empty = true;
 
         private FactoryBuilder(int size)
         {
@@ -44,7 +45,9 @@ public final class ArrayPositionLinks
         @Override
         public int link(int left, int right)
         {
-            size++;
+            if (empty) {
+                empty = false;
+            }
             positionLinks[left] = right;
             return left;
         }
@@ -71,7 +74,13 @@ public final class ArrayPositionLinks
         @Override
         public boolean isEmpty()
         {
-            return size == 0;
+            return empty;
+        }
+
+        @Override
+        public boolean supportsConcurrentLinking()
+        {
+            return true;
         }
     }
 
@@ -0,0 +1,219 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.common.PageBuilder;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.LazyBlock;
+import com.facebook.presto.common.type.Type;
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.annotations.ThreadSafe;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+import jakarta.annotation.Nullable;
+
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Build side rows of a single lookup join output page, kept as join positions until one of the build
+ * columns is accessed. When a downstream operator selects some positions of a build column, e.g. after
+ * a filter on the probe columns, only the selected rows are copied. All the build columns are copied
+ * together on any other access, or earlier when the lookup source is about to be released,
+ * see {@link LookupJoinPageBuilder#materializePendingBuildRows()}.
+ * <p>
+ * The lazy blocks may be loaded by a downstream operator running in another thread, hence the synchronization.
+ */
+@ThreadSafe
+public final class DeferredBuildRows
+{
+    private final List<Type> buildTypes;
+    private final int positionCount;
+    private final long estimatedSizeInBytes;
+
+    @GuardedBy("this")
+    @Nullable
+    private LookupSource lookupSource;
+    // a negative join position stands for a null build row
+    @GuardedBy("this")
+    @Nullable
+    private long[] joinPositions;
+    @GuardedBy("this")
+    @Nullable
+    private Block[] blocks;
+
+    // the rows copied for the last selection, which is usually requested for every build column in turn
+    @GuardedBy("this")
+    @Nullable
+    private int[] selectedPositions;
+    @GuardedBy("this")
+    private int selectedOffset;
+    @GuardedBy("this")
+    private int selectedLength;
+    @GuardedBy("this")
+    @Nullable
+    private Block[] selectedBlocks;
+
+    public DeferredBuildRows(List<Type> buildTypes, @Nullable LookupSource lookupSource, long[] joinPositions, long estimatedSizeInBytes)
+    {
+        this.buildTypes = ImmutableList.copyOf(requireNonNull(buildTypes, "buildTypes is null"));
+        this.lookupSource = lookupSource;
+        this.joinPositions = requireNonNull(joinPositions, "joinPositions is null");
+        this.positionCount = joinPositions.length;
+        this.estimatedSizeInBytes = estimatedSizeInBytes;
+    }
+
+    public Block[] createLazyBlocks()
+    {
+        Block[] lazyBlocks = new Block[buildTypes.size()];
+        for (int channel = 0; channel < lazyBlocks.length; channel++) {
+            lazyBlocks[channel] = new DeferredBuildBlock(this, channel);
+        }
+        return lazyBlocks;
+    }
+
+    public synchronized boolean isMaterialized()
+    {
+        return blocks != null;
+    }
+
+    public synchronized void materialize()
+    {
+        if (blocks != null) {
+            return;
+        }
+
+        blocks = copyRows(null, 0, positionCount);
+        // let the lookup source go
+        lookupSource = null;
+        joinPositions = null;
+        selectedPositions = null;
+        selectedBlocks = null;
+    }
+
+    /**
+     * Tells whether the block is a build column of deferred build rows, which copies only the rows a positional access selects.
+     */
+    public static boolean isDeferredBuildBlock(Block block)
+    {
+        return block instanceof DeferredBuildBlock;
+    }
+
+    private synchronized Block getBlock(int channel)
+    {
+        materialize();
+        return blocks[channel];
+    }
+
+    /**
+     * @param positions the selected positions, or null to select the region starting at offset
+     * @return the copied rows, or null when all the rows are materialized already
+     */
+    @Nullable
+    private synchronized Block getSelectedRows(int channel, @Nullable int[] positions, int offset, int length)
+    {
+        if (positions == null && offset == 0 && length == positionCount) {
+            materialize();
+        }
+        if (blocks != null) {
+            return null;
+        }
+        if (selectedBlocks == null || selectedPositions != positions || selectedOffset != offset || selectedLength != length) {
+            selectedBlocks = copyRows(positions, offset, length);
+            selectedPositions = positions;
+            selectedOffset = offset;
+            selectedLength = length;
+        }
+        return selectedBlocks[channel];
+    }
+
+    @GuardedBy("this")
+    private Block[] copyRows(@Nullable int[] positions, int offset, int length)
+    {
+        PageBuilder pageBuilder = new PageBuilder(length, buildTypes);
+        for (int i = offset; i < offset + length; i++) {
+            long joinPosition = joinPositions[positions == null ? i : positions[i]];
+            pageBuilder.declarePosition();
+            if (joinPosition < 0) {
+                for (int channel = 0; channel < buildTypes.size(); channel++) {
+                    pageBuilder.getBlockBuilder(channel).appendNull();
+                }
+            }
+            else {
+                checkState(lookupSource != null, "lookupSource is null but join position %s is set", joinPosition);
+                lookupSource.appendTo(joinPosition, pageBuilder, 0);
+            }
+        }
+
+        Block[] rows = new Block[buildTypes.size()];
+        for (int channel = 0; channel < rows.length; channel++) {
+            rows[channel] = pageBuilder.getBlockBuilder(channel).build();
+        }
+        return rows;
+    }
+
+    /**
+     * Copies only the selected rows for the positional accesses, and all the rows for any other access.
+     */
+    static final class DeferredBuildBlock
+            extends LazyBlock
+    {
+        private final DeferredBuildRows rows;
+        private final int channel;
+
+        private DeferredBuildBlock(DeferredBuildRows rows, int channel)
+        {
+            super(rows.positionCount, lazyBlock -> lazyBlock.setBlock(rows.getBlock(channel)));
+            this.rows = rows;
+            this.channel = channel;
+        }
+
+        /**
+         * The size the block is expected to have once loaded, the build rows are not copied yet.
+         */
+        public long getEstimatedSizeInBytes()
+        {
+            return rows.estimatedSizeInBytes / rows.buildTypes.size();
+        }
+
+        @Override
+        public Block getPositions(int[] positions, int offset, int length)
+        {
+            Block selected = isLoaded() ? null : rows.getSelectedRows(channel, positions, offset, length);
+            return selected != null ? selected : super.getPositions(positions, offset, length);
+        }
+
+        @Override
+        public Block copyPositions(int[] positions, int offset, int length)
+        {
+            Block selected = isLoaded() ? null : rows.getSelectedRows(channel, positions, offset, length);
+            return selected != null ? selected : super.copyPositions(positions, offset, length);
+        }
+
+        @Override
+        public Block getRegion(int positionOffset, int length)
+        {
+            Block selected = isLoaded() ? null : rows.getSelectedRows(channel, null, positionOffset, length);
+            return selected != null ? selected : super.getRegion(positionOffset, length);
+        }
+
+        @Override
+        public Block copyRegion(int positionOffset, int length)
+        {
+            Block selected = isLoaded() ? null : rows.getSelectedRows(channel, null, positionOffset, length);
+            return selected != null ? selected : super.copyRegion(positionOffset, length);
+        }
+    }
+}
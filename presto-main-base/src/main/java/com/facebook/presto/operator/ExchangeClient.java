@@ -21,7 +21,9 @@ import com.facebook.presto.operator.PageBufferClient.ClientCallback;
 import com.facebook.presto.operator.WorkProcessor.ProcessState;
 import com.facebook.presto.spi.page.PageCodecMarker;
 import com.facebook.presto.spi.page.SerializedPage;
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.SetMultimap;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 import com.google.errorprone.annotations.ThreadSafe;
@@ -32,8 +34,11 @@ import java.io.Closeable;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -45,6 +50,7 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import static com.facebook.airlift.units.DataSize.Unit.BYTE;
 import static com.facebook.presto.common.block.PageBuilderStatus.DEFAULT_MAX_PAGE_SIZE_IN_BYTES;
+import static com.facebook.presto.execution.SqlStageExecution.DEFAULT_TASK_ATTEMPT_NUMBER;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Throwables.throwIfUnchecked;
@@ -89,6 +95,20 @@ public class ExchangeClient
     private final ConcurrentMap<TaskId, URI> taskIdToLocationMap = new ConcurrentHashMap<>();
     private final Set<TaskId> removedRemoteSourceTaskIds = ConcurrentHashMap.newKeySet();
 
+    // Speculative execution may run several attempts of the same remote task. Each attempt produces the same
+    // output, so the first attempt that delivers data (or finishes) is read and the other attempts are dropped.
+    // The attempts of a task are tracked until the attempt being read finishes, after which only the task id is kept.
+    @GuardedBy("this")
+    private boolean taskAttemptDeduplicationEnabled;
+    @GuardedBy("this")
+    private final Map<PageBufferClient, TaskId> clientTaskIds = new HashMap<>();
+    @GuardedBy("this")
+    private final SetMultimap<TaskId, PageBufferClient> taskAttemptClients = HashMultimap.create();
+    @GuardedBy("this")
+    private final Map<TaskId, PageBufferClient> committedTaskAttempts = new HashMap<>();
+    @GuardedBy("this")
+    private final Set<TaskId> settledTaskIds = new HashSet<>();
+
     @GuardedBy("this")
     private final Deque<PageBufferClient> queuedClients = new LinkedList<>();
 
@@ -193,11 +213,35 @@ public class ExchangeClient
                 pageBufferClientCallbackExecutor);
         allClients.put(location, client);
         checkState(taskIdToLocationMap.put(remoteSourceTaskId, location) == null, "Duplicate remoteSourceTaskId: " + remoteSourceTaskId);
-        queuedClients.add(client);
+
+        TaskId logicalTaskId = getLogicalTaskId(remoteSourceTaskId);
+        if (!taskAttemptDeduplicationEnabled) {
+            queuedClients.add(client);
+        }
+        else if (committedTaskAttempts.containsKey(logicalTaskId) || settledTaskIds.contains(logicalTaskId)) {
+            // another attempt of this task is or was already read, release the output of this one
+            dropTaskAttempt(client);
+        }
+        else {
+            clientTaskIds.put(client, logicalTaskId);
+            taskAttemptClients.put(logicalTaskId, client);
+            queuedClients.add(client);
+        }
 
         scheduleRequestIfNecessary();
     }
 
+    /**
+     * Reads each remote task from only the first of its attempts that delivers pages or finishes, and drops the
+     * other attempts. Only needed when speculative execution may run several attempts of a task, and must be
+     * enabled before any location is added.
+     */
+    public synchronized void enableTaskAttemptDeduplication()
+    {
+        checkState(allClients.isEmpty(), "Task attempt deduplication must be enabled before locations are added");
+        taskAttemptDeduplicationEnabled = true;
+    }
+
     public synchronized void removeRemoteSource(TaskId sourceTaskId)
     {
         requireNonNull(sourceTaskId, "sourceTaskId is null");
@@ -222,6 +266,10 @@ public class ExchangeClient
         closeQuietly(client);
         removedClients.add(client);
         completedClients.add(client);
+        TaskId logicalTaskId = clientTaskIds.remove(client);
+        if (logicalTaskId != null) {
+            taskAttemptClients.remove(logicalTaskId, client);
+        }
     }
 
     public synchronized void noMoreLocations()
@@ -313,6 +361,10 @@ public class ExchangeClient
         pageBuffer.clear();
         systemMemoryContext.setBytes(0);
         bufferRetainedSizeInBytes = 0;
+        clientTaskIds.clear();
+        taskAttemptClients.clear();
+        committedTaskAttempts.clear();
+        settledTaskIds.clear();
         if (pageBuffer.peekLast() != NO_MORE_PAGES) {
             checkState(pageBuffer.add(NO_MORE_PAGES), "Could not add no more pages marker");
         }
@@ -382,7 +434,7 @@ public class ExchangeClient
         }
     }
 
-    private boolean addPages(List<SerializedPage> pages)
+    private boolean addPages(PageBufferClient client, List<SerializedPage> pages)
     {
         // Compute stats before acquiring the lock
         long pagesRetainedSizeInBytes = 0;
@@ -398,6 +450,10 @@ public class ExchangeClient
                 return false;
             }
 
+            if (!acceptTaskAttempt(client, !pages.isEmpty())) {
+                return false;
+            }
+
             if (!pages.isEmpty()) {
                 pageBuffer.addAll(pages);
 
@@ -448,10 +504,78 @@ public class ExchangeClient
     private synchronized void clientFinished(PageBufferClient client)
     {
         requireNonNull(client, "client is null");
+        if (taskAttemptDeduplicationEnabled && !removedClients.contains(client)) {
+            // an attempt that finished without producing pages still settles the task
+            acceptTaskAttempt(client, true);
+            forgetTaskAttempts(client);
+        }
         completedClients.add(client);
         scheduleRequestIfNecessary();
     }
 
+    @GuardedBy("this")
+    private boolean acceptTaskAttempt(PageBufferClient client, boolean commit)
+    {
+        if (!taskAttemptDeduplicationEnabled) {
+            return true;
+        }
+        if (removedClients.contains(client)) {
+            // a response of a dropped attempt that was already in flight
+            return false;
+        }
+        TaskId logicalTaskId = clientTaskIds.get(client);
+        if (logicalTaskId == null) {
+            return true;
+        }
+        PageBufferClient committedClient = committedTaskAttempts.get(logicalTaskId);
+        if (committedClient != null) {
+            return committedClient == client;
+        }
+        if (commit) {
+            committedTaskAttempts.put(logicalTaskId, client);
+            for (PageBufferClient attempt : taskAttemptClients.get(logicalTaskId)) {
+                if (attempt != client) {
+                    dropTaskAttempt(attempt);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Forgets the attempts of the task once the attempt being read finished. The other attempts were dropped
+     * when it was committed, and attempts added later are dropped as the task is settled.
+     */
+    @GuardedBy("this")
+    private void forgetTaskAttempts(PageBufferClient client)
+    {
+        TaskId logicalTaskId = clientTaskIds.get(client);
+        if (logicalTaskId == null || committedTaskAttempts.get(logicalTaskId) != client) {
+            return;
+        }
+        for (PageBufferClient attempt : taskAttemptClients.removeAll(logicalTaskId)) {
+            clientTaskIds.remove(attempt);
+        }
+        committedTaskAttempts.remove(logicalTaskId);
+        settledTaskIds.add(logicalTaskId);
+    }
+
+    @GuardedBy("this")
+    private void dropTaskAttempt(PageBufferClient client)
+    {
+        if (!removedClients.add(client)) {
+            return;
+        }
+        // closing the client deletes the buffer of this consumer on the dropped attempt
+        closeQuietly(client);
+        completedClients.add(client);
+    }
+
+    private static TaskId getLogicalTaskId(TaskId taskId)
+    {
+        return new TaskId(taskId.getStageExecutionId(), taskId.getId(), DEFAULT_TASK_ATTEMPT_NUMBER);
+    }
+
     private synchronized void clientFailed(PageBufferClient client, Throwable cause)
     {
         // ignore failure for removed clients
@@ -489,7 +613,7 @@ public class ExchangeClient
         {
             requireNonNull(client, "client is null");
             requireNonNull(pages, "pages is null");
-            return ExchangeClient.this.addPages(pages);
+            return ExchangeClient.this.addPages(client, pages);
         }
 
         @Override
@@ -29,6 +29,7 @@ import java.io.Closeable;
 import java.util.Optional;
 import java.util.function.Supplier;
 
+import static com.facebook.presto.SystemSessionProperties.isSpeculativeExecutionEnabled;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static java.util.Objects.requireNonNull;
@@ -73,6 +74,9 @@ public class ExchangeOperator
             OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, sourceId, ExchangeOperator.class.getSimpleName());
             if (exchangeClient == null) {
                 exchangeClient = taskExchangeClientManager.createExchangeClient(driverContext.getPipelineContext().localSystemMemoryContext());
+                if (isSpeculativeExecutionEnabled(driverContext.getSession())) {
+                    exchangeClient.enableTaskAttemptDeduplication();
+                }
             }
 
             return new ExchangeOperator(
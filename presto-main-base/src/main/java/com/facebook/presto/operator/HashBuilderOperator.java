@@ -14,7 +14,10 @@
 package com.facebook.presto.operator;
 
 import com.facebook.airlift.log.Logger;
+import com.facebook.presto.Session;
 import com.facebook.presto.common.Page;
+import com.facebook.presto.common.RuntimeStats;
+import com.facebook.presto.common.type.Type;
 import com.facebook.presto.execution.Lifespan;
 import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.spi.ErrorCause;
@@ -38,18 +41,31 @@ import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
 import java.util.Queue;
+import java.util.concurrent.Executor;
 
 import static com.facebook.airlift.concurrent.MoreFutures.getDone;
 import static com.facebook.airlift.units.DataSize.succinctBytes;
 import static com.facebook.presto.ExceededMemoryLimitException.exceededLocalUserMemoryLimit;
+import static com.facebook.presto.SystemSessionProperties.getJoinUnspillMemoryLimit;
 import static com.facebook.presto.SystemSessionProperties.getQueryMaxMemoryPerNode;
+import static com.facebook.presto.common.RuntimeMetricName.HASH_BUILD_HASHING_TIME_NANOS;
+import static com.facebook.presto.common.RuntimeMetricName.HASH_BUILD_INSERT_TIME_NANOS;
+import static com.facebook.presto.common.RuntimeMetricName.HASH_BUILD_SPILLED_PARTITION_CHUNKED_LEAVES;
+import static com.facebook.presto.common.RuntimeMetricName.HASH_BUILD_SPILLED_PARTITION_ROUNDS;
+import static com.facebook.presto.common.RuntimeMetricName.HASH_BUILD_SPILLED_PARTITION_SPLIT_TIME_NANOS;
+import static com.facebook.presto.common.RuntimeMetricName.HASH_BUILD_THREADS;
+import static com.facebook.presto.common.RuntimeMetricName.HASH_BUILD_WALL_TIME_NANOS;
+import static com.facebook.presto.common.RuntimeUnit.NANO;
+import static com.facebook.presto.common.RuntimeUnit.NONE;
 import static com.facebook.presto.operator.SpillingUtils.checkSpillSucceeded;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.IntStream.range;
 
 @ThreadSafe
 public class HashBuilderOperator
@@ -75,6 +91,7 @@ public class HashBuilderOperator
         private final int expectedPositions;
         private final boolean spillEnabled;
         private final SingleStreamSpillerFactory singleStreamSpillerFactory;
+        private final Executor hashBuildExecutor;
 
         private final Map<Lifespan, Integer> partitionIndexManager = new HashMap<>();
 
@@ -95,7 +112,8 @@ public class HashBuilderOperator
                 PagesIndex.Factory pagesIndexFactory,
                 boolean spillEnabled,
                 SingleStreamSpillerFactory singleStreamSpillerFactory,
-                boolean enforceBroadcastMemoryLimit)
+                boolean enforceBroadcastMemoryLimit,
+                Executor hashBuildExecutor)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -116,6 +134,7 @@ public class HashBuilderOperator
 
             this.expectedPositions = expectedPositions;
             this.enforceBroadcastMemoryLimit = enforceBroadcastMemoryLimit;
+            this.hashBuildExecutor = requireNonNull(hashBuildExecutor, "hashBuildExecutor is null");
         }
 
         @Override
@@ -141,7 +160,8 @@ public class HashBuilderOperator
                     pagesIndexFactory,
                     spillEnabled,
                     singleStreamSpillerFactory,
-                    enforceBroadcastMemoryLimit);
+                    enforceBroadcastMemoryLimit,
+                    hashBuildExecutor);
         }
 
         @Override
@@ -180,6 +200,11 @@ public class HashBuilderOperator
          */
         LOOKUP_SOURCE_BUILT,
 
+        /**
+         * Input has been finished and spilled, but is too large to be unspilled at once and is being split into smaller partitions
+         */
+        INPUT_REPARTITIONING,
+
         /**
          * Input has been finished and spilled
          */
@@ -221,6 +246,7 @@ public class HashBuilderOperator
 
     private final boolean spillEnabled;
     private final SingleStreamSpillerFactory singleStreamSpillerFactory;
+    private final long maxUnspilledRoundSize;
 
     private final HashCollisionsCounter hashCollisionsCounter;
 
@@ -228,6 +254,9 @@ public class HashBuilderOperator
     private Optional<ListenableFuture<?>> lookupSourceNotNeeded = Optional.empty();
     private final SpilledLookupSourceHandle spilledLookupSourceHandle = new SpilledLookupSourceHandle();
     private Optional<SingleStreamSpiller> spiller = Optional.empty();
+    private Optional<SpilledPartitionSplitter> splitter = Optional.empty();
+    private long splitStartNanos;
+    private int unspilledRound;
     private ListenableFuture<?> spillInProgress = NOT_BLOCKED;
     private Optional<ListenableFuture<List<Page>>> unspillInProgress = Optional.empty();
     @Nullable
@@ -237,6 +266,7 @@ public class HashBuilderOperator
     private Optional<Runnable> finishMemoryRevoke = Optional.empty();
 
     private final boolean enforceBroadcastMemoryLimit;
+    private final Executor hashBuildExecutor;
 
     public HashBuilderOperator(
             OperatorContext operatorContext,
@@ -252,7 +282,8 @@ public class HashBuilderOperator
             PagesIndex.Factory pagesIndexFactory,
             boolean spillEnabled,
             SingleStreamSpillerFactory singleStreamSpillerFactory,
-            boolean enforceBroadcastMemoryLimit)
+            boolean enforceBroadcastMemoryLimit,
+            Executor hashBuildExecutor)
     {
         requireNonNull(pagesIndexFactory, "pagesIndexFactory is null");
 
@@ -277,7 +308,10 @@ public class HashBuilderOperator
 
         this.spillEnabled = spillEnabled;
         this.singleStreamSpillerFactory = requireNonNull(singleStreamSpillerFactory, "singleStreamSpillerFactory is null");
+        Session session = operatorContext.getSession();
+        this.maxUnspilledRoundSize = Math.min(getJoinUnspillMemoryLimit(session).toBytes(), getQueryMaxMemoryPerNode(session).toBytes());
         this.enforceBroadcastMemoryLimit = enforceBroadcastMemoryLimit;
+        this.hashBuildExecutor = requireNonNull(hashBuildExecutor, "hashBuildExecutor is null");
     }
 
     @Override
@@ -305,14 +339,17 @@ public class HashBuilderOperator
             case LOOKUP_SOURCE_BUILT:
                 return lookupSourceNotNeeded.orElseThrow(() -> new IllegalStateException("Lookup source built, but disposal future not set"));
 
+            case INPUT_REPARTITIONING:
+                return spillInProgress;
+
             case INPUT_SPILLED:
-                return spilledLookupSourceHandle.getUnspillingOrDisposeRequested();
+                return spilledLookupSourceHandle.getUnspillingOrDisposeRequested(unspilledRound);
 
             case INPUT_UNSPILLING:
                 return unspillInProgress.orElseThrow(() -> new IllegalStateException("Unspilling in progress, but unspilling future not set"));
 
             case INPUT_UNSPILLED_AND_BUILT:
-                return spilledLookupSourceHandle.getDisposeRequested();
+                return spilledLookupSourceHandle.getDisposeRequested(unspilledRound);
 
             case CLOSED:
                 return NOT_BLOCKED;
@@ -369,15 +406,7 @@ public class HashBuilderOperator
         checkState(spillInProgress.isDone(), "Previous spill still in progress");
         checkSpillSucceeded(spillInProgress);
         long sizeOfPage = page.getSizeInBytes();
-
-        // check that spilled data can still fit into memory limit as otherwise
-        // it fails later during unspilling when all spilled pages need to be loaded into memory
-        long maxUserMemoryBytes = getQueryMaxMemoryPerNode(operatorContext.getSession()).toBytes();
         long totalSpilledBytes = sizeOfPage + getSpiller().getSpilledPagesInMemorySize();
-        if (totalSpilledBytes > maxUserMemoryBytes) {
-            String additionalInfo = format("Spilled: %s, Operator: %s", succinctBytes(totalSpilledBytes), HashBuilderOperator.class.getSimpleName());
-            throw exceededLocalUserMemoryLimit(succinctBytes(maxUserMemoryBytes), additionalInfo, false, Optional.empty(), ErrorCause.UNKNOWN);
-        }
 
         spillInProgress = getSpiller().spill(page);
         long retainedSizeOfPage = page.getRetainedSizeInBytes();
@@ -421,6 +450,9 @@ public class HashBuilderOperator
                 localRevocableMemoryContext.setBytes(0);
                 lookupSourceChecksum = OptionalLong.of(lookupSourceSupplier.checksum());
                 lookupSourceSupplier = null;
+                // The partition has already been built in memory once, so it is unspilled in a single round.
+                // It is also the only kind of partition for which the probe side may have saved rows.
+                spilledLookupSourceHandle.setLayout(SpilledPartitionLayout.singleRound());
                 state = State.INPUT_SPILLED;
             });
             return spillIndex();
@@ -491,9 +523,14 @@ public class HashBuilderOperator
                 finishSpilledInput();
                 return;
 
+            case INPUT_REPARTITIONING:
+                repartitionSpilledInput();
+                return;
+
             case INPUT_SPILLED:
-                if (spilledLookupSourceHandle.getDisposeRequested().isDone()) {
+                if (spilledLookupSourceHandle.getDisposeRequested(unspilledRound).isDone()) {
                     close();
+                    spilledLookupSourceHandle.setDisposeCompleted();
                 }
                 else {
                     unspillLookupSourceIfRequested();
@@ -559,13 +596,72 @@ public class HashBuilderOperator
             return;
         }
         checkSpillSucceeded(spillInProgress);
+
+        long spilledSize = getSpiller().getSpilledPagesInMemorySize();
+        if (!SpilledPartitionSplitter.needsSplitting(spilledSize, maxUnspilledRoundSize)) {
+            spilledLookupSourceHandle.setLayout(SpilledPartitionLayout.singleRound());
+            state = State.INPUT_SPILLED;
+            return;
+        }
+
+        log.debug("Splitting spilled partition %d of operator %s, spilled size %s, unspill limit %s", partitionIndex, operatorContext, succinctBytes(spilledSize), succinctBytes(maxUnspilledRoundSize));
+        splitStartNanos = System.nanoTime();
+        splitter = Optional.of(new SpilledPartitionSplitter(
+                index.getTypes(),
+                createHashGenerator(),
+                singleStreamSpillerFactory,
+                operatorContext.getSpillContext(),
+                operatorContext.aggregateSystemMemoryContext(),
+                maxUnspilledRoundSize,
+                getSpiller().getSpilledPages(),
+                spilledSize));
+        state = State.INPUT_REPARTITIONING;
+    }
+
+    private HashGenerator createHashGenerator()
+    {
+        // must agree with the hash generator of the probe side
+        if (preComputedHashChannel.isPresent()) {
+            return new PrecomputedHashGenerator(preComputedHashChannel.getAsInt());
+        }
+        List<Type> hashTypes = hashChannels.stream()
+                .map(index.getTypes()::get)
+                .collect(toImmutableList());
+        return new InterpretedHashGenerator(hashTypes, hashChannels);
+    }
+
+    private void repartitionSpilledInput()
+    {
+        checkState(state == State.INPUT_REPARTITIONING);
+        if (!spillInProgress.isDone()) {
+            return;
+        }
+        checkSpillSucceeded(spillInProgress);
+
+        SpilledPartitionSplitter splitter = this.splitter.orElseThrow(() -> new IllegalStateException("Splitter not created"));
+        if (!splitter.isFinished()) {
+            spillInProgress = splitter.process();
+            if (!splitter.isFinished()) {
+                return;
+            }
+        }
+
+        SpilledPartitionLayout layout = splitter.getLayout();
+        RuntimeStats runtimeStats = operatorContext.getRuntimeStats();
+        runtimeStats.addMetricValue(HASH_BUILD_SPILLED_PARTITION_SPLIT_TIME_NANOS, NANO, System.nanoTime() - splitStartNanos);
+        runtimeStats.addMetricValue(HASH_BUILD_SPILLED_PARTITION_ROUNDS, NONE, layout.getRoundCount());
+        runtimeStats.addMetricValue(HASH_BUILD_SPILLED_PARTITION_CHUNKED_LEAVES, NONE, range(0, layout.getLeafCount())
+                .filter(leaf -> layout.getChunkCount(leaf) > 1)
+                .count());
+        log.debug("Split spilled partition %d of operator %s: %s", partitionIndex, operatorContext, layout);
+        spilledLookupSourceHandle.setLayout(layout);
         state = State.INPUT_SPILLED;
     }
 
     private void unspillLookupSourceIfRequested()
     {
         checkState(state == State.INPUT_SPILLED);
-        if (!spilledLookupSourceHandle.getUnspillingRequested().isDone()) {
+        if (!spilledLookupSourceHandle.getUnspillingRequested(unspilledRound).isDone()) {
             // Nothing to do yet.
             return;
         }
@@ -573,11 +669,19 @@ public class HashBuilderOperator
         verify(spiller.isPresent());
         verify(!unspillInProgress.isPresent());
 
-        long memorySizeOfSpillPages = getSpiller().getSpilledPagesInMemorySize();
         long estimatedSizeOfIndex = index.getEstimatedSize().toBytes();
-        log.debug("Unspilling lookup source for operator %s: memorySizeOfSpillPages: %s estimatedSizeOfIndex: %s", operatorContext, memorySizeOfSpillPages, estimatedSizeOfIndex);
-        localUserMemoryContext.setBytes(memorySizeOfSpillPages + estimatedSizeOfIndex, enforceBroadcastMemoryLimit);
-        unspillInProgress = Optional.of(getSpiller().getAllSpilledPages());
+        if (splitter.isPresent()) {
+            long memorySizeOfRoundPages = splitter.get().getRoundSizeInBytes(unspilledRound);
+            log.debug("Unspilling lookup source round %s for operator %s: memorySizeOfRoundPages: %s estimatedSizeOfIndex: %s", unspilledRound, operatorContext, memorySizeOfRoundPages, estimatedSizeOfIndex);
+            localUserMemoryContext.setBytes(memorySizeOfRoundPages + estimatedSizeOfIndex, enforceBroadcastMemoryLimit);
+            unspillInProgress = Optional.of(splitter.get().getRoundPages(unspilledRound));
+        }
+        else {
+            long memorySizeOfSpillPages = getSpiller().getSpilledPagesInMemorySize();
+            log.debug("Unspilling lookup source for operator %s: memorySizeOfSpillPages: %s estimatedSizeOfIndex: %s", operatorContext, memorySizeOfSpillPages, estimatedSizeOfIndex);
+            localUserMemoryContext.setBytes(memorySizeOfSpillPages + estimatedSizeOfIndex, enforceBroadcastMemoryLimit);
+            unspillInProgress = Optional.of(getSpiller().getAllSpilledPages());
+        }
 
         state = State.INPUT_UNSPILLING;
     }
@@ -616,6 +720,7 @@ public class HashBuilderOperator
         }
 
         LookupSourceSupplier partition = buildLookupSource();
+        // partitions spilled after being built are never split, so their checksum covers the single round
         lookupSourceChecksum.ifPresent(checksum ->
                 checkState(partition.checksum() == checksum, "Unspilled lookupSource checksum does not match original one"));
         localUserMemoryContext.setBytes(partition.get().getInMemorySizeInBytes(), enforceBroadcastMemoryLimit);
@@ -628,23 +733,41 @@ public class HashBuilderOperator
     private void disposeUnspilledLookupSourceIfRequested()
     {
         checkState(state == State.INPUT_UNSPILLED_AND_BUILT);
-        if (!spilledLookupSourceHandle.getDisposeRequested().isDone()) {
+        if (!spilledLookupSourceHandle.getDisposeRequested(unspilledRound).isDone()) {
             return;
         }
 
         index.clear();
         localUserMemoryContext.setBytes(index.getEstimatedSize().toBytes(), enforceBroadcastMemoryLimit);
+        lookupSourceSupplier = null;
 
-        close();
-        spilledLookupSourceHandle.setDisposeCompleted();
+        int disposedRound = unspilledRound;
+        if (spilledLookupSourceHandle.getDisposeRequested().isDone() || disposedRound + 1 == getDone(spilledLookupSourceHandle.getLayout()).getRoundCount()) {
+            close();
+            spilledLookupSourceHandle.setDisposeCompleted(disposedRound);
+            return;
+        }
+
+        // the next round can be requested as soon as this one is marked disposed, so the state is updated first
+        unspilledRound++;
+        state = State.INPUT_SPILLED;
+        if (!spilledLookupSourceHandle.setDisposeCompleted(disposedRound)) {
+            // the whole partition was disposed in the meantime
+            close();
+        }
     }
 
     private LookupSourceSupplier buildLookupSource()
     {
-        LookupSourceSupplier partition = index.createLookupSourceSupplier(operatorContext.getSession(), hashChannels, preComputedHashChannel, filterFunctionFactory, sortChannel, searchFunctionFactories, Optional.of(outputChannels));
+        LookupSourceSupplier partition = index.createLookupSourceSupplier(operatorContext.getSession(), hashChannels, preComputedHashChannel, filterFunctionFactory, sortChannel, searchFunctionFactories, Optional.of(outputChannels), Optional.of(hashBuildExecutor));
         hashCollisionsCounter.recordHashCollision(partition.getHashCollisions(), partition.getExpectedHashCollisions());
         operatorContext.recordNullJoinBuildKeyCount(partition.getPositionIsNullCount());
         operatorContext.recordJoinBuildKeyCount(partition.getPositionCount());
+        RuntimeStats runtimeStats = operatorContext.getRuntimeStats();
+        runtimeStats.addMetricValue(HASH_BUILD_THREADS, NONE, partition.getBuildThreads());
+        runtimeStats.addMetricValue(HASH_BUILD_WALL_TIME_NANOS, NANO, partition.getBuildWallNanos());
+        runtimeStats.addMetricValue(HASH_BUILD_HASHING_TIME_NANOS, NANO, partition.getBuildHashingNanos());
+        runtimeStats.addMetricValue(HASH_BUILD_INSERT_TIME_NANOS, NANO, partition.getBuildInsertNanos());
         checkState(lookupSourceSupplier == null, "lookupSourceSupplier is already set");
         this.lookupSourceSupplier = partition;
         return partition;
@@ -682,6 +805,7 @@ public class HashBuilderOperator
         try (Closer closer = Closer.create()) {
             closer.register(index::clear);
             spiller.ifPresent(closer::register);
+            splitter.ifPresent(closer::register);
             closer.register(() -> localUserMemoryContext.setBytes(0, enforceBroadcastMemoryLimit));
             closer.register(() -> localRevocableMemoryContext.setBytes(0));
         }
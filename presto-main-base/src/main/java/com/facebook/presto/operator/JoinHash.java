@@ -91,6 +91,22 @@ public final class JoinHash
         return startJoinPosition(addressIndex, position, allChannelsPage);
     }
 
+    @Override
+    public boolean isBatchLookupSupported()
+    {
+        return true;
+    }
+
+    @Override
+    public void getJoinPositions(int[] positions, int positionCount, Page hashChannelsPage, Page allChannelsPage, @Nullable long[] rawHashes, long[] joinPositions)
+    {
+        int[] addressIndexes = new int[positionCount];
+        pagesHash.getAddressIndexes(positions, positionCount, hashChannelsPage, rawHashes, addressIndexes);
+        for (int i = 0; i < positionCount; i++) {
+            joinPositions[positions[i]] = startJoinPosition(addressIndexes[i], positions[i], allChannelsPage);
+        }
+    }
+
     private long startJoinPosition(int currentJoinPosition, int probePosition, Page allProbeChannelsPage)
     {
         if (currentJoinPosition == -1) {
@@ -19,10 +19,13 @@ import com.facebook.presto.common.array.AdaptiveLongBigArray;
 import com.facebook.presto.common.block.Block;
 import com.facebook.presto.sql.gen.JoinFilterFunctionCompiler.JoinFilterFunctionFactory;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 
+import static com.facebook.presto.SystemSessionProperties.getHashBuildConcurrency;
 import static com.facebook.presto.SystemSessionProperties.isFastInequalityJoin;
 import static com.facebook.presto.operator.JoinUtils.channelsToPages;
 import static com.google.common.base.Preconditions.checkArgument;
@@ -48,7 +51,8 @@ public class JoinHashSupplier
             List<List<Block>> channels,
             Optional<JoinFilterFunctionFactory> filterFunctionFactory,
             Optional<Integer> sortChannel,
-            List<JoinFilterFunctionFactory> searchFunctionFactories)
+            List<JoinFilterFunctionFactory> searchFunctionFactories,
+            Optional<Executor> hashBuildExecutor)
     {
         this.session = requireNonNull(session, "session is null");
         this.addresses = requireNonNull(addresses, "addresses is null");
@@ -56,6 +60,7 @@ public class JoinHashSupplier
         this.searchFunctionFactories = ImmutableList.copyOf(searchFunctionFactories);
         requireNonNull(channels, "pages is null");
         requireNonNull(pagesHashStrategy, "pagesHashStrategy is null");
+        requireNonNull(hashBuildExecutor, "hashBuildExecutor is null");
 
         PositionLinks.FactoryBuilder positionLinksFactoryBuilder;
         if (sortChannel.isPresent() &&
@@ -71,7 +76,13 @@ public class JoinHashSupplier
         }
 
         this.pages = channelsToPages(channels);
-        this.pagesHash = new PagesHash(addresses, positionCount, pagesHashStrategy, positionLinksFactoryBuilder);
+        // without an executor for the extra build threads, the hash table is built on the calling thread only
+        int buildConcurrency = hashBuildExecutor.isPresent() ? getHashBuildConcurrency(session) : 1;
+        if (buildConcurrency > 1) {
+            // lazy blocks are not safe to load from several threads, load them before the build threads start
+            channels.forEach(blocks -> blocks.forEach(Block::getLoadedBlock));
+        }
+        this.pagesHash = new PagesHash(addresses, positionCount, pagesHashStrategy, positionLinksFactoryBuilder, buildConcurrency, hashBuildExecutor.orElseGet(MoreExecutors::directExecutor));
         this.positionLinks = positionLinksFactoryBuilder.isEmpty() ? Optional.empty() : Optional.of(positionLinksFactoryBuilder.build());
     }
 
@@ -99,6 +110,30 @@ public class JoinHashSupplier
         return pagesHash.getExpectedHashCollisions();
     }
 
+    @Override
+    public int getBuildThreads()
+    {
+        return pagesHash.getBuildThreads();
+    }
+
+    @Override
+    public long getBuildWallNanos()
+    {
+        return pagesHash.getBuildWallNanos();
+    }
+
+    @Override
+    public long getBuildHashingNanos()
+    {
+        return pagesHash.getBuildHashingNanos();
+    }
+
+    @Override
+    public long getBuildInsertNanos()
+    {
+        return pagesHash.getBuildInsertNanos();
+    }
+
     @Override
     public long checksum()
     {
@@ -25,6 +25,9 @@ import static com.facebook.presto.common.type.BigintType.BIGINT;
 
 public class JoinProbe
 {
+    // marks rows with a null join key in the batched join positions
+    private static final long NULL_JOIN_KEY = -2;
+
     public static class JoinProbeFactory
     {
         private final int[] probeOutputChannels;
@@ -55,6 +58,8 @@ public class JoinProbe
 
     private int position = -1;
     private int nullRowCount;
+    @Nullable
+    private long[] joinPositions;
 
     private JoinProbe(int[] probeOutputChannels, Page page, Page probePage, @Nullable Block probeHashBlock)
     {
@@ -78,7 +83,19 @@ public class JoinProbe
 
     public long getCurrentJoinPosition(LookupSource lookupSource)
     {
-        if (probeMayHaveNull && currentRowContainsNull()) {
+        if (joinPositions == null && lookupSource.isBatchLookupSupported()) {
+            joinPositions = lookupJoinPositions(lookupSource);
+        }
+        if (joinPositions != null) {
+            long joinPosition = joinPositions[position];
+            if (joinPosition == NULL_JOIN_KEY) {
+                ++nullRowCount;
+                return -1;
+            }
+            return joinPosition;
+        }
+
+        if (probeMayHaveNull && rowContainsNull(position)) {
             ++nullRowCount;
             return -1;
         }
@@ -99,7 +116,36 @@ public class JoinProbe
         return page;
     }
 
-    private boolean currentRowContainsNull()
+    /**
+     * Looks up the join positions of all rows of the page with one batched call, so the
+     * lookup source can overlap the hash table accesses of independent rows.
+     */
+    private long[] lookupJoinPositions(LookupSource lookupSource)
+    {
+        long[] joinPositions = new long[positionCount];
+        int[] positions = new int[positionCount];
+        int count = 0;
+        for (int position = 0; position < positionCount; position++) {
+            if (probeMayHaveNull && rowContainsNull(position)) {
+                joinPositions[position] = NULL_JOIN_KEY;
+            }
+            else {
+                positions[count++] = position;
+            }
+        }
+
+        long[] rawHashes = null;
+        if (probeHashBlock != null) {
+            rawHashes = new long[positionCount];
+            for (int i = 0; i < count; i++) {
+                rawHashes[positions[i]] = BIGINT.getLong(probeHashBlock, positions[i]);
+            }
+        }
+        lookupSource.getJoinPositions(positions, count, probePage, page, rawHashes, joinPositions);
+        return joinPositions;
+    }
+
+    private boolean rowContainsNull(int position)
     {
         for (int i = 0; i < probePage.getChannelCount(); i++) {
             if (probePage.getBlock(i).isNull(position)) {
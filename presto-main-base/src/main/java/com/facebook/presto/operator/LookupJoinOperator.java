@@ -13,8 +13,10 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.Session;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.type.Type;
+import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.operator.JoinProbe.JoinProbeFactory;
 import com.facebook.presto.operator.LookupJoinOperators.JoinType;
 import com.facebook.presto.operator.LookupSourceProvider.LookupSourceLease;
@@ -29,6 +31,8 @@ import com.google.common.util.concurrent.ListenableFuture;
 import jakarta.annotation.Nullable;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -40,6 +44,9 @@ import java.util.function.Supplier;
 
 import static com.facebook.airlift.concurrent.MoreFutures.addSuccessCallback;
 import static com.facebook.airlift.concurrent.MoreFutures.getDone;
+import static com.facebook.presto.SystemSessionProperties.isJoinLateMaterializationEnabled;
+import static com.facebook.presto.SystemSessionProperties.isJoinSpillingEnabled;
+import static com.facebook.presto.SystemSessionProperties.isSpillEnabled;
 import static com.facebook.presto.operator.LookupJoinOperators.JoinType.FULL_OUTER;
 import static com.facebook.presto.operator.LookupJoinOperators.JoinType.PROBE_OUTER;
 import static com.facebook.presto.operator.SpillingUtils.checkSpillSucceeded;
@@ -52,6 +59,21 @@ import static java.util.Objects.requireNonNull;
 public class LookupJoinOperator
         implements Operator
 {
+    private static final PartitionFunction SINGLE_PARTITION = new PartitionFunction()
+    {
+        @Override
+        public int getPartitionCount()
+        {
+            return 1;
+        }
+
+        @Override
+        public int getPartition(Page page, int position)
+        {
+            return 0;
+        }
+    };
+
     private final OperatorContext operatorContext;
     private final List<Type> probeTypes;
     private final JoinProbeFactory joinProbeFactory;
@@ -94,6 +116,23 @@ public class LookupJoinOperator
     private Optional<Partition<Supplier<LookupSource>>> currentPartition = Optional.empty();
     private Optional<ListenableFuture<Supplier<LookupSource>>> unspilledLookupSource = Optional.empty();
     private Iterator<Page> unspilledInputPages = emptyIterator();
+    @Nullable
+    private SpilledPartitionRound currentRound;
+
+    // probe rows of a build partition that was split before unspilling, partitioned into the leaves of its layout
+    private Optional<PartitioningSpiller> leafSpiller = Optional.empty();
+    private Iterator<Page> leafSpillerInput = emptyIterator();
+    // probe rows of a leaf consumed in chunks are spilled again while read, to be joined against the next chunk
+    private Optional<PartitioningSpiller> chunkReplaySource = Optional.empty();
+    private Optional<PartitioningSpiller> chunkReplaySink = Optional.empty();
+    private boolean replayingChunk;
+    private boolean lastChunk;
+    // ordinals of the probe rows of the current leaf that matched any of its chunks, for probe outer joins
+    @Nullable
+    private BitSet chunkMatchedRows;
+    private final LocalMemoryContext chunkMatchedRowsMemoryContext;
+    private int chunkRowCount;
+    private int probeRowOffset;
     private final boolean optimizeProbeForEmptyBuild;
     private long nullProbeRowCount;
     private long inputProbeRowCount;
@@ -113,6 +152,7 @@ public class LookupJoinOperator
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
         this.probeTypes = ImmutableList.copyOf(requireNonNull(probeTypes, "probeTypes is null"));
+        this.chunkMatchedRowsMemoryContext = operatorContext.localUserMemoryContext();
 
         requireNonNull(joinType, "joinType is null");
         // Cannot use switch case here, because javac will synthesize an inner class and cause IllegalAccessError
@@ -129,7 +169,10 @@ public class LookupJoinOperator
         this.statisticsCounter = new JoinStatisticsCounter(joinType);
         operatorContext.setInfoSupplier(this.statisticsCounter);
 
-        this.pageBuilder = new LookupJoinPageBuilder(buildOutputTypes);
+        // a spilled partition releases its lookup source while the probe is still running, which deferred build rows cannot survive
+        Session session = operatorContext.getSession();
+        boolean deferBuildRows = isJoinLateMaterializationEnabled(session) && !(isSpillEnabled(session) && isJoinSpillingEnabled(session));
+        this.pageBuilder = new LookupJoinPageBuilder(buildOutputTypes, deferBuildRows);
         this.optimizeProbeForEmptyBuild = optimizeProbeForEmptyBuild;
     }
 
@@ -313,6 +356,7 @@ public class LookupJoinOperator
              * Let LookupSourceFactory know LookupSources can be disposed as far as we're concerned.
              */
             verify(partitionedConsumption == null, "partitioned consumption already started");
+            pageBuilder.materializePendingBuildRows();
             partitionedConsumption = lookupSourceFactory.finishProbeOperator(lookupJoinsCount);
             unspilling = true;
         }
@@ -355,7 +399,20 @@ public class LookupJoinOperator
         }
 
         if (unspilledInputPages.hasNext()) {
-            addInput(unspilledInputPages.next());
+            Page page = unspilledInputPages.next();
+            if (chunkReplaySink.isPresent()) {
+                spillInProgress = chunkReplaySink.get().partitionAndSpill(page, partition -> true).getSpillingFuture();
+            }
+            probeRowOffset = chunkRowCount;
+            chunkRowCount += page.getPositionCount();
+            updateChunkMatchedRowsMemory();
+            addInput(page);
+            return;
+        }
+
+        if (leafSpillerInput.hasNext()) {
+            // the build partition is being unspilled meanwhile
+            spillInProgress = leafSpiller.get().partitionAndSpill(leafSpillerInput.next(), leaf -> true).getSpillingFuture();
             return;
         }
 
@@ -373,11 +430,9 @@ public class LookupJoinOperator
             // If the partition was spilled during processing, its position count will be considered twice.
             statisticsCounter.updateLookupSourcePositions(lookupSource.getJoinPositionCount());
 
-            int partition = currentPartition.get().number();
-            unspilledInputPages = spiller.map(spiller -> spiller.getSpilledPages(partition))
-                    .orElse(emptyIterator());
+            unspilledInputPages = getSpilledProbePages(currentRound);
 
-            Optional.ofNullable(savedRows.remove(partition)).ifPresent(savedRow -> {
+            Optional.ofNullable(savedRows.remove(currentRound.getPartition())).ifPresent(savedRow -> {
                 restoreProbe(
                         savedRow.row,
                         savedRow.joinPositionWithinPartition,
@@ -392,6 +447,10 @@ public class LookupJoinOperator
         if (lookupPartitions.hasNext()) {
             currentPartition.ifPresent(Partition::release);
             currentPartition = Optional.of(lookupPartitions.next());
+            currentRound = lookupSourceFactory.getSpilledPartitionRound(currentPartition.get().number());
+            if (currentRound.getLayout().isRepartitioned() && currentRound.getRound() == 0) {
+                splitSpilledProbePages(currentRound);
+            }
             unspilledLookupSource = Optional.of(currentPartition.get().load());
 
             return;
@@ -399,17 +458,102 @@ public class LookupJoinOperator
 
         currentPartition.ifPresent(Partition::release);
         currentPartition = Optional.empty();
+        currentRound = null;
         if (lookupSourceProvider != null) {
             // There are no more partitions to process, so clean up everything
             lookupSourceProvider.close();
             lookupSourceProvider = null;
         }
         spiller.ifPresent(PartitioningSpiller::verifyAllPartitionsRead);
+        leafSpiller.ifPresent(PartitioningSpiller::verifyAllPartitionsRead);
+        closeSpiller(leafSpiller);
+        closeSpiller(chunkReplaySource);
+        leafSpiller = Optional.empty();
+        chunkReplaySource = Optional.empty();
         operatorContext.recordJoinProbeKeyCount(inputProbeRowCount);
         operatorContext.recordNullJoinProbeKeyCount(nullProbeRowCount);
         finished = true;
     }
 
+    private void splitSpilledProbePages(SpilledPartitionRound round)
+    {
+        int partition = round.getPartition();
+        // rows are saved only for partitions spilled after their lookup source was built, and such partitions are never split
+        verify(!savedRows.containsKey(partition), "Rows saved for split partition %s", partition);
+
+        leafSpiller.ifPresent(PartitioningSpiller::verifyAllPartitionsRead);
+        closeSpiller(leafSpiller);
+        leafSpiller = Optional.empty();
+        if (!spiller.isPresent()) {
+            return;
+        }
+
+        leafSpiller = Optional.of(partitioningSpillerFactory.create(
+                probeTypes,
+                round.getLayout().createLeafPartitionFunction(hashGenerator),
+                operatorContext.getSpillContext().newLocalSpillContext(),
+                operatorContext.aggregateSystemMemoryContext()));
+        leafSpillerInput = spiller.get().getSpilledPages(partition);
+    }
+
+    private Iterator<Page> getSpilledProbePages(SpilledPartitionRound round)
+    {
+        SpilledPartitionLayout layout = round.getLayout();
+        chunkRowCount = 0;
+        if (!layout.isRepartitioned()) {
+            replayingChunk = false;
+            chunkMatchedRows = null;
+            updateChunkMatchedRowsMemory();
+            return spiller.map(spiller -> spiller.getSpilledPages(round.getPartition()))
+                    .orElse(emptyIterator());
+        }
+
+        int leaf = layout.getRoundLeaf(round.getRound());
+        int chunk = layout.getRoundChunk(round.getRound());
+        replayingChunk = chunk > 0;
+        lastChunk = layout.isLastChunk(round.getRound());
+        if (chunk == 0) {
+            chunkMatchedRows = probeOnOuterSide && !lastChunk ? new BitSet() : null;
+            updateChunkMatchedRowsMemory();
+        }
+
+        closeSpiller(chunkReplaySource);
+        chunkReplaySource = Optional.empty();
+        Iterator<Page> pages;
+        if (chunk == 0) {
+            pages = leafSpiller.map(spiller -> spiller.getSpilledPages(leaf))
+                    .orElse(emptyIterator());
+        }
+        else {
+            chunkReplaySource = chunkReplaySink;
+            chunkReplaySink = Optional.empty();
+            pages = chunkReplaySource.map(spiller -> spiller.getSpilledPages(0))
+                    .orElse(emptyIterator());
+        }
+
+        if (!lastChunk && leafSpiller.isPresent()) {
+            chunkReplaySink = Optional.of(partitioningSpillerFactory.create(
+                    probeTypes,
+                    SINGLE_PARTITION,
+                    operatorContext.getSpillContext().newLocalSpillContext(),
+                    operatorContext.aggregateSystemMemoryContext()));
+        }
+        return pages;
+    }
+
+    private static void closeSpiller(Optional<PartitioningSpiller> spiller)
+    {
+        if (!spiller.isPresent()) {
+            return;
+        }
+        try {
+            spiller.get().close();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     private void processProbe()
     {
         verify(probe != null);
@@ -532,6 +676,7 @@ public class LookupJoinOperator
 
         // In case of early termination (before operator is finished) release partition consumption to avoid a deadlock
         if (partitionedConsumption == null) {
+            pageBuilder.materializePendingBuildRows();
             partitionedConsumption = lookupSourceFactory.finishProbeOperator(lookupJoinsCount);
             addSuccessCallback(partitionedConsumption, consumption -> consumption.beginConsumption().forEachRemaining(Partition::release));
         }
@@ -549,14 +694,24 @@ public class LookupJoinOperator
             closer.register(afterClose::run);
 
             closer.register(pageBuilder::reset);
+            closer.register(chunkMatchedRowsMemoryContext::close);
             closer.register(() -> Optional.ofNullable(lookupSourceProvider).ifPresent(LookupSourceProvider::close));
             spiller.ifPresent(closer::register);
+            leafSpiller.ifPresent(closer::register);
+            chunkReplaySource.ifPresent(closer::register);
+            chunkReplaySink.ifPresent(closer::register);
         }
         catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    private void updateChunkMatchedRowsMemory()
+    {
+        // bits are set while a page is joined, so the accounted size trails by at most one probe page
+        chunkMatchedRowsMemoryContext.setBytes(chunkMatchedRows == null ? 0 : chunkMatchedRows.size() / Byte.SIZE);
+    }
+
     /**
      * Produce rows matching join condition for the current probe position. If this method was called previously
      * for the current probe position, calling this again will produce rows that wasn't been produced in previous
@@ -570,6 +725,9 @@ public class LookupJoinOperator
         while (joinPosition >= 0) {
             if (lookupSource.isJoinPositionEligible(joinPosition, probe.getPosition(), probe.getPage())) {
                 currentProbePositionProducedRow = true;
+                if (chunkMatchedRows != null) {
+                    chunkMatchedRows.set(probeRowOffset + probe.getPosition());
+                }
 
                 pageBuilder.appendRow(probe, lookupSource, joinPosition);
                 joinSourcePositions++;
@@ -608,6 +766,10 @@ public class LookupJoinOperator
     private boolean outerJoinCurrentPosition()
     {
         if (probeOnOuterSide && joinPosition < 0) {
+            if (chunkMatchedRows != null && (!lastChunk || chunkMatchedRows.get(probeRowOffset + probe.getPosition()))) {
+                // a probe row of a leaf consumed in chunks is null-extended only after the last chunk, and only if no chunk matched it
+                return true;
+            }
             pageBuilder.appendNullForBuild(probe);
             if (tryBuildPage()) {
                 return false;
@@ -718,7 +880,7 @@ public class LookupJoinOperator
     private void clearProbe()
     {
         // Before updating the probe flush the current page
-        if (probe != null) {
+        if (probe != null && !replayingChunk) {
             nullProbeRowCount += probe.getNullRowCount();
             inputProbeRowCount += probe.getPositionCount();
         }
@@ -17,12 +17,18 @@ import com.facebook.presto.common.Page;
 import com.facebook.presto.common.PageBuilder;
 import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.type.Type;
+import com.google.common.collect.ImmutableList;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import static com.facebook.presto.common.block.PageBuilderStatus.DEFAULT_MAX_PAGE_SIZE_IN_BYTES;
 import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
 import static java.util.Objects.requireNonNull;
 
@@ -30,13 +36,25 @@ import static java.util.Objects.requireNonNull;
  * This page builder creates pages with dictionary blocks:
  * normal dictionary blocks for the probe side and the original blocks for the build side.
  * <p>
- * TODO use dictionary blocks (probably extended kind) to avoid data copying for build side
+ * When build rows are deferred, only the join positions are recorded and the build side is output as
+ * {@link com.facebook.presto.common.block.LazyBlock}s, so that the build rows are not copied for the pages
+ * which are discarded downstream, e.g. by a selective filter, a limit or a TopN. The deferred rows reference
+ * the lookup source, so they must be materialized with {@link #materializePendingBuildRows()} before the
+ * lookup source is released.
  */
 public class LookupJoinPageBuilder
 {
     private final IntArrayList probeIndexBuilder = new IntArrayList();
+    private final List<Type> buildTypes;
     private final PageBuilder buildPageBuilder;
     private final int buildOutputChannelCount;
+    private final boolean deferBuildRows;
+    private final LongArrayList buildJoinPositions = new LongArrayList();
+    // the pages still referenced downstream keep their deferred rows reachable
+    private final List<WeakReference<DeferredBuildRows>> pendingBuildRows = new ArrayList<>();
+    private LookupSource deferredLookupSource;
+    private long estimatedBuildBlockBytes;
+    private long estimatedBuildBytesPerRow = -1;
     private int estimatedProbeBlockBytes;
     private int previousPosition = -1;
     private int estimatedProbeBytesPerRow = -1;
@@ -44,18 +62,29 @@ public class LookupJoinPageBuilder
 
     public LookupJoinPageBuilder(List<Type> buildTypes)
     {
-        this.buildPageBuilder = new PageBuilder(requireNonNull(buildTypes, "buildTypes is null"));
+        this(buildTypes, false);
+    }
+
+    public LookupJoinPageBuilder(List<Type> buildTypes, boolean deferBuildRows)
+    {
+        this.buildTypes = ImmutableList.copyOf(requireNonNull(buildTypes, "buildTypes is null"));
+        this.buildPageBuilder = new PageBuilder(buildTypes);
         this.buildOutputChannelCount = buildTypes.size();
+        // there is nothing to defer without build output channels
+        this.deferBuildRows = deferBuildRows && buildOutputChannelCount > 0;
     }
 
     public boolean isFull()
     {
+        if (deferBuildRows) {
+            return estimatedProbeBlockBytes + estimatedBuildBlockBytes >= DEFAULT_MAX_PAGE_SIZE_IN_BYTES;
+        }
         return estimatedProbeBlockBytes + buildPageBuilder.getSizeInBytes() >= DEFAULT_MAX_PAGE_SIZE_IN_BYTES || buildPageBuilder.isFull();
     }
 
     public boolean isEmpty()
     {
-        return probeIndexBuilder.isEmpty() && buildPageBuilder.isEmpty();
+        return probeIndexBuilder.isEmpty() && buildPageBuilder.isEmpty() && buildJoinPositions.isEmpty();
     }
 
     public void reset()
@@ -63,6 +92,10 @@ public class LookupJoinPageBuilder
         // be aware that probeIndexBuilder will not clear its capacity
         probeIndexBuilder.clear();
         buildPageBuilder.reset();
+        buildJoinPositions.clear();
+        deferredLookupSource = null;
+        estimatedBuildBlockBytes = 0;
+        estimatedBuildBytesPerRow = -1;
         estimatedProbeBlockBytes = 0;
         estimatedProbeBytesPerRow = -1;
         previousPosition = -1;
@@ -78,6 +111,17 @@ public class LookupJoinPageBuilder
         appendProbeIndex(probe);
 
         // build side
+        if (deferBuildRows) {
+            checkState(deferredLookupSource == null || deferredLookupSource == lookupSource, "lookup source changed while building a page");
+            if (deferredLookupSource == null) {
+                deferredLookupSource = lookupSource;
+                // the retained size of the build rows is not known until they are copied, use the average size of the build side
+                estimatedBuildBytesPerRow = lookupSource.getInMemorySizeInBytes() / Math.max(1, lookupSource.getJoinPositionCount());
+            }
+            buildJoinPositions.add(joinPosition);
+            estimatedBuildBlockBytes += Long.BYTES + estimatedBuildBytesPerRow;
+            return;
+        }
         buildPageBuilder.declarePosition();
         lookupSource.appendTo(joinPosition, buildPageBuilder, 0);
     }
@@ -91,6 +135,11 @@ public class LookupJoinPageBuilder
         appendProbeIndex(probe);
 
         // build side
+        if (deferBuildRows) {
+            buildJoinPositions.add(-1);
+            estimatedBuildBlockBytes += Long.BYTES;
+            return;
+        }
         buildPageBuilder.declarePosition();
         for (int i = 0; i < buildOutputChannelCount; i++) {
             buildPageBuilder.getBlockBuilder(i).appendNull();
@@ -100,7 +149,7 @@ public class LookupJoinPageBuilder
     public Page build(JoinProbe probe)
     {
         int outputPositions = probeIndexBuilder.size();
-        verify(buildPageBuilder.getPositionCount() == outputPositions);
+        verify((deferBuildRows ? buildJoinPositions.size() : buildPageBuilder.getPositionCount()) == outputPositions);
 
         int[] probeOutputChannels = probe.getOutputChannels();
         Block[] blocks = new Block[probeOutputChannels.length + buildOutputChannelCount];
@@ -129,6 +178,14 @@ public class LookupJoinPageBuilder
         }
 
         int offset = probeOutputChannels.length;
+        if (deferBuildRows) {
+            // the estimate of the page size also counts the join positions, which are not part of the build rows
+            long estimatedBuildRowBytes = estimatedBuildBlockBytes - (long) Long.BYTES * buildJoinPositions.size();
+            DeferredBuildRows buildRows = new DeferredBuildRows(buildTypes, deferredLookupSource, buildJoinPositions.toLongArray(), estimatedBuildRowBytes);
+            addPendingBuildRows(buildRows);
+            System.arraycopy(buildRows.createLazyBlocks(), 0, blocks, offset, buildOutputChannelCount);
+            return new Page(outputPositions, blocks);
+        }
         for (int i = 0; i < buildOutputChannelCount; i++) {
             blocks[offset + i] = buildPageBuilder.getBlockBuilder(i).build();
             verify(blocks[offset + i].getPositionCount() == outputPositions);
@@ -136,15 +193,43 @@ public class LookupJoinPageBuilder
         return new Page(outputPositions, blocks);
     }
 
+    /**
+     * Copies the build rows of the output pages which are still referenced but were not loaded yet.
+     * Must be called before the lookup source used to build the pages is released.
+     */
+    public void materializePendingBuildRows()
+    {
+        for (WeakReference<DeferredBuildRows> reference : pendingBuildRows) {
+            DeferredBuildRows buildRows = reference.get();
+            if (buildRows != null) {
+                buildRows.materialize();
+            }
+        }
+        pendingBuildRows.clear();
+    }
+
     @Override
     public String toString()
     {
         return toStringHelper(this)
-                .add("estimatedSize", estimatedProbeBlockBytes + buildPageBuilder.getSizeInBytes())
-                .add("positionCount", buildPageBuilder.getPositionCount())
+                .add("estimatedSize", estimatedProbeBlockBytes + (deferBuildRows ? estimatedBuildBlockBytes : buildPageBuilder.getSizeInBytes()))
+                .add("positionCount", probeIndexBuilder.size())
                 .toString();
     }
 
+    private void addPendingBuildRows(DeferredBuildRows buildRows)
+    {
+        // forget the pages which were either loaded or dropped downstream
+        Iterator<WeakReference<DeferredBuildRows>> iterator = pendingBuildRows.iterator();
+        while (iterator.hasNext()) {
+            DeferredBuildRows pending = iterator.next().get();
+            if (pending == null || pending.isMaterialized()) {
+                iterator.remove();
+            }
+        }
+        pendingBuildRows.add(new WeakReference<>(buildRows));
+    }
+
     private void appendProbeIndex(JoinProbe probe)
     {
         int position = probe.getPosition();
@@ -16,6 +16,7 @@ package com.facebook.presto.operator;
 import com.facebook.airlift.concurrent.NotThreadSafe;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.PageBuilder;
+import jakarta.annotation.Nullable;
 
 import java.io.Closeable;
 
@@ -35,6 +36,33 @@ public interface LookupSource
 
     long getJoinPosition(int position, Page hashChannelsPage, Page allChannelsPage);
 
+    /**
+     * Whether {@link #getJoinPositions} can look up a whole probe page ahead of consuming the join positions.
+     * Lookup sources whose positions are only valid until the next lookup must return false.
+     */
+    default boolean isBatchLookupSupported()
+    {
+        return false;
+    }
+
+    /**
+     * Batched form of {@link #getJoinPosition} for the first {@code positionCount} entries of {@code positions}.
+     * The join position of {@code positions[i]} is stored in {@code joinPositions[positions[i]]}.
+     * {@code rawHashes} is indexed by page position, or null when the hashes are not precomputed.
+     */
+    default void getJoinPositions(int[] positions, int positionCount, Page hashChannelsPage, Page allChannelsPage, @Nullable long[] rawHashes, long[] joinPositions)
+    {
+        for (int i = 0; i < positionCount; i++) {
+            int position = positions[i];
+            if (rawHashes == null) {
+                joinPositions[position] = getJoinPosition(position, hashChannelsPage, allChannelsPage);
+            }
+            else {
+                joinPositions[position] = getJoinPosition(position, hashChannelsPage, allChannelsPage, rawHashes[position]);
+            }
+        }
+    }
+
     long getNextJoinPosition(long currentJoinPosition, int probePosition, Page allProbeChannelsPage);
 
     void appendTo(long position, PageBuilder pageBuilder, int outputChannelOffset);
@@ -50,6 +50,14 @@ public interface LookupSourceFactory
                 }));
     }
 
+    /**
+     * Describes a partition number handed out by {@link #finishProbeOperator(OptionalInt)}.
+     */
+    default SpilledPartitionRound getSpilledPartitionRound(int partitionNumber)
+    {
+        throw new UnsupportedOperationException();
+    }
+
     /**
      * Can be called only after {@link #createLookupSourceProvider()} is done and all users of {@link LookupSource}-s finished.
      */
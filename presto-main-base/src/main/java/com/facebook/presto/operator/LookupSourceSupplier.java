@@ -30,4 +30,24 @@ public interface LookupSourceSupplier
     long getPositionIsNullCount();
 
     long getPositionCount();
+
+    default int getBuildThreads()
+    {
+        return 1;
+    }
+
+    default long getBuildWallNanos()
+    {
+        return 0;
+    }
+
+    default long getBuildHashingNanos()
+    {
+        return 0;
+    }
+
+    default long getBuildInsertNanos()
+    {
+        return 0;
+    }
 }
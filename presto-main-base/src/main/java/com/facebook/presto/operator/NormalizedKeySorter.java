@@ -0,0 +1,428 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.common.array.AdaptiveLongBigArray;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.SortOrder;
+import com.facebook.presto.common.type.BigintType;
+import com.facebook.presto.common.type.BooleanType;
+import com.facebook.presto.common.type.DateType;
+import com.facebook.presto.common.type.IntegerType;
+import com.facebook.presto.common.type.SmallintType;
+import com.facebook.presto.common.type.TimestampType;
+import com.facebook.presto.common.type.TinyintType;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.common.type.VarcharType;
+import com.facebook.presto.memory.context.LocalMemoryContext;
+import io.airlift.slice.Slice;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.facebook.presto.common.type.DoubleType.DOUBLE;
+import static com.facebook.presto.common.type.RealType.REAL;
+import static com.facebook.presto.operator.SyntheticAddress.decodePosition;
+import static com.facebook.presto.operator.SyntheticAddress.decodeSliceIndex;
+import static io.airlift.slice.SizeOf.sizeOfIntArray;
+import static io.airlift.slice.SizeOf.sizeOfLongArray;
+import static java.lang.Double.doubleToLongBits;
+import static java.lang.Float.floatToIntBits;
+import static java.lang.Float.intBitsToFloat;
+
+/**
+ * Sorts a range of a {@link PagesIndex} on normalized keys. The sort keys of every
+ * position are first encoded into a fixed number of 64-bit words whose unsigned
+ * lexicographic order is the order of the sort, with the null ordering and the
+ * descending flips folded into the encoding. The encoded keys are then sorted with
+ * an MSD radix sort, so the blocks are only decoded once per position instead of
+ * twice per comparison.
+ * <p>
+ * Varchar keys only encode a fixed prefix. Positions whose keys are equal after
+ * encoding, including when the key stops at an unsupported type or at a varchar
+ * prefix, are ordered with the compiled comparator of the full sort.
+ */
+public final class NormalizedKeySorter
+{
+    // sorting small ranges with the compiled comparator is cheaper than encoding them
+    public static final int MIN_POSITIONS = 256;
+
+    private static final int VARCHAR_PREFIX_WORDS = 2;
+    private static final int MAX_KEY_WORDS = 8;
+    private static final int INSERTION_SORT_THRESHOLD = 24;
+    private static final long MAX_KEYS_LENGTH = Integer.MAX_VALUE - 8;
+
+    private NormalizedKeySorter() {}
+
+    /**
+     * Sorts the positions {@code [startPosition, endPosition)} of {@code pagesIndex}.
+     * Returns false, without touching the index, if the leading sort channel cannot
+     * be encoded or the keys would not fit in an array. The scratch arrays of the
+     * sort are reported to {@code memoryContext} until the sort completes.
+     */
+    public static boolean sort(
+            PagesIndex pagesIndex,
+            List<Integer> sortChannels,
+            List<SortOrder> sortOrders,
+            PagesIndexComparator comparator,
+            int startPosition,
+            int endPosition,
+            LocalMemoryContext memoryContext)
+    {
+        int keyChannels = 0;
+        int keyWords = 0;
+        boolean needsTieBreak = false;
+        for (int channel : sortChannels) {
+            Type type = pagesIndex.getType(channel);
+            if (!isEncodable(type)) {
+                needsTieBreak = true;
+                break;
+            }
+            int channelWords = getValueWords(type) + (mayHaveNull(pagesIndex.getChannel(channel)) ? 1 : 0);
+            if (keyWords + channelWords > MAX_KEY_WORDS) {
+                needsTieBreak = true;
+                break;
+            }
+            keyChannels++;
+            keyWords += channelWords;
+            if (type instanceof VarcharType) {
+                // the order of the channels after a truncated prefix is only meaningful when the prefixes are equal
+                needsTieBreak = true;
+                break;
+            }
+        }
+        int positionCount = endPosition - startPosition;
+        if (keyChannels == 0 || (long) positionCount * keyWords > MAX_KEYS_LENGTH) {
+            return false;
+        }
+        needsTieBreak |= keyChannels < sortChannels.size();
+
+        // the keys and positions are allocated twice, as the radix sort scatters them into buffers
+        memoryContext.setBytes(2 * (sizeOfLongArray(positionCount * keyWords) + sizeOfIntArray(positionCount)) + sizeOfLongArray(positionCount));
+        try {
+            long[] keys = new long[positionCount * keyWords];
+            int[] positions = new int[positionCount];
+            for (int i = 0; i < positionCount; i++) {
+                positions[i] = startPosition + i;
+            }
+
+            int wordOffset = 0;
+            for (int i = 0; i < keyChannels; i++) {
+                int channel = sortChannels.get(i);
+                wordOffset = encodeChannel(pagesIndex, channel, sortOrders.get(i), startPosition, endPosition, keys, keyWords, wordOffset);
+            }
+
+            Sorter sorter = new Sorter(keys, positions, keyWords, needsTieBreak ? new TieBreaker(pagesIndex, comparator) : null);
+            sorter.sort(0, positionCount, 0);
+
+            AdaptiveLongBigArray valueAddresses = pagesIndex.getValueAddresses();
+            long[] sortedAddresses = new long[positionCount];
+            for (int i = 0; i < positionCount; i++) {
+                sortedAddresses[i] = valueAddresses.get(positions[i]);
+            }
+            for (int i = 0; i < positionCount; i++) {
+                valueAddresses.set(startPosition + i, sortedAddresses[i]);
+            }
+        }
+        finally {
+            memoryContext.setBytes(0);
+        }
+        return true;
+    }
+
+    private static boolean isEncodable(Type type)
+    {
+        return type instanceof BigintType ||
+                type instanceof IntegerType ||
+                type instanceof SmallintType ||
+                type instanceof TinyintType ||
+                type instanceof DateType ||
+                type instanceof TimestampType ||
+                type instanceof BooleanType ||
+                // the legacy NaN semantics of OLD_NAN_DOUBLE and OLD_NAN_REAL are not encoded
+                type == DOUBLE ||
+                type == REAL ||
+                type instanceof VarcharType;
+    }
+
+    private static int getValueWords(Type type)
+    {
+        return type instanceof VarcharType ? VARCHAR_PREFIX_WORDS : 1;
+    }
+
+    private static boolean mayHaveNull(ObjectArrayList<Block> blocks)
+    {
+        for (int i = 0; i < blocks.size(); i++) {
+            if (blocks.get(i).mayHaveNull()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the words of one sort channel for every position and returns the
+     * offset of the next channel within the key.
+     */
+    private static int encodeChannel(PagesIndex pagesIndex, int channel, SortOrder sortOrder, int startPosition, int endPosition, long[] keys, int keyWords, int wordOffset)
+    {
+        Type type = pagesIndex.getType(channel);
+        ObjectArrayList<Block> blocks = pagesIndex.getChannel(channel);
+        AdaptiveLongBigArray valueAddresses = pagesIndex.getValueAddresses();
+        boolean nullable = mayHaveNull(blocks);
+        int valueWords = getValueWords(type);
+        int valueOffset = nullable ? wordOffset + 1 : wordOffset;
+        // the null word orders nulls independently of the direction of the values
+        long nullWord = sortOrder.isNullsFirst() ? 0 : 1;
+        long nonNullWord = 1 - nullWord;
+        long flip = sortOrder.isAscending() ? 0 : -1L;
+
+        for (int position = startPosition; position < endPosition; position++) {
+            long address = valueAddresses.get(position);
+            Block block = blocks.get(decodeSliceIndex(address));
+            int blockPosition = decodePosition(address);
+            int keyOffset = (position - startPosition) * keyWords;
+
+            if (nullable) {
+                if (block.isNull(blockPosition)) {
+                    // the value words stay zero so all nulls compare equal
+                    keys[keyOffset + wordOffset] = nullWord;
+                    continue;
+                }
+                keys[keyOffset + wordOffset] = nonNullWord;
+            }
+
+            if (type instanceof VarcharType) {
+                encodeVarcharPrefix(block, blockPosition, keys, keyOffset + valueOffset, flip);
+            }
+            else {
+                keys[keyOffset + valueOffset] = encodeValue(type, block, blockPosition) ^ flip;
+            }
+        }
+        return valueOffset + valueWords;
+    }
+
+    private static long encodeValue(Type type, Block block, int position)
+    {
+        if (type instanceof BooleanType) {
+            return type.getBoolean(block, position) ? 1 : 0;
+        }
+        if (type == DOUBLE) {
+            double value = type.getDouble(block, position);
+            if (value == 0) {
+                // -0.0 and 0.0 compare equal
+                value = 0;
+            }
+            // doubleToLongBits collapses every NaN into the canonical NaN, which sorts last
+            long bits = doubleToLongBits(value);
+            return bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+        }
+        if (type == REAL) {
+            float value = intBitsToFloat((int) type.getLong(block, position));
+            if (value == 0) {
+                value = 0;
+            }
+            int bits = floatToIntBits(value);
+            return (bits < 0 ? ~bits : bits ^ Integer.MIN_VALUE) & 0xFFFF_FFFFL;
+        }
+        // integral types, flipping the sign bit makes signed order unsigned order
+        return type.getLong(block, position) ^ Long.MIN_VALUE;
+    }
+
+    private static void encodeVarcharPrefix(Block block, int position, long[] keys, int offset, long flip)
+    {
+        int length = block.getSliceLength(position);
+        Slice slice = block.getSlice(position, 0, length);
+        for (int word = 0; word < VARCHAR_PREFIX_WORDS; word++) {
+            int byteOffset = word * Long.BYTES;
+            long value;
+            if (byteOffset + Long.BYTES <= length) {
+                value = Long.reverseBytes(slice.getLong(byteOffset));
+            }
+            else {
+                // big endian, padded with zero bytes
+                value = 0;
+                for (int i = 0; i < Long.BYTES; i++) {
+                    value <<= 8;
+                    if (byteOffset + i < length) {
+                        value |= slice.getByte(byteOffset + i) & 0xFF;
+                    }
+                }
+            }
+            keys[offset + word] = value ^ flip;
+        }
+    }
+
+    private static final class TieBreaker
+    {
+        private final PagesIndex pagesIndex;
+        private final PagesIndexComparator comparator;
+
+        private TieBreaker(PagesIndex pagesIndex, PagesIndexComparator comparator)
+        {
+            this.pagesIndex = pagesIndex;
+            this.comparator = comparator;
+        }
+
+        public void sort(int[] positions, int from, int to)
+        {
+            // the positions of the index have not been moved yet, so they can be compared directly
+            IntArrays.quickSort(positions, from, to, (left, right) -> comparator.compareTo(pagesIndex, left, right));
+        }
+    }
+
+    private static final class Sorter
+    {
+        private final long[] keys;
+        private final int[] positions;
+        private final int keyWords;
+        private final TieBreaker tieBreaker;
+
+        private final long[] keysBuffer;
+        private final int[] positionsBuffer;
+
+        private Sorter(long[] keys, int[] positions, int keyWords, TieBreaker tieBreaker)
+        {
+            this.keys = keys;
+            this.positions = positions;
+            this.keyWords = keyWords;
+            this.tieBreaker = tieBreaker;
+            this.keysBuffer = new long[keys.length];
+            this.positionsBuffer = new int[positions.length];
+        }
+
+        /**
+         * Sorts the entries {@code [from, to)} whose keys are known to be equal
+         * before byte {@code byteIndex}.
+         */
+        public void sort(int from, int to, int byteIndex)
+        {
+            int[] counts = new int[257];
+            while (true) {
+                int length = to - from;
+                if (length < 2) {
+                    return;
+                }
+                if (byteIndex == keyWords * Long.BYTES) {
+                    if (tieBreaker != null) {
+                        tieBreaker.sort(positions, from, to);
+                    }
+                    return;
+                }
+                int word = byteIndex >>> 3;
+                if (length <= INSERTION_SORT_THRESHOLD) {
+                    insertionSort(from, to, word);
+                    return;
+                }
+
+                int shift = Long.SIZE - Byte.SIZE * ((byteIndex & 7) + 1);
+                Arrays.fill(counts, 0);
+                for (int i = from; i < to; i++) {
+                    counts[digit(i, word, shift) + 1]++;
+                }
+                boolean singleBucket = false;
+                for (int bucket = 1; bucket <= 256; bucket++) {
+                    if (counts[bucket] == length) {
+                        singleBucket = true;
+                        break;
+                    }
+                    if (counts[bucket] != 0) {
+                        break;
+                    }
+                }
+                if (singleBucket) {
+                    // common for the high bytes of small integers, move on without scattering
+                    byteIndex++;
+                    continue;
+                }
+
+                for (int bucket = 0; bucket < 256; bucket++) {
+                    counts[bucket + 1] += counts[bucket];
+                }
+                int[] bucketStarts = counts.clone();
+                for (int i = from; i < to; i++) {
+                    int target = counts[digit(i, word, shift)]++;
+                    System.arraycopy(keys, i * keyWords, keysBuffer, target * keyWords, keyWords);
+                    positionsBuffer[target] = positions[i];
+                }
+                System.arraycopy(keysBuffer, 0, keys, from * keyWords, length * keyWords);
+                System.arraycopy(positionsBuffer, 0, positions, from, length);
+
+                for (int bucket = 0; bucket < 256; bucket++) {
+                    int bucketFrom = from + bucketStarts[bucket];
+                    int bucketTo = from + bucketStarts[bucket + 1];
+                    if (bucketTo - bucketFrom > 1) {
+                        sort(bucketFrom, bucketTo, byteIndex + 1);
+                    }
+                }
+                return;
+            }
+        }
+
+        private int digit(int entry, int word, int shift)
+        {
+            return (int) (keys[entry * keyWords + word] >>> shift) & 0xFF;
+        }
+
+        private void insertionSort(int from, int to, int startWord)
+        {
+            for (int i = from + 1; i < to; i++) {
+                for (int j = i; j > from && compareKeys(j - 1, j, startWord) > 0; j--) {
+                    swap(j - 1, j);
+                }
+            }
+            if (tieBreaker == null) {
+                return;
+            }
+            int runStart = from;
+            for (int i = from + 1; i <= to; i++) {
+                if (i == to || compareKeys(runStart, i, startWord) != 0) {
+                    if (i - runStart > 1) {
+                        tieBreaker.sort(positions, runStart, i);
+                    }
+                    runStart = i;
+                }
+            }
+        }
+
+        private int compareKeys(int left, int right, int startWord)
+        {
+            int leftOffset = left * keyWords;
+            int rightOffset = right * keyWords;
+            for (int word = startWord; word < keyWords; word++) {
+                int comparison = Long.compareUnsigned(keys[leftOffset + word], keys[rightOffset + word]);
+                if (comparison != 0) {
+                    return comparison;
+                }
+            }
+            return 0;
+        }
+
+        private void swap(int left, int right)
+        {
+            int leftOffset = left * keyWords;
+            int rightOffset = right * keyWords;
+            for (int word = 0; word < keyWords; word++) {
+                long key = keys[leftOffset + word];
+                keys[leftOffset + word] = keys[rightOffset + word];
+                keys[rightOffset + word] = key;
+            }
+            int position = positions[left];
+            positions[left] = positions[right];
+            positions[right] = position;
+        }
+    }
+}
@@ -17,10 +17,12 @@ import com.facebook.airlift.stats.CounterStat;
 import com.facebook.presto.Session;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.RuntimeStats;
+import com.facebook.presto.common.block.Block;
 import com.facebook.presto.memory.QueryContextVisitor;
 import com.facebook.presto.memory.context.AggregatedMemoryContext;
 import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.memory.context.MemoryTrackingContext;
+import com.facebook.presto.operator.DeferredBuildRows.DeferredBuildBlock;
 import com.facebook.presto.operator.OperationTimer.OperationTiming;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.plan.PlanNodeId;
@@ -180,7 +182,7 @@ public class OperatorContext
     {
         operationTimer.recordOperationComplete(addInputTiming);
         if (page != null) {
-            inputDataSize.update(page.getSizeInBytes());
+            inputDataSize.update(getLoadedSizeInBytes(page));
             inputPositions.update(page.getPositionCount());
         }
     }
@@ -220,11 +222,43 @@ public class OperatorContext
     {
         operationTimer.recordOperationComplete(getOutputTiming);
         if (page != null) {
-            outputDataSize.update(page.getSizeInBytes());
+            outputDataSize.update(getLoadedSizeInBytes(page));
             outputPositions.update(page.getPositionCount());
         }
     }
 
+    /**
+     * Recording the stats must not load the deferred build side of a join output, as that is left to the
+     * operators which actually access it, so the size it is expected to have once loaded is used instead.
+     */
+    private static long getLoadedSizeInBytes(Page page)
+    {
+        boolean deferred = false;
+        for (int channel = 0; channel < page.getChannelCount() && !deferred; channel++) {
+            deferred = isDeferred(page.getBlock(channel));
+        }
+        if (!deferred) {
+            return page.getSizeInBytes();
+        }
+
+        long sizeInBytes = 0;
+        for (int channel = 0; channel < page.getChannelCount(); channel++) {
+            Block block = page.getBlock(channel);
+            if (isDeferred(block)) {
+                sizeInBytes += ((DeferredBuildBlock) block).getEstimatedSizeInBytes();
+            }
+            else {
+                sizeInBytes += block.getSizeInBytes();
+            }
+        }
+        return sizeInBytes;
+    }
+
+    private static boolean isDeferred(Block block)
+    {
+        return block instanceof DeferredBuildBlock && !((DeferredBuildBlock) block).isLoaded();
+    }
+
     public void recordOutput(long sizeInBytes, long positions)
     {
         outputDataSize.update(sizeInBytes);
@@ -420,6 +454,11 @@ public class OperatorContext
         return spillContext;
     }
 
+    public long getSpilledBytes()
+    {
+        return spillContext.getSpilledBytes();
+    }
+
     public void moreMemoryAvailable()
     {
         memoryFuture.get().set(null);
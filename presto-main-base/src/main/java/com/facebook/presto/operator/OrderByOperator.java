@@ -144,6 +144,7 @@ public class OrderByOperator
     private final int[] outputChannels;
     private final LocalMemoryContext revocableMemoryContext;
     private final LocalMemoryContext localUserMemoryContext;
+    private final LocalMemoryContext sortMemoryContext;
 
     private final PagesIndex pageIndex;
 
@@ -182,6 +183,7 @@ public class OrderByOperator
         this.sourceTypes = ImmutableList.copyOf(requireNonNull(sourceTypes, "sourceTypes is null"));
         this.localUserMemoryContext = operatorContext.localUserMemoryContext();
         this.revocableMemoryContext = operatorContext.localRevocableMemoryContext();
+        this.sortMemoryContext = operatorContext.aggregateUserMemoryContext().newLocalMemoryContext(NormalizedKeySorter.class.getSimpleName());
 
         this.pageIndex = pagesIndexFactory.newPagesIndex(sourceTypes, expectedPositions);
         this.spillEnabled = spillEnabled;
@@ -222,7 +224,7 @@ public class OrderByOperator
                 }
             }
 
-            pageIndex.sort(sortChannels, sortOrder);
+            pageIndex.sort(sortChannels, sortOrder, sortMemoryContext);
             Iterator<Page> sortedPagesIndex = pageIndex.getSortedPages();
 
             List<WorkProcessor<Page>> spilledPages = getSpilledPages();
@@ -310,7 +312,7 @@ public class OrderByOperator
                     operatorContext.aggregateSystemMemoryContext()));
         }
 
-        pageIndex.sort(sortChannels, sortOrder);
+        pageIndex.sort(sortChannels, sortOrder, sortMemoryContext);
         spillInProgress = spiller.get().spill(pageIndex.getSortedPages());
         finishMemoryRevoke = () -> {
             pageIndex.clear();
@@ -380,5 +382,6 @@ public class OrderByOperator
         pageIndex.clear();
         sortedPages = null;
         spiller.ifPresent(Spiller::close);
+        sortMemoryContext.close();
     }
 }
@@ -18,6 +18,7 @@ import com.facebook.presto.common.Page;
 import com.facebook.presto.common.PageBuilder;
 import com.google.errorprone.annotations.ThreadSafe;
 import com.google.errorprone.annotations.concurrent.GuardedBy;
+import jakarta.annotation.Nullable;
 
 import java.util.function.Supplier;
 
@@ -86,6 +87,18 @@ public final class OuterLookupSource
         return lookupSource.getJoinPosition(position, hashChannelsPage, allChannelsPage);
     }
 
+    @Override
+    public boolean isBatchLookupSupported()
+    {
+        return lookupSource.isBatchLookupSupported();
+    }
+
+    @Override
+    public void getJoinPositions(int[] positions, int positionCount, Page hashChannelsPage, Page allChannelsPage, @Nullable long[] rawHashes, long[] joinPositions)
+    {
+        lookupSource.getJoinPositions(positions, positionCount, hashChannelsPage, allChannelsPage, rawHashes, joinPositions);
+    }
+
     @Override
     public long getNextJoinPosition(long currentJoinPosition, int probePosition, Page allProbeChannelsPage)
     {
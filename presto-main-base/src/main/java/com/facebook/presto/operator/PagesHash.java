@@ -18,14 +18,24 @@ import com.facebook.presto.common.Page;
 import com.facebook.presto.common.PageBuilder;
 import com.facebook.presto.common.array.AdaptiveLongBigArray;
 import it.unimi.dsi.fastutil.HashCommon;
+import jakarta.annotation.Nullable;
 import org.openjdk.jol.info.ClassLayout;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
+import static com.facebook.airlift.concurrent.MoreFutures.getFutureValue;
 import static com.facebook.airlift.units.DataSize.Unit.KILOBYTE;
 import static com.facebook.presto.operator.SyntheticAddress.decodePosition;
 import static com.facebook.presto.operator.SyntheticAddress.decodeSliceIndex;
 import static com.facebook.presto.util.HashCollisionsEstimator.estimateNumberOfHashCollisions;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static io.airlift.slice.SizeOf.sizeOf;
 import static java.lang.Math.toIntExact;
 import static java.util.Objects.requireNonNull;
@@ -35,6 +45,9 @@ public final class PagesHash
 {
     private static final int INSTANCE_SIZE = ClassLayout.parseClass(PagesHash.class).instanceSize();
     private static final DataSize CACHE_SIZE = new DataSize(128, KILOBYTE);
+    // below this many positions per thread the hand-off costs more than the parallel insert saves
+    private static final int MIN_POSITIONS_PER_BUILD_THREAD = 1 << 18;
+    private static final VarHandle KEY_HANDLE = MethodHandles.arrayElementVarHandle(int[].class);
     private final AdaptiveLongBigArray addresses;
     private final int positionCount;
     private final PagesHashStrategy pagesHashStrategy;
@@ -52,16 +65,40 @@ public final class PagesHash
     private final double expectedHashCollisions;
     private final long positionIsNullCount;
 
+    private final int buildThreads;
+    private final long buildWallNanos;
+    private final long buildHashingNanos;
+    private final long buildInsertNanos;
+
     public PagesHash(
             AdaptiveLongBigArray addresses,
             int positionCount,
             PagesHashStrategy pagesHashStrategy,
             PositionLinks.FactoryBuilder positionLinks)
+    {
+        this(addresses, positionCount, pagesHashStrategy, positionLinks, 1, directExecutor());
+    }
+
+    /**
+     * @param buildConcurrency maximum number of threads inserting positions into the hash table,
+     * the calling thread included. Extra threads are only used for large builds whose position
+     * links can be linked concurrently.
+     * @param executor runs the inserts of the extra threads
+     */
+    public PagesHash(
+            AdaptiveLongBigArray addresses,
+            int positionCount,
+            PagesHashStrategy pagesHashStrategy,
+            PositionLinks.FactoryBuilder positionLinks,
+            int buildConcurrency,
+            Executor executor)
     {
         this.addresses = requireNonNull(addresses, "addresses is null");
         this.positionCount = positionCount;
         this.pagesHashStrategy = requireNonNull(pagesHashStrategy, "pagesHashStrategy is null");
         this.channelCount = pagesHashStrategy.getChannelCount();
+        checkArgument(buildConcurrency > 0, "buildConcurrency must be positive");
+        requireNonNull(executor, "executor is null");
 
         // reserve memory for the arrays
         int hashSize = HashCommon.arraySize(positionCount, 0.75f);
@@ -72,8 +109,33 @@ public final class PagesHash
 
         positionToHashes = new byte[positionCount];
 
+        long buildStart = System.nanoTime();
+        int threads = positionLinks.supportsConcurrentLinking() ? Math.min(buildConcurrency, positionCount / MIN_POSITIONS_PER_BUILD_THREAD) : 1;
+        BuildStats buildStats;
+        if (threads > 1) {
+            buildStats = insertPositionsConcurrently(positionLinks, threads, executor);
+        }
+        else {
+            threads = 1;
+            buildStats = new BuildStats();
+            insertPositions(positionLinks, buildStats);
+        }
+
+        size = addresses.getRetainedSizeInBytes() + pagesHashStrategy.getSizeInBytes() +
+                sizeOf(key) + sizeOf(positionToHashes);
+        hashCollisions = buildStats.hashCollisions;
+        expectedHashCollisions = estimateNumberOfHashCollisions(positionCount, hashSize);
+        positionIsNullCount = buildStats.positionIsNullCount;
+        buildThreads = threads;
+        buildHashingNanos = buildStats.hashingNanos;
+        buildInsertNanos = buildStats.insertNanos;
+        buildWallNanos = System.nanoTime() - buildStart;
+    }
+
+    private void insertPositions(PositionLinks.FactoryBuilder positionLinks, BuildStats buildStats)
+    {
         // We will process addresses in batches, to save memory on array of hashes.
-        int positionsInStep = Math.min(positionCount + 1, (int) CACHE_SIZE.toBytes() / Integer.SIZE);
+        int positionsInStep = getPositionsInStep(positionCount);
         long[] positionToFullHashes = new long[positionsInStep];
         long hashCollisionsLocal = 0;
         long positionIsNullCountLocal = 0;
@@ -83,15 +145,10 @@ public final class PagesHash
             int stepEndPosition = Math.min((step + 1) * positionsInStep, positionCount);
             int stepSize = stepEndPosition - stepBeginPosition;
 
-            // First extract all hashes from blocks to native array.
-            // Somehow having this as a separate loop is much faster compared
-            // to extracting hashes on the fly in the loop below.
-            for (int position = 0; position < stepSize; position++) {
-                int realPosition = position + stepBeginPosition;
-                long hash = readHashPosition(realPosition);
-                positionToFullHashes[position] = hash;
-                positionToHashes[realPosition] = (byte) hash;
-            }
+            long hashingStart = System.nanoTime();
+            hashPositions(stepBeginPosition, stepSize, positionToFullHashes);
+            long insertStart = System.nanoTime();
+            buildStats.hashingNanos += insertStart - hashingStart;
 
             // index pages
             for (int position = 0; position < stepSize; position++) {
@@ -122,13 +179,105 @@ public final class PagesHash
 
                 key[pos] = realPosition;
             }
+            buildStats.insertNanos += System.nanoTime() - insertStart;
         }
 
-        size = addresses.getRetainedSizeInBytes() + pagesHashStrategy.getSizeInBytes() +
-                sizeOf(key) + sizeOf(positionToHashes);
-        hashCollisions = hashCollisionsLocal;
-        expectedHashCollisions = estimateNumberOfHashCollisions(positionCount, hashSize);
-        positionIsNullCount = positionIsNullCountLocal;
+        buildStats.hashCollisions += hashCollisionsLocal;
+        buildStats.positionIsNullCount += positionIsNullCountLocal;
+    }
+
+    /**
+     * Splits the positions into contiguous ranges that are hashed and inserted by separate
+     * threads. Slots are claimed with a compare-and-set on {@code key}, and positions of a
+     * key that is already present are linked in front of the current head of its chain
+     * before the head is swapped, so the chains end up in a different order than with a
+     * single thread.
+     */
+    private BuildStats insertPositionsConcurrently(PositionLinks.FactoryBuilder positionLinks, int threads, Executor executor)
+    {
+        int positionsPerThread = (positionCount + threads - 1) / threads;
+        List<CompletableFuture<BuildStats>> futures = new ArrayList<>(threads - 1);
+        for (int thread = 1; thread < threads; thread++) {
+            int from = Math.min(thread * positionsPerThread, positionCount);
+            int to = Math.min(from + positionsPerThread, positionCount);
+            futures.add(CompletableFuture.supplyAsync(() -> insertPositionsConcurrently(positionLinks, from, to), executor));
+        }
+
+        // the calling thread takes the first range, so the build makes progress even if the executor is busy
+        BuildStats buildStats = insertPositionsConcurrently(positionLinks, 0, Math.min(positionsPerThread, positionCount));
+        for (CompletableFuture<BuildStats> future : futures) {
+            buildStats.add(getFutureValue(future));
+        }
+        return buildStats;
+    }
+
+    private BuildStats insertPositionsConcurrently(PositionLinks.FactoryBuilder positionLinks, int from, int to)
+    {
+        BuildStats buildStats = new BuildStats();
+        int positionsInStep = getPositionsInStep(to - from);
+        long[] positionToFullHashes = new long[positionsInStep];
+
+        for (int stepBeginPosition = from; stepBeginPosition < to; stepBeginPosition += positionsInStep) {
+            int stepSize = Math.min(positionsInStep, to - stepBeginPosition);
+
+            // the hashes of the step are written before any of its positions is published
+            // through key, which makes them visible to threads that find the position there
+            long hashingStart = System.nanoTime();
+            hashPositions(stepBeginPosition, stepSize, positionToFullHashes);
+            long insertStart = System.nanoTime();
+            buildStats.hashingNanos += insertStart - hashingStart;
+
+            for (int position = 0; position < stepSize; position++) {
+                int realPosition = position + stepBeginPosition;
+                if (isPositionNull(realPosition)) {
+                    buildStats.positionIsNullCount++;
+                    continue;
+                }
+
+                long hash = positionToFullHashes[position];
+                int pos = getHashPosition(hash, mask);
+                while (true) {
+                    int currentKey = (int) KEY_HANDLE.getAcquire(key, pos);
+                    if (currentKey == -1) {
+                        if (KEY_HANDLE.compareAndSet(key, pos, -1, realPosition)) {
+                            break;
+                        }
+                        // another thread took the slot, look at what it stored
+                        continue;
+                    }
+                    if (((byte) hash) == positionToHashes[currentKey] && positionEqualsPositionIgnoreNulls(currentKey, realPosition)) {
+                        positionLinks.link(realPosition, currentKey);
+                        if (KEY_HANDLE.compareAndSet(key, pos, currentKey, realPosition)) {
+                            break;
+                        }
+                        // another position of this key became the head in between, link to that one instead
+                        continue;
+                    }
+                    pos = (pos + 1) & mask;
+                    buildStats.hashCollisions++;
+                }
+            }
+            buildStats.insertNanos += System.nanoTime() - insertStart;
+        }
+        return buildStats;
+    }
+
+    private void hashPositions(int stepBeginPosition, int stepSize, long[] positionToFullHashes)
+    {
+        // First extract all hashes from blocks to native array.
+        // Somehow having this as a separate loop is much faster compared
+        // to extracting hashes on the fly in the insert loop.
+        for (int position = 0; position < stepSize; position++) {
+            int realPosition = position + stepBeginPosition;
+            long hash = readHashPosition(realPosition);
+            positionToFullHashes[position] = hash;
+            positionToHashes[realPosition] = (byte) hash;
+        }
+    }
+
+    private static int getPositionsInStep(int positionCount)
+    {
+        return Math.min(positionCount + 1, (int) CACHE_SIZE.toBytes() / Integer.SIZE);
     }
 
     public final int getChannelCount()
@@ -161,6 +310,32 @@ public final class PagesHash
         return positionIsNullCount;
     }
 
+    public int getBuildThreads()
+    {
+        return buildThreads;
+    }
+
+    public long getBuildWallNanos()
+    {
+        return buildWallNanos;
+    }
+
+    /**
+     * @return time spent reading the hashes of the build positions, summed over the build threads
+     */
+    public long getBuildHashingNanos()
+    {
+        return buildHashingNanos;
+    }
+
+    /**
+     * @return time spent inserting the build positions into the table, summed over the build threads
+     */
+    public long getBuildInsertNanos()
+    {
+        return buildInsertNanos;
+    }
+
     public int getAddressIndex(int position, Page hashChannelsPage)
     {
         return getAddressIndex(position, hashChannelsPage, pagesHashStrategy.hashRow(position, hashChannelsPage));
@@ -180,6 +355,59 @@ public final class PagesHash
         return -1;
     }
 
+    /**
+     * Batched form of {@link #getAddressIndex(int, Page, long)} for the first {@code positionCount} entries of
+     * {@code positions}. The address index of {@code positions[i]} is stored in {@code addressIndexes[i]}.
+     * {@code rawHashes} is indexed by page position, or null when the hashes have to be computed here.
+     * <p>
+     * The lookup runs in separate passes over the whole batch so the cache misses on the hash table of
+     * independent probe rows overlap instead of stalling one row at a time: first all hashes are computed,
+     * then the bucket heads in {@code key} are loaded, then their fingerprints in {@code positionToHashes}
+     * and addresses, and finally the candidates are compared with one batched equality check. Rows whose
+     * first candidate is not a match fall back to the regular linear probing.
+     */
+    public void getAddressIndexes(int[] positions, int positionCount, Page hashChannelsPage, @Nullable long[] rawHashes, int[] addressIndexes)
+    {
+        long[] hashes = new long[positionCount];
+        for (int i = 0; i < positionCount; i++) {
+            int position = positions[i];
+            hashes[i] = rawHashes == null ? pagesHashStrategy.hashRow(position, hashChannelsPage) : rawHashes[position];
+        }
+
+        for (int i = 0; i < positionCount; i++) {
+            addressIndexes[i] = key[getHashPosition(hashes[i], mask)];
+        }
+
+        long[] candidateAddresses = new long[positionCount];
+        int[] candidatePositions = new int[positionCount];
+        int[] candidateIndexes = new int[positionCount];
+        int candidateCount = 0;
+        for (int i = 0; i < positionCount; i++) {
+            int addressIndex = addressIndexes[i];
+            if (addressIndex == -1) {
+                continue;
+            }
+            if (positionToHashes[addressIndex] == (byte) hashes[i]) {
+                candidateAddresses[candidateCount] = addresses.get(addressIndex);
+                candidatePositions[candidateCount] = positions[i];
+                candidateIndexes[candidateCount] = i;
+                candidateCount++;
+            }
+            else {
+                addressIndexes[i] = getAddressIndex(positions[i], hashChannelsPage, hashes[i]);
+            }
+        }
+
+        boolean[] equal = new boolean[candidateCount];
+        pagesHashStrategy.positionEqualsRowIgnoreNulls(candidateAddresses, candidatePositions, candidateCount, hashChannelsPage, equal);
+        for (int candidate = 0; candidate < candidateCount; candidate++) {
+            if (!equal[candidate]) {
+                int i = candidateIndexes[candidate];
+                addressIndexes[i] = getAddressIndex(positions[i], hashChannelsPage, hashes[i]);
+            }
+        }
+    }
+
     public void appendTo(long position, PageBuilder pageBuilder, int outputChannelOffset)
     {
         long pageAddress = addresses.get(toIntExact(position));
@@ -250,4 +478,20 @@ public final class PagesHash
 
         return (int) (rawHash & mask);
     }
+
+    private static class BuildStats
+    {
+        private long hashCollisions;
+        private long positionIsNullCount;
+        private long hashingNanos;
+        private long insertNanos;
+
+        private void add(BuildStats other)
+        {
+            hashCollisions += other.hashCollisions;
+            positionIsNullCount += other.positionIsNullCount;
+            hashingNanos += other.hashingNanos;
+            insertNanos += other.insertNanos;
+        }
+    }
 }
@@ -16,6 +16,9 @@ package com.facebook.presto.operator;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.PageBuilder;
 
+import static com.facebook.presto.operator.SyntheticAddress.decodePosition;
+import static com.facebook.presto.operator.SyntheticAddress.decodeSliceIndex;
+
 public interface PagesHashStrategy
 {
     /**
@@ -69,6 +72,21 @@ public interface PagesHashStrategy
      */
     boolean positionEqualsRowIgnoreNulls(int leftBlockIndex, int leftPosition, int rightPosition, Page rightPage);
 
+    /**
+     * Batched form of {@link #positionEqualsRowIgnoreNulls(int, int, int, Page)}. Compares the hashed columns at
+     * the synthetic address {@code leftAddresses[i]} to the values at {@code rightPositions[i]} in {@code rightPage}
+     * for the first {@code count} entries and stores the outcome in {@code result[i]}.
+     * <p>
+     * This method does not perform any null checks.
+     */
+    default void positionEqualsRowIgnoreNulls(long[] leftAddresses, int[] rightPositions, int count, Page rightPage, boolean[] result)
+    {
+        for (int i = 0; i < count; i++) {
+            long leftAddress = leftAddresses[i];
+            result[i] = positionEqualsRowIgnoreNulls(decodeSliceIndex(leftAddress), decodePosition(leftAddress), rightPositions[i], rightPage);
+        }
+    }
+
     /**
      * Compares the hashed columns in this PagesHashStrategy to the hashed columns in the Page. The
      * values are compared positionally, so {@code rightChannels} must have the same number of entries as
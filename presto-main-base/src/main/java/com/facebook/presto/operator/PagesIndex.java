@@ -48,12 +48,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.concurrent.Executor;
 import java.util.function.IntUnaryOperator;
 import java.util.function.Supplier;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static com.facebook.airlift.units.DataSize.Unit.BYTE;
+import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
 import static com.facebook.presto.operator.SyntheticAddress.decodePosition;
 import static com.facebook.presto.operator.SyntheticAddress.decodeSliceIndex;
 import static com.facebook.presto.operator.SyntheticAddress.encodeSyntheticAddress;
@@ -86,6 +88,7 @@ public class PagesIndex
     private final AdaptiveLongBigArray valueAddresses;
     private final ObjectArrayList<Block>[] channels;
     private final boolean eagerCompact;
+    private final boolean normalizedKeySortEnabled;
 
     private int nextBlockToCompact;
     private int positionCount;
@@ -98,7 +101,8 @@ public class PagesIndex
             FunctionAndTypeManager functionAndTypeManager,
             List<Type> types,
             int expectedPositions,
-            boolean eagerCompact)
+            boolean eagerCompact,
+            boolean normalizedKeySortEnabled)
     {
         this.orderingCompiler = requireNonNull(orderingCompiler, "orderingCompiler is null");
         this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
@@ -107,6 +111,7 @@ public class PagesIndex
         this.valueAddresses = new AdaptiveLongBigArray();
         this.valueAddresses.ensureCapacity(expectedPositions);
         this.eagerCompact = eagerCompact;
+        this.normalizedKeySortEnabled = normalizedKeySortEnabled;
 
         //noinspection rawtypes
         channels = (ObjectArrayList<Block>[]) new ObjectArrayList[types.size()];
@@ -128,16 +133,23 @@ public class PagesIndex
         private static final OrderingCompiler ORDERING_COMPILER = new OrderingCompiler();
         private static final JoinCompiler JOIN_COMPILER = new JoinCompiler(MetadataManager.createTestMetadataManager());
         private final boolean eagerCompact;
+        private final boolean normalizedKeySortEnabled;
 
         public TestingFactory(boolean eagerCompact)
+        {
+            this(eagerCompact, true);
+        }
+
+        public TestingFactory(boolean eagerCompact, boolean normalizedKeySortEnabled)
         {
             this.eagerCompact = eagerCompact;
+            this.normalizedKeySortEnabled = normalizedKeySortEnabled;
         }
 
         @Override
         public PagesIndex newPagesIndex(List<Type> types, int expectedPositions)
         {
-            return new PagesIndex(ORDERING_COMPILER, JOIN_COMPILER, MetadataManager.createTestMetadataManager().getFunctionAndTypeManager(), types, expectedPositions, eagerCompact);
+            return new PagesIndex(ORDERING_COMPILER, JOIN_COMPILER, MetadataManager.createTestMetadataManager().getFunctionAndTypeManager(), types, expectedPositions, eagerCompact, normalizedKeySortEnabled);
         }
     }
 
@@ -147,6 +159,7 @@ public class PagesIndex
         private final OrderingCompiler orderingCompiler;
         private final JoinCompiler joinCompiler;
         private final boolean eagerCompact;
+        private final boolean normalizedKeySortEnabled;
         private final FunctionAndTypeManager functionAndTypeManager;
 
         @Inject
@@ -155,13 +168,14 @@ public class PagesIndex
             this.orderingCompiler = requireNonNull(orderingCompiler, "orderingCompiler is null");
             this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
             this.eagerCompact = requireNonNull(featuresConfig, "featuresConfig is null").isPagesIndexEagerCompactionEnabled();
+            this.normalizedKeySortEnabled = featuresConfig.isPagesIndexNormalizedKeySortEnabled();
             this.functionAndTypeManager = requireNonNull(metadata, "metadata is null").getFunctionAndTypeManager();
         }
 
         @Override
         public PagesIndex newPagesIndex(List<Type> types, int expectedPositions)
         {
-            return new PagesIndex(orderingCompiler, joinCompiler, functionAndTypeManager, types, expectedPositions, eagerCompact);
+            return new PagesIndex(orderingCompiler, joinCompiler, functionAndTypeManager, types, expectedPositions, eagerCompact, normalizedKeySortEnabled);
         }
     }
 
@@ -373,9 +387,29 @@ public class PagesIndex
         sort(sortChannels, sortOrders, 0, getPositionCount());
     }
 
+    public void sort(List<Integer> sortChannels, List<SortOrder> sortOrders, LocalMemoryContext sortMemoryContext)
+    {
+        sort(sortChannels, sortOrders, 0, getPositionCount(), sortMemoryContext);
+    }
+
     public void sort(List<Integer> sortChannels, List<SortOrder> sortOrders, int startPosition, int endPosition)
     {
-        createPagesIndexComparator(sortChannels, sortOrders).sort(this, startPosition, endPosition);
+        sort(sortChannels, sortOrders, startPosition, endPosition, newSimpleAggregatedMemoryContext().newLocalMemoryContext(PagesIndex.class.getSimpleName()));
+    }
+
+    /**
+     * Sorts the positions {@code [startPosition, endPosition)}, reporting the memory used by the sort
+     * on top of the index to {@code sortMemoryContext} while it runs.
+     */
+    public void sort(List<Integer> sortChannels, List<SortOrder> sortOrders, int startPosition, int endPosition, LocalMemoryContext sortMemoryContext)
+    {
+        PagesIndexOrdering ordering = createPagesIndexComparator(sortChannels, sortOrders);
+        if (normalizedKeySortEnabled
+                && endPosition - startPosition >= NormalizedKeySorter.MIN_POSITIONS
+                && NormalizedKeySorter.sort(this, sortChannels, sortOrders, ordering.getComparator(), startPosition, endPosition, sortMemoryContext)) {
+            return;
+        }
+        ordering.sort(this, startPosition, endPosition);
     }
 
     public boolean positionEqualsPosition(PagesHashStrategy partitionHashStrategy, int leftPosition, int rightPosition)
@@ -453,7 +487,7 @@ public class PagesIndex
             Optional<Integer> sortChannel,
             List<JoinFilterFunctionFactory> searchFunctionFactories)
     {
-        return createLookupSourceSupplier(session, joinChannels, hashChannel, filterFunctionFactory, sortChannel, searchFunctionFactories, Optional.empty());
+        return createLookupSourceSupplier(session, joinChannels, hashChannel, filterFunctionFactory, sortChannel, searchFunctionFactories, Optional.empty(), Optional.empty());
     }
 
     public PagesSpatialIndexSupplier createPagesSpatialIndex(
@@ -479,7 +513,8 @@ public class PagesIndex
             Optional<JoinFilterFunctionFactory> filterFunctionFactory,
             Optional<Integer> sortChannel,
             List<JoinFilterFunctionFactory> searchFunctionFactories,
-            Optional<List<Integer>> outputChannels)
+            Optional<List<Integer>> outputChannels,
+            Optional<Executor> hashBuildExecutor)
     {
         List<List<Block>> channels = ImmutableList.copyOf(this.channels);
         if (!joinChannels.isEmpty()) {
@@ -497,7 +532,8 @@ public class PagesIndex
                         hashChannel,
                         filterFunctionFactory,
                         sortChannel,
-                        searchFunctionFactories);
+                        searchFunctionFactories,
+                        hashBuildExecutor);
             }
             catch (Exception e) {
                 log.error(e, "Lookup source compile failed for types=%s error=%s", types, e);
@@ -522,7 +558,8 @@ public class PagesIndex
                 channels,
                 filterFunctionFactory,
                 sortChannel,
-                searchFunctionFactories);
+                searchFunctionFactories,
+                hashBuildExecutor);
     }
 
     private List<Integer> rangeList(int endExclusive)
@@ -142,6 +142,54 @@ public class PartitionedLookupSource
         return encodePartitionedJoinPosition(partition, toIntExact(joinPosition));
     }
 
+    @Override
+    public boolean isBatchLookupSupported()
+    {
+        return Arrays.stream(lookupSources).allMatch(LookupSource::isBatchLookupSupported);
+    }
+
+    @Override
+    public void getJoinPositions(int[] positions, int positionCount, Page hashChannelsPage, Page allChannelsPage, @Nullable long[] rawHashes, long[] joinPositions)
+    {
+        if (rawHashes == null) {
+            rawHashes = new long[hashChannelsPage.getPositionCount()];
+            for (int i = 0; i < positionCount; i++) {
+                rawHashes[positions[i]] = partitionGenerator.getRawHash(hashChannelsPage, positions[i]);
+            }
+        }
+
+        // group the positions by partition so each partition is probed with a single batch
+        int[] partitionOffsets = new int[lookupSources.length + 1];
+        for (int i = 0; i < positionCount; i++) {
+            partitionOffsets[partitionGenerator.getPartition(rawHashes[positions[i]]) + 1]++;
+        }
+        for (int partition = 0; partition < lookupSources.length; partition++) {
+            partitionOffsets[partition + 1] += partitionOffsets[partition];
+        }
+        int[] partitionedPositions = new int[positionCount];
+        int[] nextOffsets = Arrays.copyOf(partitionOffsets, lookupSources.length);
+        for (int i = 0; i < positionCount; i++) {
+            int partition = partitionGenerator.getPartition(rawHashes[positions[i]]);
+            partitionedPositions[nextOffsets[partition]++] = positions[i];
+        }
+
+        for (int partition = 0; partition < lookupSources.length; partition++) {
+            int start = partitionOffsets[partition];
+            int count = partitionOffsets[partition + 1] - start;
+            if (count == 0) {
+                continue;
+            }
+            int[] partitionPositions = start == 0 ? partitionedPositions : Arrays.copyOfRange(partitionedPositions, start, start + count);
+            lookupSources[partition].getJoinPositions(partitionPositions, count, hashChannelsPage, allChannelsPage, rawHashes, joinPositions);
+            for (int i = 0; i < count; i++) {
+                int position = partitionPositions[i];
+                if (joinPositions[position] >= 0) {
+                    joinPositions[position] = encodePartitionedJoinPosition(partition, toIntExact(joinPositions[position]));
+                }
+            }
+        }
+    }
+
     @Override
     public long getNextJoinPosition(long currentJoinPosition, int probePosition, Page allProbeChannelsPage)
     {
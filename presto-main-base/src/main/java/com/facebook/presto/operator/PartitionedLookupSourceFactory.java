@@ -40,11 +40,14 @@ import java.util.function.Function;
 import java.util.function.IntPredicate;
 import java.util.function.Supplier;
 
+import static com.facebook.airlift.concurrent.MoreFutures.addSuccessCallback;
 import static com.facebook.presto.operator.OuterLookupSource.createOuterLookupSourceSupplier;
 import static com.facebook.presto.operator.PartitionedLookupSource.createPartitionedLookupSourceSupplier;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.util.concurrent.Futures.allAsList;
 import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static com.google.common.util.concurrent.Futures.nonCancellationPropagating;
 import static com.google.common.util.concurrent.Futures.transform;
@@ -81,6 +84,10 @@ public final class PartitionedLookupSourceFactory
     @GuardedBy("lock")
     private final Map<Integer, SpilledLookupSourceHandle> spilledPartitions = new HashMap<>();
 
+    // indexed by the partition numbers of the partitioned consumption
+    @GuardedBy("lock")
+    private final List<SpilledPartitionRound> spilledPartitionRounds = new ArrayList<>();
+
     @GuardedBy("lock")
     private TrackingLookupSourceSupplier lookupSourceSupplier;
 
@@ -339,12 +346,13 @@ public final class PartitionedLookupSourceFactory
                 // We can dispose partitions now since right outer is not supported with spill
                 freePartitions();
                 verify(!partitionedConsumption.isDone());
-                partitionedConsumption.set(new PartitionedConsumption<>(
-                        partitionedConsumptionParticipants.getAsInt(),
-                        spilledPartitions.keySet(),
-                        this::loadSpilledLookupSource,
-                        this::disposeSpilledLookupSource,
-                        this::spilledLookupSourceDisposed));
+                // Partitions too large to be unspilled at once are still being split by their build operators
+                int participants = partitionedConsumptionParticipants.getAsInt();
+                List<Integer> partitionIndexes = ImmutableList.copyOf(spilledPartitions.keySet());
+                List<ListenableFuture<SpilledPartitionLayout>> layouts = partitionIndexes.stream()
+                        .map(partitionIndex -> spilledPartitions.get(partitionIndex).getLayout())
+                        .collect(toImmutableList());
+                addSuccessCallback(allAsList(layouts), partitionLayouts -> startPartitionedConsumption(participants, partitionIndexes, partitionLayouts));
             }
 
             return partitionedConsumption;
@@ -354,26 +362,67 @@ public final class PartitionedLookupSourceFactory
         }
     }
 
+    private void startPartitionedConsumption(int participants, List<Integer> partitionIndexes, List<SpilledPartitionLayout> partitionLayouts)
+    {
+        ImmutableList.Builder<Integer> partitionNumbers = ImmutableList.builder();
+        lock.writeLock().lock();
+        try {
+            // every round of every spilled partition is consumed as a separate partition
+            for (int i = 0; i < partitionIndexes.size(); i++) {
+                SpilledPartitionLayout partitionLayout = partitionLayouts.get(i);
+                for (int round = 0; round < partitionLayout.getRoundCount(); round++) {
+                    partitionNumbers.add(spilledPartitionRounds.size());
+                    spilledPartitionRounds.add(new SpilledPartitionRound(partitionIndexes.get(i), round, partitionLayout));
+                }
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+
+        partitionedConsumption.set(new PartitionedConsumption<>(
+                participants,
+                partitionNumbers.build(),
+                this::loadSpilledLookupSource,
+                this::disposeSpilledLookupSource,
+                this::spilledLookupSourceDisposed));
+    }
+
+    @Override
+    public SpilledPartitionRound getSpilledPartitionRound(int partitionNumber)
+    {
+        lock.readLock().lock();
+        try {
+            return spilledPartitionRounds.get(partitionNumber);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
     private ListenableFuture<Supplier<LookupSource>> loadSpilledLookupSource(int partitionNumber)
     {
-        return getSpilledLookupSourceHandle(partitionNumber).getLookupSource();
+        SpilledPartitionRound round = getSpilledPartitionRound(partitionNumber);
+        return getSpilledLookupSourceHandle(round.getPartition()).getLookupSource(round.getRound());
     }
 
     private void disposeSpilledLookupSource(int partitionNumber)
     {
-        getSpilledLookupSourceHandle(partitionNumber).dispose();
+        SpilledPartitionRound round = getSpilledPartitionRound(partitionNumber);
+        getSpilledLookupSourceHandle(round.getPartition()).dispose(round.getRound());
     }
 
     private SettableFuture<?> spilledLookupSourceDisposed(int partitionNumber)
     {
-        return getSpilledLookupSourceHandle(partitionNumber).getDisposeCompleted();
+        SpilledPartitionRound round = getSpilledPartitionRound(partitionNumber);
+        return getSpilledLookupSourceHandle(round.getPartition()).getDisposeCompleted(round.getRound());
     }
 
-    private SpilledLookupSourceHandle getSpilledLookupSourceHandle(int partitionNumber)
+    private SpilledLookupSourceHandle getSpilledLookupSourceHandle(int partitionIndex)
     {
         lock.readLock().lock();
         try {
-            return requireNonNull(spilledPartitions.get(partitionNumber), "spilledPartitions.get(partitionNumber) is null");
+            return requireNonNull(spilledPartitions.get(partitionIndex), "spilledPartitions.get(partitionIndex) is null");
         }
         finally {
             lock.readLock().unlock();
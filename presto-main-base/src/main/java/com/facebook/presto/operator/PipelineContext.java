@@ -217,6 +217,24 @@ public class PipelineContext
         physicalWrittenDataSize.getAndAdd(driverStats.getPhysicalWrittenDataSizeInBytes());
     }
 
+    /**
+     * Forgets a driver that never started because its split was reclaimed
+     * and reassigned to another task.
+     */
+    public void driverReclaimed(DriverContext driverContext)
+    {
+        requireNonNull(driverContext, "driverContext is null");
+
+        if (!drivers.remove(driverContext)) {
+            throw new IllegalArgumentException("Unknown driver " + driverContext);
+        }
+
+        totalSplits.decrementAndGet();
+        if (partitioned) {
+            totalSplitsWeight.addAndGet(-driverContext.getSplitWeight());
+        }
+    }
+
     public void start()
     {
         long now = currentTimeMillis();
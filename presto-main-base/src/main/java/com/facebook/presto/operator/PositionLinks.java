@@ -49,6 +49,15 @@ public interface PositionLinks
         Factory build();
 
         boolean isEmpty();
+
+        /**
+         * Whether {@link #link} may be called from several threads at once, each thread linking
+         * distinct left positions. Builders that support it must always return the left position.
+         */
+        default boolean supportsConcurrentLinking()
+        {
+            return false;
+        }
     }
 
     interface Factory
@@ -20,12 +20,20 @@ import com.google.errorprone.annotations.ThreadSafe;
 import com.google.errorprone.annotations.concurrent.GuardedBy;
 import jakarta.annotation.Nullable;
 
+import java.util.List;
 import java.util.function.Supplier;
 
 import static com.facebook.airlift.concurrent.MoreFutures.whenAnyComplete;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.IntStream.range;
 
+/**
+ * Hands a spilled partition over from {@link HashBuilderOperator} to the probe side. The partition is
+ * unspilled in one or more rounds, as described by its {@link SpilledPartitionLayout}, and every round
+ * goes through the SPILLED, UNSPILLING, PRODUCED, DISPOSE_REQUESTED and DISPOSE_COMPLETED states.
+ */
 @ThreadSafe
 final class SpilledLookupSourceHandle
 {
@@ -41,7 +49,13 @@ final class SpilledLookupSourceHandle
     @GuardedBy("this")
     private State state = State.SPILLED;
 
-    private final SettableFuture<?> unspillingRequested = SettableFuture.create();
+    @GuardedBy("this")
+    private int currentRound;
+
+    private final SettableFuture<SpilledPartitionLayout> layout = SettableFuture.create();
+
+    // set together with the layout
+    private volatile List<Round> rounds;
 
     @GuardedBy("this")
     @Nullable
@@ -50,17 +64,34 @@ final class SpilledLookupSourceHandle
     private final SettableFuture<?> disposeRequested = SettableFuture.create();
     private final SettableFuture<?> disposeCompleted = SettableFuture.create();
 
-    private final ListenableFuture<?> unspillingOrDisposeRequested = whenAnyComplete(ImmutableList.of(unspillingRequested, disposeRequested));
+    public synchronized void setLayout(SpilledPartitionLayout layout)
+    {
+        requireNonNull(layout, "layout is null");
+        checkState(rounds == null, "layout already set");
+        rounds = range(0, layout.getRoundCount())
+                .mapToObj(round -> new Round())
+                .collect(toImmutableList());
+        if (disposeRequested.isDone()) {
+            rounds.forEach(round -> round.disposeRequested.set(null));
+        }
+        this.layout.set(layout);
+    }
+
+    public ListenableFuture<SpilledPartitionLayout> getLayout()
+    {
+        return layout;
+    }
 
-    public SettableFuture<?> getUnspillingRequested()
+    public SettableFuture<?> getUnspillingRequested(int round)
     {
-        return unspillingRequested;
+        return getRound(round).unspillingRequested;
     }
 
-    public synchronized ListenableFuture<Supplier<LookupSource>> getLookupSource()
+    public synchronized ListenableFuture<Supplier<LookupSource>> getLookupSource(int round)
     {
         assertState(State.SPILLED);
-        unspillingRequested.set(null);
+        checkState(round == currentRound, "Expected round %s, but round is %s", currentRound, round);
+        getRound(round).unspillingRequested.set(null);
         setState(State.UNSPILLING);
         checkState(unspilledLookupSource == null, "unspilledLookupSource already set");
         unspilledLookupSource = SettableFuture.create();
@@ -82,9 +113,27 @@ final class SpilledLookupSourceHandle
         setState(State.PRODUCED);
     }
 
+    /**
+     * Requests disposal of a single round, once all the probe operators are done with it.
+     */
+    public synchronized void dispose(int round)
+    {
+        getRound(round).disposeRequested.set(null);
+        if (round == currentRound) {
+            unspilledLookupSource = null; // let the memory go
+            setState(State.DISPOSE_REQUESTED);
+        }
+    }
+
+    /**
+     * Requests disposal of the whole partition, including the rounds that were not unspilled yet.
+     */
     public synchronized void dispose()
     {
         disposeRequested.set(null);
+        if (rounds != null) {
+            rounds.forEach(round -> round.disposeRequested.set(null));
+        }
         unspilledLookupSource = null; // let the memory go
         setState(State.DISPOSE_REQUESTED);
     }
@@ -94,10 +143,51 @@ final class SpilledLookupSourceHandle
         return disposeRequested;
     }
 
-    public synchronized void setDisposeCompleted()
+    public SettableFuture<?> getDisposeRequested(int round)
+    {
+        return getRound(round).disposeRequested;
+    }
+
+    /**
+     * Marks the round as disposed. Unless the whole partition is being disposed, the next round
+     * becomes ready to be unspilled.
+     *
+     * @return whether there are more rounds to unspill
+     */
+    public boolean setDisposeCompleted(int round)
     {
+        Round disposed;
+        boolean hasNextRound;
+        synchronized (this) {
+            checkState(round == currentRound, "Expected round %s, but round is %s", currentRound, round);
+            disposed = getRound(round);
+            hasNextRound = !disposeRequested.isDone() && round + 1 < rounds.size();
+            if (hasNextRound) {
+                currentRound++;
+                setState(State.SPILLED);
+            }
+            else {
+                setState(State.DISPOSE_COMPLETED);
+            }
+        }
+
+        // completing the futures may trigger loading of the next round, which needs the state updated
+        disposed.disposeCompleted.set(null);
+        if (!hasNextRound) {
+            setDisposeCompleted();
+        }
+        return hasNextRound;
+    }
+
+    public void setDisposeCompleted()
+    {
+        synchronized (this) {
+            setState(State.DISPOSE_COMPLETED);
+        }
+        if (rounds != null) {
+            rounds.forEach(round -> round.disposeCompleted.set(null));
+        }
         disposeCompleted.set(null);
-        setState(State.DISPOSE_COMPLETED);
     }
 
     public SettableFuture<?> getDisposeCompleted()
@@ -105,9 +195,21 @@ final class SpilledLookupSourceHandle
         return disposeCompleted;
     }
 
-    public ListenableFuture<?> getUnspillingOrDisposeRequested()
+    public SettableFuture<?> getDisposeCompleted(int round)
     {
-        return unspillingOrDisposeRequested;
+        return getRound(round).disposeCompleted;
+    }
+
+    public ListenableFuture<?> getUnspillingOrDisposeRequested(int round)
+    {
+        return getRound(round).unspillingOrDisposeRequested;
+    }
+
+    private Round getRound(int round)
+    {
+        List<Round> rounds = this.rounds;
+        checkState(rounds != null, "layout not set");
+        return rounds.get(round);
     }
 
     @GuardedBy("this")
@@ -120,7 +222,14 @@ final class SpilledLookupSourceHandle
     @GuardedBy("this")
     private void setState(State newState)
     {
-        //this.state.set(requireNonNull(newState, "newState is null"));
         this.state = requireNonNull(newState, "newState is null");
     }
+
+    private static class Round
+    {
+        private final SettableFuture<?> unspillingRequested = SettableFuture.create();
+        private final SettableFuture<?> disposeRequested = SettableFuture.create();
+        private final SettableFuture<?> disposeCompleted = SettableFuture.create();
+        private final ListenableFuture<?> unspillingOrDisposeRequested = whenAnyComplete(ImmutableList.of(unspillingRequested, disposeRequested));
+    }
 }
@@ -0,0 +1,307 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.common.Page;
+import com.google.errorprone.annotations.Immutable;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Describes how a spilled build partition of a hash join is consumed. A partition that fits into the
+ * unspill memory limit is consumed in a single round. A larger partition is split by the hash of the join
+ * key into leaves, recursively and with a different hash seed on every level, and every leaf is consumed
+ * in its own round. A leaf that is still too large, typically because of a skewed key, is consumed in
+ * several chunks, and its probe rows are joined against every chunk like in a block nested loop join.
+ * <p>
+ * Rounds are numbered leaf by leaf, so the chunks of a leaf are consumed in consecutive rounds.
+ */
+@Immutable
+public final class SpilledPartitionLayout
+{
+    private static final SpilledPartitionLayout SINGLE_ROUND = new SpilledPartitionLayout(new int[0], new int[0], new int[0], new int[0], new int[] {1});
+
+    // flattened split tree, node 0 is the root; a negative child reference ~leaf points to a leaf
+    private final int[] nodeLevels;
+    private final int[] nodeFanouts;
+    private final int[] nodeChildrenOffsets;
+    private final int[] childReferences;
+
+    private final int[] leafChunkCounts;
+    private final int[] roundLeaves;
+    private final int[] roundChunks;
+
+    private SpilledPartitionLayout(int[] nodeLevels, int[] nodeFanouts, int[] nodeChildrenOffsets, int[] childReferences, int[] leafChunkCounts)
+    {
+        this.nodeLevels = nodeLevels;
+        this.nodeFanouts = nodeFanouts;
+        this.nodeChildrenOffsets = nodeChildrenOffsets;
+        this.childReferences = childReferences;
+        this.leafChunkCounts = leafChunkCounts;
+
+        IntArrayList roundLeaves = new IntArrayList();
+        IntArrayList roundChunks = new IntArrayList();
+        for (int leaf = 0; leaf < leafChunkCounts.length; leaf++) {
+            checkArgument(leafChunkCounts[leaf] > 0, "chunk count must be positive");
+            for (int chunk = 0; chunk < leafChunkCounts[leaf]; chunk++) {
+                roundLeaves.add(leaf);
+                roundChunks.add(chunk);
+            }
+        }
+        this.roundLeaves = roundLeaves.toIntArray();
+        this.roundChunks = roundChunks.toIntArray();
+    }
+
+    public static SpilledPartitionLayout singleRound()
+    {
+        return SINGLE_ROUND;
+    }
+
+    /**
+     * Freezes a split tree built while repartitioning a spilled partition. Every child of every split
+     * must have been either split further or turned into a leaf.
+     */
+    public static SpilledPartitionLayout repartitioned(Split root)
+    {
+        requireNonNull(root, "root is null");
+        checkArgument(root.level == 0, "root must be on level 0");
+
+        IntArrayList nodeLevels = new IntArrayList();
+        IntArrayList nodeFanouts = new IntArrayList();
+        IntArrayList nodeChildrenOffsets = new IntArrayList();
+        IntArrayList childReferences = new IntArrayList();
+
+        // breadth first, so that the node numbers are known before children references are written
+        Queue<Split> splits = new ArrayDeque<>();
+        splits.add(root);
+        int nextNode = 1;
+        while (!splits.isEmpty()) {
+            Split split = splits.remove();
+            nodeLevels.add(split.level);
+            nodeFanouts.add(split.fanout);
+            nodeChildrenOffsets.add(childReferences.size());
+            for (int child = 0; child < split.fanout; child++) {
+                if (split.children[child] != null) {
+                    splits.add(split.children[child]);
+                    childReferences.add(nextNode++);
+                }
+                else {
+                    checkState(split.leaves[child] >= 0, "child %s is neither split nor a leaf", child);
+                    childReferences.add(~split.leaves[child]);
+                }
+            }
+        }
+        return new SpilledPartitionLayout(
+                nodeLevels.toIntArray(),
+                nodeFanouts.toIntArray(),
+                nodeChildrenOffsets.toIntArray(),
+                childReferences.toIntArray(),
+                root.leafChunkCounts.toIntArray());
+    }
+
+    public boolean isRepartitioned()
+    {
+        return nodeLevels.length > 0;
+    }
+
+    public int getRoundCount()
+    {
+        return roundLeaves.length;
+    }
+
+    public int getLeafCount()
+    {
+        return leafChunkCounts.length;
+    }
+
+    public int getLeaf(long rawHash)
+    {
+        checkState(isRepartitioned(), "partition is not repartitioned");
+        int node = 0;
+        while (true) {
+            int reference = childReferences[nodeChildrenOffsets[node] + getSubPartition(rawHash, nodeLevels[node], nodeFanouts[node])];
+            if (reference < 0) {
+                return ~reference;
+            }
+            node = reference;
+        }
+    }
+
+    public int getRoundLeaf(int round)
+    {
+        checkElementIndex(round, roundLeaves.length, "round");
+        return roundLeaves[round];
+    }
+
+    public int getRoundChunk(int round)
+    {
+        checkElementIndex(round, roundChunks.length, "round");
+        return roundChunks[round];
+    }
+
+    public int getChunkCount(int leaf)
+    {
+        checkElementIndex(leaf, leafChunkCounts.length, "leaf");
+        return leafChunkCounts[leaf];
+    }
+
+    public int getMaxChunkCount()
+    {
+        int maxChunkCount = 0;
+        for (int chunkCount : leafChunkCounts) {
+            maxChunkCount = Math.max(maxChunkCount, chunkCount);
+        }
+        return maxChunkCount;
+    }
+
+    public boolean isLastChunk(int round)
+    {
+        return getRoundChunk(round) == getChunkCount(getRoundLeaf(round)) - 1;
+    }
+
+    /**
+     * Returns the sub-partition of a row on a given level of the split tree. Every level mixes the raw hash with
+     * a different seed, so that rows which collided on one level are spread on the next one.
+     */
+    public static int getSubPartition(long rawHash, int level, int fanout)
+    {
+        return (int) Long.remainderUnsigned(HashCommon.murmurHash3(rawHash ^ (0x9E3779B97F4A7C15L * (level + 1))), fanout);
+    }
+
+    /**
+     * Routes probe rows to the leaves of a repartitioned layout.
+     */
+    public PartitionFunction createLeafPartitionFunction(HashGenerator hashGenerator)
+    {
+        requireNonNull(hashGenerator, "hashGenerator is null");
+        checkState(isRepartitioned(), "partition is not repartitioned");
+        return new PartitionFunction()
+        {
+            @Override
+            public int getPartitionCount()
+            {
+                return getLeafCount();
+            }
+
+            @Override
+            public int getPartition(Page page, int position)
+            {
+                return getLeaf(hashGenerator.hashPosition(position, page));
+            }
+        };
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("leaves", getLeafCount())
+                .add("rounds", getRoundCount())
+                .toString();
+    }
+
+    /**
+     * A mutable node of the split tree used while a spilled partition is being repartitioned.
+     * Leaves are numbered in the order in which they are added to the tree.
+     */
+    public static final class Split
+    {
+        private final int level;
+        private final int fanout;
+        private final Split[] children;
+        private final int[] leaves;
+        // shared by all the nodes of a tree
+        private final IntArrayList leafChunkCounts;
+
+        public Split(int fanout)
+        {
+            this(0, fanout, new IntArrayList());
+        }
+
+        private Split(int level, int fanout, IntArrayList leafChunkCounts)
+        {
+            checkArgument(fanout > 1, "fanout must be greater than one");
+            this.level = level;
+            this.fanout = fanout;
+            this.children = new Split[fanout];
+            this.leaves = new int[fanout];
+            Arrays.fill(leaves, -1);
+            this.leafChunkCounts = leafChunkCounts;
+        }
+
+        public int getLevel()
+        {
+            return level;
+        }
+
+        public int getFanout()
+        {
+            return fanout;
+        }
+
+        public Split split(int child, int fanout)
+        {
+            checkChildNotSet(child);
+            children[child] = new Split(level + 1, fanout, leafChunkCounts);
+            return children[child];
+        }
+
+        /**
+         * @return the number of the new leaf
+         */
+        public int addLeaf(int child, int chunkCount)
+        {
+            checkChildNotSet(child);
+            checkArgument(chunkCount > 0, "chunkCount must be positive");
+            leaves[child] = leafChunkCounts.size();
+            leafChunkCounts.add(chunkCount);
+            return leaves[child];
+        }
+
+        public PartitionFunction createPartitionFunction(HashGenerator hashGenerator)
+        {
+            requireNonNull(hashGenerator, "hashGenerator is null");
+            return new PartitionFunction()
+            {
+                @Override
+                public int getPartitionCount()
+                {
+                    return fanout;
+                }
+
+                @Override
+                public int getPartition(Page page, int position)
+                {
+                    return getSubPartition(hashGenerator.hashPosition(position, page), level, fanout);
+                }
+            };
+        }
+
+        private void checkChildNotSet(int child)
+        {
+            checkElementIndex(child, fanout, "child");
+            checkState(children[child] == null && leaves[child] < 0, "child %s is already set", child);
+        }
+    }
+}
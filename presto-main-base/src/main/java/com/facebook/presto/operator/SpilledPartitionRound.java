@@ -0,0 +1,63 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.google.errorprone.annotations.Immutable;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A single round in which a spilled build partition is consumed, see {@link SpilledPartitionLayout}.
+ */
+@Immutable
+public final class SpilledPartitionRound
+{
+    private final int partition;
+    private final int round;
+    private final SpilledPartitionLayout layout;
+
+    public SpilledPartitionRound(int partition, int round, SpilledPartitionLayout layout)
+    {
+        this.partition = partition;
+        this.layout = requireNonNull(layout, "layout is null");
+        this.round = checkElementIndex(round, layout.getRoundCount(), "round");
+    }
+
+    public int getPartition()
+    {
+        return partition;
+    }
+
+    public int getRound()
+    {
+        return round;
+    }
+
+    public SpilledPartitionLayout getLayout()
+    {
+        return layout;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("partition", partition)
+                .add("round", round)
+                .add("layout", layout)
+                .toString();
+    }
+}
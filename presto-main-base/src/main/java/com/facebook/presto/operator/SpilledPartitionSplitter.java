@@ -0,0 +1,381 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.memory.context.AggregatedMemoryContext;
+import com.facebook.presto.operator.SpilledPartitionLayout.Split;
+import com.facebook.presto.spiller.GenericPartitioningSpillerFactory;
+import com.facebook.presto.spiller.PartitioningSpiller;
+import com.facebook.presto.spiller.SingleStreamSpiller;
+import com.facebook.presto.spiller.SingleStreamSpillerFactory;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Closer;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Iterables.getLast;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static java.lang.Math.toIntExact;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Splits a spilled build partition that is too large to be unspilled at once, see {@link SpilledPartitionLayout}.
+ * Pages are moved one at a time by {@link #process()}, so that the build operator stays responsive. A leaf that
+ * is still too large is copied into chunks of at most the round size, and the pages of each round are read back
+ * asynchronously by {@link #getRoundPages(int)}.
+ */
+final class SpilledPartitionSplitter
+        implements Closeable
+{
+    private static final int MAX_LEVELS = 3;
+    private static final int MAX_FANOUT = 64;
+    // a child holding most of the rows of its parent is dominated by a few keys, splitting it further does not help
+    private static final double SKEWED_CHILD_FRACTION = 0.75;
+
+    private final List<Type> types;
+    private final HashGenerator hashGenerator;
+    private final SingleStreamSpillerFactory singleStreamSpillerFactory;
+    private final GenericPartitioningSpillerFactory spillerFactory;
+    private final SpillContext spillContext;
+    private final AggregatedMemoryContext memoryContext;
+    private final long maxRoundSize;
+
+    private final Split root;
+    private final Queue<Task> pendingTasks = new ArrayDeque<>();
+    private final List<LeafSource> leaves = new ArrayList<>();
+    private final Closer closer = Closer.create();
+
+    private Task currentTask;
+    private SpilledPartitionLayout layout;
+
+    public SpilledPartitionSplitter(
+            List<Type> types,
+            HashGenerator hashGenerator,
+            SingleStreamSpillerFactory spillerFactory,
+            SpillContext spillContext,
+            AggregatedMemoryContext memoryContext,
+            long maxRoundSize,
+            Iterator<Page> spilledPages,
+            long spilledSize)
+    {
+        this.types = ImmutableList.copyOf(requireNonNull(types, "types is null"));
+        this.hashGenerator = requireNonNull(hashGenerator, "hashGenerator is null");
+        this.singleStreamSpillerFactory = requireNonNull(spillerFactory, "spillerFactory is null");
+        this.spillerFactory = new GenericPartitioningSpillerFactory(spillerFactory);
+        this.spillContext = requireNonNull(spillContext, "spillContext is null");
+        this.memoryContext = requireNonNull(memoryContext, "memoryContext is null");
+        checkArgument(maxRoundSize > 0, "maxRoundSize must be positive");
+        this.maxRoundSize = maxRoundSize;
+        requireNonNull(spilledPages, "spilledPages is null");
+
+        root = new Split(getFanout(spilledSize, maxRoundSize));
+        currentTask = new SplitTask(root, () -> spilledPages, spilledSize);
+    }
+
+    public static boolean needsSplitting(long spilledSize, long maxRoundSize)
+    {
+        return spilledSize > maxRoundSize;
+    }
+
+    /**
+     * Moves a single page towards its leaf.
+     *
+     * @return future completed when the page is spilled
+     */
+    public ListenableFuture<?> process()
+    {
+        checkState(!isFinished(), "splitting already finished");
+
+        Iterator<Page> input = currentTask.getInput();
+        if (input.hasNext()) {
+            return currentTask.spill(input.next());
+        }
+
+        currentTask.finish();
+        currentTask = pendingTasks.poll();
+        if (currentTask == null) {
+            layout = SpilledPartitionLayout.repartitioned(root);
+        }
+        return immediateFuture(null);
+    }
+
+    public boolean isFinished()
+    {
+        return layout != null;
+    }
+
+    public SpilledPartitionLayout getLayout()
+    {
+        checkState(isFinished(), "splitting not finished yet");
+        return layout;
+    }
+
+    /**
+     * Returns the estimated in-memory size of the pages of the given round.
+     */
+    public long getRoundSizeInBytes(int round)
+    {
+        checkState(isFinished(), "splitting not finished yet");
+        return leaves.get(layout.getRoundLeaf(round)).getChunkSizeInBytes(layout.getRoundChunk(round));
+    }
+
+    /**
+     * Initiates read of the pages of the given round. Each round can be read once.
+     */
+    public ListenableFuture<List<Page>> getRoundPages(int round)
+    {
+        checkState(isFinished(), "splitting not finished yet");
+        return leaves.get(layout.getRoundLeaf(round)).readChunk(layout.getRoundChunk(round));
+    }
+
+    @Override
+    public void close()
+    {
+        try {
+            closer.close();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int getFanout(long size, long maxRoundSize)
+    {
+        // aim for children of half the limit, as rows are not spread perfectly evenly
+        long fanout = (2 * size + maxRoundSize - 1) / maxRoundSize;
+        return toIntExact(Math.max(2, Math.min(MAX_FANOUT, fanout)));
+    }
+
+    private interface Task
+    {
+        Iterator<Page> getInput();
+
+        ListenableFuture<?> spill(Page page);
+
+        void finish();
+    }
+
+    private class SplitTask
+            implements Task
+    {
+        private final Split split;
+        private final Supplier<Iterator<Page>> inputSupplier;
+        private final long inputSize;
+        private final long[] childSizes;
+        private final PartitioningSpiller output;
+        private Iterator<Page> input;
+        private long currentRowSize;
+
+        public SplitTask(Split split, Supplier<Iterator<Page>> inputSupplier, long inputSize)
+        {
+            this.split = requireNonNull(split, "split is null");
+            this.inputSupplier = requireNonNull(inputSupplier, "inputSupplier is null");
+            this.inputSize = inputSize;
+            this.childSizes = new long[split.getFanout()];
+            PartitionFunction partitionFunction = split.createPartitionFunction(hashGenerator);
+            this.output = closer.register(spillerFactory.create(
+                    types,
+                    new PartitionFunction()
+                    {
+                        @Override
+                        public int getPartitionCount()
+                        {
+                            return partitionFunction.getPartitionCount();
+                        }
+
+                        @Override
+                        public int getPartition(Page page, int position)
+                        {
+                            int partition = partitionFunction.getPartition(page, position);
+                            childSizes[partition] += currentRowSize;
+                            return partition;
+                        }
+                    },
+                    spillContext.newLocalSpillContext(),
+                    memoryContext));
+        }
+
+        @Override
+        public Iterator<Page> getInput()
+        {
+            if (input == null) {
+                // open lazily, so that only the partition being split is read at a time
+                input = inputSupplier.get();
+            }
+            return input;
+        }
+
+        @Override
+        public ListenableFuture<?> spill(Page page)
+        {
+            if (page.getPositionCount() == 0) {
+                return immediateFuture(null);
+            }
+            currentRowSize = Math.max(1, page.getSizeInBytes() / page.getPositionCount());
+            return output.partitionAndSpill(page, partition -> true).getSpillingFuture();
+        }
+
+        @Override
+        public void finish()
+        {
+            for (int child = 0; child < split.getFanout(); child++) {
+                long childSize = childSizes[child];
+                int partition = child;
+                boolean skewed = childSize > inputSize * SKEWED_CHILD_FRACTION;
+                if (childSize <= maxRoundSize) {
+                    split.addLeaf(child, 1);
+                    leaves.add(new PartitionLeafSource(output, partition, childSize));
+                }
+                else if (!skewed && split.getLevel() + 1 < MAX_LEVELS) {
+                    Split childSplit = split.split(child, getFanout(childSize, maxRoundSize));
+                    pendingTasks.add(new SplitTask(childSplit, () -> output.getSpilledPages(partition), childSize));
+                }
+                else {
+                    // a child which is still too large is consumed in chunks, like in a block nested loop join
+                    pendingTasks.add(new ChunkTask(split, child, () -> output.getSpilledPages(partition)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the pages of a leaf into chunks, starting a new chunk whenever the next page would take the current one over the round size.
+     */
+    private class ChunkTask
+            implements Task
+    {
+        private final Split split;
+        private final int child;
+        private final Supplier<Iterator<Page>> inputSupplier;
+        private final List<SingleStreamSpiller> chunks = new ArrayList<>();
+        private final List<Long> chunkSizes = new ArrayList<>();
+        private Iterator<Page> input;
+
+        public ChunkTask(Split split, int child, Supplier<Iterator<Page>> inputSupplier)
+        {
+            this.split = requireNonNull(split, "split is null");
+            this.child = child;
+            this.inputSupplier = requireNonNull(inputSupplier, "inputSupplier is null");
+        }
+
+        @Override
+        public Iterator<Page> getInput()
+        {
+            if (input == null) {
+                input = inputSupplier.get();
+            }
+            return input;
+        }
+
+        @Override
+        public ListenableFuture<?> spill(Page page)
+        {
+            long pageSize = page.getSizeInBytes();
+            if (chunks.isEmpty() || (getLast(chunkSizes) > 0 && getLast(chunkSizes) + pageSize > maxRoundSize)) {
+                chunks.add(closer.register(singleStreamSpillerFactory.create(
+                        types,
+                        spillContext.newLocalSpillContext(),
+                        memoryContext.newLocalMemoryContext(SpilledPartitionSplitter.class.getSimpleName()))));
+                chunkSizes.add(0L);
+            }
+            chunkSizes.set(chunkSizes.size() - 1, getLast(chunkSizes) + pageSize);
+            return getLast(chunks).spill(page);
+        }
+
+        @Override
+        public void finish()
+        {
+            split.addLeaf(child, Math.max(1, chunks.size()));
+            leaves.add(new ChunkedLeafSource(chunks, chunkSizes));
+        }
+    }
+
+    private interface LeafSource
+    {
+        long getChunkSizeInBytes(int chunk);
+
+        ListenableFuture<List<Page>> readChunk(int chunk);
+    }
+
+    private static class PartitionLeafSource
+            implements LeafSource
+    {
+        private final PartitioningSpiller spiller;
+        private final int partition;
+        private final long size;
+
+        public PartitionLeafSource(PartitioningSpiller spiller, int partition, long size)
+        {
+            this.spiller = requireNonNull(spiller, "spiller is null");
+            this.partition = partition;
+            this.size = size;
+        }
+
+        @Override
+        public long getChunkSizeInBytes(int chunk)
+        {
+            checkArgument(chunk == 0, "leaf has a single chunk");
+            return size;
+        }
+
+        @Override
+        public ListenableFuture<List<Page>> readChunk(int chunk)
+        {
+            checkArgument(chunk == 0, "leaf has a single chunk");
+            return spiller.getAllSpilledPages(partition);
+        }
+    }
+
+    private static class ChunkedLeafSource
+            implements LeafSource
+    {
+        private final List<SingleStreamSpiller> chunks;
+        private final List<Long> chunkSizes;
+
+        public ChunkedLeafSource(List<SingleStreamSpiller> chunks, List<Long> chunkSizes)
+        {
+            this.chunks = ImmutableList.copyOf(requireNonNull(chunks, "chunks is null"));
+            this.chunkSizes = ImmutableList.copyOf(requireNonNull(chunkSizes, "chunkSizes is null"));
+        }
+
+        @Override
+        public long getChunkSizeInBytes(int chunk)
+        {
+            // a leaf whose pages turned out to be empty still has a single, empty chunk
+            return chunks.isEmpty() ? 0 : chunkSizes.get(chunk);
+        }
+
+        @Override
+        public ListenableFuture<List<Page>> readChunk(int chunk)
+        {
+            if (chunks.isEmpty()) {
+                return immediateFuture(ImmutableList.of());
+            }
+            return chunks.get(chunk).getAllSpilledPages();
+        }
+    }
+}
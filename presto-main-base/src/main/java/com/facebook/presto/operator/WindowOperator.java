@@ -195,6 +195,7 @@ public class WindowOperator
     private final List<FramedWindowFunction> windowFunctions;
     private final WindowInfo.DriverWindowInfoBuilder windowInfo;
     private final AtomicReference<WindowInfo> driverWindowInfo = new AtomicReference<>(WindowInfo.emptyInfo());
+    private final LocalMemoryContext sortMemoryContext;
 
     private final Optional<SpillablePagesToPagesIndexes> spillablePagesToPagesIndexes;
 
@@ -234,6 +235,7 @@ public class WindowOperator
         checkArgument(preSortedChannelPrefix == 0 || ImmutableSet.copyOf(preGroupedChannels).equals(ImmutableSet.copyOf(partitionChannels)), "preSortedChannelPrefix can only be greater than zero if all partition channels are pre-grouped");
 
         this.operatorContext = operatorContext;
+        this.sortMemoryContext = operatorContext.aggregateUserMemoryContext().newLocalMemoryContext(NormalizedKeySorter.class.getSimpleName());
         this.outputChannels = Ints.toArray(outputChannels);
         this.windowFunctions = windowFunctionDefinitions.stream()
                 .map(functionDefinition -> new FramedWindowFunction(functionDefinition.createWindowFunction(), functionDefinition.getFrameInfo()))
@@ -886,7 +888,7 @@ public class WindowOperator
             int startPosition = 0;
             while (startPosition < pagesIndexWithHashStrategies.pagesIndex.getPositionCount()) {
                 int endPosition = findGroupEnd(pagesIndexWithHashStrategies.pagesIndex, pagesIndexWithHashStrategies.preSortedPartitionHashStrategy, startPosition);
-                pagesIndexWithHashStrategies.pagesIndex.sort(orderChannels, ordering, startPosition, endPosition);
+                pagesIndexWithHashStrategies.pagesIndex.sort(orderChannels, ordering, startPosition, endPosition, sortMemoryContext);
                 startPosition = endPosition;
             }
         }
@@ -946,5 +948,6 @@ public class WindowOperator
     {
         driverWindowInfo.set(new WindowInfo(ImmutableList.of(windowInfo.build())));
         spillablePagesToPagesIndexes.ifPresent(SpillablePagesToPagesIndexes::closeSpiller);
+        sortMemoryContext.close();
     }
 }
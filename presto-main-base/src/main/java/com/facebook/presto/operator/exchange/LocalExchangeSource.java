@@ -19,20 +19,27 @@ import com.facebook.presto.operator.WorkProcessor.ProcessState;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 import com.google.errorprone.annotations.ThreadSafe;
-import com.google.errorprone.annotations.concurrent.GuardedBy;
-import jakarta.annotation.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static java.util.Objects.requireNonNull;
 
+/**
+ * Adding and removing pages does not take a lock. The page queue is a non-blocking
+ * linked queue, the total size of the buffered pages is bounded by the
+ * {@link LocalExchangeMemoryManager} of the exchange, and readers are woken up
+ * through a future that is only created once a reader finds the buffer empty.
+ * Only {@link #finish()} and {@link #close()} synchronize.
+ */
 @ThreadSafe
 public class LocalExchangeSource
 {
@@ -40,12 +47,12 @@ public class LocalExchangeSource
 
     private final Consumer<LocalExchangeSource> onFinish;
 
-    private final BlockingQueue<PageReference> buffer = new LinkedBlockingDeque<>();
+    private final Queue<PageReference> buffer = new ConcurrentLinkedQueue<>();
     private final AtomicLong bufferedBytes = new AtomicLong();
+    // the size of a concurrent linked queue is not a constant time operation
+    private final AtomicInteger bufferedPages = new AtomicInteger();
 
-    @Nullable
-    @GuardedBy("this")
-    private SettableFuture<?> notEmptyFuture; // null indicates no callback present
+    private final AtomicReference<SettableFuture<?>> notEmptyFuture = new AtomicReference<>(); // null indicates no callback present
 
     private volatile boolean finishing;
 
@@ -58,42 +65,37 @@ public class LocalExchangeSource
     {
         // This must be lock free to assure task info creation is fast
         // Note: the stats my be internally inconsistent
-        return new LocalExchangeBufferInfo(bufferedBytes.get(), buffer.size());
+        return new LocalExchangeBufferInfo(bufferedBytes.get(), Math.max(bufferedPages.get(), 0));
     }
 
     void addPage(PageReference pageReference)
     {
         checkNotHoldsLock();
 
-        boolean added = false;
-        SettableFuture<?> notEmptyFuture = null;
-        long retainedSizeInBytes = pageReference.getRetainedSizeInBytes();
-        synchronized (this) {
-            // ignore pages after finish
-            if (!finishing) {
-                // buffered bytes must be updated before adding to the buffer to assure
-                // the count does not go negative
-                bufferedBytes.addAndGet(retainedSizeInBytes);
-                buffer.add(pageReference);
-                added = true;
-            }
-
-            // we just added a page (or we are finishing) so we are not empty
-            if (this.notEmptyFuture != null) {
-                notEmptyFuture = this.notEmptyFuture;
-                this.notEmptyFuture = null;
-            }
+        // ignore pages after finish
+        if (finishing) {
+            pageReference.removePage();
+            notifyReaders();
+            return;
         }
 
-        if (!added) {
-            // dereference the page outside of lock
+        // buffered bytes must be updated before adding to the buffer to assure
+        // the count does not go negative
+        long retainedSizeInBytes = pageReference.getRetainedSizeInBytes();
+        bufferedBytes.addAndGet(retainedSizeInBytes);
+        bufferedPages.incrementAndGet();
+        buffer.add(pageReference);
+
+        // finish or close may have raced with the add, in which case the page must
+        // not stay in the buffer unless a reader already took it
+        if (finishing && buffer.remove(pageReference)) {
+            bufferedBytes.addAndGet(-retainedSizeInBytes);
+            bufferedPages.decrementAndGet();
             pageReference.removePage();
         }
 
-        // notify readers outside of lock since this may result in a callback
-        if (notEmptyFuture != null) {
-            notEmptyFuture.set(null);
-        }
+        // we just added a page (or we are finishing) so we are not empty
+        notifyReaders();
     }
 
     public WorkProcessor<Page> pages()
@@ -128,6 +130,7 @@ public class LocalExchangeSource
         if (pageReference == null) {
             return null;
         }
+        bufferedPages.decrementAndGet();
 
         // dereference the page outside of lock, since may trigger a callback
         Page page = pageReference.removePage();
@@ -147,17 +150,24 @@ public class LocalExchangeSource
             return NOT_BLOCKED;
         }
 
-        synchronized (this) {
-            // re-check after synchronizing
-            if (finishing || !buffer.isEmpty()) {
+        // if we need to block readers, and there is no pending future, create a new one
+        SettableFuture<?> future = notEmptyFuture.get();
+        if (future == null) {
+            SettableFuture<?> newFuture = SettableFuture.create();
+            future = notEmptyFuture.compareAndSet(null, newFuture) ? newFuture : notEmptyFuture.get();
+            if (future == null) {
+                // a writer notified in between, so there is something to read
                 return NOT_BLOCKED;
             }
-            // if we need to block readers, and the current future is complete, create a new one
-            if (notEmptyFuture == null) {
-                notEmptyFuture = SettableFuture.create();
-            }
-            return notEmptyFuture;
         }
+
+        // a writer that added a page before the future was published may have
+        // missed it, so re-check after publishing
+        if (finishing || !buffer.isEmpty()) {
+            notifyReaders();
+            return NOT_BLOCKED;
+        }
+        return future;
     }
 
     public boolean isFinished()
@@ -176,21 +186,15 @@ public class LocalExchangeSource
     {
         checkNotHoldsLock();
 
-        SettableFuture<?> notEmptyFuture;
         synchronized (this) {
             if (finishing) {
                 return;
             }
             finishing = true;
-
-            notEmptyFuture = this.notEmptyFuture;
-            this.notEmptyFuture = null;
         }
 
         // notify readers outside of lock since this may result in a callback
-        if (notEmptyFuture != null) {
-            notEmptyFuture.set(null);
-        }
+        notifyReaders();
 
         checkFinished();
     }
@@ -200,30 +204,40 @@ public class LocalExchangeSource
         checkNotHoldsLock();
 
         List<PageReference> remainingPages = new ArrayList<>();
-        SettableFuture<?> notEmptyFuture;
         synchronized (this) {
             finishing = true;
 
-            buffer.drainTo(remainingPages);
+            PageReference pageReference;
+            while ((pageReference = buffer.poll()) != null) {
+                remainingPages.add(pageReference);
+            }
+            bufferedPages.addAndGet(-remainingPages.size());
             bufferedBytes.addAndGet(-remainingPages.stream().mapToLong(PageReference::getRetainedSizeInBytes).sum());
-
-            notEmptyFuture = this.notEmptyFuture;
-            this.notEmptyFuture = null;
         }
 
         // free all the remaining pages
         remainingPages.forEach(PageReference::removePage);
 
         // notify readers outside of lock since this may result in a callback
-        if (notEmptyFuture != null) {
-            notEmptyFuture.set(null);
-        }
+        notifyReaders();
 
         // this will always fire the finished event
         checkState(isFinished(), "Expected buffer to be finished");
         checkFinished();
     }
 
+    private void notifyReaders()
+    {
+        // cheap read first, so writers do not contend on the reference when nobody waits
+        if (notEmptyFuture.get() == null) {
+            return;
+        }
+        SettableFuture<?> future = notEmptyFuture.getAndSet(null);
+        if (future != null) {
+            future.set(null);
+        }
+    }
+
     private void checkFinished()
     {
         checkNotHoldsLock();
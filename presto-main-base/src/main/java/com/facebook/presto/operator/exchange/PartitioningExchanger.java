@@ -19,9 +19,8 @@ import com.facebook.presto.operator.exchange.PageReference.PageReleasedListener;
 import com.google.common.collect.ImmutableList;
 import com.google.common.primitives.Ints;
 import com.google.common.util.concurrent.ListenableFuture;
-import it.unimi.dsi.fastutil.ints.IntArrayList;
-import it.unimi.dsi.fastutil.ints.IntList;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
@@ -36,9 +35,14 @@ class PartitioningExchanger
     private final PartitionFunction partitionFunction;
     private final int[] partitioningChannels;
     private final Optional<Integer> hashChannel;
-    private final IntArrayList[] partitionAssignments;
     private final PageReleasedListener onPageReleased;
 
+    // reused across pages: the partition of every position, the positions grouped
+    // by partition, and where the positions of each partition start
+    private int[] partitionAssignments = new int[0];
+    private int[] partitionPositions = new int[0];
+    private final int[] partitionOffsets;
+
     public PartitioningExchanger(
             List<Consumer<PageReference>> partitions,
             LocalExchangeMemoryManager memoryManager,
@@ -53,36 +57,62 @@ class PartitioningExchanger
         this.hashChannel = requireNonNull(hashChannel, "hashChannel is null");
         this.onPageReleased = PageReleasedListener.forLocalExchangeMemoryManager(memoryManager);
 
-        partitionAssignments = new IntArrayList[partitions.size()];
-        for (int i = 0; i < partitionAssignments.length; i++) {
-            partitionAssignments[i] = new IntArrayList();
-        }
+        partitionOffsets = new int[partitions.size() + 1];
     }
 
     @Override
     public synchronized void accept(Page page)
     {
-        // reset the assignment lists
-        for (IntList partitionAssignment : partitionAssignments) {
-            partitionAssignment.clear();
+        int positionCount = page.getPositionCount();
+        if (partitionAssignments.length < positionCount) {
+            partitionAssignments = new int[positionCount];
+            partitionPositions = new int[positionCount];
         }
 
-        // assign each row to a partition
+        // assign each row to a partition, counting the rows of every partition
+        Arrays.fill(partitionOffsets, 0);
         Page partitioningChannelsPage = extractPartitioningChannels(page);
-        for (int position = 0; position < partitioningChannelsPage.getPositionCount(); position++) {
+        for (int position = 0; position < positionCount; position++) {
             int partition = partitionFunction.getPartition(partitioningChannelsPage, position);
-            partitionAssignments[partition].add(position);
+            partitionAssignments[position] = partition;
+            partitionOffsets[partition + 1]++;
         }
 
-        // build a page for each partition
+        // a page that falls entirely into one partition is handed over without copying
         for (int partition = 0; partition < buffers.size(); partition++) {
-            IntArrayList positions = partitionAssignments[partition];
-            if (!positions.isEmpty()) {
-                Page pageSplit = page.copyPositions(positions.elements(), 0, positions.size());
-                memoryManager.updateMemoryUsage(pageSplit.getRetainedSizeInBytes());
-                buffers.get(partition).accept(new PageReference(pageSplit, 1, onPageReleased));
+            if (partitionOffsets[partition + 1] == positionCount) {
+                if (positionCount > 0) {
+                    enqueue(partition, page);
+                }
+                return;
             }
         }
+
+        // group the positions by partition in a single position list
+        for (int partition = 0; partition < buffers.size(); partition++) {
+            partitionOffsets[partition + 1] += partitionOffsets[partition];
+        }
+        for (int position = 0; position < positionCount; position++) {
+            int partition = partitionAssignments[position];
+            // once scattered, the offset of each partition points at its end
+            partitionPositions[partitionOffsets[partition]++] = position;
+        }
+
+        // copy the columns of each partition in bulk
+        int start = 0;
+        for (int partition = 0; partition < buffers.size(); partition++) {
+            int end = partitionOffsets[partition];
+            if (end > start) {
+                enqueue(partition, page.copyPositions(partitionPositions, start, end - start));
+            }
+            start = end;
+        }
+    }
+
+    private void enqueue(int partition, Page page)
+    {
+        memoryManager.updateMemoryUsage(page.getRetainedSizeInBytes());
+        buffers.get(partition).accept(new PageReference(page, 1, onPageReleased));
     }
 
     private Page extractPartitioningChannels(Page inputPage)
@@ -17,6 +17,7 @@ import com.facebook.presto.common.Page;
 import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.block.DictionaryBlock;
 import com.facebook.presto.common.block.DictionaryId;
+import com.facebook.presto.common.block.LazyBlock;
 import com.facebook.presto.common.function.SqlFunctionProperties;
 import com.facebook.presto.operator.CompletedWork;
 import com.facebook.presto.operator.DriverYieldSignal;
@@ -25,6 +26,7 @@ import com.google.common.collect.ImmutableList;
 
 import java.util.List;
 
+import static com.facebook.presto.operator.DeferredBuildRows.isDeferredBuildBlock;
 import static java.util.Objects.requireNonNull;
 
 public class InputPageProjection
@@ -56,7 +58,11 @@ public class InputPageProjection
         requireNonNull(selectedPositions, "selectedPositions is null");
 
         Block result;
-        if (selectedPositions.isList()) {
+        if (selectedPositions.isList() && isDeferredBuildBlock(block) && !((LazyBlock) block).isLoaded()) {
+            // let the deferred build rows copy only the selected positions, other lazy blocks are wrapped below
+            result = block.getPositions(selectedPositions.getPositions(), selectedPositions.getOffset(), selectedPositions.size());
+        }
+        else if (selectedPositions.isList()) {
             result = new DictionaryBlock(
                     selectedPositions.getOffset(),
                     selectedPositions.size(),
@@ -0,0 +1,315 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.repartition;
+
+import com.facebook.presto.common.block.ArrayAllocator;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.DictionaryBlock;
+import com.facebook.presto.common.block.DictionaryId;
+import com.facebook.presto.common.block.RunLengthEncodedBlock;
+import io.airlift.slice.SliceOutput;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import jakarta.annotation.Nullable;
+import org.openjdk.jol.info.ClassLayout;
+
+import static com.facebook.presto.common.array.Arrays.ExpansionFactor.LARGE;
+import static com.facebook.presto.common.array.Arrays.ExpansionFactor.SMALL;
+import static com.facebook.presto.common.array.Arrays.ExpansionOption.INITIALIZE;
+import static com.facebook.presto.common.array.Arrays.ExpansionOption.NONE;
+import static com.facebook.presto.common.array.Arrays.ExpansionOption.PRESERVE;
+import static com.facebook.presto.common.array.Arrays.ensureCapacity;
+import static com.facebook.presto.common.block.DictionaryId.randomDictionaryId;
+import static com.facebook.presto.operator.UncheckedByteArrays.setIntUnchecked;
+import static com.facebook.presto.operator.repartition.AbstractBlockEncodingBuffer.createBlockEncodingBuffers;
+import static com.facebook.presto.operator.repartition.AbstractBlockEncodingBuffer.writeLengthPrefixedString;
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static io.airlift.slice.SizeOf.SIZE_OF_INT;
+import static io.airlift.slice.SizeOf.SIZE_OF_LONG;
+import static java.util.Objects.requireNonNull;
+import static sun.misc.Unsafe.ARRAY_INT_INDEX_SCALE;
+
+/**
+ * Buffers a top level column of DictionaryBlocks and RunLengthEncodedBlocks without flattening it. Only the dictionary
+ * entries referenced by the rows of the destination partition are copied, and the ids of the rows are remapped to the
+ * copied entries. The dictionaries of all the pages buffered before a flush are concatenated and sent as one
+ * DictionaryBlock, or as a RunLengthEncodedBlock when they add up to a single entry.
+ * <p>
+ * A flat block arriving after the buffer was created is buffered as if it was its own dictionary, so a column which
+ * switches encodings between pages is still serialized correctly.
+ */
+public class DictionaryBlockEncodingBuffer
+        implements BlockEncodingBuffer
+{
+    private static final String DICTIONARY_NAME = "DICTIONARY";
+    private static final String RLE_NAME = "RLE";
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(DictionaryBlockEncodingBuffer.class).instanceSize();
+
+    private final ArrayAllocator bufferAllocator;
+
+    // Buffers the copied dictionary entries. It is created from the dictionary of the first page.
+    @Nullable
+    private BlockEncodingBuffer dictionaryBuffer;
+
+    // Maps the positions in the current dictionary to the ids of their copies in dictionaryBuffer
+    private final Int2IntOpenHashMap copiedDictionaryIds = new Int2IntOpenHashMap();
+
+    // The dictionary positions not yet copied that accumulateSerializedRowSizes has counted for the current page
+    private final IntOpenHashSet countedDictionaryPositions = new IntOpenHashSet();
+
+    // The dictionary of the last page, used to keep copiedDictionaryIds for pages sharing the same dictionary
+    @Nullable
+    private Block lastDictionary;
+
+    @Nullable
+    private DecodedBlockNode dictionaryNode;
+
+    private int positionCount;
+    private int positionsOffset;
+    private int batchSize;
+    private int partitionBufferCapacity;
+    private long estimatedSerializedPageSize;
+
+    // The dictionary positions of the rows to be copied
+    @Nullable
+    private int[] dictionaryPositions;
+
+    // The dictionary positions copied into dictionaryBuffer by the current batch
+    @Nullable
+    private int[] newDictionaryPositions;
+
+    @Nullable
+    private byte[] idsBuffer;
+    private int idsBufferIndex;
+    private int bufferedPositionCount;
+    private int bufferedDictionarySize;
+    private boolean flushed;
+
+    public DictionaryBlockEncodingBuffer(ArrayAllocator bufferAllocator)
+    {
+        this.bufferAllocator = requireNonNull(bufferAllocator, "bufferAllocator is null");
+        copiedDictionaryIds.defaultReturnValue(-1);
+    }
+
+    public static boolean isDictionaryOrRle(DecodedBlockNode decodedBlockNode)
+    {
+        Object decodedBlock = decodedBlockNode.getDecodedBlock();
+        return decodedBlock instanceof DictionaryBlock || decodedBlock instanceof RunLengthEncodedBlock;
+    }
+
+    @Override
+    public void setupDecodedBlocksAndPositions(DecodedBlockNode decodedBlockNode, int[] positions, int positionCount, int partitionBufferCapacity, long estimatedSerializedPageSize)
+    {
+        requireNonNull(decodedBlockNode, "decodedBlockNode is null");
+        requireNonNull(positions, "positions is null");
+        this.positionCount = positionCount;
+        this.positionsOffset = 0;
+        this.partitionBufferCapacity = partitionBufferCapacity;
+        this.estimatedSerializedPageSize = estimatedSerializedPageSize;
+
+        dictionaryPositions = ensureCapacity(dictionaryPositions, positionCount, SMALL, NONE, bufferAllocator);
+
+        Object decodedBlock = decodedBlockNode.getDecodedBlock();
+        Block dictionary;
+        if (decodedBlock instanceof DictionaryBlock) {
+            DictionaryBlock dictionaryBlock = (DictionaryBlock) decodedBlock;
+            dictionary = dictionaryBlock.getDictionary();
+            dictionaryNode = decodedBlockNode.getChildren().get(0);
+            for (int i = 0; i < positionCount; i++) {
+                dictionaryPositions[i] = dictionaryBlock.getId(positions[i]);
+            }
+        }
+        else if (decodedBlock instanceof RunLengthEncodedBlock) {
+            dictionary = null;
+            dictionaryNode = decodedBlockNode.getChildren().get(0);
+            for (int i = 0; i < positionCount; i++) {
+                dictionaryPositions[i] = 0;
+            }
+        }
+        else {
+            dictionary = null;
+            dictionaryNode = decodedBlockNode;
+            System.arraycopy(positions, 0, dictionaryPositions, 0, positionCount);
+        }
+
+        // Entries of a different dictionary have to be copied again, even if they were copied for a previous page
+        if (dictionary == null || dictionary != lastDictionary) {
+            copiedDictionaryIds.clear();
+        }
+        lastDictionary = dictionary;
+
+        if (dictionaryBuffer == null) {
+            dictionaryBuffer = createBlockEncodingBuffers(dictionaryNode, bufferAllocator, false);
+        }
+    }
+
+    @Override
+    public void accumulateSerializedRowSizes(int[] serializedRowSizes)
+    {
+        // Only the first row referencing a dictionary entry pays for the entry, the others just pay for the id
+        int[] dictionaryRowSizes = ensureCapacity(null, positionCount, SMALL, INITIALIZE, bufferAllocator);
+        try {
+            dictionaryBuffer.setupDecodedBlocksAndPositions(dictionaryNode, dictionaryPositions, positionCount, partitionBufferCapacity, estimatedSerializedPageSize);
+            dictionaryBuffer.accumulateSerializedRowSizes(dictionaryRowSizes);
+
+            countedDictionaryPositions.clear();
+            for (int i = 0; i < positionCount; i++) {
+                serializedRowSizes[i] += Integer.BYTES;
+                int dictionaryPosition = dictionaryPositions[i];
+                if (!copiedDictionaryIds.containsKey(dictionaryPosition) && countedDictionaryPositions.add(dictionaryPosition)) {
+                    serializedRowSizes[i] += dictionaryRowSizes[i];
+                }
+            }
+        }
+        finally {
+            bufferAllocator.returnArray(dictionaryRowSizes);
+        }
+    }
+
+    @Override
+    public void setNextBatch(int positionsOffset, int batchSize)
+    {
+        this.positionsOffset = positionsOffset;
+        this.batchSize = batchSize;
+        this.flushed = false;
+    }
+
+    @Override
+    public void appendDataInBatch()
+    {
+        if (batchSize == 0) {
+            return;
+        }
+
+        idsBuffer = ensureCapacity(idsBuffer, idsBufferIndex + batchSize * ARRAY_INT_INDEX_SCALE, partitionBufferCapacity, LARGE, PRESERVE, bufferAllocator);
+        newDictionaryPositions = ensureCapacity(newDictionaryPositions, batchSize, SMALL, NONE, bufferAllocator);
+
+        int newDictionaryPositionCount = 0;
+        for (int i = positionsOffset; i < positionsOffset + batchSize; i++) {
+            int dictionaryPosition = dictionaryPositions[i];
+            int id = copiedDictionaryIds.get(dictionaryPosition);
+            if (id < 0) {
+                id = bufferedDictionarySize + newDictionaryPositionCount;
+                copiedDictionaryIds.put(dictionaryPosition, id);
+                newDictionaryPositions[newDictionaryPositionCount++] = dictionaryPosition;
+            }
+            idsBufferIndex = setIntUnchecked(idsBuffer, idsBufferIndex, id);
+        }
+
+        if (newDictionaryPositionCount > 0) {
+            dictionaryBuffer.setupDecodedBlocksAndPositions(dictionaryNode, newDictionaryPositions, newDictionaryPositionCount, partitionBufferCapacity, estimatedSerializedPageSize);
+            dictionaryBuffer.setNextBatch(0, newDictionaryPositionCount);
+            dictionaryBuffer.appendDataInBatch();
+            bufferedDictionarySize += newDictionaryPositionCount;
+        }
+
+        bufferedPositionCount += batchSize;
+    }
+
+    @Override
+    public void serializeTo(SliceOutput output)
+    {
+        if (bufferedDictionarySize == 1) {
+            writeLengthPrefixedString(output, RLE_NAME);
+            output.writeInt(bufferedPositionCount);
+            dictionaryBuffer.serializeTo(output);
+            return;
+        }
+
+        writeLengthPrefixedString(output, DICTIONARY_NAME);
+        output.writeInt(bufferedPositionCount);
+        dictionaryBuffer.serializeTo(output);
+        if (idsBufferIndex > 0) {
+            output.appendBytes(idsBuffer, 0, idsBufferIndex);
+        }
+
+        // The copied entries are a new dictionary, which the receiver must not confuse with any other one
+        DictionaryId dictionaryId = randomDictionaryId();
+        output.appendLong(dictionaryId.getMostSignificantBits());
+        output.appendLong(dictionaryId.getLeastSignificantBits());
+        output.appendLong(dictionaryId.getSequenceId());
+    }
+
+    @Override
+    public void resetBuffers()
+    {
+        bufferedPositionCount = 0;
+        bufferedDictionarySize = 0;
+        idsBufferIndex = 0;
+        flushed = true;
+        copiedDictionaryIds.clear();
+        if (dictionaryBuffer != null) {
+            dictionaryBuffer.resetBuffers();
+        }
+    }
+
+    @Override
+    public void noMoreBatches()
+    {
+        if (dictionaryBuffer != null) {
+            dictionaryBuffer.noMoreBatches();
+        }
+
+        if (dictionaryPositions != null) {
+            bufferAllocator.returnArray(dictionaryPositions);
+            dictionaryPositions = null;
+        }
+
+        if (newDictionaryPositions != null) {
+            bufferAllocator.returnArray(newDictionaryPositions);
+            newDictionaryPositions = null;
+        }
+
+        if (flushed && idsBuffer != null) {
+            bufferAllocator.returnArray(idsBuffer);
+            idsBuffer = null;
+        }
+
+        // Release the decoded blocks, the dictionary itself is only compared by identity
+        dictionaryNode = null;
+    }
+
+    @Override
+    public long getRetainedSizeInBytes()
+    {
+        // The positions arrays and ids buffer are borrowed from the bufferAllocator, which accounts for them
+        return INSTANCE_SIZE + (dictionaryBuffer == null ? 0 : dictionaryBuffer.getRetainedSizeInBytes());
+    }
+
+    @Override
+    public long getSerializedSizeInBytes()
+    {
+        return DICTIONARY_NAME.length() + SIZE_OF_INT +    // NAME
+                SIZE_OF_INT +                               // positionCount
+                (dictionaryBuffer == null ? 0 : dictionaryBuffer.getSerializedSizeInBytes()) +  // dictionary
+                idsBufferIndex +                            // ids
+                SIZE_OF_LONG * 3;                           // dictionary id
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("positionCount", positionCount)
+                .add("batchSize", batchSize)
+                .add("positionsOffset", positionsOffset)
+                .add("bufferedPositionCount", bufferedPositionCount)
+                .add("bufferedDictionarySize", bufferedDictionarySize)
+                .add("flushed", flushed)
+                .add("idsBufferCapacity", idsBuffer == null ? 0 : idsBuffer.length)
+                .add("idsBufferIndex", idsBufferIndex)
+                .add("dictionaryBuffer", dictionaryBuffer)
+                .toString();
+    }
+}
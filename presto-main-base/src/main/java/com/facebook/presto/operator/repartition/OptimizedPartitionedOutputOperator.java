@@ -73,6 +73,7 @@ import static com.facebook.presto.common.array.Arrays.ExpansionOption.PRESERVE;
 import static com.facebook.presto.common.array.Arrays.ensureCapacity;
 import static com.facebook.presto.common.block.PageBuilderStatus.DEFAULT_MAX_PAGE_SIZE_IN_BYTES;
 import static com.facebook.presto.operator.repartition.AbstractBlockEncodingBuffer.createBlockEncodingBuffers;
+import static com.facebook.presto.operator.repartition.DictionaryBlockEncodingBuffer.isDictionaryOrRle;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Verify.verify;
 import static io.airlift.slice.SizeOf.SIZE_OF_INT;
@@ -104,7 +105,8 @@ public class OptimizedPartitionedOutputOperator
             OptionalInt nullChannel,
             OutputBuffer outputBuffer,
             PagesSerdeFactory serdeFactory,
-            DataSize maxMemory)
+            DataSize maxMemory,
+            boolean preserveDictionaries)
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
         this.pagePreprocessor = requireNonNull(pagePreprocessor, "pagePreprocessor is null");
@@ -118,6 +120,7 @@ public class OptimizedPartitionedOutputOperator
                 serdeFactory,
                 sourceTypes,
                 maxMemory,
+                preserveDictionaries,
                 operatorContext);
 
         operatorContext.setInfoSupplier(pagePartitioner.getPartitionedOutputInfoSupplier());
@@ -262,11 +265,13 @@ public class OptimizedPartitionedOutputOperator
     {
         private final OutputBuffer outputBuffer;
         private final DataSize maxMemory;
+        private final boolean preserveDictionaries;
 
-        public OptimizedPartitionedOutputFactory(OutputBuffer outputBuffer, DataSize maxMemory)
+        public OptimizedPartitionedOutputFactory(OutputBuffer outputBuffer, DataSize maxMemory, boolean preserveDictionaries)
         {
             this.outputBuffer = requireNonNull(outputBuffer, "outputBuffer is null");
             this.maxMemory = requireNonNull(maxMemory, "maxMemory is null");
+            this.preserveDictionaries = preserveDictionaries;
         }
 
         @Override
@@ -291,7 +296,8 @@ public class OptimizedPartitionedOutputOperator
                     outputPartitioning.get().getNullChannel(),
                     outputBuffer,
                     serdeFactory,
-                    maxMemory);
+                    maxMemory,
+                    preserveDictionaries);
         }
     }
 
@@ -310,6 +316,7 @@ public class OptimizedPartitionedOutputOperator
         private final OutputBuffer outputBuffer;
         private final PagesSerdeFactory serdeFactory;
         private final DataSize maxMemory;
+        private final boolean preserveDictionaries;
 
         public OptimizedPartitionedOutputOperatorFactory(
                 int operatorId,
@@ -323,7 +330,8 @@ public class OptimizedPartitionedOutputOperator
                 OptionalInt nullChannel,
                 OutputBuffer outputBuffer,
                 PagesSerdeFactory serdeFactory,
-                DataSize maxMemory)
+                DataSize maxMemory,
+                boolean preserveDictionaries)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -337,6 +345,7 @@ public class OptimizedPartitionedOutputOperator
             this.outputBuffer = requireNonNull(outputBuffer, "outputBuffer is null");
             this.serdeFactory = requireNonNull(serdeFactory, "serdeFactory is null");
             this.maxMemory = requireNonNull(maxMemory, "maxMemory is null");
+            this.preserveDictionaries = preserveDictionaries;
         }
 
         @Override
@@ -354,7 +363,8 @@ public class OptimizedPartitionedOutputOperator
                     nullChannel,
                     outputBuffer,
                     serdeFactory,
-                    maxMemory);
+                    maxMemory,
+                    preserveDictionaries);
         }
 
         @Override
@@ -377,7 +387,8 @@ public class OptimizedPartitionedOutputOperator
                     nullChannel,
                     outputBuffer,
                     serdeFactory,
-                    maxMemory);
+                    maxMemory,
+                    preserveDictionaries);
         }
     }
 
@@ -393,6 +404,8 @@ public class OptimizedPartitionedOutputOperator
         private final int nullChannel; // when >= 0, send the position to every partition if this channel is null
         private final AtomicLong rowsAdded = new AtomicLong();
         private final AtomicLong pagesAdded = new AtomicLong();
+        private final AtomicLong serializedBytesAdded = new AtomicLong();
+        private final AtomicLong uncompressedBytesAdded = new AtomicLong();
 
         // The ArrayAllocator used by BlockFlattener for decoding blocks.
         // There could be queries that shuffles data with up to 1000 columns so we need to set the maxOutstandingArrays a high number.
@@ -421,6 +434,7 @@ public class OptimizedPartitionedOutputOperator
                 PagesSerdeFactory serdeFactory,
                 List<Type> sourceTypes,
                 DataSize maxMemory,
+                boolean preserveDictionaries,
                 OperatorContext operatorContext)
         {
             this.partitionFunction = requireNonNull(partitionFunction, "pagePartitioner is null");
@@ -453,7 +467,18 @@ public class OptimizedPartitionedOutputOperator
 
             partitionBuffers = new PartitionBuffer[partitionCount];
             for (int i = 0; i < partitionCount; i++) {
-                partitionBuffers[i] = new PartitionBuffer(i, sourceTypes.size(), partitionBufferCapacity, pagesAdded, rowsAdded, serde, bufferAllocator, operatorContext);
+                partitionBuffers[i] = new PartitionBuffer(
+                        i,
+                        sourceTypes.size(),
+                        partitionBufferCapacity,
+                        pagesAdded,
+                        rowsAdded,
+                        serializedBytesAdded,
+                        uncompressedBytesAdded,
+                        serde,
+                        bufferAllocator,
+                        preserveDictionaries,
+                        operatorContext);
             }
 
             this.sourceTypes = sourceTypes;
@@ -481,7 +506,7 @@ public class OptimizedPartitionedOutputOperator
         public Supplier<PartitionedOutputInfo> getPartitionedOutputInfoSupplier()
         {
             // Must be a separate static method to avoid embedding references to "this" in the supplier
-            return PartitionedOutputInfo.createPartitionedOutputInfoSupplier(rowsAdded, pagesAdded, outputBuffer);
+            return PartitionedOutputInfo.createPartitionedOutputInfoSupplier(rowsAdded, pagesAdded, serializedBytesAdded, uncompressedBytesAdded, outputBuffer);
         }
 
         public void partitionPage(Page page)
@@ -622,11 +647,14 @@ public class OptimizedPartitionedOutputOperator
         private final int partition;
         private final AtomicLong rowsAdded;
         private final AtomicLong pagesAdded;
+        private final AtomicLong serializedBytesAdded;
+        private final AtomicLong uncompressedBytesAdded;
         private final PagesSerde serde;
         private final Lifespan lifespan;
         private final int capacity;
         private final int channelCount;
         private final ArrayAllocator bufferAllocator;
+        private final boolean preserveDictionaries;
 
         private int[] positions;   // the default positions array for top level BlockEncodingBuffer
         private int positionCount;  // number of positions to be copied for this partition
@@ -636,15 +664,29 @@ public class OptimizedPartitionedOutputOperator
         private boolean bufferFull;
         private OperatorContext operatorContext;
 
-        PartitionBuffer(int partition, int channelCount, int capacity, AtomicLong pagesAdded, AtomicLong rowsAdded, PagesSerde serde, ArrayAllocator bufferAllocator, OperatorContext operatorContext)
+        PartitionBuffer(
+                int partition,
+                int channelCount,
+                int capacity,
+                AtomicLong pagesAdded,
+                AtomicLong rowsAdded,
+                AtomicLong serializedBytesAdded,
+                AtomicLong uncompressedBytesAdded,
+                PagesSerde serde,
+                ArrayAllocator bufferAllocator,
+                boolean preserveDictionaries,
+                OperatorContext operatorContext)
         {
             this.partition = partition;
             this.channelCount = channelCount;
             this.capacity = capacity;
             this.pagesAdded = requireNonNull(pagesAdded, "pagesAdded is null");
             this.rowsAdded = requireNonNull(rowsAdded, "rowsAdded is null");
+            this.serializedBytesAdded = requireNonNull(serializedBytesAdded, "serializedBytesAdded is null");
+            this.uncompressedBytesAdded = requireNonNull(uncompressedBytesAdded, "uncompressedBytesAdded is null");
             this.serde = requireNonNull(serde, "serde is null");
             this.bufferAllocator = requireNonNull(bufferAllocator, "bufferAllocator is null");
+            this.preserveDictionaries = preserveDictionaries;
             this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
             this.lifespan = operatorContext.getDriverContext().getLifespan();
         }
@@ -721,7 +763,13 @@ public class OptimizedPartitionedOutputOperator
             if (blockEncodingBuffers == null) {
                 BlockEncodingBuffer[] buffers = new BlockEncodingBuffer[channelCount];
                 for (int i = 0; i < channelCount; i++) {
-                    buffers[i] = createBlockEncodingBuffers(decodedBlocks[i], bufferAllocator, false);
+                    if (preserveDictionaries && isDictionaryOrRle(decodedBlocks[i])) {
+                        // Keep the encoding of the first page. Later pages of a different encoding are still handled by either buffer.
+                        buffers[i] = new DictionaryBlockEncodingBuffer(bufferAllocator);
+                    }
+                    else {
+                        buffers[i] = createBlockEncodingBuffers(decodedBlocks[i], bufferAllocator, false);
+                    }
                 }
                 blockEncodingBuffers = buffers;
             }
@@ -791,6 +839,8 @@ public class OptimizedPartitionedOutputOperator
             outputBuffer.enqueue(lifespan, partition, ImmutableList.of(serializedPage));
             pagesAdded.incrementAndGet();
             rowsAdded.addAndGet(bufferedRowCount);
+            serializedBytesAdded.addAndGet(serializedPage.getSizeInBytes());
+            uncompressedBytesAdded.addAndGet(serializedPage.getUncompressedSizeInBytes());
             operatorContext.recordOutput(totalSizeInBytes, bufferedRowCount);
 
             bufferedRowCount = 0;
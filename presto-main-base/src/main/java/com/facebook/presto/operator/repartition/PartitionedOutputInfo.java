@@ -35,17 +35,23 @@ public class PartitionedOutputInfo
     private final long rowsAdded;
     private final long pagesAdded;
     private final long outputBufferPeakMemoryUsage;
+    private final long serializedBytesAdded;
+    private final long uncompressedBytesAdded;
 
     @JsonCreator
     @ThriftConstructor
     public PartitionedOutputInfo(
             @JsonProperty("rowsAdded") long rowsAdded,
             @JsonProperty("pagesAdded") long pagesAdded,
-            @JsonProperty("outputBufferPeakMemoryUsage") long outputBufferPeakMemoryUsage)
+            @JsonProperty("outputBufferPeakMemoryUsage") long outputBufferPeakMemoryUsage,
+            @JsonProperty("serializedBytesAdded") long serializedBytesAdded,
+            @JsonProperty("uncompressedBytesAdded") long uncompressedBytesAdded)
     {
         this.rowsAdded = rowsAdded;
         this.pagesAdded = pagesAdded;
         this.outputBufferPeakMemoryUsage = outputBufferPeakMemoryUsage;
+        this.serializedBytesAdded = serializedBytesAdded;
+        this.uncompressedBytesAdded = uncompressedBytesAdded;
     }
 
     @JsonProperty
@@ -69,13 +75,35 @@ public class PartitionedOutputInfo
         return outputBufferPeakMemoryUsage;
     }
 
+    /**
+     * Size of the serialized pages handed to the output buffer, i.e. the bytes shuffled over the network.
+     */
+    @JsonProperty
+    @ThriftField(4)
+    public long getSerializedBytesAdded()
+    {
+        return serializedBytesAdded;
+    }
+
+    /**
+     * Size of the serialized pages before compression.
+     */
+    @JsonProperty
+    @ThriftField(5)
+    public long getUncompressedBytesAdded()
+    {
+        return uncompressedBytesAdded;
+    }
+
     @Override
     public PartitionedOutputInfo mergeWith(PartitionedOutputInfo other)
     {
         return new PartitionedOutputInfo(
                 rowsAdded + other.rowsAdded,
                 pagesAdded + other.pagesAdded,
-                Math.max(outputBufferPeakMemoryUsage, other.outputBufferPeakMemoryUsage));
+                Math.max(outputBufferPeakMemoryUsage, other.outputBufferPeakMemoryUsage),
+                serializedBytesAdded + other.serializedBytesAdded,
+                uncompressedBytesAdded + other.uncompressedBytesAdded);
     }
 
     @Override
@@ -91,14 +119,28 @@ public class PartitionedOutputInfo
                 .add("rowsAdded", rowsAdded)
                 .add("pagesAdded", pagesAdded)
                 .add("outputBufferPeakMemoryUsage", outputBufferPeakMemoryUsage)
+                .add("serializedBytesAdded", serializedBytesAdded)
+                .add("uncompressedBytesAdded", uncompressedBytesAdded)
                 .toString();
     }
 
-    public static Supplier<PartitionedOutputInfo> createPartitionedOutputInfoSupplier(AtomicLong rowsAdded, AtomicLong pagesAdded, OutputBuffer outputBuffer)
+    public static Supplier<PartitionedOutputInfo> createPartitionedOutputInfoSupplier(
+            AtomicLong rowsAdded,
+            AtomicLong pagesAdded,
+            AtomicLong serializedBytesAdded,
+            AtomicLong uncompressedBytesAdded,
+            OutputBuffer outputBuffer)
     {
         requireNonNull(rowsAdded, "rowsAdded is null");
         requireNonNull(pagesAdded, "pagesAdded is null");
+        requireNonNull(serializedBytesAdded, "serializedBytesAdded is null");
+        requireNonNull(uncompressedBytesAdded, "uncompressedBytesAdded is null");
         requireNonNull(outputBuffer, "outputBuffer is null");
-        return () -> new PartitionedOutputInfo(rowsAdded.get(), pagesAdded.get(), outputBuffer.getPeakMemoryUsage());
+        return () -> new PartitionedOutputInfo(
+                rowsAdded.get(),
+                pagesAdded.get(),
+                outputBuffer.getPeakMemoryUsage(),
+                serializedBytesAdded.get(),
+                uncompressedBytesAdded.get());
     }
 }
@@ -294,6 +294,8 @@ public class PartitionedOutputOperator
         private final int nullChannel; // when >= 0, send the position to every partition if this channel is null
         private final AtomicLong rowsAdded = new AtomicLong();
         private final AtomicLong pagesAdded = new AtomicLong();
+        private final AtomicLong serializedBytesAdded = new AtomicLong();
+        private final AtomicLong uncompressedBytesAdded = new AtomicLong();
         private boolean hasAnyRowBeenReplicated;
         private final OperatorContext operatorContext;
         private final LocalMemoryContext systemMemoryContext;
@@ -388,7 +390,7 @@ public class PartitionedOutputOperator
         public Supplier<PartitionedOutputInfo> getPartitionedOutputInfoSupplier()
         {
             // Must be a separate static method to avoid embedding references to "this" in the supplier
-            return PartitionedOutputInfo.createPartitionedOutputInfoSupplier(rowsAdded, pagesAdded, outputBuffer);
+            return PartitionedOutputInfo.createPartitionedOutputInfoSupplier(rowsAdded, pagesAdded, serializedBytesAdded, uncompressedBytesAdded, outputBuffer);
         }
 
         public void partitionPage(Page page)
@@ -493,7 +495,10 @@ public class PartitionedOutputOperator
             List<Page> pagesFromSplitting = splitPage(pagePartition, DEFAULT_MAX_PAGE_SIZE_IN_BYTES);
             ImmutableList.Builder<SerializedPage> builder = ImmutableList.builderWithExpectedSize(pagesFromSplitting.size());
             for (Page p : pagesFromSplitting) {
-                builder.add(serde.serialize(p));
+                SerializedPage serializedPage = serde.serialize(p);
+                serializedBytesAdded.addAndGet(serializedPage.getSizeInBytes());
+                uncompressedBytesAdded.addAndGet(serializedPage.getUncompressedSizeInBytes());
+                builder.add(serializedPage);
             }
             return builder.build();
         }
@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.resultcache;
+
+import com.facebook.airlift.units.DataSize;
+import com.facebook.presto.operator.PageBufferClient.PagesResponse;
+import com.facebook.presto.operator.RpcShuffleClient;
+import com.facebook.presto.spi.page.SerializedPage;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.facebook.presto.operator.PageBufferClient.PagesResponse.createPagesResponse;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static java.lang.Math.toIntExact;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Serves the pages of a cached query result to the exchange client of the query, in place of the output buffer
+ * of the root stage. Tokens are page indexes, and pages are kept until the client closes the buffer, as they are
+ * shared with the cache anyway.
+ */
+class CachedResultShuffleClient
+        implements RpcShuffleClient
+{
+    private final String taskInstanceId;
+    private final List<SerializedPage> pages;
+    private final Runnable onServed;
+    private final Runnable onClosed;
+    private final AtomicBoolean served = new AtomicBoolean();
+
+    public CachedResultShuffleClient(String taskInstanceId, List<SerializedPage> pages, Runnable onServed, Runnable onClosed)
+    {
+        this.taskInstanceId = requireNonNull(taskInstanceId, "taskInstanceId is null");
+        this.pages = ImmutableList.copyOf(requireNonNull(pages, "pages is null"));
+        this.onServed = requireNonNull(onServed, "onServed is null");
+        this.onClosed = requireNonNull(onClosed, "onClosed is null");
+    }
+
+    @Override
+    public ListenableFuture<PagesResponse> getResults(long token, DataSize maxResponseSize)
+    {
+        int start = toIntExact(Math.min(token, pages.size()));
+        int end = start;
+        long responseSize = 0;
+        // always return at least one page, like the output buffers do
+        while (end < pages.size() && (end == start || responseSize + pages.get(end).getSizeInBytes() <= maxResponseSize.toBytes())) {
+            responseSize += pages.get(end).getSizeInBytes();
+            end++;
+        }
+
+        boolean complete = end == pages.size();
+        if (complete && served.compareAndSet(false, true)) {
+            onServed.run();
+        }
+        return immediateFuture(createPagesResponse(taskInstanceId, token, end, pages.subList(start, end), complete));
+    }
+
+    @Override
+    public void acknowledgeResultsAsync(long nextToken)
+    {
+    }
+
+    @Override
+    public ListenableFuture<?> abortResults()
+    {
+        onClosed.run();
+        return immediateFuture(null);
+    }
+
+    @Override
+    public Throwable rewriteException(Throwable throwable)
+    {
+        return throwable;
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.resultcache;
+
+import com.facebook.presto.operator.RpcShuffleClient;
+import com.facebook.presto.spi.QueryId;
+import com.facebook.presto.spi.page.SerializedPage;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.annotations.ThreadSafe;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+import io.airlift.slice.Slices;
+import jakarta.inject.Inject;
+import org.weakref.jmx.Managed;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.toIntExact;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Serialized result pages of finished queries, keyed by {@link QueryResultCacheKeyGenerator}.
+ * <p>
+ * A query missing the cache is recorded while its pages are handed to the client, and its result is
+ * cached once the client consumed all of it. A query hitting the cache does not schedule any stage,
+ * its pages are served to the client through {@link CachedResultShuffleClient} instead.
+ */
+@ThreadSafe
+public class QueryResultCache
+{
+    private static final String LOCATION_SCHEME = "cache";
+
+    private final long maxResultSize;
+    private final long maxRecordingSize;
+    private final Cache<String, CachedResult> cache;
+    private final ConcurrentMap<QueryId, Recording> recordings = new ConcurrentHashMap<>();
+    private final ConcurrentMap<QueryId, CachedResultShuffleClient> servedResults = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong rejectedResults = new AtomicLong();
+    private final AtomicLong recordingSizeInBytes = new AtomicLong();
+
+    @Inject
+    public QueryResultCache(QueryResultCacheConfig config)
+    {
+        requireNonNull(config, "config is null");
+        this.maxResultSize = config.getMaxResultSize().toBytes();
+        this.maxRecordingSize = config.getMaxRecordingSize().toBytes();
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(config.getMaxCacheSize().toBytes())
+                .weigher((String key, CachedResult result) -> toIntExact(Math.min(Integer.MAX_VALUE, result.getRetainedSizeInBytes())))
+                .expireAfterWrite(config.getCacheTtl().toMillis(), MILLISECONDS)
+                .recordStats()
+                .build();
+    }
+
+    public static boolean isResultLocation(URI location)
+    {
+        return LOCATION_SCHEME.equals(location.getScheme());
+    }
+
+    /**
+     * Looks up the result for the key, and if present makes it available to the exchange client of the query
+     * at the returned location.
+     *
+     * @param onServed called once all the pages were handed to the exchange client
+     */
+    public Optional<URI> serve(QueryId queryId, String key, Runnable onServed)
+    {
+        requireNonNull(queryId, "queryId is null");
+        requireNonNull(onServed, "onServed is null");
+
+        CachedResult result = cache.getIfPresent(key);
+        if (result == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        servedResults.put(queryId, new CachedResultShuffleClient(queryId.toString(), result.getPages(), onServed, () -> servedResults.remove(queryId)));
+        return Optional.of(URI.create(LOCATION_SCHEME + "://localhost/" + queryId));
+    }
+
+    public RpcShuffleClient getShuffleClient(URI location)
+    {
+        checkArgument(isResultLocation(location), "not a cached result location: %s", location);
+        String path = location.getPath();
+        QueryId queryId = QueryId.valueOf(path.substring(path.lastIndexOf('/') + 1));
+        CachedResultShuffleClient client = servedResults.get(queryId);
+        checkArgument(client != null, "no cached result is served for query %s", queryId);
+        return client;
+    }
+
+    public void stopServing(QueryId queryId)
+    {
+        servedResults.remove(queryId);
+    }
+
+    public void startRecording(QueryId queryId, String key)
+    {
+        Recording previous = recordings.put(requireNonNull(queryId, "queryId is null"), new Recording(requireNonNull(key, "key is null")));
+        if (previous != null) {
+            release(previous);
+        }
+    }
+
+    /**
+     * Adds a page returned to the client of the query, if its result is being recorded.
+     * The pages of all the recordings are reserved against query-result-cache.max-recording-size,
+     * a recording which does not fit is dropped.
+     */
+    public void recordPage(QueryId queryId, SerializedPage page)
+    {
+        Recording recording = recordings.get(queryId);
+        if (recording == null) {
+            return;
+        }
+
+        // the slice may be a view into a larger exchange response, which must not be kept alive by the cache
+        SerializedPage compactPage = new SerializedPage(
+                Slices.copyOf(page.getSlice()),
+                page.getPageCodecMarkers(),
+                page.getPositionCount(),
+                page.getUncompressedSizeInBytes(),
+                page.getChecksum());
+        long pageSize = compactPage.getRetainedSizeInBytes();
+        if (recordingSizeInBytes.addAndGet(pageSize) > maxRecordingSize || !recording.addPage(compactPage, pageSize)) {
+            recordingSizeInBytes.addAndGet(-pageSize);
+            // too large to be cached, stop buffering the remaining pages
+            if (recordings.remove(queryId, recording)) {
+                release(recording);
+                rejectedResults.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Caches the recorded result, must only be called after the client received all the pages of the query.
+     */
+    public void finishRecording(QueryId queryId)
+    {
+        Recording recording = recordings.remove(queryId);
+        if (recording != null) {
+            release(recording);
+            cache.put(recording.getKey(), recording.toResult());
+        }
+    }
+
+    public void abortRecording(QueryId queryId)
+    {
+        Recording recording = recordings.remove(queryId);
+        if (recording != null) {
+            release(recording);
+        }
+    }
+
+    private void release(Recording recording)
+    {
+        recordingSizeInBytes.addAndGet(-recording.close());
+    }
+
+    public void invalidateAll()
+    {
+        cache.invalidateAll();
+    }
+
+    @Managed
+    public long getHitCount()
+    {
+        return hits.get();
+    }
+
+    @Managed
+    public long getMissCount()
+    {
+        return misses.get();
+    }
+
+    @Managed
+    public long getRejectedResultCount()
+    {
+        return rejectedResults.get();
+    }
+
+    @Managed
+    public long getCachedResultCount()
+    {
+        return cache.size();
+    }
+
+    @Managed
+    public long getEvictionCount()
+    {
+        return cache.stats().evictionCount();
+    }
+
+    @Managed
+    public long getInFlightRecordingCount()
+    {
+        return recordings.size();
+    }
+
+    @Managed
+    public long getInFlightRecordingSizeInBytes()
+    {
+        return recordingSizeInBytes.get();
+    }
+
+    private class Recording
+    {
+        private final String key;
+        @GuardedBy("this")
+        private final List<SerializedPage> pages = new ArrayList<>();
+        @GuardedBy("this")
+        private long retainedSizeInBytes;
+        @GuardedBy("this")
+        private boolean closed;
+
+        public Recording(String key)
+        {
+            this.key = key;
+        }
+
+        public String getKey()
+        {
+            return key;
+        }
+
+        /**
+         * @return false if the page was not added, as the recording is closed or the result would be too large
+         */
+        public synchronized boolean addPage(SerializedPage page, long pageSize)
+        {
+            if (closed || retainedSizeInBytes + pageSize > maxResultSize) {
+                return false;
+            }
+            pages.add(page);
+            retainedSizeInBytes += pageSize;
+            return true;
+        }
+
+        /**
+         * Stops accepting pages.
+         *
+         * @return the size of the pages added to the recording
+         */
+        public synchronized long close()
+        {
+            closed = true;
+            return retainedSizeInBytes;
+        }
+
+        public synchronized CachedResult toResult()
+        {
+            return new CachedResult(pages, retainedSizeInBytes);
+        }
+    }
+
+    private static class CachedResult
+    {
+        private final List<SerializedPage> pages;
+        private final long retainedSizeInBytes;
+
+        public CachedResult(List<SerializedPage> pages, long retainedSizeInBytes)
+        {
+            this.pages = ImmutableList.copyOf(requireNonNull(pages, "pages is null"));
+            this.retainedSizeInBytes = retainedSizeInBytes;
+        }
+
+        public List<SerializedPage> getPages()
+        {
+            return pages;
+        }
+
+        public long getRetainedSizeInBytes()
+        {
+            return retainedSizeInBytes;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.resultcache;
+
+import com.facebook.airlift.configuration.Config;
+import com.facebook.airlift.configuration.ConfigDescription;
+import com.facebook.airlift.units.DataSize;
+import com.facebook.airlift.units.Duration;
+import com.facebook.airlift.units.MinDuration;
+import jakarta.validation.constraints.NotNull;
+
+import static com.facebook.airlift.units.DataSize.Unit.GIGABYTE;
+import static com.facebook.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.util.concurrent.TimeUnit.HOURS;
+
+public class QueryResultCacheConfig
+{
+    private DataSize maxCacheSize = new DataSize(1, GIGABYTE);
+    private DataSize maxResultSize = new DataSize(16, MEGABYTE);
+    private DataSize maxRecordingSize = new DataSize(256, MEGABYTE);
+    private Duration cacheTtl = new Duration(1, HOURS);
+
+    @NotNull
+    public DataSize getMaxCacheSize()
+    {
+        return maxCacheSize;
+    }
+
+    @Config("query-result-cache.max-cache-size")
+    @ConfigDescription("Maximum size of the query results cached on the coordinator, the least recently used results are evicted first")
+    public QueryResultCacheConfig setMaxCacheSize(DataSize maxCacheSize)
+    {
+        this.maxCacheSize = maxCacheSize;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getMaxResultSize()
+    {
+        return maxResultSize;
+    }
+
+    @Config("query-result-cache.max-result-size")
+    @ConfigDescription("Maximum size of the result of a single query for it to be cached")
+    public QueryResultCacheConfig setMaxResultSize(DataSize maxResultSize)
+    {
+        this.maxResultSize = maxResultSize;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getMaxRecordingSize()
+    {
+        return maxRecordingSize;
+    }
+
+    @Config("query-result-cache.max-recording-size")
+    @ConfigDescription("Maximum total size of the results buffered on the coordinator while queries are recorded for the cache")
+    public QueryResultCacheConfig setMaxRecordingSize(DataSize maxRecordingSize)
+    {
+        this.maxRecordingSize = maxRecordingSize;
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("0s")
+    public Duration getCacheTtl()
+    {
+        return cacheTtl;
+    }
+
+    @Config("query-result-cache.ttl")
+    @ConfigDescription("Time after which a cached query result is dropped, even if none of the tables it was computed from changed")
+    public QueryResultCacheConfig setCacheTtl(Duration cacheTtl)
+    {
+        this.cacheTtl = cacheTtl;
+        return this;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.resultcache;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.common.type.RowType;
+import com.facebook.presto.expressions.DefaultRowExpressionTraversalVisitor;
+import com.facebook.presto.metadata.FunctionAndTypeManager;
+import com.facebook.presto.metadata.Metadata;
+import com.facebook.presto.spi.plan.Assignments;
+import com.facebook.presto.spi.plan.OutputNode;
+import com.facebook.presto.spi.plan.PlanNode;
+import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.spi.plan.ProjectNode;
+import com.facebook.presto.spi.plan.TableScanNode;
+import com.facebook.presto.spi.relation.CallExpression;
+import com.facebook.presto.spi.relation.LambdaDefinitionExpression;
+import com.facebook.presto.spi.relation.RowExpression;
+import com.facebook.presto.spi.relation.SpecialFormExpression;
+import com.facebook.presto.spi.relation.VariableReferenceExpression;
+import com.facebook.presto.sql.planner.CanonicalPlan;
+import com.facebook.presto.sql.relational.RowExpressionDeterminismEvaluator;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hasher;
+import jakarta.inject.Inject;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.facebook.presto.common.plan.PlanCanonicalizationStrategy.CONNECTOR;
+import static com.facebook.presto.spi.plan.ProjectNode.Locality.LOCAL;
+import static com.facebook.presto.spi.relation.SpecialFormExpression.Form.ROW_CONSTRUCTOR;
+import static com.facebook.presto.sql.planner.CanonicalPlanGenerator.generateCanonicalPlan;
+import static com.facebook.presto.sql.planner.ExpressionExtractor.extractExpressions;
+import static com.facebook.presto.sql.planner.optimizations.PlanNodeSearcher.searchFrom;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.hash.Hashing.sha256;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Computes the {@link QueryResultCache} key of a query, from the canonical form of its logical plan, the
+ * session state it depends on, and the version tokens of the tables it scans. Queries whose result may
+ * differ between two executions over the same data, or which read a table without a version token, have
+ * no key and are never cached.
+ */
+public class QueryResultCacheKeyGenerator
+{
+    // deterministic within a query, but not across queries
+    private static final Set<String> QUERY_START_TIME_FUNCTIONS = ImmutableSet.of(
+            "current_date",
+            "current_time",
+            "current_timestamp",
+            "now",
+            "localtime",
+            "localtimestamp");
+
+    private final Metadata metadata;
+    private final ObjectMapper objectMapper;
+    private final RowExpressionDeterminismEvaluator determinismEvaluator;
+
+    @Inject
+    public QueryResultCacheKeyGenerator(Metadata metadata, ObjectMapper objectMapper)
+    {
+        this.metadata = requireNonNull(metadata, "metadata is null");
+        requireNonNull(objectMapper, "objectMapper is null");
+        // same settings as for history based optimizations, so that equivalent plans serialize alike
+        this.objectMapper = objectMapper.copy()
+                .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
+                .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true);
+        this.determinismEvaluator = new RowExpressionDeterminismEvaluator(metadata);
+    }
+
+    /**
+     * @param logicalPlan the plan before optimizations, as optimizations introduce nodes which cannot be canonicalized
+     * @param optimizedPlan the plan to be executed, which scans the table layouts to take the version tokens of
+     */
+    public Optional<String> generateKey(Session session, OutputNode logicalPlan, PlanNode optimizedPlan)
+    {
+        for (RowExpression expression : extractExpressions(logicalPlan)) {
+            if (!determinismEvaluator.isDeterministic(expression) || callsQueryStartTimeFunction(expression)) {
+                return Optional.empty();
+            }
+        }
+
+        Optional<CanonicalPlan> canonicalPlan = generateCanonicalPlan(preserveOutputOrder(logicalPlan), CONNECTOR, objectMapper, session);
+        if (!canonicalPlan.isPresent()) {
+            return Optional.empty();
+        }
+
+        Hasher hasher = sha256().newHasher();
+        hasher.putString(canonicalPlan.get().toString(objectMapper), UTF_8);
+        logicalPlan.getColumnNames().forEach(name -> hasher.putString(name, UTF_8).putByte((byte) 0));
+        hasher.putString(session.getUser(), UTF_8);
+        hasher.putString(session.getTimeZoneKey().getId(), UTF_8);
+        hasher.putString(session.getLocale().toLanguageTag(), UTF_8);
+        hasher.putString(new TreeMap<>(session.getSystemProperties()).toString(), UTF_8);
+        session.getConnectorProperties().entrySet().stream()
+                .map(entry -> entry.getKey() + "=" + new TreeMap<>(entry.getValue()))
+                .sorted()
+                .forEach(properties -> hasher.putString(properties, UTF_8));
+        for (Map.Entry<String, Map<String, String>> entry : new TreeMap<>(session.getUnprocessedCatalogProperties()).entrySet()) {
+            hasher.putString(entry.getKey() + "=" + new TreeMap<>(entry.getValue()), UTF_8);
+        }
+
+        for (TableScanNode tableScan : searchFrom(optimizedPlan).where(TableScanNode.class::isInstance).<TableScanNode>findAll()) {
+            Optional<String> versionToken = metadata.getTableVersionToken(session, tableScan.getTable());
+            if (!versionToken.isPresent()) {
+                return Optional.empty();
+            }
+            hasher.putString(tableScan.getTable().getConnectorId().toString(), UTF_8);
+            hasher.putString(versionToken.get(), UTF_8);
+        }
+        return Optional.of(hasher.hash().toString());
+    }
+
+    /**
+     * The canonical form of an output node sorts its columns, so the output is packed into a single row beforehand.
+     */
+    private static PlanNode preserveOutputOrder(OutputNode outputNode)
+    {
+        ImmutableList<RowExpression> outputs = ImmutableList.copyOf(outputNode.getOutputVariables());
+        RowType rowType = RowType.anonymous(outputs.stream().map(RowExpression::getType).collect(toImmutableList()));
+        VariableReferenceExpression row = new VariableReferenceExpression(Optional.empty(), "row", rowType);
+        return new ProjectNode(
+                Optional.empty(),
+                new PlanNodeId("row"),
+                outputNode.getSource(),
+                Assignments.of(row, new SpecialFormExpression(ROW_CONSTRUCTOR, rowType, outputs)),
+                LOCAL);
+    }
+
+    private boolean callsQueryStartTimeFunction(RowExpression expression)
+    {
+        FunctionAndTypeManager functionAndTypeManager = metadata.getFunctionAndTypeManager();
+        AtomicBoolean found = new AtomicBoolean();
+        expression.accept(new DefaultRowExpressionTraversalVisitor<Void>()
+        {
+            @Override
+            public Void visitCall(CallExpression call, Void context)
+            {
+                String name = functionAndTypeManager.getFunctionMetadata(call.getFunctionHandle()).getName().getObjectName();
+                if (QUERY_START_TIME_FUNCTIONS.contains(name)) {
+                    found.set(true);
+                }
+                return super.visitCall(call, context);
+            }
+
+            @Override
+            public Void visitLambda(LambdaDefinitionExpression lambda, Void context)
+            {
+                return lambda.getBody().accept(this, context);
+            }
+        }, null);
+        return found.get();
+    }
+}
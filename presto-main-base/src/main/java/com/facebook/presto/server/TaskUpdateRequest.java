@@ -17,6 +17,7 @@ import com.facebook.drift.annotations.ThriftConstructor;
 import com.facebook.drift.annotations.ThriftField;
 import com.facebook.drift.annotations.ThriftStruct;
 import com.facebook.presto.SessionRepresentation;
+import com.facebook.presto.execution.SplitReclaimRequest;
 import com.facebook.presto.execution.TaskSource;
 import com.facebook.presto.execution.buffer.OutputBuffers;
 import com.facebook.presto.execution.scheduler.TableWriteInfo;
@@ -30,6 +31,7 @@ import java.util.Map;
 import java.util.Optional;
 
 import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_ABSENT;
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_EMPTY;
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static java.util.Objects.requireNonNull;
 
@@ -43,6 +45,18 @@ public class TaskUpdateRequest
     private final List<TaskSource> sources;
     private final OutputBuffers outputIds;
     private final Optional<TableWriteInfo> tableWriteInfo;
+    private final List<SplitReclaimRequest> splitReclaimRequests;
+
+    public TaskUpdateRequest(
+            SessionRepresentation session,
+            Map<String, String> extraCredentials,
+            Optional<byte[]> fragment,
+            List<TaskSource> sources,
+            OutputBuffers outputIds,
+            Optional<TableWriteInfo> tableWriteInfo)
+    {
+        this(session, extraCredentials, fragment, sources, outputIds, tableWriteInfo, ImmutableList.of());
+    }
 
     @ThriftConstructor
     @JsonCreator
@@ -52,7 +66,8 @@ public class TaskUpdateRequest
             @JsonProperty("fragment") Optional<byte[]> fragment,
             @JsonProperty("sources") List<TaskSource> sources,
             @JsonProperty("outputIds") OutputBuffers outputIds,
-            @JsonProperty("tableWriteInfo") Optional<TableWriteInfo> tableWriteInfo)
+            @JsonProperty("tableWriteInfo") Optional<TableWriteInfo> tableWriteInfo,
+            @JsonProperty("splitReclaimRequests") List<SplitReclaimRequest> splitReclaimRequests)
     {
         requireNonNull(session, "session is null");
         requireNonNull(extraCredentials, "credentials is null");
@@ -67,6 +82,8 @@ public class TaskUpdateRequest
         this.sources = ImmutableList.copyOf(sources);
         this.outputIds = outputIds;
         this.tableWriteInfo = tableWriteInfo;
+        // older coordinators do not send split reclaim requests
+        this.splitReclaimRequests = splitReclaimRequests == null ? ImmutableList.of() : ImmutableList.copyOf(splitReclaimRequests);
     }
 
     @JsonProperty
@@ -112,6 +129,14 @@ public class TaskUpdateRequest
         return tableWriteInfo;
     }
 
+    @JsonInclude(NON_EMPTY)
+    @JsonProperty
+    @ThriftField(7)
+    public List<SplitReclaimRequest> getSplitReclaimRequests()
+    {
+        return splitReclaimRequests;
+    }
+
     @Override
     public String toString()
     {
@@ -121,6 +146,7 @@ public class TaskUpdateRequest
                 .add("fragment", fragment)
                 .add("sources", sources)
                 .add("outputIds", outputIds)
+                .add("splitReclaimRequests", splitReclaimRequests)
                 .toString();
     }
 }
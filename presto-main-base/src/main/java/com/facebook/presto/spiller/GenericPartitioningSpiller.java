@@ -40,6 +40,7 @@ import static com.facebook.airlift.concurrent.MoreFutures.getFutureValue;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static java.util.Objects.requireNonNull;
 
 @ThreadSafe
@@ -95,6 +96,16 @@ public class GenericPartitioningSpiller
         return getSpiller(partition).getSpilledPages();
     }
 
+    @Override
+    public synchronized ListenableFuture<List<Page>> getAllSpilledPages(int partition)
+    {
+        readingStarted = true;
+        ListenableFuture<?> flushed = flush(partition);
+        spilledPartitions.remove(partition);
+        SingleStreamSpiller spiller = getSpiller(partition);
+        return Futures.transformAsync(flushed, ignored -> spiller.getAllSpilledPages(), directExecutor());
+    }
+
     @Override
     public synchronized void verifyAllPartitionsRead()
     {
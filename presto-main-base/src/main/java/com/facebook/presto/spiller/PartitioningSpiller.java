@@ -19,6 +19,7 @@ import com.google.common.util.concurrent.ListenableFuture;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.function.IntPredicate;
 
 import static java.util.Objects.requireNonNull;
@@ -45,6 +46,14 @@ public interface PartitioningSpiller
     // TODO getSpilledPages should not need flush last buffer to disk
     Iterator<Page> getSpilledPages(int partition);
 
+    /**
+     * Initiates read of previously spilled pages from given partition. The returned future completes once all
+     * pages are read. Like {@link #getSpilledPages(int)}, this method is expected to be called once per partition.
+     * <p>
+     * This method may not be called if previously initiated spilling is not finished yet.
+     */
+    ListenableFuture<List<Page>> getAllSpilledPages(int partition);
+
     void verifyAllPartitionsRead();
 
     /**
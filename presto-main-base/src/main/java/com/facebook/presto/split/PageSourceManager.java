@@ -14,6 +14,8 @@
 package com.facebook.presto.split;
 
 import com.facebook.presto.Session;
+import com.facebook.presto.cacheaffinity.CacheAffinityConfig;
+import com.facebook.presto.cacheaffinity.LocalCacheDigest;
 import com.facebook.presto.common.RuntimeStats;
 import com.facebook.presto.common.predicate.TupleDomain;
 import com.facebook.presto.metadata.Split;
@@ -25,7 +27,9 @@ import com.facebook.presto.spi.FixedPageSource;
 import com.facebook.presto.spi.SplitContext;
 import com.facebook.presto.spi.TableHandle;
 import com.facebook.presto.spi.connector.ConnectorPageSourceProvider;
+import com.facebook.presto.split.SharedScanManager.SharedScanKey;
 import com.google.common.collect.ImmutableList;
+import jakarta.inject.Inject;
 
 import java.util.List;
 import java.util.Optional;
@@ -33,6 +37,16 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.function.Supplier;
 
+import static com.facebook.presto.SystemSessionProperties.isLegacyTimestamp;
+import static com.facebook.presto.SystemSessionProperties.isSharedScanEnabled;
+import static com.facebook.presto.cacheaffinity.LocalCacheDigest.getCacheKey;
+import static com.facebook.presto.common.RuntimeMetricName.CACHE_AFFINITY_HIT_SPLITS;
+import static com.facebook.presto.common.RuntimeMetricName.CACHE_AFFINITY_MISS_SPLITS;
+import static com.facebook.presto.common.RuntimeMetricName.CACHE_AFFINITY_REMOTE_READ_BYTES;
+import static com.facebook.presto.common.RuntimeUnit.BYTE;
+import static com.facebook.presto.common.RuntimeUnit.NONE;
+import static com.facebook.presto.common.plan.PlanCanonicalizationStrategy.DEFAULT;
+import static com.facebook.presto.spi.schedule.NodeSelectionStrategy.SOFT_AFFINITY;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static java.util.Objects.requireNonNull;
@@ -41,6 +55,20 @@ public class PageSourceManager
         implements PageSourceProvider
 {
     private final ConcurrentMap<ConnectorId, ConnectorPageSourceProvider> pageSourceProviders = new ConcurrentHashMap<>();
+    private final SharedScanManager sharedScanManager;
+    private final LocalCacheDigest localCacheDigest;
+
+    public PageSourceManager()
+    {
+        this(new SharedScanManager(new SharedScanConfig()), new LocalCacheDigest(new CacheAffinityConfig()));
+    }
+
+    @Inject
+    public PageSourceManager(SharedScanManager sharedScanManager, LocalCacheDigest localCacheDigest)
+    {
+        this.sharedScanManager = requireNonNull(sharedScanManager, "sharedScanManager is null");
+        this.localCacheDigest = requireNonNull(localCacheDigest, "localCacheDigest is null");
+    }
 
     public void addConnectorPageSourceProvider(ConnectorId connectorId, ConnectorPageSourceProvider pageSourceProvider)
     {
@@ -60,6 +88,10 @@ public class PageSourceManager
         requireNonNull(split, "split is null");
         requireNonNull(columns, "columns is null");
 
+        if (localCacheDigest.isEnabled() && split.getConnectorSplit().getNodeSelectionStrategy() == SOFT_AFFINITY) {
+            recordCacheAffinity(split, runtimeStats);
+        }
+
         Optional<Supplier<TupleDomain<ColumnHandle>>> dynamicFilter = table.getDynamicFilter();
 
         // directly return the result if the given constraint is always false
@@ -78,18 +110,56 @@ public class PageSourceManager
 
         ConnectorSession connectorSession = session.toConnectorSession(split.getConnectorId());
         if (table.getLayout().isPresent()) {
-            return getPageSourceProvider(split).createPageSource(
-                    split.getTransactionHandle(),
-                    connectorSession,
-                    split.getConnectorSplit(),
-                    table.getLayout().get(),
-                    columns,
-                    split.getSplitContext(),
-                    runtimeStats);
+            Split connectorSplit = split;
+            // a dynamic filter is specific to the query, so the scan is not shared
+            if (isSharedScanEnabled(session) && !dynamicFilter.isPresent()) {
+                SharedScanKey key = new SharedScanKey(
+                        split.getConnectorId(),
+                        table.getLayout().get().getIdentifier(Optional.of(split.getConnectorSplit()), DEFAULT),
+                        split.getConnectorSplit().getSplitIdentifier(),
+                        columns,
+                        session.getTimeZoneKey(),
+                        isLegacyTimestamp(session),
+                        session.getConnectorProperties(split.getConnectorId()));
+                // the reader may be shared with other queries, so it gets a session of its own reporting to the given stats
+                return sharedScanManager.createPageSource(
+                        key,
+                        readerRuntimeStats -> createPageSource(connectorSplit, table, columns, session.toConnectorSession(connectorSplit.getConnectorId(), readerRuntimeStats), readerRuntimeStats),
+                        runtimeStats);
+            }
+            return createPageSource(connectorSplit, table, columns, connectorSession, runtimeStats);
         }
         return getPageSourceProvider(split).createPageSource(split.getTransactionHandle(), connectorSession, split.getConnectorSplit(), columns, split.getSplitContext());
     }
 
+    private ConnectorPageSource createPageSource(Split split, TableHandle table, List<ColumnHandle> columns, ConnectorSession connectorSession, RuntimeStats runtimeStats)
+    {
+        return getPageSourceProvider(split).createPageSource(
+                split.getTransactionHandle(),
+                connectorSession,
+                split.getConnectorSplit(),
+                table.getLayout().get(),
+                columns,
+                split.getSplitContext(),
+                runtimeStats);
+    }
+
+    private void recordCacheAffinity(Split split, RuntimeStats runtimeStats)
+    {
+        String cacheKey = getCacheKey(split);
+        // a split scheduled away from its preferred nodes is not read through the cache
+        boolean cacheable = split.getSplitContext().isCacheable();
+        if (cacheable && localCacheDigest.mightContain(cacheKey)) {
+            runtimeStats.addMetricValue(CACHE_AFFINITY_HIT_SPLITS, NONE, 1);
+            return;
+        }
+        runtimeStats.addMetricValue(CACHE_AFFINITY_MISS_SPLITS, NONE, 1);
+        split.getConnectorSplit().getSplitSizeInBytes().ifPresent(bytes -> runtimeStats.addMetricValue(CACHE_AFFINITY_REMOTE_READ_BYTES, BYTE, bytes));
+        if (cacheable) {
+            localCacheDigest.record(cacheKey);
+        }
+    }
+
     private ConnectorPageSourceProvider getPageSourceProvider(Split split)
     {
         ConnectorPageSourceProvider provider = pageSourceProviders.get(split.getConnectorId());
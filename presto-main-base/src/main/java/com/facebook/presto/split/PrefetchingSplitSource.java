@@ -0,0 +1,218 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.split;
+
+import com.facebook.presto.execution.Lifespan;
+import com.facebook.presto.metadata.Split;
+import com.facebook.presto.spi.ConnectorId;
+import com.facebook.presto.spi.connector.ConnectorPartitionHandle;
+import com.facebook.presto.spi.connector.ConnectorTransactionHandle;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import static com.facebook.presto.spi.connector.NotPartitionedPartitionHandle.NOT_PARTITIONED;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.util.concurrent.Futures.immediateFailedFuture;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Split source of an ungrouped stage that can start enumerating splits before the stage
+ * is scheduled, e.g. while phased execution waits for the build side of a join. Once
+ * {@link #startSplitEnumeration()} is called, splits are fetched in the background into
+ * a queue bounded by {@code maxBufferedSplits}, and {@link #getNextBatch} is served from
+ * that queue, which is refilled as it drains. Before that, calls go straight to the
+ * underlying source, and enumeration can no longer be started ahead of scheduling.
+ */
+public class PrefetchingSplitSource
+        implements SplitSource
+{
+    private final SplitSource source;
+    private final int batchSize;
+    private final int maxBufferedSplits;
+
+    @GuardedBy("this")
+    private final Queue<Split> bufferedSplits = new ArrayDeque<>();
+    @GuardedBy("this")
+    private boolean enumerationStarted;
+    @GuardedBy("this")
+    private boolean scheduled;
+    @GuardedBy("this")
+    private boolean fetching;
+    @GuardedBy("this")
+    private boolean noMoreSplits;
+    @GuardedBy("this")
+    private boolean closed;
+    @GuardedBy("this")
+    private Throwable failure;
+    @GuardedBy("this")
+    private SettableFuture<?> bufferChanged = SettableFuture.create();
+
+    public PrefetchingSplitSource(SplitSource source, int batchSize, int maxBufferedSplits)
+    {
+        this.source = requireNonNull(source, "source is null");
+        checkArgument(batchSize > 0, "batchSize must be positive");
+        checkArgument(maxBufferedSplits > 0, "maxBufferedSplits must be positive");
+        this.batchSize = batchSize;
+        this.maxBufferedSplits = maxBufferedSplits;
+    }
+
+    public void startSplitEnumeration()
+    {
+        synchronized (this) {
+            // once splits are fetched directly the underlying source already has a caller
+            if (enumerationStarted || scheduled || closed) {
+                return;
+            }
+            enumerationStarted = true;
+        }
+        fetchNextBatchIfNecessary();
+    }
+
+    @Override
+    public ConnectorId getConnectorId()
+    {
+        return source.getConnectorId();
+    }
+
+    @Override
+    public ConnectorTransactionHandle getTransactionHandle()
+    {
+        return source.getTransactionHandle();
+    }
+
+    @Override
+    public ListenableFuture<SplitBatch> getNextBatch(ConnectorPartitionHandle partitionHandle, Lifespan lifespan, int maxSize)
+    {
+        checkArgument(maxSize > 0, "Cannot fetch a batch of zero size");
+        SplitBatch batch;
+        synchronized (this) {
+            if (!enumerationStarted) {
+                scheduled = true;
+                return source.getNextBatch(partitionHandle, lifespan, maxSize);
+            }
+            checkArgument(partitionHandle.equals(NOT_PARTITIONED), "partitionHandle is not NOT_PARTITIONED: %s", partitionHandle);
+            checkArgument(lifespan.isTaskWide(), "lifespan is not task wide: %s", lifespan);
+            if (failure != null) {
+                return immediateFailedFuture(failure);
+            }
+            if (bufferedSplits.isEmpty() && !noMoreSplits) {
+                // wait for the fetch in flight, then try again
+                return Futures.transformAsync(
+                        Futures.nonCancellationPropagating(bufferChanged),
+                        ignored -> getNextBatch(partitionHandle, lifespan, maxSize),
+                        directExecutor());
+            }
+            ImmutableList.Builder<Split> splits = ImmutableList.builder();
+            for (int i = 0; i < maxSize && !bufferedSplits.isEmpty(); i++) {
+                splits.add(bufferedSplits.poll());
+            }
+            batch = new SplitBatch(splits.build(), noMoreSplits && bufferedSplits.isEmpty());
+        }
+        fetchNextBatchIfNecessary();
+        return immediateFuture(batch);
+    }
+
+    private void fetchNextBatchIfNecessary()
+    {
+        int maxSize;
+        synchronized (this) {
+            if (!enumerationStarted || fetching || noMoreSplits || closed || failure != null || bufferedSplits.size() >= maxBufferedSplits) {
+                return;
+            }
+            // only one fetch is in flight at a time, so the underlying source is never called concurrently
+            fetching = true;
+            maxSize = min(batchSize, maxBufferedSplits - bufferedSplits.size());
+        }
+
+        ListenableFuture<SplitBatch> future;
+        try {
+            future = source.getNextBatch(NOT_PARTITIONED, Lifespan.taskWide(), maxSize);
+        }
+        catch (RuntimeException e) {
+            future = immediateFailedFuture(e);
+        }
+
+        Futures.addCallback(future, new FutureCallback<SplitBatch>()
+        {
+            @Override
+            public void onSuccess(SplitBatch batch)
+            {
+                SettableFuture<?> changed;
+                synchronized (PrefetchingSplitSource.this) {
+                    fetching = false;
+                    bufferedSplits.addAll(batch.getSplits());
+                    noMoreSplits = batch.isLastBatch();
+                    changed = bufferChanged;
+                    bufferChanged = SettableFuture.create();
+                }
+                changed.set(null);
+                fetchNextBatchIfNecessary();
+            }
+
+            @Override
+            public void onFailure(Throwable throwable)
+            {
+                SettableFuture<?> changed;
+                synchronized (PrefetchingSplitSource.this) {
+                    fetching = false;
+                    failure = throwable;
+                    changed = bufferChanged;
+                    bufferChanged = SettableFuture.create();
+                }
+                changed.set(null);
+            }
+        }, directExecutor());
+    }
+
+    @Override
+    public void rewind(ConnectorPartitionHandle partitionHandle)
+    {
+        synchronized (this) {
+            checkState(!enumerationStarted, "Cannot rewind a split source that enumerates splits ahead of scheduling");
+        }
+        source.rewind(partitionHandle);
+    }
+
+    @Override
+    public void close()
+    {
+        synchronized (this) {
+            closed = true;
+            bufferedSplits.clear();
+        }
+        source.close();
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        synchronized (this) {
+            if (enumerationStarted) {
+                return noMoreSplits && bufferedSplits.isEmpty();
+            }
+        }
+        return source.isFinished();
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.split;
+
+import com.facebook.airlift.configuration.Config;
+import com.facebook.airlift.configuration.ConfigDescription;
+import com.facebook.airlift.units.DataSize;
+import com.facebook.airlift.units.Duration;
+import com.facebook.airlift.units.MinDataSize;
+import com.facebook.airlift.units.MinDuration;
+import jakarta.validation.constraints.NotNull;
+
+import static com.facebook.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+public class SharedScanConfig
+{
+    private DataSize maxBufferedSize = new DataSize(64, MEGABYTE);
+    private Duration maxAttachDelay = new Duration(2, SECONDS);
+
+    @NotNull
+    @MinDataSize("1MB")
+    public DataSize getMaxBufferedSize()
+    {
+        return maxBufferedSize;
+    }
+
+    @Config("shared-scan.max-buffered-size")
+    @ConfigDescription("Maximum size of the pages a shared scan keeps for the consumers lagging behind")
+    public SharedScanConfig setMaxBufferedSize(DataSize maxBufferedSize)
+    {
+        this.maxBufferedSize = maxBufferedSize;
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("0s")
+    public Duration getMaxAttachDelay()
+    {
+        return maxAttachDelay;
+    }
+
+    @Config("shared-scan.max-attach-delay")
+    @ConfigDescription("How long after a shared scan started other scans of the same split may still attach to it")
+    public SharedScanConfig setMaxAttachDelay(Duration maxAttachDelay)
+    {
+        this.maxAttachDelay = maxAttachDelay;
+        return this;
+    }
+}
@@ -0,0 +1,587 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.split;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.RuntimeStats;
+import com.facebook.presto.common.type.TimeZoneKey;
+import com.facebook.presto.spi.ColumnHandle;
+import com.facebook.presto.spi.ConnectorId;
+import com.facebook.presto.spi.ConnectorPageSource;
+import com.facebook.presto.spi.UpdatablePageSource;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.errorprone.annotations.ThreadSafe;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import jakarta.inject.Inject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static com.facebook.presto.common.RuntimeMetricName.SHARED_SCAN_ATTACHED_SPLITS;
+import static com.facebook.presto.common.RuntimeUnit.NONE;
+import static com.facebook.presto.spi.ConnectorPageSource.NOT_BLOCKED;
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Lets the scans that read the same data on a worker share a single reader, whether they belong to one query,
+ * such as both sides of a self join or the references to the same common table expression, or to concurrent
+ * queries, such as the queries of a dashboard. The pages of the reader are handed to every attached scan, and each
+ * scan applies the rest of its plan, including its own filters, on top. Scans only share a reader when the session
+ * decodes the data the same way, see {@link SharedScanKey}. The shared reader gets its own connector session and
+ * runtime stats, so it keeps reading when the query that started it is done.
+ * <p>
+ * A scan attaches to an in-flight reader only within {@link SharedScanConfig#getMaxAttachDelay()} of its start,
+ * and only while the reader still buffers all the pages it produced. Pages are kept until every attached scan got
+ * them, up to {@link SharedScanConfig#getMaxBufferedSize()}. When the buffer is full, the scans lagging furthest
+ * behind are detached and continue with a reader of their own, skipping the rows they already got. This relies
+ * on a reader returning the rows of a split in the same order every time, as file based readers do.
+ * <p>
+ * Only one scan at a time pulls a page from the reader, outside of the lock of the shared scan. The other scans
+ * are blocked until the page is published. Pages are loaded before they are shared, because the lazy blocks of
+ * a reader are only valid until it moves on. Once a single scan is left and no other scan can attach anymore,
+ * the pages of the reader are passed through as they are, lazy blocks included.
+ */
+@ThreadSafe
+public class SharedScanManager
+{
+    private final long maxBufferedBytes;
+    private final long maxAttachDelayNanos;
+    private final Ticker ticker;
+    private final ConcurrentMap<SharedScanKey, SharedScan> scans = new ConcurrentHashMap<>();
+
+    @Inject
+    public SharedScanManager(SharedScanConfig config)
+    {
+        this(config, Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    SharedScanManager(SharedScanConfig config, Ticker ticker)
+    {
+        requireNonNull(config, "config is null");
+        this.maxBufferedBytes = config.getMaxBufferedSize().toBytes();
+        this.maxAttachDelayNanos = config.getMaxAttachDelay().roundTo(NANOSECONDS);
+        this.ticker = requireNonNull(ticker, "ticker is null");
+    }
+
+    /**
+     * Attaches to an in-flight scan of the same data, or starts a new one with a page source of the factory.
+     * The factory creates a page source reporting to the given runtime stats. It is also used to create a private
+     * page source reporting to the stats of the scan, in case the scan gets detached later on.
+     */
+    public ConnectorPageSource createPageSource(SharedScanKey key, Function<RuntimeStats, ConnectorPageSource> pageSourceFactory, RuntimeStats runtimeStats)
+    {
+        requireNonNull(key, "key is null");
+        requireNonNull(pageSourceFactory, "pageSourceFactory is null");
+        requireNonNull(runtimeStats, "runtimeStats is null");
+
+        while (true) {
+            SharedScan scan = scans.computeIfAbsent(key, SharedScan::new);
+            ConnectorPageSource pageSource = scan.attach(pageSourceFactory, runtimeStats);
+            if (pageSource instanceof SharedPageSource) {
+                if (((SharedPageSource) pageSource).isAttachedToReader()) {
+                    runtimeStats.addMetricValue(SHARED_SCAN_ATTACHED_SPLITS, NONE, 1);
+                }
+                return pageSource;
+            }
+            // the scan does not take more consumers
+            scans.remove(key, scan);
+            if (pageSource != null) {
+                return pageSource;
+            }
+        }
+    }
+
+    @VisibleForTesting
+    int getScanCount()
+    {
+        return scans.size();
+    }
+
+    /**
+     * Identifies the data a scan reads, along with the session state that changes how a reader decodes it.
+     */
+    public static final class SharedScanKey
+    {
+        private final ConnectorId connectorId;
+        private final Object layoutIdentifier;
+        private final Object splitIdentifier;
+        private final List<ColumnHandle> columns;
+        private final TimeZoneKey timeZoneKey;
+        private final boolean legacyTimestamp;
+        private final Map<String, String> connectorProperties;
+
+        /**
+         * @param layoutIdentifier identifies the data the table layout provides, see {@link com.facebook.presto.spi.ConnectorTableLayoutHandle#getIdentifier}
+         * @param splitIdentifier identifies the data of the split, see {@link com.facebook.presto.spi.ConnectorSplit#getSplitIdentifier()}
+         * @param connectorProperties the session properties of the catalog
+         */
+        public SharedScanKey(
+                ConnectorId connectorId,
+                Object layoutIdentifier,
+                Object splitIdentifier,
+                List<ColumnHandle> columns,
+                TimeZoneKey timeZoneKey,
+                boolean legacyTimestamp,
+                Map<String, String> connectorProperties)
+        {
+            this.connectorId = requireNonNull(connectorId, "connectorId is null");
+            this.layoutIdentifier = requireNonNull(layoutIdentifier, "layoutIdentifier is null");
+            this.splitIdentifier = requireNonNull(splitIdentifier, "splitIdentifier is null");
+            this.columns = ImmutableList.copyOf(requireNonNull(columns, "columns is null"));
+            this.timeZoneKey = requireNonNull(timeZoneKey, "timeZoneKey is null");
+            this.legacyTimestamp = legacyTimestamp;
+            this.connectorProperties = ImmutableMap.copyOf(requireNonNull(connectorProperties, "connectorProperties is null"));
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            SharedScanKey that = (SharedScanKey) o;
+            return legacyTimestamp == that.legacyTimestamp &&
+                    connectorId.equals(that.connectorId) &&
+                    layoutIdentifier.equals(that.layoutIdentifier) &&
+                    splitIdentifier.equals(that.splitIdentifier) &&
+                    columns.equals(that.columns) &&
+                    timeZoneKey.equals(that.timeZoneKey) &&
+                    connectorProperties.equals(that.connectorProperties);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(connectorId, layoutIdentifier, splitIdentifier, columns, timeZoneKey, legacyTimestamp, connectorProperties);
+        }
+
+        @Override
+        public String toString()
+        {
+            return toStringHelper(this)
+                    .add("connectorId", connectorId)
+                    .add("splitIdentifier", splitIdentifier)
+                    .add("columns", columns)
+                    .add("timeZoneKey", timeZoneKey)
+                    .add("legacyTimestamp", legacyTimestamp)
+                    .add("connectorProperties", connectorProperties)
+                    .toString();
+        }
+    }
+
+    private class SharedScan
+    {
+        private final SharedScanKey key;
+        private final long startNanos = ticker.read();
+        // the reader outlives the scan that started it, its stats are handed to the consumer pulling each page
+        private final RuntimeStats readerRuntimeStats = new RuntimeStats();
+
+        @GuardedBy("this")
+        private ConnectorPageSource source;
+        @GuardedBy("this")
+        private boolean attachable = true;
+        @GuardedBy("this")
+        private final Set<SharedPageSource> consumers = new HashSet<>();
+
+        // pages from firstBufferedPage on, with the total size of the pages produced up to and including each of them
+        @GuardedBy("this")
+        private final List<Page> bufferedPages = new ArrayList<>();
+        @GuardedBy("this")
+        private final LongArrayList bufferedPageEnds = new LongArrayList();
+        @GuardedBy("this")
+        private int firstBufferedPage;
+        @GuardedBy("this")
+        private long producedBytes;
+        @GuardedBy("this")
+        private long releasedBytes;
+
+        // set while a consumer pulls a page from the source outside of the lock
+        @GuardedBy("this")
+        private boolean reading;
+        @GuardedBy("this")
+        private CompletableFuture<?> readFinished = completedFuture(null);
+        @GuardedBy("this")
+        private boolean sourceFinished;
+        @GuardedBy("this")
+        private long sourceMemoryUsage;
+
+        public SharedScan(SharedScanKey key)
+        {
+            this.key = requireNonNull(key, "key is null");
+        }
+
+        /**
+         * @return the consumer attached to this scan, an unshared page source when the data can not be shared,
+         * or null when this scan does not take more consumers
+         */
+        public synchronized ConnectorPageSource attach(Function<RuntimeStats, ConnectorPageSource> pageSourceFactory, RuntimeStats runtimeStats)
+        {
+            if (attachable && (firstBufferedPage > 0 || ticker.read() - startNanos > maxAttachDelayNanos)) {
+                attachable = false;
+            }
+            if (!attachable) {
+                return null;
+            }
+
+            boolean attachedToReader = source != null;
+            if (source == null) {
+                ConnectorPageSource pageSource = pageSourceFactory.apply(readerRuntimeStats);
+                if (pageSource instanceof UpdatablePageSource) {
+                    // rows are deleted or updated through the page source, it must stay with its query
+                    attachable = false;
+                    return pageSource;
+                }
+                source = pageSource;
+            }
+            SharedPageSource consumer = new SharedPageSource(this, () -> pageSourceFactory.apply(runtimeStats), attachedToReader);
+            consumers.add(consumer);
+            return consumer;
+        }
+
+        public Page getNextPage(SharedPageSource consumer)
+        {
+            ConnectorPageSource reader;
+            boolean passThrough;
+            synchronized (this) {
+                if (!consumers.contains(consumer)) {
+                    return null;
+                }
+                if (consumer.nextPage < firstBufferedPage + bufferedPages.size()) {
+                    Page page = bufferedPages.get(consumer.nextPage - firstBufferedPage);
+                    consumer.nextPage++;
+                    releasePages();
+                    return page;
+                }
+                if (reading || sourceFinished) {
+                    // another consumer is pulling the next page, see isBlocked
+                    return null;
+                }
+                reading = true;
+                readFinished = new CompletableFuture<>();
+                releasePages();
+                // no other consumer can get the pages from now on
+                passThrough = !attachable && consumers.size() == 1;
+                reader = source;
+            }
+
+            Page page = null;
+            boolean finished;
+            long memoryUsage;
+            try {
+                long completedBytes = reader.getCompletedBytes();
+                long readTimeNanos = reader.getReadTimeNanos();
+                if (!reader.isFinished()) {
+                    page = reader.getNextPage();
+                }
+                if (page != null && !passThrough) {
+                    // lazy blocks of a reader are only valid until it moves on, while other consumers may still need them
+                    page = page.getLoadedPage();
+                }
+                // the consumer pulling a page from the reader is charged with its input
+                consumer.completedBytes += reader.getCompletedBytes() - completedBytes;
+                consumer.readTimeNanos += reader.getReadTimeNanos() - readTimeNanos;
+                consumer.runtimeStats.mergeWith(readerRuntimeStats);
+                readerRuntimeStats.reset();
+                finished = reader.isFinished();
+                memoryUsage = reader.getSystemMemoryUsage();
+            }
+            catch (RuntimeException e) {
+                CompletableFuture<?> readFailed;
+                synchronized (this) {
+                    readFailed = finishRead(sourceFinished, sourceMemoryUsage);
+                }
+                readFailed.complete(null);
+                throw e;
+            }
+
+            CompletableFuture<?> published;
+            synchronized (this) {
+                published = finishRead(finished, memoryUsage);
+                if (page != null) {
+                    consumer.nextPage++;
+                    if (passThrough) {
+                        // the page is not buffered, and its size would load its lazy blocks
+                        firstBufferedPage = consumer.nextPage;
+                    }
+                    else {
+                        producedBytes += page.getRetainedSizeInBytes();
+                        bufferedPages.add(page);
+                        bufferedPageEnds.add(producedBytes);
+                        releasePages();
+                        if (producedBytes - releasedBytes > maxBufferedBytes) {
+                            attachable = false;
+                            releasePages();
+                            detachLaggingConsumers(consumer);
+                        }
+                    }
+                }
+            }
+            published.complete(null);
+            return page;
+        }
+
+        public synchronized boolean isFinished(SharedPageSource consumer)
+        {
+            return consumers.contains(consumer) && consumer.nextPage == firstBufferedPage + bufferedPages.size() && sourceFinished;
+        }
+
+        public synchronized boolean isDetached(SharedPageSource consumer)
+        {
+            return !consumers.contains(consumer);
+        }
+
+        public synchronized CompletableFuture<?> isBlocked(SharedPageSource consumer)
+        {
+            if (!consumers.contains(consumer) || consumer.nextPage < firstBufferedPage + bufferedPages.size() || sourceFinished) {
+                return NOT_BLOCKED;
+            }
+            if (reading) {
+                return readFinished;
+            }
+            return source.isBlocked();
+        }
+
+        public synchronized long getSystemMemoryUsage(SharedPageSource consumer)
+        {
+            if (!consumers.contains(consumer)) {
+                return 0;
+            }
+            // the pages a consumer still has to get are charged to it, the memory of the reader is split evenly
+            long consumedBytes = consumer.nextPage == firstBufferedPage ? releasedBytes : bufferedPageEnds.getLong(consumer.nextPage - firstBufferedPage - 1);
+            return producedBytes - consumedBytes + sourceMemoryUsage / consumers.size();
+        }
+
+        public void close(SharedPageSource consumer)
+                throws IOException
+        {
+            ConnectorPageSource closedSource;
+            synchronized (this) {
+                if (!consumers.remove(consumer)) {
+                    return;
+                }
+                if (!consumers.isEmpty()) {
+                    releasePages();
+                    return;
+                }
+                attachable = false;
+                bufferedPages.clear();
+                bufferedPageEnds.clear();
+                closedSource = source;
+            }
+            scans.remove(key, this);
+            closedSource.close();
+        }
+
+        @GuardedBy("this")
+        private CompletableFuture<?> finishRead(boolean finished, long memoryUsage)
+        {
+            reading = false;
+            sourceFinished = finished;
+            sourceMemoryUsage = memoryUsage;
+            return readFinished;
+        }
+
+        @GuardedBy("this")
+        private void releasePages()
+        {
+            if (attachable && ticker.read() - startNanos <= maxAttachDelayNanos) {
+                // scans attaching later start from the first page
+                return;
+            }
+            attachable = false;
+
+            int consumedPages = consumers.stream()
+                    .mapToInt(consumer -> consumer.nextPage)
+                    .min()
+                    .orElse(firstBufferedPage + bufferedPages.size());
+            int releasedPages = consumedPages - firstBufferedPage;
+            if (releasedPages > 0) {
+                releasedBytes = bufferedPageEnds.getLong(releasedPages - 1);
+                bufferedPages.subList(0, releasedPages).clear();
+                bufferedPageEnds.removeElements(0, releasedPages);
+                firstBufferedPage = consumedPages;
+            }
+        }
+
+        @GuardedBy("this")
+        private void detachLaggingConsumers(SharedPageSource currentConsumer)
+        {
+            while (producedBytes - releasedBytes > maxBufferedBytes) {
+                SharedPageSource laggingConsumer = null;
+                for (SharedPageSource consumer : consumers) {
+                    if (consumer != currentConsumer && (laggingConsumer == null || consumer.nextPage < laggingConsumer.nextPage)) {
+                        laggingConsumer = consumer;
+                    }
+                }
+                if (laggingConsumer == null) {
+                    return;
+                }
+                consumers.remove(laggingConsumer);
+                releasePages();
+            }
+        }
+    }
+
+    private static class SharedPageSource
+            implements ConnectorPageSource
+    {
+        private final SharedScan scan;
+        private final Supplier<ConnectorPageSource> pageSourceSupplier;
+        private final boolean attachedToReader;
+        // the reader is shared, so each consumer reports its own stats
+        private final RuntimeStats runtimeStats = new RuntimeStats();
+
+        // guarded by the scan, only changed by the thread of this consumer
+        private int nextPage;
+        private long completedBytes;
+        private long readTimeNanos;
+
+        private long completedPositions;
+        // created once the consumer is detached from the scan
+        private ConnectorPageSource privateSource;
+        private long positionsToSkip;
+
+        public SharedPageSource(SharedScan scan, Supplier<ConnectorPageSource> pageSourceSupplier, boolean attachedToReader)
+        {
+            this.scan = requireNonNull(scan, "scan is null");
+            this.pageSourceSupplier = requireNonNull(pageSourceSupplier, "pageSourceSupplier is null");
+            this.attachedToReader = attachedToReader;
+        }
+
+        public boolean isAttachedToReader()
+        {
+            return attachedToReader;
+        }
+
+        @Override
+        public long getCompletedBytes()
+        {
+            return completedBytes + (privateSource == null ? 0 : privateSource.getCompletedBytes());
+        }
+
+        @Override
+        public long getCompletedPositions()
+        {
+            return completedPositions;
+        }
+
+        @Override
+        public long getReadTimeNanos()
+        {
+            return readTimeNanos + (privateSource == null ? 0 : privateSource.getReadTimeNanos());
+        }
+
+        @Override
+        public boolean isFinished()
+        {
+            if (privateSource != null) {
+                return privateSource.isFinished();
+            }
+            return scan.isFinished(this);
+        }
+
+        @Override
+        public Page getNextPage()
+        {
+            if (privateSource == null) {
+                if (!scan.isDetached(this)) {
+                    Page page = scan.getNextPage(this);
+                    if (page != null) {
+                        completedPositions += page.getPositionCount();
+                    }
+                    return page;
+                }
+                positionsToSkip = completedPositions;
+                privateSource = pageSourceSupplier.get();
+            }
+
+            Page page = privateSource.getNextPage();
+            if (page == null) {
+                return null;
+            }
+            if (positionsToSkip > 0) {
+                if (page.getPositionCount() <= positionsToSkip) {
+                    positionsToSkip -= page.getPositionCount();
+                    return null;
+                }
+                page = page.getRegion((int) positionsToSkip, page.getPositionCount() - (int) positionsToSkip);
+                positionsToSkip = 0;
+            }
+            completedPositions += page.getPositionCount();
+            return page;
+        }
+
+        @Override
+        public CompletableFuture<?> isBlocked()
+        {
+            if (privateSource != null) {
+                return privateSource.isBlocked();
+            }
+            return scan.isBlocked(this);
+        }
+
+        @Override
+        public long getSystemMemoryUsage()
+        {
+            if (privateSource != null) {
+                return privateSource.getSystemMemoryUsage();
+            }
+            return scan.getSystemMemoryUsage(this);
+        }
+
+        @Override
+        public RuntimeStats getRuntimeStats()
+        {
+            if (privateSource != null) {
+                return privateSource.getRuntimeStats();
+            }
+            return runtimeStats;
+        }
+
+        @Override
+        public void close()
+                throws IOException
+        {
+            try {
+                scan.close(this);
+            }
+            finally {
+                if (privateSource != null) {
+                    privateSource.close();
+                }
+            }
+        }
+    }
+}
@@ -42,6 +42,7 @@ import java.nio.file.Paths;
 import java.util.List;
 import java.util.stream.Stream;
 
+import static com.facebook.airlift.units.DataSize.Unit.GIGABYTE;
 import static com.facebook.airlift.units.DataSize.Unit.KILOBYTE;
 import static com.facebook.airlift.units.DataSize.Unit.MEGABYTE;
 import static com.facebook.presto.spi.StandardErrorCode.INVALID_SESSION_PROPERTY;
@@ -93,6 +94,7 @@ public class FeaturesConfig
     private int concurrentLifespansPerTask;
     private boolean spatialJoinsEnabled = true;
     private boolean fastInequalityJoins = true;
+    private int hashBuildConcurrency = 1;
     private TaskSpillingStrategy taskSpillingStrategy = ORDER_BY_CREATE_TIME;
     private boolean queryLimitSpillEnabled;
     private SingleStreamSpillerChoice singleStreamSpillerChoice = SingleStreamSpillerChoice.LOCAL_FILE;
@@ -104,6 +106,7 @@ public class FeaturesConfig
     private boolean cteFilterAndProjectionPushdownEnabled = true;
     private int cteHeuristicReplicationThreshold = 4;
     private int maxReorderedJoins = 9;
+    private int maxGreedyReorderedJoins;
     private int maxPrefixesCount = 100;
     private boolean useHistoryBasedPlanStatistics;
     private boolean trackHistoryBasedPlanStatistics;
@@ -132,6 +135,7 @@ public class FeaturesConfig
     private boolean optimizeMixedDistinctAggregations;
     private boolean forceSingleNodeOutput = true;
     private boolean pagesIndexEagerCompactionEnabled;
+    private boolean pagesIndexNormalizedKeySortEnabled = true;
     private boolean distributedSort = true;
     private boolean optimizeJoinsWithEmptySources;
     private boolean logFormattedQueryEnabled;
@@ -140,11 +144,14 @@ public class FeaturesConfig
     private boolean dictionaryAggregation;
     private boolean spillEnabled;
     private boolean joinSpillingEnabled = true;
+    private DataSize joinUnspillMemoryLimit = new DataSize(1, GIGABYTE);
     private List<Path> spillerSpillPaths = ImmutableList.of();
     private int spillerThreads = 4;
     private double spillMaxUsedSpaceThreshold = 0.9;
     private boolean iterativeOptimizerEnabled = true;
     private boolean runtimeOptimizerEnabled;
+    private boolean runtimePartitionCountAdaptationEnabled;
+    private DataSize runtimePartitionTargetSize = new DataSize(64, MEGABYTE);
     private boolean enableStatsCalculator = true;
     private boolean enableStatsCollectionForTemporaryTable;
     private boolean ignoreStatsCalculatorFailures = true;
@@ -187,6 +194,16 @@ public class FeaturesConfig
     private int dynamicFilteringRangeRowLimitPerDriver;
 
     private boolean fragmentResultCachingEnabled;
+    private boolean sharedScanEnabled;
+    private boolean queryResultCacheEnabled;
+    private boolean splitWorkStealingEnabled;
+    private int splitWorkStealingMinQueuedSplits = 8;
+    private Duration splitWorkStealingReclaimTimeout = new Duration(10, SECONDS);
+    private boolean speculativeExecutionEnabled;
+    private double speculativeExecutionStragglerSlowdownRatio = 2.0;
+    private double speculativeExecutionMaxTaskFraction = 0.1;
+    private boolean earlySplitEnumerationEnabled;
+    private int earlySplitEnumerationMaxBufferedSplits = 10_000;
 
     private DataSize filterAndProjectMinOutputPageSize = new DataSize(500, KILOBYTE);
     private int filterAndProjectMinOutputPageRowCount = 256;
@@ -197,6 +214,8 @@ public class FeaturesConfig
     private boolean jsonSerdeCodeGenerationEnabled;
     private int maxConcurrentMaterializations = 3;
     private boolean optimizedRepartitioningEnabled;
+    private boolean optimizedRepartitioningPreserveDictionaries;
+    private boolean joinLateMaterializationEnabled;
 
     private boolean pushdownSubfieldsEnabled;
     private boolean pushdownSubfieldsFromLambdaEnabled;
@@ -257,6 +276,7 @@ public class FeaturesConfig
     private boolean preferSortMergeJoin;
     private boolean isSortedExchangeEnabled;
     private boolean segmentedAggregationEnabled;
+    private boolean sortedInputTopNEnabled;
 
     private int maxStageCountForEagerScheduling = 25;
     private boolean quickDistinctLimitEnabled;
@@ -425,6 +445,7 @@ public class FeaturesConfig
         ORDER_BY_CREATE_TIME, // When spilling is triggered, revoke tasks in order of oldest to newest
         ORDER_BY_REVOCABLE_BYTES, // When spilling is triggered, revoke tasks by most allocated revocable memory to least allocated revocable memory
         PER_TASK_MEMORY_THRESHOLD, // Spill any task after it reaches the per task memory threshold defined by experimental.spiller.max-revocable-task-memory
+        ORDER_BY_SPILL_EFFICIENCY, // When spilling is triggered, revoke operators of any task that free the most memory per estimated spill cost first, sparing higher priority queries
     }
 
     public enum SingleStreamSpillerChoice
@@ -755,6 +776,20 @@ public class FeaturesConfig
         return fastInequalityJoins;
     }
 
+    @Min(1)
+    public int getHashBuildConcurrency()
+    {
+        return hashBuildConcurrency;
+    }
+
+    @Config("hash-build-concurrency")
+    @ConfigDescription("Maximum number of threads building the hash table of a single join build partition")
+    public FeaturesConfig setHashBuildConcurrency(int hashBuildConcurrency)
+    {
+        this.hashBuildConcurrency = hashBuildConcurrency;
+        return this;
+    }
+
     public JoinReorderingStrategy getJoinReorderingStrategy()
     {
         return joinReorderingStrategy;
@@ -859,6 +894,20 @@ public class FeaturesConfig
         return this;
     }
 
+    @Min(0)
+    public int getMaxGreedyReorderedJoins()
+    {
+        return maxGreedyReorderedJoins;
+    }
+
+    @Config("optimizer.max-greedy-reordered-joins")
+    @ConfigDescription("The maximum number of tables to reorder in cost-based join reordering, joins past optimizer.max-reordered-joins are ordered greedily")
+    public FeaturesConfig setMaxGreedyReorderedJoins(int maxGreedyReorderedJoins)
+    {
+        this.maxGreedyReorderedJoins = maxGreedyReorderedJoins;
+        return this;
+    }
+
     public boolean isUseHistoryBasedPlanStatistics()
     {
         return useHistoryBasedPlanStatistics;
@@ -1339,6 +1388,19 @@ public class FeaturesConfig
         return this;
     }
 
+    public DataSize getJoinUnspillMemoryLimit()
+    {
+        return joinUnspillMemoryLimit;
+    }
+
+    @Config("experimental.join-unspill-memory-limit")
+    @ConfigDescription("Maximum size of a spilled join build partition unspilled at once. Larger partitions are split by a different hash, and loaded in chunks if a skewed key keeps them too large")
+    public FeaturesConfig setJoinUnspillMemoryLimit(DataSize joinUnspillMemoryLimit)
+    {
+        this.joinUnspillMemoryLimit = joinUnspillMemoryLimit;
+        return this;
+    }
+
     public boolean isIterativeOptimizerEnabled()
     {
         return iterativeOptimizerEnabled;
@@ -1363,6 +1425,32 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isRuntimePartitionCountAdaptationEnabled()
+    {
+        return runtimePartitionCountAdaptationEnabled;
+    }
+
+    @Config("experimental.runtime-partition-count-adaptation-enabled")
+    @ConfigDescription("Experimental: Size the hash partitioned stages of a plan section from the data written by its finished children sections")
+    public FeaturesConfig setRuntimePartitionCountAdaptationEnabled(boolean runtimePartitionCountAdaptationEnabled)
+    {
+        this.runtimePartitionCountAdaptationEnabled = runtimePartitionCountAdaptationEnabled;
+        return this;
+    }
+
+    public DataSize getRuntimePartitionTargetSize()
+    {
+        return runtimePartitionTargetSize;
+    }
+
+    @Config("experimental.runtime-partition-target-size")
+    @ConfigDescription("Experimental: Data written by the children sections per hash partition when the partition count is adapted")
+    public FeaturesConfig setRuntimePartitionTargetSize(DataSize runtimePartitionTargetSize)
+    {
+        this.runtimePartitionTargetSize = runtimePartitionTargetSize;
+        return this;
+    }
+
     public Duration getIterativeOptimizerTimeout()
     {
         return iterativeOptimizerTimeout;
@@ -1631,6 +1719,142 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isSharedScanEnabled()
+    {
+        return sharedScanEnabled;
+    }
+
+    @Config("shared-scan.enabled")
+    @ConfigDescription("Let the scans, of this or of concurrent queries, that read the same splits and columns share a single reader on the worker")
+    public FeaturesConfig setSharedScanEnabled(boolean sharedScanEnabled)
+    {
+        this.sharedScanEnabled = sharedScanEnabled;
+        return this;
+    }
+
+    public boolean isQueryResultCacheEnabled()
+    {
+        return queryResultCacheEnabled;
+    }
+
+    @Config("query-result-cache.enabled")
+    @ConfigDescription("Cache the results of queries on the coordinator, and serve repeated queries over unchanged tables from the cache")
+    public FeaturesConfig setQueryResultCacheEnabled(boolean queryResultCacheEnabled)
+    {
+        this.queryResultCacheEnabled = queryResultCacheEnabled;
+        return this;
+    }
+
+    public boolean isSplitWorkStealingEnabled()
+    {
+        return splitWorkStealingEnabled;
+    }
+
+    @Config("split-work-stealing.enabled")
+    @ConfigDescription("Reclaim queued splits from busy tasks of a source stage and reassign them to idle tasks once all splits are scheduled")
+    public FeaturesConfig setSplitWorkStealingEnabled(boolean splitWorkStealingEnabled)
+    {
+        this.splitWorkStealingEnabled = splitWorkStealingEnabled;
+        return this;
+    }
+
+    @Min(1)
+    public int getSplitWorkStealingMinQueuedSplits()
+    {
+        return splitWorkStealingMinQueuedSplits;
+    }
+
+    @Config("split-work-stealing.min-queued-splits")
+    @ConfigDescription("Minimum number of queued splits a task must have for splits to be reclaimed from it")
+    public FeaturesConfig setSplitWorkStealingMinQueuedSplits(int splitWorkStealingMinQueuedSplits)
+    {
+        this.splitWorkStealingMinQueuedSplits = splitWorkStealingMinQueuedSplits;
+        return this;
+    }
+
+    @NotNull
+    public Duration getSplitWorkStealingReclaimTimeout()
+    {
+        return splitWorkStealingReclaimTimeout;
+    }
+
+    @Config("split-work-stealing.reclaim-timeout")
+    @ConfigDescription("Time to wait for a task to report the splits reclaimed from it before the splits are left with it")
+    public FeaturesConfig setSplitWorkStealingReclaimTimeout(Duration splitWorkStealingReclaimTimeout)
+    {
+        this.splitWorkStealingReclaimTimeout = splitWorkStealingReclaimTimeout;
+        return this;
+    }
+
+    public boolean isSpeculativeExecutionEnabled()
+    {
+        return speculativeExecutionEnabled;
+    }
+
+    @Config("speculative-execution.enabled")
+    @ConfigDescription("Launch a second attempt of straggling leaf tasks on another worker and keep the output of whichever attempt each consumer reads first")
+    public FeaturesConfig setSpeculativeExecutionEnabled(boolean speculativeExecutionEnabled)
+    {
+        this.speculativeExecutionEnabled = speculativeExecutionEnabled;
+        return this;
+    }
+
+    @DecimalMin("1.0")
+    public double getSpeculativeExecutionStragglerSlowdownRatio()
+    {
+        return speculativeExecutionStragglerSlowdownRatio;
+    }
+
+    @Config("speculative-execution.straggler-slowdown-ratio")
+    @ConfigDescription("A task is a straggler once it has run this many times longer than the median finished task of its stage")
+    public FeaturesConfig setSpeculativeExecutionStragglerSlowdownRatio(double speculativeExecutionStragglerSlowdownRatio)
+    {
+        this.speculativeExecutionStragglerSlowdownRatio = speculativeExecutionStragglerSlowdownRatio;
+        return this;
+    }
+
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    public double getSpeculativeExecutionMaxTaskFraction()
+    {
+        return speculativeExecutionMaxTaskFraction;
+    }
+
+    @Config("speculative-execution.max-task-fraction")
+    @ConfigDescription("Maximum fraction of the tasks of a stage that may be speculatively re-executed; at least one task is always allowed")
+    public FeaturesConfig setSpeculativeExecutionMaxTaskFraction(double speculativeExecutionMaxTaskFraction)
+    {
+        this.speculativeExecutionMaxTaskFraction = speculativeExecutionMaxTaskFraction;
+        return this;
+    }
+
+    public boolean isEarlySplitEnumerationEnabled()
+    {
+        return earlySplitEnumerationEnabled;
+    }
+
+    @Config("early-split-enumeration.enabled")
+    @ConfigDescription("Start enumerating splits of source stages delayed by phased execution before their phase starts")
+    public FeaturesConfig setEarlySplitEnumerationEnabled(boolean earlySplitEnumerationEnabled)
+    {
+        this.earlySplitEnumerationEnabled = earlySplitEnumerationEnabled;
+        return this;
+    }
+
+    @Min(1)
+    public int getEarlySplitEnumerationMaxBufferedSplits()
+    {
+        return earlySplitEnumerationMaxBufferedSplits;
+    }
+
+    @Config("early-split-enumeration.max-buffered-splits")
+    @ConfigDescription("Maximum number of splits enumerated ahead of scheduling that are buffered per source stage")
+    public FeaturesConfig setEarlySplitEnumerationMaxBufferedSplits(int earlySplitEnumerationMaxBufferedSplits)
+    {
+        this.earlySplitEnumerationMaxBufferedSplits = earlySplitEnumerationMaxBufferedSplits;
+        return this;
+    }
+
     public boolean isOptimizeMixedDistinctAggregations()
     {
         return optimizeMixedDistinctAggregations;
@@ -1802,6 +2026,19 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isPagesIndexNormalizedKeySortEnabled()
+    {
+        return pagesIndexNormalizedKeySortEnabled;
+    }
+
+    @Config("pages-index.normalized-key-sort-enabled")
+    @ConfigDescription("Sort pages indexes on order-preserving binary encodings of the sort keys when the key types allow it")
+    public FeaturesConfig setPagesIndexNormalizedKeySortEnabled(boolean pagesIndexNormalizedKeySortEnabled)
+    {
+        this.pagesIndexNormalizedKeySortEnabled = pagesIndexNormalizedKeySortEnabled;
+        return this;
+    }
+
     @MaxDataSize("1MB")
     public DataSize getFilterAndProjectMinOutputPageSize()
     {
@@ -1980,6 +2217,32 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isOptimizedRepartitioningPreserveDictionaries()
+    {
+        return optimizedRepartitioningPreserveDictionaries;
+    }
+
+    @Config("experimental.optimized-repartitioning-preserve-dictionaries")
+    @ConfigDescription("Experimental: Send dictionary and run length encoded columns without flattening them in optimized repartitioning")
+    public FeaturesConfig setOptimizedRepartitioningPreserveDictionaries(boolean optimizedRepartitioningPreserveDictionaries)
+    {
+        this.optimizedRepartitioningPreserveDictionaries = optimizedRepartitioningPreserveDictionaries;
+        return this;
+    }
+
+    public boolean isJoinLateMaterializationEnabled()
+    {
+        return joinLateMaterializationEnabled;
+    }
+
+    @Config("experimental.join-late-materialization-enabled")
+    @ConfigDescription("Experimental: Copy the build side columns of a join output only when they are accessed downstream")
+    public FeaturesConfig setJoinLateMaterializationEnabled(boolean joinLateMaterializationEnabled)
+    {
+        this.joinLateMaterializationEnabled = joinLateMaterializationEnabled;
+        return this;
+    }
+
     public boolean isListBuiltInFunctionsOnly()
     {
         return listBuiltInFunctionsOnly;
@@ -2592,6 +2855,19 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isSortedInputTopNEnabled()
+    {
+        return sortedInputTopNEnabled;
+    }
+
+    @Config("optimizer.sorted-input-top-n-enabled")
+    @ConfigDescription("Replace a TopN over input or splits already sorted by its ordering with a limit, which lets the scan stop early")
+    public FeaturesConfig setSortedInputTopNEnabled(boolean sortedInputTopNEnabled)
+    {
+        this.sortedInputTopNEnabled = sortedInputTopNEnabled;
+        return this;
+    }
+
     public boolean isQuickDistinctLimitEnabled()
     {
         return quickDistinctLimitEnabled;
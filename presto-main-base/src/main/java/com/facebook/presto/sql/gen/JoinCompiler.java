@@ -45,6 +45,7 @@ import com.facebook.presto.operator.JoinHashSupplier;
 import com.facebook.presto.operator.LookupSourceSupplier;
 import com.facebook.presto.operator.PagesHash;
 import com.facebook.presto.operator.PagesHashStrategy;
+import com.facebook.presto.operator.SyntheticAddress;
 import com.facebook.presto.spi.function.JavaScalarFunctionImplementation;
 import com.facebook.presto.sql.gen.JoinFilterFunctionCompiler.JoinFilterFunctionFactory;
 import com.google.common.cache.CacheBuilder;
@@ -63,6 +64,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.concurrent.Executor;
 import java.util.stream.IntStream;
 
 import static com.facebook.presto.bytecode.Access.FINAL;
@@ -78,6 +80,8 @@ import static com.facebook.presto.bytecode.expression.BytecodeExpressions.consta
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.constantNull;
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.constantTrue;
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.getStatic;
+import static com.facebook.presto.bytecode.expression.BytecodeExpressions.invokeStatic;
+import static com.facebook.presto.bytecode.expression.BytecodeExpressions.lessThan;
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.newInstance;
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.notEqual;
 import static com.facebook.presto.sql.analyzer.TypeSignatureProvider.fromTypes;
@@ -227,6 +231,7 @@ public class JoinCompiler
         generateRowEqualsRowMethod(classDefinition, callSiteBinder, joinChannelTypes);
         generatePositionEqualsRowMethod(classDefinition, callSiteBinder, joinChannelTypes, joinChannelFields, true);
         generatePositionEqualsRowMethod(classDefinition, callSiteBinder, joinChannelTypes, joinChannelFields, false);
+        generateBatchedPositionEqualsRowMethod(classDefinition);
         generatePositionNotDistinctFromRowWithPageMethod(classDefinition, callSiteBinder, joinChannelTypes, joinChannelFields);
         generatePositionEqualsRowWithPageMethod(classDefinition, callSiteBinder, joinChannelTypes, joinChannelFields);
         generatePositionEqualsPositionMethod(classDefinition, callSiteBinder, joinChannelTypes, joinChannelFields, true);
@@ -598,6 +603,47 @@ public class JoinCompiler
                 .retInt();
     }
 
+    private static void generateBatchedPositionEqualsRowMethod(ClassDefinition classDefinition)
+    {
+        Parameter leftAddresses = arg("leftAddresses", long[].class);
+        Parameter rightPositions = arg("rightPositions", int[].class);
+        Parameter count = arg("count", int.class);
+        Parameter rightPage = arg("rightPage", Page.class);
+        Parameter result = arg("result", boolean[].class);
+        MethodDefinition batchedPositionEqualsRowMethod = classDefinition.declareMethod(
+                a(PUBLIC),
+                "positionEqualsRowIgnoreNulls",
+                type(void.class),
+                leftAddresses,
+                rightPositions,
+                count,
+                rightPage,
+                result);
+
+        Scope scope = batchedPositionEqualsRowMethod.getScope();
+        Variable thisVariable = batchedPositionEqualsRowMethod.getThis();
+        Variable index = scope.declareVariable(int.class, "index");
+        Variable leftAddress = scope.declareVariable(long.class, "leftAddress");
+
+        // generated per class so the call to the scalar comparison is monomorphic and gets inlined into the loop
+        batchedPositionEqualsRowMethod
+                .getBody()
+                .append(new ForLoop()
+                        .initialize(index.set(constantInt(0)))
+                        .condition(lessThan(index, count))
+                        .update(index.increment())
+                        .body(new BytecodeBlock()
+                                .append(leftAddress.set(leftAddresses.getElement(index)))
+                                .append(result.setElement(index, thisVariable.invoke(
+                                        "positionEqualsRowIgnoreNulls",
+                                        boolean.class,
+                                        invokeStatic(SyntheticAddress.class, "decodeSliceIndex", int.class, leftAddress),
+                                        invokeStatic(SyntheticAddress.class, "decodePosition", int.class, leftAddress),
+                                        rightPositions.getElement(index),
+                                        rightPage)))))
+                .ret();
+    }
+
     private static void generatePositionEqualsRowWithPageMethod(
             ClassDefinition classDefinition,
             CallSiteBinder callSiteBinder,
@@ -891,7 +937,7 @@ public class JoinCompiler
         {
             this.pagesHashStrategyFactory = pagesHashStrategyFactory;
             try {
-                constructor = joinHashSupplierClass.getConstructor(Session.class, PagesHashStrategy.class, AdaptiveLongBigArray.class, int.class, List.class, Optional.class, Optional.class, List.class);
+                constructor = joinHashSupplierClass.getConstructor(Session.class, PagesHashStrategy.class, AdaptiveLongBigArray.class, int.class, List.class, Optional.class, Optional.class, List.class, Optional.class);
             }
             catch (NoSuchMethodException e) {
                 throw new RuntimeException(e);
@@ -906,11 +952,12 @@ public class JoinCompiler
                 OptionalInt hashChannel,
                 Optional<JoinFilterFunctionFactory> filterFunctionFactory,
                 Optional<Integer> sortChannel,
-                List<JoinFilterFunctionFactory> searchFunctionFactories)
+                List<JoinFilterFunctionFactory> searchFunctionFactories,
+                Optional<Executor> hashBuildExecutor)
         {
             PagesHashStrategy pagesHashStrategy = pagesHashStrategyFactory.createPagesHashStrategy(channels, hashChannel);
             try {
-                return constructor.newInstance(session, pagesHashStrategy, addresses, positionCount, channels, filterFunctionFactory, sortChannel, searchFunctionFactories);
+                return constructor.newInstance(session, pagesHashStrategy, addresses, positionCount, channels, filterFunctionFactory, sortChannel, searchFunctionFactories, hashBuildExecutor);
             }
             catch (ReflectiveOperationException e) {
                 throw new RuntimeException(e);
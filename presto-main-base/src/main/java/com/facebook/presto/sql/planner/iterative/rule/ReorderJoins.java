@@ -67,6 +67,7 @@ import java.util.stream.StreamSupport;
 import static com.facebook.presto.SystemSessionProperties.confidenceBasedBroadcastEnabled;
 import static com.facebook.presto.SystemSessionProperties.getJoinDistributionType;
 import static com.facebook.presto.SystemSessionProperties.getJoinReorderingStrategy;
+import static com.facebook.presto.SystemSessionProperties.getMaxGreedyReorderedJoins;
 import static com.facebook.presto.SystemSessionProperties.getMaxReorderedJoins;
 import static com.facebook.presto.SystemSessionProperties.shouldHandleComplexEquiJoins;
 import static com.facebook.presto.expressions.LogicalRowExpressions.TRUE_CONSTANT;
@@ -155,7 +156,9 @@ public class ReorderJoins
     @Override
     public Result apply(JoinNode joinNode, Captures captures, Context context)
     {
-        MultiJoinNode multiJoinNode = toMultiJoinNode(joinNode, context.getLookup(), getMaxReorderedJoins(context.getSession()), shouldHandleComplexEquiJoins(context.getSession()),
+        // past max_reordered_joins the enumerator switches to greedy ordering, see JoinEnumerator#chooseJoinOrderGreedily
+        int joinLimit = Math.max(getMaxReorderedJoins(context.getSession()), getMaxGreedyReorderedJoins(context.getSession()));
+        MultiJoinNode multiJoinNode = toMultiJoinNode(joinNode, context.getLookup(), joinLimit, shouldHandleComplexEquiJoins(context.getSession()),
                 functionResolution, determinismEvaluator);
         JoinEnumerator joinEnumerator = new JoinEnumerator(
                 costComparator,
@@ -200,8 +203,12 @@ public class ReorderJoins
         private final LogicalRowExpressions logicalRowExpressions;
         private final Lookup lookup;
         private final Context context;
+        private final int maxExhaustiveSources;
 
         private final Map<Set<PlanNode>, JoinEnumerationResult> memo = new HashMap<>();
+        private final Map<Set<PlanNode>, JoinEnumerationResult> greedyJoins = new HashMap<>();
+        // joins built by the greedy phase, they already apply all the predicates over their sources
+        private final Set<PlanNode> greedilyJoinedSources = new HashSet<>();
         private final FunctionResolution functionResolution;
 
         @VisibleForTesting
@@ -214,6 +221,8 @@ public class ReorderJoins
             this.idAllocator = requireNonNull(context.getIdAllocator(), "idAllocator is null");
             this.allFilter = requireNonNull(filter, "filter is null");
             this.lookup = requireNonNull(context.getLookup(), "lookup is null");
+            // the number of sources is the number of joins + 1
+            this.maxExhaustiveSources = getMaxReorderedJoins(session) + 1;
 
             this.metadata = requireNonNull(metadata, "metadata is null");
             this.allFilterInference = createEqualityInference(metadata, filter);
@@ -229,6 +238,11 @@ public class ReorderJoins
             JoinEnumerationResult bestResult = memo.get(multiJoinKey);
             if (bestResult == null) {
                 checkState(sources.size() > 1, "sources size is less than or equal to one");
+                if (sources.size() > maxExhaustiveSources) {
+                    bestResult = chooseJoinOrderGreedily(sources, outputVariables);
+                    memo.put(multiJoinKey, bestResult);
+                    return bestResult;
+                }
                 ImmutableList.Builder<JoinEnumerationResult> resultBuilder = ImmutableList.builder();
                 Set<Set<Integer>> partitions = generatePartitions(sources.size());
                 for (Set<Integer> partition : partitions) {
@@ -256,6 +270,68 @@ public class ReorderJoins
             return bestResult;
         }
 
+        /**
+         * Orders a join graph that is too large to be enumerated exhaustively, in the spirit of iterative dynamic
+         * programming. The pair of sources with the cheapest join is replaced by that join until at most
+         * max_reordered_joins + 1 sources are left, and the remaining sources are then enumerated exhaustively.
+         * Pair joins are memoized, so every step only costs the joins of the new source with the others, and
+         * planning takes a polynomial number of cost calculations.
+         */
+        private JoinEnumerationResult chooseJoinOrderGreedily(LinkedHashSet<PlanNode> sources, List<VariableReferenceExpression> outputVariables)
+        {
+            Set<VariableReferenceExpression> requiredVariables = ImmutableSet.<VariableReferenceExpression>builder()
+                    .addAll(outputVariables)
+                    .addAll(extractUnique(allFilter))
+                    .build();
+
+            List<PlanNode> remainingSources = new ArrayList<>(sources);
+            while (remainingSources.size() > maxExhaustiveSources) {
+                context.checkTimeoutNotExhausted();
+
+                JoinEnumerationResult bestResult = null;
+                int bestLeft = -1;
+                int bestRight = -1;
+                for (int left = 0; left < remainingSources.size(); left++) {
+                    for (int right = left + 1; right < remainingSources.size(); right++) {
+                        JoinEnumerationResult result = createGreedyJoin(remainingSources.get(left), remainingSources.get(right), requiredVariables);
+                        if (result.equals(UNKNOWN_COST_RESULT)) {
+                            return UNKNOWN_COST_RESULT;
+                        }
+                        if (!result.equals(INFINITE_COST_RESULT) && (bestResult == null || resultComparator.compare(result, bestResult) < 0)) {
+                            bestResult = result;
+                            bestLeft = left;
+                            bestRight = right;
+                        }
+                    }
+                }
+                if (bestResult == null) {
+                    // no pair of sources is connected by an equi-join clause
+                    return INFINITE_COST_RESULT;
+                }
+
+                PlanNode joined = bestResult.planNode.orElseThrow(() -> new VerifyException("Plan node is not present"));
+                greedilyJoinedSources.add(joined);
+                remainingSources.set(bestLeft, joined);
+                remainingSources.remove(bestRight);
+            }
+            return chooseJoinOrder(new LinkedHashSet<>(remainingSources), outputVariables);
+        }
+
+        private JoinEnumerationResult createGreedyJoin(PlanNode left, PlanNode right, Set<VariableReferenceExpression> requiredVariables)
+        {
+            Set<PlanNode> key = ImmutableSet.of(left, right);
+            JoinEnumerationResult result = greedyJoins.get(key);
+            if (result == null) {
+                // keep everything that later joins or the final output may refer to
+                List<VariableReferenceExpression> outputVariables = Stream.concat(left.getOutputVariables().stream(), right.getOutputVariables().stream())
+                        .filter(requiredVariables::contains)
+                        .collect(toImmutableList());
+                result = createJoin(new LinkedHashSet<>(ImmutableList.of(left)), new LinkedHashSet<>(ImmutableList.of(right)), outputVariables);
+                greedyJoins.put(key, result);
+            }
+            return result;
+        }
+
         /**
          * This method generates all the ways of dividing totalNodes into two sets
          * each containing at least one node. It will generate one set for each
@@ -413,6 +489,9 @@ public class ReorderJoins
         {
             if (nodes.size() == 1) {
                 PlanNode planNode = getOnlyElement(nodes);
+                if (greedilyJoinedSources.contains(planNode)) {
+                    return createJoinEnumerationResult(planNode);
+                }
                 ImmutableList.Builder<RowExpression> predicates = ImmutableList.builder();
                 predicates.addAll(allFilterInference.generateEqualitiesPartitionedBy(outputVariables::contains).getScopeEqualities());
                 EqualityInference.Builder builder = new EqualityInference.Builder(metadata);
@@ -91,6 +91,7 @@ import static com.facebook.presto.SystemSessionProperties.isNativeExecutionScale
 import static com.facebook.presto.SystemSessionProperties.isNativeJoinBuildPartitionEnforced;
 import static com.facebook.presto.SystemSessionProperties.isQuickDistinctLimitEnabled;
 import static com.facebook.presto.SystemSessionProperties.isSegmentedAggregationEnabled;
+import static com.facebook.presto.SystemSessionProperties.isSortedInputTopNEnabled;
 import static com.facebook.presto.SystemSessionProperties.isSpillEnabled;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
 import static com.facebook.presto.common.type.VarbinaryType.VARBINARY;
@@ -310,18 +311,39 @@ public class AddLocalExchanges
         public PlanWithProperties visitTopN(TopNNode node, StreamPreferredProperties parentPreferences)
         {
             if (node.getStep().equals(TopNNode.Step.PARTIAL)) {
-                return planAndEnforceChildren(
-                        node,
+                PlanWithProperties child = planAndEnforce(
+                        node.getSource(),
                         parentPreferences.withoutPreference().withDefaultParallelism(session),
                         parentPreferences.withDefaultParallelism(session));
+                // the sorting local properties of a table scan, e.g. of a Hive bucketed sorted table, hold within a split, and a
+                // driver of a source pipeline reads a single split, so a limit stops the scan of each split once it has its top rows.
+                // native workers read many splits with one driver, so their streams are not sorted
+                if (isSortedInputTopNEnabled(session) && !nativeExecution && isSortedBy(child.getProperties(), node.getOrderingScheme())) {
+                    return deriveProperties(
+                            new LimitNode(node.getSourceLocation(), node.getId(), child.getNode(), node.getCount(), LimitNode.Step.PARTIAL),
+                            child.getProperties());
+                }
+                return rebaseAndDeriveProperties(node, ImmutableList.of(child));
             }
 
             // final topN requires that all data be in one stream
             // also, a final changes the input organization completely, so we do not pass through parent preferences
-            return planAndEnforceChildren(
-                    node,
-                    singleStream(),
-                    defaultParallelism(session));
+            PlanWithProperties child = planAndEnforce(node.getSource(), singleStream(), defaultParallelism(session));
+            // the first rows of an ordered stream are its top rows, and a limit lets the sources stop as soon as they are produced
+            if (isSortedInputTopNEnabled(session) && child.getProperties().isOrdered() && isSortedBy(child.getProperties(), node.getOrderingScheme())) {
+                return deriveProperties(
+                        new LimitNode(node.getSourceLocation(), node.getId(), child.getNode(), node.getCount(), LimitNode.Step.FINAL),
+                        child.getProperties());
+            }
+            return rebaseAndDeriveProperties(node, ImmutableList.of(child));
+        }
+
+        private boolean isSortedBy(StreamProperties properties, OrderingScheme orderingScheme)
+        {
+            List<LocalProperty<VariableReferenceExpression>> desiredProperties = orderingScheme.getOrderByVariables().stream()
+                    .map(variable -> new SortingProperty<>(variable, orderingScheme.getOrdering(variable)))
+                    .collect(toImmutableList());
+            return LocalProperties.match(properties.getLocalProperties(), desiredProperties).stream().noneMatch(Optional::isPresent);
         }
 
         @Override
@@ -15,7 +15,12 @@ package com.facebook.presto.sql.planner.optimizations;
 
 import com.facebook.presto.Session;
 import com.facebook.presto.common.type.ArrayType;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.cost.CachingStatsProvider;
+import com.facebook.presto.cost.PlanNodeStatsEstimate;
 import com.facebook.presto.cost.StatsCalculator;
+import com.facebook.presto.cost.StatsProvider;
+import com.facebook.presto.cost.VariableStatsEstimate;
 import com.facebook.presto.metadata.FunctionAndTypeManager;
 import com.facebook.presto.metadata.Metadata;
 import com.facebook.presto.spi.VariableAllocator;
@@ -27,29 +32,42 @@ import com.facebook.presto.spi.plan.PlanNodeIdAllocator;
 import com.facebook.presto.spi.plan.UnnestNode;
 import com.facebook.presto.spi.relation.RowExpression;
 import com.facebook.presto.spi.relation.VariableReferenceExpression;
+import com.facebook.presto.spi.statistics.ConnectorHistogram;
+import com.facebook.presto.spi.statistics.Estimate;
 import com.facebook.presto.sql.planner.PlannerUtils;
 import com.facebook.presto.sql.planner.TypeProvider;
 import com.facebook.presto.sql.planner.plan.SimplePlanRewriter;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
 import static com.facebook.presto.SystemSessionProperties.getJoinShardCount;
+import static com.facebook.presto.SystemSessionProperties.getShardedJoinHotKeyFractionThreshold;
 import static com.facebook.presto.SystemSessionProperties.getShardedJoinStrategy;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.common.type.DateType.DATE;
+import static com.facebook.presto.common.type.IntegerType.INTEGER;
+import static com.facebook.presto.common.type.SmallintType.SMALLINT;
+import static com.facebook.presto.common.type.TinyintType.TINYINT;
 import static com.facebook.presto.spi.plan.JoinType.FULL;
 import static com.facebook.presto.spi.plan.JoinType.RIGHT;
+import static com.facebook.presto.spi.relation.SpecialFormExpression.Form.IF;
+import static com.facebook.presto.spi.relation.SpecialFormExpression.Form.IN;
 import static com.facebook.presto.sql.analyzer.FeaturesConfig.ShardedJoinStrategy.ALWAYS;
 import static com.facebook.presto.sql.analyzer.FeaturesConfig.ShardedJoinStrategy.COST_BASED;
 import static com.facebook.presto.sql.analyzer.FeaturesConfig.ShardedJoinStrategy.DISABLED;
 import static com.facebook.presto.sql.planner.PlannerUtils.isBroadcastJoin;
 import static com.facebook.presto.sql.relational.Expressions.call;
 import static com.facebook.presto.sql.relational.Expressions.constant;
+import static com.facebook.presto.sql.relational.Expressions.specialForm;
 import static com.google.common.base.Preconditions.checkState;
 import static java.util.Objects.requireNonNull;
 
@@ -73,11 +91,27 @@ import static java.util.Objects.requireNonNull;
  *             Project(seq:=sequence(0, NumShards - 1))
  *                - T
  * </pre>
+ * With the COST_BASED strategy only the hot values of the probe key, the ones which the histogram of the probe
+ * side shows to hold at least {@code sharded_join_hot_key_fraction_threshold} of its rows, are sharded:
+ * <pre>
+ * - Join
+ *      S.key = T.key and leftShard = rightShard
+ *      - Project(leftShard:=IF(S.key IN (hot values), random(NumShards), 0))
+ *          - S
+ *      - Unnest(rightShard, seq)
+ *          Project(seq:=sequence(0, IF(T.key IN (hot values), NumShards - 1, 0)))
+ *              - T
+ * </pre>
+ * so that probe rows of the hot values are spread over all the shards, build rows of the hot values are
+ * replicated to all of them, and all the other rows keep their single shard.
  */
 
 public class ShardJoins
         implements PlanOptimizer
 {
+    private static final int HISTOGRAM_QUANTILES = 100;
+    private static final int MAX_HOT_VALUES = 32;
+
     private final Metadata metadata;
     private final FunctionAndTypeManager functionAndTypeManager;
     private final StatsCalculator statsCalculator;
@@ -106,7 +140,8 @@ public class ShardJoins
     public PlanOptimizerResult optimize(PlanNode plan, Session session, TypeProvider types, VariableAllocator variableAllocator, PlanNodeIdAllocator idAllocator, WarningCollector warningCollector)
     {
         if (isEnabled(session)) {
-            Rewriter rewriter = new Rewriter(session, metadata, functionAndTypeManager, idAllocator, variableAllocator);
+            StatsProvider statsProvider = new CachingStatsProvider(statsCalculator, session, types);
+            Rewriter rewriter = new Rewriter(session, metadata, functionAndTypeManager, idAllocator, variableAllocator, statsProvider);
             PlanNode rewrittenPlan = SimplePlanRewriter.rewriteWith(rewriter, plan, new HashSet<>());
             return PlanOptimizerResult.optimizerResult(rewrittenPlan, rewriter.isPlanChanged());
         }
@@ -122,16 +157,18 @@ public class ShardJoins
         private final FunctionAndTypeManager functionAndTypeManager;
         private final PlanNodeIdAllocator planNodeIdAllocator;
         private final VariableAllocator planVariableAllocator;
+        private final StatsProvider statsProvider;
         private boolean planChanged;
 
         private Rewriter(Session session, Metadata metadata,
-                FunctionAndTypeManager functionAndTypeManager, PlanNodeIdAllocator planNodeIdAllocator, VariableAllocator planVariableAllocator)
+                FunctionAndTypeManager functionAndTypeManager, PlanNodeIdAllocator planNodeIdAllocator, VariableAllocator planVariableAllocator, StatsProvider statsProvider)
         {
             this.session = requireNonNull(session, "session is null");
             this.metadata = requireNonNull(metadata, "metadata is null");
             this.functionAndTypeManager = requireNonNull(functionAndTypeManager, "functionAndTypeManager is null");
             this.planNodeIdAllocator = requireNonNull(planNodeIdAllocator, "planNodeIdAllocator is null");
             this.planVariableAllocator = requireNonNull(planVariableAllocator, "planVariableAllocator is null");
+            this.statsProvider = requireNonNull(statsProvider, "statsProvider is null");
         }
 
         public boolean isPlanChanged()
@@ -142,68 +179,103 @@ public class ShardJoins
         @Override
         public PlanNode visitJoin(JoinNode joinNode, RewriteContext<Set<VariableReferenceExpression>> context)
         {
-            if (isApplicable(joinNode)) {
-                long numShards = getNumberOfShards();
-                RowExpression randomNumber = call(
-                        functionAndTypeManager,
-                        "random",
-                        BIGINT,
-                        constant(numShards, BIGINT));
-                VariableReferenceExpression leftShardVariable = planVariableAllocator.newVariable("shard", BIGINT);
-                VariableReferenceExpression rightShardVariable = planVariableAllocator.newVariable("shard", BIGINT);
-
-                PlanNode newLeftChild = PlannerUtils.addProjections(joinNode.getLeft(), planNodeIdAllocator, planVariableAllocator, ImmutableList.of(randomNumber), ImmutableList.of(leftShardVariable));
-
-                PlanNode newRightChild = shardInput(numShards, joinNode.getRight(), rightShardVariable);
-                EquiJoinClause shardEquality = new EquiJoinClause(leftShardVariable, rightShardVariable);
-                List<EquiJoinClause> joinCriteria = new ArrayList<>();
-                joinCriteria.addAll(joinNode.getCriteria());
-                joinCriteria.add(shardEquality);
-                PlanNode result = new JoinNode(
-                        joinNode.getSourceLocation(),
-                        joinNode.getId(),
-                        joinNode.getStatsEquivalentPlanNode(),
-                        joinNode.getType(),
-                        newLeftChild,
-                        newRightChild,
-                        joinCriteria,
-                        joinNode.getOutputVariables(),
-                        joinNode.getFilter(),
-                        joinNode.getLeftHashVariable(),
-                        joinNode.getRightHashVariable(),
-                        joinNode.getDistributionType(),
-                        joinNode.getDynamicFilters());
-
-                planChanged = true;
-                return context.defaultRewrite(result);
+            if (isShardable(joinNode)) {
+                Optional<HotKeys> hotKeys = Optional.empty();
+                if (getShardedJoinStrategy(session).equals(COST_BASED)) {
+                    hotKeys = findHotKeys(joinNode);
+                }
+                if (getShardedJoinStrategy(session).equals(ALWAYS) || hotKeys.isPresent()) {
+                    planChanged = true;
+                    return context.defaultRewrite(shardJoin(joinNode, hotKeys));
+                }
             }
 
             return context.defaultRewrite(joinNode);
         }
 
-        private boolean isApplicable(JoinNode joinNode)
+        private PlanNode shardJoin(JoinNode joinNode, Optional<HotKeys> hotKeys)
+        {
+            long numShards = getNumberOfShards();
+            RowExpression randomNumber = call(
+                    functionAndTypeManager,
+                    "random",
+                    BIGINT,
+                    constant(numShards, BIGINT));
+            if (hotKeys.isPresent()) {
+                randomNumber = specialForm(IF, BIGINT, hotKeys.get().isHot(hotKeys.get().getClause().getLeft()), randomNumber, constant(0L, BIGINT));
+            }
+            VariableReferenceExpression leftShardVariable = planVariableAllocator.newVariable("shard", BIGINT);
+            VariableReferenceExpression rightShardVariable = planVariableAllocator.newVariable("shard", BIGINT);
+
+            PlanNode newLeftChild = PlannerUtils.addProjections(joinNode.getLeft(), planNodeIdAllocator, planVariableAllocator, ImmutableList.of(randomNumber), ImmutableList.of(leftShardVariable));
+
+            PlanNode newRightChild = shardInput(numShards, joinNode.getRight(), rightShardVariable, hotKeys);
+            EquiJoinClause shardEquality = new EquiJoinClause(leftShardVariable, rightShardVariable);
+            List<EquiJoinClause> joinCriteria = new ArrayList<>();
+            joinCriteria.addAll(joinNode.getCriteria());
+            joinCriteria.add(shardEquality);
+            return new JoinNode(
+                    joinNode.getSourceLocation(),
+                    joinNode.getId(),
+                    joinNode.getStatsEquivalentPlanNode(),
+                    joinNode.getType(),
+                    newLeftChild,
+                    newRightChild,
+                    joinCriteria,
+                    joinNode.getOutputVariables(),
+                    joinNode.getFilter(),
+                    joinNode.getLeftHashVariable(),
+                    joinNode.getRightHashVariable(),
+                    joinNode.getDistributionType(),
+                    joinNode.getDynamicFilters());
+        }
+
+        private boolean isShardable(JoinNode joinNode)
         {
             return joinNode.getType() != FULL && joinNode.getType() != RIGHT && !isBroadcastJoin(joinNode) &&
-                    (getShardedJoinStrategy(session).equals(ALWAYS) ||
-                            getShardedJoinStrategy(session).equals(COST_BASED) && shouldShardJoin(joinNode));
+                    (getShardedJoinStrategy(session).equals(ALWAYS) || getShardedJoinStrategy(session).equals(COST_BASED));
         }
 
-        private boolean shouldShardJoin(JoinNode joinNode)
+        private Optional<HotKeys> findHotKeys(JoinNode joinNode)
         {
-            // TODO: implement based on HBO stats
-            return false;
+            PlanNodeStatsEstimate probeStats = statsProvider.getStats(joinNode.getLeft());
+            if (probeStats.isOutputRowCountUnknown()) {
+                return Optional.empty();
+            }
+            for (EquiJoinClause clause : joinNode.getCriteria()) {
+                Type type = clause.getLeft().getType();
+                if (!isShardableKeyType(type) || !type.equals(clause.getRight().getType())) {
+                    continue;
+                }
+                VariableStatsEstimate keyStats = probeStats.getVariableStatistics(clause.getLeft());
+                if (!keyStats.getHistogram().isPresent()) {
+                    continue;
+                }
+                // the histogram describes the non-null values only
+                double nonNullFraction = Double.isNaN(keyStats.getNullsFraction()) ? 1.0 : 1.0 - keyStats.getNullsFraction();
+                List<Long> hotValues = findHotValues(keyStats.getHistogram().get(), getShardedJoinHotKeyFractionThreshold(session) / nonNullFraction);
+                if (!hotValues.isEmpty()) {
+                    return Optional.of(new HotKeys(clause, hotValues));
+                }
+            }
+            return Optional.empty();
         }
 
-        private PlanNode shardInput(long numShards, PlanNode source, VariableReferenceExpression shardVariable)
+        private PlanNode shardInput(long numShards, PlanNode source, VariableReferenceExpression shardVariable, Optional<HotKeys> hotKeys)
         {
             checkState(numShards > 1);
 
+            RowExpression lastShard = constant((long) numShards - 1, BIGINT);
+            if (hotKeys.isPresent()) {
+                // rows of the other values are not replicated, they stay in shard 0
+                lastShard = specialForm(IF, BIGINT, hotKeys.get().isHot(hotKeys.get().getClause().getRight()), lastShard, constant(0L, BIGINT));
+            }
             RowExpression sequenceExpression = call(
                     functionAndTypeManager,
                     "sequence",
                     new ArrayType(BIGINT),
                     constant((long) 0, BIGINT),
-                    constant((long) numShards - 1, BIGINT));
+                    lastShard);
 
             VariableReferenceExpression sequenceVariable = planVariableAllocator.newVariable(sequenceExpression);
             PlanNode projectSequence = PlannerUtils.addProjections(source, planNodeIdAllocator, planVariableAllocator, ImmutableList.of(sequenceExpression), ImmutableList.of(sequenceVariable));
@@ -222,4 +294,59 @@ public class ShardJoins
             return getJoinShardCount(session);
         }
     }
+
+    private static boolean isShardableKeyType(Type type)
+    {
+        return type.equals(BIGINT) || type.equals(INTEGER) || type.equals(SMALLINT) || type.equals(TINYINT) || type.equals(DATE);
+    }
+
+    /**
+     * Finds the values holding at least the given fraction of the rows described by the histogram. The histogram is
+     * probed at evenly spaced quantiles, so every such value is found as long as the fraction is above 1 / {@value #HISTOGRAM_QUANTILES}.
+     */
+    @VisibleForTesting
+    static List<Long> findHotValues(ConnectorHistogram histogram, double fractionThreshold)
+    {
+        Set<Long> hotValues = new LinkedHashSet<>();
+        for (int quantile = 0; quantile < HISTOGRAM_QUANTILES && hotValues.size() < MAX_HOT_VALUES; quantile++) {
+            Estimate value = histogram.inverseCumulativeProbability((quantile + 0.5) / HISTOGRAM_QUANTILES);
+            if (value.isUnknown() || Double.isInfinite(value.getValue()) || value.getValue() != Math.rint(value.getValue())) {
+                continue;
+            }
+            Estimate inclusive = histogram.cumulativeProbability(value.getValue(), true);
+            Estimate exclusive = histogram.cumulativeProbability(value.getValue(), false);
+            if (inclusive.isUnknown() || exclusive.isUnknown()) {
+                continue;
+            }
+            if (inclusive.getValue() - exclusive.getValue() >= fractionThreshold) {
+                hotValues.add((long) value.getValue());
+            }
+        }
+        return ImmutableList.copyOf(hotValues);
+    }
+
+    private static class HotKeys
+    {
+        private final EquiJoinClause clause;
+        private final List<Long> values;
+
+        public HotKeys(EquiJoinClause clause, List<Long> values)
+        {
+            this.clause = requireNonNull(clause, "clause is null");
+            this.values = ImmutableList.copyOf(requireNonNull(values, "values is null"));
+        }
+
+        public EquiJoinClause getClause()
+        {
+            return clause;
+        }
+
+        public RowExpression isHot(VariableReferenceExpression key)
+        {
+            ImmutableList.Builder<RowExpression> arguments = ImmutableList.builder();
+            arguments.add(key);
+            values.forEach(value -> arguments.add(constant(value, key.getType())));
+            return specialForm(IN, BOOLEAN, arguments.build());
+        }
+    }
 }
@@ -135,6 +135,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.LongSummaryStatistics;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -409,6 +410,14 @@ public class PlanPrinter
                 taskSize);
     }
 
+    public static String formattedTaskInputDistributionString(long minPositionsPerTask, long maxPositionsPerTask, double avgPositionsPerTask)
+    {
+        return format("Input per task: min: %s max: %s max/avg: %s%n",
+                formatPositions(minPositionsPerTask),
+                formatPositions(maxPositionsPerTask),
+                formatDouble(maxPositionsPerTask / avgPositionsPerTask));
+    }
+
     private static String formatFragment(
             FunctionAndTypeManager functionAndTypeManager,
             Session session,
@@ -434,6 +443,12 @@ public class PlanPrinter
 
             builder.append(indentString(1))
                     .append(formattedFragmentString(stageExecutionStats, avgPositionsPerTask, sdAmongTasks, tasks.size()));
+            if (!tasks.isEmpty()) {
+                // a single task with most of the rows points at a skewed partitioning key
+                LongSummaryStatistics positionsPerTask = tasks.stream().mapToLong(task -> task.getStats().getProcessedInputPositions()).summaryStatistics();
+                builder.append(indentString(1))
+                        .append(formattedTaskInputDistributionString(positionsPerTask.getMin(), positionsPerTask.getMax(), avgPositionsPerTask));
+            }
         }
         else {
             builder.append(format("Fragment %s [%s]%n",
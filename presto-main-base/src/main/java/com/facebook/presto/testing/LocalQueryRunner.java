@@ -1019,7 +1019,8 @@ public class LocalQueryRunner
                 new RowExpressionDeterminismEvaluator(metadata),
                 new NoOpFragmentResultCacheManager(),
                 objectMapper,
-                standaloneSpillerFactory);
+                standaloneSpillerFactory,
+                notificationExecutor);
 
         // plan query
         StageExecutionDescriptor stageExecutionDescriptor = subplan.getFragment().getStageExecutionDescriptor();
@@ -0,0 +1,62 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cacheaffinity;
+
+import com.facebook.airlift.units.Duration;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+import static com.facebook.airlift.configuration.testing.ConfigAssertions.assertFullMapping;
+import static com.facebook.airlift.configuration.testing.ConfigAssertions.assertRecordedDefaults;
+import static com.facebook.airlift.configuration.testing.ConfigAssertions.recordDefaults;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+public class TestCacheAffinityConfig
+{
+    @Test
+    public void testDefaults()
+    {
+        assertRecordedDefaults(recordDefaults(CacheAffinityConfig.class)
+                .setEnabled(false)
+                .setExpectedCachedSplits(100_000)
+                .setFalsePositiveProbability(0.03)
+                .setDigestGenerationDuration(new Duration(30, MINUTES))
+                .setDigestRefreshInterval(new Duration(30, SECONDS)));
+    }
+
+    @Test
+    public void testExplicitPropertyMappings()
+    {
+        Map<String, String> properties = new ImmutableMap.Builder<String, String>()
+                .put("cache-affinity.enabled", "true")
+                .put("cache-affinity.expected-cached-splits", "200000")
+                .put("cache-affinity.false-positive-probability", "0.01")
+                .put("cache-affinity.digest-generation-duration", "1h")
+                .put("cache-affinity.digest-refresh-interval", "10s")
+                .build();
+
+        CacheAffinityConfig expected = new CacheAffinityConfig()
+                .setEnabled(true)
+                .setExpectedCachedSplits(200_000)
+                .setFalsePositiveProbability(0.01)
+                .setDigestGenerationDuration(new Duration(1, HOURS))
+                .setDigestRefreshInterval(new Duration(10, SECONDS));
+
+        assertFullMapping(properties, expected);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cacheaffinity;
+
+import com.facebook.airlift.testing.TestingTicker;
+import org.testng.annotations.Test;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestLocalCacheDigest
+{
+    @Test
+    public void testRecord()
+    {
+        LocalCacheDigest cacheDigest = new LocalCacheDigest(new CacheAffinityConfig().setEnabled(true), new TestingTicker());
+        assertFalse(cacheDigest.mightContain("hive:split1"));
+
+        cacheDigest.record("hive:split1");
+        assertTrue(cacheDigest.mightContain("hive:split1"));
+        assertFalse(cacheDigest.mightContain("hive:split2"));
+    }
+
+    @Test
+    public void testGenerations()
+    {
+        TestingTicker ticker = new TestingTicker();
+        LocalCacheDigest cacheDigest = new LocalCacheDigest(new CacheAffinityConfig().setEnabled(true), ticker);
+        cacheDigest.record("hive:split1");
+
+        // a split stays in the digest for one more generation
+        ticker.increment(30, MINUTES);
+        assertTrue(cacheDigest.mightContain("hive:split1"));
+        cacheDigest.record("hive:split2");
+
+        ticker.increment(30, MINUTES);
+        assertFalse(cacheDigest.mightContain("hive:split1"));
+        assertTrue(cacheDigest.mightContain("hive:split2"));
+
+        // both generations are outdated after a long idle period
+        ticker.increment(90, MINUTES);
+        assertFalse(cacheDigest.mightContain("hive:split2"));
+    }
+
+    @Test
+    public void testDigest()
+    {
+        TestingTicker ticker = new TestingTicker();
+        LocalCacheDigest cacheDigest = new LocalCacheDigest(new CacheAffinityConfig().setEnabled(true), ticker);
+        cacheDigest.record("hive:split1");
+        ticker.increment(30, MINUTES);
+        cacheDigest.record("hive:split2");
+
+        CacheDigest digest = new CacheDigest(cacheDigest.getDigest().getBloomFilter());
+        assertTrue(digest.mightContain("hive:split1"));
+        assertTrue(digest.mightContain("hive:split2"));
+        assertFalse(digest.mightContain("hive:split3"));
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class, expectedExceptionsMessageRegExp = "cache affinity is not enabled")
+    public void testDisabled()
+    {
+        new LocalCacheDigest(new CacheAffinityConfig(), new TestingTicker()).record("hive:split1");
+    }
+}
@@ -90,6 +90,8 @@ import static com.facebook.presto.sql.planner.SystemPartitioningHandle.SINGLE_DI
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.SOURCE_DISTRIBUTION;
 import static com.facebook.presto.util.Failures.toFailures;
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static com.google.common.util.concurrent.Futures.nonCancellationPropagating;
 import static java.lang.Math.addExact;
 import static java.lang.System.currentTimeMillis;
@@ -415,6 +417,11 @@ public class MockRemoteTaskFactory
             updateSplitQueueSpace();
         }
 
+        public void destroyOutputBuffer()
+        {
+            outputBuffer.destroy();
+        }
+
         @Override
         public void start()
         {
@@ -457,6 +464,28 @@ public class MockRemoteTaskFactory
             throw new UnsupportedOperationException();
         }
 
+        @Override
+        public ListenableFuture<List<Split>> reclaimSplits(PlanNodeId sourceId, int maxSplitCount)
+        {
+            ImmutableList.Builder<Split> reclaimed = ImmutableList.builder();
+            synchronized (this) {
+                if (!taskStateMachine.getState().isDone() && !noMoreSplits.contains(sourceId)) {
+                    // the first drivers encountered are "running" and cannot be reclaimed
+                    List<Split> queued = splits.get(sourceId).stream()
+                            .skip(runningDrivers)
+                            .limit(maxSplitCount)
+                            .collect(toImmutableList());
+                    for (Split split : queued) {
+                        splits.remove(sourceId, split);
+                    }
+                    reclaimed.addAll(queued);
+                }
+            }
+            updateTaskStats();
+            updateSplitQueueSpace();
+            return immediateFuture(reclaimed.build());
+        }
+
         @Override
         public void setOutputBuffers(OutputBuffers outputBuffers)
         {
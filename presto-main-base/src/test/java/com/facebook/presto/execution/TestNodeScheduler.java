@@ -16,6 +16,9 @@ package com.facebook.presto.execution;
 import com.facebook.airlift.units.DataSize;
 import com.facebook.airlift.units.Duration;
 import com.facebook.presto.Session;
+import com.facebook.presto.cacheaffinity.CacheAffinityConfig;
+import com.facebook.presto.cacheaffinity.ClusterCacheDigests;
+import com.facebook.presto.cacheaffinity.LocalCacheDigest;
 import com.facebook.presto.client.NodeVersion;
 import com.facebook.presto.dispatcher.NoOpQueryManager;
 import com.facebook.presto.execution.scheduler.LegacyNetworkTopology;
@@ -635,6 +638,37 @@ public class TestNodeScheduler
         assertEquals(splitPlacementResult.getAssignments().keySet().size(), 3);
     }
 
+    @Test
+    public void testAffinityAssignmentWithCacheDigests()
+    {
+        NodeTaskMap nodeTaskMap = new NodeTaskMap(finalizerService);
+        TestingTransactionHandle transactionHandle = TestingTransactionHandle.create();
+        NodeSchedulerConfig nodeSchedulerConfig = new NodeSchedulerConfig()
+                .setMaxSplitsPerNode(20)
+                .setIncludeCoordinator(false)
+                .setMaxPendingSplitsPerTask(10);
+        CacheAffinityConfig cacheAffinityConfig = new CacheAffinityConfig().setEnabled(true);
+
+        Set<Split> splits = new HashSet<>();
+        IntStream.range(0, 10).forEach(i -> splits.add(new Split(CONNECTOR_ID, transactionHandle, new TestAffinitySplitRemote(i))));
+
+        // other3 reports all the splits as cached, so they stick to it regardless of the hashing
+        LocalCacheDigest localCacheDigest = new LocalCacheDigest(cacheAffinityConfig);
+        splits.forEach(split -> localCacheDigest.record(LocalCacheDigest.getCacheKey(split)));
+        ClusterCacheDigests clusterCacheDigests = new ClusterCacheDigests();
+        clusterCacheDigests.update("other3", localCacheDigest.getDigest());
+
+        NodeSelectionStats nodeSelectionStats = new NodeSelectionStats();
+        NodeScheduler nodeScheduler = new NodeScheduler(new LegacyNetworkTopology(), nodeManager, nodeSelectionStats, nodeSchedulerConfig, nodeTaskMap, new ThrowingNodeTtlFetcherManager(), new NoOpQueryManager(), new SimpleTtlNodeSelectorConfig(), cacheAffinityConfig, clusterCacheDigests);
+        NodeSelector nodeSelector = nodeScheduler.createNodeSelector(session, CONNECTOR_ID, 3);
+
+        SplitPlacementResult splitPlacementResult = nodeSelector.computeAssignments(splits, ImmutableList.of());
+        InternalNode node3 = new InternalNode("other3", URI.create("http://127.0.0.1:13"), NodeVersion.UNKNOWN, false);
+        assertEquals(splitPlacementResult.getAssignments().keySet(), ImmutableSet.of(node3));
+        assertEquals(splitPlacementResult.getAssignments().get(node3).size(), 10);
+        assertEquals(nodeSelectionStats.getCacheDigestMatchedSplitCount().getTotalCount(), 10);
+    }
+
     @Test
     public void testAffinityAssignmentWithConsistentHashing()
     {
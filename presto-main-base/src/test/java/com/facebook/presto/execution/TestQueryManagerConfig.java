@@ -23,6 +23,8 @@ import org.testng.annotations.Test;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+import static com.facebook.airlift.units.DataSize.Unit.BYTE;
+import static com.facebook.airlift.units.DataSize.Unit.GIGABYTE;
 import static com.facebook.airlift.units.DataSize.Unit.MEGABYTE;
 import static com.facebook.airlift.units.DataSize.Unit.PETABYTE;
 import static com.facebook.airlift.units.DataSize.Unit.TERABYTE;
@@ -87,7 +89,10 @@ public class TestQueryManagerConfig
                 .setEnableWorkerIsolation(false)
                 .setMinColumnarEncodingChannelsToPreferRowWiseEncoding(1000)
                 .setMaxQueryAdmissionsPerSecond(Integer.MAX_VALUE)
-                .setMinRunningQueriesForPacing(30));
+                .setMinRunningQueriesForPacing(30)
+                .setMemoryAdmissionEnabled(false)
+                .setMemoryAdmissionDefaultReservation(new DataSize(0, BYTE))
+                .setMemoryAdmissionMaxPoolFraction(0.9));
     }
 
     @Test
@@ -145,6 +150,9 @@ public class TestQueryManagerConfig
                 .put("min-columnar-encoding-channels-to-prefer-row-wise-encoding", "123")
                 .put("query-manager.query-pacing.max-queries-per-second", "10")
                 .put("query-manager.query-pacing.min-running-queries", "5")
+                .put("query-manager.memory-admission.enabled", "true")
+                .put("query-manager.memory-admission.default-reservation", "2GB")
+                .put("query-manager.memory-admission.max-pool-fraction", "0.75")
                 .build();
 
         QueryManagerConfig expected = new QueryManagerConfig()
@@ -199,7 +207,10 @@ public class TestQueryManagerConfig
                 .setEnableWorkerIsolation(true)
                 .setMinColumnarEncodingChannelsToPreferRowWiseEncoding(123)
                 .setMaxQueryAdmissionsPerSecond(10)
-                .setMinRunningQueriesForPacing(5);
+                .setMinRunningQueriesForPacing(5)
+                .setMemoryAdmissionEnabled(true)
+                .setMemoryAdmissionDefaultReservation(new DataSize(2, GIGABYTE))
+                .setMemoryAdmissionMaxPoolFraction(0.75);
         ConfigAssertions.assertFullMapping(properties, expected);
     }
 }
@@ -13,12 +13,18 @@
  */
 package com.facebook.presto.execution;
 
+import com.facebook.airlift.testing.TestingTicker;
 import com.facebook.presto.client.NodeVersion;
+import com.facebook.presto.common.RuntimeStats;
 import com.facebook.presto.cost.StatsAndCosts;
+import com.facebook.presto.execution.MockRemoteTaskFactory.MockRemoteTask;
+import com.facebook.presto.execution.SqlStageExecution.SpeculativeTaskCallback;
 import com.facebook.presto.execution.scheduler.SplitSchedulerStats;
 import com.facebook.presto.execution.scheduler.TableWriteInfo;
 import com.facebook.presto.failureDetector.NoOpFailureDetector;
 import com.facebook.presto.metadata.InternalNode;
+import com.facebook.presto.metadata.Split;
+import com.facebook.presto.spi.ConnectorId;
 import com.facebook.presto.spi.QueryId;
 import com.facebook.presto.spi.plan.Partitioning;
 import com.facebook.presto.spi.plan.PartitioningScheme;
@@ -29,8 +35,10 @@ import com.facebook.presto.spi.plan.StageExecutionDescriptor;
 import com.facebook.presto.spi.relation.VariableReferenceExpression;
 import com.facebook.presto.sql.planner.PlanFragment;
 import com.facebook.presto.sql.planner.plan.RemoteSourceNode;
+import com.facebook.presto.testing.TestingTransactionHandle;
 import com.facebook.presto.util.FinalizerService;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.SettableFuture;
 import org.testng.annotations.AfterClass;
@@ -38,7 +46,9 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import java.net.URI;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
@@ -46,6 +56,9 @@ import java.util.concurrent.ScheduledExecutorService;
 
 import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.common.RuntimeMetricName.SPECULATIVE_TASKS_LAUNCHED;
+import static com.facebook.presto.common.RuntimeMetricName.SPECULATIVE_TASK_LOSSES;
+import static com.facebook.presto.common.RuntimeMetricName.SPECULATIVE_TASK_WINS;
 import static com.facebook.presto.common.type.VarcharType.VARCHAR;
 import static com.facebook.presto.execution.SqlStageExecution.createSqlStageExecution;
 import static com.facebook.presto.execution.buffer.OutputBuffers.BufferType.ARBITRARY;
@@ -54,15 +67,26 @@ import static com.facebook.presto.spi.plan.ExchangeEncoding.COLUMNAR;
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.SINGLE_DISTRIBUTION;
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.SOURCE_DISTRIBUTION;
 import static com.facebook.presto.sql.planner.plan.ExchangeNode.Type.REPARTITION;
+import static com.facebook.presto.testing.TestingSplit.createLocalSplit;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
 import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 public class TestSqlStageExecution
 {
+    private static final PlanNodeId SCAN_NODE_ID = new PlanNodeId("scan");
+    private static final PlanNodeId EXCHANGE_NODE_ID = new PlanNodeId("exchange");
+
     private ExecutorService executor;
     private ScheduledExecutorService scheduledExecutor;
 
@@ -155,6 +179,157 @@ public class TestSqlStageExecution
         addTasksTask.cancel(true);
     }
 
+    @Test(timeOut = 60 * 1000)
+    public void testSpeculativeTaskWins()
+            throws Exception
+    {
+        TestingTicker ticker = new TestingTicker();
+        TestingSpeculativeTaskCallback callback = new TestingSpeculativeTaskCallback();
+        SqlStageExecution stage = createSpeculativeStage(ticker, callback);
+        List<MockRemoteTask> tasks = scheduleSourceTasks(stage, 4);
+
+        // the first tasks finish quickly, before the others can be considered stragglers
+        ticker.increment(1, SECONDS);
+        finishTask(tasks.get(0));
+        finishTask(tasks.get(1));
+        assertTrue(callback.getSpeculativeTasks().isEmpty());
+
+        ticker.increment(10, SECONDS);
+        finishTask(tasks.get(2));
+        MockRemoteTask original = tasks.get(3);
+        MockRemoteTask speculative = (MockRemoteTask) getOnlyElement(callback.getSpeculativeTasks());
+        assertEquals(speculative.getTaskId(), new TaskId(original.getTaskId().getStageExecutionId(), original.getTaskId().getId(), 1));
+        assertNotEquals(speculative.getNodeId(), original.getNodeId());
+        assertFalse(callback.getNoMoreSpeculativeTasks().isDone());
+
+        // consumers read the task from the speculative attempt, so the original is abandoned with splits left
+        original.destroyOutputBuffer();
+        finishTask(speculative);
+        assertEquals(original.getTaskStatus().getState(), TaskState.CANCELED);
+        assertEquals(stage.getState(), StageExecutionState.FINISHED);
+        callback.getNoMoreSpeculativeTasks().get(10, SECONDS);
+
+        RuntimeStats runtimeStats = stage.getStageExecutionInfo().getStats().getRuntimeStats();
+        assertEquals(runtimeStats.getMetric(SPECULATIVE_TASKS_LAUNCHED).getSum(), 1);
+        assertEquals(runtimeStats.getMetric(SPECULATIVE_TASK_WINS).getSum(), 1);
+        assertNull(runtimeStats.getMetric(SPECULATIVE_TASK_LOSSES));
+    }
+
+    @Test(timeOut = 60 * 1000)
+    public void testSpeculativeTaskLoses()
+            throws Exception
+    {
+        TestingTicker ticker = new TestingTicker();
+        TestingSpeculativeTaskCallback callback = new TestingSpeculativeTaskCallback();
+        SqlStageExecution stage = createSpeculativeStage(ticker, callback);
+        List<MockRemoteTask> tasks = scheduleSourceTasks(stage, 4);
+
+        ticker.increment(1, SECONDS);
+        finishTask(tasks.get(0));
+        finishTask(tasks.get(1));
+        ticker.increment(10, SECONDS);
+        finishTask(tasks.get(2));
+        MockRemoteTask speculative = (MockRemoteTask) getOnlyElement(callback.getSpeculativeTasks());
+
+        // consumers read the task from the original attempt, so the speculative one is abandoned with splits left
+        speculative.destroyOutputBuffer();
+        finishTask(tasks.get(3));
+        assertEquals(speculative.getTaskStatus().getState(), TaskState.CANCELED);
+        assertEquals(stage.getState(), StageExecutionState.FINISHED);
+        callback.getNoMoreSpeculativeTasks().get(10, SECONDS);
+
+        RuntimeStats runtimeStats = stage.getStageExecutionInfo().getStats().getRuntimeStats();
+        assertEquals(runtimeStats.getMetric(SPECULATIVE_TASK_LOSSES).getSum(), 1);
+        assertNull(runtimeStats.getMetric(SPECULATIVE_TASK_WINS));
+    }
+
+    @Test(timeOut = 60 * 1000)
+    public void testNoSpeculativeTasksBeforeHalfOfTasksFinish()
+            throws Exception
+    {
+        TestingTicker ticker = new TestingTicker();
+        TestingSpeculativeTaskCallback callback = new TestingSpeculativeTaskCallback();
+        SqlStageExecution stage = createSpeculativeStage(ticker, callback);
+        List<MockRemoteTask> tasks = scheduleSourceTasks(stage, 4);
+
+        ticker.increment(10, SECONDS);
+        finishTask(tasks.get(0));
+        assertTrue(callback.getSpeculativeTasks().isEmpty());
+
+        stage.cancel();
+        callback.getNoMoreSpeculativeTasks().get(10, SECONDS);
+        assertTrue(callback.getSpeculativeTasks().isEmpty());
+    }
+
+    private SqlStageExecution createSpeculativeStage(TestingTicker ticker, SpeculativeTaskCallback callback)
+    {
+        // task state changes are delivered on the calling thread, so each step below is observed by the stage before it returns
+        SqlStageExecution stage = createSqlStageExecution(
+                new StageExecutionId(new StageId(new QueryId("query"), 0), 0),
+                createSourcePlanFragment(),
+                new MockRemoteTaskFactory(directExecutor(), scheduledExecutor),
+                TEST_SESSION,
+                true,
+                new NodeTaskMap(new FinalizerService()),
+                executor,
+                new NoOpFailureDetector(),
+                new SplitSchedulerStats(),
+                new TableWriteInfo(Optional.empty(), Optional.empty()),
+                ticker);
+        stage.setOutputBuffers(createInitialEmptyOutputBuffers(ARBITRARY));
+        stage.registerSpeculativeTaskCallback(callback);
+        return stage;
+    }
+
+    private static List<MockRemoteTask> scheduleSourceTasks(SqlStageExecution stage, int taskCount)
+    {
+        ImmutableList.Builder<MockRemoteTask> tasks = ImmutableList.builder();
+        for (int i = 0; i < taskCount; i++) {
+            InternalNode node = new InternalNode("node" + i, URI.create("http://10.0.0." + i + ":8080"), NodeVersion.UNKNOWN, false);
+            RemoteTask task = getOnlyElement(stage.scheduleSplits(node, ImmutableMultimap.of(SCAN_NODE_ID, createSplit()), ImmutableMultimap.of()));
+            tasks.add((MockRemoteTask) task);
+        }
+        stage.schedulingComplete();
+        return tasks.build();
+    }
+
+    private static Split createSplit()
+    {
+        return new Split(new ConnectorId("test"), TestingTransactionHandle.create(), createLocalSplit());
+    }
+
+    private static void finishTask(MockRemoteTask task)
+    {
+        // the scan is already complete, so closing the exchange finishes the task
+        task.noMoreSplits(EXCHANGE_NODE_ID);
+    }
+
+    private static PlanFragment createSourcePlanFragment()
+    {
+        PlanNode planNode = new RemoteSourceNode(
+                Optional.empty(),
+                EXCHANGE_NODE_ID,
+                ImmutableList.of(new PlanFragmentId(1)),
+                ImmutableList.of(new VariableReferenceExpression(Optional.empty(), "column", VARCHAR)),
+                false,
+                Optional.empty(),
+                REPARTITION,
+                COLUMNAR);
+
+        return new PlanFragment(
+                new PlanFragmentId(0),
+                planNode,
+                ImmutableSet.copyOf(planNode.getOutputVariables()),
+                SOURCE_DISTRIBUTION,
+                ImmutableList.of(SCAN_NODE_ID),
+                new PartitioningScheme(Partitioning.create(SINGLE_DISTRIBUTION, ImmutableList.of()), planNode.getOutputVariables()),
+                Optional.empty(),
+                StageExecutionDescriptor.ungroupedExecution(),
+                false,
+                Optional.of(StatsAndCosts.empty()),
+                Optional.empty());
+    }
+
     private static PlanFragment createExchangePlanFragment()
     {
         PlanNode planNode = new RemoteSourceNode(
@@ -180,4 +355,34 @@ public class TestSqlStageExecution
                 Optional.of(StatsAndCosts.empty()),
                 Optional.empty());
     }
+
+    private static class TestingSpeculativeTaskCallback
+            implements SpeculativeTaskCallback
+    {
+        private final List<RemoteTask> speculativeTasks = new CopyOnWriteArrayList<>();
+        private final SettableFuture<?> noMoreSpeculativeTasks = SettableFuture.create();
+
+        @Override
+        public void addSpeculativeTask(RemoteTask task)
+        {
+            checkState(!noMoreSpeculativeTasks.isDone(), "speculative task added after no more speculative tasks");
+            speculativeTasks.add(task);
+        }
+
+        @Override
+        public void noMoreSpeculativeTasks()
+        {
+            noMoreSpeculativeTasks.set(null);
+        }
+
+        public List<RemoteTask> getSpeculativeTasks()
+        {
+            return speculativeTasks;
+        }
+
+        public SettableFuture<?> getNoMoreSpeculativeTasks()
+        {
+            return noMoreSpeculativeTasks;
+        }
+    }
 }
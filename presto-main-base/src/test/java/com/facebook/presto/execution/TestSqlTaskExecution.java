@@ -17,6 +17,7 @@ import com.facebook.airlift.stats.TestingGcMonitor;
 import com.facebook.airlift.units.DataSize;
 import com.facebook.airlift.units.Duration;
 import com.facebook.presto.CompressionCodec;
+import com.facebook.presto.Session;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.block.BlockEncodingManager;
 import com.facebook.presto.common.type.Type;
@@ -91,6 +92,7 @@ import static com.facebook.airlift.json.JsonCodec.listJsonCodec;
 import static com.facebook.airlift.units.DataSize.Unit.GIGABYTE;
 import static com.facebook.airlift.units.DataSize.Unit.MEGABYTE;
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.SystemSessionProperties.SPLIT_WORK_STEALING_ENABLED;
 import static com.facebook.presto.block.BlockAssertions.createStringSequenceBlock;
 import static com.facebook.presto.block.BlockAssertions.createStringsBlock;
 import static com.facebook.presto.common.type.VarcharType.VARCHAR;
@@ -109,6 +111,7 @@ import static com.facebook.presto.spi.SplitContext.NON_CACHEABLE;
 import static com.facebook.presto.spi.schedule.NodeSelectionStrategy.NO_PREFERENCE;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
@@ -117,6 +120,7 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 @Test(singleThreaded = true)
 public class TestSqlTaskExecution
@@ -126,6 +130,9 @@ public class TestSqlTaskExecution
     private static final ConnectorTransactionHandle TRANSACTION_HANDLE = TestingTransactionHandle.create();
     private static final Duration ASSERT_WAIT_TIMEOUT = new Duration(1, HOURS);
     private static final TaskId TASK_ID = TaskId.valueOf("queryid.0.0.0.0");
+    private static final Session SPLIT_WORK_STEALING_SESSION = Session.builder(TEST_SESSION)
+            .setSystemProperty(SPLIT_WORK_STEALING_ENABLED, "true")
+            .build();
 
     @DataProvider
     public static Object[][] executionStrategies()
@@ -617,7 +624,157 @@ public class TestSqlTaskExecution
         }
     }
 
+    @Test(timeOut = 20_000)
+    public void testReclaimSplits()
+            throws Exception
+    {
+        ScheduledExecutorService taskNotificationExecutor = newScheduledThreadPool(10, threadsNamed("task-notification-%s"));
+        ScheduledExecutorService driverYieldExecutor = newScheduledThreadPool(2, threadsNamed("driver-yield-%s"));
+        // a single runner thread, so only the first split gets a driver while the scan is paused
+        TaskExecutor taskExecutor = new TaskExecutor(1, 1, 1, 1, TASK_FAIR, Ticker.systemTicker());
+        taskExecutor.start();
+
+        try {
+            TaskStateMachine taskStateMachine = new TaskStateMachine(TASK_ID, taskNotificationExecutor);
+            PartitionedOutputBuffer outputBuffer = newTestingOutputBuffer(taskNotificationExecutor);
+            OutputBufferConsumer outputBufferConsumer = new OutputBufferConsumer(outputBuffer, OUTPUT_BUFFER_ID);
+            TestingScanOperatorFactory testingScanOperatorFactory = new TestingScanOperatorFactory(0, TABLE_SCAN_NODE_ID, ImmutableList.of(VARCHAR));
+            TaskContext taskContext = newTestingTaskContext(taskNotificationExecutor, driverYieldExecutor, taskStateMachine, SPLIT_WORK_STEALING_SESSION);
+            SqlTaskExecution sqlTaskExecution = createScanTaskExecution(taskStateMachine, taskContext, outputBuffer, testingScanOperatorFactory, taskExecutor, taskNotificationExecutor);
+
+            testingScanOperatorFactory.getPauser().pause();
+            sqlTaskExecution.addSources(ImmutableList.of(new TaskSource(
+                    TABLE_SCAN_NODE_ID,
+                    ImmutableSet.of(
+                            newScheduledSplit(0, TABLE_SCAN_NODE_ID, Lifespan.taskWide(), 0, 10),
+                            newScheduledSplit(1, TABLE_SCAN_NODE_ID, Lifespan.taskWide(), 100, 20),
+                            newScheduledSplit(2, TABLE_SCAN_NODE_ID, Lifespan.taskWide(), 200, 30),
+                            newScheduledSplit(3, TABLE_SCAN_NODE_ID, Lifespan.taskWide(), 300, 40)),
+                    false)));
+            waitUntilEquals(() -> taskContext.getTaskStats().getRunningDrivers(), 1, ASSERT_WAIT_TIMEOUT);
+
+            // the latest scheduled splits are reclaimed first
+            assertEquals(getSequenceIds(sqlTaskExecution.reclaimSplits(TABLE_SCAN_NODE_ID, 2)), ImmutableList.of(3L, 2L));
+            // the split whose driver is running is never reclaimed
+            assertEquals(getSequenceIds(sqlTaskExecution.reclaimSplits(TABLE_SCAN_NODE_ID, 10)), ImmutableList.of(1L));
+            assertEquals(sqlTaskExecution.reclaimSplits(TABLE_SCAN_NODE_ID, 10), ImmutableList.of());
+            assertEquals(taskContext.getTaskStats().getQueuedDrivers(), 0);
+
+            testingScanOperatorFactory.getPauser().resume();
+            sqlTaskExecution.addSources(ImmutableList.of(new TaskSource(TABLE_SCAN_NODE_ID, ImmutableSet.of(), true)));
+
+            // only the split that was not reclaimed produces output
+            outputBufferConsumer.consume(10, ASSERT_WAIT_TIMEOUT);
+            outputBufferConsumer.assertBufferComplete(ASSERT_WAIT_TIMEOUT);
+
+            outputBufferConsumer.abort();
+            TaskState taskState = taskStateMachine.getStateChange(TaskState.RUNNING).get(10, SECONDS);
+            assertEquals(taskState, TaskState.FINISHED);
+        }
+        finally {
+            taskExecutor.stop();
+            taskNotificationExecutor.shutdownNow();
+            driverYieldExecutor.shutdown();
+        }
+    }
+
+    @Test(timeOut = 20_000)
+    public void testReclaimSplitsWhileDriversAreCreated()
+            throws Exception
+    {
+        ScheduledExecutorService taskNotificationExecutor = newScheduledThreadPool(10, threadsNamed("task-notification-%s"));
+        ScheduledExecutorService driverYieldExecutor = newScheduledThreadPool(2, threadsNamed("driver-yield-%s"));
+        TaskExecutor taskExecutor = new TaskExecutor(4, 8, 4, 8, TASK_FAIR, Ticker.systemTicker());
+        taskExecutor.start();
+
+        try {
+            TaskStateMachine taskStateMachine = new TaskStateMachine(TASK_ID, taskNotificationExecutor);
+            PartitionedOutputBuffer outputBuffer = newTestingOutputBuffer(taskNotificationExecutor);
+            OutputBufferConsumer outputBufferConsumer = new OutputBufferConsumer(outputBuffer, OUTPUT_BUFFER_ID);
+            TestingScanOperatorFactory testingScanOperatorFactory = new TestingScanOperatorFactory(0, TABLE_SCAN_NODE_ID, ImmutableList.of(VARCHAR));
+            TaskContext taskContext = newTestingTaskContext(taskNotificationExecutor, driverYieldExecutor, taskStateMachine, SPLIT_WORK_STEALING_SESSION);
+            SqlTaskExecution sqlTaskExecution = createScanTaskExecution(taskStateMachine, taskContext, outputBuffer, testingScanOperatorFactory, taskExecutor, taskNotificationExecutor);
+
+            int splitCount = 500;
+            ImmutableSet.Builder<ScheduledSplit> splits = ImmutableSet.builder();
+            for (int i = 0; i < splitCount; i++) {
+                splits.add(newScheduledSplit(i, TABLE_SCAN_NODE_ID, Lifespan.taskWide(), i, 1));
+            }
+            sqlTaskExecution.addSources(ImmutableList.of(new TaskSource(TABLE_SCAN_NODE_ID, splits.build(), false)));
+
+            // reclaim while the runner threads are creating drivers for the same splits
+            Set<Long> reclaimed = new HashSet<>();
+            for (int i = 0; i < 100; i++) {
+                for (long sequenceId : getSequenceIds(sqlTaskExecution.reclaimSplits(TABLE_SCAN_NODE_ID, 2))) {
+                    assertTrue(reclaimed.add(sequenceId), "split reclaimed twice: " + sequenceId);
+                }
+            }
+            sqlTaskExecution.addSources(ImmutableList.of(new TaskSource(TABLE_SCAN_NODE_ID, ImmutableSet.of(), true)));
+
+            // every split is either processed by this task or reclaimed, never both
+            outputBufferConsumer.consume(splitCount - reclaimed.size(), ASSERT_WAIT_TIMEOUT);
+            outputBufferConsumer.assertBufferComplete(ASSERT_WAIT_TIMEOUT);
+
+            outputBufferConsumer.abort();
+            TaskState taskState = taskStateMachine.getStateChange(TaskState.RUNNING).get(10, SECONDS);
+            assertEquals(taskState, TaskState.FINISHED);
+        }
+        finally {
+            taskExecutor.stop();
+            taskNotificationExecutor.shutdownNow();
+            driverYieldExecutor.shutdown();
+        }
+    }
+
+    private SqlTaskExecution createScanTaskExecution(
+            TaskStateMachine taskStateMachine,
+            TaskContext taskContext,
+            PartitionedOutputBuffer outputBuffer,
+            TestingScanOperatorFactory testingScanOperatorFactory,
+            TaskExecutor taskExecutor,
+            ScheduledExecutorService taskNotificationExecutor)
+    {
+        TaskOutputOperatorFactory taskOutputOperatorFactory = new TaskOutputOperatorFactory(
+                1,
+                TABLE_SCAN_NODE_ID,
+                outputBuffer,
+                Function.identity(),
+                new PagesSerdeFactory(new BlockEncodingManager(), CompressionCodec.NONE));
+        LocalExecutionPlan localExecutionPlan = new LocalExecutionPlan(
+                ImmutableList.of(new DriverFactory(
+                        0,
+                        true,
+                        true,
+                        ImmutableList.of(testingScanOperatorFactory, taskOutputOperatorFactory),
+                        OptionalInt.empty(),
+                        UNGROUPED_EXECUTION,
+                        Optional.empty())),
+                ImmutableList.of(TABLE_SCAN_NODE_ID),
+                StageExecutionDescriptor.ungroupedExecution());
+        return SqlTaskExecution.createSqlTaskExecution(
+                taskStateMachine,
+                taskContext,
+                outputBuffer,
+                ImmutableList.of(),
+                localExecutionPlan,
+                taskExecutor,
+                taskNotificationExecutor,
+                createTestSplitMonitor());
+    }
+
+    private static List<Long> getSequenceIds(List<ScheduledSplit> splits)
+    {
+        return splits.stream()
+                .map(ScheduledSplit::getSequenceId)
+                .collect(toImmutableList());
+    }
+
     private TaskContext newTestingTaskContext(ScheduledExecutorService taskNotificationExecutor, ScheduledExecutorService driverYieldExecutor, TaskStateMachine taskStateMachine)
+    {
+        return newTestingTaskContext(taskNotificationExecutor, driverYieldExecutor, taskStateMachine, TEST_SESSION);
+    }
+
+    private TaskContext newTestingTaskContext(ScheduledExecutorService taskNotificationExecutor, ScheduledExecutorService driverYieldExecutor, TaskStateMachine taskStateMachine, Session session)
     {
         QueryContext queryContext = new QueryContext(
                 new QueryId("queryid"),
@@ -634,7 +791,7 @@ public class TestSqlTaskExecution
                 listJsonCodec(TaskMemoryReservationSummary.class));
         return queryContext.addTaskContext(
                 taskStateMachine,
-                TEST_SESSION,
+                session,
                 Optional.of(PLAN_FRAGMENT.getRoot()),
                 false,
                 false,
@@ -0,0 +1,113 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.resourceGroups;
+
+import com.facebook.airlift.units.DataSize;
+import com.facebook.presto.execution.MockManagedQueryExecution;
+import com.facebook.presto.execution.QueryManagerConfig;
+import org.testng.annotations.Test;
+
+import static com.facebook.airlift.units.DataSize.Unit.BYTE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestQueryMemoryAdmission
+{
+    @Test
+    public void testDisabled()
+    {
+        QueryMemoryAdmission admission = new QueryMemoryAdmission(new QueryManagerConfig()
+                .setMemoryAdmissionDefaultReservation(new DataSize(100, BYTE)));
+        admission.setClusterPoolBytes(100);
+
+        assertTrue(admission.tryReserve(new MockManagedQueryExecution(0)));
+        assertTrue(admission.tryReserve(new MockManagedQueryExecution(0)));
+        assertEquals(admission.getReservedBytes(), 0);
+    }
+
+    @Test
+    public void testQueueUntilReservationFits()
+    {
+        QueryMemoryAdmission admission = createAdmission(40);
+        admission.setClusterPoolBytes(100);
+
+        MockManagedQueryExecution query1 = new MockManagedQueryExecution(0);
+        MockManagedQueryExecution query2 = new MockManagedQueryExecution(0);
+        MockManagedQueryExecution query3 = new MockManagedQueryExecution(0);
+        assertTrue(admission.tryReserve(query1));
+        assertTrue(admission.tryReserve(query2));
+        assertEquals(admission.getReservedBytes(), 80);
+
+        assertFalse(admission.tryReserve(query3));
+        assertEquals(admission.getDelayedAdmissions(), 1);
+
+        admission.release(query1);
+        assertTrue(admission.tryReserve(query3));
+        assertEquals(admission.getReservedBytes(), 80);
+    }
+
+    @Test
+    public void testReconcileWithActualUsage()
+    {
+        QueryMemoryAdmission admission = createAdmission(40);
+        admission.setClusterPoolBytes(100);
+
+        assertTrue(admission.tryReserve(new MockManagedQueryExecution(90)));
+        assertEquals(admission.getReservedBytes(), 90);
+        assertFalse(admission.tryReserve(new MockManagedQueryExecution(0)));
+    }
+
+    @Test
+    public void testAdmitWithoutReservations()
+    {
+        QueryMemoryAdmission admission = createAdmission(1000);
+
+        // the pool size is unknown, so queries are not held back
+        assertTrue(admission.tryReserve(new MockManagedQueryExecution(0)));
+        assertTrue(admission.tryReserve(new MockManagedQueryExecution(0)));
+
+        // a query larger than the pool still runs when nothing else is reserved
+        admission = createAdmission(1000);
+        admission.setClusterPoolBytes(100);
+        assertTrue(admission.tryReserve(new MockManagedQueryExecution(0)));
+        assertFalse(admission.tryReserve(new MockManagedQueryExecution(0)));
+    }
+
+    @Test
+    public void testPredictFromHistory()
+    {
+        QueryMemoryAdmission admission = createAdmission(40);
+        admission.setClusterPoolBytes(100);
+
+        MockManagedQueryExecution query = new MockManagedQueryExecution(0);
+        assertTrue(admission.tryReserve(query));
+        assertEquals(admission.getReservedBytes(), 40);
+        admission.release(query);
+        assertEquals(admission.getReservedBytes(), 0);
+
+        // the same query text of the same user reserves its last observed peak memory
+        assertTrue(admission.tryReserve(new MockManagedQueryExecution(0)));
+        assertEquals(admission.getReservedBytes(), 20);
+        assertEquals(admission.getHistoryPredictions(), 1);
+    }
+
+    private static QueryMemoryAdmission createAdmission(long defaultReservationBytes)
+    {
+        return new QueryMemoryAdmission(new QueryManagerConfig()
+                .setMemoryAdmissionEnabled(true)
+                .setMemoryAdmissionDefaultReservation(new DataSize(defaultReservationBytes, BYTE))
+                .setMemoryAdmissionMaxPoolFraction(1.0));
+    }
+}
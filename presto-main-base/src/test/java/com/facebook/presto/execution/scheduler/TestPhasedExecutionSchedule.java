@@ -15,7 +15,14 @@ package com.facebook.presto.execution.scheduler;
 
 import com.facebook.presto.common.predicate.TupleDomain;
 import com.facebook.presto.cost.StatsAndCosts;
+import com.facebook.presto.execution.MockRemoteTaskFactory;
+import com.facebook.presto.execution.NodeTaskMap;
+import com.facebook.presto.execution.SqlStageExecution;
+import com.facebook.presto.execution.StageExecutionId;
+import com.facebook.presto.execution.StageId;
+import com.facebook.presto.failureDetector.NoOpFailureDetector;
 import com.facebook.presto.spi.ConnectorId;
+import com.facebook.presto.spi.QueryId;
 import com.facebook.presto.spi.TableHandle;
 import com.facebook.presto.spi.plan.JoinNode;
 import com.facebook.presto.spi.plan.JoinType;
@@ -33,18 +40,26 @@ import com.facebook.presto.sql.planner.plan.RemoteSourceNode;
 import com.facebook.presto.testing.TestingMetadata.TestingColumnHandle;
 import com.facebook.presto.testing.TestingMetadata.TestingTableHandle;
 import com.facebook.presto.testing.TestingTransactionHandle;
+import com.facebook.presto.util.FinalizerService;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import org.testng.annotations.AfterClass;
 import org.testng.annotations.Test;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
+import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.execution.SqlStageExecution.createSqlStageExecution;
 import static com.facebook.presto.spi.plan.ExchangeEncoding.COLUMNAR;
 import static com.facebook.presto.spi.plan.JoinDistributionType.REPLICATED;
 import static com.facebook.presto.spi.plan.JoinType.INNER;
@@ -54,12 +69,24 @@ import static com.facebook.presto.sql.planner.SystemPartitioningHandle.SOURCE_DI
 import static com.facebook.presto.sql.planner.plan.ExchangeNode.Type.REPARTITION;
 import static com.facebook.presto.sql.planner.plan.ExchangeNode.Type.REPLICATE;
 import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
+import static java.util.concurrent.Executors.newScheduledThreadPool;
 import static org.testng.Assert.assertEquals;
 
 public class TestPhasedExecutionSchedule
 {
     private static final AtomicInteger nextPlanFragmentId = new AtomicInteger();
 
+    private final ScheduledExecutorService scheduledExecutor = newScheduledThreadPool(2, daemonThreadsNamed("testPhasedExecutionSchedule-%s"));
+
+    @AfterClass(alwaysRun = true)
+    public void tearDownExecutor()
+    {
+        scheduledExecutor.shutdownNow();
+    }
+
     @Test
     public void testExchange()
     {
@@ -154,6 +181,60 @@ public class TestPhasedExecutionSchedule
                 ImmutableSet.of(probeSourceFragment.getId())));
     }
 
+    @Test
+    public void testStartSplitEnumerationOfDelayedStages()
+    {
+        PlanFragment aFragment = createTableScanPlanFragment("a");
+        PlanFragment bFragment = createTableScanPlanFragment("b");
+        PlanFragment cFragment = createTableScanPlanFragment("c");
+        PlanFragment exchangeFragment = createExchangePlanFragment("exchange", aFragment, bFragment, cFragment);
+
+        Map<PlanFragmentId, RecordingStageScheduler> schedulers = new HashMap<>();
+        List<StageExecutionAndScheduler> stages = Stream.of(aFragment, bFragment, cFragment, exchangeFragment)
+                .map(fragment -> {
+                    RecordingStageScheduler scheduler = new RecordingStageScheduler();
+                    schedulers.put(fragment.getId(), scheduler);
+                    return createStageExecutionAndScheduler(fragment, scheduler);
+                })
+                .collect(toImmutableList());
+
+        PhasedExecutionSchedule schedule = new PhasedExecutionSchedule(stages);
+        Set<PlanFragmentId> activeFragments = schedule.getStagesToSchedule().stream()
+                .map(stage -> stage.getStageExecution().getFragment().getId())
+                .collect(toImmutableSet());
+        assertEquals(activeFragments, ImmutableSet.of(exchangeFragment.getId()));
+
+        // only the stages delayed to a later phase enumerate their splits ahead of time
+        assertEquals(schedulers.get(exchangeFragment.getId()).getSplitEnumerationStarts(), 0);
+        assertEquals(schedulers.get(aFragment.getId()).getSplitEnumerationStarts(), 1);
+        assertEquals(schedulers.get(bFragment.getId()).getSplitEnumerationStarts(), 1);
+        assertEquals(schedulers.get(cFragment.getId()).getSplitEnumerationStarts(), 1);
+
+        // enumeration is started only once
+        schedule.getStagesToSchedule();
+        assertEquals(schedulers.get(aFragment.getId()).getSplitEnumerationStarts(), 1);
+        assertEquals(schedulers.get(bFragment.getId()).getSplitEnumerationStarts(), 1);
+        assertEquals(schedulers.get(cFragment.getId()).getSplitEnumerationStarts(), 1);
+    }
+
+    private StageExecutionAndScheduler createStageExecutionAndScheduler(PlanFragment fragment, StageScheduler stageScheduler)
+    {
+        StageId stageId = new StageId(new QueryId("query"), fragment.getId().getId());
+        SqlStageExecution stageExecution = createSqlStageExecution(
+                new StageExecutionId(stageId, 0),
+                fragment,
+                new MockRemoteTaskFactory(directExecutor(), scheduledExecutor),
+                TEST_SESSION,
+                true,
+                new NodeTaskMap(new FinalizerService()),
+                newDirectExecutorService(),
+                new NoOpFailureDetector(),
+                new SplitSchedulerStats(),
+                new TableWriteInfo(Optional.empty(), Optional.empty()));
+        StageLinkage stageLinkage = new StageLinkage(fragment.getId(), (id, tasks, noMoreExchangeLocations) -> {}, ImmutableSet.of());
+        return new StageExecutionAndScheduler(stageExecution, stageLinkage, stageScheduler);
+    }
+
     private static PlanFragment createExchangePlanFragment(String name, PlanFragment... fragments)
     {
         PlanNode planNode = new RemoteSourceNode(
@@ -286,4 +367,27 @@ public class TestPhasedExecutionSchedule
                 Optional.of(StatsAndCosts.empty()),
                 Optional.empty());
     }
+
+    private static class RecordingStageScheduler
+            implements StageScheduler
+    {
+        private int splitEnumerationStarts;
+
+        @Override
+        public ScheduleResult schedule()
+        {
+            return ScheduleResult.nonBlocked(false, ImmutableList.of(), 0);
+        }
+
+        @Override
+        public void startSplitEnumeration()
+        {
+            splitEnumerationStarts++;
+        }
+
+        public int getSplitEnumerationStarts()
+        {
+            return splitEnumerationStarts;
+        }
+    }
 }
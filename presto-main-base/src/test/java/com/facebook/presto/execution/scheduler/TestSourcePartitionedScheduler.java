@@ -82,6 +82,7 @@ import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
 import static com.facebook.presto.common.type.VarcharType.VARCHAR;
 import static com.facebook.presto.execution.buffer.OutputBuffers.BufferType.PARTITIONED;
 import static com.facebook.presto.execution.buffer.OutputBuffers.createInitialEmptyOutputBuffers;
+import static com.facebook.presto.execution.scheduler.ScheduleResult.BlockedReason.WAITING_FOR_SPLIT_REBALANCING;
 import static com.facebook.presto.execution.scheduler.SourcePartitionedScheduler.newSourcePartitionedSchedulerAsStageScheduler;
 import static com.facebook.presto.spi.StandardErrorCode.NO_NODES_AVAILABLE;
 import static com.facebook.presto.spi.connector.NotPartitionedPartitionHandle.NOT_PARTITIONED;
@@ -433,6 +434,48 @@ public class TestSourcePartitionedScheduler
         secondStage.abort();
     }
 
+    @Test
+    public void testSplitWorkStealing()
+    {
+        SubPlan plan = createPlan();
+        NodeTaskMap nodeTaskMap = new NodeTaskMap(finalizerService);
+        SqlStageExecution stage = createSqlStageExecution(plan, nodeTaskMap);
+
+        StageScheduler scheduler = getSourcePartitionedScheduler(createFixedSplitSource(60, TestingSplit::createRemoteSplit), stage, nodeManager, nodeTaskMap, 200, true);
+
+        ScheduleResult scheduleResult = scheduler.schedule();
+        assertFalse(scheduleResult.isFinished());
+        assertEquals(stage.getAllTasks().size(), 3);
+        assertPartitionedSplitCount(stage, 60);
+
+        // the first task runs out of work while the others still have 20 queued splits each
+        MockRemoteTask idleTask = (MockRemoteTask) stage.getAllTasks().get(0);
+        idleTask.clearSplits();
+
+        // half of the queue of a busy task is reclaimed
+        scheduleResult = scheduler.schedule();
+        assertFalse(scheduleResult.isFinished());
+        assertEquals(scheduleResult.getBlockedReason(), Optional.of(WAITING_FOR_SPLIT_REBALANCING));
+        assertTrue(scheduleResult.getBlocked().isDone());
+        assertPartitionedSplitCount(stage, 30);
+
+        // and reassigned to the idle task
+        scheduleResult = scheduler.schedule();
+        assertFalse(scheduleResult.isFinished());
+        assertEquals(scheduleResult.getBlockedReason(), Optional.of(WAITING_FOR_SPLIT_REBALANCING));
+        assertFalse(scheduleResult.getBlocked().isDone());
+        assertEquals(idleTask.getPartitionedSplitsInfo().getCount(), 10);
+        assertPartitionedSplitCount(stage, 40);
+
+        // scheduling finishes once no task has enough queued splits to share
+        for (RemoteTask remoteTask : stage.getAllTasks()) {
+            ((MockRemoteTask) remoteTask).clearSplits();
+        }
+        assertEffectivelyFinished(scheduler.schedule(), scheduler);
+
+        stage.abort();
+    }
+
     private static void assertPartitionedSplitCount(SqlStageExecution stage, int expectedPartitionedSplitCount)
     {
         assertEquals(stage.getAllTasks().stream().mapToInt(remoteTask -> remoteTask.getPartitionedSplitsInfo().getCount()).sum(), expectedPartitionedSplitCount);
@@ -459,6 +502,17 @@ public class TestSourcePartitionedScheduler
             InternalNodeManager nodeManager,
             NodeTaskMap nodeTaskMap,
             int splitBatchSize)
+    {
+        return getSourcePartitionedScheduler(connectorSplitSource, stage, nodeManager, nodeTaskMap, splitBatchSize, false);
+    }
+
+    private static StageScheduler getSourcePartitionedScheduler(
+            ConnectorSplitSource connectorSplitSource,
+            SqlStageExecution stage,
+            InternalNodeManager nodeManager,
+            NodeTaskMap nodeTaskMap,
+            int splitBatchSize,
+            boolean splitWorkStealingEnabled)
     {
         NodeSchedulerConfig nodeSchedulerConfig = new NodeSchedulerConfig()
                 .setIncludeCoordinator(false)
@@ -475,7 +529,7 @@ public class TestSourcePartitionedScheduler
                 new SimpleTtlNodeSelectorConfig());
         SplitSource splitSource = new ConnectorAwareSplitSource(CONNECTOR_ID, TestingTransactionHandle.create(), connectorSplitSource);
         SplitPlacementPolicy placementPolicy = new DynamicSplitPlacementPolicy(nodeScheduler.createNodeSelector(TestingSession.testSessionBuilder().build(), splitSource.getConnectorId()), stage::getAllTasks);
-        return newSourcePartitionedSchedulerAsStageScheduler(stage, TABLE_SCAN_NODE_ID, splitSource, placementPolicy, splitBatchSize, new CTEMaterializationTracker());
+        return newSourcePartitionedSchedulerAsStageScheduler(stage, TABLE_SCAN_NODE_ID, splitSource, placementPolicy, splitBatchSize, new CTEMaterializationTracker(), splitWorkStealingEnabled, 8);
     }
 
     private static SubPlan createPlan()
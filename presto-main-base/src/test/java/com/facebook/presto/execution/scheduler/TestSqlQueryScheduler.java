@@ -0,0 +1,36 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.scheduler;
+
+import org.testng.annotations.Test;
+
+import static com.facebook.presto.execution.scheduler.SqlQueryScheduler.getAdaptedPartitionCount;
+import static org.testng.Assert.assertEquals;
+
+public class TestSqlQueryScheduler
+{
+    @Test
+    public void testAdaptedPartitionCount()
+    {
+        // one partition per started target size
+        assertEquals(getAdaptedPartitionCount(0, 100, 8), 1);
+        assertEquals(getAdaptedPartitionCount(100, 100, 8), 1);
+        assertEquals(getAdaptedPartitionCount(101, 100, 8), 2);
+        assertEquals(getAdaptedPartitionCount(350, 100, 8), 4);
+
+        // the partition count never goes above the planned count
+        assertEquals(getAdaptedPartitionCount(10_000, 100, 8), 8);
+        assertEquals(getAdaptedPartitionCount(Long.MAX_VALUE, 100, 8), 8);
+    }
+}
@@ -37,6 +37,7 @@ public class TestMemoryManagerConfig
         assertRecordedDefaults(ConfigAssertions.recordDefaults(MemoryManagerConfig.class)
                 .setLowMemoryKillerPolicy(NONE)
                 .setKillOnOutOfMemoryDelay(new Duration(5, MINUTES))
+                .setWaitForMemoryRevocation(false)
                 .setMaxQueryMemory(new DataSize(20, GIGABYTE))
                 .setSoftMaxQueryMemory(new DataSize(20, GIGABYTE))
                 .setMaxQueryTotalMemory(new DataSize(40, GIGABYTE))
@@ -50,6 +51,7 @@ public class TestMemoryManagerConfig
         Map<String, String> properties = new ImmutableMap.Builder<String, String>()
                 .put("query.low-memory-killer.policy", "total-reservation-on-blocked-nodes")
                 .put("query.low-memory-killer.delay", "20s")
+                .put("query.low-memory-killer.wait-for-memory-revocation", "true")
                 .put("query.max-memory", "2GB")
                 .put("query.soft-max-memory", "1GB")
                 .put("query.max-total-memory", "3GB")
@@ -60,6 +62,7 @@ public class TestMemoryManagerConfig
         MemoryManagerConfig expected = new MemoryManagerConfig()
                 .setLowMemoryKillerPolicy(TOTAL_RESERVATION_ON_BLOCKED_NODES)
                 .setKillOnOutOfMemoryDelay(new Duration(20, SECONDS))
+                .setWaitForMemoryRevocation(true)
                 .setMaxQueryMemory(new DataSize(2, GIGABYTE))
                 .setSoftMaxQueryMemory(new DataSize(1, GIGABYTE))
                 .setMaxQueryTotalMemory(new DataSize(3, GIGABYTE))
@@ -309,7 +309,8 @@ public class BenchmarkHashBuildAndJoinOperators
                 new PagesIndex.TestingFactory(false),
                 false,
                 SingleStreamSpillerFactory.unsupportedSingleStreamSpillerFactory(),
-                false);
+                false,
+                buildContext.executor);
 
         Operator operator = hashBuilderOperatorFactory.createOperator(driverContext);
         for (Page page : buildContext.getBuildPages()) {
@@ -18,11 +18,13 @@ import com.facebook.presto.ExceededMemoryLimitException;
 import com.facebook.presto.RowPagesBuilder;
 import com.facebook.presto.Session;
 import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.execution.Lifespan;
 import com.facebook.presto.execution.TaskId;
 import com.facebook.presto.execution.TaskStateMachine;
 import com.facebook.presto.memory.context.LocalMemoryContext;
+import com.facebook.presto.operator.DeferredBuildRows.DeferredBuildBlock;
 import com.facebook.presto.operator.HashBuilderOperator.HashBuilderOperatorFactory;
 import com.facebook.presto.operator.ValuesOperator.ValuesOperatorFactory;
 import com.facebook.presto.operator.exchange.LocalExchange.LocalExchangeFactory;
@@ -77,12 +79,16 @@ import static com.facebook.airlift.units.DataSize.Unit.BYTE;
 import static com.facebook.airlift.units.DataSize.Unit.MEGABYTE;
 import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.SystemSessionProperties.JOIN_LATE_MATERIALIZATION_ENABLED;
+import static com.facebook.presto.SystemSessionProperties.JOIN_UNSPILL_MEMORY_LIMIT;
 import static com.facebook.presto.SystemSessionProperties.QUERY_MAX_MEMORY_PER_NODE;
 import static com.facebook.presto.SystemSessionProperties.getQueryMaxMemoryPerNode;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
 import static com.facebook.presto.common.type.VarcharType.VARCHAR;
 import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEquals;
 import static com.facebook.presto.operator.OperatorAssertion.dropChannel;
+import static com.facebook.presto.operator.OperatorAssertion.finishOperator;
+import static com.facebook.presto.operator.OperatorAssertion.toPagesPartial;
 import static com.facebook.presto.operator.OperatorAssertion.without;
 import static com.facebook.presto.operator.PipelineExecutionStrategy.UNGROUPED_EXECUTION;
 import static com.facebook.presto.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
@@ -103,6 +109,7 @@ import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.stream.Collectors.toList;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
@@ -206,6 +213,70 @@ public class TestHashJoinOperator
         assertOperatorEquals(joinOperatorFactory, taskContext.addPipelineContext(0, true, true, false).addDriverContext(), probeInput, expected, true, getHashChannels(probePages, buildPages));
     }
 
+    @Test
+    public void testInnerJoinWithLateMaterialization()
+    {
+        Session session = testSessionBuilder().setSystemProperty(JOIN_LATE_MATERIALIZATION_ENABLED, "true").build();
+        TaskContext taskContext = TestingTaskContext.createTaskContext(executor, scheduledExecutor, session);
+
+        // build factory
+        RowPagesBuilder buildPages = rowPagesBuilder(false, Ints.asList(0), ImmutableList.of(BIGINT, BIGINT))
+                .addSequencePage(10, 20, 30);
+        BuildSideSetup buildSideSetup = setupBuildSide(false, taskContext, Ints.asList(0), buildPages, Optional.empty(), false, SINGLE_STREAM_SPILLER_FACTORY);
+        JoinBridgeManager<PartitionedLookupSourceFactory> lookupSourceFactory = buildSideSetup.getLookupSourceFactoryManager();
+
+        // probe factory
+        RowPagesBuilder probePages = rowPagesBuilder(false, Ints.asList(0), ImmutableList.of(BIGINT));
+        List<Page> probeInput = probePages
+                .addSequencePage(100, 0)
+                .build();
+        OperatorFactory joinOperatorFactory = innerJoinOperatorFactory(lookupSourceFactory, probePages, PARTITIONING_SPILLER_FACTORY);
+
+        // build drivers and operators
+        instantiateBuildDrivers(buildSideSetup, taskContext);
+        buildLookupSource(buildSideSetup);
+
+        Operator joinOperator = joinOperatorFactory.createOperator(taskContext.addPipelineContext(0, true, true, false).addDriverContext());
+        List<Page> output = toPagesPartial(joinOperator, probeInput.iterator());
+        assertEquals(output.size(), 1);
+        Page page = output.get(0);
+        assertEquals(page.getPositionCount(), 10);
+        assertTrue(page.getBlock(1) instanceof DeferredBuildBlock);
+        assertTrue(page.getBlock(2) instanceof DeferredBuildBlock);
+
+        // the output size counts the build rows which are not copied yet
+        OperatorContext operatorContext = joinOperator.getOperatorContext();
+        operatorContext.recordGetOutput(new OperationTimer(false), page);
+        assertTrue(operatorContext.getOutputDataSize().getTotalCount() > page.getBlock(0).getSizeInBytes());
+        assertFalse(((DeferredBuildBlock) page.getBlock(1)).isLoaded());
+
+        // only the selected rows are copied
+        int[] positions = {1, 3, 8};
+        Block selectedKeys = page.getBlock(1).getPositions(positions, 0, positions.length);
+        Block selectedValues = page.getBlock(2).getPositions(positions, 0, positions.length);
+        assertEquals(selectedKeys.getPositionCount(), positions.length);
+        for (int i = 0; i < positions.length; i++) {
+            assertEquals(page.getBlock(0).getLong(positions[i]), 20L + positions[i]);
+            assertEquals(BIGINT.getLong(selectedKeys, i), 20L + positions[i]);
+            assertEquals(BIGINT.getLong(selectedValues, i), 30L + positions[i]);
+        }
+        Block region = page.getBlock(2).getRegion(2, 3);
+        for (int i = 0; i < region.getPositionCount(); i++) {
+            assertEquals(BIGINT.getLong(region, i), 32L + i);
+        }
+        assertFalse(((DeferredBuildBlock) page.getBlock(1)).isLoaded());
+        assertFalse(((DeferredBuildBlock) page.getBlock(2)).isLoaded());
+
+        // the rows still referenced are copied before the lookup source is released
+        assertTrue(finishOperator(joinOperator).isEmpty());
+        joinOperator.close();
+        for (int position = 0; position < page.getPositionCount(); position++) {
+            assertEquals(BIGINT.getLong(page.getBlock(1), position), 20L + position);
+            assertEquals(BIGINT.getLong(page.getBlock(2), position), 30L + position);
+        }
+        joinOperatorFactory.noMoreOperators();
+    }
+
     @Test
     public void testYield()
     {
@@ -335,6 +406,24 @@ public class TestHashJoinOperator
         innerJoinWithSpill(probeHashEnabled, whenSpill, SINGLE_STREAM_SPILLER_FACTORY, PARTITIONING_SPILLER_FACTORY);
     }
 
+    @Test(dataProvider = "joinWithSpillValues")
+    public void testInnerJoinWithSpillAndSplitUnspill(boolean probeHashEnabled, List<WhenSpill> whenSpill, boolean isDictionaryProcessingJoinEnabled)
+            throws Exception
+    {
+        // partitions spilled during build are split by the build operators before they are unspilled
+        Session session = testSessionBuilder().setSystemProperty(JOIN_UNSPILL_MEMORY_LIMIT, "64B").build();
+        innerJoinWithSpill(session, probeHashEnabled, whenSpill, SINGLE_STREAM_SPILLER_FACTORY, PARTITIONING_SPILLER_FACTORY);
+    }
+
+    @Test(dataProvider = "joinWithSpillValues")
+    public void testProbeOuterJoinWithSpillAndSplitUnspill(boolean probeHashEnabled, List<WhenSpill> whenSpill, boolean isDictionaryProcessingJoinEnabled)
+            throws Exception
+    {
+        // unmatched probe rows of a partition consumed in chunks are produced once, after its last chunk
+        Session session = testSessionBuilder().setSystemProperty(JOIN_UNSPILL_MEMORY_LIMIT, "64B").build();
+        joinWithSpill(session, probeHashEnabled, whenSpill, SINGLE_STREAM_SPILLER_FACTORY, PARTITIONING_SPILLER_FACTORY, true);
+    }
+
     @Test(dataProvider = "joinWithFailingSpillValues")
     public void testInnerJoinWithFailingSpill(boolean probeHashEnabled, List<WhenSpill> whenSpill, WhenSpillFails whenSpillFails, boolean isDictionaryProcessingJoinEnabled)
             throws Throwable
@@ -375,9 +464,21 @@ public class TestHashJoinOperator
 
     private void innerJoinWithSpill(boolean probeHashEnabled, List<WhenSpill> whenSpill, SingleStreamSpillerFactory buildSpillerFactory, PartitioningSpillerFactory joinSpillerFactory)
             throws Exception
+    {
+        innerJoinWithSpill(TEST_SESSION, probeHashEnabled, whenSpill, buildSpillerFactory, joinSpillerFactory);
+    }
+
+    private void innerJoinWithSpill(Session session, boolean probeHashEnabled, List<WhenSpill> whenSpill, SingleStreamSpillerFactory buildSpillerFactory, PartitioningSpillerFactory joinSpillerFactory)
+            throws Exception
+    {
+        joinWithSpill(session, probeHashEnabled, whenSpill, buildSpillerFactory, joinSpillerFactory, false);
+    }
+
+    private void joinWithSpill(Session session, boolean probeHashEnabled, List<WhenSpill> whenSpill, SingleStreamSpillerFactory buildSpillerFactory, PartitioningSpillerFactory joinSpillerFactory, boolean probeOuter)
+            throws Exception
     {
         TaskStateMachine taskStateMachine = new TaskStateMachine(new TaskId("query", 0, 0, 0, 0), executor);
-        TaskContext taskContext = TestingTaskContext.createTaskContext(executor, scheduledExecutor, TEST_SESSION, taskStateMachine);
+        TaskContext taskContext = TestingTaskContext.createTaskContext(executor, scheduledExecutor, session, taskStateMachine);
 
         DriverContext joinDriverContext = taskContext.addPipelineContext(2, true, true, false).addDriverContext();
 
@@ -407,7 +508,9 @@ public class TestHashJoinOperator
                 .pageBreak()
                 .addSequencePage(20, 0, 123_000)
                 .addSequencePage(10, 30, 123_000);
-        OperatorFactory joinOperatorFactory = innerJoinOperatorFactory(lookupSourceFactoryManager, probePages, joinSpillerFactory);
+        OperatorFactory joinOperatorFactory = probeOuter
+                ? probeOuterJoinOperatorFactory(lookupSourceFactoryManager, probePages, joinSpillerFactory)
+                : innerJoinOperatorFactory(lookupSourceFactoryManager, probePages, joinSpillerFactory);
 
         // build drivers and operators
         instantiateBuildDrivers(buildSideSetup, taskContext);
@@ -474,7 +577,7 @@ public class TestHashJoinOperator
 
             List<Page> actualPages = getPages(pageBuffer);
 
-            MaterializedResult expected = MaterializedResult.resultBuilder(taskContext.getSession(), concat(probePages.getTypesWithoutHash(), buildPages.getTypesWithoutHash()))
+            MaterializedResult.Builder expectedBuilder = MaterializedResult.resultBuilder(taskContext.getSession(), concat(probePages.getTypesWithoutHash(), buildPages.getTypesWithoutHash()))
                     .row("20", 123_000L, "20", 200L)
                     .row("20", 123_000L, "20", 200L)
                     .row("20", 123_000L, "20", 200L)
@@ -482,8 +585,16 @@ public class TestHashJoinOperator
                     .row("30", 123_000L, "30", 300L)
                     .row("31", 123_001L, "31", 301L)
                     .row("32", 123_002L, "32", 302L)
-                    .row("33", 123_003L, "33", 303L)
-                    .build();
+                    .row("33", 123_003L, "33", 303L);
+            if (probeOuter) {
+                for (int i = 0; i < 20; i++) {
+                    expectedBuilder.row(String.valueOf(i), 123_000L + i, null, null);
+                }
+                for (int i = 4; i < 10; i++) {
+                    expectedBuilder.row(String.valueOf(30 + i), 123_000L + i, null, null);
+                }
+            }
+            MaterializedResult expected = expectedBuilder.build();
 
             assertEqualsIgnoreOrder(getProperColumns(joinOperator, concat(probePages.getTypes(), buildPages.getTypes()), probePages, actualPages).getMaterializedRows(), expected.getMaterializedRows());
         }
@@ -1479,6 +1590,14 @@ public class TestHashJoinOperator
     }
 
     private OperatorFactory probeOuterJoinOperatorFactory(JoinBridgeManager<PartitionedLookupSourceFactory> lookupSourceFactoryManager, RowPagesBuilder probePages)
+    {
+        return probeOuterJoinOperatorFactory(lookupSourceFactoryManager, probePages, PARTITIONING_SPILLER_FACTORY);
+    }
+
+    private OperatorFactory probeOuterJoinOperatorFactory(
+            JoinBridgeManager<PartitionedLookupSourceFactory> lookupSourceFactoryManager,
+            RowPagesBuilder probePages,
+            PartitioningSpillerFactory partitioningSpillerFactory)
     {
         return LOOKUP_JOIN_OPERATORS.probeOuterJoin(
                 0,
@@ -1489,7 +1608,7 @@ public class TestHashJoinOperator
                 getHashChannelAsInt(probePages),
                 Optional.empty(),
                 OptionalInt.of(1),
-                PARTITIONING_SPILLER_FACTORY,
+                partitioningSpillerFactory,
                 false);
     }
 
@@ -1604,7 +1723,8 @@ public class TestHashJoinOperator
                 new PagesIndex.TestingFactory(false),
                 spillEnabled,
                 singleStreamSpillerFactory,
-                enforceBroadcastMemoryLimit);
+                enforceBroadcastMemoryLimit,
+                executor);
         return new BuildSideSetup(lookupSourceFactoryManager, buildOperatorFactory, sourceOperatorFactory, partitionCount);
     }
 
@@ -0,0 +1,183 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.PageBuilder;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.operator.JoinProbe.JoinProbeFactory;
+import com.facebook.presto.operator.exchange.LocalPartitionGenerator;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.function.Supplier;
+
+import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.operator.PartitionedLookupSource.createPartitionedLookupSourceSupplier;
+import static com.facebook.presto.type.TypeUtils.getHashBlock;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestJoinProbe
+{
+    private static final int BUILD_KEYS = 1_000;
+    // absent keys on both ends of the build key range
+    private static final int PROBE_KEYS = BUILD_KEYS + 100;
+    // page sizes that put the batch boundaries at different positions of the probe rows
+    private static final List<Integer> PROBE_PAGE_SIZES = ImmutableList.of(1, 2, 7, 64, 333, PROBE_KEYS);
+
+    @Test
+    public void testBatchedLookup()
+    {
+        try (LookupSource lookupSource = createLookupSource(1)) {
+            assertTrue(lookupSource.isBatchLookupSupported());
+            assertProbe(lookupSource, false);
+            assertProbe(lookupSource, true);
+        }
+    }
+
+    @Test
+    public void testBatchedPartitionedLookup()
+    {
+        try (LookupSource lookupSource = createLookupSource(4)) {
+            assertTrue(lookupSource.isBatchLookupSupported());
+            assertProbe(lookupSource, false);
+            assertProbe(lookupSource, true);
+        }
+    }
+
+    private static void assertProbe(LookupSource lookupSource, boolean precomputedHash)
+    {
+        JoinProbeFactory joinProbeFactory = new JoinProbeFactory(new int[] {0}, ImmutableList.of(0), precomputedHash ? OptionalInt.of(1) : OptionalInt.empty());
+        for (int pageSize : PROBE_PAGE_SIZES) {
+            for (int start = 0; start < PROBE_KEYS; start += pageSize) {
+                Page page = createProbePage(start, Math.min(start + pageSize, PROBE_KEYS), precomputedHash);
+                Page hashChannelsPage = new Page(page.getBlock(0));
+                JoinProbe probe = joinProbeFactory.createJoinProbe(page);
+                int nullRowCount = 0;
+                while (probe.advanceNextPosition()) {
+                    int position = probe.getPosition();
+                    long joinPosition = probe.getCurrentJoinPosition(lookupSource);
+                    if (page.getBlock(0).isNull(position)) {
+                        assertEquals(joinPosition, -1);
+                        nullRowCount++;
+                        continue;
+                    }
+
+                    // the batched lookup must find the same first match as the per row lookup
+                    assertEquals(joinPosition, lookupSource.getJoinPosition(position, hashChannelsPage, page));
+                    long key = BIGINT.getLong(page.getBlock(0), position);
+                    assertEquals(getMatches(lookupSource, joinPosition, position, page), getExpectedMatches(key), "matches of key " + key);
+                }
+                assertEquals(probe.getNullRowCount(), nullRowCount);
+            }
+        }
+    }
+
+    private static List<Long> getMatches(LookupSource lookupSource, long joinPosition, int probePosition, Page page)
+    {
+        PageBuilder pageBuilder = new PageBuilder(ImmutableList.of(BIGINT));
+        while (joinPosition >= 0) {
+            lookupSource.appendTo(joinPosition, pageBuilder, 0);
+            pageBuilder.declarePosition();
+            joinPosition = lookupSource.getNextJoinPosition(joinPosition, probePosition, page);
+        }
+        Block block = pageBuilder.build().getBlock(0);
+        List<Long> matches = new ArrayList<>();
+        for (int position = 0; position < block.getPositionCount(); position++) {
+            matches.add(BIGINT.getLong(block, position));
+        }
+        return matches;
+    }
+
+    private static List<Long> getExpectedMatches(long key)
+    {
+        List<Long> matches = new ArrayList<>();
+        if (key >= 0 && key < BUILD_KEYS) {
+            for (int i = 0; i < getDuplicateCount(key); i++) {
+                matches.add(key);
+            }
+        }
+        return matches;
+    }
+
+    private static int getDuplicateCount(long key)
+    {
+        return (int) (key % 3) + 1;
+    }
+
+    /**
+     * Probes the keys from -50 to {@code BUILD_KEYS + 50} for the given range of row indexes,
+     * with a null key in every 10th row.
+     */
+    private static Page createProbePage(int start, int end, boolean precomputedHash)
+    {
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, end - start);
+        for (int row = start; row < end; row++) {
+            if (row % 10 == 9) {
+                blockBuilder.appendNull();
+            }
+            else {
+                BIGINT.writeLong(blockBuilder, row - 50);
+            }
+        }
+        Block keyBlock = blockBuilder.build();
+        if (!precomputedHash) {
+            return new Page(keyBlock);
+        }
+        return new Page(keyBlock, getHashBlock(ImmutableList.of(BIGINT), keyBlock));
+    }
+
+    private static LookupSource createLookupSource(int partitionCount)
+    {
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, BUILD_KEYS * 3);
+        for (long key = 0; key < BUILD_KEYS; key++) {
+            for (int i = 0; i < getDuplicateCount(key); i++) {
+                BIGINT.writeLong(blockBuilder, key);
+            }
+        }
+        Page buildPage = new Page(blockBuilder.build());
+        if (partitionCount == 1) {
+            return createJoinHash(buildPage).get();
+        }
+
+        LocalPartitionGenerator partitionGenerator = new LocalPartitionGenerator(InterpretedHashGenerator.createPositionalWithTypes(ImmutableList.of(BIGINT)), partitionCount);
+        List<List<Integer>> partitionPositions = new ArrayList<>();
+        for (int partition = 0; partition < partitionCount; partition++) {
+            partitionPositions.add(new ArrayList<>());
+        }
+        for (int position = 0; position < buildPage.getPositionCount(); position++) {
+            partitionPositions.get(partitionGenerator.getPartition(buildPage, position)).add(position);
+        }
+
+        ImmutableList.Builder<Supplier<LookupSource>> partitions = ImmutableList.builder();
+        for (List<Integer> positions : partitionPositions) {
+            int[] positionArray = positions.stream().mapToInt(Integer::intValue).toArray();
+            partitions.add(createJoinHash(buildPage.getPositions(positionArray, 0, positionArray.length)));
+        }
+        return createPartitionedLookupSourceSupplier(partitions.build(), ImmutableList.of(BIGINT), false).getLookupSource();
+    }
+
+    private static Supplier<LookupSource> createJoinHash(Page page)
+    {
+        PagesIndex pagesIndex = new PagesIndex.TestingFactory(false).newPagesIndex(ImmutableList.of(BIGINT), page.getPositionCount());
+        pagesIndex.addPage(page);
+        return pagesIndex.createLookupSourceSupplier(TEST_SESSION, ImmutableList.of(0));
+    }
+}
@@ -18,6 +18,7 @@ import com.facebook.presto.common.PageBuilder;
 import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.block.BlockBuilder;
 import com.facebook.presto.common.block.DictionaryBlock;
+import com.facebook.presto.common.block.LazyBlock;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.operator.JoinProbe.JoinProbeFactory;
 import com.google.common.collect.ImmutableList;
@@ -27,6 +28,7 @@ import java.util.List;
 import java.util.OptionalInt;
 
 import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.google.common.base.Preconditions.checkState;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
@@ -175,11 +177,72 @@ public class TestLookupJoinPageBuilder
         assertTrue(lookupJoinPageBuilder.isFull());
     }
 
+    @Test
+    public void testDeferredBuildRows()
+    {
+        int entries = 1_000;
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, entries);
+        for (int i = 0; i < entries; i++) {
+            BIGINT.writeLong(blockBuilder, i);
+        }
+        Block block = blockBuilder.build();
+        Page page = new Page(block, block);
+
+        JoinProbeFactory joinProbeFactory = new JoinProbeFactory(new int[] {0}, ImmutableList.of(0), OptionalInt.empty());
+        TestLookupSource lookupSource = new TestLookupSource(ImmutableList.of(BIGINT, BIGINT), page);
+        LookupJoinPageBuilder lookupJoinPageBuilder = new LookupJoinPageBuilder(ImmutableList.of(BIGINT, BIGINT), true);
+
+        // loaded by a downstream operator while the lookup source is still alive
+        JoinProbe probe = joinProbeFactory.createJoinProbe(page);
+        for (int joinPosition = 0; probe.advanceNextPosition(); joinPosition++) {
+            lookupJoinPageBuilder.appendRow(probe, lookupSource, entries - 1 - joinPosition);
+        }
+        Page loaded = lookupJoinPageBuilder.build(probe);
+        lookupJoinPageBuilder.reset();
+        assertEquals(loaded.getChannelCount(), 3);
+        assertTrue(loaded.getBlock(1) instanceof LazyBlock);
+        assertTrue(loaded.getBlock(2) instanceof LazyBlock);
+        assertFalse(((LazyBlock) loaded.getBlock(1)).isLoaded());
+        for (int i = 0; i < entries; i++) {
+            assertEquals(loaded.getBlock(0).getLong(i), i);
+            assertEquals(loaded.getBlock(1).getLong(i), entries - 1 - i);
+            assertEquals(loaded.getBlock(2).getLong(i), entries - 1 - i);
+        }
+
+        // still referenced downstream when the lookup source is released
+        probe = joinProbeFactory.createJoinProbe(page);
+        for (int joinPosition = 0; probe.advanceNextPosition(); joinPosition++) {
+            if (joinPosition % 2 == 0) {
+                lookupJoinPageBuilder.appendRow(probe, lookupSource, joinPosition);
+            }
+            else {
+                lookupJoinPageBuilder.appendNullForBuild(probe);
+            }
+        }
+        Page pending = lookupJoinPageBuilder.build(probe);
+        lookupJoinPageBuilder.reset();
+        assertFalse(((LazyBlock) pending.getBlock(1)).isLoaded());
+
+        lookupJoinPageBuilder.materializePendingBuildRows();
+        lookupSource.release();
+        for (int i = 0; i < entries; i++) {
+            if (i % 2 == 0) {
+                assertEquals(pending.getBlock(1).getLong(i), i);
+                assertEquals(pending.getBlock(2).getLong(i), i);
+            }
+            else {
+                assertTrue(pending.getBlock(1).isNull(i));
+                assertTrue(pending.getBlock(2).isNull(i));
+            }
+        }
+    }
+
     private final class TestLookupSource
             implements LookupSource
     {
         private final List<Type> types;
         private final Page page;
+        private boolean released;
 
         public TestLookupSource(List<Type> types, Page page)
         {
@@ -202,7 +265,7 @@ public class TestLookupJoinPageBuilder
         @Override
         public long getJoinPositionCount()
         {
-            throw new UnsupportedOperationException();
+            return page.getPositionCount();
         }
 
         @Override
@@ -214,7 +277,7 @@ public class TestLookupJoinPageBuilder
         @Override
         public long getInMemorySizeInBytes()
         {
-            throw new UnsupportedOperationException();
+            return page.getRetainedSizeInBytes();
         }
 
         @Override
@@ -244,6 +307,7 @@ public class TestLookupJoinPageBuilder
         @Override
         public void appendTo(long position, PageBuilder pageBuilder, int outputChannelOffset)
         {
+            checkState(!released, "lookup source is released");
             for (int i = 0; i < types.size(); i++) {
                 types.get(i).appendTo(page.getBlock(i), (int) position, pageBuilder.getBlockBuilder(i));
             }
@@ -253,5 +317,10 @@ public class TestLookupJoinPageBuilder
         public void close()
         {
         }
+
+        public void release()
+        {
+            released = true;
+        }
     }
 }
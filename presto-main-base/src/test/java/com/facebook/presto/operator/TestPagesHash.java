@@ -0,0 +1,104 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.BlockBuilder;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.OptionalInt;
+import java.util.concurrent.ExecutorService;
+
+import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestPagesHash
+{
+    private static final int DISTINCT_KEYS = 300_000;
+    private static final int DUPLICATES = 4;
+    private static final int POSITIONS_PER_PAGE = 10_000;
+
+    private ExecutorService executor;
+
+    @BeforeClass
+    public void setUp()
+    {
+        executor = newFixedThreadPool(4, daemonThreadsNamed("test-pages-hash-%s"));
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentBuild()
+    {
+        PagesIndex pagesIndex = new PagesIndex.TestingFactory(false).newPagesIndex(ImmutableList.of(BIGINT), DISTINCT_KEYS * DUPLICATES);
+        for (int start = 0; start < DISTINCT_KEYS * DUPLICATES; start += POSITIONS_PER_PAGE) {
+            BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, POSITIONS_PER_PAGE);
+            for (int position = start; position < start + POSITIONS_PER_PAGE; position++) {
+                BIGINT.writeLong(blockBuilder, position % DISTINCT_KEYS);
+            }
+            pagesIndex.addPage(new Page(blockBuilder.build()));
+        }
+
+        PagesHashStrategy strategy = pagesIndex.createPagesHashStrategy(ImmutableList.of(0), OptionalInt.empty());
+        PositionLinks.FactoryBuilder linksBuilder = ArrayPositionLinks.builder(pagesIndex.getPositionCount());
+        PagesHash pagesHash = new PagesHash(pagesIndex.getValueAddresses(), pagesIndex.getPositionCount(), strategy, linksBuilder, 4, executor);
+        assertEquals(pagesHash.getBuildThreads(), 4);
+        assertEquals(pagesHash.getPositionIsNullCount(), 0);
+        assertTrue(pagesHash.getBuildWallNanos() > 0);
+
+        PositionLinks positionLinks = linksBuilder.build().create(ImmutableList.of());
+        BlockBuilder probeBuilder = BIGINT.createBlockBuilder(null, DISTINCT_KEYS);
+        for (int key = 0; key < DISTINCT_KEYS; key++) {
+            BIGINT.writeLong(probeBuilder, key);
+        }
+        Page probePage = new Page(probeBuilder.build());
+
+        for (int key = 0; key < DISTINCT_KEYS; key++) {
+            int position = pagesHash.getAddressIndex(key, probePage);
+            int matches = 0;
+            while (position != -1) {
+                assertEquals(pagesIndex.getLong(0, position), key);
+                matches++;
+                position = positionLinks.next(position, key, probePage);
+            }
+            assertEquals(matches, DUPLICATES, "matches of key " + key);
+        }
+    }
+
+    @Test
+    public void testSmallBuildStaysSingleThreaded()
+    {
+        PagesIndex pagesIndex = new PagesIndex.TestingFactory(false).newPagesIndex(ImmutableList.of(BIGINT), 10);
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, 10);
+        for (int i = 0; i < 10; i++) {
+            BIGINT.writeLong(blockBuilder, i);
+        }
+        pagesIndex.addPage(new Page(blockBuilder.build()));
+
+        PagesHashStrategy strategy = pagesIndex.createPagesHashStrategy(ImmutableList.of(0), OptionalInt.empty());
+        PagesHash pagesHash = new PagesHash(pagesIndex.getValueAddresses(), pagesIndex.getPositionCount(), strategy, ArrayPositionLinks.builder(10), 4, executor);
+        assertEquals(pagesHash.getBuildThreads(), 1);
+    }
+}
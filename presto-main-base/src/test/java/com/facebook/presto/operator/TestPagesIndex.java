@@ -14,16 +14,30 @@
 package com.facebook.presto.operator;
 
 import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.common.block.SortOrder;
 import com.facebook.presto.common.type.Type;
+import com.facebook.presto.memory.TestingMemoryContext;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
 import org.testng.annotations.Test;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import static com.facebook.presto.SequencePageBuilder.createSequencePage;
+import static com.facebook.presto.common.block.SortOrder.ASC_NULLS_FIRST;
+import static com.facebook.presto.common.block.SortOrder.ASC_NULLS_LAST;
+import static com.facebook.presto.common.block.SortOrder.DESC_NULLS_FIRST;
+import static com.facebook.presto.common.block.SortOrder.DESC_NULLS_LAST;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.DoubleType.DOUBLE;
+import static com.facebook.presto.common.type.IntegerType.INTEGER;
 import static com.facebook.presto.common.type.VarcharType.VARCHAR;
+import static io.airlift.slice.SizeOf.sizeOfLongArray;
+import static io.airlift.slice.Slices.utf8Slice;
 import static java.lang.String.format;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
@@ -82,6 +96,100 @@ public class TestPagesIndex
         assertEquals(lazyCompactPagesIndex.getEstimatedSize(), eagerCompactPagesIndex.getEstimatedSize());
     }
 
+    @Test
+    public void testNormalizedKeySort()
+    {
+        List<Type> types = ImmutableList.of(BIGINT, DOUBLE, VARCHAR, INTEGER);
+        List<Page> pages = randomPages(types, new Random(42), 5, 1000);
+
+        for (SortOrder sortOrder : ImmutableList.of(ASC_NULLS_FIRST, ASC_NULLS_LAST, DESC_NULLS_FIRST, DESC_NULLS_LAST)) {
+            assertSortMatches(types, pages, ImmutableList.of(0, 1), ImmutableList.of(sortOrder, ASC_NULLS_LAST));
+            assertSortMatches(types, pages, ImmutableList.of(1, 3), ImmutableList.of(sortOrder, DESC_NULLS_FIRST));
+            // the varchar prefix is followed by a tie break on the remaining channels
+            assertSortMatches(types, pages, ImmutableList.of(2, 0), ImmutableList.of(sortOrder, ASC_NULLS_FIRST));
+            assertSortMatches(types, pages, ImmutableList.of(3, 2, 1), ImmutableList.of(sortOrder, sortOrder, sortOrder));
+        }
+    }
+
+    @Test
+    public void testNormalizedKeySortReportsMemory()
+    {
+        List<Type> types = ImmutableList.of(BIGINT);
+        PagesIndex pagesIndex = new PagesIndex.TestingFactory(false, true).newPagesIndex(types, 1000);
+        randomPages(types, new Random(42), 1, 1000).forEach(pagesIndex::addPage);
+
+        PeakMemoryContext sortMemoryContext = new PeakMemoryContext();
+        pagesIndex.sort(ImmutableList.of(0), ImmutableList.of(ASC_NULLS_LAST), sortMemoryContext);
+        // the encoded keys and their scatter buffer hold at least one word per position each
+        assertTrue(sortMemoryContext.getPeakBytes() >= 2 * sizeOfLongArray(pagesIndex.getPositionCount()));
+        assertEquals(sortMemoryContext.getBytes(), 0);
+    }
+
+    private static void assertSortMatches(List<Type> types, List<Page> pages, List<Integer> sortChannels, List<SortOrder> sortOrders)
+    {
+        PagesIndex expected = new PagesIndex.TestingFactory(false, false).newPagesIndex(types, 1000);
+        PagesIndex actual = new PagesIndex.TestingFactory(false, true).newPagesIndex(types, 1000);
+        pages.forEach(expected::addPage);
+        pages.forEach(actual::addPage);
+
+        expected.sort(sortChannels, sortOrders);
+        actual.sort(sortChannels, sortOrders);
+
+        assertEquals(actual.getPositionCount(), expected.getPositionCount());
+        for (int position = 0; position < expected.getPositionCount(); position++) {
+            // rows with equal keys may come out in either order, so only the sort keys are compared
+            for (int channel : sortChannels) {
+                Type type = types.get(channel);
+                Block expectedValue = expected.getSingleValueBlock(channel, position);
+                Block actualValue = actual.getSingleValueBlock(channel, position);
+                assertEquals(actualValue.isNull(0), expectedValue.isNull(0), format("null mismatch at position %s of channel %s", position, channel));
+                if (!expectedValue.isNull(0)) {
+                    assertEquals(type.compareTo(actualValue, 0, expectedValue, 0), 0, format("value mismatch at position %s of channel %s", position, channel));
+                }
+            }
+        }
+    }
+
+    private static List<Page> randomPages(List<Type> types, Random random, int pageCount, int positionsPerPage)
+    {
+        double[] doubles = {Double.NaN, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, -0.0, 0.0, -1.5, 1.5};
+        String[] prefixes = {"", "a", "same-long-prefix-", "same-long-prefix-x", "z"};
+        ImmutableList.Builder<Page> pages = ImmutableList.builder();
+        for (int page = 0; page < pageCount; page++) {
+            BlockBuilder[] builders = new BlockBuilder[types.size()];
+            for (int channel = 0; channel < types.size(); channel++) {
+                builders[channel] = types.get(channel).createBlockBuilder(null, positionsPerPage);
+            }
+            for (int position = 0; position < positionsPerPage; position++) {
+                for (int channel = 0; channel < types.size(); channel++) {
+                    if (random.nextInt(10) == 0) {
+                        builders[channel].appendNull();
+                        continue;
+                    }
+                    Type type = types.get(channel);
+                    if (type == DOUBLE) {
+                        DOUBLE.writeDouble(builders[channel], doubles[random.nextInt(doubles.length)]);
+                    }
+                    else if (type == VARCHAR) {
+                        VARCHAR.writeSlice(builders[channel], utf8Slice(prefixes[random.nextInt(prefixes.length)] + random.nextInt(20)));
+                    }
+                    else if (type == INTEGER) {
+                        INTEGER.writeLong(builders[channel], random.nextInt(7) - 3);
+                    }
+                    else {
+                        type.writeLong(builders[channel], random.nextLong() >> random.nextInt(64));
+                    }
+                }
+            }
+            Block[] blocks = new Block[types.size()];
+            for (int channel = 0; channel < types.size(); channel++) {
+                blocks[channel] = builders[channel].build();
+            }
+            pages.add(new Page(blocks));
+        }
+        return pages.build();
+    }
+
     private static PagesIndex newPagesIndex(List<Type> types, int expectedPositions, boolean eagerCompact)
     {
         return new PagesIndex.TestingFactory(eagerCompact).newPagesIndex(types, expectedPositions);
@@ -93,4 +201,27 @@ public class TestPagesIndex
         Arrays.setAll(initialValues, i -> 100 * i);
         return createSequencePage(types, 7, initialValues);
     }
+
+    private static class PeakMemoryContext
+            extends TestingMemoryContext
+    {
+        private long peakBytes;
+
+        public PeakMemoryContext()
+        {
+            super(Long.MAX_VALUE);
+        }
+
+        @Override
+        public ListenableFuture<?> setBytes(long bytes)
+        {
+            peakBytes = Math.max(peakBytes, bytes);
+            return super.setBytes(bytes);
+        }
+
+        public long getPeakBytes()
+        {
+            return peakBytes;
+        }
+    }
 }
@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.operator.SpilledPartitionLayout.Split;
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.facebook.presto.operator.SpilledPartitionLayout.getSubPartition;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestSpilledPartitionLayout
+{
+    @Test
+    public void testSingleRound()
+    {
+        SpilledPartitionLayout layout = SpilledPartitionLayout.singleRound();
+        assertFalse(layout.isRepartitioned());
+        assertEquals(layout.getRoundCount(), 1);
+        assertTrue(layout.isLastChunk(0));
+    }
+
+    @Test
+    public void testRepartitioned()
+    {
+        Split root = new Split(3);
+        assertEquals(root.addLeaf(0, 1), 0);
+        Split child = root.split(1, 2);
+        assertEquals(root.addLeaf(2, 3), 1);
+        assertEquals(child.addLeaf(0, 1), 2);
+        assertEquals(child.addLeaf(1, 2), 3);
+
+        SpilledPartitionLayout layout = SpilledPartitionLayout.repartitioned(root);
+        assertTrue(layout.isRepartitioned());
+        assertEquals(layout.getLeafCount(), 4);
+        assertEquals(layout.getMaxChunkCount(), 3);
+        assertEquals(layout.getRoundCount(), 7);
+
+        // chunks of a leaf are consumed in consecutive rounds
+        int[] expectedLeaves = {0, 1, 1, 1, 2, 3, 3};
+        int[] expectedChunks = {0, 0, 1, 2, 0, 0, 1};
+        for (int round = 0; round < layout.getRoundCount(); round++) {
+            assertEquals(layout.getRoundLeaf(round), expectedLeaves[round]);
+            assertEquals(layout.getRoundChunk(round), expectedChunks[round]);
+        }
+        assertFalse(layout.isLastChunk(2));
+        assertTrue(layout.isLastChunk(3));
+
+        Set<Integer> seenLeaves = new HashSet<>();
+        for (long hash = 0; hash < 10_000; hash++) {
+            int expectedLeaf;
+            switch (getSubPartition(hash, 0, 3)) {
+                case 0:
+                    expectedLeaf = 0;
+                    break;
+                case 1:
+                    expectedLeaf = getSubPartition(hash, 1, 2) == 0 ? 2 : 3;
+                    break;
+                default:
+                    expectedLeaf = 1;
+            }
+            assertEquals(layout.getLeaf(hash), expectedLeaf);
+            seenLeaves.add(expectedLeaf);
+        }
+        assertEquals(seenLeaves.size(), 4);
+    }
+
+    @Test
+    public void testLevelsUseDifferentHashes()
+    {
+        // rows of a single sub-partition must spread over the sub-partitions of the next level
+        Set<Integer> nextLevelPartitions = new HashSet<>();
+        for (long hash = 0; hash < 10_000; hash++) {
+            if (getSubPartition(hash, 0, 4) == 0) {
+                nextLevelPartitions.add(getSubPartition(hash, 1, 4));
+            }
+        }
+        assertEquals(nextLevelPartitions.size(), 4);
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.exchange;
+
+import com.facebook.airlift.units.DataSize;
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.execution.Lifespan;
+import com.facebook.presto.operator.exchange.LocalExchange.LocalExchangeFactory;
+import com.facebook.presto.operator.exchange.LocalExchange.LocalExchangeSinkFactory;
+import com.facebook.presto.operator.exchange.LocalExchange.LocalExchangeSinkFactoryId;
+import com.facebook.presto.sql.planner.PartitioningProviderManager;
+import com.google.common.collect.ImmutableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.facebook.airlift.concurrent.MoreFutures.getFutureValue;
+import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.facebook.airlift.units.DataSize.Unit.MEGABYTE;
+import static com.facebook.presto.SequencePageBuilder.createSequencePage;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.DoubleType.DOUBLE;
+import static com.facebook.presto.common.type.VarcharType.VARCHAR;
+import static com.facebook.presto.operator.PipelineExecutionStrategy.UNGROUPED_EXECUTION;
+import static com.facebook.presto.sql.planner.SystemPartitioningHandle.FIXED_HASH_DISTRIBUTION;
+import static com.facebook.presto.testing.TestingSession.testSessionBuilder;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.testng.Assert.assertEquals;
+
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(3)
+@Warmup(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+public class BenchmarkLocalExchange
+{
+    private static final List<Type> TYPES = ImmutableList.of(BIGINT, DOUBLE, VARCHAR);
+    private static final int PAGES_PER_WRITER = 200;
+    private static final int POSITIONS_PER_PAGE = 1024;
+
+    @State(Scope.Thread)
+    public static class BenchmarkContext
+    {
+        @Param({"1", "8"})
+        private int writerCount = 8;
+
+        @Param({"4", "16"})
+        private int partitionCount = 16;
+
+        private ExecutorService executor;
+        private List<Page> pages;
+        private LocalExchangeSinkFactoryId sinkFactoryId;
+
+        @Setup
+        public void setup()
+        {
+            executor = newCachedThreadPool(daemonThreadsNamed("local-exchange-benchmark-%s"));
+            ImmutableList.Builder<Page> pages = ImmutableList.builder();
+            for (int i = 0; i < PAGES_PER_WRITER; i++) {
+                pages.add(createSequencePage(TYPES, POSITIONS_PER_PAGE, i * POSITIONS_PER_PAGE, i * POSITIONS_PER_PAGE, i * POSITIONS_PER_PAGE));
+            }
+            this.pages = pages.build();
+        }
+
+        @TearDown
+        public void cleanup()
+        {
+            executor.shutdownNow();
+        }
+
+        public LocalExchange createExchange()
+        {
+            LocalExchangeFactory factory = new LocalExchangeFactory(
+                    new PartitioningProviderManager(),
+                    testSessionBuilder().build(),
+                    FIXED_HASH_DISTRIBUTION,
+                    partitionCount,
+                    TYPES,
+                    ImmutableList.of(0),
+                    Optional.empty(),
+                    UNGROUPED_EXECUTION,
+                    new DataSize(32, MEGABYTE));
+            sinkFactoryId = factory.newSinkFactoryId();
+            factory.noMoreSinkFactories();
+            return factory.getLocalExchange(Lifespan.taskWide());
+        }
+    }
+
+    @Benchmark
+    public long partitionedExchange(BenchmarkContext context)
+            throws Exception
+    {
+        LocalExchange exchange = context.createExchange();
+        LocalExchangeSinkFactory sinkFactory = exchange.getSinkFactory(context.sinkFactoryId);
+        List<LocalExchangeSink> sinks = new ArrayList<>();
+        for (int i = 0; i < context.writerCount; i++) {
+            sinks.add(sinkFactory.createSink());
+        }
+        sinkFactory.close();
+        sinkFactory.noMoreSinkFactories();
+
+        List<Future<Long>> readers = new ArrayList<>();
+        for (int partition = 0; partition < context.partitionCount; partition++) {
+            LocalExchangeSource source = exchange.getSource(partition);
+            readers.add(context.executor.submit(() -> drain(source)));
+        }
+        List<Future<?>> writers = new ArrayList<>();
+        for (LocalExchangeSink sink : sinks) {
+            writers.add(context.executor.submit(() -> write(sink, context.pages)));
+        }
+
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        long positions = 0;
+        for (Future<Long> reader : readers) {
+            positions += reader.get();
+        }
+        return positions;
+    }
+
+    private static void write(LocalExchangeSink sink, List<Page> pages)
+    {
+        for (Page page : pages) {
+            getFutureValue(sink.waitForWriting());
+            sink.addPage(page);
+        }
+        sink.finish();
+    }
+
+    private static long drain(LocalExchangeSource source)
+    {
+        long positions = 0;
+        while (true) {
+            Page page = source.removePage();
+            if (page != null) {
+                positions += page.getPositionCount();
+            }
+            else if (source.isFinished()) {
+                return positions;
+            }
+            else {
+                getFutureValue(source.waitForReading());
+            }
+        }
+    }
+
+    @Test
+    public void testBenchmark()
+            throws Exception
+    {
+        BenchmarkContext context = new BenchmarkContext();
+        context.setup();
+        try {
+            assertEquals(partitionedExchange(context), (long) context.writerCount * PAGES_PER_WRITER * POSITIONS_PER_PAGE);
+        }
+        finally {
+            context.cleanup();
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkLocalExchange.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
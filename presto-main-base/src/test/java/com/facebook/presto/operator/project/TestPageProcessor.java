@@ -18,6 +18,7 @@ import com.facebook.airlift.units.Duration;
 import com.facebook.presto.block.BlockAssertions;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.DictionaryBlock;
 import com.facebook.presto.common.block.LazyBlock;
 import com.facebook.presto.common.block.VariableWidthBlock;
 import com.facebook.presto.common.function.SqlFunctionProperties;
@@ -75,6 +76,7 @@ import static com.facebook.presto.sql.relational.Expressions.constant;
 import static com.facebook.presto.sql.relational.Expressions.field;
 import static com.facebook.presto.testing.TestingConnectorSession.SESSION;
 import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.Iterables.getOnlyElement;
 import static java.lang.String.join;
 import static java.util.Collections.nCopies;
 import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
@@ -251,6 +253,21 @@ public class TestPageProcessor
         assertPageEquals(ImmutableList.of(BIGINT), outputPages.get(0).orElse(null), new Page(createLongSequenceBlock(0, 100)));
     }
 
+    @Test
+    public void testListSelectionWrapsLazyBlock()
+    {
+        Block block = createLongSequenceBlock(0, 100);
+        LazyBlock lazyBlock = new LazyBlock(100, lazy -> lazy.setBlock(block));
+
+        // a lazy column of a connector is wrapped rather than copied position by position
+        Work<List<Block>> work = new InputPageProjection(0).project(SESSION.getSqlFunctionProperties(), new DriverYieldSignal(), new Page(lazyBlock), positionsList(new int[] {1, 3, 5}, 0, 3));
+        assertTrue(work.process());
+        Block result = getOnlyElement(work.getResult());
+        assertTrue(result instanceof DictionaryBlock);
+        assertEquals(result.getPositionCount(), 3);
+        assertEquals(BIGINT.getLong(result, 2), 5);
+    }
+
     @Test
     public void testBatchedOutput()
     {
@@ -19,6 +19,7 @@ import com.facebook.presto.Session;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.block.BlockEncodingManager;
+import com.facebook.presto.common.block.DictionaryBlock;
 import com.facebook.presto.common.block.RunLengthEncodedBlock;
 import com.facebook.presto.common.block.VariableWidthBlock;
 import com.facebook.presto.common.type.ArrayType;
@@ -99,9 +100,11 @@ import static com.facebook.presto.operator.PageAssertions.mergePages;
 import static com.facebook.presto.operator.PageAssertions.updateBlockTypesWithHashBlockAndNullBlock;
 import static com.facebook.presto.testing.TestingSession.testSessionBuilder;
 import static com.facebook.presto.tpch.TpchMetadata.TINY_SCHEMA_NAME;
+import static java.lang.String.format;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 public class TestOptimizedPartitionedOutputOperator
 {
@@ -698,6 +701,12 @@ public class TestOptimizedPartitionedOutputOperator
     }
 
     private void testPartitioned(List<Type> types, List<Page> pages, DataSize maxMemory, List<Integer> partitionChannel, HashGenerator hashGenerator)
+    {
+        testPartitioned(types, pages, maxMemory, partitionChannel, hashGenerator, false);
+        testPartitioned(types, pages, maxMemory, partitionChannel, hashGenerator, true);
+    }
+
+    private void testPartitioned(List<Type> types, List<Page> pages, DataSize maxMemory, List<Integer> partitionChannel, HashGenerator hashGenerator, boolean preserveDictionaries)
     {
         TestingPartitionedOutputBuffer outputBuffer = createPartitionedOutputBuffer();
         PartitionFunction partitionFunction = new LocalPartitionGenerator(hashGenerator, PARTITION_COUNT);
@@ -707,7 +716,8 @@ public class TestOptimizedPartitionedOutputOperator
                 partitionFunction,
                 outputBuffer,
                 OptionalInt.empty(),
-                maxMemory);
+                maxMemory,
+                preserveDictionaries);
 
         Map<Integer, List<Page>> expectedPageList = new HashMap<>();
 
@@ -824,6 +834,56 @@ public class TestOptimizedPartitionedOutputOperator
         verifyOutputSizes(operator, PARTITION_COUNT * PAGE_COUNT * TESTING_PAGE_WITH_RLE_BLOCK.getLogicalSizeInBytes(), PARTITION_COUNT * PAGE_COUNT * TESTING_PAGE_WITH_NULL_AND_RLE_BLOCK.getPositionCount());
     }
 
+    @Test
+    public void testPreserveDictionaries()
+    {
+        // All the pages share one low cardinality dictionary, and the last column is constant within a page
+        Block dictionary = createRandomStringBlock(100, 0.2f, 100);
+        List<Page> pages = new ArrayList<>();
+        for (int i = 0; i < PAGE_COUNT; i++) {
+            pages.add(new Page(
+                    createRandomLongsBlock(POSITION_COUNT, 0.0f),
+                    wrapBlock(dictionary, POSITION_COUNT, ImmutableList.of(DICTIONARY)),
+                    createRLEBlock(i, POSITION_COUNT)));
+        }
+        List<Type> types = ImmutableList.of(BIGINT, VARCHAR, BIGINT);
+
+        PartitionedOutputInfo flattenedInfo = getPartitionedOutputInfo(types, pages, createPartitionedOutputBuffer(), false);
+
+        TestingPartitionedOutputBuffer outputBuffer = createPartitionedOutputBuffer();
+        PartitionedOutputInfo preservedInfo = getPartitionedOutputInfo(types, pages, outputBuffer, true);
+        for (List<Page> partitionPages : outputBuffer.getPages().values()) {
+            for (Page page : partitionPages) {
+                assertTrue(page.getBlock(1) instanceof DictionaryBlock || page.getBlock(1) instanceof RunLengthEncodedBlock, page.getBlock(1).toString());
+            }
+        }
+
+        assertEquals(preservedInfo.getRowsAdded(), flattenedInfo.getRowsAdded());
+        assertTrue(
+                preservedInfo.getSerializedBytesAdded() * 2 < flattenedInfo.getSerializedBytesAdded(),
+                format("preserved: %s, flattened: %s", preservedInfo.getSerializedBytesAdded(), flattenedInfo.getSerializedBytesAdded()));
+
+        testPartitioned(types, pages, MAX_MEMORY);
+        testPartitioned(types, pages, new DataSize(1, KILOBYTE));
+    }
+
+    private PartitionedOutputInfo getPartitionedOutputInfo(List<Type> types, List<Page> pages, TestingPartitionedOutputBuffer outputBuffer, boolean preserveDictionaries)
+    {
+        OptimizedPartitionedOutputOperator operator = createOptimizedPartitionedOutputOperator(
+                types,
+                ImmutableList.of(0),
+                new LocalPartitionGenerator(new PrecomputedHashGenerator(0), PARTITION_COUNT),
+                outputBuffer,
+                OptionalInt.empty(),
+                MAX_MEMORY,
+                preserveDictionaries);
+        for (Page page : pages) {
+            operator.addInput(page);
+        }
+        operator.finish();
+        return (PartitionedOutputInfo) operator.getOperatorContext().getOperatorStats().getInfo();
+    }
+
     private static void processPages(OptimizedPartitionedOutputOperator operator, Page testingPageWithRleBlock)
     {
         for (int i = 0; i < PAGE_COUNT; i++) {
@@ -897,6 +957,18 @@ public class TestOptimizedPartitionedOutputOperator
             PartitionedOutputBuffer buffer,
             OptionalInt nullChannel,
             DataSize maxMemory)
+    {
+        return createOptimizedPartitionedOutputOperator(types, partitionChannel, partitionFunction, buffer, nullChannel, maxMemory, false);
+    }
+
+    private OptimizedPartitionedOutputOperator createOptimizedPartitionedOutputOperator(
+            List<Type> types,
+            List<Integer> partitionChannel,
+            PartitionFunction partitionFunction,
+            PartitionedOutputBuffer buffer,
+            OptionalInt nullChannel,
+            DataSize maxMemory,
+            boolean preserveDictionaries)
     {
         PagesSerdeFactory serdeFactory = new PagesSerdeFactory(new BlockEncodingManager(), CompressionCodec.NONE);
 
@@ -907,7 +979,7 @@ public class TestOptimizedPartitionedOutputOperator
                 false,
                 nullChannel);
 
-        OptimizedPartitionedOutputFactory operatorFactory = new OptimizedPartitionedOutputFactory(buffer, maxMemory);
+        OptimizedPartitionedOutputFactory operatorFactory = new OptimizedPartitionedOutputFactory(buffer, maxMemory, preserveDictionaries);
 
         return (OptimizedPartitionedOutputOperator) operatorFactory
                 .createOutputOperator(0, new PlanNodeId("plan-node-0"), types, Function.identity(), Optional.of(outputPartitioning), serdeFactory)
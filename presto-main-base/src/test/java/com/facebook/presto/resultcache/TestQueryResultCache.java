@@ -0,0 +1,130 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.resultcache;
+
+import com.facebook.airlift.units.DataSize;
+import com.facebook.presto.operator.PageBufferClient.PagesResponse;
+import com.facebook.presto.operator.RpcShuffleClient;
+import com.facebook.presto.spi.QueryId;
+import com.facebook.presto.spi.page.SerializedPage;
+import io.airlift.slice.Slices;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.facebook.airlift.units.DataSize.Unit.BYTE;
+import static com.facebook.airlift.units.DataSize.Unit.KILOBYTE;
+import static com.google.common.util.concurrent.Futures.getUnchecked;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestQueryResultCache
+{
+    private static final QueryId RECORDED_QUERY = new QueryId("recorded");
+    private static final QueryId SERVED_QUERY = new QueryId("served");
+
+    @Test
+    public void testRecordAndServe()
+    {
+        QueryResultCache cache = new QueryResultCache(new QueryResultCacheConfig());
+        AtomicBoolean served = new AtomicBoolean();
+        assertFalse(cache.serve(SERVED_QUERY, "key", () -> served.set(true)).isPresent());
+
+        cache.startRecording(RECORDED_QUERY, "key");
+        cache.recordPage(RECORDED_QUERY, createPage(10));
+        cache.recordPage(RECORDED_QUERY, createPage(20));
+        cache.finishRecording(RECORDED_QUERY);
+
+        Optional<URI> location = cache.serve(SERVED_QUERY, "key", () -> served.set(true));
+        assertTrue(location.isPresent());
+        assertTrue(QueryResultCache.isResultLocation(location.get()));
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(cache.getMissCount(), 1);
+
+        RpcShuffleClient client = cache.getShuffleClient(location.get());
+        // a response holds at least one page
+        PagesResponse response = getUnchecked(client.getResults(0, new DataSize(1, BYTE)));
+        assertEquals(response.getPages().size(), 1);
+        assertEquals(response.getPages().get(0).getPositionCount(), 10);
+        assertFalse(response.isClientComplete());
+        assertFalse(served.get());
+
+        response = getUnchecked(client.getResults(response.getNextToken(), new DataSize(1, KILOBYTE)));
+        assertEquals(response.getPages().size(), 1);
+        assertEquals(response.getPages().get(0).getPositionCount(), 20);
+        assertTrue(response.isClientComplete());
+        assertTrue(served.get());
+
+        getUnchecked(client.abortResults());
+        assertEquals(cache.getCachedResultCount(), 1);
+    }
+
+    @Test
+    public void testAbortedRecording()
+    {
+        QueryResultCache cache = new QueryResultCache(new QueryResultCacheConfig());
+        cache.startRecording(RECORDED_QUERY, "key");
+        cache.recordPage(RECORDED_QUERY, createPage(10));
+        cache.abortRecording(RECORDED_QUERY);
+        cache.finishRecording(RECORDED_QUERY);
+
+        assertFalse(cache.serve(SERVED_QUERY, "key", () -> {}).isPresent());
+        assertEquals(cache.getInFlightRecordingCount(), 0);
+        assertEquals(cache.getInFlightRecordingSizeInBytes(), 0);
+    }
+
+    @Test
+    public void testResultTooLarge()
+    {
+        QueryResultCache cache = new QueryResultCache(new QueryResultCacheConfig().setMaxResultSize(new DataSize(1, KILOBYTE)));
+        cache.startRecording(RECORDED_QUERY, "key");
+        cache.recordPage(RECORDED_QUERY, createPage(1000));
+        cache.finishRecording(RECORDED_QUERY);
+
+        assertFalse(cache.serve(SERVED_QUERY, "key", () -> {}).isPresent());
+        assertEquals(cache.getRejectedResultCount(), 1);
+    }
+
+    @Test
+    public void testRecordingsTooLarge()
+    {
+        QueryResultCache cache = new QueryResultCache(new QueryResultCacheConfig().setMaxRecordingSize(new DataSize(1, KILOBYTE)));
+        cache.startRecording(RECORDED_QUERY, "key");
+        cache.recordPage(RECORDED_QUERY, createPage(300));
+        long recordingSize = cache.getInFlightRecordingSizeInBytes();
+        assertTrue(recordingSize >= 300);
+
+        // each result fits the limit, but both together do not
+        QueryId otherQuery = new QueryId("other");
+        cache.startRecording(otherQuery, "other");
+        cache.recordPage(otherQuery, createPage(900));
+        assertEquals(cache.getRejectedResultCount(), 1);
+        assertEquals(cache.getInFlightRecordingCount(), 1);
+        assertEquals(cache.getInFlightRecordingSizeInBytes(), recordingSize);
+
+        cache.finishRecording(RECORDED_QUERY);
+        cache.finishRecording(otherQuery);
+        assertEquals(cache.getInFlightRecordingSizeInBytes(), 0);
+        assertTrue(cache.serve(SERVED_QUERY, "key", () -> {}).isPresent());
+        assertFalse(cache.serve(SERVED_QUERY, "other", () -> {}).isPresent());
+    }
+
+    private static SerializedPage createPage(int positionCount)
+    {
+        return new SerializedPage(Slices.allocate(positionCount), (byte) 0, positionCount, positionCount, 0);
+    }
+}
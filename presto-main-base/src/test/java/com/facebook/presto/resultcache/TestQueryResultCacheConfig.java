@@ -0,0 +1,61 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.resultcache;
+
+import com.facebook.airlift.units.DataSize;
+import com.facebook.airlift.units.Duration;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+import static com.facebook.airlift.configuration.testing.ConfigAssertions.assertFullMapping;
+import static com.facebook.airlift.configuration.testing.ConfigAssertions.assertRecordedDefaults;
+import static com.facebook.airlift.configuration.testing.ConfigAssertions.recordDefaults;
+import static com.facebook.airlift.units.DataSize.Unit.GIGABYTE;
+import static com.facebook.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+public class TestQueryResultCacheConfig
+{
+    @Test
+    public void testDefaults()
+    {
+        assertRecordedDefaults(recordDefaults(QueryResultCacheConfig.class)
+                .setMaxCacheSize(new DataSize(1, GIGABYTE))
+                .setMaxResultSize(new DataSize(16, MEGABYTE))
+                .setMaxRecordingSize(new DataSize(256, MEGABYTE))
+                .setCacheTtl(new Duration(1, HOURS)));
+    }
+
+    @Test
+    public void testExplicitPropertyMappings()
+    {
+        Map<String, String> properties = new ImmutableMap.Builder<String, String>()
+                .put("query-result-cache.max-cache-size", "4GB")
+                .put("query-result-cache.max-result-size", "64MB")
+                .put("query-result-cache.max-recording-size", "1GB")
+                .put("query-result-cache.ttl", "10m")
+                .build();
+
+        QueryResultCacheConfig expected = new QueryResultCacheConfig()
+                .setMaxCacheSize(new DataSize(4, GIGABYTE))
+                .setMaxResultSize(new DataSize(64, MEGABYTE))
+                .setMaxRecordingSize(new DataSize(1, GIGABYTE))
+                .setCacheTtl(new Duration(10, MINUTES));
+
+        assertFullMapping(properties, expected);
+    }
+}
@@ -26,6 +26,7 @@ import com.facebook.drift.transport.netty.client.DriftNettyMethodInvokerFactory;
 import com.facebook.drift.transport.netty.server.DriftNettyServerModule;
 import com.facebook.drift.transport.netty.server.DriftNettyServerTransport;
 import com.facebook.presto.Session;
+import com.facebook.presto.execution.SplitReclaimRequest;
 import com.facebook.presto.execution.StateMachine;
 import com.facebook.presto.execution.TaskId;
 import com.facebook.presto.execution.TaskInfo;
@@ -226,6 +227,12 @@ public class TestThriftTaskIntegration
                     throw new UnsupportedOperationException();
                 }
 
+                @Override
+                public TaskInfo reclaimSplits(TaskId taskId, List<SplitReclaimRequest> splitReclaimRequests)
+                {
+                    throw new UnsupportedOperationException();
+                }
+
                 @Override
                 public TaskInfo cancelTask(TaskId taskId)
                 {
@@ -147,6 +147,36 @@ public class TestGenericPartitioningSpiller
         }
     }
 
+    @Test
+    public void testGetAllSpilledPages()
+            throws Exception
+    {
+        try (PartitioningSpiller spiller = factory.create(
+                TYPES,
+                new FourFixedPartitionsPartitionFunction(0),
+                mockSpillContext(),
+                mockMemoryContext(scheduledExecutor))) {
+            RowPagesBuilder builder = RowPagesBuilder.rowPagesBuilder(TYPES);
+            builder.addSequencePage(10, FIRST_PARTITION_START, 5, 10, 15);
+            builder.addSequencePage(10, THIRD_PARTITION_START, 15, 20, 25);
+            List<Page> pages = builder.build();
+            for (Page page : pages) {
+                getFutureValue(spiller.partitionAndSpill(page, partition -> true).getSpillingFuture());
+            }
+
+            // rows still buffered by the spiller are flushed before the partition is read
+            List<Page> firstPartition = getFutureValue(spiller.getAllSpilledPages(0));
+            assertEquals(firstPartition.size(), 1);
+            assertPageEquals(TYPES, firstPartition.get(0), pages.get(0));
+            assertEquals(getFutureValue(spiller.getAllSpilledPages(1)), ImmutableList.of());
+            List<Page> thirdPartition = getFutureValue(spiller.getAllSpilledPages(2));
+            assertEquals(thirdPartition.size(), 1);
+            assertPageEquals(TYPES, thirdPartition.get(0), pages.get(1));
+            assertEquals(getFutureValue(spiller.getAllSpilledPages(3)), ImmutableList.of());
+            spiller.verifyAllPartitionsRead();
+        }
+    }
+
     @Test
     public void testCloseDuringReading()
             throws Exception
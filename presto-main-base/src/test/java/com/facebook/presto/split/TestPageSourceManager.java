@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.split;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.RuntimeStats;
+import com.facebook.presto.metadata.Split;
+import com.facebook.presto.spi.ColumnHandle;
+import com.facebook.presto.spi.ConnectorId;
+import com.facebook.presto.spi.ConnectorPageSource;
+import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.spi.ConnectorSplit;
+import com.facebook.presto.spi.ConnectorTableLayoutHandle;
+import com.facebook.presto.spi.FixedPageSource;
+import com.facebook.presto.spi.QueryId;
+import com.facebook.presto.spi.SplitContext;
+import com.facebook.presto.spi.TableHandle;
+import com.facebook.presto.spi.connector.ConnectorPageSourceProvider;
+import com.facebook.presto.spi.connector.ConnectorTransactionHandle;
+import com.facebook.presto.testing.TestingHandle;
+import com.facebook.presto.testing.TestingMetadata.TestingTableHandle;
+import com.facebook.presto.testing.TestingSplit;
+import com.facebook.presto.testing.TestingTransactionHandle;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.presto.SequencePageBuilder.createSequencePage;
+import static com.facebook.presto.SystemSessionProperties.SHARED_SCAN_ENABLED;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.testing.TestingSession.testSessionBuilder;
+import static com.facebook.presto.testing.TestingSplit.createLocalSplit;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+
+public class TestPageSourceManager
+{
+    private static final ConnectorId CONNECTOR_ID = new ConnectorId("test");
+
+    @Test
+    public void testScansOfConcurrentQueriesShareReader()
+            throws IOException
+    {
+        List<Page> pages = ImmutableList.of(createSequencePage(ImmutableList.of(BIGINT), 100, 0), createSequencePage(ImmutableList.of(BIGINT), 100, 100));
+        List<ConnectorSession> readerSessions = new ArrayList<>();
+        PageSourceManager pageSourceManager = new PageSourceManager();
+        pageSourceManager.addConnectorPageSourceProvider(CONNECTOR_ID, new ConnectorPageSourceProvider()
+        {
+            @Override
+            public ConnectorPageSource createPageSource(
+                    ConnectorTransactionHandle transactionHandle,
+                    ConnectorSession session,
+                    ConnectorSplit split,
+                    ConnectorTableLayoutHandle layout,
+                    List<ColumnHandle> columns,
+                    SplitContext splitContext,
+                    RuntimeStats runtimeStats)
+            {
+                readerSessions.add(session);
+                return new FixedPageSource(pages);
+            }
+        });
+        TestingSplit connectorSplit = createLocalSplit();
+
+        Session firstSession = createSession("first_query");
+        RuntimeStats firstStats = new RuntimeStats();
+        ConnectorPageSource first = createPageSource(pageSourceManager, firstSession, connectorSplit, firstStats);
+        ConnectorPageSource second = createPageSource(pageSourceManager, createSession("second_query"), connectorSplit, new RuntimeStats());
+        assertEquals(readerSessions.size(), 1);
+        // the shared reader does not report to the stats of the query that started it
+        assertNotSame(readerSessions.get(0).getRuntimeStats(), firstStats);
+        assertNotSame(readerSessions.get(0).getRuntimeStats(), firstSession.getRuntimeStats());
+
+        // the reader keeps going for the second query after the first one is done
+        assertEquals(first.getNextPage().getPositionCount(), 100);
+        first.close();
+        long positions = 0;
+        while (!second.isFinished()) {
+            Page page = second.getNextPage();
+            if (page != null) {
+                positions += page.getPositionCount();
+            }
+        }
+        assertEquals(positions, 200);
+        assertEquals(readerSessions.size(), 1);
+        second.close();
+    }
+
+    private static ConnectorPageSource createPageSource(PageSourceManager pageSourceManager, Session session, ConnectorSplit connectorSplit, RuntimeStats runtimeStats)
+    {
+        ConnectorTransactionHandle transactionHandle = TestingTransactionHandle.create();
+        TableHandle table = new TableHandle(CONNECTOR_ID, new TestingTableHandle(), transactionHandle, Optional.of(TestingHandle.INSTANCE));
+        return pageSourceManager.createPageSource(session, new Split(CONNECTOR_ID, transactionHandle, connectorSplit), table, ImmutableList.of(), runtimeStats);
+    }
+
+    private static Session createSession(String queryId)
+    {
+        return testSessionBuilder()
+                .setQueryId(new QueryId(queryId))
+                .setSystemProperty(SHARED_SCAN_ENABLED, "true")
+                .build();
+    }
+}
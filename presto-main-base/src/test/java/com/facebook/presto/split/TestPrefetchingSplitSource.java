@@ -0,0 +1,126 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.split;
+
+import com.facebook.presto.execution.Lifespan;
+import com.facebook.presto.split.SplitSource.SplitBatch;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ExecutionException;
+
+import static com.facebook.airlift.concurrent.MoreFutures.getFutureValue;
+import static com.facebook.presto.spi.connector.NotPartitionedPartitionHandle.NOT_PARTITIONED;
+import static com.facebook.presto.split.MockSplitSource.Action.FAIL;
+import static com.facebook.presto.split.MockSplitSource.Action.FINISH;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestPrefetchingSplitSource
+{
+    @Test
+    public void testEnumerationBeforeScheduling()
+    {
+        MockSplitSource mockSource = new MockSplitSource()
+                .setBatchSize(10)
+                .increaseAvailableSplits(25)
+                .atSplitCompletion(FINISH);
+        try (PrefetchingSplitSource source = new PrefetchingSplitSource(mockSource, 10, 20)) {
+            source.startSplitEnumeration();
+            // enumeration stops once the buffer is full
+            assertEquals(mockSource.getNextBatchInvocationCount(), 2);
+
+            SplitBatch batch = getFutureValue(getNextBatch(source, 15));
+            assertEquals(batch.getSplits().size(), 15);
+            assertFalse(batch.isLastBatch());
+            // draining the buffer resumes enumeration
+            assertEquals(mockSource.getNextBatchInvocationCount(), 3);
+
+            batch = getFutureValue(getNextBatch(source, 15));
+            assertEquals(batch.getSplits().size(), 10);
+            assertTrue(batch.isLastBatch());
+            assertTrue(source.isFinished());
+        }
+    }
+
+    @Test
+    public void testWaitForSplits()
+    {
+        MockSplitSource mockSource = new MockSplitSource()
+                .setBatchSize(1);
+        try (PrefetchingSplitSource source = new PrefetchingSplitSource(mockSource, 10, 20)) {
+            source.startSplitEnumeration();
+            ListenableFuture<SplitBatch> nextBatch = getNextBatch(source, 10);
+            assertFalse(nextBatch.isDone());
+
+            mockSource.increaseAvailableSplits(3);
+            assertTrue(nextBatch.isDone());
+            int splits = getFutureValue(nextBatch).getSplits().size();
+            assertFalse(getFutureValue(nextBatch).isLastBatch());
+
+            mockSource.atSplitCompletion(FINISH);
+            while (true) {
+                SplitBatch batch = getFutureValue(getNextBatch(source, 10));
+                splits += batch.getSplits().size();
+                if (batch.isLastBatch()) {
+                    break;
+                }
+            }
+            assertEquals(splits, 3);
+            assertTrue(source.isFinished());
+        }
+    }
+
+    @Test
+    public void testFailure()
+            throws Exception
+    {
+        MockSplitSource mockSource = new MockSplitSource()
+                .setBatchSize(1);
+        try (PrefetchingSplitSource source = new PrefetchingSplitSource(mockSource, 10, 20)) {
+            source.startSplitEnumeration();
+            ListenableFuture<SplitBatch> nextBatch = getNextBatch(source, 10);
+            mockSource.atSplitCompletion(FAIL);
+            assertTrue(nextBatch.isDone());
+            try {
+                nextBatch.get();
+                fail("expected failure");
+            }
+            catch (ExecutionException e) {
+                assertEquals(e.getCause().getMessage(), "Mock failure");
+            }
+        }
+    }
+
+    @Test
+    public void testNoEnumerationOnceScheduled()
+    {
+        MockSplitSource mockSource = new MockSplitSource()
+                .setBatchSize(10)
+                .increaseAvailableSplits(25)
+                .atSplitCompletion(FINISH);
+        try (PrefetchingSplitSource source = new PrefetchingSplitSource(mockSource, 10, 20)) {
+            assertEquals(getFutureValue(getNextBatch(source, 5)).getSplits().size(), 5);
+            source.startSplitEnumeration();
+            assertEquals(mockSource.getNextBatchInvocationCount(), 1);
+        }
+    }
+
+    private static ListenableFuture<SplitBatch> getNextBatch(SplitSource source, int maxSize)
+    {
+        return source.getNextBatch(NOT_PARTITIONED, Lifespan.taskWide(), maxSize);
+    }
+}
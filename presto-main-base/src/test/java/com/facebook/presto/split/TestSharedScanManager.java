@@ -0,0 +1,373 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.split;
+
+import com.facebook.airlift.testing.TestingTicker;
+import com.facebook.airlift.units.DataSize;
+import com.facebook.airlift.units.Duration;
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.RuntimeStats;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.LazyBlock;
+import com.facebook.presto.common.type.TimeZoneKey;
+import com.facebook.presto.spi.ConnectorId;
+import com.facebook.presto.spi.ConnectorPageSource;
+import com.facebook.presto.spi.FixedPageSource;
+import com.facebook.presto.split.SharedScanManager.SharedScanKey;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.facebook.airlift.units.DataSize.Unit.MEGABYTE;
+import static com.facebook.presto.SequencePageBuilder.createSequencePage;
+import static com.facebook.presto.common.RuntimeMetricName.SHARED_SCAN_ATTACHED_SPLITS;
+import static com.facebook.presto.common.RuntimeUnit.NONE;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.TimeZoneKey.UTC_KEY;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class TestSharedScanManager
+{
+    private static final SharedScanKey KEY = createKey(UTC_KEY, false, ImmutableMap.of());
+    private static final int PAGE_POSITIONS = 10_000;
+
+    @Test
+    public void testConcurrentScansShareReader()
+            throws IOException
+    {
+        TestingTicker ticker = new TestingTicker();
+        SharedScanManager manager = createManager(ticker);
+        AtomicInteger openedReaders = new AtomicInteger();
+        List<Page> pages = createPages(5);
+        RuntimeStats firstStats = new RuntimeStats();
+        RuntimeStats secondStats = new RuntimeStats();
+
+        ConnectorPageSource first = manager.createPageSource(KEY, pageSourceFactory(pages, openedReaders), firstStats);
+        ConnectorPageSource second = manager.createPageSource(KEY, pageSourceFactory(pages, openedReaders), secondStats);
+        assertEquals(openedReaders.get(), 1);
+        assertNull(firstStats.getMetric(SHARED_SCAN_ATTACHED_SPLITS));
+        assertEquals(secondStats.getMetric(SHARED_SCAN_ATTACHED_SPLITS).getSum(), 1);
+
+        assertEquals(readAll(first), pages.size() * PAGE_POSITIONS);
+        assertEquals(readAll(second), pages.size() * PAGE_POSITIONS);
+        assertEquals(openedReaders.get(), 1);
+        assertEquals(first.getCompletedPositions(), pages.size() * PAGE_POSITIONS);
+        assertEquals(second.getCompletedPositions(), pages.size() * PAGE_POSITIONS);
+
+        first.close();
+        assertEquals(manager.getScanCount(), 1);
+        second.close();
+        assertEquals(manager.getScanCount(), 0);
+    }
+
+    @Test
+    public void testScanAfterAttachDelayUsesNewReader()
+            throws IOException
+    {
+        TestingTicker ticker = new TestingTicker();
+        SharedScanManager manager = createManager(ticker);
+        AtomicInteger openedReaders = new AtomicInteger();
+        List<Page> pages = createPages(5);
+
+        ConnectorPageSource first = manager.createPageSource(KEY, pageSourceFactory(pages, openedReaders), new RuntimeStats());
+        ticker.increment(2, SECONDS);
+        ConnectorPageSource second = manager.createPageSource(KEY, pageSourceFactory(pages, openedReaders), new RuntimeStats());
+        assertEquals(openedReaders.get(), 2);
+
+        assertEquals(readAll(first), pages.size() * PAGE_POSITIONS);
+        assertEquals(readAll(second), pages.size() * PAGE_POSITIONS);
+        first.close();
+        second.close();
+        assertEquals(manager.getScanCount(), 0);
+    }
+
+    @Test
+    public void testLaggingScanContinuesWithPrivateReader()
+            throws IOException
+    {
+        TestingTicker ticker = new TestingTicker();
+        SharedScanManager manager = createManager(ticker);
+        AtomicInteger openedReaders = new AtomicInteger();
+        List<Page> pages = createPages(40);
+
+        ConnectorPageSource leading = manager.createPageSource(KEY, pageSourceFactory(pages, openedReaders), new RuntimeStats());
+        ConnectorPageSource lagging = manager.createPageSource(KEY, pageSourceFactory(pages, openedReaders), new RuntimeStats());
+        ticker.increment(2, SECONDS);
+
+        for (int page = 0; page < 3; page++) {
+            assertSame(lagging.getNextPage(), leading.getNextPage());
+        }
+        // the pages the lagging scan did not get yet do not fit in the buffer
+        assertEquals(readAll(leading), (pages.size() - 3) * PAGE_POSITIONS);
+        assertEquals(openedReaders.get(), 1);
+
+        // the lagging scan skips the rows it already got
+        long expectedValue = 3 * PAGE_POSITIONS;
+        while (!lagging.isFinished()) {
+            Page page = lagging.getNextPage();
+            if (page != null) {
+                for (int position = 0; position < page.getPositionCount(); position++) {
+                    assertEquals(BIGINT.getLong(page.getBlock(0), position), expectedValue++);
+                }
+            }
+        }
+        assertEquals(expectedValue, pages.size() * PAGE_POSITIONS);
+        assertEquals(openedReaders.get(), 2);
+        assertEquals(lagging.getCompletedPositions(), pages.size() * PAGE_POSITIONS);
+
+        leading.close();
+        lagging.close();
+        assertEquals(manager.getScanCount(), 0);
+    }
+
+    @Test
+    public void testScanAttachesUntilPagesAreReleased()
+            throws IOException
+    {
+        TestingTicker ticker = new TestingTicker();
+        SharedScanManager manager = createManager(ticker);
+        AtomicInteger openedReaders = new AtomicInteger();
+        List<Page> pages = createPages(5);
+
+        ConnectorPageSource first = manager.createPageSource(KEY, pageSourceFactory(pages, openedReaders), new RuntimeStats());
+        first.getNextPage();
+        first.getNextPage();
+        // all the pages are still buffered, so a scan can attach and start from the first page
+        ConnectorPageSource second = manager.createPageSource(KEY, pageSourceFactory(pages, openedReaders), new RuntimeStats());
+        assertEquals(openedReaders.get(), 1);
+        assertEquals(readAll(second), pages.size() * PAGE_POSITIONS);
+        assertFalse(first.isFinished());
+        assertEquals(readAll(first), (pages.size() - 2) * PAGE_POSITIONS);
+
+        first.close();
+        second.close();
+        assertEquals(manager.getScanCount(), 0);
+    }
+
+    @Test
+    public void testScansDecodingDataDifferentlyDoNotShareReader()
+            throws IOException
+    {
+        SharedScanManager manager = createManager(new TestingTicker());
+        AtomicInteger openedReaders = new AtomicInteger();
+        List<Page> pages = createPages(5);
+        List<SharedScanKey> keys = ImmutableList.of(
+                KEY,
+                createKey(TimeZoneKey.getTimeZoneKey("America/Los_Angeles"), false, ImmutableMap.of()),
+                createKey(UTC_KEY, true, ImmutableMap.of()),
+                createKey(UTC_KEY, false, ImmutableMap.of("parquet_use_column_names", "true")));
+        assertEquals(createKey(UTC_KEY, false, ImmutableMap.of()), KEY);
+
+        ImmutableList.Builder<ConnectorPageSource> scans = ImmutableList.builder();
+        for (SharedScanKey key : keys) {
+            scans.add(manager.createPageSource(key, pageSourceFactory(pages, openedReaders), new RuntimeStats()));
+        }
+        assertEquals(openedReaders.get(), keys.size());
+        assertEquals(manager.getScanCount(), keys.size());
+
+        for (ConnectorPageSource scan : scans.build()) {
+            assertEquals(readAll(scan), pages.size() * PAGE_POSITIONS);
+            scan.close();
+        }
+        assertEquals(manager.getScanCount(), 0);
+    }
+
+    @Test
+    public void testScanReportsOwnRuntimeStats()
+            throws IOException
+    {
+        SharedScanManager manager = createManager(new TestingTicker());
+        List<Page> pages = createPages(5);
+        RuntimeStats firstStats = new RuntimeStats();
+        List<RuntimeStats> readerStats = new ArrayList<>();
+        Function<RuntimeStats, ConnectorPageSource> pageSourceFactory = stats -> {
+            readerStats.add(stats);
+            return new FixedPageSource(pages)
+            {
+                @Override
+                public Page getNextPage()
+                {
+                    stats.addMetricValue("pages", NONE, 1);
+                    return super.getNextPage();
+                }
+            };
+        };
+
+        ConnectorPageSource first = manager.createPageSource(KEY, pageSourceFactory, firstStats);
+        ConnectorPageSource second = manager.createPageSource(KEY, pageSourceFactory, new RuntimeStats());
+        assertNotNull(first.getRuntimeStats());
+        assertNotNull(second.getRuntimeStats());
+        assertNotSame(first.getRuntimeStats(), second.getRuntimeStats());
+
+        // the shared reader reports to stats of its own, not to the stats of the scan that started it
+        assertEquals(readerStats.size(), 1);
+        assertNotSame(readerStats.get(0), firstStats);
+
+        // the stats of the reader go to the scan pulling the pages
+        assertEquals(readAll(first), pages.size() * PAGE_POSITIONS);
+        assertEquals(readAll(second), pages.size() * PAGE_POSITIONS);
+        assertEquals(first.getRuntimeStats().getMetric("pages").getSum(), pages.size());
+        assertNull(second.getRuntimeStats().getMetric("pages"));
+        assertNull(firstStats.getMetric("pages"));
+
+        first.close();
+        second.close();
+    }
+
+    @Test(timeOut = 10_000)
+    public void testScanIsBlockedWhileAnotherScanReads()
+            throws Exception
+    {
+        SharedScanManager manager = createManager(new TestingTicker());
+        Page page = createPages(1).get(0);
+        CountDownLatch readStarted = new CountDownLatch(1);
+        CountDownLatch readReleased = new CountDownLatch(1);
+        ConnectorPageSource reader = new FixedPageSource(ImmutableList.of(page))
+        {
+            @Override
+            public Page getNextPage()
+            {
+                readStarted.countDown();
+                try {
+                    readReleased.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+                return super.getNextPage();
+            }
+        };
+
+        ConnectorPageSource first = manager.createPageSource(KEY, stats -> reader, new RuntimeStats());
+        ConnectorPageSource second = manager.createPageSource(KEY, stats -> reader, new RuntimeStats());
+        ExecutorService executor = newSingleThreadExecutor(daemonThreadsNamed("test-shared-scan-%s"));
+        try {
+            Future<Page> firstPage = executor.submit(first::getNextPage);
+            readStarted.await();
+
+            // the scan waiting for the page does not wait for the lock held by the reading scan
+            assertNull(second.getNextPage());
+            assertFalse(second.isFinished());
+            second.getSystemMemoryUsage();
+            CompletableFuture<?> blocked = second.isBlocked();
+            assertFalse(blocked.isDone());
+
+            readReleased.countDown();
+            assertSame(firstPage.get(), page);
+            assertTrue(blocked.isDone());
+            assertSame(second.getNextPage(), page);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        first.close();
+        second.close();
+        assertEquals(manager.getScanCount(), 0);
+    }
+
+    @Test
+    public void testSingleScanKeepsPagesLazy()
+            throws IOException
+    {
+        TestingTicker ticker = new TestingTicker();
+        SharedScanManager manager = createManager(ticker);
+        AtomicInteger loadedBlocks = new AtomicInteger();
+        ImmutableList.Builder<Page> lazyPages = ImmutableList.builder();
+        for (Page page : createPages(2)) {
+            Block block = page.getBlock(0);
+            lazyPages.add(new Page(new LazyBlock(page.getPositionCount(), lazyBlock -> {
+                loadedBlocks.incrementAndGet();
+                lazyBlock.setBlock(block);
+            })));
+        }
+        List<Page> pages = lazyPages.build();
+
+        ConnectorPageSource scan = manager.createPageSource(KEY, pageSourceFactory(pages, new AtomicInteger()), new RuntimeStats());
+        // other scans may still attach, so the page is loaded for them
+        assertTrue(scan.getNextPage().getBlock(0).isLoaded());
+        assertEquals(loadedBlocks.get(), 1);
+
+        ticker.increment(2, SECONDS);
+        // no other scan can get the page anymore
+        assertFalse(scan.getNextPage().getBlock(0).isLoaded());
+        assertEquals(loadedBlocks.get(), 1);
+
+        scan.close();
+        assertEquals(manager.getScanCount(), 0);
+    }
+
+    private static SharedScanManager createManager(TestingTicker ticker)
+    {
+        SharedScanConfig config = new SharedScanConfig()
+                .setMaxBufferedSize(new DataSize(1, MEGABYTE))
+                .setMaxAttachDelay(new Duration(1, SECONDS));
+        return new SharedScanManager(config, ticker);
+    }
+
+    private static List<Page> createPages(int pageCount)
+    {
+        ImmutableList.Builder<Page> pages = ImmutableList.builder();
+        for (int page = 0; page < pageCount; page++) {
+            pages.add(createSequencePage(ImmutableList.of(BIGINT), PAGE_POSITIONS, page * PAGE_POSITIONS));
+        }
+        return pages.build();
+    }
+
+    private static SharedScanKey createKey(TimeZoneKey timeZoneKey, boolean legacyTimestamp, Map<String, String> connectorProperties)
+    {
+        return new SharedScanKey(new ConnectorId("test"), "layout", "split", ImmutableList.of(), timeZoneKey, legacyTimestamp, connectorProperties);
+    }
+
+    private static Function<RuntimeStats, ConnectorPageSource> pageSourceFactory(List<Page> pages, AtomicInteger openedReaders)
+    {
+        return stats -> {
+            openedReaders.incrementAndGet();
+            return new FixedPageSource(pages);
+        };
+    }
+
+    private static long readAll(ConnectorPageSource pageSource)
+    {
+        long positions = 0;
+        while (!pageSource.isFinished()) {
+            Page page = pageSource.getNextPage();
+            if (page != null) {
+                positions += page.getPositionCount();
+            }
+        }
+        return positions;
+    }
+}
@@ -75,11 +75,13 @@ public class TestFeaturesConfig
                 .setMaxFailedTaskPercentage(0.3)
                 .setConcurrentLifespansPerTask(0)
                 .setFastInequalityJoins(true)
+                .setHashBuildConcurrency(1)
                 .setColocatedJoinsEnabled(true)
                 .setSpatialJoinsEnabled(true)
                 .setJoinReorderingStrategy(JoinReorderingStrategy.AUTOMATIC)
                 .setPartialMergePushdownStrategy(FeaturesConfig.PartialMergePushdownStrategy.NONE)
                 .setMaxReorderedJoins(9)
+                .setMaxGreedyReorderedJoins(0)
                 .setUseHistoryBasedPlanStatistics(false)
                 .setTrackHistoryBasedPlanStatistics(false)
                 .setTrackHistoryStatsFromFailedQuery(true)
@@ -109,6 +111,7 @@ public class TestFeaturesConfig
                 .setAggregationPartitioningMergingStrategy(LEGACY)
                 .setSpillEnabled(false)
                 .setJoinSpillingEnabled(true)
+                .setJoinUnspillMemoryLimit(new DataSize(1, GIGABYTE))
                 .setSpillerSpillPaths("")
                 .setSpillerThreads(4)
                 .setSpillMaxUsedSpaceThreshold(0.9)
@@ -123,11 +126,23 @@ public class TestFeaturesConfig
                 .setIterativeOptimizerEnabled(true)
                 .setIterativeOptimizerTimeout(new Duration(3, MINUTES))
                 .setRuntimeOptimizerEnabled(false)
+                .setRuntimePartitionCountAdaptationEnabled(false)
+                .setRuntimePartitionTargetSize(new DataSize(64, MEGABYTE))
                 .setEnableDynamicFiltering(false)
                 .setDynamicFilteringMaxPerDriverRowCount(100)
                 .setDynamicFilteringMaxPerDriverSize(new DataSize(10, KILOBYTE))
                 .setDynamicFilteringRangeRowLimitPerDriver(0)
                 .setFragmentResultCachingEnabled(false)
+                .setSharedScanEnabled(false)
+                .setQueryResultCacheEnabled(false)
+                .setSplitWorkStealingEnabled(false)
+                .setSplitWorkStealingMinQueuedSplits(8)
+                .setSplitWorkStealingReclaimTimeout(new Duration(10, SECONDS))
+                .setSpeculativeExecutionEnabled(false)
+                .setSpeculativeExecutionStragglerSlowdownRatio(2.0)
+                .setSpeculativeExecutionMaxTaskFraction(0.1)
+                .setEarlySplitEnumerationEnabled(false)
+                .setEarlySplitEnumerationMaxBufferedSplits(10_000)
                 .setEnableStatsCalculator(true)
                 .setEnableStatsCollectionForTemporaryTable(false)
                 .setIgnoreStatsCalculatorFailures(true)
@@ -146,6 +161,7 @@ public class TestFeaturesConfig
                 .setPushProjectionThroughCrossJoin(false)
                 .setForceSingleNodeOutput(true)
                 .setPagesIndexEagerCompactionEnabled(false)
+                .setPagesIndexNormalizedKeySortEnabled(true)
                 .setFilterAndProjectMinOutputPageSize(new DataSize(500, KILOBYTE))
                 .setFilterAndProjectMinOutputPageRowCount(256)
                 .setUseMarkDistinct(true)
@@ -171,6 +187,8 @@ public class TestFeaturesConfig
                 .setPushdownDereferenceEnabled(false)
                 .setIndexLoaderTimeout(new Duration(20, SECONDS))
                 .setOptimizedRepartitioningEnabled(false)
+                .setOptimizedRepartitioningPreserveDictionaries(false)
+                .setJoinLateMaterializationEnabled(false)
                 .setListBuiltInFunctionsOnly(true)
                 .setPartitioningPrecisionStrategy(PartitioningPrecisionStrategy.AUTOMATIC)
                 .setExperimentalFunctionsEnabled(false)
@@ -218,6 +236,7 @@ public class TestFeaturesConfig
                 .setPreferSortMergeJoin(false)
                 .setSortedExchangeEnabled(false)
                 .setSegmentedAggregationEnabled(false)
+                .setSortedInputTopNEnabled(false)
                 .setQueryAnalyzerTimeout(new Duration(3, MINUTES))
                 .setQuickDistinctLimitEnabled(false)
                 .setPushRemoteExchangeThroughGroupId(false)
@@ -319,11 +338,23 @@ public class TestFeaturesConfig
                 .put("experimental.iterative-optimizer-enabled", "false")
                 .put("experimental.iterative-optimizer-timeout", "10s")
                 .put("experimental.runtime-optimizer-enabled", "true")
+                .put("experimental.runtime-partition-count-adaptation-enabled", "true")
+                .put("experimental.runtime-partition-target-size", "16MB")
                 .put("enable-dynamic-filtering", "true")
                 .put("dynamic-filtering-max-per-driver-row-count", "256")
                 .put("dynamic-filtering-max-per-driver-size", "64kB")
                 .put("dynamic-filtering-range-row-limit-per-driver", "1000")
                 .put("fragment-result-cache.enabled", "true")
+                .put("shared-scan.enabled", "true")
+                .put("query-result-cache.enabled", "true")
+                .put("split-work-stealing.enabled", "true")
+                .put("split-work-stealing.min-queued-splits", "16")
+                .put("split-work-stealing.reclaim-timeout", "30s")
+                .put("speculative-execution.enabled", "true")
+                .put("speculative-execution.straggler-slowdown-ratio", "3.0")
+                .put("speculative-execution.max-task-fraction", "0.25")
+                .put("early-split-enumeration.enabled", "true")
+                .put("early-split-enumeration.max-buffered-splits", "500")
                 .put("experimental.enable-stats-calculator", "false")
                 .put("experimental.enable-stats-collection-for-temporary-table", "true")
                 .put("optimizer.ignore-stats-calculator-failures", "false")
@@ -338,11 +369,13 @@ public class TestFeaturesConfig
                 .put("max-failed-task-percentage", "0.8")
                 .put("concurrent-lifespans-per-task", "1")
                 .put("fast-inequality-joins", "false")
+                .put("hash-build-concurrency", "4")
                 .put("colocated-joins-enabled", "false")
                 .put("spatial-joins-enabled", "false")
                 .put("optimizer.join-reordering-strategy", "NONE")
                 .put("experimental.optimizer.partial-merge-pushdown-strategy", PUSH_THROUGH_LOW_MEMORY_OPERATORS.name())
                 .put("optimizer.max-reordered-joins", "5")
+                .put("optimizer.max-greedy-reordered-joins", "30")
                 .put("optimizer.use-history-based-plan-statistics", "true")
                 .put("optimizer.track-history-based-plan-statistics", "true")
                 .put("optimizer.track-history-stats-from-failed-queries", "false")
@@ -382,6 +415,7 @@ public class TestFeaturesConfig
                 .put("optimizer.local-exchange-parent-preference-strategy", "automatic")
                 .put("experimental.spill-enabled", "true")
                 .put("experimental.join-spill-enabled", "false")
+                .put("experimental.join-unspill-memory-limit", "200MB")
                 .put("experimental.spiller-spill-path", "/tmp/custom/spill/path1,/tmp/custom/spill/path2")
                 .put("experimental.spiller-threads", "42")
                 .put("experimental.spiller-max-used-space-threshold", "0.8")
@@ -397,6 +431,7 @@ public class TestFeaturesConfig
                 .put("optimizer.enable-intermediate-aggregations", "true")
                 .put("optimizer.force-single-node-output", "false")
                 .put("pages-index.eager-compaction-enabled", "true")
+                .put("pages-index.normalized-key-sort-enabled", "false")
                 .put("experimental.filter-and-project-min-output-page-size", "1MB")
                 .put("experimental.filter-and-project-min-output-page-row-count", "2048")
                 .put("optimizer.use-mark-distinct", "false")
@@ -421,6 +456,8 @@ public class TestFeaturesConfig
                 .put("experimental.pushdown-dereference-enabled", "true")
                 .put("index-loader-timeout", "10s")
                 .put("experimental.optimized-repartitioning", "true")
+                .put("experimental.optimized-repartitioning-preserve-dictionaries", "true")
+                .put("experimental.join-late-materialization-enabled", "true")
                 .put("list-built-in-functions-only", "false")
                 .put("partitioning-precision-strategy", "PREFER_EXACT_PARTITIONING")
                 .put("experimental-functions-enabled", "true")
@@ -468,6 +505,7 @@ public class TestFeaturesConfig
                 .put("experimental.optimizer.prefer-sort-merge-join", "true")
                 .put("experimental.optimizer.sorted-exchange-enabled", "true")
                 .put("optimizer.segmented-aggregation-enabled", "true")
+                .put("optimizer.sorted-input-top-n-enabled", "true")
                 .put("planner.query-analyzer-timeout", "10s")
                 .put("optimizer.quick-distinct-limit-enabled", "true")
                 .put("optimizer.push-remote-exchange-through-group-id", "true")
@@ -565,11 +603,23 @@ public class TestFeaturesConfig
                 .setIterativeOptimizerEnabled(false)
                 .setIterativeOptimizerTimeout(new Duration(10, SECONDS))
                 .setRuntimeOptimizerEnabled(true)
+                .setRuntimePartitionCountAdaptationEnabled(true)
+                .setRuntimePartitionTargetSize(new DataSize(16, MEGABYTE))
                 .setEnableDynamicFiltering(true)
                 .setDynamicFilteringMaxPerDriverRowCount(256)
                 .setDynamicFilteringMaxPerDriverSize(new DataSize(64, KILOBYTE))
                 .setDynamicFilteringRangeRowLimitPerDriver(1000)
                 .setFragmentResultCachingEnabled(true)
+                .setSharedScanEnabled(true)
+                .setQueryResultCacheEnabled(true)
+                .setSplitWorkStealingEnabled(true)
+                .setSplitWorkStealingMinQueuedSplits(16)
+                .setSplitWorkStealingReclaimTimeout(new Duration(30, SECONDS))
+                .setSpeculativeExecutionEnabled(true)
+                .setSpeculativeExecutionStragglerSlowdownRatio(3.0)
+                .setSpeculativeExecutionMaxTaskFraction(0.25)
+                .setEarlySplitEnumerationEnabled(true)
+                .setEarlySplitEnumerationMaxBufferedSplits(500)
                 .setEnableStatsCalculator(false)
                 .setEnableStatsCollectionForTemporaryTable(true)
                 .setIgnoreStatsCalculatorFailures(false)
@@ -583,11 +633,13 @@ public class TestFeaturesConfig
                 .setMaxFailedTaskPercentage(0.8)
                 .setConcurrentLifespansPerTask(1)
                 .setFastInequalityJoins(false)
+                .setHashBuildConcurrency(4)
                 .setColocatedJoinsEnabled(false)
                 .setSpatialJoinsEnabled(false)
                 .setJoinReorderingStrategy(NONE)
                 .setPartialMergePushdownStrategy(PUSH_THROUGH_LOW_MEMORY_OPERATORS)
                 .setMaxReorderedJoins(5)
+                .setMaxGreedyReorderedJoins(30)
                 .setUseHistoryBasedPlanStatistics(true)
                 .setTrackHistoryBasedPlanStatistics(true)
                 .setTrackHistoryStatsFromFailedQuery(false)
@@ -625,6 +677,7 @@ public class TestFeaturesConfig
                 .setPushProjectionThroughCrossJoin(true)
                 .setSpillEnabled(true)
                 .setJoinSpillingEnabled(false)
+                .setJoinUnspillMemoryLimit(new DataSize(200, MEGABYTE))
                 .setSpillerSpillPaths("/tmp/custom/spill/path1,/tmp/custom/spill/path2")
                 .setSpillerThreads(42)
                 .setSpillMaxUsedSpaceThreshold(0.8)
@@ -640,6 +693,7 @@ public class TestFeaturesConfig
                 .setEnableIntermediateAggregations(true)
                 .setForceSingleNodeOutput(false)
                 .setPagesIndexEagerCompactionEnabled(true)
+                .setPagesIndexNormalizedKeySortEnabled(false)
                 .setFilterAndProjectMinOutputPageSize(new DataSize(1, MEGABYTE))
                 .setFilterAndProjectMinOutputPageRowCount(2048)
                 .setUseMarkDistinct(false)
@@ -666,6 +720,8 @@ public class TestFeaturesConfig
                 .setPushdownDereferenceEnabled(true)
                 .setIndexLoaderTimeout(new Duration(10, SECONDS))
                 .setOptimizedRepartitioningEnabled(true)
+                .setOptimizedRepartitioningPreserveDictionaries(true)
+                .setJoinLateMaterializationEnabled(true)
                 .setListBuiltInFunctionsOnly(false)
                 .setPartitioningPrecisionStrategy(PartitioningPrecisionStrategy.PREFER_EXACT_PARTITIONING)
                 .setExperimentalFunctionsEnabled(true)
@@ -714,6 +770,7 @@ public class TestFeaturesConfig
                 .setPreferSortMergeJoin(true)
                 .setSortedExchangeEnabled(true)
                 .setSegmentedAggregationEnabled(true)
+                .setSortedInputTopNEnabled(true)
                 .setQueryAnalyzerTimeout(new Duration(10, SECONDS))
                 .setQuickDistinctLimitEnabled(true)
                 .setPushRemoteExchangeThroughGroupId(true)
@@ -22,6 +22,7 @@ import com.facebook.presto.sql.planner.assertions.BasePlanTest;
 import com.facebook.presto.sql.planner.assertions.ExpectedValueProvider;
 import com.facebook.presto.sql.planner.assertions.PlanMatchPattern;
 import com.facebook.presto.sql.planner.iterative.IterativeOptimizer;
+import com.facebook.presto.sql.planner.iterative.rule.MergeLimitWithSort;
 import com.facebook.presto.sql.planner.iterative.rule.RemoveRedundantIdentityProjections;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -32,20 +33,25 @@ import org.testng.annotations.Test;
 import java.util.List;
 import java.util.Optional;
 
+import static com.facebook.presto.SystemSessionProperties.SORTED_INPUT_TOP_N_ENABLED;
 import static com.facebook.presto.SystemSessionProperties.TASK_CONCURRENCY;
 import static com.facebook.presto.sql.Optimizer.PlanStage.OPTIMIZED;
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.anyTree;
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.exchange;
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.filter;
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.functionCall;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.limit;
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.output;
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.sort;
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.specification;
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.tableScan;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.topN;
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.window;
 import static com.facebook.presto.sql.planner.plan.ExchangeNode.Scope.LOCAL;
 import static com.facebook.presto.sql.planner.plan.ExchangeNode.Type.GATHER;
 import static com.facebook.presto.sql.planner.plan.ExchangeNode.Type.REPARTITION;
+import static com.facebook.presto.sql.tree.SortItem.NullOrdering.LAST;
+import static com.facebook.presto.sql.tree.SortItem.Ordering.DESCENDING;
 
 public class TestEliminateSorts
         extends BasePlanTest
@@ -129,7 +135,45 @@ public class TestEliminateSorts
         assertUnitPlan(sql, pattern);
     }
 
+    @Test
+    public void testReplaceTopNOverSortedInputWithLimit()
+    {
+        @Language("SQL") String sql = "SELECT quantity, row_number() OVER (ORDER BY quantity) FROM lineitem ORDER BY quantity LIMIT 10";
+
+        PlanMatchPattern pattern =
+                anyTree(
+                        limit(10,
+                                window(windowMatcherBuilder -> windowMatcherBuilder
+                                                .specification(windowSpec)
+                                                .addFunction(functionCall("row_number", Optional.empty(), ImmutableList.of())),
+                                        anyTree(LINEITEM_TABLESCAN_Q_BASIC))));
+
+        assertUnitPlan(sql, true, pattern);
+    }
+
+    @Test
+    public void testNotReplaceTopNOverDifferentlySortedInput()
+    {
+        @Language("SQL") String sql = "SELECT quantity, row_number() OVER (ORDER BY quantity) FROM lineitem ORDER BY quantity DESC LIMIT 10";
+
+        PlanMatchPattern pattern =
+                anyTree(
+                        topN(10, ImmutableList.of(sort(QUANTITY_ALIAS, DESCENDING, LAST)),
+                                anyTree(
+                                        window(windowMatcherBuilder -> windowMatcherBuilder
+                                                        .specification(windowSpec)
+                                                        .addFunction(functionCall("row_number", Optional.empty(), ImmutableList.of())),
+                                                anyTree(LINEITEM_TABLESCAN_Q_BASIC)))));
+
+        assertUnitPlan(sql, true, pattern);
+    }
+
     public void assertUnitPlan(@Language("SQL") String sql, PlanMatchPattern pattern)
+    {
+        assertUnitPlan(sql, false, pattern);
+    }
+
+    public void assertUnitPlan(@Language("SQL") String sql, boolean sortedInputTopNEnabled, PlanMatchPattern pattern)
     {
         List<PlanOptimizer> optimizers = ImmutableList.of(
                 new UnaliasSymbolReferences(getMetadata().getFunctionAndTypeManager()),
@@ -139,7 +183,7 @@ public class TestEliminateSorts
                         new RuleStatsRecorder(),
                         getQueryRunner().getStatsCalculator(),
                         getQueryRunner().getCostCalculator(),
-                        ImmutableSet.of(new RemoveRedundantIdentityProjections())),
+                        ImmutableSet.of(new RemoveRedundantIdentityProjections(), new MergeLimitWithSort())),
                 new AddExchanges(getQueryRunner().getMetadata(), new PartitioningProviderManager(), false),
                 new AddLocalExchanges(getMetadata(), getQueryRunner().getStatsCalculator(), false),
                 new UnaliasSymbolReferences(getMetadata().getFunctionAndTypeManager()),
@@ -152,6 +196,7 @@ public class TestEliminateSorts
                         ImmutableSet.of(new RemoveRedundantIdentityProjections())));
         Session session = Session.builder(getQueryRunner().getDefaultSession())
                 .setSystemProperty(TASK_CONCURRENCY, "4")
+                .setSystemProperty(SORTED_INPUT_TOP_N_ENABLED, Boolean.toString(sortedInputTopNEnabled))
                 .build();
         assertPlan(sql, session, OPTIMIZED, pattern, optimizers);
     }
@@ -14,11 +14,18 @@
 package com.facebook.presto.sql.planner.optimizations;
 
 import com.facebook.presto.Session;
+import com.facebook.presto.spi.statistics.ConnectorHistogram;
+import com.facebook.presto.spi.statistics.Estimate;
+import com.facebook.presto.spi.statistics.UniformDistributionHistogram;
 import com.facebook.presto.sql.analyzer.FeaturesConfig;
 import com.facebook.presto.sql.planner.assertions.BasePlanTest;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import org.testng.annotations.Test;
 
+import java.util.Map;
+import java.util.TreeMap;
+
 import static com.facebook.presto.SystemSessionProperties.JOIN_DISTRIBUTION_TYPE;
 import static com.facebook.presto.SystemSessionProperties.JOIN_REORDERING_STRATEGY;
 import static com.facebook.presto.SystemSessionProperties.SHARDED_JOINS_STRATEGY;
@@ -29,6 +36,8 @@ import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.join;
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.project;
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.tableScan;
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.unnest;
+import static com.facebook.presto.sql.planner.optimizations.ShardJoins.findHotValues;
+import static org.testng.Assert.assertEquals;
 
 public class TestShardJoins
         extends BasePlanTest
@@ -131,4 +140,93 @@ public class TestShardJoins
                                                 tableScan("orders", ImmutableMap.of("rightOrderKey", "orderkey")))))),
                 false);
     }
+
+    @Test
+    public void testCostBasedDoesNotFireWithoutHistograms()
+    {
+        Session session = Session.builder(getSessionAlwaysEnabled())
+                .setSystemProperty(SHARDED_JOINS_STRATEGY, "COST_BASED")
+                .build();
+        assertPlan("SELECT * FROM lineitem JOIN orders ON lineitem.orderkey = orders.orderkey",
+                session,
+                anyTree(
+                        join(
+                                anyTree(
+                                        tableScan("lineitem", ImmutableMap.of("leftOrderKey", "orderkey"))),
+                                anyTree(
+                                        tableScan("orders", ImmutableMap.of("rightOrderKey", "orderkey"))))),
+                false);
+    }
+
+    @Test
+    public void testFindHotValues()
+    {
+        // 30% of the rows hold the value 7, 5% hold the value 42, the rest is spread evenly over [0, 1000]
+        ConnectorHistogram histogram = new PointMassHistogram(new UniformDistributionHistogram(0, 1000), ImmutableMap.of(7.0, 0.3, 42.0, 0.05));
+        assertEquals(findHotValues(histogram, 0.01), ImmutableList.of(7L, 42L));
+        assertEquals(findHotValues(histogram, 0.1), ImmutableList.of(7L));
+        assertEquals(findHotValues(histogram, 0.5), ImmutableList.of());
+
+        assertEquals(findHotValues(new UniformDistributionHistogram(0, 1000), 0.01), ImmutableList.of());
+        assertEquals(findHotValues(new UniformDistributionHistogram(Double.NaN, Double.NaN), 0.01), ImmutableList.of());
+    }
+
+    /**
+     * Mixes a continuous distribution with point masses at the given values.
+     */
+    private static class PointMassHistogram
+            implements ConnectorHistogram
+    {
+        private final ConnectorHistogram continuous;
+        private final Map<Double, Double> pointMasses;
+        private final double continuousFraction;
+
+        public PointMassHistogram(ConnectorHistogram continuous, Map<Double, Double> pointMasses)
+        {
+            this.continuous = continuous;
+            this.pointMasses = new TreeMap<>(pointMasses);
+            this.continuousFraction = 1 - pointMasses.values().stream().mapToDouble(Double::doubleValue).sum();
+        }
+
+        @Override
+        public Estimate cumulativeProbability(double value, boolean inclusive)
+        {
+            double probability = continuous.cumulativeProbability(value, inclusive).getValue() * continuousFraction;
+            for (Map.Entry<Double, Double> pointMass : pointMasses.entrySet()) {
+                if (pointMass.getKey() < value || (inclusive && pointMass.getKey() == value)) {
+                    probability += pointMass.getValue();
+                }
+            }
+            return Estimate.of(probability);
+        }
+
+        @Override
+        public Estimate inverseCumulativeProbability(double percentile)
+        {
+            for (double value : pointMasses.keySet()) {
+                if (cumulativeProbability(value, false).getValue() <= percentile && percentile < cumulativeProbability(value, true).getValue()) {
+                    return Estimate.of(value);
+                }
+            }
+            // bisect the continuous part
+            double low = 0;
+            double high = 1000;
+            for (int i = 0; i < 100; i++) {
+                double middle = (low + high) / 2;
+                if (cumulativeProbability(middle, true).getValue() < percentile) {
+                    low = middle;
+                }
+                else {
+                    high = middle;
+                }
+            }
+            return Estimate.of(high);
+        }
+
+        @Override
+        public long getEstimatedSize()
+        {
+            return 0;
+        }
+    }
 }
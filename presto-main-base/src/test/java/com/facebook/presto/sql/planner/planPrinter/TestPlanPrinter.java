@@ -61,6 +61,7 @@ import static com.facebook.presto.metadata.AbstractMockMetadata.dummyMetadata;
 import static com.facebook.presto.metadata.FunctionAndTypeManager.createTestFunctionAndTypeManager;
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.SOURCE_DISTRIBUTION;
 import static com.facebook.presto.sql.planner.planPrinter.PlanPrinter.formattedFragmentString;
+import static com.facebook.presto.sql.planner.planPrinter.PlanPrinter.formattedTaskInputDistributionString;
 import static io.airlift.slice.Slices.utf8Slice;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static org.testng.Assert.assertEquals;
@@ -234,6 +235,13 @@ public class TestPlanPrinter
         assertEquals(formattedFragmentString(stageExecutionStats, 10.1, 21.2, 3), expected);
     }
 
+    @Test
+    public void assertTaskInputDistributionStringReadability()
+    {
+        assertEquals(formattedTaskInputDistributionString(10, 2000, 500.0), "Input per task: min: 10 rows max: 2,000 rows max/avg: 4.00\n");
+        assertEquals(formattedTaskInputDistributionString(0, 0, 0.0), "Input per task: min: 0 rows max: 0 rows max/avg: ?\n");
+    }
+
     private static OperatorStats createOperatorStats(int stageId, int stageExecutionId, int pipelineId,
             int operatorId, PlanNodeId planNodeId, Class operatorCls,
             long rawInputDataSize, long rawInputPositions,
@@ -0,0 +1,152 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cacheaffinity;
+
+import com.facebook.airlift.http.client.FullJsonResponseHandler.JsonResponse;
+import com.facebook.airlift.http.client.HttpClient;
+import com.facebook.airlift.http.client.HttpClient.HttpResponseFuture;
+import com.facebook.airlift.http.client.Request;
+import com.facebook.airlift.json.JsonCodec;
+import com.facebook.airlift.log.Logger;
+import com.facebook.presto.metadata.ForNodeManager;
+import com.facebook.presto.metadata.InternalNode;
+import com.facebook.presto.metadata.InternalNodeManager;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.errorprone.annotations.ThreadSafe;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Inject;
+
+import java.net.URI;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.facebook.airlift.http.client.FullJsonResponseHandler.createFullJsonResponseHandler;
+import static com.facebook.airlift.http.client.HttpStatus.OK;
+import static com.facebook.airlift.http.client.HttpUriBuilder.uriBuilderFrom;
+import static com.facebook.airlift.http.client.Request.Builder.prepareGet;
+import static com.facebook.airlift.json.JsonCodec.jsonCodec;
+import static com.facebook.presto.spi.NodeState.ACTIVE;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static com.google.common.net.MediaType.JSON_UTF_8;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static jakarta.ws.rs.core.HttpHeaders.CONTENT_TYPE;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Periodically fetches the cache digests of the active workers into {@link ClusterCacheDigests}.
+ */
+@ThreadSafe
+public class CacheDigestFetcher
+{
+    private static final Logger log = Logger.get(CacheDigestFetcher.class);
+    private static final JsonCodec<CacheDigest> CACHE_DIGEST_CODEC = jsonCodec(CacheDigest.class);
+
+    private final InternalNodeManager nodeManager;
+    private final HttpClient httpClient;
+    private final ClusterCacheDigests clusterCacheDigests;
+    private final boolean enabled;
+    private final long refreshIntervalMillis;
+    private final ScheduledExecutorService executor = newSingleThreadScheduledExecutor(daemonThreadsNamed("cache-digest-fetcher"));
+    // nodes with a request in flight, a slow node is not asked again until it responds
+    private final Set<String> pendingNodes = ConcurrentHashMap.newKeySet();
+
+    @Inject
+    public CacheDigestFetcher(
+            InternalNodeManager nodeManager,
+            @ForNodeManager HttpClient httpClient,
+            ClusterCacheDigests clusterCacheDigests,
+            CacheAffinityConfig config)
+    {
+        this.nodeManager = requireNonNull(nodeManager, "nodeManager is null");
+        this.httpClient = requireNonNull(httpClient, "httpClient is null");
+        this.clusterCacheDigests = requireNonNull(clusterCacheDigests, "clusterCacheDigests is null");
+        requireNonNull(config, "config is null");
+        this.enabled = config.isEnabled();
+        this.refreshIntervalMillis = config.getDigestRefreshInterval().toMillis();
+    }
+
+    @PostConstruct
+    public void start()
+    {
+        if (enabled) {
+            executor.scheduleWithFixedDelay(() -> {
+                try {
+                    refresh();
+                }
+                catch (Throwable t) {
+                    log.error(t, "Error refreshing cache digests");
+                }
+            }, 0, refreshIntervalMillis, MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        executor.shutdownNow();
+    }
+
+    private void refresh()
+    {
+        Set<InternalNode> nodes = nodeManager.getNodes(ACTIVE).stream()
+                .filter(node -> !node.isResourceManager() && !node.isCatalogServer())
+                .collect(toImmutableSet());
+        clusterCacheDigests.retainNodes(nodes.stream()
+                .map(InternalNode::getNodeIdentifier)
+                .collect(toImmutableSet()));
+
+        for (InternalNode node : nodes) {
+            String nodeIdentifier = node.getNodeIdentifier();
+            if (!pendingNodes.add(nodeIdentifier)) {
+                continue;
+            }
+            URI uri = uriBuilderFrom(node.getInternalUri()).appendPath("/v1/cache/digest").build();
+            Request request = prepareGet()
+                    .setUri(uri)
+                    .setHeader(CONTENT_TYPE, JSON_UTF_8.toString())
+                    .build();
+            HttpResponseFuture<JsonResponse<CacheDigest>> responseFuture = httpClient.executeAsync(request, createFullJsonResponseHandler(CACHE_DIGEST_CODEC));
+            Futures.addCallback(responseFuture, new FutureCallback<JsonResponse<CacheDigest>>()
+            {
+                @Override
+                public void onSuccess(@Nullable JsonResponse<CacheDigest> result)
+                {
+                    pendingNodes.remove(nodeIdentifier);
+                    if (result == null) {
+                        return;
+                    }
+                    if (result.getStatusCode() != OK.code() || !result.hasValue()) {
+                        log.debug("Error fetching cache digest from %s returned status %d", uri, result.getStatusCode());
+                        return;
+                    }
+                    clusterCacheDigests.update(nodeIdentifier, result.getValue());
+                }
+
+                @Override
+                public void onFailure(Throwable t)
+                {
+                    pendingNodes.remove(nodeIdentifier);
+                    log.warn("Error fetching cache digest from %s: %s", uri, t.getMessage());
+                }
+            }, directExecutor());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cacheaffinity;
+
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Response;
+
+import static com.facebook.presto.server.security.RoleType.INTERNAL;
+import static jakarta.ws.rs.core.MediaType.APPLICATION_JSON;
+import static jakarta.ws.rs.core.Response.Status.NOT_FOUND;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Publishes the cache digest of this worker to the coordinator
+ */
+@Path("/v1/cache/digest")
+@RolesAllowed(INTERNAL)
+public class CacheDigestResource
+{
+    private final LocalCacheDigest localCacheDigest;
+
+    @Inject
+    public CacheDigestResource(LocalCacheDigest localCacheDigest)
+    {
+        this.localCacheDigest = requireNonNull(localCacheDigest, "localCacheDigest is null");
+    }
+
+    @GET
+    @Produces(APPLICATION_JSON)
+    public Response getCacheDigest()
+    {
+        if (!localCacheDigest.isEnabled()) {
+            return Response.status(NOT_FOUND).build();
+        }
+        return Response.ok()
+                .entity(localCacheDigest.getDigest())
+                .build();
+    }
+}
@@ -38,6 +38,7 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.SortedMap;
 import java.util.TreeMap;
@@ -49,6 +50,7 @@ import java.util.function.Supplier;
 
 import static com.facebook.airlift.concurrent.Threads.threadsNamed;
 import static com.facebook.presto.execution.MemoryRevokingUtils.getMemoryPools;
+import static com.facebook.presto.sql.analyzer.FeaturesConfig.TaskSpillingStrategy.ORDER_BY_SPILL_EFFICIENCY;
 import static com.facebook.presto.sql.analyzer.FeaturesConfig.TaskSpillingStrategy.PER_TASK_MEMORY_THRESHOLD;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Verify.verify;
@@ -286,6 +288,11 @@ public class MemoryRevokingScheduler
 
     private void requestRevoking(MemoryPoolId memoryPoolId, ArrayList<SqlTask> sqlTasks, long remainingBytesToRevoke)
     {
+        if (spillingStrategy == ORDER_BY_SPILL_EFFICIENCY) {
+            requestRevokingBySpillEfficiency(memoryPoolId, sqlTasks, remainingBytesToRevoke);
+            return;
+        }
+
         VoidTraversingQueryContextVisitor<AtomicLong> visitor = new VoidTraversingQueryContextVisitor<AtomicLong>()
         {
             @Override
@@ -329,6 +336,41 @@ public class MemoryRevokingScheduler
         }
     }
 
+    private void requestRevokingBySpillEfficiency(MemoryPoolId memoryPoolId, List<SqlTask> sqlTasks, long remainingBytesToRevoke)
+    {
+        VoidTraversingQueryContextVisitor<List<OperatorContext>> visitor = new VoidTraversingQueryContextVisitor<List<OperatorContext>>()
+        {
+            @Override
+            public Void visitOperatorContext(OperatorContext operatorContext, List<OperatorContext> candidates)
+            {
+                if (!operatorContext.isMemoryRevokingRequested() && operatorContext.getReservedRevocableBytes() > 0) {
+                    candidates.add(operatorContext);
+                }
+                return null;
+            }
+        };
+        List<OperatorContext> candidates = new ArrayList<>();
+        for (SqlTask task : sqlTasks) {
+            task.getTaskContext().ifPresent(taskContext -> taskContext.accept(visitor, candidates));
+        }
+
+        // revocable memory changes concurrently, so score every operator once before sorting
+        Map<OperatorContext, Double> scores = new HashMap<>();
+        candidates.forEach(operatorContext -> scores.put(operatorContext, MemoryRevokingSchedulerUtils.getRevocationScore(operatorContext)));
+        candidates.sort(Ordering.natural().reverse().onResultOf(scores::get));
+
+        for (OperatorContext operatorContext : candidates) {
+            if (remainingBytesToRevoke <= 0) {
+                return;
+            }
+            long revokedBytes = operatorContext.requestMemoryRevoking();
+            if (revokedBytes > 0) {
+                remainingBytesToRevoke -= revokedBytes;
+                log.debug("memoryPool=%s, operatorContext: %s: requested revoking %s; remaining %s", memoryPoolId, operatorContext, revokedBytes, remainingBytesToRevoke);
+            }
+        }
+    }
+
     private static void sortTasksToTraversalOrder(ArrayList<SqlTask> sqlTasks, TaskSpillingStrategy spillingStrategy)
     {
         switch (spillingStrategy) {
@@ -345,6 +387,8 @@ public class MemoryRevokingScheduler
                 break;
             case PER_TASK_MEMORY_THRESHOLD:
                 throw new IllegalArgumentException("spilling strategy cannot be PER_TASK_MEMORY_THRESHOLD in MemoryRevokingScheduler");
+            case ORDER_BY_SPILL_EFFICIENCY:
+                throw new IllegalArgumentException("operators are ranked across tasks for ORDER_BY_SPILL_EFFICIENCY");
             default:
                 throw new UnsupportedOperationException("Unexpected spilling strategy in MemoryRevokingScheduler");
         }
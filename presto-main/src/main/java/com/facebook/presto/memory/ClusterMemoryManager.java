@@ -41,6 +41,7 @@ import com.facebook.presto.spi.memory.MemoryPoolInfo;
 import com.facebook.presto.spi.resourceGroups.ResourceGroupQueryLimits;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
+import com.google.common.base.Ticker;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -100,6 +101,7 @@ import static java.lang.String.format;
 import static java.util.AbstractMap.SimpleEntry;
 import static java.util.Comparator.comparingLong;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.function.Function.identity;
 import static org.weakref.jmx.ObjectNames.generatedNameOf;
 
@@ -122,6 +124,7 @@ public class ClusterMemoryManager
     private final boolean enabled;
     private final LowMemoryKiller lowMemoryKiller;
     private final Duration killOnOutOfMemoryDelay;
+    private final boolean waitForMemoryRevocation;
     private final String coordinatorId;
     private final AtomicLong memoryPoolAssignmentsVersion = new AtomicLong();
     private final AtomicLong clusterUserMemoryReservation = new AtomicLong();
@@ -143,6 +146,9 @@ public class ClusterMemoryManager
     @GuardedBy("this")
     private long lastTimeNotOutOfMemory = System.nanoTime();
 
+    @GuardedBy("this")
+    private final MemoryRevocationWait memoryRevocationWait;
+
     @GuardedBy("this")
     private QueryId lastKilledQuery;
 
@@ -181,6 +187,8 @@ public class ClusterMemoryManager
         this.coordinatorId = queryIdGenerator.getCoordinatorId();
         this.enabled = serverConfig.isCoordinator();
         this.killOnOutOfMemoryDelay = config.getKillOnOutOfMemoryDelay();
+        this.waitForMemoryRevocation = config.isWaitForMemoryRevocation();
+        this.memoryRevocationWait = new MemoryRevocationWait(killOnOutOfMemoryDelay, Ticker.systemTicker());
         this.isWorkScheduledOnCoordinator = schedulerConfig.isIncludeCoordinator();
         this.isBinaryTransportEnabled = communicationConfig.isBinaryTransportEnabled();
         if (this.isBinaryTransportEnabled) {
@@ -288,7 +296,14 @@ public class ClusterMemoryManager
         clusterUserMemoryReservation.set(totalUserMemoryBytes);
         clusterTotalMemoryReservation.set(totalMemoryBytes);
 
-        boolean killOnOomDelayPassed = nanosSince(lastTimeNotOutOfMemory).compareTo(killOnOutOfMemoryDelay) > 0;
+        boolean killOnOomDelayPassed;
+        if (waitForMemoryRevocation) {
+            // workers spill the revocable memory of out of memory nodes, which frees memory without failing a query
+            killOnOomDelayPassed = memoryRevocationWait.isKillOnOutOfMemoryDelayPassed(outOfMemory, pools.get(GENERAL_POOL).getReservedRevocableDistributedBytes());
+        }
+        else {
+            killOnOomDelayPassed = nanosSince(lastTimeNotOutOfMemory).compareTo(killOnOutOfMemoryDelay) > 0;
+        }
         boolean lastKilledQueryGone = isLastKilledQueryGone();
         boolean shouldCallOomKiller = !(lowMemoryKiller instanceof NoneLowMemoryKiller) &&
                 outOfMemory &&
@@ -685,4 +700,60 @@ public class ClusterMemoryManager
     {
         return queriesKilledDueToOutOfMemory.get();
     }
+
+    /**
+     * Defers the low memory killer while the workers free revocable memory. The kill delay restarts
+     * only when the revocable memory of the cluster shrinks by {@link #MIN_PROGRESS_FRACTION} while it
+     * is out of memory, and the killer is deferred for at most {@link #MAX_DEFERRED_DELAYS} delays.
+     */
+    @VisibleForTesting
+    static class MemoryRevocationWait
+    {
+        @VisibleForTesting
+        static final double MIN_PROGRESS_FRACTION = 0.05;
+        @VisibleForTesting
+        static final int MAX_DEFERRED_DELAYS = 3;
+
+        private final long killOnOutOfMemoryDelayNanos;
+        private final Ticker ticker;
+
+        private long lastTimeNotOutOfMemory;
+        private long lastTimeRevocationProgressed;
+        private long revocableMemoryBytesAtLastProgress;
+
+        MemoryRevocationWait(Duration killOnOutOfMemoryDelay, Ticker ticker)
+        {
+            this.killOnOutOfMemoryDelayNanos = requireNonNull(killOnOutOfMemoryDelay, "killOnOutOfMemoryDelay is null").roundTo(NANOSECONDS);
+            this.ticker = requireNonNull(ticker, "ticker is null");
+            this.lastTimeNotOutOfMemory = ticker.read();
+            this.lastTimeRevocationProgressed = lastTimeNotOutOfMemory;
+        }
+
+        boolean isKillOnOutOfMemoryDelayPassed(boolean outOfMemory, long revocableMemoryBytes)
+        {
+            long now = ticker.read();
+            if (!outOfMemory) {
+                lastTimeNotOutOfMemory = now;
+                lastTimeRevocationProgressed = now;
+                revocableMemoryBytesAtLastProgress = revocableMemoryBytes;
+                return false;
+            }
+
+            if (revocableMemoryBytes <= revocableMemoryBytesAtLastProgress * (1 - MIN_PROGRESS_FRACTION)) {
+                lastTimeRevocationProgressed = now;
+                revocableMemoryBytesAtLastProgress = revocableMemoryBytes;
+            }
+            else if (revocableMemoryBytes > revocableMemoryBytesAtLastProgress) {
+                // progress is measured from the peak, so a small dip after growth does not count
+                revocableMemoryBytesAtLastProgress = revocableMemoryBytes;
+            }
+
+            long outOfMemoryNanos = now - lastTimeNotOutOfMemory;
+            if (outOfMemoryNanos <= killOnOutOfMemoryDelayNanos) {
+                return false;
+            }
+            return now - lastTimeRevocationProgressed > killOnOutOfMemoryDelayNanos ||
+                    outOfMemoryNanos > MAX_DEFERRED_DELAYS * killOnOutOfMemoryDelayNanos;
+        }
+    }
 }
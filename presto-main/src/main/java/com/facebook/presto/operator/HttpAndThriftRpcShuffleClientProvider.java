@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.resultcache.QueryResultCache;
 import com.facebook.presto.spi.PrestoException;
 import com.google.inject.Inject;
 
@@ -26,14 +27,17 @@ public class HttpAndThriftRpcShuffleClientProvider
 {
     private final HttpShuffleClientProvider httpShuffleClientProvider;
     private final ThriftShuffleClientProvider thriftShuffleClientProvider;
+    private final QueryResultCache queryResultCache;
 
     @Inject
     public HttpAndThriftRpcShuffleClientProvider(
             @ForExchange HttpShuffleClientProvider httpShuffleClientProvider,
-            @ForExchange ThriftShuffleClientProvider thriftShuffleClientProvider)
+            @ForExchange ThriftShuffleClientProvider thriftShuffleClientProvider,
+            QueryResultCache queryResultCache)
     {
         this.httpShuffleClientProvider = httpShuffleClientProvider;
         this.thriftShuffleClientProvider = thriftShuffleClientProvider;
+        this.queryResultCache = queryResultCache;
     }
 
     @Override
@@ -45,6 +49,8 @@ public class HttpAndThriftRpcShuffleClientProvider
                 return httpShuffleClientProvider.get(location);
             case "thrift":
                 return thriftShuffleClientProvider.get(location);
+            case "cache":
+                return queryResultCache.getShuffleClient(location);
             default:
                 throw new PrestoException(GENERIC_INTERNAL_ERROR, "unsupported task result client scheme " + location.getScheme());
         }
@@ -19,6 +19,7 @@ import com.facebook.airlift.discovery.server.EmbeddedDiscoveryModule;
 import com.facebook.airlift.http.client.HttpClient;
 import com.facebook.airlift.http.server.HttpServerBinder.HttpResourceBinding;
 import com.facebook.airlift.units.Duration;
+import com.facebook.presto.cacheaffinity.CacheDigestFetcher;
 import com.facebook.presto.client.QueryResults;
 import com.facebook.presto.cost.CostCalculator;
 import com.facebook.presto.cost.CostCalculator.EstimatedExchanges;
@@ -78,6 +79,7 @@ import com.facebook.presto.operator.ForScheduler;
 import com.facebook.presto.operator.OperatorInfo;
 import com.facebook.presto.resourcemanager.ForResourceManager;
 import com.facebook.presto.resourcemanager.ResourceManagerProxy;
+import com.facebook.presto.resultcache.QueryResultCacheKeyGenerator;
 import com.facebook.presto.server.protocol.ExecutingQueryResponseProvider;
 import com.facebook.presto.server.protocol.ExecutingStatementResource;
 import com.facebook.presto.server.protocol.LocalExecutingQueryResponseProvider;
@@ -266,6 +268,9 @@ public class CoordinatorModule
         // node monitor
         binder.bind(ClusterSizeMonitor.class).in(Scopes.SINGLETON);
 
+        // cache digests of the workers
+        binder.bind(CacheDigestFetcher.class).in(Scopes.SINGLETON);
+
         // statistics calculator
         binder.install(new StatsCalculatorModule());
 
@@ -328,6 +333,7 @@ public class CoordinatorModule
         binder.bind(SplitSchedulerStats.class).in(Scopes.SINGLETON);
         newExporter(binder).export(SplitSchedulerStats.class).withGeneratedName();
         binder.bind(SqlQueryExecutionFactory.class).in(Scopes.SINGLETON);
+        binder.bind(QueryResultCacheKeyGenerator.class).in(Scopes.SINGLETON);
         binder.bind(SectionExecutionFactory.class).in(Scopes.SINGLETON);
 
         binder.bind(PartialResultQueryManager.class).in(Scopes.SINGLETON);
@@ -39,6 +39,10 @@ import com.facebook.presto.builtin.tools.ForNativeFunctionRegistryInfo;
 import com.facebook.presto.builtin.tools.NativeSidecarFunctionRegistryTool;
 import com.facebook.presto.builtin.tools.NativeSidecarRegistryToolConfig;
 import com.facebook.presto.builtin.tools.WorkerFunctionRegistryTool;
+import com.facebook.presto.cacheaffinity.CacheAffinityConfig;
+import com.facebook.presto.cacheaffinity.CacheDigestResource;
+import com.facebook.presto.cacheaffinity.ClusterCacheDigests;
+import com.facebook.presto.cacheaffinity.LocalCacheDigest;
 import com.facebook.presto.catalogserver.CatalogServerClient;
 import com.facebook.presto.catalogserver.RandomCatalogServerAddressSelector;
 import com.facebook.presto.catalogserver.RemoteMetadataManager;
@@ -131,6 +135,7 @@ import com.facebook.presto.operator.ExchangeClientSupplier;
 import com.facebook.presto.operator.FileFragmentResultCacheConfig;
 import com.facebook.presto.operator.FileFragmentResultCacheManager;
 import com.facebook.presto.operator.ForExchange;
+import com.facebook.presto.operator.ForHashBuild;
 import com.facebook.presto.operator.FragmentCacheStats;
 import com.facebook.presto.operator.FragmentResultCacheManager;
 import com.facebook.presto.operator.HttpAndThriftRpcShuffleClientProvider;
@@ -158,6 +163,8 @@ import com.facebook.presto.resourcemanager.ResourceManagerClusterStatusSender;
 import com.facebook.presto.resourcemanager.ResourceManagerConfig;
 import com.facebook.presto.resourcemanager.ResourceManagerInconsistentException;
 import com.facebook.presto.resourcemanager.ResourceManagerResourceGroupService;
+import com.facebook.presto.resultcache.QueryResultCache;
+import com.facebook.presto.resultcache.QueryResultCacheConfig;
 import com.facebook.presto.server.remotetask.DecompressionFilter;
 import com.facebook.presto.server.remotetask.HttpLocationFactory;
 import com.facebook.presto.server.remotetask.ReactorNettyHttpClientConfig;
@@ -202,6 +209,8 @@ import com.facebook.presto.split.PageSinkManager;
 import com.facebook.presto.split.PageSinkProvider;
 import com.facebook.presto.split.PageSourceManager;
 import com.facebook.presto.split.PageSourceProvider;
+import com.facebook.presto.split.SharedScanConfig;
+import com.facebook.presto.split.SharedScanManager;
 import com.facebook.presto.split.SplitManager;
 import com.facebook.presto.sql.Serialization.ExpressionDeserializer;
 import com.facebook.presto.sql.Serialization.ExpressionSerializer;
@@ -279,6 +288,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
@@ -617,6 +627,10 @@ public class ServerMainModule
         thriftCodecBinder(binder).bindThriftCodec(TaskInfo.class);
 
         // exchange client
+        // the result cache is only filled on the coordinator, but the exchange client is bound on all nodes
+        configBinder(binder).bindConfig(QueryResultCacheConfig.class);
+        binder.bind(QueryResultCache.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(QueryResultCache.class).withGeneratedName();
         binder.bind(RpcShuffleClientProvider.class)
                 .annotatedWith(ForExchange.class)
                 .to(HttpAndThriftRpcShuffleClientProvider.class);
@@ -661,6 +675,12 @@ public class ServerMainModule
         configBinder(binder).bindConfig(TransactionManagerConfig.class);
 
         // data stream provider
+        configBinder(binder).bindConfig(SharedScanConfig.class);
+        configBinder(binder).bindConfig(CacheAffinityConfig.class);
+        binder.bind(LocalCacheDigest.class).in(Scopes.SINGLETON);
+        binder.bind(ClusterCacheDigests.class).in(Scopes.SINGLETON);
+        jaxrsBinder(binder).bind(CacheDigestResource.class);
+        binder.bind(SharedScanManager.class).in(Scopes.SINGLETON);
         binder.bind(PageSourceManager.class).in(Scopes.SINGLETON);
         binder.bind(PageSourceProvider.class).to(PageSourceManager.class).in(Scopes.SINGLETON);
 
@@ -913,6 +933,14 @@ public class ServerMainModule
         return newScheduledThreadPool(config.getClientThreads(), daemonThreadsNamed("exchange-client-%s"));
     }
 
+    @Provides
+    @Singleton
+    @ForHashBuild
+    public static Executor createHashBuildExecutor(TaskExecutor taskExecutor)
+    {
+        return taskExecutor.getHashBuildExecutor();
+    }
+
     @Provides
     @Singleton
     @ForAsyncRpc
@@ -132,9 +132,14 @@ public class TaskResource
                 taskUpdateRequest.getSources(),
                 taskUpdateRequest.getOutputIds(),
                 taskUpdateRequest.getTableWriteInfo());
+        // also called without requests, so that results the coordinator has seen are dropped
+        if (!taskUpdateRequest.getSplitReclaimRequests().isEmpty() || !taskInfo.getReclaimedSplits().isEmpty()) {
+            taskInfo = taskManager.reclaimSplits(taskId, taskUpdateRequest.getSplitReclaimRequests());
+        }
 
         if (shouldSummarize(uriInfo)) {
-            taskInfo = taskInfo.summarize();
+            // the coordinator reads reclaimed splits from the response to the update that carried the request
+            taskInfo = taskInfo.summarize().withReclaimedSplits(taskInfo.getReclaimedSplits());
         }
         return Response.ok().entity(taskInfo).build();
     }
@@ -21,6 +21,7 @@ import com.facebook.presto.execution.QueryManager;
 import com.facebook.presto.memory.context.SimpleLocalMemoryContext;
 import com.facebook.presto.operator.ExchangeClient;
 import com.facebook.presto.operator.ExchangeClientSupplier;
+import com.facebook.presto.resultcache.QueryResultCache;
 import com.facebook.presto.server.ForStatementResource;
 import com.facebook.presto.server.RetryConfig;
 import com.facebook.presto.spi.QueryId;
@@ -60,6 +61,7 @@ public class LocalQueryProvider
     private final ScheduledExecutorService timeoutExecutor;
     private final RetryCircuitBreaker retryCircuitBreaker;
     private final RetryConfig retryConfig;
+    private final QueryResultCache queryResultCache;
 
     private final ConcurrentMap<QueryId, Query> queries = new ConcurrentHashMap<>();
     private final ScheduledExecutorService queryPurger = newSingleThreadScheduledExecutor(threadsNamed("execution-query-purger"));
@@ -73,7 +75,8 @@ public class LocalQueryProvider
             @ForStatementResource BoundedExecutor responseExecutor,
             @ForStatementResource ScheduledExecutorService timeoutExecutor,
             RetryCircuitBreaker retryCircuitBreaker,
-            RetryConfig retryConfig)
+            RetryConfig retryConfig,
+            QueryResultCache queryResultCache)
     {
         this.queryManager = requireNonNull(queryManager, "queryManager is null");
         this.transactionManager = requireNonNull(transactionManager, "transactionManager is null");
@@ -83,6 +86,7 @@ public class LocalQueryProvider
         this.timeoutExecutor = requireNonNull(timeoutExecutor, "timeoutExecutor is null");
         this.retryCircuitBreaker = requireNonNull(retryCircuitBreaker, "retryCircuitBreaker is null");
         this.retryConfig = requireNonNull(retryConfig, "retryConfig is null");
+        this.queryResultCache = requireNonNull(queryResultCache, "queryResultCache is null");
     }
 
     @PostConstruct
@@ -164,7 +168,8 @@ public class LocalQueryProvider
                     retryConfig,
                     retryUrl,
                     retryExpirationEpochTime,
-                    isRetryQuery);
+                    isRetryQuery,
+                    queryResultCache);
         });
         return query;
     }
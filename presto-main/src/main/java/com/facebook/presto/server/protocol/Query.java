@@ -36,6 +36,7 @@ import com.facebook.presto.execution.QueryState;
 import com.facebook.presto.execution.StageInfo;
 import com.facebook.presto.execution.buffer.PagesSerdeFactory;
 import com.facebook.presto.operator.ExchangeClient;
+import com.facebook.presto.resultcache.QueryResultCache;
 import com.facebook.presto.server.RetryConfig;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.QueryId;
@@ -126,6 +127,7 @@ class Query
     private final PagesSerde serde;
     private final RetryCircuitBreaker retryCircuitBreaker;
     private final RetryConfig retryConfig;
+    private final QueryResultCache queryResultCache;
 
     @GuardedBy("this")
     private OptionalLong nextToken = OptionalLong.of(0);
@@ -175,6 +177,10 @@ class Query
     @GuardedBy("this")
     private boolean hasProducedResult;
 
+    // set for queries served from the result cache as well, which have no output stage
+    @GuardedBy("this")
+    private boolean hasOutputLocations;
+
     @GuardedBy("this")
     private Map<SqlFunctionId, SqlInvokedFunction> addedSessionFunctions = ImmutableMap.of();
 
@@ -194,7 +200,8 @@ class Query
             RetryConfig retryConfig,
             Optional<URI> retryUrl,
             OptionalLong retryExpirationEpochTime,
-            boolean isRetryQuery)
+            boolean isRetryQuery,
+            QueryResultCache queryResultCache)
     {
         Query result = new Query(
                 session,
@@ -209,7 +216,8 @@ class Query
                 timeoutExecutor,
                 blockEncodingSerde,
                 retryCircuitBreaker,
-                retryConfig);
+                retryConfig,
+                queryResultCache);
 
         result.queryManager.addOutputInfoListener(result.getQueryId(), result::setQueryOutputInfo);
 
@@ -236,7 +244,8 @@ class Query
             ScheduledExecutorService timeoutExecutor,
             BlockEncodingSerde blockEncodingSerde,
             RetryCircuitBreaker retryCircuitBreaker,
-            RetryConfig retryConfig)
+            RetryConfig retryConfig,
+            QueryResultCache queryResultCache)
     {
         requireNonNull(session, "session is null");
         requireNonNull(slug, "slug is null");
@@ -250,6 +259,7 @@ class Query
         requireNonNull(blockEncodingSerde, "serde is null");
         requireNonNull(retryCircuitBreaker, "retryCircuitBreaker is null");
         requireNonNull(retryConfig, "retryConfig is null");
+        requireNonNull(queryResultCache, "queryResultCache is null");
 
         this.queryManager = queryManager;
         this.transactionManager = transactionManager;
@@ -267,6 +277,7 @@ class Query
         this.serde = new PagesSerdeFactory(blockEncodingSerde, getExchangeCompressionCodec(session), isExchangeChecksumEnabled(session)).createPagesSerde();
         this.retryCircuitBreaker = retryCircuitBreaker;
         this.retryConfig = retryConfig;
+        this.queryResultCache = queryResultCache;
     }
 
     public void cancel()
@@ -278,6 +289,7 @@ class Query
     public synchronized void dispose()
     {
         exchangeClient.close();
+        queryResultCache.abortRecording(queryId);
     }
 
     public QueryId getQueryId()
@@ -515,6 +527,7 @@ class Query
                     if (serializedPage == null) {
                         break;
                     }
+                    queryResultCache.recordPage(queryId, serializedPage);
 
                     rows += serializedPage.getPositionCount();
                     bytes += serializedPage.getSizeInBytes();
@@ -537,6 +550,7 @@ class Query
                     if (serializedPage == null) {
                         break;
                     }
+                    queryResultCache.recordPage(queryId, serializedPage);
 
                     Page page = serde.deserialize(serializedPage);
                     bytes += page.getLogicalSizeInBytes();
@@ -576,8 +590,13 @@ class Query
 
         closeExchangeClientIfNecessary(queryInfo);
 
+        if ((queryInfo.getState() == QueryState.FINISHED) && exchangeClient.isClosed()) {
+            // all the pages of the result were returned, so it can be cached if it was recorded
+            queryResultCache.finishRecording(queryId);
+        }
+
         // for queries with no output, return a fake result for clients that require it
-        if ((queryInfo.getState() == QueryState.FINISHED) && !queryInfo.getOutputStage().isPresent()) {
+        if ((queryInfo.getState() == QueryState.FINISHED) && !queryInfo.getOutputStage().isPresent() && !hasOutputLocations) {
             columns = ImmutableList.of(new Column("result", BooleanType.BOOLEAN));
             data = ImmutableSet.of(ImmutableList.of(true));
         }
@@ -650,7 +669,7 @@ class Query
         // is done and it does not have an output stage. The latter happens
         // for data definition executions, as those do not have output.
         if ((queryInfo.getState() == FAILED) ||
-                (queryInfo.getState().isDone() && !queryInfo.getOutputStage().isPresent())) {
+                (queryInfo.getState().isDone() && !queryInfo.getOutputStage().isPresent() && !hasOutputLocations)) {
             exchangeClient.close();
         }
     }
@@ -671,6 +690,9 @@ class Query
             types = outputInfo.getColumnTypes();
         }
 
+        if (!outputInfo.getBufferLocations().isEmpty()) {
+            hasOutputLocations = true;
+        }
         outputInfo.getBufferLocations().forEach(exchangeClient::addLocation);
         if (outputInfo.isNoMoreBufferLocations()) {
             exchangeClient.noMoreLocations();
@@ -35,10 +35,12 @@ import com.facebook.presto.execution.Lifespan;
 import com.facebook.presto.execution.NodeTaskMap.NodeStatsTracker;
 import com.facebook.presto.execution.PartitionedSplitsInfo;
 import com.facebook.presto.execution.QueryManager;
+import com.facebook.presto.execution.ReclaimedSplits;
 import com.facebook.presto.execution.RemoteTask;
 import com.facebook.presto.execution.SafeEventLoopGroup;
 import com.facebook.presto.execution.ScheduledSplit;
 import com.facebook.presto.execution.SchedulerStatsTracker;
+import com.facebook.presto.execution.SplitReclaimRequest;
 import com.facebook.presto.execution.StateMachine.StateChangeListener;
 import com.facebook.presto.execution.TaskId;
 import com.facebook.presto.execution.TaskInfo;
@@ -105,6 +107,7 @@ import static com.facebook.airlift.http.client.Request.Builder.preparePost;
 import static com.facebook.airlift.http.client.StaticBodyGenerator.createStaticBodyGenerator;
 import static com.facebook.airlift.http.client.StatusResponseHandler.createStatusResponseHandler;
 import static com.facebook.presto.SystemSessionProperties.getMaxUnacknowledgedSplitsPerTask;
+import static com.facebook.presto.SystemSessionProperties.getSplitWorkStealingReclaimTimeout;
 import static com.facebook.presto.execution.TaskInfo.createInitialTask;
 import static com.facebook.presto.execution.TaskState.ABORTED;
 import static com.facebook.presto.execution.TaskState.FAILED;
@@ -190,6 +193,13 @@ public final class HttpRemoteTaskWithEventLoop
     // The keys of this map represent all plan nodes that have "no more splits".
     // The boolean value of each entry represents whether the "no more splits" notification is pending delivery to workers.
     private final Map<PlanNodeId, Boolean> noMoreSplits = new HashMap<>();
+    // split reclaims are sent with every update until the task reports their result, and
+    // "no more splits" for their source is held back until then so late results can be given back to the task
+    private final Map<PlanNodeId, SplitReclaimRequest> pendingSplitReclaims = new HashMap<>();
+    private final Map<Long, SettableFuture<List<Split>>> splitReclaimFutures = new HashMap<>();
+    private long nextSplitReclaimId;
+    // set once the task answers an update without reporting the reclaims it carried
+    private boolean splitReclaimUnsupported;
     private OutputBuffers outputBuffers;
     private final FutureStateChange<?> whenSplitQueueHasSpace = new FutureStateChange<>();
     private volatile long whenSplitQueueWeightThreshold = Long.MAX_VALUE;
@@ -224,6 +234,7 @@ public final class HttpRemoteTaskWithEventLoop
     private final HandleResolver handleResolver;
     private final int maxTaskUpdateSizeInBytes;
     private final int maxUnacknowledgedSplits;
+    private final Duration splitReclaimTimeout;
     private final DataSize maxTaskUpdateDataSize;
 
     private final TableWriteInfo tableWriteInfo;
@@ -412,6 +423,7 @@ public final class HttpRemoteTaskWithEventLoop
         this.maxTaskUpdateDataSize = DataSize.succinctBytes(this.maxTaskUpdateSizeInBytes);
         this.maxUnacknowledgedSplits = getMaxUnacknowledgedSplitsPerTask(session);
         checkArgument(maxUnacknowledgedSplits > 0, "maxUnacknowledgedSplits must be > 0, found: %s", maxUnacknowledgedSplits);
+        this.splitReclaimTimeout = getSplitWorkStealingReclaimTimeout(session);
 
         this.tableScanPlanNodeIds = ImmutableSet.copyOf(planFragment.getTableScanSchedulingOrder());
         this.remoteSourcePlanNodeIds = planFragment.getRemoteSourceNodes().stream()
@@ -625,6 +637,30 @@ public final class HttpRemoteTaskWithEventLoop
         }, "noMoreSplits with lifeSpan");
     }
 
+    @Override
+    public ListenableFuture<List<Split>> reclaimSplits(PlanNodeId sourceId, int maxSplitCount)
+    {
+        requireNonNull(sourceId, "sourceId is null");
+        checkArgument(tableScanPlanNodeIds.contains(sourceId), "%s is not a table scan source", sourceId);
+
+        SettableFuture<List<Split>> future = SettableFuture.create();
+        safeExecuteOnEventLoop(() -> {
+            if (getTaskStatus().getState().isDone() || splitReclaimUnsupported || noMoreSplits.containsKey(sourceId) || pendingSplitReclaims.containsKey(sourceId)) {
+                future.set(ImmutableList.of());
+                return;
+            }
+
+            SplitReclaimRequest request = new SplitReclaimRequest(sourceId, nextSplitReclaimId++, maxSplitCount);
+            pendingSplitReclaims.put(sourceId, request);
+            splitReclaimFutures.put(request.getReclaimId(), future);
+            // the request keeps being sent after the timeout, and splits it reports late are given back to this task
+            taskEventLoop.schedule(() -> future.set(ImmutableList.of()), splitReclaimTimeout.toMillis(), MILLISECONDS);
+            needsUpdate = true;
+            scheduleUpdate();
+        }, "reclaimSplits");
+        return future;
+    }
+
     @Override
     public void setOutputBuffers(OutputBuffers newOutputBuffers)
     {
@@ -849,7 +885,7 @@ public final class HttpRemoteTaskWithEventLoop
         }
     }
 
-    private void processTaskUpdate(TaskInfo newValue, List<TaskSource> sources)
+    private void processTaskUpdate(TaskInfo newValue, List<TaskSource> sources, List<SplitReclaimRequest> splitReclaimRequests)
     {
         verify(taskEventLoop.inEventLoop());
 
@@ -857,6 +893,16 @@ public final class HttpRemoteTaskWithEventLoop
         //Once it is converted to thrift we can use the isThrift enabled flag here.
         updateTaskInfo(newValue);
 
+        // a task that supports split reclaiming reports the result of every reclaim in the response to the update that carried it
+        for (SplitReclaimRequest request : splitReclaimRequests) {
+            SettableFuture<List<Split>> future = splitReclaimFutures.remove(request.getReclaimId());
+            if (future != null) {
+                splitReclaimUnsupported = true;
+                removePendingSplitReclaim(request.getPlanNodeId());
+                future.set(ImmutableList.of());
+            }
+        }
+
         int removed = 0;
         long removedWeight = 0;
 
@@ -907,7 +953,57 @@ public final class HttpRemoteTaskWithEventLoop
         verify(taskEventLoop.inEventLoop());
 
         taskStatusFetcher.updateTaskStatus(taskInfo.getTaskStatus());
-        taskInfoFetcher.updateTaskInfo(taskInfo);
+        if (taskInfo.getReclaimedSplits().isEmpty()) {
+            taskInfoFetcher.updateTaskInfo(taskInfo);
+        }
+        else {
+            // reclaimed splits are only needed here, so keep them out of the task info kept for the query
+            taskInfoFetcher.updateTaskInfo(taskInfo.withReclaimedSplits(ImmutableList.of()));
+            completeSplitReclaims(taskInfo);
+        }
+    }
+
+    private void completeSplitReclaims(TaskInfo taskInfo)
+    {
+        verify(taskEventLoop.inEventLoop());
+
+        if (splitReclaimFutures.isEmpty()) {
+            return;
+        }
+        for (ReclaimedSplits reclaimedSplits : taskInfo.getReclaimedSplits()) {
+            SettableFuture<List<Split>> future = splitReclaimFutures.remove(reclaimedSplits.getReclaimId());
+            if (future == null) {
+                // reported by an earlier task info
+                continue;
+            }
+            removePendingSplitReclaim(reclaimedSplits.getPlanNodeId());
+            List<Split> splits = reclaimedSplits.getSplits().stream()
+                    .map(ScheduledSplit::getSplit)
+                    .collect(toImmutableList());
+            if (!future.set(splits) && !splits.isEmpty()) {
+                // the reclaim timed out, so the splits were never reassigned and go back to this task
+                long weight = 0;
+                for (Split split : splits) {
+                    pendingSplits.put(reclaimedSplits.getPlanNodeId(), new ScheduledSplit(nextSplitId++, reclaimedSplits.getPlanNodeId(), split));
+                    weight = addExact(weight, split.getSplitWeight().getRawValue());
+                }
+                pendingSourceSplitCount.addAndGet(splits.size());
+                pendingSourceSplitsWeight.addAndGet(weight);
+                updateTaskStats();
+                needsUpdate = true;
+            }
+        }
+    }
+
+    private void removePendingSplitReclaim(PlanNodeId sourceId)
+    {
+        verify(taskEventLoop.inEventLoop());
+
+        pendingSplitReclaims.remove(sourceId);
+        if (Boolean.TRUE.equals(noMoreSplits.get(sourceId))) {
+            // "no more splits" was held back while the reclaim was pending
+            needsUpdate = true;
+        }
     }
 
     private void cleanUpLocally()
@@ -993,6 +1089,7 @@ public final class HttpRemoteTaskWithEventLoop
             }
 
             List<TaskSource> sources = getSources();
+            List<SplitReclaimRequest> splitReclaimRequests = ImmutableList.copyOf(pendingSplitReclaims.values());
 
             Optional<byte[]> fragment = Optional.empty();
             if (sendPlan) {
@@ -1007,7 +1104,8 @@ public final class HttpRemoteTaskWithEventLoop
                     fragment,
                     sources,
                     outputBuffers,
-                    writeInfo);
+                    writeInfo,
+                    splitReclaimRequests);
             long serializeStartCpuTimeNanos = THREAD_MX_BEAN.getCurrentThreadCpuTime();
             Request.Builder requestBuilder;
             HttpUriBuilder uriBuilder = getHttpUriBuilder(taskStatus);
@@ -1067,13 +1165,13 @@ public final class HttpRemoteTaskWithEventLoop
             if (taskInfoResponseThriftSerdeEnabled) {
                 Futures.addCallback(
                         (ListenableFuture<ThriftResponse<TaskInfo>>) future,
-                        new ThriftHttpResponseHandler<>(new UpdateResponseHandler(sources), request.getUri(), stats.getHttpResponseStats(), REMOTE_TASK_ERROR),
+                        new ThriftHttpResponseHandler<>(new UpdateResponseHandler(sources, splitReclaimRequests), request.getUri(), stats.getHttpResponseStats(), REMOTE_TASK_ERROR),
                         taskEventLoop);
             }
             else {
                 Futures.addCallback(
                         (ListenableFuture<BaseResponse<TaskInfo>>) future,
-                        new SimpleHttpResponseHandler<>(new UpdateResponseHandler(sources), request.getUri(), stats.getHttpResponseStats(), REMOTE_TASK_ERROR),
+                        new SimpleHttpResponseHandler<>(new UpdateResponseHandler(sources, splitReclaimRequests), request.getUri(), stats.getHttpResponseStats(), REMOTE_TASK_ERROR),
                         taskEventLoop);
             }
         }, "sendUpdate");
@@ -1096,8 +1194,10 @@ public final class HttpRemoteTaskWithEventLoop
     private TaskSource getSource(PlanNodeId planNodeId)
     {
         Set<ScheduledSplit> splits = pendingSplits.get(planNodeId);
-        boolean pendingNoMoreSplits = Boolean.TRUE.equals(this.noMoreSplits.get(planNodeId));
-        boolean noMoreSplits = this.noMoreSplits.containsKey(planNodeId);
+        // hold back "no more splits" while splits of the source may still be given back to the task
+        boolean splitReclaimPending = pendingSplitReclaims.containsKey(planNodeId);
+        boolean pendingNoMoreSplits = Boolean.TRUE.equals(this.noMoreSplits.get(planNodeId)) && !splitReclaimPending;
+        boolean noMoreSplits = this.noMoreSplits.containsKey(planNodeId) && !splitReclaimPending;
         Set<Lifespan> noMoreSplitsForLifespan = pendingNoMoreSplitsForLifespan.get(planNodeId);
 
         TaskSource element = null;
@@ -1140,6 +1240,11 @@ public final class HttpRemoteTaskWithEventLoop
             updateTaskStats();
             whenSplitQueueHasSpace.complete(null, taskEventLoop);
 
+            // the task is done, so it will not report any more reclaimed splits
+            pendingSplitReclaims.clear();
+            splitReclaimFutures.values().forEach(future -> future.set(ImmutableList.of()));
+            splitReclaimFutures.clear();
+
             // cancel pending request
             if (currentRequest != null) {
                 // do not terminate if the request is already running to avoid closing pooled connections
@@ -1288,10 +1393,12 @@ public final class HttpRemoteTaskWithEventLoop
             implements SimpleHttpResponseCallback<TaskInfo>
     {
         private final List<TaskSource> sources;
+        private final List<SplitReclaimRequest> splitReclaimRequests;
 
-        private UpdateResponseHandler(List<TaskSource> sources)
+        private UpdateResponseHandler(List<TaskSource> sources, List<SplitReclaimRequest> splitReclaimRequests)
         {
             this.sources = ImmutableList.copyOf(requireNonNull(sources, "sources is null"));
+            this.splitReclaimRequests = ImmutableList.copyOf(requireNonNull(splitReclaimRequests, "splitReclaimRequests is null"));
         }
 
         @Override
@@ -1313,7 +1420,7 @@ public final class HttpRemoteTaskWithEventLoop
                 taskUpdateTimeline.removeElements(0, deliveredUpdates);
 
                 updateStats(currentRequestStartNanos);
-                processTaskUpdate(value, sources);
+                processTaskUpdate(value, sources, splitReclaimRequests);
                 updateErrorTracker.requestSucceeded();
                 if (oldestTaskUpdateTime != 0) {
                     schedulerStatsTracker.recordDeliveredUpdates(deliveredUpdates);
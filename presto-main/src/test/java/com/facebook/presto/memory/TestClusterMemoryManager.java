@@ -0,0 +1,90 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.memory;
+
+import com.facebook.airlift.testing.TestingTicker;
+import com.facebook.airlift.units.Duration;
+import com.facebook.presto.memory.ClusterMemoryManager.MemoryRevocationWait;
+import org.testng.annotations.Test;
+
+import static com.facebook.presto.memory.ClusterMemoryManager.MemoryRevocationWait.MAX_DEFERRED_DELAYS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestClusterMemoryManager
+{
+    private static final Duration KILL_DELAY = new Duration(10, SECONDS);
+
+    @Test
+    public void testKillerWaitsForRevocationProgress()
+    {
+        TestingTicker ticker = new TestingTicker();
+        MemoryRevocationWait wait = new MemoryRevocationWait(KILL_DELAY, ticker);
+        assertFalse(wait.isKillOnOutOfMemoryDelayPassed(false, 1000));
+
+        ticker.increment(5, SECONDS);
+        assertFalse(wait.isKillOnOutOfMemoryDelayPassed(true, 1000));
+        // a drop of a tenth of the revocable memory restarts the delay
+        ticker.increment(5, SECONDS);
+        assertFalse(wait.isKillOnOutOfMemoryDelayPassed(true, 900));
+        ticker.increment(9, SECONDS);
+        assertFalse(wait.isKillOnOutOfMemoryDelayPassed(true, 900));
+        ticker.increment(2, SECONDS);
+        assertTrue(wait.isKillOnOutOfMemoryDelayPassed(true, 900));
+    }
+
+    @Test
+    public void testSmallRevocationDoesNotDeferKiller()
+    {
+        TestingTicker ticker = new TestingTicker();
+        MemoryRevocationWait wait = new MemoryRevocationWait(KILL_DELAY, ticker);
+        assertFalse(wait.isKillOnOutOfMemoryDelayPassed(false, 1000));
+
+        // every drop is below the progress threshold, so the delay runs from the time memory ran out
+        long revocableMemoryBytes = 1000;
+        for (int second = 1; second <= 10; second++) {
+            ticker.increment(1, SECONDS);
+            revocableMemoryBytes -= 1;
+            assertFalse(wait.isKillOnOutOfMemoryDelayPassed(true, revocableMemoryBytes));
+        }
+        ticker.increment(1, SECONDS);
+        assertTrue(wait.isKillOnOutOfMemoryDelayPassed(true, revocableMemoryBytes - 1));
+    }
+
+    @Test
+    public void testRevocationDefersKillerAtMostMaxDelays()
+    {
+        TestingTicker ticker = new TestingTicker();
+        MemoryRevocationWait wait = new MemoryRevocationWait(KILL_DELAY, ticker);
+        assertFalse(wait.isKillOnOutOfMemoryDelayPassed(false, 1_000_000));
+
+        // the revocation keeps making progress, so only the cap lets the killer run
+        long revocableMemoryBytes = 1_000_000;
+        long elapsedSeconds = 0;
+        while (elapsedSeconds < MAX_DEFERRED_DELAYS * KILL_DELAY.getValue(SECONDS)) {
+            ticker.increment(5, SECONDS);
+            elapsedSeconds += 5;
+            revocableMemoryBytes /= 2;
+            assertFalse(wait.isKillOnOutOfMemoryDelayPassed(true, revocableMemoryBytes));
+        }
+        ticker.increment(1, SECONDS);
+        assertTrue(wait.isKillOnOutOfMemoryDelayPassed(true, revocableMemoryBytes / 2));
+
+        // the cap restarts once the cluster is no longer out of memory
+        assertFalse(wait.isKillOnOutOfMemoryDelayPassed(false, revocableMemoryBytes));
+        ticker.increment(5, SECONDS);
+        assertFalse(wait.isKillOnOutOfMemoryDelayPassed(true, revocableMemoryBytes));
+    }
+}
@@ -490,6 +490,82 @@ public class TestExchangeClient
         assertStatus(clientStatusOptional2.get(), "closed", "not scheduled");
     }
 
+    @Test(timeOut = 10000)
+    public void testSpeculativeTaskAttempts()
+            throws Exception
+    {
+        DataSize bufferCapacity = new DataSize(32, MEGABYTE);
+        DataSize maxResponseSize = new DataSize(10, MEGABYTE);
+        MockExchangeRequestProcessor processor = new MockExchangeRequestProcessor(maxResponseSize);
+
+        URI originalLocation = URI.create("http://localhost:8081/foo.0.0.0.0");
+        URI speculativeLocation = URI.create("http://localhost:8082/foo.0.0.0.1");
+        URI lateLocation = URI.create("http://localhost:8083/foo.0.0.0.2");
+
+        ExchangeClient exchangeClient = createExchangeClient(processor, bufferCapacity, maxResponseSize);
+        exchangeClient.enableTaskAttemptDeduplication();
+
+        // the original attempt is slow and has not produced anything yet
+        exchangeClient.addLocation(originalLocation, TaskId.valueOf("foo.0.0.0.0"));
+
+        processor.addPage(speculativeLocation, createPage(1));
+        processor.addPage(speculativeLocation, createPage(2));
+        processor.setComplete(speculativeLocation);
+        exchangeClient.addLocation(speculativeLocation, TaskId.valueOf("foo.0.0.0.1"));
+
+        assertPageEquals(getNextPage(exchangeClient), createPage(1));
+        assertPageEquals(getNextPage(exchangeClient), createPage(2));
+
+        // output of the other attempts of the same task is never read
+        processor.addPage(originalLocation, createPage(3));
+        processor.setComplete(originalLocation);
+        processor.addPage(lateLocation, createPage(4));
+        processor.setComplete(lateLocation);
+        exchangeClient.addLocation(lateLocation, TaskId.valueOf("foo.0.0.0.2"));
+
+        exchangeClient.noMoreLocations();
+        assertNull(getNextPage(exchangeClient));
+        while (!exchangeClient.isClosed()) {
+            Thread.sleep(1);
+        }
+
+        ImmutableMap<URI, PageBufferClientStatus> statuses = uniqueIndex(exchangeClient.getStatus().getPageBufferClientStatuses(), PageBufferClientStatus::getUri);
+        assertEquals(statuses.get(originalLocation).getPagesReceived(), 0);
+        assertEquals(statuses.get(speculativeLocation).getPagesReceived(), 2);
+        assertEquals(statuses.get(lateLocation).getPagesReceived(), 0);
+    }
+
+    @Test(timeOut = 10000)
+    public void testTaskAttemptsWithoutDeduplication()
+            throws Exception
+    {
+        DataSize bufferCapacity = new DataSize(32, MEGABYTE);
+        DataSize maxResponseSize = new DataSize(10, MEGABYTE);
+        MockExchangeRequestProcessor processor = new MockExchangeRequestProcessor(maxResponseSize);
+
+        // without speculative execution, attempts of a task are distinct sources, e.g. after a task recovery
+        URI firstLocation = URI.create("http://localhost:8081/foo.0.0.0.0");
+        URI secondLocation = URI.create("http://localhost:8082/foo.0.0.0.1");
+        processor.addPage(firstLocation, createPage(1));
+        processor.setComplete(firstLocation);
+        processor.addPage(secondLocation, createPage(2));
+        processor.setComplete(secondLocation);
+
+        ExchangeClient exchangeClient = createExchangeClient(processor, bufferCapacity, maxResponseSize);
+        exchangeClient.addLocation(firstLocation, TaskId.valueOf("foo.0.0.0.0"));
+        exchangeClient.addLocation(secondLocation, TaskId.valueOf("foo.0.0.0.1"));
+        exchangeClient.noMoreLocations();
+
+        int positions = 0;
+        for (SerializedPage page = getNextPage(exchangeClient); page != null; page = getNextPage(exchangeClient)) {
+            positions += page.getPositionCount();
+        }
+        assertEquals(positions, 3);
+        while (!exchangeClient.isClosed()) {
+            Thread.sleep(1);
+        }
+    }
+
     private static Page createPage(int size)
     {
         return new Page(BlockAssertions.createLongSequenceBlock(0, size));
@@ -27,6 +27,7 @@ import com.facebook.drift.transport.netty.server.DriftNettyServerTransport;
 import com.facebook.presto.Session;
 import com.facebook.presto.dispatcher.NoOpQueryManager;
 import com.facebook.presto.execution.QueryManager;
+import com.facebook.presto.execution.SplitReclaimRequest;
 import com.facebook.presto.execution.StateMachine;
 import com.facebook.presto.execution.TaskId;
 import com.facebook.presto.execution.TaskInfo;
@@ -197,6 +198,12 @@ public class TestThriftServerInfoIntegration
                     throw new UnsupportedOperationException();
                 }
 
+                @Override
+                public TaskInfo reclaimSplits(TaskId taskId, List<SplitReclaimRequest> splitReclaimRequests)
+                {
+                    throw new UnsupportedOperationException();
+                }
+
                 @Override
                 public TaskInfo cancelTask(TaskId taskId)
                 {
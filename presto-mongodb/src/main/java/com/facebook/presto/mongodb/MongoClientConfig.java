@@ -56,6 +56,8 @@ public class MongoClientConfig
 
     // query configurations
     private int cursorBatchSize; // use driver default
+    private int maxSplitsPerCollection = 16;
+    private long minDocumentsPerSplit = 100_000;
 
     private ReadPreferenceType readPreference = ReadPreferenceType.PRIMARY;
     private List<TagSet> readPreferenceTagSets = ImmutableList.of();
@@ -393,6 +395,32 @@ public class MongoClientConfig
         return this;
     }
 
+    @Min(1)
+    public int getMaxSplitsPerCollection()
+    {
+        return maxSplitsPerCollection;
+    }
+
+    @Config("mongodb.max-splits-per-collection")
+    public MongoClientConfig setMaxSplitsPerCollection(int maxSplitsPerCollection)
+    {
+        this.maxSplitsPerCollection = maxSplitsPerCollection;
+        return this;
+    }
+
+    @Min(1)
+    public long getMinDocumentsPerSplit()
+    {
+        return minDocumentsPerSplit;
+    }
+
+    @Config("mongodb.min-documents-per-split")
+    public MongoClientConfig setMinDocumentsPerSplit(long minDocumentsPerSplit)
+    {
+        this.minDocumentsPerSplit = minDocumentsPerSplit;
+        return this;
+    }
+
     public String getImplicitRowFieldPrefix()
     {
         return implicitRowFieldPrefix;
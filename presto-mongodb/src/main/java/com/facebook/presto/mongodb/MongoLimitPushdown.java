@@ -0,0 +1,103 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.mongodb;
+
+import com.facebook.presto.spi.ConnectorPlanOptimizer;
+import com.facebook.presto.spi.ConnectorPlanRewriter;
+import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.spi.TableHandle;
+import com.facebook.presto.spi.VariableAllocator;
+import com.facebook.presto.spi.plan.LimitNode;
+import com.facebook.presto.spi.plan.PlanNode;
+import com.facebook.presto.spi.plan.PlanNodeIdAllocator;
+import com.facebook.presto.spi.plan.ProjectNode;
+import com.facebook.presto.spi.plan.TableScanNode;
+import com.google.common.collect.ImmutableList;
+
+import java.util.Optional;
+import java.util.OptionalLong;
+
+import static com.facebook.presto.spi.ConnectorPlanRewriter.rewriteWith;
+
+/**
+ * Pushes a limit that sits directly on top of a MongoDB table scan (optionally through a
+ * projection) into the aggregation pipeline of the scan. The limit node itself is kept,
+ * since every split applies the limit on its own.
+ */
+public class MongoLimitPushdown
+        implements ConnectorPlanOptimizer
+{
+    @Override
+    public PlanNode optimize(PlanNode maxSubplan, ConnectorSession session, VariableAllocator variableAllocator, PlanNodeIdAllocator idAllocator)
+    {
+        return rewriteWith(new Rewriter(), maxSubplan);
+    }
+
+    private static class Rewriter
+            extends ConnectorPlanRewriter<Void>
+    {
+        @Override
+        public PlanNode visitLimit(LimitNode node, RewriteContext<Void> context)
+        {
+            PlanNode source = context.rewrite(node.getSource());
+            if (node.getCount() > 0) {
+                Optional<PlanNode> pushed = pushLimit(source, node.getCount());
+                if (pushed.isPresent()) {
+                    source = pushed.get();
+                }
+            }
+            if (source == node.getSource()) {
+                return node;
+            }
+            return node.replaceChildren(ImmutableList.of(source));
+        }
+
+        private static Optional<PlanNode> pushLimit(PlanNode source, long count)
+        {
+            if (source instanceof TableScanNode) {
+                return withLimit((TableScanNode) source, count).map(PlanNode.class::cast);
+            }
+            if (source instanceof ProjectNode && ((ProjectNode) source).getSource() instanceof TableScanNode) {
+                return withLimit((TableScanNode) ((ProjectNode) source).getSource(), count)
+                        .map(tableScan -> source.replaceChildren(ImmutableList.of(tableScan)));
+            }
+            return Optional.empty();
+        }
+
+        private static Optional<TableScanNode> withLimit(TableScanNode tableScan, long count)
+        {
+            TableHandle table = tableScan.getTable();
+            if (!(table.getConnectorHandle() instanceof MongoTableHandle) || !table.getLayout().isPresent()) {
+                return Optional.empty();
+            }
+            MongoTableLayoutHandle layout = (MongoTableLayoutHandle) table.getLayout().get();
+            if (layout.getLimit().isPresent() && layout.getLimit().getAsLong() <= count) {
+                return Optional.empty();
+            }
+
+            MongoTableLayoutHandle newLayout = new MongoTableLayoutHandle(layout.getTable(), layout.getTupleDomain(), OptionalLong.of(count));
+            return Optional.of(new TableScanNode(
+                    tableScan.getSourceLocation(),
+                    tableScan.getId(),
+                    tableScan.getStatsEquivalentPlanNode(),
+                    new TableHandle(table.getConnectorId(), table.getConnectorHandle(), table.getTransaction(), Optional.of(newLayout), table.getDynamicFilter()),
+                    tableScan.getOutputVariables(),
+                    tableScan.getAssignments(),
+                    tableScan.getTableConstraints(),
+                    tableScan.getCurrentConstraint(),
+                    tableScan.getEnforcedConstraint(),
+                    tableScan.getCteMaterializationInfo()));
+        }
+    }
+}
@@ -20,11 +20,21 @@ import com.facebook.presto.common.block.BlockBuilder;
 import com.facebook.presto.common.type.StandardTypes;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.common.type.TypeSignatureParameter;
+import com.facebook.presto.common.type.VarcharType;
 import com.facebook.presto.spi.ConnectorPageSource;
 import com.facebook.presto.spi.PrestoException;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.mongodb.MongoClient;
 import com.mongodb.client.MongoCursor;
 import io.airlift.slice.Slice;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinarySubType;
+import org.bson.BsonReader;
+import org.bson.BsonType;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
 import org.bson.types.Binary;
 import org.bson.types.ObjectId;
 
@@ -32,6 +42,7 @@ import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoField;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
@@ -39,7 +50,9 @@ import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.BooleanType.BOOLEAN;
 import static com.facebook.presto.common.type.DateType.DATE;
+import static com.facebook.presto.common.type.DoubleType.DOUBLE;
 import static com.facebook.presto.common.type.IntegerType.INTEGER;
 import static com.facebook.presto.common.type.TimeType.TIME;
 import static com.facebook.presto.common.type.TimestampType.TIMESTAMP;
@@ -63,10 +76,14 @@ public class MongoPageSource
     private static final ZoneId UTC_ZONE_ID = ZoneId.of("UTC");
     private static final int ROWS_PER_REQUEST = 1024;
 
-    private final MongoCursor<Document> cursor;
+    private static final Codec<Document> DOCUMENT_CODEC = MongoClient.getDefaultCodecRegistry().get(Document.class);
+
+    private final MongoCursor<RawBsonDocument> cursor;
     private final List<String> columnNames;
     private final List<Type> columnTypes;
-    private Document currentDoc;
+    private final ListMultimap<String, Integer> columnIndexes;
+    private final boolean[] decoded;
+    private final boolean[] deferred;
     private long completedBytes;
     private long completedPositions;
     private boolean finished;
@@ -80,8 +97,14 @@ public class MongoPageSource
     {
         this.columnNames = columns.stream().map(MongoColumnHandle::getName).collect(toList());
         this.columnTypes = columns.stream().map(MongoColumnHandle::getType).collect(toList());
+        ImmutableListMultimap.Builder<String, Integer> columnIndexes = ImmutableListMultimap.builder();
+        for (int column = 0; column < columnNames.size(); column++) {
+            columnIndexes.put(columnNames.get(column), column);
+        }
+        this.columnIndexes = columnIndexes.build();
+        this.decoded = new boolean[columns.size()];
+        this.deferred = new boolean[columns.size()];
         this.cursor = mongoSession.execute(split, columns);
-        currentDoc = null;
 
         pageBuilder = new PageBuilder(columnTypes);
     }
@@ -126,13 +149,9 @@ public class MongoPageSource
                 finished = true;
                 break;
             }
-            currentDoc = cursor.next();
 
             pageBuilder.declarePosition();
-            for (int column = 0; column < columnTypes.size(); column++) {
-                BlockBuilder output = pageBuilder.getBlockBuilder(column);
-                appendTo(columnTypes.get(column), currentDoc.get(columnNames.get(column)), output);
-            }
+            appendDocument(cursor.next());
         }
 
         Page page = pageBuilder.build();
@@ -144,6 +163,145 @@ public class MongoPageSource
         return page;
     }
 
+    /**
+     * Walks the raw BSON of the document once and writes the projected fields straight
+     * into the block builders. Values whose BSON type does not map directly onto the
+     * column type (nested documents, arrays, conversions to varchar, ...) are left for
+     * the generic conversion, which decodes the document only when such a value exists.
+     */
+    private void appendDocument(RawBsonDocument document)
+    {
+        Arrays.fill(decoded, false);
+        Arrays.fill(deferred, false);
+        boolean hasDeferred = false;
+
+        try (BsonBinaryReader reader = new BsonBinaryReader(document.getByteBuffer().asNIO())) {
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                List<Integer> indexes = columnIndexes.get(reader.readName());
+                if (indexes.isEmpty()) {
+                    reader.skipValue();
+                    continue;
+                }
+
+                int column = indexes.get(0);
+                if (indexes.size() == 1 && !decoded[column] && !deferred[column] &&
+                        appendValue(reader, reader.getCurrentBsonType(), columnTypes.get(column), pageBuilder.getBlockBuilder(column))) {
+                    decoded[column] = true;
+                    continue;
+                }
+
+                reader.skipValue();
+                for (int index : indexes) {
+                    if (!decoded[index]) {
+                        deferred[index] = true;
+                        hasDeferred = true;
+                    }
+                }
+            }
+            reader.readEndDocument();
+        }
+
+        Document deferredValues = hasDeferred ? document.decode(DOCUMENT_CODEC) : null;
+        for (int column = 0; column < columnTypes.size(); column++) {
+            if (decoded[column]) {
+                continue;
+            }
+            BlockBuilder output = pageBuilder.getBlockBuilder(column);
+            if (deferred[column]) {
+                appendTo(columnTypes.get(column), deferredValues.get(columnNames.get(column)), output);
+            }
+            else {
+                output.appendNull();
+            }
+        }
+    }
+
+    /**
+     * Reads the current value into {@code output} when its BSON type converts to the column
+     * type the same way {@link #appendTo} would. Returns false without consuming the value otherwise.
+     */
+    private static boolean appendValue(BsonReader reader, BsonType bsonType, Type type, BlockBuilder output)
+    {
+        if (bsonType == BsonType.NULL) {
+            reader.readNull();
+            output.appendNull();
+            return true;
+        }
+
+        if (type.equals(BIGINT)) {
+            switch (bsonType) {
+                case INT32:
+                    type.writeLong(output, reader.readInt32());
+                    return true;
+                case INT64:
+                    type.writeLong(output, reader.readInt64());
+                    return true;
+                case DOUBLE:
+                    type.writeLong(output, (long) reader.readDouble());
+                    return true;
+                default:
+                    return false;
+            }
+        }
+        if (type.equals(INTEGER)) {
+            switch (bsonType) {
+                case INT32:
+                    type.writeLong(output, reader.readInt32());
+                    return true;
+                case INT64:
+                    type.writeLong(output, (int) reader.readInt64());
+                    return true;
+                case DOUBLE:
+                    type.writeLong(output, (int) reader.readDouble());
+                    return true;
+                default:
+                    return false;
+            }
+        }
+        if (type.equals(DOUBLE)) {
+            switch (bsonType) {
+                case INT32:
+                    type.writeDouble(output, reader.readInt32());
+                    return true;
+                case INT64:
+                    type.writeDouble(output, reader.readInt64());
+                    return true;
+                case DOUBLE:
+                    type.writeDouble(output, reader.readDouble());
+                    return true;
+                default:
+                    return false;
+            }
+        }
+        if (type.equals(BOOLEAN) && bsonType == BsonType.BOOLEAN) {
+            type.writeBoolean(output, reader.readBoolean());
+            return true;
+        }
+        if (type.equals(TIMESTAMP) && bsonType == BsonType.DATE_TIME) {
+            type.writeLong(output, reader.readDateTime());
+            return true;
+        }
+        if (type.equals(DATE) && bsonType == BsonType.DATE_TIME) {
+            type.writeLong(output, TimeUnit.MILLISECONDS.toDays(reader.readDateTime()));
+            return true;
+        }
+        if (type instanceof VarcharType && bsonType == BsonType.STRING) {
+            type.writeSlice(output, utf8Slice(reader.readString()));
+            return true;
+        }
+        if (type.equals(OBJECT_ID) && bsonType == BsonType.OBJECT_ID) {
+            type.writeSlice(output, wrappedBuffer(reader.readObjectId().toByteArray()));
+            return true;
+        }
+        // UUID subtypes are decoded into java.util.UUID by the document codec
+        if (type.equals(VARBINARY) && bsonType == BsonType.BINARY && reader.peekBinarySubType() == BsonBinarySubType.BINARY.getValue()) {
+            type.writeSlice(output, wrappedBuffer(reader.readBinaryData().getData()));
+            return true;
+        }
+        return false;
+    }
+
     private void appendTo(Type type, Object value, BlockBuilder output)
     {
         if (value == null) {
@@ -40,8 +40,9 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.mongodb.MongoClient;
+import com.mongodb.MongoException;
 import com.mongodb.MongoNamespace;
-import com.mongodb.client.FindIterable;
+import com.mongodb.client.AggregateIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
@@ -51,6 +52,9 @@ import com.mongodb.client.model.Updates;
 import com.mongodb.client.result.DeleteResult;
 import io.airlift.slice.Slice;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
 import org.bson.types.Binary;
 import org.bson.types.ObjectId;
 
@@ -60,7 +64,9 @@ import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -110,6 +116,16 @@ public class MongoSession
     private static final String IN_OP = "$in";
     private static final String NOTIN_OP = "$nin";
 
+    private static final String MATCH_STAGE = "$match";
+    private static final String PROJECT_STAGE = "$project";
+    private static final String LIMIT_STAGE = "$limit";
+    private static final String SAMPLE_STAGE = "$sample";
+    private static final String SORT_STAGE = "$sort";
+
+    private static final String ID = "_id";
+    private static final int SAMPLES_PER_SPLIT = 10;
+    private static final JsonWriterSettings EXTENDED_JSON = JsonWriterSettings.builder().outputMode(JsonMode.EXTENDED).build();
+
     private final TypeManager typeManager;
     private final MongoClient client;
 
@@ -242,22 +258,74 @@ public class MongoSession
         return MongoIndex.parse(getCollection(tableName).listIndexes());
     }
 
-    public MongoCursor<Document> execute(MongoSplit split, List<MongoColumnHandle> columns)
+    public MongoCursor<RawBsonDocument> execute(MongoSplit split, List<MongoColumnHandle> columns)
     {
-        Document output = new Document();
-        for (MongoColumnHandle column : columns) {
-            output.append(column.getName(), 1);
+        OptionalLong limit = split.getLimit();
+        if (cursorBatchSize < 0) {
+            // aggregation cursors do not accept a negative batch size, emulate it with a limit
+            limit = OptionalLong.of(Math.min(limit.orElse(Long.MAX_VALUE), -cursorBatchSize));
         }
-        MongoCollection<Document> collection = getCollection(split.getSchemaTableName());
-        FindIterable<Document> iterable = collection.find(buildQuery(split.getTupleDomain())).projection(output);
 
-        if (cursorBatchSize != 0) {
+        MongoCollection<RawBsonDocument> collection = getCollection(split.getSchemaTableName()).withDocumentClass(RawBsonDocument.class);
+        AggregateIterable<RawBsonDocument> iterable = collection.aggregate(buildPipeline(split, columns, limit));
+
+        if (cursorBatchSize > 0) {
             iterable.batchSize(cursorBatchSize);
         }
 
         return iterable.iterator();
     }
 
+    /**
+     * Picks the _id values that divide the collection into ranges of roughly equal size,
+     * using a server side sample of the _id index. An empty list means the collection
+     * should be read as a single split.
+     */
+    public List<String> getIdSplitBoundaries(SchemaTableName tableName, int maxSplits, long minDocumentsPerSplit)
+    {
+        if (maxSplits <= 1) {
+            return ImmutableList.of();
+        }
+
+        MongoCollection<Document> collection = getCollection(tableName);
+        try {
+            long documentCount = collection.estimatedDocumentCount();
+            int splitCount = (int) Math.min(maxSplits, documentCount / minDocumentsPerSplit);
+            if (splitCount <= 1) {
+                return ImmutableList.of();
+            }
+
+            List<Document> pipeline = ImmutableList.of(
+                    documentOf(SAMPLE_STAGE, documentOf("size", splitCount * SAMPLES_PER_SPLIT)),
+                    documentOf(PROJECT_STAGE, documentOf(ID, 1)),
+                    documentOf(SORT_STAGE, documentOf(ID, 1)));
+            List<Object> sampledIds = new ArrayList<>();
+            for (Document document : collection.aggregate(pipeline)) {
+                sampledIds.add(document.get(ID));
+            }
+            // range predicates only match values of the same BSON type, keep mixed _id types in a single split
+            if (sampledIds.isEmpty() || sampledIds.stream().anyMatch(Objects::isNull) || sampledIds.stream().map(Object::getClass).distinct().count() > 1) {
+                return ImmutableList.of();
+            }
+
+            ImmutableList.Builder<String> boundaries = ImmutableList.builder();
+            Object previous = null;
+            for (int split = 1; split < splitCount; split++) {
+                Object id = sampledIds.get(split * sampledIds.size() / splitCount);
+                if (!id.equals(previous)) {
+                    boundaries.add(encodeId(id));
+                    previous = id;
+                }
+            }
+            return boundaries.build();
+        }
+        catch (MongoException e) {
+            // views and some sharded setups do not support sampling, fall back to a single split
+            log.warn(e, "Failed to compute _id split boundaries for %s", tableName);
+            return ImmutableList.of();
+        }
+    }
+
     public void renameTable(SchemaTableName oldName, SchemaTableName newName)
     {
         String oldSchemaName = oldName.getSchemaName();
@@ -281,6 +349,61 @@ public class MongoSession
         tableCache.invalidate(oldName);
     }
 
+    @VisibleForTesting
+    static List<Document> buildPipeline(MongoSplit split, List<MongoColumnHandle> columns, OptionalLong limit)
+    {
+        ImmutableList.Builder<Document> pipeline = ImmutableList.builder();
+
+        Document query = buildQuery(split.getTupleDomain());
+        Document idRange = buildIdRangeFilter(split.getIdLowerBound(), split.getIdUpperBound());
+        if (!idRange.isEmpty()) {
+            query = query.isEmpty() ? idRange : documentOf(AND_OP, ImmutableList.of(query, idRange));
+        }
+        if (!query.isEmpty()) {
+            pipeline.add(documentOf(MATCH_STAGE, query));
+        }
+        limit.ifPresent(value -> pipeline.add(documentOf(LIMIT_STAGE, value)));
+
+        Document projection = new Document();
+        for (MongoColumnHandle column : columns) {
+            projection.append(column.getName(), 1);
+        }
+        if (projection.isEmpty()) {
+            // $project needs at least one field, _id is the cheapest one to return
+            projection.append(ID, 1);
+        }
+        pipeline.add(documentOf(PROJECT_STAGE, projection));
+
+        return pipeline.build();
+    }
+
+    @VisibleForTesting
+    static Document buildIdRangeFilter(Optional<String> lowerBound, Optional<String> upperBound)
+    {
+        if (!lowerBound.isPresent() && !upperBound.isPresent()) {
+            return new Document();
+        }
+        if (!lowerBound.isPresent()) {
+            // the first split also owns the documents whose _id has a different BSON type than the boundaries
+            return documentOf(ID, documentOf(NOT_OP, documentOf(GTE_OP, decodeId(upperBound.get()))));
+        }
+
+        Document range = documentOf(GTE_OP, decodeId(lowerBound.get()));
+        upperBound.ifPresent(bound -> range.append(LT_OP, decodeId(bound)));
+        return documentOf(ID, range);
+    }
+
+    @VisibleForTesting
+    static String encodeId(Object id)
+    {
+        return documentOf(ID, id).toJson(EXTENDED_JSON);
+    }
+
+    private static Object decodeId(String json)
+    {
+        return Document.parse(json).get(ID);
+    }
+
     @VisibleForTesting
     static Document buildQuery(TupleDomain<ColumnHandle> tupleDomain)
     {
@@ -25,6 +25,8 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableList;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
 
 import static com.facebook.presto.spi.schedule.NodeSelectionStrategy.NO_PREFERENCE;
 import static java.util.Objects.requireNonNull;
@@ -35,16 +37,31 @@ public class MongoSplit
     private final SchemaTableName schemaTableName;
     private final TupleDomain<ColumnHandle> tupleDomain;
     private final List<HostAddress> addresses;
+    // _id range of the split as extended JSON, the lower bound is inclusive and the upper bound exclusive
+    private final Optional<String> idLowerBound;
+    private final Optional<String> idUpperBound;
+    private final OptionalLong limit;
+
+    public MongoSplit(SchemaTableName schemaTableName, TupleDomain<ColumnHandle> tupleDomain, List<HostAddress> addresses)
+    {
+        this(schemaTableName, tupleDomain, addresses, Optional.empty(), Optional.empty(), OptionalLong.empty());
+    }
 
     @JsonCreator
     public MongoSplit(
             @JsonProperty("schemaTableName") SchemaTableName schemaTableName,
             @JsonProperty("tupleDomain") TupleDomain<ColumnHandle> tupleDomain,
-            @JsonProperty("addresses") List<HostAddress> addresses)
+            @JsonProperty("addresses") List<HostAddress> addresses,
+            @JsonProperty("idLowerBound") Optional<String> idLowerBound,
+            @JsonProperty("idUpperBound") Optional<String> idUpperBound,
+            @JsonProperty("limit") OptionalLong limit)
     {
         this.schemaTableName = requireNonNull(schemaTableName, "schemaTableName is null");
         this.tupleDomain = requireNonNull(tupleDomain, "tupleDomain is null");
         this.addresses = ImmutableList.copyOf(requireNonNull(addresses, "addresses is null"));
+        this.idLowerBound = requireNonNull(idLowerBound, "idLowerBound is null");
+        this.idUpperBound = requireNonNull(idUpperBound, "idUpperBound is null");
+        this.limit = requireNonNull(limit, "limit is null");
     }
 
     @JsonProperty
@@ -59,6 +76,24 @@ public class MongoSplit
         return tupleDomain;
     }
 
+    @JsonProperty
+    public Optional<String> getIdLowerBound()
+    {
+        return idLowerBound;
+    }
+
+    @JsonProperty
+    public Optional<String> getIdUpperBound()
+    {
+        return idUpperBound;
+    }
+
+    @JsonProperty
+    public OptionalLong getLimit()
+    {
+        return limit;
+    }
+
     @Override
     public NodeSelectionStrategy getNodeSelectionStrategy()
     {
@@ -24,21 +24,29 @@ import com.google.common.collect.ImmutableList;
 import jakarta.inject.Inject;
 
 import java.util.List;
+import java.util.Optional;
 
 import static com.facebook.presto.spi.HostAddress.fromParts;
+import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toList;
 
 public class MongoSplitManager
         implements ConnectorSplitManager
 {
+    private final MongoSession mongoSession;
     private final List<HostAddress> addresses;
+    private final int maxSplitsPerCollection;
+    private final long minDocumentsPerSplit;
 
     @Inject
-    public MongoSplitManager(MongoClientConfig config)
+    public MongoSplitManager(MongoSession mongoSession, MongoClientConfig config)
     {
+        this.mongoSession = requireNonNull(mongoSession, "mongoSession is null");
         this.addresses = config.getSeeds().stream()
                 .map(s -> fromParts(s.getHost(), s.getPort()))
                 .collect(toList());
+        this.maxSplitsPerCollection = config.getMaxSplitsPerCollection();
+        this.minDocumentsPerSplit = config.getMinDocumentsPerSplit();
     }
 
     @Override
@@ -51,11 +59,22 @@ public class MongoSplitManager
         MongoTableLayoutHandle tableLayout = (MongoTableLayoutHandle) layout;
         MongoTableHandle tableHandle = tableLayout.getTable();
 
-        MongoSplit split = new MongoSplit(
-                tableHandle.getSchemaTableName(),
-                tableLayout.getTupleDomain(),
-                addresses);
+        // split the collection into _id ranges, the first and last range are open ended.
+        // A pushed down limit is cheaper to serve from a single cursor.
+        List<String> boundaries = tableLayout.getLimit().isPresent() ?
+                ImmutableList.of() :
+                mongoSession.getIdSplitBoundaries(tableHandle.getSchemaTableName(), maxSplitsPerCollection, minDocumentsPerSplit);
+        ImmutableList.Builder<MongoSplit> splits = ImmutableList.builder();
+        for (int i = 0; i <= boundaries.size(); i++) {
+            splits.add(new MongoSplit(
+                    tableHandle.getSchemaTableName(),
+                    tableLayout.getTupleDomain(),
+                    addresses,
+                    i == 0 ? Optional.empty() : Optional.of(boundaries.get(i - 1)),
+                    i == boundaries.size() ? Optional.empty() : Optional.of(boundaries.get(i)),
+                    tableLayout.getLimit()));
+        }
 
-        return new FixedSplitSource(ImmutableList.of(split));
+        return new FixedSplitSource(splits.build());
     }
 }
@@ -20,6 +20,7 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.Objects;
+import java.util.OptionalLong;
 
 import static java.util.Objects.requireNonNull;
 
@@ -28,14 +29,22 @@ public class MongoTableLayoutHandle
 {
     private final MongoTableHandle table;
     private final TupleDomain<ColumnHandle> tupleDomain;
+    private final OptionalLong limit;
+
+    public MongoTableLayoutHandle(MongoTableHandle table, TupleDomain<ColumnHandle> tupleDomain)
+    {
+        this(table, tupleDomain, OptionalLong.empty());
+    }
 
     @JsonCreator
     public MongoTableLayoutHandle(
             @JsonProperty("table") MongoTableHandle table,
-            @JsonProperty("tupleDomain") TupleDomain<ColumnHandle> tupleDomain)
+            @JsonProperty("tupleDomain") TupleDomain<ColumnHandle> tupleDomain,
+            @JsonProperty("limit") OptionalLong limit)
     {
         this.table = requireNonNull(table, "table is null");
         this.tupleDomain = requireNonNull(tupleDomain, "tuple is null");
+        this.limit = requireNonNull(limit, "limit is null");
     }
 
     @JsonProperty
@@ -50,6 +59,12 @@ public class MongoTableLayoutHandle
         return tupleDomain;
     }
 
+    @JsonProperty
+    public OptionalLong getLimit()
+    {
+        return limit;
+    }
+
     @Override
     public boolean equals(Object o)
     {
@@ -61,12 +76,13 @@ public class MongoTableLayoutHandle
         }
         MongoTableLayoutHandle that = (MongoTableLayoutHandle) o;
         return Objects.equals(table, that.table) &&
-                Objects.equals(tupleDomain, that.tupleDomain);
+                Objects.equals(tupleDomain, that.tupleDomain) &&
+                Objects.equals(limit, that.limit);
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash(table, tupleDomain);
+        return Objects.hash(table, tupleDomain, limit);
     }
 }
@@ -74,6 +74,8 @@ public class TestMongoClientConfig
                 .setTruststorePath(null)
                 .setTruststorePassword(null)
                 .setCursorBatchSize(0)
+                .setMaxSplitsPerCollection(16)
+                .setMinDocumentsPerSplit(100_000)
                 .setReadPreference(ReadPreferenceType.PRIMARY)
                 .setReadPreferenceTags("")
                 .setWriteConcern(WriteConcernType.ACKNOWLEDGED)
@@ -101,6 +103,8 @@ public class TestMongoClientConfig
                 .put("mongodb.tls.truststore-path", truststoreFile.toString())
                 .put("mongodb.tls.truststore-password", "truststore-password")
                 .put("mongodb.cursor-batch-size", "1")
+                .put("mongodb.max-splits-per-collection", "4")
+                .put("mongodb.min-documents-per-split", "1000")
                 .put("mongodb.read-preference", "NEAREST")
                 .put("mongodb.read-preference-tags", "tag_name:tag_value")
                 .put("mongodb.write-concern", "UNACKNOWLEDGED")
@@ -123,6 +127,8 @@ public class TestMongoClientConfig
         configureTlsProperties(expected, "keystore-password", "truststore-password");
 
         expected.setCursorBatchSize(1)
+                .setMaxSplitsPerCollection(4)
+                .setMinDocumentsPerSplit(1000)
                 .setReadPreference(ReadPreferenceType.NEAREST)
                 .setReadPreferenceTags("tag_name:tag_value")
                 .setWriteConcern(WriteConcernType.UNACKNOWLEDGED)
@@ -17,11 +17,17 @@ import com.facebook.presto.common.predicate.Domain;
 import com.facebook.presto.common.predicate.TupleDomain;
 import com.facebook.presto.common.predicate.ValueSet;
 import com.facebook.presto.spi.ColumnHandle;
+import com.facebook.presto.spi.SchemaTableName;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.testng.annotations.Test;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+
 import static com.facebook.presto.common.predicate.Range.equal;
 import static com.facebook.presto.common.predicate.Range.greaterThan;
 import static com.facebook.presto.common.predicate.Range.greaterThanOrEqual;
@@ -118,4 +124,56 @@ public class TestMongoSession
                 new Document(COL1.getName(), new Document("$exists", true).append("$eq", null))));
         assertEquals(query, expected);
     }
+
+    @Test
+    public void testBuildIdRangeFilter()
+    {
+        ObjectId low = new ObjectId("5f1a5f1a5f1a5f1a5f1a5f1a");
+        ObjectId high = new ObjectId("6f1a5f1a5f1a5f1a5f1a5f1a");
+        Optional<String> lowBound = Optional.of(MongoSession.encodeId(low));
+        Optional<String> highBound = Optional.of(MongoSession.encodeId(high));
+
+        assertEquals(MongoSession.buildIdRangeFilter(Optional.empty(), Optional.empty()), new Document());
+        assertEquals(
+                MongoSession.buildIdRangeFilter(lowBound, highBound),
+                new Document("_id", new Document("$gte", low).append("$lt", high)));
+        assertEquals(
+                MongoSession.buildIdRangeFilter(lowBound, Optional.empty()),
+                new Document("_id", new Document("$gte", low)));
+        // the first range also covers _id values of other BSON types
+        assertEquals(
+                MongoSession.buildIdRangeFilter(Optional.empty(), highBound),
+                new Document("_id", new Document("$not", new Document("$gte", high))));
+    }
+
+    @Test
+    public void testBuildPipeline()
+    {
+        TupleDomain<ColumnHandle> tupleDomain = TupleDomain.withColumnDomains(ImmutableMap.of(
+                COL1, Domain.create(ValueSet.ofRanges(greaterThan(BIGINT, 200L)), false)));
+        MongoSplit split = new MongoSplit(
+                new SchemaTableName("schema", "table"),
+                tupleDomain,
+                ImmutableList.of(),
+                Optional.of(MongoSession.encodeId(10L)),
+                Optional.empty(),
+                OptionalLong.empty());
+
+        List<Document> pipeline = MongoSession.buildPipeline(split, ImmutableList.of(COL1, COL2), OptionalLong.of(5));
+        assertEquals(pipeline, ImmutableList.of(
+                new Document("$match", new Document("$and", ImmutableList.of(
+                        new Document(COL1.getName(), new Document("$gt", 200L)),
+                        new Document("_id", new Document("$gte", 10L))))),
+                new Document("$limit", 5L),
+                new Document("$project", new Document(COL1.getName(), 1).append(COL2.getName(), 1))));
+    }
+
+    @Test
+    public void testBuildPipelineWithoutColumns()
+    {
+        MongoSplit split = new MongoSplit(new SchemaTableName("schema", "table"), TupleDomain.all(), ImmutableList.of());
+
+        List<Document> pipeline = MongoSession.buildPipeline(split, ImmutableList.of(), OptionalLong.empty());
+        assertEquals(pipeline, ImmutableList.of(new Document("$project", new Document("_id", 1))));
+    }
 }
@@ -20,6 +20,9 @@ import com.facebook.presto.spi.SchemaTableName;
 import com.google.common.collect.ImmutableList;
 import org.testng.annotations.Test;
 
+import java.util.Optional;
+import java.util.OptionalLong;
+
 import static org.testng.Assert.assertEquals;
 
 public class TestMongoSplit
@@ -29,7 +32,13 @@ public class TestMongoSplit
     @Test
     public void testJsonRoundTrip()
     {
-        MongoSplit expected = new MongoSplit(new SchemaTableName("schema1", "table1"), TupleDomain.all(), ImmutableList.of());
+        MongoSplit expected = new MongoSplit(
+                new SchemaTableName("schema1", "table1"),
+                TupleDomain.all(),
+                ImmutableList.of(),
+                Optional.of("{\"_id\": {\"$oid\": \"5f1a5f1a5f1a5f1a5f1a5f1a\"}}"),
+                Optional.empty(),
+                OptionalLong.of(10));
 
         String json = codec.toJson(expected);
         MongoSplit actual = codec.fromJson(json);
@@ -37,5 +46,8 @@ public class TestMongoSplit
         assertEquals(actual.getSchemaTableName(), expected.getSchemaTableName());
         assertEquals(actual.getTupleDomain(), TupleDomain.<ColumnHandle>all());
         assertEquals(actual.getAddresses(), ImmutableList.of());
+        assertEquals(actual.getIdLowerBound(), expected.getIdLowerBound());
+        assertEquals(actual.getIdUpperBound(), Optional.empty());
+        assertEquals(actual.getLimit(), OptionalLong.of(10));
     }
 }
@@ -26,6 +26,7 @@ import com.facebook.presto.plugin.jdbc.JdbcIdentity;
 import com.facebook.presto.plugin.jdbc.JdbcSplit;
 import com.facebook.presto.plugin.jdbc.JdbcTableHandle;
 import com.facebook.presto.plugin.jdbc.JdbcTypeHandle;
+import com.facebook.presto.plugin.jdbc.JdbcWriteConfig;
 import com.facebook.presto.plugin.jdbc.QueryBuilder;
 import com.facebook.presto.plugin.jdbc.mapping.ReadMapping;
 import com.facebook.presto.spi.ConnectorSession;
@@ -79,13 +80,13 @@ public class MySqlClient
     private static final String SQL_STATE_ER_TABLE_EXISTS_ERROR = "42S01";
 
     @Inject
-    public MySqlClient(JdbcConnectorId connectorId, BaseJdbcConfig config, MySqlConfig mySqlConfig)
+    public MySqlClient(JdbcConnectorId connectorId, BaseJdbcConfig config, MySqlConfig mySqlConfig, JdbcWriteConfig writeConfig)
             throws SQLException
     {
-        super(connectorId, config, "`", connectionFactory(config, mySqlConfig));
+        super(connectorId, config, "`", connectionFactory(config, mySqlConfig, writeConfig));
     }
 
-    private static ConnectionFactory connectionFactory(BaseJdbcConfig config, MySqlConfig mySqlConfig)
+    private static ConnectionFactory connectionFactory(BaseJdbcConfig config, MySqlConfig mySqlConfig, JdbcWriteConfig writeConfig)
             throws SQLException
     {
         Properties connectionProperties = basicConnectionProperties(config);
@@ -101,6 +102,10 @@ public class MySqlClient
         if (mySqlConfig.getConnectionTimeout() != null) {
             connectionProperties.setProperty("connectTimeout", String.valueOf(mySqlConfig.getConnectionTimeout().toMillis()));
         }
+        if (writeConfig.isBulkWriteEnabled()) {
+            // send each batch as multi-row INSERT statements
+            connectionProperties.setProperty("rewriteBatchedStatements", "true");
+        }
 
         return new DriverConnectionFactory(
                 new Driver(),
@@ -212,6 +212,8 @@ struct PartitionedOutputInfo {
   1: i64 rowsAdded;
   2: i64 pagesAdded;
   3: i64 outputBufferPeakMemoryUsage;
+  4: i64 serializedBytesAdded;
+  5: i64 uncompressedBytesAdded;
 }
 struct WindowInfo {
   1: list<DriverWindowInfo> windowInfos;
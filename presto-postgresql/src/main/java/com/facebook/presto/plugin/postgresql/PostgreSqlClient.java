@@ -21,11 +21,14 @@ import com.facebook.presto.common.type.TypeSignature;
 import com.facebook.presto.plugin.jdbc.BaseJdbcClient;
 import com.facebook.presto.plugin.jdbc.BaseJdbcConfig;
 import com.facebook.presto.plugin.jdbc.DriverConnectionFactory;
+import com.facebook.presto.plugin.jdbc.JdbcBatchWriter;
 import com.facebook.presto.plugin.jdbc.JdbcColumnHandle;
 import com.facebook.presto.plugin.jdbc.JdbcConnectorId;
 import com.facebook.presto.plugin.jdbc.JdbcIdentity;
+import com.facebook.presto.plugin.jdbc.JdbcOutputTableHandle;
 import com.facebook.presto.plugin.jdbc.JdbcSplit;
 import com.facebook.presto.plugin.jdbc.JdbcTypeHandle;
+import com.facebook.presto.plugin.jdbc.JdbcWriteConfig;
 import com.facebook.presto.plugin.jdbc.QueryBuilder;
 import com.facebook.presto.plugin.jdbc.mapping.ReadMapping;
 import com.facebook.presto.spi.ConnectorSession;
@@ -41,6 +44,7 @@ import io.airlift.slice.Slice;
 import io.airlift.slice.SliceOutput;
 import jakarta.inject.Inject;
 import org.postgresql.Driver;
+import org.postgresql.PGConnection;
 
 import java.io.IOException;
 import java.io.InputStreamReader;
@@ -81,16 +85,18 @@ public class PostgreSqlClient
     protected final Type jsonType;
     private static final String DUPLICATE_TABLE_SQLSTATE = "42P07";
     private final Type uuidType;
+    private final boolean bulkWriteEnabled;
 
     private static final JsonFactory JSON_FACTORY = new JsonFactoryBuilder().configure(CANONICALIZE_FIELD_NAMES, false).build();
     private static final ObjectMapper SORTED_MAPPER = new JsonObjectMapperProvider().get().configure(ORDER_MAP_ENTRIES_BY_KEYS, true);
 
     @Inject
-    public PostgreSqlClient(JdbcConnectorId connectorId, BaseJdbcConfig config, TypeManager typeManager)
+    public PostgreSqlClient(JdbcConnectorId connectorId, BaseJdbcConfig config, JdbcWriteConfig writeConfig, TypeManager typeManager)
     {
         super(connectorId, config, "\"", new DriverConnectionFactory(new Driver(), config));
         this.jsonType = typeManager.getType(new TypeSignature(StandardTypes.JSON));
         this.uuidType = typeManager.getType(new TypeSignature(StandardTypes.UUID));
+        this.bulkWriteEnabled = writeConfig.isBulkWriteEnabled();
     }
 
     @Override
@@ -103,6 +109,17 @@ public class PostgreSqlClient
         return statement;
     }
 
+    @Override
+    public JdbcBatchWriter createBatchWriter(ConnectorSession session, JdbcOutputTableHandle handle, Connection connection)
+            throws SQLException
+    {
+        if (!bulkWriteEnabled || !handle.getColumnTypes().stream().allMatch(PostgreSqlCopyBatchWriter::isSupportedType)) {
+            return super.createBatchWriter(session, handle, connection);
+        }
+        String copySql = "COPY " + quoted(handle.getCatalogName(), handle.getSchemaName(), handle.getTemporaryTableName()) + " FROM STDIN";
+        return new PostgreSqlCopyBatchWriter(connection.unwrap(PGConnection.class).getCopyAPI(), copySql, handle.getColumnTypes());
+    }
+
     @Override
     protected ResultSet getTables(Connection connection, Optional<String> schemaName, Optional<String> tableName)
             throws SQLException
@@ -0,0 +1,242 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.plugin.postgresql;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.type.BigintType;
+import com.facebook.presto.common.type.BooleanType;
+import com.facebook.presto.common.type.CharType;
+import com.facebook.presto.common.type.DateType;
+import com.facebook.presto.common.type.DecimalType;
+import com.facebook.presto.common.type.DoubleType;
+import com.facebook.presto.common.type.IntegerType;
+import com.facebook.presto.common.type.RealType;
+import com.facebook.presto.common.type.SmallintType;
+import com.facebook.presto.common.type.TinyintType;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.common.type.VarbinaryType;
+import com.facebook.presto.common.type.VarcharType;
+import com.facebook.presto.plugin.jdbc.JdbcBatchWriter;
+import com.facebook.presto.spi.PrestoException;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.Slice;
+import io.airlift.slice.SliceOutput;
+import org.postgresql.copy.CopyManager;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.facebook.presto.common.type.Decimals.decodeUnscaledValue;
+import static com.facebook.presto.plugin.jdbc.JdbcErrorCode.JDBC_ERROR;
+import static java.lang.Float.intBitsToFloat;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Loads rows with {@code COPY ... FROM STDIN} in the text format. Rows are encoded into
+ * a buffer on the page sink thread, and only the copy of a detached buffer uses the connection.
+ */
+public class PostgreSqlCopyBatchWriter
+        implements JdbcBatchWriter
+{
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(US_ASCII);
+
+    private final CopyManager copyManager;
+    private final String copySql;
+    private final List<Type> columnTypes;
+
+    private SliceOutput buffer = new DynamicSliceOutput(INITIAL_BUFFER_SIZE);
+    private int pendingRowCount;
+
+    public PostgreSqlCopyBatchWriter(CopyManager copyManager, String copySql, List<Type> columnTypes)
+    {
+        this.copyManager = requireNonNull(copyManager, "copyManager is null");
+        this.copySql = requireNonNull(copySql, "copySql is null");
+        this.columnTypes = ImmutableList.copyOf(requireNonNull(columnTypes, "columnTypes is null"));
+    }
+
+    public static boolean isSupportedType(Type type)
+    {
+        // timestamps are left to the write functions, which apply the session time zone rules
+        return type instanceof BooleanType ||
+                type instanceof TinyintType ||
+                type instanceof SmallintType ||
+                type instanceof IntegerType ||
+                type instanceof BigintType ||
+                type instanceof RealType ||
+                type instanceof DoubleType ||
+                type instanceof DecimalType ||
+                type instanceof DateType ||
+                type instanceof VarcharType ||
+                type instanceof CharType ||
+                type instanceof VarbinaryType;
+    }
+
+    @Override
+    public void appendPage(Page page)
+    {
+        encodePage(columnTypes, page, buffer);
+        pendingRowCount += page.getPositionCount();
+    }
+
+    @Override
+    public int getPendingRowCount()
+    {
+        return pendingRowCount;
+    }
+
+    @Override
+    public long getPendingSizeInBytes()
+    {
+        return buffer.getRetainedSize();
+    }
+
+    @Override
+    public Batch detachBatch()
+    {
+        Slice data = buffer.slice();
+        long sizeInBytes = buffer.getRetainedSize();
+        buffer = new DynamicSliceOutput(Math.max(INITIAL_BUFFER_SIZE, data.length()));
+        pendingRowCount = 0;
+        return new Batch()
+        {
+            @Override
+            public long getSizeInBytes()
+            {
+                return sizeInBytes;
+            }
+
+            @Override
+            public void execute()
+                    throws SQLException
+            {
+                copy(data);
+            }
+        };
+    }
+
+    @Override
+    public void close() {}
+
+    private void copy(Slice data)
+            throws SQLException
+    {
+        try {
+            copyManager.copyIn(copySql, data.getInput());
+        }
+        catch (IOException e) {
+            throw new PrestoException(JDBC_ERROR, e);
+        }
+    }
+
+    @VisibleForTesting
+    static void encodePage(List<Type> columnTypes, Page page, SliceOutput output)
+    {
+        for (int position = 0; position < page.getPositionCount(); position++) {
+            for (int channel = 0; channel < columnTypes.size(); channel++) {
+                if (channel > 0) {
+                    output.writeByte('\t');
+                }
+                encodeValue(columnTypes.get(channel), page.getBlock(channel), position, output);
+            }
+            output.writeByte('\n');
+        }
+    }
+
+    private static void encodeValue(Type type, Block block, int position, SliceOutput output)
+    {
+        if (block.isNull(position)) {
+            output.writeByte('\\');
+            output.writeByte('N');
+        }
+        else if (type instanceof BooleanType) {
+            output.writeByte(type.getBoolean(block, position) ? 't' : 'f');
+        }
+        else if (type instanceof RealType) {
+            writeAscii(output, Float.toString(intBitsToFloat((int) type.getLong(block, position))));
+        }
+        else if (type instanceof DoubleType) {
+            writeAscii(output, Double.toString(type.getDouble(block, position)));
+        }
+        else if (type instanceof DecimalType) {
+            DecimalType decimalType = (DecimalType) type;
+            BigDecimal value = decimalType.isShort() ?
+                    BigDecimal.valueOf(type.getLong(block, position), decimalType.getScale()) :
+                    new BigDecimal(decodeUnscaledValue(type.getSlice(block, position)), decimalType.getScale());
+            writeAscii(output, value.toPlainString());
+        }
+        else if (type instanceof DateType) {
+            writeAscii(output, LocalDate.ofEpochDay(type.getLong(block, position)).toString());
+        }
+        else if (type instanceof VarcharType || type instanceof CharType) {
+            writeEscaped(output, type.getSlice(block, position));
+        }
+        else if (type instanceof VarbinaryType) {
+            // bytea hex format, with the leading backslash escaped for the copy text format
+            Slice value = type.getSlice(block, position);
+            output.writeByte('\\');
+            output.writeByte('\\');
+            output.writeByte('x');
+            for (int i = 0; i < value.length(); i++) {
+                int b = value.getUnsignedByte(i);
+                output.writeByte(HEX_DIGITS[b >>> 4]);
+                output.writeByte(HEX_DIGITS[b & 0xF]);
+            }
+        }
+        else {
+            // integer types
+            writeAscii(output, Long.toString(type.getLong(block, position)));
+        }
+    }
+
+    private static void writeEscaped(SliceOutput output, Slice value)
+    {
+        // the escaped characters are ASCII, so they never occur inside a multi-byte UTF-8 sequence
+        for (int i = 0; i < value.length(); i++) {
+            byte b = value.getByte(i);
+            switch (b) {
+                case '\\':
+                    output.writeByte('\\');
+                    output.writeByte('\\');
+                    break;
+                case '\n':
+                    output.writeByte('\\');
+                    output.writeByte('n');
+                    break;
+                case '\r':
+                    output.writeByte('\\');
+                    output.writeByte('r');
+                    break;
+                case '\t':
+                    output.writeByte('\\');
+                    output.writeByte('t');
+                    break;
+                default:
+                    output.writeByte(b);
+            }
+        }
+    }
+
+    private static void writeAscii(SliceOutput output, String value)
+    {
+        output.writeBytes(value.getBytes(US_ASCII));
+    }
+}
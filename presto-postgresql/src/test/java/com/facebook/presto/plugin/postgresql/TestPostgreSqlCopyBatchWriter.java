@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.plugin.postgresql;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.common.type.DecimalType;
+import com.facebook.presto.common.type.Type;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.DynamicSliceOutput;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.common.type.DateType.DATE;
+import static com.facebook.presto.common.type.DecimalType.createDecimalType;
+import static com.facebook.presto.common.type.TimestampType.TIMESTAMP;
+import static com.facebook.presto.common.type.VarbinaryType.VARBINARY;
+import static com.facebook.presto.common.type.VarcharType.VARCHAR;
+import static io.airlift.slice.Slices.utf8Slice;
+import static io.airlift.slice.Slices.wrappedBuffer;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestPostgreSqlCopyBatchWriter
+{
+    @Test
+    public void testEncodeRows()
+    {
+        DecimalType decimalType = createDecimalType(10, 2);
+        List<Type> types = ImmutableList.of(BIGINT, BOOLEAN, VARCHAR, decimalType, DATE, VARBINARY);
+
+        BlockBuilder bigints = BIGINT.createBlockBuilder(null, 2);
+        BIGINT.writeLong(bigints, 42);
+        bigints.appendNull();
+
+        BlockBuilder booleans = BOOLEAN.createBlockBuilder(null, 2);
+        BOOLEAN.writeBoolean(booleans, true);
+        BOOLEAN.writeBoolean(booleans, false);
+
+        BlockBuilder varchars = VARCHAR.createBlockBuilder(null, 2);
+        VARCHAR.writeSlice(varchars, utf8Slice("a\tb\\c\nd\u00e9"));
+        varchars.appendNull();
+
+        BlockBuilder decimals = decimalType.createBlockBuilder(null, 2);
+        decimalType.writeLong(decimals, 12345);
+        decimalType.writeLong(decimals, -5);
+
+        BlockBuilder dates = DATE.createBlockBuilder(null, 2);
+        DATE.writeLong(dates, 0);
+        DATE.writeLong(dates, 18628);
+
+        BlockBuilder varbinaries = VARBINARY.createBlockBuilder(null, 2);
+        VARBINARY.writeSlice(varbinaries, wrappedBuffer(new byte[] {0x01, (byte) 0xAB}));
+        varbinaries.appendNull();
+
+        Page page = new Page(bigints.build(), booleans.build(), varchars.build(), decimals.build(), dates.build(), varbinaries.build());
+        DynamicSliceOutput output = new DynamicSliceOutput(64);
+        PostgreSqlCopyBatchWriter.encodePage(types, page, output);
+
+        assertEquals(
+                output.slice().toString(UTF_8),
+                "42\tt\ta\\tb\\\\c\\nd\u00e9\t123.45\t1970-01-01\t\\\\x01ab\n" +
+                        "\\N\tf\t\\N\t-0.05\t2021-01-01\t\\N\n");
+    }
+
+    @Test
+    public void testSupportedTypes()
+    {
+        assertTrue(PostgreSqlCopyBatchWriter.isSupportedType(VARCHAR));
+        assertTrue(PostgreSqlCopyBatchWriter.isSupportedType(createDecimalType(30, 5)));
+        assertFalse(PostgreSqlCopyBatchWriter.isSupportedType(TIMESTAMP));
+    }
+}
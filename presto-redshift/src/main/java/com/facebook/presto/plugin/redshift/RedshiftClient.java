@@ -16,10 +16,12 @@ package com.facebook.presto.plugin.redshift;
 import com.amazon.redshift.jdbc.Driver;
 import com.facebook.presto.plugin.jdbc.BaseJdbcClient;
 import com.facebook.presto.plugin.jdbc.BaseJdbcConfig;
+import com.facebook.presto.plugin.jdbc.ConnectionFactory;
 import com.facebook.presto.plugin.jdbc.DriverConnectionFactory;
 import com.facebook.presto.plugin.jdbc.JdbcConnectorId;
 import com.facebook.presto.plugin.jdbc.JdbcIdentity;
 import com.facebook.presto.plugin.jdbc.JdbcTypeHandle;
+import com.facebook.presto.plugin.jdbc.JdbcWriteConfig;
 import com.facebook.presto.plugin.jdbc.mapping.ReadMapping;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.PrestoException;
@@ -30,7 +32,9 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.Optional;
+import java.util.Properties;
 
+import static com.facebook.presto.plugin.jdbc.DriverConnectionFactory.basicConnectionProperties;
 import static com.facebook.presto.plugin.jdbc.JdbcErrorCode.JDBC_ERROR;
 import static com.facebook.presto.plugin.jdbc.mapping.ReadMapping.varbinaryReadMapping;
 import static java.lang.String.format;
@@ -40,9 +44,24 @@ public class RedshiftClient
         extends BaseJdbcClient
 {
     @Inject
-    public RedshiftClient(JdbcConnectorId connectorId, BaseJdbcConfig config)
+    public RedshiftClient(JdbcConnectorId connectorId, BaseJdbcConfig config, JdbcWriteConfig writeConfig)
     {
-        super(connectorId, config, "\"", new DriverConnectionFactory(new Driver(), config));
+        super(connectorId, config, "\"", connectionFactory(config, writeConfig));
+    }
+
+    private static ConnectionFactory connectionFactory(BaseJdbcConfig config, JdbcWriteConfig writeConfig)
+    {
+        Properties connectionProperties = basicConnectionProperties(config);
+        if (writeConfig.isBulkWriteEnabled()) {
+            // Redshift does not support COPY FROM STDIN, so let the driver send each batch as multi-row INSERT statements
+            connectionProperties.setProperty("reWriteBatchedInserts", "true");
+        }
+        return new DriverConnectionFactory(
+                new Driver(),
+                config.getConnectionUrl(),
+                Optional.ofNullable(config.getUserCredentialName()),
+                Optional.ofNullable(config.getPasswordCredentialName()),
+                connectionProperties);
     }
 
     @Override
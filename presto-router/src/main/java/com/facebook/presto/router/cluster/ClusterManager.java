@@ -16,6 +16,8 @@ package com.facebook.presto.router.cluster;
 import com.facebook.airlift.log.Logger;
 import com.facebook.airlift.units.Duration;
 import com.facebook.presto.router.RouterConfig;
+import com.facebook.presto.router.predictor.PredictorManager;
+import com.facebook.presto.router.predictor.ResourceGroup;
 import com.facebook.presto.router.scheduler.CustomSchedulerManager;
 import com.facebook.presto.router.scheduler.SchedulerFactory;
 import com.facebook.presto.router.scheduler.SchedulerType;
@@ -53,11 +55,13 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.facebook.airlift.concurrent.Threads.threadsNamed;
 import static com.facebook.presto.router.RouterUtil.parseRouterConfig;
 import static com.facebook.presto.router.scheduler.SchedulerType.CUSTOM_PLUGIN_SCHEDULER;
+import static com.facebook.presto.router.scheduler.SchedulerType.LOAD_AWARE;
 import static com.facebook.presto.router.scheduler.SchedulerType.ROUND_ROBIN;
 import static com.facebook.presto.router.scheduler.SchedulerType.WEIGHTED_RANDOM_CHOICE;
 import static com.facebook.presto.router.scheduler.SchedulerType.WEIGHTED_ROUND_ROBIN;
@@ -75,6 +79,9 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 public class ClusterManager
         implements AutoCloseable
 {
+    // the prediction is fetched while the query waits to be routed
+    private static final Duration PREDICTION_TIMEOUT = new Duration(500, MILLISECONDS);
+
     private final AtomicReference<ClusterManagerConfig> currentConfig = new AtomicReference<>();
 
     private final Path configFile;
@@ -88,18 +95,32 @@ public class ClusterManager
     private final RemoteInfoFactory remoteInfoFactory;
     private final HashMap<String, HashMap<URI, Integer>> serverWeights = new HashMap<>();
     private final CustomSchedulerManager schedulerManager;
+    private final Function<String, Optional<ResourceGroup>> queryResourcePredictor;
     private final ScheduledExecutorService scheduledExecutorService;
     private final ScheduledFuture<?> configDetection;
     private final WatchService watchService;
     private final WatchKey watchKey;
 
     @Inject
+    public ClusterManager(RouterConfig config, RemoteInfoFactory remoteInfoFactory, CustomSchedulerManager schedulerManager, PredictorManager predictorManager)
+            throws IOException
+    {
+        this(config, remoteInfoFactory, schedulerManager, createQueryResourcePredictor(requireNonNull(predictorManager, "predictorManager is null")));
+    }
+
     public ClusterManager(RouterConfig config, RemoteInfoFactory remoteInfoFactory, CustomSchedulerManager schedulerManager)
             throws IOException
+    {
+        this(config, remoteInfoFactory, schedulerManager, statement -> Optional.empty());
+    }
+
+    private ClusterManager(RouterConfig config, RemoteInfoFactory remoteInfoFactory, CustomSchedulerManager schedulerManager, Function<String, Optional<ResourceGroup>> queryResourcePredictor)
+            throws IOException
     {
         this.configFile = Paths.get(requireNonNull(config, "config is null").getConfigFile());
         this.remoteInfoFactory = requireNonNull(remoteInfoFactory, "remoteInfoFactory is null");
         this.schedulerManager = schedulerManager;
+        this.queryResourcePredictor = requireNonNull(queryResourcePredictor, "queryResourcePredictor is null");
         reloadConfig();
         initializeServerWeights();
         watchService = FileSystems.getDefault().newWatchService();
@@ -155,7 +176,7 @@ public class ClusterManager
                 .orElseThrow(() -> new PrestoException(CONFIGURATION_INVALID, "Failed to load router config"));
         Map<String, GroupSpec> newGroups = newRouterSpec.getGroups().stream().collect(toImmutableMap(GroupSpec::getName, group -> group));
         List<SelectorRuleSpec> newGroupSelectors = ImmutableList.copyOf(newRouterSpec.getSelectors());
-        Scheduler newScheduler = new SchedulerFactory(newRouterSpec.getSchedulerType(), schedulerManager).create();
+        Scheduler newScheduler = new SchedulerFactory(newRouterSpec.getSchedulerType(), schedulerManager, queryResourcePredictor).create();
         SchedulerType newSchedulerType = newRouterSpec.getSchedulerType();
 
         List<URI> updatedAllClusters = newGroups.values().stream()
@@ -215,6 +236,9 @@ public class ClusterManager
         if (config.getSchedulerType() == WEIGHTED_RANDOM_CHOICE || config.getSchedulerType() == WEIGHTED_ROUND_ROBIN) {
             config.getScheduler().setWeights(config.getServerWeights().get(groupSpec.getName()));
         }
+        else if (config.getSchedulerType() == LOAD_AWARE) {
+            config.getScheduler().setClusterInfos(ImmutableMap.copyOf(Maps.filterValues(remoteClusterInfos, RemoteState::isHealthy)));
+        }
         else if (config.getSchedulerType() == CUSTOM_PLUGIN_SCHEDULER) {
             try {
                 //Set remote cluster infos in the custom plugin scheduler
@@ -229,7 +253,7 @@ public class ClusterManager
             }
         }
 
-        if (config.getSchedulerType() == ROUND_ROBIN || config.getSchedulerType() == WEIGHTED_ROUND_ROBIN) {
+        if (config.getSchedulerType() == ROUND_ROBIN || config.getSchedulerType() == WEIGHTED_ROUND_ROBIN || config.getSchedulerType() == LOAD_AWARE) {
             config.getScheduler().setCandidateGroupName(target.get());
         }
 
@@ -301,6 +325,14 @@ public class ClusterManager
         }
     }
 
+    private static Function<String, Optional<ResourceGroup>> createQueryResourcePredictor(PredictorManager predictorManager)
+    {
+        if (!predictorManager.isPredictorConfigured()) {
+            return statement -> Optional.empty();
+        }
+        return statement -> predictorManager.fetchPrediction(statement, PREDICTION_TIMEOUT);
+    }
+
     public static class ClusterStatusTracker
     {
         private final Logger log = Logger.get(ClusterStatusTracker.class);
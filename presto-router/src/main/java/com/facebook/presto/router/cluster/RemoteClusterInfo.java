@@ -21,6 +21,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.net.URI;
 import java.util.Map;
+import java.util.OptionalLong;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class RemoteClusterInfo
@@ -38,6 +39,7 @@ public class RemoteClusterInfo
     private final AtomicLong queuedQueries = new AtomicLong();
     private final AtomicLong activeWorkers = new AtomicLong();
     private final AtomicLong runningDrivers = new AtomicLong();
+    private final AtomicLong refreshCount = new AtomicLong();
 
     public RemoteClusterInfo(HttpClient httpClient, URI remoteUri, RemoteStateConfig remoteStateConfig, RouterConfig routerConfig)
     {
@@ -53,6 +55,7 @@ public class RemoteClusterInfo
         queuedQueries.set(fields.get(QUEUED_QUERIES));
         activeWorkers.set(fields.get(ACTIVE_WORKERS));
         runningDrivers.set(fields.get(RUNNING_DRIVERS));
+        refreshCount.incrementAndGet();
     }
 
     @Override
@@ -84,4 +87,10 @@ public class RemoteClusterInfo
     {
         return runningDrivers.get();
     }
+
+    @Override
+    public OptionalLong getRefreshCount()
+    {
+        return OptionalLong.of(refreshCount.get());
+    }
 }
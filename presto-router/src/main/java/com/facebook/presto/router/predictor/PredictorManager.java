@@ -14,21 +14,26 @@
 package com.facebook.presto.router.predictor;
 
 import com.facebook.airlift.log.Logger;
+import com.facebook.airlift.units.Duration;
 import com.facebook.presto.router.RouterConfig;
 import com.facebook.presto.router.spec.RouterSpec;
 import com.facebook.presto.spi.PrestoException;
+import jakarta.annotation.PreDestroy;
 import jakarta.inject.Inject;
 
 import java.net.URI;
 import java.nio.file.Paths;
 import java.util.Optional;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
 
+import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
 import static com.facebook.presto.router.RouterUtil.parseRouterConfig;
 import static com.facebook.presto.spi.StandardErrorCode.CONFIGURATION_INVALID;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 /**
  * The manager of fetching predicted resource usage of a SQL statement from the
@@ -41,6 +46,7 @@ public class PredictorManager
 
     private final RemoteQueryFactory remoteQueryFactory;
     private final URI uri;
+    private final ExecutorService executor = newCachedThreadPool(daemonThreadsNamed("router-predictor-%s"));
 
     @Inject
     public PredictorManager(RemoteQueryFactory remoteQueryFactory, RouterConfig config)
@@ -52,6 +58,17 @@ public class PredictorManager
         this.uri = routerSpec.getPredictorUri().orElse(null);
     }
 
+    @PreDestroy
+    public void stop()
+    {
+        executor.shutdownNow();
+    }
+
+    public boolean isPredictorConfigured()
+    {
+        return uri != null;
+    }
+
     public Optional<ResourceGroup> fetchPrediction(String statement)
     {
         try {
@@ -65,7 +82,6 @@ public class PredictorManager
 
     public Optional<ResourceGroup> fetchPredictionParallel(String statement)
     {
-        ExecutorService executor = Executors.newCachedThreadPool();
         Future<CpuInfo> cpuInfoFuture = executor.submit(() -> fetchCpuPrediction(statement).orElse(null));
         Future<MemoryInfo> memoryInfoFuture = executor.submit(() -> fetchMemoryPrediction(statement).orElse(null));
         try {
@@ -77,6 +93,39 @@ public class PredictorManager
         return Optional.empty();
     }
 
+    /**
+     * Fetches the CPU and memory predictions in parallel and gives up on them after the timeout,
+     * so that a slow predictor does not hold the caller. A prediction is only returned when both
+     * parts are available.
+     */
+    public Optional<ResourceGroup> fetchPrediction(String statement, Duration timeout)
+    {
+        Future<Optional<CpuInfo>> cpuInfoFuture = executor.submit(() -> fetchCpuPrediction(statement));
+        Future<Optional<MemoryInfo>> memoryInfoFuture = executor.submit(() -> fetchMemoryPrediction(statement));
+        long deadline = System.nanoTime() + timeout.roundTo(NANOSECONDS);
+        try {
+            Optional<CpuInfo> cpuInfo = cpuInfoFuture.get(deadline - System.nanoTime(), NANOSECONDS);
+            Optional<MemoryInfo> memoryInfo = memoryInfoFuture.get(deadline - System.nanoTime(), NANOSECONDS);
+            if (cpuInfo.isPresent() && memoryInfo.isPresent()) {
+                return Optional.of(new ResourceGroup(cpuInfo.get(), memoryInfo.get()));
+            }
+        }
+        catch (TimeoutException e) {
+            log.warn("Prediction was not fetched within %s", timeout);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (Exception e) {
+            log.error("Error in fetching prediction with timeout", e);
+        }
+        finally {
+            cpuInfoFuture.cancel(true);
+            memoryInfoFuture.cancel(true);
+        }
+        return Optional.empty();
+    }
+
     public Optional<CpuInfo> fetchCpuPrediction(String statement)
     {
         RemoteQueryCpu remoteQueryCpu;
@@ -0,0 +1,197 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.router.scheduler;
+
+import com.facebook.airlift.log.Logger;
+import com.facebook.presto.router.predictor.ResourceGroup;
+import com.facebook.presto.spi.router.ClusterInfo;
+import com.facebook.presto.spi.router.RouterRequestInfo;
+import com.facebook.presto.spi.router.Scheduler;
+import com.google.common.collect.ImmutableMap;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Random;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.max;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Routes each query to the candidate with the lowest expected completion time.
+ * The expected completion time of a cluster is the work already running and queued
+ * there plus the predicted cost of the query, divided by the number of active workers.
+ * Queries routed since the last cluster info refresh are added to the backlog so that
+ * a burst of queries between two polls is not sent to the same cluster. Like the running
+ * and queued queries reported by the cluster, each of them counts as one query.
+ * <p>
+ * To avoid flapping between clusters with similar load, the previous destination of
+ * the candidate group is kept unless another cluster is better by more than the
+ * switch threshold.
+ */
+public class LoadAwareScheduler
+        implements Scheduler
+{
+    public static final double DEFAULT_SWITCH_THRESHOLD = 0.1;
+
+    private static final Random RANDOM = new Random();
+    private static final Logger log = Logger.get(LoadAwareScheduler.class);
+
+    private final Function<String, Optional<ResourceGroup>> queryResourcePredictor;
+    private final double switchThreshold;
+
+    private List<URI> candidates;
+    private Map<URI, ClusterInfo> clusterInfos = ImmutableMap.of();
+    private String candidateGroupName;
+
+    @GuardedBy("this")
+    private final Map<String, URI> lastDestinationByGroup = new HashMap<>();
+    @GuardedBy("this")
+    private final Map<URI, RoutedLoad> routedLoads = new HashMap<>();
+
+    public LoadAwareScheduler(Function<String, Optional<ResourceGroup>> queryResourcePredictor)
+    {
+        this(queryResourcePredictor, DEFAULT_SWITCH_THRESHOLD);
+    }
+
+    public LoadAwareScheduler(Function<String, Optional<ResourceGroup>> queryResourcePredictor, double switchThreshold)
+    {
+        checkArgument(switchThreshold >= 0, "switchThreshold is negative");
+        this.queryResourcePredictor = requireNonNull(queryResourcePredictor, "queryResourcePredictor is null");
+        this.switchThreshold = switchThreshold;
+    }
+
+    @Override
+    public Optional<URI> getDestination(RouterRequestInfo routerRequestInfo)
+    {
+        if (candidates == null || candidates.isEmpty()) {
+            log.warn("No candidates to schedule the query from user %s", routerRequestInfo.getUser());
+            return Optional.empty();
+        }
+
+        Optional<ResourceGroup> prediction = queryResourcePredictor.apply(routerRequestInfo.getQuery());
+        double cpuCost = prediction.map(resourceGroup -> bucketWeight(resourceGroup.getCpuInfo().getCpuTimeLabel())).orElse(1.0);
+        double memoryCost = prediction.map(resourceGroup -> bucketWeight(resourceGroup.getMemoryInfo().getMemoryBytesLabel())).orElse(1.0);
+
+        synchronized (this) {
+            URI best = null;
+            double bestTime = Double.POSITIVE_INFINITY;
+            Map<URI, Double> expectedTimes = new HashMap<>();
+            for (URI candidate : candidates) {
+                double expectedTime = getExpectedCompletionTime(candidate, cpuCost, memoryCost);
+                expectedTimes.put(candidate, expectedTime);
+                if (expectedTime < bestTime) {
+                    best = candidate;
+                    bestTime = expectedTime;
+                }
+            }
+
+            if (best == null) {
+                // no load information for any candidate yet
+                return Optional.of(candidates.get(RANDOM.nextInt(candidates.size())));
+            }
+
+            URI previous = lastDestinationByGroup.get(candidateGroupName);
+            if (previous != null && expectedTimes.containsKey(previous) && expectedTimes.get(previous) <= bestTime * (1 + switchThreshold)) {
+                best = previous;
+            }
+
+            if (candidateGroupName != null) {
+                lastDestinationByGroup.put(candidateGroupName, best);
+            }
+            routedLoads.get(best).addQuery();
+            return Optional.of(best);
+        }
+    }
+
+    @GuardedBy("this")
+    private double getExpectedCompletionTime(URI candidate, double cpuCost, double memoryCost)
+    {
+        ClusterInfo clusterInfo = clusterInfos.get(candidate);
+        if (clusterInfo == null || clusterInfo.getActiveWorkers() <= 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        long observedQueries = clusterInfo.getRunningQueries() + clusterInfo.getQueuedQueries();
+        RoutedLoad routedLoad = routedLoads.computeIfAbsent(candidate, uri -> new RoutedLoad());
+        long backlog = observedQueries + routedLoad.getQueriesSince(clusterInfo, observedQueries);
+        // blocked queries are mostly waiting for memory, which hurts memory heavy queries the most
+        double memoryContention = memoryCost * clusterInfo.getBlockedQueries();
+        return (backlog + cpuCost + memoryContention) / clusterInfo.getActiveWorkers();
+    }
+
+    /**
+     * The predictor labels are ordinal buckets of growing ranges, so the weight doubles with each bucket.
+     */
+    private static double bucketWeight(int label)
+    {
+        return Math.pow(2, max(label, 0));
+    }
+
+    @Override
+    public void setCandidates(List<URI> candidates)
+    {
+        this.candidates = candidates;
+    }
+
+    @Override
+    public void setClusterInfos(Map<URI, ClusterInfo> clusterInfos)
+    {
+        this.clusterInfos = requireNonNull(clusterInfos, "clusterInfos is null");
+    }
+
+    @Override
+    public void setCandidateGroupName(String candidateGroupName)
+    {
+        this.candidateGroupName = candidateGroupName;
+    }
+
+    /**
+     * Number of queries routed to a cluster since its cluster info was last refreshed, after which the
+     * reported counts already include them. A refresh is signalled by the refresh count of the cluster info,
+     * or by a new cluster info instance. Without either, a change of the query counts is taken as a refresh.
+     */
+    private static class RoutedLoad
+    {
+        private ClusterInfo clusterInfo;
+        private OptionalLong refreshCount = OptionalLong.empty();
+        private long observedQueries = -1;
+        private long routedQueries;
+
+        public long getQueriesSince(ClusterInfo clusterInfo, long observedQueries)
+        {
+            OptionalLong refreshCount = clusterInfo.getRefreshCount();
+            boolean refreshed = clusterInfo != this.clusterInfo
+                    || !refreshCount.equals(this.refreshCount)
+                    || (!refreshCount.isPresent() && observedQueries != this.observedQueries);
+            if (refreshed) {
+                this.clusterInfo = clusterInfo;
+                this.refreshCount = refreshCount;
+                this.observedQueries = observedQueries;
+                routedQueries = 0;
+            }
+            return routedQueries;
+        }
+
+        public void addQuery()
+        {
+            routedQueries++;
+        }
+    }
+}
@@ -16,25 +16,39 @@ package com.facebook.presto.router.scheduler;
 import com.facebook.airlift.log.Logger;
 import com.facebook.presto.spi.router.RouterRequestInfo;
 import com.facebook.presto.spi.router.Scheduler;
+import com.google.common.annotations.VisibleForTesting;
 
 import java.net.URI;
 import java.util.List;
 import java.util.Optional;
 import java.util.Random;
 
+import static java.util.Objects.requireNonNull;
+
 public class RandomChoiceScheduler
         implements Scheduler
 {
     private List<URI> candidates;
 
-    private static final Random RANDOM = new Random();
+    private final Random random;
     private static final Logger log = Logger.get(RandomChoiceScheduler.class);
 
+    public RandomChoiceScheduler()
+    {
+        this(new Random());
+    }
+
+    @VisibleForTesting
+    public RandomChoiceScheduler(Random random)
+    {
+        this.random = requireNonNull(random, "random is null");
+    }
+
     @Override
     public Optional<URI> getDestination(RouterRequestInfo routerRequestInfo)
     {
         try {
-            return Optional.of(candidates.get(RANDOM.nextInt(candidates.size())));
+            return Optional.of(candidates.get(random.nextInt(candidates.size())));
         }
         catch (IllegalArgumentException e) {
             log.warn(e, "Error getting destination for user " + routerRequestInfo.getUser());
@@ -13,9 +13,13 @@
  */
 package com.facebook.presto.router.scheduler;
 
+import com.facebook.presto.router.predictor.ResourceGroup;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.router.Scheduler;
 
+import java.util.Optional;
+import java.util.function.Function;
+
 import static com.facebook.presto.spi.StandardErrorCode.NOT_SUPPORTED;
 import static java.util.Objects.requireNonNull;
 
@@ -23,11 +27,13 @@ public class SchedulerFactory
 {
     private final SchedulerType schedulerType;
     private final CustomSchedulerManager schedulerManager;
+    private final Function<String, Optional<ResourceGroup>> queryResourcePredictor;
 
-    public SchedulerFactory(SchedulerType schedulerType, CustomSchedulerManager schedulerManager)
+    public SchedulerFactory(SchedulerType schedulerType, CustomSchedulerManager schedulerManager, Function<String, Optional<ResourceGroup>> queryResourcePredictor)
     {
         this.schedulerType = requireNonNull(schedulerType, "schedulerType is null");
         this.schedulerManager = requireNonNull(schedulerManager, "schedulerManager is null");
+        this.queryResourcePredictor = requireNonNull(queryResourcePredictor, "queryResourcePredictor is null");
     }
 
     public Scheduler create()
@@ -43,6 +49,8 @@ public class SchedulerFactory
                 return new RoundRobinScheduler();
             case WEIGHTED_ROUND_ROBIN:
                 return new WeightedRoundRobinScheduler();
+            case LOAD_AWARE:
+                return new LoadAwareScheduler(queryResourcePredictor);
             case CUSTOM_PLUGIN_SCHEDULER:
                 schedulerManager.loadScheduler();
                 return schedulerManager.getScheduler();
@@ -20,5 +20,6 @@ public enum SchedulerType
     USER_HASH,
     WEIGHTED_RANDOM_CHOICE,
     WEIGHTED_ROUND_ROBIN,
+    LOAD_AWARE,
     CUSTOM_PLUGIN_SCHEDULER
 }
@@ -0,0 +1,285 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.router;
+
+import com.facebook.airlift.units.Duration;
+import com.facebook.presto.router.predictor.CpuInfo;
+import com.facebook.presto.router.predictor.MemoryInfo;
+import com.facebook.presto.router.predictor.ResourceGroup;
+import com.facebook.presto.spi.router.ClusterInfo;
+import com.facebook.presto.spi.router.RouterRequestInfo;
+import com.facebook.presto.spi.router.Scheduler;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Replays a recorded query trace against simulated clusters to compare routing policies
+ * without running any Presto cluster. Each simulated worker runs one query at a time and
+ * excess queries wait in a FIFO queue. The scheduler only sees the cluster state as of the
+ * last poll, like the router does with {@link com.facebook.presto.router.cluster.RemoteClusterInfo}.
+ * <p>
+ * Traces are CSV files with one query per line:
+ * {@code arrival_millis,duration_millis,user,cpu_label,memory_label}.
+ * Empty lines and lines starting with {@code #} are ignored.
+ */
+public class RoutingSimulator
+{
+    private static final String GROUP_NAME = "simulation";
+
+    private final Map<URI, Integer> workersByCluster;
+    private final long pollingIntervalMillis;
+
+    public RoutingSimulator(Map<URI, Integer> workersByCluster, Duration pollingInterval)
+    {
+        this.workersByCluster = ImmutableMap.copyOf(requireNonNull(workersByCluster, "workersByCluster is null"));
+        this.pollingIntervalMillis = requireNonNull(pollingInterval, "pollingInterval is null").toMillis();
+        checkArgument(!workersByCluster.isEmpty(), "workersByCluster is empty");
+    }
+
+    public static List<TraceQuery> loadTrace(Path path)
+            throws IOException
+    {
+        ImmutableList.Builder<TraceQuery> trace = ImmutableList.builder();
+        List<String> lines = Files.readAllLines(path, UTF_8);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split(",");
+            checkArgument(fields.length == 5, "Invalid trace line %s: %s", i + 1, line);
+            trace.add(new TraceQuery(
+                    "query_" + (i + 1),
+                    Long.parseLong(fields[0].trim()),
+                    Long.parseLong(fields[1].trim()),
+                    fields[2].trim(),
+                    Integer.parseInt(fields[3].trim()),
+                    Integer.parseInt(fields[4].trim())));
+        }
+        return trace.build();
+    }
+
+    /**
+     * Returns a predictor that answers with the labels recorded in the trace,
+     * i.e. a perfect predictor for the replayed queries.
+     */
+    public static Function<String, Optional<ResourceGroup>> tracePredictor(List<TraceQuery> trace)
+    {
+        Map<String, ResourceGroup> predictions = trace.stream()
+                .collect(toImmutableMap(
+                        TraceQuery::getQueryId,
+                        query -> new ResourceGroup(new CpuInfo(query.getCpuLabel(), ""), new MemoryInfo(query.getMemoryLabel(), ""))));
+        return queryId -> Optional.ofNullable(predictions.get(queryId));
+    }
+
+    public SimulationResult run(Scheduler scheduler, List<TraceQuery> trace)
+    {
+        Map<URI, SimulatedCluster> clusters = new LinkedHashMap<>();
+        workersByCluster.forEach((uri, workers) -> clusters.put(uri, new SimulatedCluster(workers)));
+
+        scheduler.setCandidates(ImmutableList.copyOf(clusters.keySet()));
+        scheduler.setCandidateGroupName(GROUP_NAME);
+
+        List<TraceQuery> queries = trace.stream()
+                .sorted(Comparator.comparingLong(TraceQuery::getArrivalMillis))
+                .collect(toImmutableList());
+        Optional<Long> lastPoll = Optional.empty();
+        for (TraceQuery query : queries) {
+            long now = query.getArrivalMillis();
+            clusters.values().forEach(cluster -> cluster.advanceTo(now));
+            if (!lastPoll.isPresent() || now - lastPoll.get() >= pollingIntervalMillis) {
+                scheduler.setClusterInfos(clusters.entrySet().stream()
+                        .collect(toImmutableMap(Map.Entry::getKey, entry -> entry.getValue().getClusterInfo())));
+                lastPoll = Optional.of(now);
+            }
+
+            RouterRequestInfo requestInfo = new RouterRequestInfo(query.getUser(), Optional.empty(), ImmutableList.of(), query.getQueryId(), ImmutableMap.of(), null);
+            URI destination = scheduler.getDestination(requestInfo)
+                    .orElseThrow(() -> new IllegalStateException(format("No destination for %s", query.getQueryId())));
+            clusters.get(destination).submit(query);
+        }
+
+        ImmutableList.Builder<Long> completionTimes = ImmutableList.builder();
+        for (SimulatedCluster cluster : clusters.values()) {
+            cluster.advanceTo(Long.MAX_VALUE);
+            completionTimes.addAll(cluster.getCompletionTimes());
+        }
+        return new SimulationResult(completionTimes.build());
+    }
+
+    public static class TraceQuery
+    {
+        private final String queryId;
+        private final long arrivalMillis;
+        private final long durationMillis;
+        private final String user;
+        private final int cpuLabel;
+        private final int memoryLabel;
+
+        public TraceQuery(String queryId, long arrivalMillis, long durationMillis, String user, int cpuLabel, int memoryLabel)
+        {
+            this.queryId = requireNonNull(queryId, "queryId is null");
+            this.arrivalMillis = arrivalMillis;
+            this.durationMillis = durationMillis;
+            this.user = requireNonNull(user, "user is null");
+            this.cpuLabel = cpuLabel;
+            this.memoryLabel = memoryLabel;
+            checkArgument(durationMillis >= 0, "durationMillis is negative");
+        }
+
+        public String getQueryId()
+        {
+            return queryId;
+        }
+
+        public long getArrivalMillis()
+        {
+            return arrivalMillis;
+        }
+
+        public long getDurationMillis()
+        {
+            return durationMillis;
+        }
+
+        public String getUser()
+        {
+            return user;
+        }
+
+        public int getCpuLabel()
+        {
+            return cpuLabel;
+        }
+
+        public int getMemoryLabel()
+        {
+            return memoryLabel;
+        }
+    }
+
+    public static class SimulationResult
+    {
+        private final List<Long> completionTimes;
+
+        public SimulationResult(List<Long> completionTimes)
+        {
+            this.completionTimes = completionTimes.stream()
+                    .sorted()
+                    .collect(toImmutableList());
+        }
+
+        public int getQueryCount()
+        {
+            return completionTimes.size();
+        }
+
+        public double getMeanCompletionMillis()
+        {
+            return completionTimes.stream()
+                    .mapToLong(Long::longValue)
+                    .average()
+                    .orElse(0);
+        }
+
+        public long getCompletionMillisPercentile(double percentile)
+        {
+            checkArgument(percentile > 0 && percentile <= 1, "percentile must be in (0, 1]");
+            if (completionTimes.isEmpty()) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * completionTimes.size()) - 1;
+            return completionTimes.get(Math.max(index, 0));
+        }
+
+        @Override
+        public String toString()
+        {
+            return format("queries=%s, mean=%.1fms, p50=%sms, p99=%sms",
+                    getQueryCount(),
+                    getMeanCompletionMillis(),
+                    getCompletionMillisPercentile(0.5),
+                    getCompletionMillisPercentile(0.99));
+        }
+    }
+
+    private static class SimulatedCluster
+    {
+        private final int workers;
+        private final PriorityQueue<Long> runningFinishTimes = new PriorityQueue<>();
+        private final Queue<TraceQuery> queuedQueries = new ArrayDeque<>();
+        private final List<Long> completionTimes = new ArrayList<>();
+
+        public SimulatedCluster(int workers)
+        {
+            checkArgument(workers > 0, "workers must be positive");
+            this.workers = workers;
+        }
+
+        public void submit(TraceQuery query)
+        {
+            queuedQueries.add(query);
+            startQueuedQueries(query.getArrivalMillis());
+        }
+
+        public void advanceTo(long time)
+        {
+            while (!runningFinishTimes.isEmpty() && runningFinishTimes.peek() <= time) {
+                startQueuedQueries(runningFinishTimes.poll());
+            }
+        }
+
+        public ClusterInfo getClusterInfo()
+        {
+            return new TestingClusterInfo(runningFinishTimes.size(), 0, queuedQueries.size(), workers);
+        }
+
+        public List<Long> getCompletionTimes()
+        {
+            return completionTimes;
+        }
+
+        private void startQueuedQueries(long now)
+        {
+            while (runningFinishTimes.size() < workers && !queuedQueries.isEmpty()) {
+                TraceQuery query = queuedQueries.poll();
+                long finishTime = now + query.getDurationMillis();
+                runningFinishTimes.add(finishTime);
+                completionTimes.add(finishTime - query.getArrivalMillis());
+            }
+        }
+    }
+}
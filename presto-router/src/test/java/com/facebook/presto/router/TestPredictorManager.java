@@ -20,6 +20,7 @@ import com.facebook.airlift.jaxrs.JaxrsModule;
 import com.facebook.airlift.json.JsonModule;
 import com.facebook.airlift.log.Logging;
 import com.facebook.airlift.node.testing.TestingNodeModule;
+import com.facebook.airlift.units.Duration;
 import com.facebook.presto.router.predictor.CpuInfo;
 import com.facebook.presto.router.predictor.MemoryInfo;
 import com.facebook.presto.router.predictor.PredictorManager;
@@ -43,6 +44,7 @@ import java.util.Optional;
 
 import static com.facebook.presto.router.TestingRouterUtil.getConfigFile;
 import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 
@@ -104,6 +106,11 @@ public class TestPredictorManager
         assertNotNull(resourceGroup.getCpuInfo());
         assertNotNull(resourceGroup.getMemoryInfo());
 
+        resourceGroup = predictorManager.fetchPrediction(sql, new Duration(10, SECONDS)).orElse(null);
+        assertNotNull(resourceGroup, "The resource group should not be null");
+        assertNotNull(resourceGroup.getCpuInfo());
+        assertNotNull(resourceGroup.getMemoryInfo());
+
         CpuInfo cpuInfo = predictorManager.fetchCpuPrediction(sql).orElse(null);
         MemoryInfo memoryInfo = predictorManager.fetchMemoryPrediction(sql).orElse(null);
         assertNotNull(cpuInfo);
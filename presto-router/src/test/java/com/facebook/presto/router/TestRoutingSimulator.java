@@ -0,0 +1,108 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.router;
+
+import com.facebook.airlift.units.Duration;
+import com.facebook.presto.router.RoutingSimulator.SimulationResult;
+import com.facebook.presto.router.RoutingSimulator.TraceQuery;
+import com.facebook.presto.router.scheduler.LoadAwareScheduler;
+import com.facebook.presto.router.scheduler.RandomChoiceScheduler;
+import com.facebook.presto.router.scheduler.RoundRobinScheduler;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestRoutingSimulator
+{
+    // one large and two small clusters, so spreading queries evenly overloads the small ones
+    private static final ImmutableMap<URI, Integer> WORKERS_BY_CLUSTER = ImmutableMap.of(
+            URI.create("http://large:8080"), 8,
+            URI.create("http://small-1:8080"), 2,
+            URI.create("http://small-2:8080"), 2);
+
+    @Test
+    public void testLoadAwareSchedulerOutperformsLoadObliviousSchedulers()
+    {
+        List<TraceQuery> trace = generateTrace(new Random(42), 4000);
+        RoutingSimulator simulator = new RoutingSimulator(WORKERS_BY_CLUSTER, new Duration(5, SECONDS));
+
+        SimulationResult loadAware = simulator.run(new LoadAwareScheduler(RoutingSimulator.tracePredictor(trace)), trace);
+        SimulationResult random = simulator.run(new RandomChoiceScheduler(new Random(42)), trace);
+        SimulationResult roundRobin = simulator.run(new RoundRobinScheduler(), trace);
+
+        assertEquals(loadAware.getQueryCount(), trace.size());
+        assertEquals(random.getQueryCount(), trace.size());
+        assertEquals(roundRobin.getQueryCount(), trace.size());
+
+        assertTrue(loadAware.getMeanCompletionMillis() < random.getMeanCompletionMillis(), "load aware: " + loadAware + ", random: " + random);
+        assertTrue(loadAware.getMeanCompletionMillis() < roundRobin.getMeanCompletionMillis(), "load aware: " + loadAware + ", round robin: " + roundRobin);
+        assertTrue(loadAware.getCompletionMillisPercentile(0.99) < roundRobin.getCompletionMillisPercentile(0.99), "load aware: " + loadAware + ", round robin: " + roundRobin);
+    }
+
+    @Test
+    public void testLoadTrace()
+            throws Exception
+    {
+        File traceFile = File.createTempFile("router-trace", ".csv");
+        traceFile.deleteOnExit();
+        Files.write(traceFile.toPath(), ImmutableList.of(
+                "# arrival_millis,duration_millis,user,cpu_label,memory_label",
+                "0,1000,alice,0,1",
+                "",
+                "250, 4000, bob, 2, 0"), UTF_8);
+
+        List<TraceQuery> trace = RoutingSimulator.loadTrace(traceFile.toPath());
+        assertEquals(trace.size(), 2);
+        assertEquals(trace.get(0).getQueryId(), "query_2");
+        assertEquals(trace.get(0).getArrivalMillis(), 0);
+        assertEquals(trace.get(0).getDurationMillis(), 1000);
+        assertEquals(trace.get(0).getUser(), "alice");
+        assertEquals(trace.get(0).getMemoryLabel(), 1);
+        assertEquals(trace.get(1).getQueryId(), "query_4");
+        assertEquals(trace.get(1).getArrivalMillis(), 250);
+        assertEquals(trace.get(1).getCpuLabel(), 2);
+
+        SimulationResult result = new RoutingSimulator(ImmutableMap.of(URI.create("http://single:8080"), 1), new Duration(1, SECONDS))
+                .run(new RoundRobinScheduler(), trace);
+        // the second query waits for the first one to finish on the only worker
+        assertEquals(result.getCompletionMillisPercentile(0.5), 1000);
+        assertEquals(result.getCompletionMillisPercentile(1), 4750);
+    }
+
+    private static List<TraceQuery> generateTrace(Random random, int queries)
+    {
+        ImmutableList.Builder<TraceQuery> trace = ImmutableList.builder();
+        long arrival = 0;
+        for (int i = 0; i < queries; i++) {
+            // roughly 70% utilization of the 12 workers with a mean query duration of about 2 seconds
+            arrival += (long) (-250 * Math.log(1 - random.nextDouble()));
+            double label = random.nextDouble();
+            int cpuLabel = label < 0.5 ? 0 : label < 0.8 ? 1 : label < 0.95 ? 2 : 3;
+            long duration = (long) (1000 * (1 << cpuLabel) * (0.5 + random.nextDouble()));
+            trace.add(new TraceQuery("query_" + i, arrival, duration, "user_" + random.nextInt(10), cpuLabel, random.nextInt(4)));
+        }
+        return trace.build();
+    }
+}
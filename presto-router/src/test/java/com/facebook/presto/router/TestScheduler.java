@@ -13,13 +13,20 @@
  */
 package com.facebook.presto.router;
 
+import com.facebook.presto.router.predictor.CpuInfo;
+import com.facebook.presto.router.predictor.MemoryInfo;
+import com.facebook.presto.router.predictor.ResourceGroup;
+import com.facebook.presto.router.scheduler.LoadAwareScheduler;
 import com.facebook.presto.router.scheduler.RandomChoiceScheduler;
 import com.facebook.presto.router.scheduler.RoundRobinScheduler;
 import com.facebook.presto.router.scheduler.UserHashScheduler;
 import com.facebook.presto.router.scheduler.WeightedRandomChoiceScheduler;
 import com.facebook.presto.router.scheduler.WeightedRoundRobinScheduler;
+import com.facebook.presto.spi.router.ClusterInfo;
 import com.facebook.presto.spi.router.RouterRequestInfo;
 import com.facebook.presto.spi.router.Scheduler;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -29,6 +36,7 @@ import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Optional;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
@@ -200,6 +208,109 @@ public class TestScheduler
         testScheduler(weightSum, scheduler, weights);
     }
 
+    @Test
+    public void testLoadAwareScheduler()
+            throws Exception
+    {
+        Scheduler scheduler = new LoadAwareScheduler(statement -> Optional.empty());
+        scheduler.setCandidates(servers);
+        scheduler.setCandidateGroupName("");
+        scheduler.setClusterInfos(ImmutableMap.of(
+                servers.get(0), new TestingClusterInfo(10, 0, 0, 2),
+                servers.get(1), new TestingClusterInfo(1, 0, 0, 2),
+                servers.get(2), new TestingClusterInfo(4, 0, 0, 4)));
+
+        // expected completion times are 5.5, 1 and 1.25
+        URI target1 = scheduler.getDestination(new RouterRequestInfo("test")).orElse(new URI("invalid"));
+        assertEquals(target1, servers.get(1));
+
+        // the query routed to the second server is counted until its cluster info is refreshed
+        URI target2 = scheduler.getDestination(new RouterRequestInfo("test")).orElse(new URI("invalid"));
+        assertEquals(target2, servers.get(2));
+
+        // both servers are now at 1.5, so the previous destination is kept
+        URI target3 = scheduler.getDestination(new RouterRequestInfo("test")).orElse(new URI("invalid"));
+        assertEquals(target3, servers.get(2));
+
+        // a refresh showing the third server busy moves queries away from it
+        scheduler.setClusterInfos(ImmutableMap.of(
+                servers.get(0), new TestingClusterInfo(10, 0, 0, 2),
+                servers.get(1), new TestingClusterInfo(1, 0, 0, 2),
+                servers.get(2), new TestingClusterInfo(8, 0, 4, 4)));
+        URI target4 = scheduler.getDestination(new RouterRequestInfo("test")).orElse(new URI("invalid"));
+        assertEquals(target4, servers.get(1));
+    }
+
+    @Test
+    public void testLoadAwareSchedulerPrediction()
+            throws Exception
+    {
+        ImmutableMap<URI, ClusterInfo> clusterInfos = ImmutableMap.of(
+                servers.get(0), new TestingClusterInfo(2, 1, 0, 4),
+                servers.get(1), new TestingClusterInfo(4, 0, 0, 4));
+        RouterRequestInfo requestInfo = new RouterRequestInfo("test", Optional.empty(), ImmutableList.of(), "SELECT 1", ImmutableMap.of(), null);
+
+        Scheduler scheduler = new LoadAwareScheduler(statement -> Optional.empty());
+        scheduler.setCandidates(servers.subList(0, 2));
+        scheduler.setClusterInfos(clusterInfos);
+        assertEquals(scheduler.getDestination(requestInfo).orElse(new URI("invalid")), servers.get(0));
+
+        // a memory heavy query avoids the cluster with queries blocked on memory
+        scheduler = new LoadAwareScheduler(statement -> Optional.of(new ResourceGroup(new CpuInfo(0, "0s - 1h"), new MemoryInfo(3, "> 1TB"))));
+        scheduler.setCandidates(servers.subList(0, 2));
+        scheduler.setClusterInfos(clusterInfos);
+        assertEquals(scheduler.getDestination(requestInfo).orElse(new URI("invalid")), servers.get(1));
+    }
+
+    @Test
+    public void testLoadAwareSchedulerRefresh()
+            throws Exception
+    {
+        TestingClusterInfo firstClusterInfo = new TestingClusterInfo(2, 0, 0, 2);
+        TestingClusterInfo secondClusterInfo = new TestingClusterInfo(2, 0, 0, 2);
+        Scheduler scheduler = new LoadAwareScheduler(statement -> Optional.empty());
+        scheduler.setCandidates(servers.subList(0, 2));
+        scheduler.setClusterInfos(ImmutableMap.of(servers.get(0), firstClusterInfo, servers.get(1), secondClusterInfo));
+
+        // queries routed since the last refresh alternate between the clusters
+        assertEquals(scheduler.getDestination(new RouterRequestInfo("test")).orElse(new URI("invalid")), servers.get(0));
+        assertEquals(scheduler.getDestination(new RouterRequestInfo("test")).orElse(new URI("invalid")), servers.get(1));
+        assertEquals(scheduler.getDestination(new RouterRequestInfo("test")).orElse(new URI("invalid")), servers.get(0));
+        assertEquals(scheduler.getDestination(new RouterRequestInfo("test")).orElse(new URI("invalid")), servers.get(1));
+
+        // a refresh reporting the same counts still drops the queries routed to the refreshed cluster
+        secondClusterInfo.refresh();
+        assertEquals(scheduler.getDestination(new RouterRequestInfo("test")).orElse(new URI("invalid")), servers.get(1));
+    }
+
+    @Test
+    public void testLoadAwareSchedulerCountsRoutedQueries()
+            throws Exception
+    {
+        Scheduler scheduler = new LoadAwareScheduler(statement -> Optional.of(new ResourceGroup(new CpuInfo(3, "> 1h"), new MemoryInfo(0, "0B - 1GB"))));
+        scheduler.setCandidates(servers.subList(0, 2));
+        scheduler.setClusterInfos(ImmutableMap.of(
+                servers.get(0), new TestingClusterInfo(0, 0, 0, 1),
+                servers.get(1), new TestingClusterInfo(0, 0, 0, 2)));
+
+        // expected completion times are 8 and 4
+        assertEquals(scheduler.getDestination(new RouterRequestInfo("test")).orElse(new URI("invalid")), servers.get(1));
+        // the routed query counts as one query, like the queries reported by the cluster, so 8 and 4.5
+        assertEquals(scheduler.getDestination(new RouterRequestInfo("test")).orElse(new URI("invalid")), servers.get(1));
+    }
+
+    @Test
+    public void testLoadAwareSchedulerWithoutClusterInfo()
+            throws Exception
+    {
+        Scheduler scheduler = new LoadAwareScheduler(statement -> Optional.empty());
+        scheduler.setCandidates(servers);
+        scheduler.setCandidateGroupName("");
+
+        URI target = scheduler.getDestination(new RouterRequestInfo("test")).orElse(new URI("invalid"));
+        assertTrue(servers.contains(target));
+    }
+
     private void testScheduler(int weightSum, Scheduler scheduler, HashMap<URI, Integer> weights)
             throws URISyntaxException
     {
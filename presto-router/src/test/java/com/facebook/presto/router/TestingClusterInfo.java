@@ -0,0 +1,81 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.router;
+
+import com.facebook.presto.spi.router.ClusterInfo;
+
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TestingClusterInfo
+        implements ClusterInfo
+{
+    private final long runningQueries;
+    private final long blockedQueries;
+    private final long queuedQueries;
+    private final long activeWorkers;
+    private final AtomicLong refreshCount = new AtomicLong();
+
+    public TestingClusterInfo(long runningQueries, long blockedQueries, long queuedQueries, long activeWorkers)
+    {
+        this.runningQueries = runningQueries;
+        this.blockedQueries = blockedQueries;
+        this.queuedQueries = queuedQueries;
+        this.activeWorkers = activeWorkers;
+    }
+
+    @Override
+    public long getRunningQueries()
+    {
+        return runningQueries;
+    }
+
+    @Override
+    public long getBlockedQueries()
+    {
+        return blockedQueries;
+    }
+
+    @Override
+    public long getQueuedQueries()
+    {
+        return queuedQueries;
+    }
+
+    @Override
+    public long getActiveWorkers()
+    {
+        return activeWorkers;
+    }
+
+    @Override
+    public long getRunningDrivers()
+    {
+        return 0;
+    }
+
+    @Override
+    public OptionalLong getRefreshCount()
+    {
+        return OptionalLong.of(refreshCount.get());
+    }
+
+    /**
+     * Simulates a poll of the cluster which returned the same counts.
+     */
+    public void refresh()
+    {
+        refreshCount.incrementAndGet();
+    }
+}
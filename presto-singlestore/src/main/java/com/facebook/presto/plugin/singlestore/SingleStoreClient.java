@@ -23,6 +23,7 @@ import com.facebook.presto.plugin.jdbc.JdbcConnectorId;
 import com.facebook.presto.plugin.jdbc.JdbcIdentity;
 import com.facebook.presto.plugin.jdbc.JdbcTableHandle;
 import com.facebook.presto.plugin.jdbc.JdbcTypeHandle;
+import com.facebook.presto.plugin.jdbc.JdbcWriteConfig;
 import com.facebook.presto.plugin.jdbc.mapping.ReadMapping;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.ConnectorTableMetadata;
@@ -64,18 +65,22 @@ public class SingleStoreClient
     private static final String SQL_STATE_ER_TABLE_EXISTS_ERROR = "42S01";
 
     @Inject
-    public SingleStoreClient(JdbcConnectorId connectorId, BaseJdbcConfig config)
+    public SingleStoreClient(JdbcConnectorId connectorId, BaseJdbcConfig config, JdbcWriteConfig writeConfig)
     {
         super(connectorId, config, "`",
                 new DriverConnectionFactory(new Driver(), config.getConnectionUrl(), Optional.ofNullable(config.getUserCredentialName()),
-                        Optional.ofNullable(config.getPasswordCredentialName()), connectionProperties(config)));
+                        Optional.ofNullable(config.getPasswordCredentialName()), connectionProperties(config, writeConfig)));
     }
 
-    private static Properties connectionProperties(BaseJdbcConfig config)
+    private static Properties connectionProperties(BaseJdbcConfig config, JdbcWriteConfig writeConfig)
     {
         Properties connectionProperties = DriverConnectionFactory.basicConnectionProperties(config);
         String connectionAttributes = String.format("_connector_name:%s", "SingleStore Presto Connector");
         connectionProperties.setProperty("connectionAttributes", connectionAttributes);
+        if (writeConfig.isBulkWriteEnabled()) {
+            // send each batch as multi-row INSERT statements
+            connectionProperties.setProperty("rewriteBatchedStatements", "true");
+        }
         return connectionProperties;
     }
 
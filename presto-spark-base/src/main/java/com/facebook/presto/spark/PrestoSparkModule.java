@@ -25,6 +25,8 @@ import com.facebook.presto.GroupByHashPageIndexerFactory;
 import com.facebook.presto.PagesIndexPageSorter;
 import com.facebook.presto.SystemSessionProperties;
 import com.facebook.presto.block.BlockJsonSerde;
+import com.facebook.presto.cacheaffinity.CacheAffinityConfig;
+import com.facebook.presto.cacheaffinity.LocalCacheDigest;
 import com.facebook.presto.client.NodeVersion;
 import com.facebook.presto.client.ServerInfo;
 import com.facebook.presto.common.block.Block;
@@ -91,6 +93,7 @@ import com.facebook.presto.metadata.TablePropertyManager;
 import com.facebook.presto.nodeManager.PluginNodeManager;
 import com.facebook.presto.operator.FileFragmentResultCacheConfig;
 import com.facebook.presto.operator.FileFragmentResultCacheManager;
+import com.facebook.presto.operator.ForHashBuild;
 import com.facebook.presto.operator.FragmentCacheStats;
 import com.facebook.presto.operator.FragmentResultCacheManager;
 import com.facebook.presto.operator.LookupJoinOperators;
@@ -165,6 +168,8 @@ import com.facebook.presto.split.PageSinkManager;
 import com.facebook.presto.split.PageSinkProvider;
 import com.facebook.presto.split.PageSourceManager;
 import com.facebook.presto.split.PageSourceProvider;
+import com.facebook.presto.split.SharedScanConfig;
+import com.facebook.presto.split.SharedScanManager;
 import com.facebook.presto.split.SplitManager;
 import com.facebook.presto.sql.Serialization.VariableReferenceExpressionDeserializer;
 import com.facebook.presto.sql.Serialization.VariableReferenceExpressionSerializer;
@@ -450,6 +455,10 @@ public class PrestoSparkModule
         binder.bind(TaskExecutor.class).in(Scopes.SINGLETON);
 
         // data stream provider
+        configBinder(binder).bindConfig(SharedScanConfig.class);
+        binder.bind(SharedScanManager.class).in(Scopes.SINGLETON);
+        configBinder(binder).bindConfig(CacheAffinityConfig.class);
+        binder.bind(LocalCacheDigest.class).in(Scopes.SINGLETON);
         binder.bind(PageSourceManager.class).in(Scopes.SINGLETON);
         binder.bind(PageSourceProvider.class).to(PageSourceManager.class).in(Scopes.SINGLETON);
 
@@ -602,6 +611,14 @@ public class PrestoSparkModule
         return InMemoryTransactionManager.create(config, scheduledExecutor, catalogManager, executor);
     }
 
+    @Provides
+    @Singleton
+    @ForHashBuild
+    public static Executor createHashBuildExecutor(TaskExecutor taskExecutor)
+    {
+        return taskExecutor.getHashBuildExecutor();
+    }
+
     @Provides
     @Singleton
     public static FragmentResultCacheManager createFragmentResultCacheManager(FileFragmentResultCacheConfig config, BlockEncodingSerde blockEncodingSerde, FragmentCacheStats fragmentCacheStats)
@@ -14,6 +14,7 @@
 package com.facebook.presto.spark.node;
 
 import com.facebook.presto.Session;
+import com.facebook.presto.execution.SplitReclaimRequest;
 import com.facebook.presto.execution.StateMachine;
 import com.facebook.presto.execution.TaskId;
 import com.facebook.presto.execution.TaskInfo;
@@ -83,6 +84,12 @@ public class PrestoSparkTaskManager
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public TaskInfo reclaimSplits(TaskId taskId, List<SplitReclaimRequest> splitReclaimRequests)
+    {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public TaskInfo cancelTask(TaskId taskId)
     {
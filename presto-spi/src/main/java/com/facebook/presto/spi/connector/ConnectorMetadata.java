@@ -319,6 +319,16 @@ public interface ConnectorMetadata
         return TableStatistics.empty();
     }
 
+    /**
+     * Get a token identifying the version of the data read through the table handle and layout, e.g. a snapshot id.
+     * The token must change whenever the data changes. Return empty if the connector cannot tell when the data
+     * changes, in which case results computed from the table are never reused across queries.
+     */
+    default Optional<String> getTableVersionToken(ConnectorSession session, ConnectorTableHandle tableHandle, Optional<ConnectorTableLayoutHandle> tableLayoutHandle)
+    {
+        return Optional.empty();
+    }
+
     /**
      * Creates a schema.
      */
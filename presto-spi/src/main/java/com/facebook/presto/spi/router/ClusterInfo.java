@@ -13,6 +13,8 @@
  */
 package com.facebook.presto.spi.router;
 
+import java.util.OptionalLong;
+
 public interface ClusterInfo
 {
     long getRunningQueries();
@@ -24,4 +26,13 @@ public interface ClusterInfo
     long getActiveWorkers();
 
     long getRunningDrivers();
+
+    /**
+     * Number of times the information was refreshed from the cluster, if tracked.
+     * Changes on every refresh, even if none of the counts above changed.
+     */
+    default OptionalLong getRefreshCount()
+    {
+        return OptionalLong.empty();
+    }
 }
@@ -15,11 +15,13 @@ package com.facebook.presto.plugin.sqlserver;
 
 import com.facebook.presto.plugin.jdbc.BaseJdbcClient;
 import com.facebook.presto.plugin.jdbc.BaseJdbcConfig;
+import com.facebook.presto.plugin.jdbc.ConnectionFactory;
 import com.facebook.presto.plugin.jdbc.DriverConnectionFactory;
 import com.facebook.presto.plugin.jdbc.JdbcColumnHandle;
 import com.facebook.presto.plugin.jdbc.JdbcConnectorId;
 import com.facebook.presto.plugin.jdbc.JdbcIdentity;
 import com.facebook.presto.plugin.jdbc.JdbcTableHandle;
+import com.facebook.presto.plugin.jdbc.JdbcWriteConfig;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.SchemaTableName;
@@ -29,7 +31,10 @@ import jakarta.inject.Inject;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Optional;
+import java.util.Properties;
 
+import static com.facebook.presto.plugin.jdbc.DriverConnectionFactory.basicConnectionProperties;
 import static com.facebook.presto.plugin.jdbc.JdbcErrorCode.JDBC_ERROR;
 import static java.lang.String.format;
 import static java.util.Locale.ENGLISH;
@@ -40,9 +45,24 @@ public class SqlServerClient
     private static final Joiner DOT_JOINER = Joiner.on(".");
 
     @Inject
-    public SqlServerClient(JdbcConnectorId connectorId, BaseJdbcConfig config)
+    public SqlServerClient(JdbcConnectorId connectorId, BaseJdbcConfig config, JdbcWriteConfig writeConfig)
     {
-        super(connectorId, config, "\"", new DriverConnectionFactory(new SQLServerDriver(), config));
+        super(connectorId, config, "\"", connectionFactory(config, writeConfig));
+    }
+
+    private static ConnectionFactory connectionFactory(BaseJdbcConfig config, JdbcWriteConfig writeConfig)
+    {
+        Properties connectionProperties = basicConnectionProperties(config);
+        if (writeConfig.isBulkWriteEnabled()) {
+            // the driver sends batches of the plain INSERT statement through the bulk copy API
+            connectionProperties.setProperty("useBulkCopyForBatchInsert", "true");
+        }
+        return new DriverConnectionFactory(
+                new SQLServerDriver(),
+                config.getConnectionUrl(),
+                Optional.ofNullable(config.getUserCredentialName()),
+                Optional.ofNullable(config.getPasswordCredentialName()),
+                connectionProperties);
     }
 
     @Override
@@ -82,6 +82,7 @@ import static com.facebook.presto.execution.buffer.OutputBuffers.createInitialEm
 import static com.facebook.presto.memory.LocalMemoryManager.GENERAL_POOL;
 import static com.facebook.presto.sql.analyzer.FeaturesConfig.TaskSpillingStrategy.ORDER_BY_CREATE_TIME;
 import static com.facebook.presto.sql.analyzer.FeaturesConfig.TaskSpillingStrategy.ORDER_BY_REVOCABLE_BYTES;
+import static com.facebook.presto.sql.analyzer.FeaturesConfig.TaskSpillingStrategy.ORDER_BY_SPILL_EFFICIENCY;
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
@@ -368,6 +369,49 @@ public class TestMemoryRevokingScheduler
         }
     }
 
+    @Test
+    public void testOperatorRevokingOrderForSpillEfficiency()
+            throws Exception
+    {
+        SqlTask sqlTask1 = newSqlTask(new QueryId("query"), memoryPool);
+        TestOperatorContext operatorContext1 = createTestingOperatorContexts(sqlTask1, "operator1");
+
+        SqlTask sqlTask2 = newSqlTask(new QueryId("query"), memoryPool);
+        TestOperatorContext operatorContext2 = createTestingOperatorContexts(sqlTask2, "operator2");
+
+        // operator1 has already spilled a lot, so spilling it again means merging all of that data once more
+        operatorContext1.getSpillContext().updateBytes(new DataSize(4, MEGABYTE).toBytes());
+
+        allOperatorContexts = ImmutableSet.of(operatorContext1, operatorContext2);
+        List<SqlTask> tasks = ImmutableList.of(sqlTask1, sqlTask2);
+        MemoryRevokingScheduler scheduler = new MemoryRevokingScheduler(
+                singletonList(memoryPool),
+                () -> tasks,
+                queryContexts::get,
+                1.0,
+                1.0,
+                ORDER_BY_SPILL_EFFICIENCY,
+                false);
+        try {
+            scheduler.start();
+            scheduler.awaitAsynchronousCallbacksRun();
+            assertMemoryRevokingNotRequested();
+
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            scheduler.submitAsynchronousCallable(() -> future.get());
+            operatorContext1.localRevocableMemoryContext().setBytes(12);
+            operatorContext2.localRevocableMemoryContext().setBytes(11);
+            future.complete(null);
+
+            scheduler.awaitAsynchronousCallbacksRun();
+            assertMemoryRevokingRequestedFor(operatorContext1, operatorContext2);
+            assertEquals(TestOperatorContext.firstOperator, "operator2"); // operator2 should revoke first since spilling it is cheaper even though it holds fewer bytes
+        }
+        finally {
+            scheduler.stop();
+        }
+    }
+
     @Test
     public void testTaskThresholdRevokingScheduler()
             throws Exception
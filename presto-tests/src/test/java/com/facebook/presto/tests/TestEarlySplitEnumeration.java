@@ -0,0 +1,67 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.tests;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.testing.QueryRunner;
+import com.facebook.presto.tests.tpch.TpchQueryRunnerBuilder;
+import org.testng.annotations.Test;
+
+import static com.facebook.presto.SystemSessionProperties.EARLY_SPLIT_ENUMERATION_ENABLED;
+import static com.facebook.presto.SystemSessionProperties.EARLY_SPLIT_ENUMERATION_MAX_BUFFERED_SPLITS;
+import static com.facebook.presto.SystemSessionProperties.EXECUTION_POLICY;
+import static com.facebook.presto.SystemSessionProperties.JOIN_DISTRIBUTION_TYPE;
+
+public class TestEarlySplitEnumeration
+        extends AbstractTestQueryFramework
+{
+    @Override
+    protected QueryRunner createQueryRunner()
+            throws Exception
+    {
+        return TpchQueryRunnerBuilder.builder()
+                .amendSession(builder -> builder
+                        .setSystemProperty(EXECUTION_POLICY, "phased")
+                        .setSystemProperty(JOIN_DISTRIBUTION_TYPE, "PARTITIONED")
+                        .setSystemProperty(EARLY_SPLIT_ENUMERATION_ENABLED, "true"))
+                .build();
+    }
+
+    @Test
+    public void testJoin()
+    {
+        assertQuery("SELECT count(*), sum(l.quantity) FROM lineitem l JOIN orders o ON l.orderkey = o.orderkey WHERE o.orderpriority = '1-URGENT'");
+        assertQuery("SELECT o.orderkey, c.name FROM orders o JOIN customer c ON o.custkey = c.custkey WHERE o.totalprice > 400000");
+    }
+
+    @Test
+    public void testJoinWithSingleBufferedSplit()
+    {
+        // the delayed probe side stages can only fetch one split ahead and must resume once their phase is scheduled
+        Session session = Session.builder(getSession())
+                .setSystemProperty(EARLY_SPLIT_ENUMERATION_MAX_BUFFERED_SPLITS, "1")
+                .build();
+        assertQuery(session, "SELECT count(*), sum(l.quantity) FROM lineitem l JOIN orders o ON l.orderkey = o.orderkey WHERE o.orderpriority = '1-URGENT'");
+        assertQuery(session, "SELECT n.name, count(*) FROM nation n JOIN customer c ON n.nationkey = c.nationkey JOIN orders o ON c.custkey = o.custkey GROUP BY n.name");
+    }
+
+    @Test
+    public void testInvalidMaxBufferedSplits()
+    {
+        Session session = Session.builder(getSession())
+                .setSystemProperty(EARLY_SPLIT_ENUMERATION_MAX_BUFFERED_SPLITS, "0")
+                .build();
+        assertQueryFails(session, "SELECT count(*) FROM orders", "early_split_enumeration_max_buffered_splits must be equal or greater than 1");
+    }
+}